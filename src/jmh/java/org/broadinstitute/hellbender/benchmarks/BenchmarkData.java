@@ -0,0 +1,116 @@
+package org.broadinstitute.hellbender.benchmarks;
+
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic inputs for the JMH benchmarks.
+ *
+ * All data is derived from a caller-supplied {@link Random}, so that every benchmark run (and every release) is
+ * measured on exactly the same inputs.
+ */
+public final class BenchmarkData {
+
+    /**
+     * Seed used by all benchmarks, unless they have a reason to vary it
+     */
+    public static final long SEED = 13L;
+
+    private static final byte[] BASES = {'A', 'C', 'G', 'T'};
+
+    private BenchmarkData() {}
+
+    /**
+     * @return a new Random with the standard benchmark seed
+     */
+    public static Random newRandom() {
+        return new Random(SEED);
+    }
+
+    /**
+     * @return length random bases (A, C, G or T)
+     */
+    public static byte[] randomBases(final Random random, final int length) {
+        final byte[] bases = new byte[length];
+        for ( int i = 0; i < length; i++ ) {
+            bases[i] = BASES[random.nextInt(BASES.length)];
+        }
+        return bases;
+    }
+
+    /**
+     * @return length random base qualities, uniform between minQual and maxQual (inclusive)
+     */
+    public static byte[] randomQuals(final Random random, final int length, final int minQual, final int maxQual) {
+        Utils.validateArg(minQual <= maxQual, "minQual must be <= maxQual");
+        final byte[] quals = new byte[length];
+        for ( int i = 0; i < length; i++ ) {
+            quals[i] = (byte)(minQual + random.nextInt(maxQual - minQual + 1));
+        }
+        return quals;
+    }
+
+    /**
+     * @return a copy of bases in which each base has been replaced by a different base with probability substitutionRate
+     */
+    public static byte[] withSubstitutions(final Random random, final byte[] bases, final double substitutionRate) {
+        final byte[] result = Arrays.copyOf(bases, bases.length);
+        for ( int i = 0; i < result.length; i++ ) {
+            if ( random.nextDouble() < substitutionRate ) {
+                byte newBase;
+                do {
+                    newBase = BASES[random.nextInt(BASES.length)];
+                } while ( newBase == result[i] );
+                result[i] = newBase;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return a copy of bases with deletionLength bases removed at offset
+     */
+    public static byte[] withDeletion(final byte[] bases, final int offset, final int deletionLength) {
+        Utils.validateArg(offset >= 0 && offset + deletionLength <= bases.length, "deletion must be within the sequence");
+        final byte[] result = new byte[bases.length - deletionLength];
+        System.arraycopy(bases, 0, result, 0, offset);
+        System.arraycopy(bases, offset + deletionLength, result, offset, bases.length - offset - deletionLength);
+        return result;
+    }
+
+    /**
+     * Create fully aligned reads (cigar {@code <readLength>M}) sampled uniformly from a template sequence,
+     * with random sequencing errors and qualities. The reads are in coordinate order.
+     *
+     * @param header header for the reads. Reads are placed on its first contig, at the template start position.
+     * @param template sequence to sample reads from
+     * @param templateStart alignment start of the template
+     * @param numReads number of reads to create
+     * @param readLength length of each read. Must be <= the template length.
+     * @param errorRate per-base substitution error rate
+     */
+    public static List<GATKRead> readsFromTemplate(final Random random, final SAMFileHeader header, final byte[] template, final int templateStart,
+                                                   final int numReads, final int readLength, final double errorRate) {
+        Utils.validateArg(readLength <= template.length, "readLength must be <= the template length");
+        final int[] offsets = new int[numReads];
+        for ( int i = 0; i < numReads; i++ ) {
+            offsets[i] = random.nextInt(template.length - readLength + 1);
+        }
+        Arrays.sort(offsets);
+
+        final List<GATKRead> reads = new ArrayList<>(numReads);
+        for ( int i = 0; i < numReads; i++ ) {
+            final byte[] bases = withSubstitutions(random, Arrays.copyOfRange(template, offsets[i], offsets[i] + readLength), errorRate);
+            final byte[] quals = randomQuals(random, readLength, 10, 40);
+            reads.add(ArtificialReadUtils.createArtificialRead(header, "read" + i, 0, templateStart + offsets[i], bases, quals, readLength + "M"));
+        }
+        return reads;
+    }
+}
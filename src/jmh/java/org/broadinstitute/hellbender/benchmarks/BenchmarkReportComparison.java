@@ -0,0 +1,125 @@
+package org.broadinstitute.hellbender.benchmarks;
+
+import com.opencsv.CSVReader;
+import org.broadinstitute.hellbender.exceptions.UserException;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares two JMH result files written in CSV format (as produced by the {@code jmh} Gradle task), and prints
+ * the relative change in score of every benchmark that appears in both.
+ *
+ * Benchmarks are matched by name, mode and parameter values. A change is flagged as significant when the scores
+ * differ by more than the sum of their 99.9% confidence half-widths.
+ *
+ * Usage: {@code BenchmarkReportComparison <baseline.csv> <results.csv>}
+ */
+public final class BenchmarkReportComparison {
+
+    private static final String BENCHMARK_COLUMN = "Benchmark";
+    private static final String MODE_COLUMN = "Mode";
+    private static final String SCORE_COLUMN = "Score";
+    private static final String SCORE_ERROR_COLUMN_PREFIX = "Score Error";
+    private static final String UNIT_COLUMN = "Unit";
+    private static final String PARAM_COLUMN_PREFIX = "Param: ";
+
+    /**
+     * One row of a JMH CSV report
+     */
+    private static final class Result {
+        private final double score;
+        private final double scoreError;
+        private final String unit;
+
+        private Result( final double score, final double scoreError, final String unit ) {
+            this.score = score;
+            this.scoreError = scoreError;
+            this.unit = unit;
+        }
+    }
+
+    private BenchmarkReportComparison() {}
+
+    public static void main( final String[] args ) {
+        if ( args.length != 2 || args[0].isEmpty() || args[1].isEmpty() ) {
+            throw new UserException("Usage: BenchmarkReportComparison <baseline.csv> <results.csv>");
+        }
+        final Map<String, Result> baseline = readResults(new File(args[0]));
+        final Map<String, Result> results = readResults(new File(args[1]));
+
+        System.out.println(String.format("%-100s %15s %15s %9s %s", "Benchmark", "Baseline", "Results", "Change", ""));
+        for ( final Map.Entry<String, Result> entry : results.entrySet() ) {
+            final Result before = baseline.get(entry.getKey());
+            final Result after = entry.getValue();
+            if ( before == null ) {
+                System.out.println(String.format("%-100s %15s %15.3f %9s %s", entry.getKey(), "-", after.score, "-", after.unit + " (new)"));
+            } else if ( ! before.unit.equals(after.unit) ) {
+                System.out.println(String.format("%-100s %15.3f %15.3f %9s %s", entry.getKey(), before.score, after.score, "-", "units differ: " + before.unit + " vs " + after.unit));
+            } else {
+                final double change = 100.0 * (after.score - before.score) / before.score;
+                final boolean significant = Math.abs(after.score - before.score) > before.scoreError + after.scoreError;
+                System.out.println(String.format("%-100s %15.3f %15.3f %8.1f%% %s", entry.getKey(), before.score, after.score, change, after.unit + (significant ? " *" : "")));
+            }
+        }
+        baseline.keySet().stream().filter(key -> ! results.containsKey(key))
+                .forEach(key -> System.out.println(String.format("%-100s %15.3f %15s %9s %s", key, baseline.get(key).score, "-", "-", baseline.get(key).unit + " (removed)")));
+    }
+
+    /**
+     * @return results keyed by benchmark name, mode and parameter values, in file order
+     */
+    private static Map<String, Result> readResults( final File csvFile ) {
+        try ( final CSVReader reader = new CSVReader(new FileReader(csvFile)) ) {
+            final List<String[]> rows = reader.readAll();
+            if ( rows.isEmpty() ) {
+                throw new UserException.MalformedFile(csvFile, "Empty JMH result file");
+            }
+            final List<String> columns = Arrays.asList(rows.get(0));
+            final int benchmarkColumn = requireColumn(csvFile, columns, BENCHMARK_COLUMN);
+            final int modeColumn = requireColumn(csvFile, columns, MODE_COLUMN);
+            final int scoreColumn = requireColumn(csvFile, columns, SCORE_COLUMN);
+            final int unitColumn = requireColumn(csvFile, columns, UNIT_COLUMN);
+            int scoreErrorColumn = -1;
+            for ( int i = 0; i < columns.size(); i++ ) {
+                if ( columns.get(i).startsWith(SCORE_ERROR_COLUMN_PREFIX) ) {
+                    scoreErrorColumn = i;
+                }
+            }
+
+            final Map<String, Result> results = new LinkedHashMap<>();
+            for ( final String[] row : rows.subList(1, rows.size()) ) {
+                final StringBuilder key = new StringBuilder(row[benchmarkColumn]).append(" (").append(row[modeColumn]);
+                for ( int i = 0; i < columns.size(); i++ ) {
+                    if ( columns.get(i).startsWith(PARAM_COLUMN_PREFIX) && i < row.length && ! row[i].isEmpty() ) {
+                        key.append(", ").append(columns.get(i).substring(PARAM_COLUMN_PREFIX.length())).append('=').append(row[i]);
+                    }
+                }
+                key.append(')');
+                final double scoreError = scoreErrorColumn >= 0 ? parseScore(row[scoreErrorColumn]) : 0.0;
+                results.put(key.toString(), new Result(parseScore(row[scoreColumn]), Double.isNaN(scoreError) ? 0.0 : scoreError, row[unitColumn]));
+            }
+            return results;
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotReadInputFile(csvFile, e);
+        }
+    }
+
+    private static int requireColumn( final File csvFile, final List<String> columns, final String column ) {
+        final int index = columns.indexOf(column);
+        if ( index < 0 ) {
+            throw new UserException.MalformedFile(csvFile, "Not a JMH CSV result file: missing column " + column);
+        }
+        return index;
+    }
+
+    private static double parseScore( final String value ) {
+        // JMH writes scores using the default locale
+        return value.isEmpty() ? Double.NaN : Double.parseDouble(value.replace(',', '.'));
+    }
+}
@@ -0,0 +1,105 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.benchmarks.BenchmarkData;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link SAMRecordToGATKReadAdapterSerializer} with {@link CompactSAMRecordToGATKReadAdapterSerializer}
+ * on paired, read-grouped reads. The setup prints the number of bytes per read that each serializer writes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadSerializerBenchmark {
+
+    private static final int REFERENCE_LENGTH = 100000;
+    private static final int NUM_READS = 1000;
+
+    @Param({"bam", "compact"})
+    public String serializerName;
+
+    @Param({"101", "151"})
+    public int readLength;
+
+    private final Kryo kryo = new Kryo();
+    private Serializer<SAMRecordToGATKReadAdapter> serializer;
+    private List<SAMRecordToGATKReadAdapter> reads;
+    private Output output;
+    private byte[] serialized;
+
+    @Setup
+    public void setup() {
+        serializer = serializerName.equals("compact") ? new CompactSAMRecordToGATKReadAdapterSerializer() : new SAMRecordToGATKReadAdapterSerializer();
+
+        final Random random = BenchmarkData.newRandom();
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader(1, 1, REFERENCE_LENGTH);
+        final byte[] reference = BenchmarkData.randomBases(random, REFERENCE_LENGTH);
+        reads = new ArrayList<>(NUM_READS);
+        for ( final GATKRead read : BenchmarkData.readsFromTemplate(random, header, reference, 1, NUM_READS, readLength, 0.01) ) {
+            read.setIsPaired(true);
+            read.setMatePosition(read.getContig(), read.getStart() + 300);
+            read.setFragmentLength(300 + readLength);
+            read.setReadGroup("readGroup" + random.nextInt(4));
+            read.setAttribute("NM", random.nextInt(3));
+            read.setAttribute("MC", readLength + "M");
+            reads.add(SAMRecordToGATKReadAdapter.headerlessReadAdapter(((SAMRecordToGATKReadAdapter) read).getEncapsulatedSamRecord()));
+        }
+
+        output = new Output(NUM_READS * readLength * 4);
+        serialized = serialize();
+        System.out.printf("%n%s: %.1f bytes per read%n", serializerName, serialized.length / (double) NUM_READS);
+    }
+
+    private byte[] serialize() {
+        output.clear();
+        for ( final SAMRecordToGATKReadAdapter read : reads ) {
+            serializer.write(kryo, output, read);
+        }
+        return output.toBytes();
+    }
+
+    @Benchmark
+    public int write() {
+        output.clear();
+        for ( final SAMRecordToGATKReadAdapter read : reads ) {
+            serializer.write(kryo, output, read);
+        }
+        return output.position();
+    }
+
+    @Benchmark
+    public int read() {
+        final Input input = new Input(serialized);
+        int totalLength = 0;
+        for ( int i = 0; i < NUM_READS; i++ ) {
+            totalLength += serializer.read(kryo, input, SAMRecordToGATKReadAdapter.class).getLength();
+        }
+        return totalLength;
+    }
+}
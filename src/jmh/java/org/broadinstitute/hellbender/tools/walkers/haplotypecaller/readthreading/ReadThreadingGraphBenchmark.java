@@ -0,0 +1,74 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.benchmarks.BenchmarkData;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.graphs.SeqGraph;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks building a {@link ReadThreadingGraph} from a reference and the reads of an active region,
+ * and converting it to a sequence graph, as done for each kmer size by the HaplotypeCaller assembler.
+ *
+ * Reads are sampled from two haplotypes (the reference and a haplotype with a few SNPs), with sequencing errors.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadThreadingGraphBenchmark {
+
+    private static final int REFERENCE_LENGTH = 500;
+    private static final int READ_LENGTH = 151;
+
+    @Param({"10", "25"})
+    public int kmerSize;
+
+    @Param({"200", "1000"})
+    public int numReads;
+
+    private SAMFileHeader header;
+    private byte[] reference;
+    private List<GATKRead> reads;
+
+    @Setup
+    public void setup() {
+        final Random random = BenchmarkData.newRandom();
+        header = ArtificialReadUtils.createArtificialSamHeader(1, 1, 1000000);
+        reference = BenchmarkData.randomBases(random, REFERENCE_LENGTH);
+        final byte[] alternate = BenchmarkData.withSubstitutions(random, reference, 0.01);
+
+        reads = new ArrayList<>(numReads);
+        reads.addAll(BenchmarkData.readsFromTemplate(random, header, reference, 1, numReads / 2, READ_LENGTH, 0.01));
+        reads.addAll(BenchmarkData.readsFromTemplate(random, header, alternate, 1, numReads - numReads / 2, READ_LENGTH, 0.01));
+    }
+
+    @Benchmark
+    public SeqGraph buildGraph() {
+        final ReadThreadingGraph graph = new ReadThreadingGraph(kmerSize);
+        graph.addSequence("ref", reference, true);
+        for ( final GATKRead read : reads ) {
+            graph.addRead(read, header);
+        }
+        graph.buildGraphIfNecessary();
+        return graph.toSequenceGraph();
+    }
+}
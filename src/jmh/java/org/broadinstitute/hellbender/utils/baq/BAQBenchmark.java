@@ -0,0 +1,75 @@
+package org.broadinstitute.hellbender.utils.baq;
+
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.benchmarks.BenchmarkData;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link BAQ#calcBAQFromHMM(GATKRead, byte[], int)} on reads with sequencing errors,
+ * using the reference window that BQSR would query for each read.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BAQBenchmark {
+
+    private static final int REFERENCE_LENGTH = 20000;
+    private static final int NUM_READS = 100;
+
+    @Param({"101", "151", "250"})
+    public int readLength;
+
+    private BAQ baq;
+    private List<GATKRead> reads;
+    private byte[][] referenceWindows;
+    private int[] referenceOffsets;
+
+    @Setup
+    public void setup() {
+        final Random random = BenchmarkData.newRandom();
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader(1, 1, REFERENCE_LENGTH);
+        final byte[] reference = BenchmarkData.randomBases(random, REFERENCE_LENGTH);
+        reads = BenchmarkData.readsFromTemplate(random, header, reference, 1, NUM_READS, readLength, 0.02);
+
+        baq = new BAQ();
+        referenceWindows = new byte[NUM_READS][];
+        referenceOffsets = new int[NUM_READS];
+        for ( int i = 0; i < NUM_READS; i++ ) {
+            final GATKRead read = reads.get(i);
+            final SimpleInterval window = BAQ.getReferenceWindowForRead(read, baq.getBandWidth());
+            referenceWindows[i] = Arrays.copyOfRange(reference, window.getStart() - 1, Math.min(window.getEnd(), REFERENCE_LENGTH));
+            referenceOffsets[i] = window.getStart() - read.getStart();
+        }
+    }
+
+    @Benchmark
+    public int calcBAQ() {
+        int totalBaq = 0;
+        for ( int i = 0; i < NUM_READS; i++ ) {
+            final BAQ.BAQCalculationResult result = baq.calcBAQFromHMM(reads.get(i), referenceWindows[i], referenceOffsets[i]);
+            totalBaq += result == null ? 0 : result.bq[0];
+        }
+        return totalBaq;
+    }
+}
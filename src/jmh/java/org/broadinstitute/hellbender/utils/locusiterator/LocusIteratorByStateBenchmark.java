@@ -0,0 +1,63 @@
+package org.broadinstitute.hellbender.utils.locusiterator;
+
+import org.broadinstitute.hellbender.engine.AlignmentContext;
+import org.broadinstitute.hellbender.utils.downsampling.DownsamplingMethod;
+import org.broadinstitute.hellbender.utils.read.ArtificialBAMBuilder;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks traversing reads by locus with {@link LocusIteratorByState}, without downsampling,
+ * on reads created by {@link ArtificialBAMBuilder}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocusIteratorByStateBenchmark {
+
+    private static final int NUM_LOCI = 1000;
+    private static final int READ_LENGTH = 101;
+
+    @Param({"1", "10"})
+    public int readsPerLocus;
+
+    @Param({"1", "4"})
+    public int numSamples;
+
+    private ArtificialBAMBuilder bamBuilder;
+    private List<GATKRead> reads;
+
+    @Setup
+    public void setup() {
+        bamBuilder = new ArtificialBAMBuilder(readsPerLocus, NUM_LOCI).setReadLength(READ_LENGTH).createAndSetHeader(numSamples);
+        reads = bamBuilder.makeReads();
+    }
+
+    @Benchmark
+    public long traverse() {
+        final LocusIteratorByState libs = new LocusIteratorByState(reads.iterator(), DownsamplingMethod.NONE, false,
+                bamBuilder.getSamples(), bamBuilder.getHeader(), false);
+        long totalDepth = 0;
+        while ( libs.hasNext() ) {
+            final AlignmentContext context = libs.next();
+            totalDepth += context.size();
+        }
+        return totalDepth;
+    }
+}
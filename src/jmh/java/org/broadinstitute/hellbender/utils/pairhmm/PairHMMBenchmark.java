@@ -0,0 +1,109 @@
+package org.broadinstitute.hellbender.utils.pairhmm;
+
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.gatk.nativebindings.pairhmm.PairHMMNativeArguments;
+import org.broadinstitute.hellbender.benchmarks.BenchmarkData;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedAlleleList;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedSampleList;
+import org.broadinstitute.hellbender.utils.genotyper.ReadLikelihoods;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link PairHMM#computeLog10Likelihoods} on a HaplotypeCaller-sized active region: a set of haplotypes
+ * that differ from the reference by a few SNPs and one deletion, and reads sampled from the haplotypes.
+ *
+ * Only the Java implementations are benchmarked by default; the native ones can be selected with
+ * {@code -p implementation=AVX_LOGLESS_CACHING} on machines that support them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PairHMMBenchmark {
+
+    private static final int REFERENCE_LENGTH = 400;
+    private static final int READ_LENGTH = 151;
+    private static final byte GAP_CONTINUATION_PENALTY = 10;
+
+    @Param({"LOGLESS_CACHING", "STRIPED_LOGLESS_CACHING", "ORIGINAL", "EXACT"})
+    public String implementation;
+
+    @Param({"4", "16"})
+    public int numHaplotypes;
+
+    @Param({"100", "400"})
+    public int numReads;
+
+    private PairHMM pairHMM;
+    private ReadLikelihoods<Haplotype> likelihoods;
+    private List<GATKRead> reads;
+    private Map<GATKRead, byte[]> gapContinuationPenalties;
+
+    @Setup
+    public void setup() {
+        final Random random = BenchmarkData.newRandom();
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader(1, 1, 1000000);
+
+        final byte[] reference = BenchmarkData.randomBases(random, REFERENCE_LENGTH);
+        final List<Haplotype> haplotypes = new ArrayList<>(numHaplotypes);
+        haplotypes.add(new Haplotype(reference, true));
+        for ( int i = 1; i < numHaplotypes; i++ ) {
+            final byte[] variant = BenchmarkData.withSubstitutions(random, reference, 0.005);
+            haplotypes.add(new Haplotype(i % 2 == 0 ? BenchmarkData.withDeletion(variant, REFERENCE_LENGTH / 2, 3) : variant, false));
+        }
+
+        reads = new ArrayList<>(numReads);
+        for ( int i = 0; i < numReads; i++ ) {
+            final Haplotype source = haplotypes.get(random.nextInt(numHaplotypes));
+            reads.addAll(BenchmarkData.readsFromTemplate(random, header, source.getBases(), 1, 1, READ_LENGTH, 0.01));
+        }
+
+        gapContinuationPenalties = new HashMap<>(numReads);
+        for ( final GATKRead read : reads ) {
+            final byte[] gcp = new byte[read.getLength()];
+            Arrays.fill(gcp, GAP_CONTINUATION_PENALTY);
+            gapContinuationPenalties.put(read, gcp);
+        }
+
+        final String sample = "sample";
+        likelihoods = new ReadLikelihoods<>(new IndexedSampleList(sample), new IndexedAlleleList<>(haplotypes), Collections.singletonMap(sample, reads));
+        pairHMM = PairHMM.Implementation.valueOf(implementation).makeNewHMM(new PairHMMNativeArguments());
+        pairHMM.initialize(haplotypes, Collections.singletonMap(sample, reads), READ_LENGTH, REFERENCE_LENGTH);
+    }
+
+    @Benchmark
+    public double[] computeLikelihoods() {
+        pairHMM.computeLog10Likelihoods(likelihoods.sampleMatrix(0), reads, gapContinuationPenalties);
+        return pairHMM.getLogLikelihoodArray();
+    }
+
+    @TearDown
+    public void tearDown() {
+        pairHMM.close();
+    }
+}
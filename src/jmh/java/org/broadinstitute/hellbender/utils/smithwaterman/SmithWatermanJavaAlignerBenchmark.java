@@ -0,0 +1,70 @@
+package org.broadinstitute.hellbender.utils.smithwaterman;
+
+import org.broadinstitute.gatk.nativebindings.smithwaterman.SWOverhangStrategy;
+import org.broadinstitute.gatk.nativebindings.smithwaterman.SWParameters;
+import org.broadinstitute.hellbender.benchmarks.BenchmarkData;
+import org.broadinstitute.hellbender.utils.read.CigarUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link SmithWatermanJavaAligner#align} for the two main uses of Smith-Waterman in the HaplotypeCaller:
+ * aligning a haplotype against the reference ("haplotypeToReference", with the parameters used for haplotypes),
+ * and aligning a read against a haplotype ("readToHaplotype", with the standard NGS parameters).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SmithWatermanJavaAlignerBenchmark {
+
+    @Param({"haplotypeToReference", "readToHaplotype"})
+    public String alignmentType;
+
+    @Param({"300", "1000"})
+    public int referenceLength;
+
+    private SmithWatermanAligner aligner;
+    private byte[] reference;
+    private byte[] alternate;
+    private SWParameters parameters;
+    private SWOverhangStrategy overhangStrategy;
+
+    @Setup
+    public void setup() {
+        final Random random = BenchmarkData.newRandom();
+        reference = BenchmarkData.randomBases(random, referenceLength);
+        final byte[] variant = BenchmarkData.withDeletion(BenchmarkData.withSubstitutions(random, reference, 0.01), referenceLength / 3, 5);
+        if ( alignmentType.equals("haplotypeToReference") ) {
+            alternate = variant;
+            parameters = CigarUtils.NEW_SW_PARAMETERS;
+            overhangStrategy = SWOverhangStrategy.SOFTCLIP;
+        } else {
+            final int readStart = referenceLength / 4;
+            alternate = BenchmarkData.withSubstitutions(random, Arrays.copyOfRange(variant, readStart, Math.min(readStart + 151, variant.length)), 0.01);
+            parameters = SmithWatermanAligner.STANDARD_NGS;
+            overhangStrategy = SWOverhangStrategy.INDEL;
+        }
+        aligner = SmithWatermanJavaAligner.getInstance();
+    }
+
+    @Benchmark
+    public SmithWatermanAlignment align() {
+        return aligner.align(reference, alternate, parameters, overhangStrategy);
+    }
+}
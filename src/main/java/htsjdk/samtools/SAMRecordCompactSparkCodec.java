@@ -0,0 +1,131 @@
+package htsjdk.samtools;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import htsjdk.samtools.util.BinaryCodec;
+import org.broadinstitute.hellbender.engine.spark.PackedBasesCodec;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A more compact alternative to {@link SAMRecordSparkCodec} for headerless records in Kryo streams.
+ *
+ * Where {@link SAMRecordSparkCodec} writes the fixed-width BAM record, this writes every number as a varint, the
+ * mate reference name only when it differs from the reference name, the cigar as one varint per element, the bases
+ * in 2 bits each with the positions of the Ns listed separately (see {@link PackedBasesCodec}), and the qualities
+ * only if there are any. Tags are written in their BAM binary encoding, in which the tag keys already take two bytes.
+ * On the way back, read group names are interned, so that the many reads of a read group share one string.
+ *
+ * Unlike {@link SAMRecordSparkCodec}, which decodes to lazily-decoded {@link BAMRecord}s, this decodes to plain
+ * {@link SAMRecord}s. Not thread-safe: use one codec per Kryo instance.
+ */
+public final class SAMRecordCompactSparkCodec {
+
+    private static final short READ_GROUP_TAG = SAMTagUtil.getSingleton().RG;
+    // beyond this many distinct read groups, they are no longer interned
+    private static final int MAX_INTERNED_READ_GROUPS = 10000;
+
+    private static final byte MATE_ON_SAME_REFERENCE = 0;
+    private static final byte MATE_ON_OTHER_REFERENCE = 1;
+
+    private final ByteArrayOutputStream tagBuffer = new ByteArrayOutputStream();
+    private final BinaryTagCodec binaryTagCodec = new BinaryTagCodec(new BinaryCodec(tagBuffer));
+    private final Map<String, String> readGroups = new HashMap<>();
+
+    public void encode(final SAMRecord record, final Output output) {
+        output.writeInt(record.getFlags(), true);
+        output.writeString(record.getReadName());
+        final String referenceName = record.getReferenceName();
+        output.writeString(referenceName);
+        output.writeInt(record.getAlignmentStart(), true);
+        output.writeInt(record.getMappingQuality(), true);
+
+        final List<CigarElement> cigarElements = record.getCigar().getCigarElements();
+        output.writeInt(cigarElements.size(), true);
+        for (final CigarElement element : cigarElements) {
+            output.writeInt(element.getLength() << 4 | CigarOperator.enumToBinary(element.getOperator()), true);
+        }
+
+        final String mateReferenceName = record.getMateReferenceName();
+        if (mateReferenceName.equals(referenceName)) {
+            output.writeByte(MATE_ON_SAME_REFERENCE);
+        } else {
+            output.writeByte(MATE_ON_OTHER_REFERENCE);
+            output.writeString(mateReferenceName);
+        }
+        output.writeInt(record.getMateAlignmentStart(), true);
+        output.writeInt(record.getInferredInsertSize(), false);
+
+        final byte[] bases = record.getReadBases();
+        PackedBasesCodec.write(output, bases);
+        final byte[] qualities = record.getBaseQualities();
+        if (qualities.length != 0 && qualities.length != bases.length) {
+            throw new SAMException("Mismatch between read length and quals length writing read " +
+                    record.getReadName() + "; read length: " + bases.length + "; quals length: " + qualities.length);
+        }
+        output.writeBoolean(qualities.length != 0);
+        output.writeBytes(qualities);
+
+        tagBuffer.reset();
+        for (SAMBinaryTagAndValue attribute = record.getBinaryAttributes(); attribute != null; attribute = attribute.getNext()) {
+            binaryTagCodec.writeTag(attribute.tag, attribute.value, attribute.isUnsignedArray());
+        }
+        output.writeInt(tagBuffer.size(), true);
+        output.writeBytes(tagBuffer.toByteArray());
+    }
+
+    public SAMRecord decode(final Input input) {
+        final SAMRecord record = new SAMRecord(null);
+        record.setFlags(input.readInt(true));
+        record.setReadName(input.readString());
+        final String referenceName = input.readString();
+        record.setReferenceName(referenceName);
+        record.setAlignmentStart(input.readInt(true));
+        record.setMappingQuality(input.readInt(true));
+
+        final int numCigarElements = input.readInt(true);
+        final List<CigarElement> cigarElements = new ArrayList<>(numCigarElements);
+        for (int i = 0; i < numCigarElements; i++) {
+            final int element = input.readInt(true);
+            cigarElements.add(new CigarElement(element >>> 4, CigarOperator.binaryToEnum(element & 0xf)));
+        }
+        record.setCigar(new Cigar(cigarElements));
+
+        record.setMateReferenceName(input.readByte() == MATE_ON_SAME_REFERENCE ? referenceName : input.readString());
+        record.setMateAlignmentStart(input.readInt(true));
+        record.setInferredInsertSize(input.readInt(false));
+
+        final byte[] bases = PackedBasesCodec.read(input);
+        record.setReadBases(bases);
+        record.setBaseQualities(input.readBoolean() ? input.readBytes(bases.length) : SAMRecord.NULL_QUALS);
+
+        final int tagsSize = input.readInt(true);
+        if (tagsSize > 0) {
+            record.setAttributes(BinaryTagCodec.readTags(input.readBytes(tagsSize), 0, tagsSize, ValidationStringency.SILENT));
+            final Object readGroup = record.getAttribute(READ_GROUP_TAG);
+            if (readGroup instanceof String) {
+                record.setAttribute(READ_GROUP_TAG, internReadGroup((String) readGroup));
+            }
+        }
+
+        // Explicitly clear the reference indices, which setReferenceName() and setMateReferenceName() leave set
+        // when either name is "*"
+        record.setHeaderStrict(null);
+        return record;
+    }
+
+    private String internReadGroup(final String readGroup) {
+        final String interned = readGroups.get(readGroup);
+        if (interned != null) {
+            return interned;
+        }
+        if (readGroups.size() < MAX_INTERNED_READ_GROUPS) {
+            readGroups.put(readGroup, readGroup);
+        }
+        return readGroup;
+    }
+}
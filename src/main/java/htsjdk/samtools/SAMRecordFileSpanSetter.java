@@ -0,0 +1,21 @@
+package htsjdk.samtools;
+
+/**
+ * Sets the file span of SAMRecords, which htsjdk only lets its own readers and writers do. BAM writers other than
+ * htsjdk's need this to build an index on the fly, since {@link BAMIndexer#processAlignment} takes the position of each
+ * record in the file from its file source.
+ */
+public final class SAMRecordFileSpanSetter {
+    private SAMRecordFileSpanSetter() {}
+
+    /**
+     * Record that the given record was written between the given BGZF virtual file pointers, as {@link BAMFileWriter} does
+     *
+     * @param record record that was written
+     * @param startFilePointer virtual file pointer of the first byte of the record
+     * @param endFilePointer virtual file pointer just past the last byte of the record
+     */
+    public static void setFileSpan(final SAMRecord record, final long startFilePointer, final long endFilePointer) {
+        record.setFileSource(new SAMFileSource(null, new BAMFileSpan(new Chunk(startFilePointer, endFilePointer))));
+    }
+}
@@ -9,6 +9,7 @@ import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.ClassUtils;
 import org.broadinstitute.hellbender.utils.runtime.RuntimeUtils;
+import org.broadinstitute.hellbender.utils.runtime.StartupTimer;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.config.ConfigFactory;
 
@@ -29,6 +30,10 @@ import java.util.*;
  * - {@link #handleNonUserException(Exception)} for handle non {@link UserException}.
  * - {@link #parseArgsForConfigSetup(String[])} for pulling command-line configuration options out and initializing the {@link org.broadinstitute.hellbender.utils.config.GATKConfig}
  *
+ * Command line programs in the packages covered by the {@link org.broadinstitute.hellbender.utils.ClassIndex} generated
+ * at build time are looked up there; other packages are scanned. Set {@link StartupTimer#REPORT_STARTUP_TIMES_PROPERTY}
+ * to true to get a report of the time spent in each startup phase.
+ *
  * Note: If any of the previous methods was overrided, {@link #main(String[])} should be implemented to instantiate your class
  * and call {@link #mainEntry(String[])} to make the changes effective.
  */
@@ -164,12 +169,18 @@ public class Main {
                                                               final List<String> packageList,
                                                               final List<Class<? extends CommandLineProgram>> classList,
                                                               final String commandLineName ){
+        final StartupTimer startupTimer = StartupTimer.getInstance();
+
         // Parse our config file path from our arguments and initialize the configuration file.
         // Note: this must be here because the command-line invocation inserts into here:
+        startupTimer.startPhase("Configuration");
         parseArgsForConfigSetup(args);
 
         // Get our command-line program:
-        return extractCommandLineProgram(args, packageList, classList, commandLineName);
+        startupTimer.startPhase("Tool discovery");
+        final CommandLineProgram program = extractCommandLineProgram(args, packageList, classList, commandLineName);
+        startupTimer.endPhase();
+        return program;
     }
 
     /**
@@ -286,14 +297,13 @@ public class Main {
                                                           final List<String> packageList,
                                                           final List<Class<? extends CommandLineProgram>> classList,
                                                           final String commandLineName ) {
-        /** Get the set of classes that are our command line programs **/
-        final ClassFinder classFinder = new ClassFinder();
+        /** Get the set of classes that are our command line programs, from the class index if it covers them **/
+        final Set<Class<?>> toCheck = new LinkedHashSet<>();
         for (final String pkg : packageList) {
-            classFinder.find(pkg, picard.cmdline.CommandLineProgram.class);
-            classFinder.find(pkg, CommandLineProgram.class);
+            toCheck.addAll(ClassUtils.findClasses(pkg, picard.cmdline.CommandLineProgram.class));
+            toCheck.addAll(ClassUtils.findClasses(pkg, CommandLineProgram.class));
         }
         String missingAnnotationClasses = "";
-        final Set<Class<?>> toCheck = classFinder.getClasses();
         toCheck.addAll(classList);
         final Map<String, Class<?>> simpleNameToClass = new LinkedHashMap<>();
         for (final Class<?> clazz : toCheck) {
@@ -19,6 +19,7 @@ import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.config.ConfigFactory;
 import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
 import org.broadinstitute.hellbender.utils.help.HelpConstants;
+import org.broadinstitute.hellbender.utils.runtime.StartupTimer;
 
 import java.io.File;
 import java.io.IOException;
@@ -131,7 +132,9 @@ public abstract class CommandLineProgram implements CommandLinePluginProvider {
     public final Object runTool(){
         try {
             logger.info("Initializing engine");
+            StartupTimer.getInstance().startPhase("Engine initialization");
             onStartup();
+            StartupTimer.getInstance().report(System.err);
             logger.info("Done initializing engine");
             return doWork();
         } finally {
@@ -191,7 +194,10 @@ public abstract class CommandLineProgram implements CommandLinePluginProvider {
     }
 
     public Object instanceMain(final String[] argv) {
-        if (!parseArgs(argv)) {
+        StartupTimer.getInstance().startPhase("Argument parsing");
+        final boolean parsed = parseArgs(argv);
+        StartupTimer.getInstance().endPhase();
+        if (!parsed) {
             //an information only argument like help or version was specified, just exit
             return 0;
         }
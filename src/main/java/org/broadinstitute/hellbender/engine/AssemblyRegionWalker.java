@@ -1,5 +1,7 @@
 package org.broadinstitute.hellbender.engine;
 
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.reference.ReferenceSequence;
 import htsjdk.samtools.util.Locatable;
 import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
@@ -42,6 +44,11 @@ import java.util.List;
  *
  * Internally, the reads are loaded in chunks called read shards, which are then subdivided into active/inactive regions
  * for processing by the tool implementation. One read shard is created per contig.
+ *
+ * Tools may optionally support processing regions on multiple threads (see {@link #ASSEMBLY_REGION_THREADS_LONG_NAME})
+ * by overriding {@link #supportsParallelAssemblyRegionProcessing}, {@link #makeAssemblyRegionWorker} and, if needed,
+ * {@link #prepareAssemblyRegionForWorker}. In this mode regions are still read and built on the traversal thread,
+ * but are then handed off to a pool of {@link AssemblyRegionWorker}s whose results are emitted in coordinate order.
  */
 public abstract class AssemblyRegionWalker extends GATKTool {
 
@@ -54,6 +61,7 @@ public abstract class AssemblyRegionWalker extends GATKTool {
     public static final String PROPAGATION_LONG_NAME = "max-prob-propagation-distance";
     public static final String PROFILE_OUT_LONG_NAME = "activity-profile-out";
     public static final String ASSEMBLY_REGION_OUT_LONG_NAME = "assembly-region-out";
+    public static final String ASSEMBLY_REGION_THREADS_LONG_NAME = "assembly-region-threads";
 
     @Advanced
     @Argument(fullName = MIN_ASSEMBLY_LONG_NAME, doc = "Minimum size of an assembly region", optional = true)
@@ -104,6 +112,17 @@ public abstract class AssemblyRegionWalker extends GATKTool {
 
     private PrintStream assemblyRegionOutStream;
 
+    /**
+     * If greater than 1, assembly regions are processed by this many worker threads, each with its own
+     * {@link AssemblyRegionWorker}. Regions are still determined on the traversal thread, and the results
+     * for each region are emitted in coordinate order, so the output is identical to that of a single-threaded run.
+     * Only supported by tools that override {@link #supportsParallelAssemblyRegionProcessing}. HaplotypeCaller rejects it
+     * with --skip-kmer-sizes-failed-in-same-repeat, which makes the assembly of a region depend on the regions before it.
+     */
+    @Advanced
+    @Argument(fullName = ASSEMBLY_REGION_THREADS_LONG_NAME, doc = "Number of threads to use for processing assembly regions", optional = true, minValue = 1)
+    protected int assemblyRegionThreads = 1;
+
     /**
      * @return Default value for the {@link #minAssemblyRegionSize} parameter, if none is provided on the command line
      */
@@ -175,6 +194,11 @@ public abstract class AssemblyRegionWalker extends GATKTool {
             throw new CommandLineException.BadArgumentValue("maxReadsPerAlignmentStart must be >= 0");
         }
 
+        if ( assemblyRegionThreads > 1 && ! supportsParallelAssemblyRegionProcessing() ) {
+            throw new CommandLineException.BadArgumentValue(ASSEMBLY_REGION_THREADS_LONG_NAME, String.valueOf(assemblyRegionThreads),
+                    getClass().getSimpleName() + " does not support processing assembly regions on multiple threads");
+        }
+
         final List<SimpleInterval> intervals = hasIntervals() ? intervalsForTraversal : IntervalUtils.getAllIntervalsForReference(getHeaderForReads().getSequenceDictionary());
         readShards = makeReadShards(intervals);
 
@@ -260,20 +284,61 @@ public abstract class AssemblyRegionWalker extends GATKTool {
         // meter to check the time more frequently (every 10 regions instead of every 1000 regions).
         progressMeter.setRecordsBetweenTimeChecks(10L);
 
-        for ( final MultiIntervalLocalReadShard readShard : readShards ) {
-            // Since reads in each shard are lazily fetched, we need to pass the filter and transformers to the window
-            // instead of filtering the reads directly here
-            readShard.setPreReadFilterTransformer(makePreReadFilterTransformer());
-            readShard.setReadFilter(countedFilter);
-            readShard.setDownsampler(createDownsampler());
-            readShard.setPostReadFilterTransformer(makePostReadFilterTransformer());
-
-            processReadShard(readShard, reference, features);
+        if ( assemblyRegionThreads > 1 ) {
+            traverseInParallel(countedFilter);
+        } else {
+            for ( final MultiIntervalLocalReadShard readShard : readShards ) {
+                configureReadShard(readShard, countedFilter);
+                processReadShard(readShard, reference, features);
+            }
         }
 
         logger.info(countedFilter.getSummaryLine());
     }
 
+    /**
+     * Since reads in each shard are lazily fetched, we need to pass the filter and transformers to the window
+     * instead of filtering the reads directly here
+     */
+    private void configureReadShard(final MultiIntervalLocalReadShard readShard, final CountingReadFilter countedFilter) {
+        readShard.setPreReadFilterTransformer(makePreReadFilterTransformer());
+        readShard.setReadFilter(countedFilter);
+        readShard.setDownsampler(createDownsampler());
+        readShard.setPostReadFilterTransformer(makePostReadFilterTransformer());
+    }
+
+    /**
+     * Traverse all read shards, determining assembly regions on this thread and processing them on
+     * {@link #assemblyRegionThreads} worker threads. Results are emitted on this thread in coordinate order.
+     *
+     * The reference is wrapped so that queries from the traversal thread and the workers are serialized.
+     * Feature queries are already serialized by the {@link FeatureManager}.
+     */
+    private void traverseInParallel(final CountingReadFilter countedFilter) {
+        final ReferenceDataSource sharedReference = new SynchronizedReferenceDataSource(reference);
+        logger.info("Processing assembly regions using " + assemblyRegionThreads + " threads");
+
+        try ( final AssemblyRegionWorkerPool workerPool = new AssemblyRegionWorkerPool(assemblyRegionThreads, this::makeAssemblyRegionWorker,
+                region -> progressMeter.update(region.getSpan())) ) {
+            for ( final MultiIntervalLocalReadShard readShard : readShards ) {
+                configureReadShard(readShard, countedFilter);
+
+                final Iterator<AssemblyRegion> assemblyRegionIter = new AssemblyRegionIterator(readShard, getHeaderForReads(), sharedReference, features, assemblyRegionEvaluator(), minAssemblyRegionSize, maxAssemblyRegionSize, assemblyRegionPadding, activeProbThreshold, maxProbPropagationDistance, includeReadsWithDeletionsInIsActivePileups());
+                while ( assemblyRegionIter.hasNext() ) {
+                    final AssemblyRegion assemblyRegion = assemblyRegionIter.next();
+
+                    logger.debug("Processing assembly region at " + assemblyRegion.getSpan() + " isActive: " + assemblyRegion.isActive() + " numReads: " + assemblyRegion.getReads().size());
+                    writeAssemblyRegion(assemblyRegion);
+
+                    final FeatureContext featureContext = new FeatureContext(features, assemblyRegion.getExtendedSpan());
+                    prepareAssemblyRegionForWorker(assemblyRegion, featureContext);
+                    workerPool.submit(assemblyRegion, new ReferenceContext(sharedReference, assemblyRegion.getExtendedSpan()), featureContext);
+                }
+            }
+            workerPool.drain();
+        }
+    }
+
     /**
      * Divide the given Shard up into active/inactive AssemblyRegions using the {@link #assemblyRegionEvaluator},
      * and send each region to the tool implementation for processing.
@@ -357,4 +422,71 @@ public abstract class AssemblyRegionWalker extends GATKTool {
      * @param featureContext features overlapping the full extended span of the assembly region
      */
     public abstract void apply( final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext );
+
+    /**
+     * @return true if this tool is able to process assembly regions on multiple threads via {@link #makeAssemblyRegionWorker}.
+     *         The default implementation returns false.
+     */
+    protected boolean supportsParallelAssemblyRegionProcessing() {
+        return false;
+    }
+
+    /**
+     * Create a new worker for processing assembly regions on a single thread. Called on the traversal thread, once per
+     * worker thread, after {@link #onTraversalStart} when {@link #assemblyRegionThreads} is greater than 1. Must be
+     * overridden by tools that override {@link #supportsParallelAssemblyRegionProcessing} to return true.
+     *
+     * When running with multiple threads, {@link #apply} is never called: each region is instead passed to
+     * {@link AssemblyRegionWorker#processRegion} of one of the workers.
+     *
+     * @return a worker that owns all of the non-thread-safe state needed to process a region
+     */
+    protected AssemblyRegionWorker makeAssemblyRegionWorker() {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support processing assembly regions on multiple threads");
+    }
+
+    /**
+     * Hook called on the traversal thread for every region, in coordinate order, before it is handed to a worker when
+     * processing assembly regions on multiple threads. Neighbouring regions may share read objects, so tools must do
+     * here any processing that modifies reads in place, to ensure that such modifications happen in the same order
+     * as in a single-threaded traversal. The default implementation does nothing.
+     *
+     * @param region region about to be handed to a worker
+     * @param featureContext features overlapping the full extended span of the assembly region
+     */
+    protected void prepareAssemblyRegionForWorker( final AssemblyRegion region, final FeatureContext featureContext ) {
+        // do nothing
+    }
+
+    /**
+     * ReferenceDataSource that serializes all queries against a delegate data source, so that a single reference
+     * can be shared between the traversal thread and the assembly region workers.
+     */
+    private static final class SynchronizedReferenceDataSource implements ReferenceDataSource {
+        private final ReferenceDataSource delegate;
+
+        private SynchronizedReferenceDataSource( final ReferenceDataSource delegate ) {
+            this.delegate = Utils.nonNull(delegate);
+        }
+
+        @Override
+        public synchronized ReferenceSequence queryAndPrefetch( final String contig, final long start, final long stop ) {
+            return delegate.queryAndPrefetch(contig, start, stop);
+        }
+
+        @Override
+        public synchronized Iterator<Byte> query( final SimpleInterval interval ) {
+            return delegate.query(interval);
+        }
+
+        @Override
+        public Iterator<Byte> iterator() {
+            throw new UnsupportedOperationException("Iteration over the entire reference is not supported by this data source");
+        }
+
+        @Override
+        public SAMSequenceDictionary getSequenceDictionary() {
+            return delegate.getSequenceDictionary();
+        }
+    }
 }
@@ -0,0 +1,30 @@
+package org.broadinstitute.hellbender.engine;
+
+/**
+ * A unit of per-thread state used by an {@link AssemblyRegionWalker} to process assembly regions in parallel.
+ *
+ * Each worker is used by at most one thread at a time, so it may hold non-thread-safe state (assemblers,
+ * PairHMM instances, genotyping engines, etc.) without synchronization. Workers must not write output directly:
+ * instead, {@link #processRegion} returns an action that the traversal thread runs once all preceding regions
+ * have been completed, so that output is produced in the same (coordinate) order as in a single-threaded traversal.
+ */
+public interface AssemblyRegionWorker extends AutoCloseable {
+
+    /**
+     * Process an individual AssemblyRegion on a worker thread.
+     *
+     * @param region region to process (pre-marked as either active or inactive)
+     * @param referenceContext reference data overlapping the full extended span of the assembly region
+     * @param featureContext features overlapping the full extended span of the assembly region
+     * @return action to be run on the traversal thread, in coordinate order, to emit the results for this region
+     */
+    Runnable processRegion( final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext );
+
+    /**
+     * Release any resources held by this worker. The default implementation does nothing.
+     */
+    @Override
+    default void close() {
+        //do nothing
+    }
+}
@@ -0,0 +1,154 @@
+package org.broadinstitute.hellbender.engine;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs {@link AssemblyRegionWorker}s on a fixed pool of threads while preserving the order in which regions were
+ * submitted.
+ *
+ * Regions are submitted by the traversal thread in coordinate order. Each submitted region is processed by whichever
+ * worker is idle, and the emit action returned by the worker is held in a reorder buffer until all previously
+ * submitted regions have been emitted. At most {@code 2 * numThreads} regions are in flight at once; once this limit is
+ * reached, {@link #submit} blocks the traversal thread until the oldest region has been emitted.
+ *
+ * All emit actions, as well as the {@code onEmitted} callback, run on the thread that calls {@link #submit}
+ * and {@link #drain}.
+ */
+final class AssemblyRegionWorkerPool implements AutoCloseable {
+
+    /**
+     * A region that has been submitted for processing but whose results have not been emitted yet
+     */
+    private static final class PendingRegion {
+        private final AssemblyRegion region;
+        private final Future<Runnable> emitAction;
+
+        private PendingRegion( final AssemblyRegion region, final Future<Runnable> emitAction ) {
+            this.region = region;
+            this.emitAction = emitAction;
+        }
+    }
+
+    private final List<AssemblyRegionWorker> workers;
+    private final BlockingQueue<AssemblyRegionWorker> idleWorkers;
+    private final ExecutorService executorService;
+    private final Queue<PendingRegion> pendingRegions = new LinkedList<>();
+    private final int maxPendingRegions;
+    private final Consumer<AssemblyRegion> onEmitted;
+
+    /**
+     * @param numThreads number of worker threads to use. Must be >= 1.
+     * @param workerFactory called once per thread, on the calling thread, to create the workers
+     * @param onEmitted called on the traversal thread after the results for each region have been emitted
+     */
+    AssemblyRegionWorkerPool( final int numThreads, final Supplier<AssemblyRegionWorker> workerFactory, final Consumer<AssemblyRegion> onEmitted ) {
+        Utils.validateArg(numThreads >= 1, "numThreads must be at least 1");
+        Utils.nonNull(workerFactory);
+        this.onEmitted = Utils.nonNull(onEmitted);
+
+        workers = new ArrayList<>(numThreads);
+        idleWorkers = new ArrayBlockingQueue<>(numThreads);
+        for ( int i = 0; i < numThreads; i++ ) {
+            final AssemblyRegionWorker worker = Utils.nonNull(workerFactory.get(), "workerFactory returned a null worker");
+            workers.add(worker);
+            idleWorkers.add(worker);
+        }
+
+        final ThreadFactory threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("assemblyRegionWorker-thread-%d")
+                .setDaemon(true)
+                .build();
+        executorService = Executors.newFixedThreadPool(numThreads, threadFactory);
+        maxPendingRegions = 2 * numThreads;
+    }
+
+    /**
+     * Submit a region for processing by the next available worker. Regions must be submitted in the order in which
+     * their results should be emitted. May block until the results for earlier regions have been emitted.
+     *
+     * @param region region to process
+     * @param referenceContext reference context for the region; must be safe to query from a worker thread
+     * @param featureContext feature context for the region; must be safe to query from a worker thread
+     */
+    void submit( final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext ) {
+        Utils.nonNull(region);
+
+        while ( pendingRegions.size() >= maxPendingRegions ) {
+            emitNext();
+        }
+
+        final Future<Runnable> emitAction = executorService.submit(() -> {
+            final AssemblyRegionWorker worker = idleWorkers.take();
+            try {
+                return worker.processRegion(region, referenceContext, featureContext);
+            } finally {
+                idleWorkers.put(worker);
+            }
+        });
+        pendingRegions.add(new PendingRegion(region, emitAction));
+    }
+
+    /**
+     * Wait for all submitted regions to be processed, and emit their results in submission order.
+     */
+    void drain() {
+        while ( ! pendingRegions.isEmpty() ) {
+            emitNext();
+        }
+    }
+
+    /**
+     * @return number of regions submitted but not yet emitted
+     */
+    int numPendingRegions() {
+        return pendingRegions.size();
+    }
+
+    private void emitNext() {
+        final PendingRegion next = pendingRegions.remove();
+        final Runnable emitAction;
+        try {
+            emitAction = next.emitAction.get();
+        } catch ( final ExecutionException e ) {
+            // rethrow the worker's own exception if possible, so that UserExceptions etc. are reported as such
+            if ( e.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GATKException("Problem processing assembly region " + next.region.getSpan(), e);
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while processing assembly region " + next.region.getSpan(), e);
+        }
+
+        if ( emitAction != null ) {
+            emitAction.run();
+        }
+        onEmitted.accept(next.region);
+    }
+
+    /**
+     * Shut down the worker threads and close all workers. Results for regions that have not been emitted
+     * via {@link #drain} are discarded.
+     */
+    @Override
+    public void close() {
+        executorService.shutdownNow();
+        workers.forEach(AssemblyRegionWorker::close);
+    }
+}
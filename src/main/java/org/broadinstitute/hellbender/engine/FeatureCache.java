@@ -5,6 +5,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.collections.IntervalsSkipListOneContig;
 
 import java.util.*;
 
@@ -13,21 +14,27 @@ import java.util.*;
  * during query operations initiated via {@link FeatureDataSource#query(org.broadinstitute.hellbender.utils.SimpleInterval)}
  * and/or {@link FeatureDataSource#queryAndPrefetch(org.broadinstitute.hellbender.utils.SimpleInterval)}.
  *
- * Strategy is to pre-fetch a large number of records AFTER each query interval that produces
- * a cache miss. This optimizes for the use case of intervals with gradually increasing start
- * positions, as many subsequent queries will find their records wholly contained in the cache
- * before we have another cache miss. Performance will be poor for random/non-localized access
- * patterns, or intervals with decreasing start positions.
+ * The cache holds all records overlapping a window on a single contig, indexed by an {@link IntervalsSkipListOneContig}
+ * so that any query interval contained within the window, including intervals that start before the previous
+ * query, can be answered from memory. Strategy is to pre-fetch a large number of records AFTER (and a smaller
+ * number BEFORE) each query interval that produces a cache miss. When the window is advanced past its end on the
+ * same contig, the records that are still within the new window are kept and only the records after the
+ * old window are fetched. The size of the window is bounded by the lookahead and lookbehind used by the client,
+ * so memory usage does not grow with the number of queries. Performance will be poor for random/non-localized
+ * access patterns.
  *
  * Usage:
  * -Test whether each query interval is a cache hit via {@link #cacheHit(org.broadinstitute.hellbender.utils.SimpleInterval)}
  *
- * -If it is a cache hit, trim the cache to the start position of the interval (discarding records that
- *  end before the start of the new interval) via {@link #trimToNewStartPosition(int)}, then retrieve
- *  records up to the desired endpoint using {@link #getCachedFeaturesUpToStopPosition(int)}.
+ * -If it is a cache hit, retrieve the records overlapping the interval using {@link #getCachedFeaturesOverlapping(SimpleInterval)}.
  *
- * -If it is a cache miss, reset the cache using {@link #fill(java.util.Iterator, org.broadinstitute.hellbender.utils.SimpleInterval)}, pre-fetching
- *  a large number of records after the query interval in addition to those actually requested.
+ * -If it is a cache miss, and {@link #canExtendTo(SimpleInterval)} returns true for the new window, fetch the records
+ *  after the end of the current window and add them using {@link #extend(java.util.Iterator, SimpleInterval)}.
+ *  Otherwise, reset the cache using {@link #fill(java.util.Iterator, org.broadinstitute.hellbender.utils.SimpleInterval)}.
+ *
+ * Clients that only ever query with increasing start positions can instead trim the cache to the start position of
+ * each interval via {@link #trimToNewStartPosition(int)}, then retrieve records up to the desired endpoint
+ * using {@link #getCachedFeaturesUpToStopPosition(int)}.
  *
  * @param <CACHED_FEATURE> Type of Feature record we are caching
  */
@@ -35,9 +42,15 @@ class FeatureCache<CACHED_FEATURE extends Feature> {
     private static final Logger logger = LogManager.getLogger(FeatureCache.class);
 
     /**
-     * Our cache of Features, optimized for insertion/removal at both ends.
+     * Our cache of Features, sorted by start position, in the order in which they were provided to us.
+     */
+    private List<CACHED_FEATURE> cache;
+
+    /**
+     * Overlap index over {@link #cache}. Built lazily on the first overlap query after the cache contents change,
+     * and null until then.
      */
-    private final Deque<CACHED_FEATURE> cache;
+    private IntervalsSkipListOneContig<CACHED_FEATURE> cacheIndex;
 
     /**
      * Our cache currently contains Feature records overlapping this interval
@@ -55,22 +68,20 @@ class FeatureCache<CACHED_FEATURE extends Feature> {
     private int numCacheMisses = 0;
 
     /**
-     * Initial capacity of our cache (will grow by doubling if needed)
+     * Number of Features discarded from our cache by {@link #fill}, {@link #extend} and {@link #trimToNewStartPosition}
      */
-    private static final int INITIAL_CAPACITY = 1024;
+    private long numEvictions = 0;
 
     /**
-     * When we trim our cache to a new start position, this is the maximum number of
-     * Features we expect to need to place into temporary storage for the duration of
-     * the trim operation. Performance only suffers slightly if our estimate is wrong.
+     * Initial capacity of our cache (will grow by doubling if needed)
      */
-    private static final int EXPECTED_MAX_OVERLAPPING_FEATURES_DURING_CACHE_TRIM = 128;
+    private static final int INITIAL_CAPACITY = 1024;
 
     /**
      * Create an initially-empty FeatureCache with default initial capacity
      */
     public FeatureCache() {
-        cache = new ArrayDeque<>(INITIAL_CAPACITY);
+        cache = new ArrayList<>(INITIAL_CAPACITY);
     }
 
     /**
@@ -123,6 +134,13 @@ class FeatureCache<CACHED_FEATURE extends Feature> {
         return numCacheMisses;
     }
 
+    /**
+     * @return Number of Features discarded from our cache so far
+     */
+    public long getNumEvictions() {
+        return numEvictions;
+    }
+
     /**
      * Clear our cache and fill it with the records from the provided iterator, preserving their
      * relative ordering, and update our contig/start/stop to reflect the new interval that all
@@ -136,14 +154,62 @@ class FeatureCache<CACHED_FEATURE extends Feature> {
      * @param interval all Features from featureIter overlap this interval
      */
     public void fill( final Iterator<CACHED_FEATURE> featureIter, final SimpleInterval interval ) {
-        cache.clear();
+        numEvictions += cache.size();
+        cache = new ArrayList<>(Math.max(INITIAL_CAPACITY, cache.size()));
         while ( featureIter.hasNext() ) {
             cache.add(featureIter.next());
         }
 
+        cacheIndex = null;
         cachedInterval = interval;
     }
 
+    /**
+     * Determines whether our cache can be moved to the provided window via {@link #extend}, which is the case
+     * if the window is on the same contig as our cache, starts within (or immediately after) our cache,
+     * and ends after it.
+     *
+     * @param newInterval window to which the cache would be moved
+     * @return true if {@link #extend} can be used to move our cache to newInterval, otherwise false
+     */
+    public boolean canExtendTo( final SimpleInterval newInterval ) {
+        return cachedInterval != null &&
+                cachedInterval.getContig().equals(newInterval.getContig()) &&
+                newInterval.getStart() >= cachedInterval.getStart() &&
+                newInterval.getStart() <= cachedInterval.getEnd() + 1 &&
+                newInterval.getEnd() > cachedInterval.getEnd();
+    }
+
+    /**
+     * Move our cache to a new window that starts within our current window and ends after it. Features that end before
+     * the start of the new window are discarded, Features already in the cache are kept, and Features from the provided
+     * iterator that start after the end of our current window are added, preserving their relative ordering.
+     *
+     * @param featureIter iterator over the Features overlapping the part of newInterval after the end of our
+     *                    current window. Features that start within our current window are ignored,
+     *                    since they are already cached.
+     * @param newInterval new window, for which {@link #canExtendTo} must be true
+     */
+    public void extend( final Iterator<CACHED_FEATURE> featureIter, final SimpleInterval newInterval ) {
+        if ( ! canExtendTo(newInterval) ) {
+            throw new GATKException(String.format("BUG: attempted to extend Feature cache over %s to an improper new interval %s",
+                    cachedInterval, newInterval));
+        }
+
+        discardFeaturesEndingBefore(newInterval.getStart());
+
+        final int oldEnd = cachedInterval.getEnd();
+        while ( featureIter.hasNext() ) {
+            final CACHED_FEATURE feature = featureIter.next();
+            if ( feature.getStart() > oldEnd ) {
+                cache.add(feature);
+            }
+        }
+
+        cacheIndex = null;
+        cachedInterval = newInterval;
+    }
+
     /**
      * Determines whether all records overlapping the provided interval are already contained in our cache.
      *
@@ -175,31 +241,49 @@ class FeatureCache<CACHED_FEATURE extends Feature> {
                     newStart, cachedInterval.getEnd()));
         }
 
-        List<CACHED_FEATURE> overlappingFeaturesBeforeNewStart = new ArrayList<>(EXPECTED_MAX_OVERLAPPING_FEATURES_DURING_CACHE_TRIM);
+        discardFeaturesEndingBefore(newStart);
+        cacheIndex = null;
 
-        // In order to trim the cache to the new start position, we need to find
-        // all Features in the cache that start before the new start position,
-        // and discard those that don't overlap the new start while keeping those
-        // that do overlap. We can stop once we find a Feature that starts on or
-        // after the new start position, since the Features are assumed to be sorted
-        // by start position.
-        while ( ! cache.isEmpty() && cache.getFirst().getStart() < newStart ) {
-            CACHED_FEATURE featureBeforeNewStart = cache.removeFirst();
+        // Record our new start boundary
+        cachedInterval = new SimpleInterval(cachedInterval.getContig(), newStart, cachedInterval.getEnd());
+    }
 
-            if ( featureBeforeNewStart.getEnd() >= newStart ) {
-                overlappingFeaturesBeforeNewStart.add(featureBeforeNewStart);
+    /**
+     * Discard all Features in our cache that end before the provided position, preserving the relative ordering
+     * of the remaining Features.
+     */
+    private void discardFeaturesEndingBefore( final int position ) {
+        // Features are sorted by start position, so we can stop looking once we find a Feature that starts
+        // on or after the position. Features that start before it are kept only if they overlap it, and
+        // are moved down over the discarded ones to preserve their relative ordering.
+        int numKept = 0;
+        int firstStartingAtOrAfterPosition = 0;
+        while ( firstStartingAtOrAfterPosition < cache.size() && cache.get(firstStartingAtOrAfterPosition).getStart() < position ) {
+            final CACHED_FEATURE feature = cache.get(firstStartingAtOrAfterPosition++);
+            if ( feature.getEnd() >= position ) {
+                cache.set(numKept++, feature);
             }
         }
 
-        // Add back the Features that started before the new start but overlapped it
-        // in the reverse of the order in which we encountered them so that their original
-        // relative ordering in the cache is restored.
-        for ( int i = overlappingFeaturesBeforeNewStart.size() - 1; i >= 0; --i ) {
-            cache.addFirst(overlappingFeaturesBeforeNewStart.get(i));
+        final int numDiscarded = firstStartingAtOrAfterPosition - numKept;
+        if ( numDiscarded > 0 ) {
+            cache.subList(numKept, firstStartingAtOrAfterPosition).clear();
+            numEvictions += numDiscarded;
         }
+    }
 
-        // Record our new start boundary
-        cachedInterval = new SimpleInterval(cachedInterval.getContig(), newStart, cachedInterval.getEnd());
+    /**
+     * Returns (but does not remove) all cached Features that overlap the provided interval, in the order in
+     * which they were added to the cache. The interval must be a cache hit according to {@link #cacheHit}.
+     *
+     * @param interval interval that returned Features must overlap
+     * @return all cached Features that overlap the interval
+     */
+    public List<CACHED_FEATURE> getCachedFeaturesOverlapping( final SimpleInterval interval ) {
+        if ( cacheIndex == null ) {
+            cacheIndex = IntervalsSkipListOneContig.fromStartSorted(cache);
+        }
+        return cacheIndex.getOverlapping(interval);
     }
 
     /**
@@ -223,14 +307,14 @@ class FeatureCache<CACHED_FEATURE extends Feature> {
     }
 
     /**
-     * Print statistics about the cache hit rate for debugging
+     * Print statistics about the cache hit rate and evictions for debugging
      */
     public void printCacheStatistics() {
         final int totalQueries = getNumCacheHits() + getNumCacheMisses();
-        logger.debug(String.format("Cache hit rate was %.2f%% (%d out of %d total queries)",
+        logger.debug(String.format("Cache hit rate was %.2f%% (%d out of %d total queries), %d features evicted",
                 totalQueries > 0 ? ((double)getNumCacheHits() / totalQueries) * 100.0 : 0.0,
                 getNumCacheHits(),
-                totalQueries));
+                totalQueries,
+                getNumEvictions()));
     }
 }
-
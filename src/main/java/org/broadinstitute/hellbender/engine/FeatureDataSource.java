@@ -1,5 +1,6 @@
 package org.broadinstitute.hellbender.engine;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.intel.genomicsdb.GenomicsDBFeatureReader;
 import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.tribble.*;
@@ -44,12 +45,12 @@ import java.util.function.Function;
  *  any intervals for full traversal set via {@link #setIntervalsForTraversal(List)}.
  *
  * To improve performance in the case of targeted queries by one interval at a time, this class uses a caching
- * scheme that is optimized for the common access pattern of multiple separate queries over intervals with
- * gradually increasing start positions. It optimizes for this use case by pre-fetching records immediately
- * following each interval during a query and caching them. Performance will suffer if the access pattern is
- * random, involves queries over intervals with DECREASING start positions instead of INCREASING start positions,
- * or involves lots of very large jumps forward on the genome or lots of contig switches. Query caching
- * can be disabled, if desired.
+ * scheme that is optimized for the common access pattern of multiple separate queries over nearby intervals
+ * with gradually increasing start positions. It optimizes for this use case by pre-fetching records immediately
+ * following (and, to a lesser extent, preceding) each interval during a query and caching them in an interval index,
+ * so that subsequent queries anywhere within the cached window, including queries that step backwards (eg., over
+ * padded regions), are answered from memory. Performance will suffer if the access pattern is random, or involves
+ * lots of very large jumps on the genome or lots of contig switches. Query caching can be disabled, if desired.
  *
  * @param <T> The type of Feature returned by this data source
  */
@@ -83,8 +84,8 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
 
     /**
      * Cache containing Features from recent queries initiated via {@link #query(SimpleInterval)} and/or
-     * {@link #queryAndPrefetch(SimpleInterval)}. This is guaranteed to start at the start position of the
-     * most recent query, but will typically end well after the end of the most recent query. Designed to
+     * {@link #queryAndPrefetch(SimpleInterval)}. This will typically start up to queryLookbehindBases before
+     * the most recent cache miss, and end well after the end of the most recent query. Designed to
      * improve performance of the common access pattern involving multiple queries across nearby intervals
      * with gradually increasing start positions.
      */
@@ -99,6 +100,13 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
      */
     private final int queryLookaheadBases;
 
+    /**
+     * When we experience a cache miss and need to re-populate the Feature cache from disk, this controls the
+     * number of extra bases BEFORE the start of our interval to fetch, so that subsequent queries that step
+     * back slightly (eg., queries over padded or overlapping regions) are still cache hits.
+     */
+    private final int queryLookbehindBases;
+
     /**
      * Holds information about the path this datasource reads from.
      */
@@ -125,6 +133,12 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
      */
     public static final int DEFAULT_QUERY_LOOKAHEAD_BASES = 1000;
 
+    /**
+     * Default value for queryLookbehindBases, if none is specified. This is large enough to cover the padding
+     * typically added around assembly regions and other overlapping query intervals.
+     */
+    public static final int DEFAULT_QUERY_LOOKBEHIND_BASES = 500;
+
     /**
      * Creates a FeatureDataSource backed by the provided File. The data source will have an automatically
      * generated name, and will look ahead the default number of bases ({@link #DEFAULT_QUERY_LOOKAHEAD_BASES})
@@ -233,7 +247,27 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
      */
     public FeatureDataSource(final FeatureInput<T> featureInput, final int queryLookaheadBases, final Class<? extends Feature> targetFeatureType,
                              final int cloudPrefetchBuffer, final int cloudIndexPrefetchBuffer, final Path reference) {
+        this(featureInput, queryLookaheadBases, DEFAULT_QUERY_LOOKBEHIND_BASES, targetFeatureType, cloudPrefetchBuffer, cloudIndexPrefetchBuffer, reference);
+    }
+
+    /**
+     * Creates a FeatureDataSource backed by the resource at the provided FeatureInput. We will look ahead and behind
+     * the specified number of bases during queries that produce cache misses.
+     *
+     * @param featureInput a FeatureInput specifying a source of Features
+     * @param queryLookaheadBases look ahead this many bases during queries that produce cache misses
+     * @param queryLookbehindBases look behind this many bases during queries that produce cache misses
+     * @param targetFeatureType When searching for a {@link FeatureCodec} for this data source, restrict the search to codecs
+     *                          that produce this type of Feature. May be null, which results in an unrestricted search.
+     * @param cloudPrefetchBuffer  MB size of caching/prefetching wrapper for the data, if on Google Cloud (0 to disable).
+     * @param cloudIndexPrefetchBuffer MB size of caching/prefetching wrapper for the index, if on Google Cloud (0 to disable).
+     * @param reference Path to a reference. May be null. Needed only for reading from GenomicsDB.
+     */
+    public FeatureDataSource(final FeatureInput<T> featureInput, final int queryLookaheadBases, final int queryLookbehindBases,
+                             final Class<? extends Feature> targetFeatureType,
+                             final int cloudPrefetchBuffer, final int cloudIndexPrefetchBuffer, final Path reference) {
         Utils.validateArg( queryLookaheadBases >= 0, "Query lookahead bases must be >= 0");
+        Utils.validateArg( queryLookbehindBases >= 0, "Query lookbehind bases must be >= 0");
         this.featureInput = Utils.nonNull(featureInput, "featureInput must not be null");
 
         final Function<SeekableByteChannel, SeekableByteChannel> cloudWrapper = (cloudPrefetchBuffer > 0 ? is -> SeekableByteChannelPrefetcher.addPrefetcher(cloudPrefetchBuffer, is) : Function.identity());
@@ -258,6 +292,7 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
         this.intervalsForTraversal = null;
         this.queryCache = new FeatureCache<>();
         this.queryLookaheadBases = queryLookaheadBases;
+        this.queryLookbehindBases = queryLookbehindBases;
     }
 
     /**
@@ -497,25 +532,22 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
                                     "If it's a file, please index it using the bundled tool " + IndexFeatureFile.class.getSimpleName());
         }
 
-        // If the query can be satisfied using existing cache contents, prepare for retrieval
-        // by discarding all Features at the beginning of the cache that end before the start
-        // of our query interval.
-        if ( queryCache.cacheHit(interval) ) {
-            queryCache.trimToNewStartPosition(interval.getStart());
-        }
-        // Otherwise, we have a cache miss, so go to disk to refill our cache.
-        else {
+        // If the query can't be satisfied using existing cache contents, we have a cache miss,
+        // so go to disk to refill our cache.
+        if ( ! queryCache.cacheHit(interval) ) {
             refillQueryCache(interval);
         }
 
         // Return the subset of our cache that overlaps our query interval
-        return queryCache.getCachedFeaturesUpToStopPosition(interval.getEnd());
+        return queryCache.getCachedFeaturesOverlapping(interval);
     }
 
     /**
      * Refill our cache from disk after a cache miss. Will prefetch Features overlapping an additional
-     * queryLookaheadBases bases after the end of the provided interval, in addition to those overlapping
-     * the interval itself.
+     * queryLookaheadBases bases after the end of the provided interval and queryLookbehindBases bases
+     * before its start, in addition to those overlapping the interval itself. If the new cache window
+     * continues on from the current one, only the Features after the end of the current window are read
+     * from disk.
      *
      * Calling this has the side effect of invalidating (closing) any currently-open iteration over
      * this data source.
@@ -528,22 +560,42 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
         closeOpenIterationIfNecessary();
 
         // Expand the end of our query by the configured number of bases, in anticipation of probable future
-        // queries with slightly larger start/stop positions.
+        // queries with slightly larger start/stop positions, and the start by the (smaller) configured number
+        // of bases, in anticipation of future queries that overlap this one.
         //
         // Note that it doesn't matter if we go off the end of the contig in the process, since
         // our reader's query operation is not aware of (and does not care about) contig boundaries.
         // Note: we use addExact to blow up on overflow rather than propagate negative results downstream
-        final SimpleInterval queryInterval = new SimpleInterval(interval.getContig(), interval.getStart(), Math.addExact(interval.getEnd(), queryLookaheadBases));
+        final SimpleInterval cacheInterval = new SimpleInterval(interval.getContig(),
+                Math.max(1, interval.getStart() - queryLookbehindBases), Math.addExact(interval.getEnd(), queryLookaheadBases));
+
+        // If we are just moving forward on the same contig, keep the part of the cache that we already have
+        // and only go to disk for the new part.
+        final boolean extendCache = queryCache.canExtendTo(cacheInterval);
+        final int diskQueryStart = extendCache ? queryCache.getCacheEnd() + 1 : cacheInterval.getStart();
 
         // Query iterator over our reader will be immediately closed after re-populating our cache
-        try ( CloseableTribbleIterator<T> queryIter = featureReader.query(queryInterval.getContig(), queryInterval.getStart(), queryInterval.getEnd()) ) {
-            queryCache.fill(queryIter, queryInterval);
+        try ( CloseableTribbleIterator<T> queryIter = featureReader.query(cacheInterval.getContig(), diskQueryStart, cacheInterval.getEnd()) ) {
+            if ( extendCache ) {
+                queryCache.extend(queryIter, cacheInterval);
+            }
+            else {
+                queryCache.fill(queryIter, cacheInterval);
+            }
         }
         catch ( IOException e ) {
             throw new GATKException("Error querying file " + featureInput + " over interval " + interval, e);
         }
     }
 
+    /**
+     * @return the cache used for queries over this data source, for inspecting its statistics
+     */
+    @VisibleForTesting
+    FeatureCache<T> getQueryCache() {
+        return queryCache;
+    }
+
     /**
      * Get the logical name of this data source.
      *
@@ -13,6 +13,7 @@ import org.broadinstitute.barclay.argparser.CommandLineParser;
 import org.broadinstitute.hellbender.cmdline.CommandLineProgram;
 import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.ClassUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.config.ConfigFactory;
 import org.broadinstitute.hellbender.utils.config.GATKConfig;
@@ -69,12 +70,13 @@ public final class FeatureManager implements AutoCloseable {
         // Get our configuration:
         final GATKConfig config = ConfigFactory.getInstance().getGATKConfig();
 
-        final ClassFinder finder = new ClassFinder();
+        final Set<Class<?>> codecs = new LinkedHashSet<>();
         for ( final String codecPackage : config.codec_packages() ) {
-            finder.find(codecPackage, CODEC_BASE_CLASS);
+            codecs.addAll(ClassUtils.findClasses(codecPackage, CODEC_BASE_CLASS));
         }
         // Exclude abstract classes and interfaces from the list of discovered codec classes
-        DISCOVERED_CODECS = Collections.unmodifiableSet(finder.getConcreteClasses());
+        codecs.removeIf(codec -> !ClassFinder.isConcrete(codec));
+        DISCOVERED_CODECS = Collections.unmodifiableSet(codecs);
     }
 
     /**
@@ -293,13 +295,16 @@ public final class FeatureManager implements AutoCloseable {
      * FeatureManager was initialized with, or was not an @Argument-annotated field in the tool
      * (or parent classes).
      *
+     * Queries are serialized, so that multiple threads (eg., assembly region workers) may safely share
+     * a single FeatureManager.
+     *
      * @param featureDescriptor FeatureInput argument from our tool representing the Feature source to query
      * @param interval interval to query over (returned Features will overlap this interval)
      * @param <T> type of Feature in the source represented by featureDescriptor
      * @return A List of all Features in the backing data source for the provided FeatureInput that overlap
      *         the provided interval (may be empty if there are none, but never null)
      */
-    public <T extends Feature> List<T> getFeatures( final FeatureInput<T> featureDescriptor, final SimpleInterval interval ) {
+    public synchronized <T extends Feature> List<T> getFeatures( final FeatureInput<T> featureDescriptor, final SimpleInterval interval ) {
         final FeatureDataSource<T> dataSource = lookupDataSource(featureDescriptor);
 
         // No danger of a ClassCastException here, since we verified that the FeatureDataSource for this
@@ -31,6 +31,8 @@ import org.broadinstitute.hellbender.utils.config.ConfigFactory;
 import org.broadinstitute.hellbender.utils.config.GATKConfig;
 import org.broadinstitute.hellbender.utils.io.IOUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.LocalSortingSAMFileWriter;
+import org.broadinstitute.hellbender.utils.read.ParallelBAMFileWriter;
 import org.broadinstitute.hellbender.utils.read.ReadUtils;
 import org.broadinstitute.hellbender.utils.read.SAMFileGATKReadWriter;
 import org.broadinstitute.hellbender.utils.reference.ReferenceUtils;
@@ -80,6 +82,14 @@ public abstract class GATKTool extends CommandLineProgram {
             doc = "If true, create a MD5 digest for any BAM/SAM/CRAM file created", optional=true, common = true)
     public boolean createOutputBamMD5 = false;
 
+    /**
+     * If greater than 1, the BGZF blocks of BAM files written by {@link #createSAMWriter} are compressed on this many
+     * threads (see {@link ParallelBAMFileWriter}). The output is the same as with a single thread.
+     */
+    @Argument(fullName=StandardArgumentDefinitions.BAM_COMPRESSION_THREADS_LONG_NAME,
+            doc = "Number of threads to use for compressing BAM output", optional=true, common = true, minValue = 1)
+    public int bamCompressionThreads = 1;
+
     @Argument(fullName=StandardArgumentDefinitions.CREATE_OUTPUT_VARIANT_INDEX_LONG_NAME,
             shortName=StandardArgumentDefinitions.CREATE_OUTPUT_VARIANT_INDEX_SHORT_NAME,
             doc = "If true, create a VCF index when writing a coordinate-sorted VCF file.", optional=true, common = true)
@@ -114,6 +124,15 @@ public abstract class GATKTool extends CommandLineProgram {
             optional = true)
     public boolean disableBamIndexCaching = false;
 
+    /**
+     * Decode input reads on a background thread, holding up to this many batches of decoded reads ahead of the tool.
+     * Helps tools that do little work per read; the occupancy of the queue is logged when the reads are closed,
+     * showing whether the tool waited for reads (I/O-bound) or the decoding waited for the tool (compute-bound).
+     */
+    @Argument(fullName = StandardArgumentDefinitions.READ_AHEAD_BATCHES_LONG_NAME,
+            doc = "Number of batches of reads to decode ahead of the tool on a background thread (0 to disable).", optional = true, minValue = 0)
+    public int readAheadBatches = 0;
+
     /**
      * Master sequence dictionary to be used instead of all other dictionaries (if provided).
      */
@@ -317,6 +336,7 @@ public abstract class GATKTool extends CommandLineProgram {
 
             reads = new ReadsDataSource(readArguments.getReadPaths(), readArguments.getReadIndexPaths(), factory, cloudPrefetchBuffer,
                 (cloudIndexPrefetchBuffer < 0 ? cloudPrefetchBuffer : cloudIndexPrefetchBuffer));
+            reads.setReadAhead(readAheadBatches);
         }
         else {
             reads = null;
@@ -673,33 +693,64 @@ public abstract class GATKTool extends CommandLineProgram {
      * @return SAMFileWriter
      */
     public final SAMFileGATKReadWriter createSAMWriter(final Path outputPath, final boolean preSorted) {
+        return new SAMFileGATKReadWriter(
+            ReadUtils.createCommonSAMWriter(
+                outputPath,
+                getReferenceFileForSAMWriter(outputPath),
+                getHeaderForSAMWriter(),
+                preSorted,
+                createOutputBamIndex,
+                createOutputBamMD5,
+                bamCompressionThreads
+            )
+        );
+    }
+
+    /*
+     * Create a common SAMFileWriter using the reference and read header for this tool, for reads that are nearly in
+     * the sort order of the header: they are sorted within a window of sortingWindowSize reads held in memory
+     * (see {@link LocalSortingSAMFileWriter}) rather than by spilling all of them to disk.
+     *
+     * @param outputPath    - if this path has a .cram extension then a reference is required. Can not be null.
+     * @param sortingWindowSize - number of reads to keep in memory for sorting. Must be >= 1.
+     *
+     * @throws UserException if outputFile ends with ".cram" and no reference is provided
+     * @return SAMFileWriter
+     */
+    public final SAMFileGATKReadWriter createLocallySortingSAMWriter(final Path outputPath, final int sortingWindowSize) {
+        final File reference = getReferenceFileForSAMWriter(outputPath);
+        final SAMFileHeader header = getHeaderForSAMWriter();
+        return new SAMFileGATKReadWriter(
+            new LocalSortingSAMFileWriter(outputPath, reference, header, sortingWindowSize,
+                path -> ReadUtils.createCommonSAMWriter(
+                    path,
+                    reference,
+                    header,
+                    true,
+                    createOutputBamIndex,
+                    createOutputBamMD5,
+                    bamCompressionThreads
+                )
+            )
+        );
+    }
+
+    private File getReferenceFileForSAMWriter(final Path outputPath) {
         final boolean isCramFile = IOUtils.isCramFile(outputPath);
         if (!hasReference() && isCramFile) {
             throw new UserException.MissingReference("A reference file is required for writing CRAM files");
         }
 
         //TODO this is a workaround until #4039 is resolved
-        final File reference;
         if ( isCramFile ){
             try{
-                reference = referenceArguments.getReferencePath().toFile();
+                return referenceArguments.getReferencePath().toFile();
             } catch ( final UnsupportedOperationException e){
                 throw new UserException("When writing a cram File a local reference file must be used", e);
             }
         } else {
-            reference = null;
+            return null;
         }
-
-        return new SAMFileGATKReadWriter(
-            ReadUtils.createCommonSAMWriter(
-                outputPath,
-                reference,
-                getHeaderForSAMWriter(),
-                preSorted,
-                createOutputBamIndex,
-                createOutputBamMD5
-            )
-        );
     }
 
     /**
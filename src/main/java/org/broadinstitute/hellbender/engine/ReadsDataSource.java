@@ -1,6 +1,7 @@
 package org.broadinstitute.hellbender.engine;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import htsjdk.samtools.*;
 import htsjdk.samtools.util.CloseableIterator;
 import htsjdk.samtools.util.IOUtil;
@@ -14,6 +15,8 @@ import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
+import org.broadinstitute.hellbender.utils.iterators.AsyncSAMRecordToReadIterator;
+import org.broadinstitute.hellbender.utils.iterators.ReadAheadStatistics;
 import org.broadinstitute.hellbender.utils.iterators.SAMRecordToReadIterator;
 import org.broadinstitute.hellbender.utils.iterators.SamReaderQueryingIterator;
 import org.broadinstitute.hellbender.utils.nio.SeekableByteChannelPrefetcher;
@@ -23,6 +26,8 @@ import org.broadinstitute.hellbender.utils.read.ReadConstants;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 /**
@@ -78,6 +83,30 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
      */
     private boolean indicesAvailable;
 
+    /**
+     * Number of reads decoded at a time by the read-ahead thread
+     */
+    @VisibleForTesting
+    static final int READ_AHEAD_BATCH_SIZE = 1000;
+
+    /**
+     * Maximum number of batches of reads decoded ahead of the traversal. 0 if reads are decoded on the traversal thread.
+     */
+    private int readAheadBatches = 0;
+
+    /**
+     * Runs the decoding of reads ahead of the traversal. Null until read-ahead is first used.
+     */
+    private ExecutorService readAheadExecutor;
+
+    /**
+     * The current read-ahead iteration, which must be stopped before the iterators of our readers are closed.
+     * Null if there is none.
+     */
+    private AsyncSAMRecordToReadIterator readAheadIterator;
+
+    private final ReadAheadStatistics readAheadStatistics = new ReadAheadStatistics();
+
     /**
      * Initialize this data source with a single SAM/BAM file and validation stringency SILENT.
      *
@@ -298,6 +327,26 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
         }
     }
 
+    /**
+     * Decode reads on a background thread, ahead of subsequent traversals and queries, holding at most
+     * {@code numBatches} batches of decoded reads in memory. Useful when the input is compressed and the
+     * traversal has little work to do per read.
+     *
+     * @param numBatches maximum number of batches of reads to decode ahead of the traversal, or 0 to decode
+     *                   reads on the traversal thread
+     */
+    public void setReadAhead( final int numBatches ) {
+        Utils.validateArg(numBatches >= 0, "numBatches must be non-negative");
+        this.readAheadBatches = numBatches;
+    }
+
+    /**
+     * @return occupancy of the read-ahead queue over all traversals and queries so far
+     */
+    public ReadAheadStatistics getReadAheadStatistics() {
+        return readAheadStatistics;
+    }
+
     /**
      * @return True if traversals initiated via {@link #iterator} will be restricted to reads that overlap intervals
      *         as configured via {@link #setTraversalBounds}, otherwise false
@@ -421,6 +470,15 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
             startingIterator = new MergingSamRecordIterator(headerMerger, readers, true);
         }
 
+        if ( readAheadBatches > 0 ) {
+            if ( readAheadExecutor == null ) {
+                readAheadExecutor = Executors.newSingleThreadExecutor(
+                        new ThreadFactoryBuilder().setNameFormat("read-ahead-thread-%d").setDaemon(true).build());
+            }
+            readAheadIterator = new AsyncSAMRecordToReadIterator(startingIterator, READ_AHEAD_BATCH_SIZE, readAheadBatches,
+                    readAheadExecutor, readAheadStatistics);
+            return readAheadIterator;
+        }
         return new SAMRecordToReadIterator(startingIterator);
     }
 
@@ -481,12 +539,22 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
         catch ( IOException e ) {
             throw new GATKException("Error closing SAMReader");
         }
+
+        if ( readAheadExecutor != null ) {
+            readAheadExecutor.shutdown();
+            logger.info("Read-ahead: {}", readAheadStatistics);
+        }
     }
 
     /**
      * Close any previously-opened iterations over our readers (htsjdk allows only one open iteration per reader).
      */
     private void closePreviousIterationsIfNecessary() {
+        // stop the read-ahead thread first, as it may be using the iterators of our readers
+        if ( readAheadIterator != null ) {
+            readAheadIterator.close();
+            readAheadIterator = null;
+        }
         for ( Map.Entry<SamReader, CloseableIterator<SAMRecord>> readerEntry : readers.entrySet() ) {
             CloseableIterator<SAMRecord> readerIterator = readerEntry.getValue();
             if ( readerIterator != null ) {
@@ -22,10 +22,14 @@ public interface ReferenceDataSource extends GATKDataSource<Byte>, AutoCloseable
      *
      * The provided fasta file must have companion .fai and .dict files.
      *
+     * If an up-to-date memory-mapped reference image ({@code <fasta>}{@value ReferenceMemoryMappedSource#IMAGE_EXTENSION})
+     * created by {@link ReferenceMemoryMappedSource#createImage} is present alongside a local fasta, the image is used instead.
+     *
      * @param fastaPath reference fasta Path
      */
     public static ReferenceDataSource of(final Path fastaPath) {
-        return new ReferenceFileSource(fastaPath);
+        final Path imagePath = ReferenceMemoryMappedSource.findImageForFasta(fastaPath);
+        return imagePath != null ? new ReferenceMemoryMappedSource(imagePath) : new ReferenceFileSource(fastaPath);
     }
 
 
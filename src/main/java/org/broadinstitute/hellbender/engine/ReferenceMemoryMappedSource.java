@@ -0,0 +1,271 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SAMTextHeaderCodec;
+import htsjdk.samtools.reference.ReferenceSequence;
+import htsjdk.samtools.util.BufferedLineReader;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.fasta.CachingIndexedFastaSequenceFile;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Manages queries over reference data stored in a memory-mapped reference image.
+ *
+ * A reference image holds the sequence dictionary of the reference followed by the bases of every contig exactly as
+ * they would be returned by a {@link ReferenceFileSource} (upper-cased, with IUPAC codes converted to N, and no line
+ * breaks), stored contiguously in sequence dictionary order. Images are created from an indexed fasta via {@link #createImage}.
+ *
+ * Since the image is mapped read-only, queries never go through the fasta index and never re-normalize bases,
+ * and all processes on the same host that map the same image share a single copy of it in the OS page cache.
+ * Queries do not modify any state, so a single instance can safely be shared between threads.
+ *
+ * {@link #queryAndPrefetch} must copy the requested bases into the {@link ReferenceSequence} it returns, since
+ * {@link ReferenceSequence} is backed by an array; clients that can work with a {@link ByteBuffer} can use
+ * {@link #getBasesView} to read the mapped bases without any copying.
+ */
+public final class ReferenceMemoryMappedSource implements ReferenceDataSource {
+
+    /**
+     * Extension of reference images. {@link ReferenceDataSource#of(Path)} will automatically use the image at
+     * {@code <fasta path> + IMAGE_EXTENSION}, if present and up to date.
+     */
+    public static final String IMAGE_EXTENSION = ".refimg";
+
+    private static final byte[] IMAGE_MAGIC = "GATKREFIMG".getBytes(StandardCharsets.US_ASCII);
+    private static final int IMAGE_VERSION = 1;
+
+    /**
+     * Number of bases read from the fasta at a time when creating an image
+     */
+    private static final int IMAGE_CREATION_CHUNK_SIZE = 1 << 20;
+
+    private final Path imagePath;
+    private final SAMSequenceDictionary sequenceDictionary;
+
+    /**
+     * Read-only mapped bases for each contig, indexed by contig index in {@link #sequenceDictionary}.
+     * Never modified after construction: queries always operate on duplicates of these buffers.
+     */
+    private final MappedByteBuffer[] contigBases;
+
+    /**
+     * Initialize this data source using a reference image created by {@link #createImage}.
+     *
+     * @param imagePath path to the reference image. Must be on the default (local) file system.
+     */
+    public ReferenceMemoryMappedSource(final Path imagePath) {
+        this.imagePath = Utils.nonNull(imagePath);
+        if ( ! Files.exists(imagePath) ) {
+            throw new UserException.MissingReference("The specified reference image (" + imagePath.toUri() + ") does not exist.");
+        }
+
+        final long dataOffset;
+        try ( final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(imagePath))) ) {
+            final byte[] magic = new byte[IMAGE_MAGIC.length];
+            in.readFully(magic);
+            if ( ! Arrays.equals(magic, IMAGE_MAGIC) ) {
+                throw new UserException.MalformedFile(imagePath, "Not a reference image");
+            }
+            final int version = in.readInt();
+            if ( version != IMAGE_VERSION ) {
+                throw new UserException.MalformedFile(imagePath, "Unsupported reference image version " + version + " (expected " + IMAGE_VERSION + ")");
+            }
+            final byte[] dictionaryText = new byte[in.readInt()];
+            in.readFully(dictionaryText);
+            sequenceDictionary = new SAMTextHeaderCodec().decode(BufferedLineReader.fromString(new String(dictionaryText, StandardCharsets.UTF_8)), imagePath.toString()).getSequenceDictionary();
+            dataOffset = in.readLong();
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotReadInputFile(imagePath, "Error reading reference image header", e);
+        }
+
+        contigBases = new MappedByteBuffer[sequenceDictionary.size()];
+        try ( final FileChannel channel = FileChannel.open(imagePath, StandardOpenOption.READ) ) {
+            long offset = dataOffset;
+            for ( final SAMSequenceRecord contig : sequenceDictionary.getSequences() ) {
+                if ( offset + contig.getSequenceLength() > channel.size() ) {
+                    throw new UserException.MalformedFile(imagePath, "Reference image is truncated at contig " + contig.getSequenceName());
+                }
+                // mappings remain valid after the channel is closed
+                contigBases[contig.getSequenceIndex()] = channel.map(FileChannel.MapMode.READ_ONLY, offset, contig.getSequenceLength());
+                offset += contig.getSequenceLength();
+            }
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotReadInputFile(imagePath, "Error mapping reference image", e);
+        }
+    }
+
+    /**
+     * Create a reference image from an indexed fasta file. The fasta must have companion .fai and .dict files.
+     *
+     * @param fastaPath reference fasta file
+     * @param imagePath location to write the image to
+     */
+    public static void createImage(final Path fastaPath, final Path imagePath) {
+        Utils.nonNull(fastaPath);
+        Utils.nonNull(imagePath);
+
+        try ( final CachingIndexedFastaSequenceFile fasta = CachingIndexedFastaSequenceFile.checkAndCreate(fastaPath);
+              final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(imagePath))) ) {
+            final SAMSequenceDictionary dictionary = fasta.getSequenceDictionary();
+
+            out.write(IMAGE_MAGIC);
+            out.writeInt(IMAGE_VERSION);
+            final byte[] dictionaryText = encodeSequenceDictionary(dictionary);
+            out.writeInt(dictionaryText.length);
+            out.write(dictionaryText);
+            out.writeLong(out.size() + Long.BYTES);
+
+            for ( final SAMSequenceRecord contig : dictionary.getSequences() ) {
+                for ( long start = 1; start <= contig.getSequenceLength(); start += IMAGE_CREATION_CHUNK_SIZE ) {
+                    final long stop = Math.min(start + IMAGE_CREATION_CHUNK_SIZE - 1, contig.getSequenceLength());
+                    out.write(fasta.getSubsequenceAt(contig.getSequenceName(), start, stop).getBases());
+                }
+            }
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotCreateOutputFile(imagePath.toUri().toString(), "Error writing reference image", e);
+        }
+    }
+
+    private static byte[] encodeSequenceDictionary(final SAMSequenceDictionary dictionary) {
+        final SAMFileHeader header = new SAMFileHeader();
+        header.setSequenceDictionary(dictionary);
+        final StringWriter writer = new StringWriter();
+        new SAMTextHeaderCodec().encode(writer, header);
+        return writer.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the path of an up-to-date reference image for the given fasta, if there is one.
+     *
+     * @param fastaPath reference fasta file
+     * @return path of the image if it exists on the local file system and is at least as recent as the fasta, otherwise null
+     */
+    public static Path findImageForFasta(final Path fastaPath) {
+        if ( fastaPath.getFileSystem() != FileSystems.getDefault() ) {
+            return null;
+        }
+        final Path imagePath = fastaPath.resolveSibling(fastaPath.getFileName() + IMAGE_EXTENSION);
+        try {
+            if ( Files.exists(imagePath) && Files.exists(fastaPath) &&
+                    Files.getLastModifiedTime(imagePath).compareTo(Files.getLastModifiedTime(fastaPath)) >= 0 ) {
+                return imagePath;
+            }
+        } catch ( final IOException e ) {
+            // fall through: treat an unreadable image as missing
+        }
+        return null;
+    }
+
+    /**
+     * @return the path of the image backing this data source
+     */
+    public Path getImagePath() {
+        return imagePath;
+    }
+
+    /**
+     * Start an iteration over the entire reference, in sequence dictionary order.
+     *
+     * See the BaseUtils class for guidance on how to work with bases in this format.
+     *
+     * @return iterator over all bases in this reference
+     */
+    @Override
+    public Iterator<Byte> iterator() {
+        return new Iterator<Byte>() {
+            private int contigIndex = 0;
+            private ByteBuffer current = contigBases.length > 0 ? contigBases[0].duplicate() : null;
+
+            @Override
+            public boolean hasNext() {
+                while ( current != null && ! current.hasRemaining() ) {
+                    contigIndex++;
+                    current = contigIndex < contigBases.length ? contigBases[contigIndex].duplicate() : null;
+                }
+                return current != null;
+            }
+
+            @Override
+            public Byte next() {
+                if ( ! hasNext() ) {
+                    throw new NoSuchElementException();
+                }
+                return current.get();
+            }
+        };
+    }
+
+    /**
+     * Query a specific interval on this reference, and get back all bases spanning that interval at once.
+     * Call getBases() on the returned ReferenceSequence to get the actual reference bases. See the BaseUtils
+     * class for guidance on how to work with bases in this format.
+     *
+     * @param contig query interval contig
+     * @param start query interval start
+     * @param stop query interval stop
+     * @return a ReferenceSequence containing all bases spanning the query interval, prefetched
+     */
+    @Override
+    public ReferenceSequence queryAndPrefetch( final String contig, final long start , final long stop) {
+        final ByteBuffer view = getBasesView(contig, start, stop);
+        final byte[] bases = new byte[view.remaining()];
+        view.get(bases);
+        return new ReferenceSequence(contig, sequenceDictionary.getSequenceIndex(contig), bases);
+    }
+
+    /**
+     * Get a read-only view of the mapped bases spanning an interval, without copying them.
+     *
+     * @param interval query interval
+     * @return buffer whose remaining bytes are the bases spanning the query interval
+     */
+    public ByteBuffer getBasesView( final SimpleInterval interval ) {
+        Utils.nonNull(interval);
+        return getBasesView(interval.getContig(), interval.getStart(), interval.getEnd());
+    }
+
+    private ByteBuffer getBasesView( final String contig, final long start, final long stop ) {
+        final SAMSequenceRecord contigRecord = sequenceDictionary.getSequence(contig);
+        if ( contigRecord == null ) {
+            throw new UserException.MissingContigInSequenceDictionary(contig, sequenceDictionary);
+        }
+        Utils.validateArg(start >= 1 && start <= stop + 1 && stop <= contigRecord.getSequenceLength(),
+                () -> "Invalid query " + contig + ":" + start + "-" + stop + " (contig length is " + contigRecord.getSequenceLength() + ")");
+
+        final ByteBuffer view = contigBases[contigRecord.getSequenceIndex()].duplicate();
+        view.limit((int)stop);
+        view.position((int)(start - 1));
+        return view.slice();
+    }
+
+    /**
+     * Get the sequence dictionary for this reference
+     *
+     * @return SAMSequenceDictionary for this reference
+     */
+    @Override
+    public SAMSequenceDictionary getSequenceDictionary() {
+        return sequenceDictionary;
+    }
+}
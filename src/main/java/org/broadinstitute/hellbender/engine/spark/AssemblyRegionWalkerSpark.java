@@ -1,5 +1,6 @@
 package org.broadinstitute.hellbender.engine.spark;
 
+import com.google.common.collect.Iterables;
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMSequenceDictionary;
 import org.apache.spark.api.java.JavaRDD;
@@ -98,6 +99,10 @@ public abstract class AssemblyRegionWalkerSpark extends GATKSparkTool {
     @Argument(doc = "whether to use the shuffle implementation or not", shortName = "shuffle", fullName = "shuffle", optional = true)
     public boolean shuffle = false;
 
+    @Advanced
+    @Argument(doc = "whether to size read shards by the number of reads in them, estimated from the BAM index, rather than by their length in bases", shortName = "loadAwareSharding", fullName = "loadAwareSharding", optional = true)
+    public boolean loadAwareSharding = false;
+
     @Override
     public final boolean requiresReads() { return true; }
 
@@ -127,9 +132,15 @@ public abstract class AssemblyRegionWalkerSpark extends GATKSparkTool {
     protected List<SimpleInterval> editIntervals(List<SimpleInterval> rawIntervals) {
         SAMSequenceDictionary sequenceDictionary = getBestAvailableSequenceDictionary();
         List<SimpleInterval> intervals = rawIntervals == null ? IntervalUtils.getAllIntervalsForReference(sequenceDictionary) : rawIntervals;
-        intervalShards = intervals.stream()
-                .flatMap(interval -> Shard.divideIntervalIntoShards(interval, readShardSize, readShardPadding, sequenceDictionary).stream())
-                .collect(Collectors.toList());
+        final ShardBalancer.CostEstimator shardCostEstimator = loadAwareSharding ?
+                BamIndexReadCountEstimator.forBam(getReadSourceName(), getHeaderForReads().getSequenceDictionary()) : null;
+        if (shardCostEstimator != null) {
+            intervalShards = ShardBalancer.divideIntervalsIntoShards(intervals, readShardSize, readShardPadding, sequenceDictionary, shardCostEstimator);
+        } else {
+            intervalShards = intervals.stream()
+                    .flatMap(interval -> Shard.divideIntervalIntoShards(interval, readShardSize, readShardPadding, sequenceDictionary).stream())
+                    .collect(Collectors.toList());
+        }
         List<SimpleInterval> paddedIntervalsForReads =
                 intervals.stream().map(interval -> interval.expandWithinContig(readShardPadding, sequenceDictionary)).collect(Collectors.toList());
         return paddedIntervalsForReads;
@@ -163,6 +174,7 @@ public abstract class AssemblyRegionWalkerSpark extends GATKSparkTool {
             final double activeProbThreshold,
             final int maxProbPropagationDistance) {
         return (FlatMapFunction<Shard<GATKRead>, AssemblyRegionWalkerContext>) shardedRead -> {
+            final long startNanos = System.nanoTime();
             SimpleInterval paddedInterval = shardedRead.getPaddedInterval();
             SimpleInterval assemblyRegionPaddedInterval = paddedInterval.expandWithinContig(assemblyRegionPadding, sequenceDictionary);
 
@@ -176,10 +188,11 @@ public abstract class AssemblyRegionWalkerSpark extends GATKSparkTool {
                     header, referenceContext, featureContext, evaluator,
                     minAssemblyRegionSize, maxAssemblyRegionSize, assemblyRegionPadding, activeProbThreshold,
                     maxProbPropagationDistance);
-            return StreamSupport.stream(assemblyRegions.spliterator(), false).map(assemblyRegion ->
+            return ShardBalancer.timeShard(shardedRead.getInterval(), () -> Iterables.size(shardedRead), startNanos,
+                    StreamSupport.stream(assemblyRegions.spliterator(), false).map(assemblyRegion ->
                     new AssemblyRegionWalkerContext(assemblyRegion,
                         new ReferenceContext(reference, assemblyRegion.getExtendedSpan()),
-                        new FeatureContext(features, assemblyRegion.getExtendedSpan()))).iterator();
+                        new FeatureContext(features, assemblyRegion.getExtendedSpan()))).iterator());
         };
     }
 
@@ -0,0 +1,162 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.util.BinaryCodec;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Estimates the number of reads that overlap a window of the genome from the index (.bai) of a coordinate-sorted BAM,
+ * without reading the BAM itself, to use as the cost of a shard in {@link ShardBalancer}.
+ *
+ * <p>The linear index of a BAI gives, for each 16kb tile of a contig, the file offset of the first read that overlaps
+ * it, so the number of compressed bytes of reads in each tile. Bytes are converted to reads with the number of mapped
+ * reads and the span of each contig in the file, from the metadata pseudo-bin that htsjdk and samtools write. Windows
+ * smaller than a tile are assumed to have uniform coverage within it.</p>
+ */
+public final class BamIndexReadCountEstimator implements ShardBalancer.CostEstimator {
+
+    private static final Logger logger = LogManager.getLogger(BamIndexReadCountEstimator.class);
+
+    private static final byte[] BAI_MAGIC = {'B', 'A', 'I', 1};
+    private static final int TILE_SHIFT = 14; // 16kb tiles in the linear index
+    private static final int TILE_SIZE = 1 << TILE_SHIFT;
+    private static final int METADATA_PSEUDO_BIN = 37450;
+
+    // per contig, the compressed file offset of the start of each tile, and of the end of the contig's reads
+    private final Map<String, long[]> tileOffsets;
+    private final double readsPerByte;
+
+    private BamIndexReadCountEstimator(final Map<String, long[]> tileOffsets, final double readsPerByte) {
+        this.tileOffsets = tileOffsets;
+        this.readsPerByte = readsPerByte;
+    }
+
+    /**
+     * Finds the index of a BAM (next to it, named either &lt;bam&gt;.bai or &lt;bam without extension&gt;.bai) and
+     * reads it.
+     *
+     * @return the estimator, or null if the reads are not a BAM or have no index
+     */
+    public static BamIndexReadCountEstimator forBam(final String bamPath, final SAMSequenceDictionary dictionary) {
+        Utils.nonNull(bamPath);
+        if (!IOUtils.isBamFileName(bamPath)) {
+            logger.warn("Reads " + bamPath + " are not a BAM, so the cost of shards can't be estimated from its index");
+            return null;
+        }
+        String indexPath = bamPath + ".bai";
+        if (!BucketUtils.fileExists(indexPath)) {
+            indexPath = bamPath.substring(0, bamPath.lastIndexOf('.')) + ".bai";
+            if (!BucketUtils.fileExists(indexPath)) {
+                logger.warn("No index found for " + bamPath + ", so the cost of shards can't be estimated");
+                return null;
+            }
+        }
+        try (final InputStream in = new BufferedInputStream(BucketUtils.openFile(indexPath))) {
+            return fromIndex(in, dictionary, indexPath);
+        } catch (final IOException e) {
+            throw new UserException.CouldNotReadInputFile("Could not read BAM index " + indexPath, e);
+        }
+    }
+
+    /**
+     * Reads a BAI from a stream
+     *
+     * @param dictionary the sequence dictionary of the BAM, whose contigs are in the order of the references in the index
+     * @param source the name of the index, for error messages
+     */
+    static BamIndexReadCountEstimator fromIndex(final InputStream in, final SAMSequenceDictionary dictionary, final String source) {
+        Utils.nonNull(dictionary);
+        final BinaryCodec codec = new BinaryCodec(in);
+        final byte[] magic = new byte[BAI_MAGIC.length];
+        codec.readBytes(magic);
+        if (!Arrays.equals(magic, BAI_MAGIC)) {
+            throw new UserException.MalformedFile("Not a BAM index: " + source);
+        }
+        final int numReferences = codec.readInt();
+        if (numReferences != dictionary.size()) {
+            throw new UserException.MalformedFile("BAM index " + source + " has " + numReferences +
+                    " references, but the sequence dictionary has " + dictionary.size());
+        }
+
+        final Map<String, long[]> tileOffsets = new HashMap<>(numReferences * 2);
+        long mappedReads = 0;
+        long mappedBytes = 0;
+        for (int ref = 0; ref < numReferences; ref++) {
+            long refStart = -1;
+            long refEnd = -1;
+            long refMappedReads = -1;
+            final int numBins = codec.readInt();
+            for (int bin = 0; bin < numBins; bin++) {
+                final int binNumber = codec.readInt();
+                final int numChunks = codec.readInt();
+                if (binNumber == METADATA_PSEUDO_BIN && numChunks == 2) {
+                    refStart = codec.readLong() >>> 16;
+                    refEnd = codec.readLong() >>> 16;
+                    refMappedReads = codec.readLong();
+                    codec.readLong(); // unmapped reads
+                } else {
+                    for (int chunk = 0; chunk < numChunks; chunk++) {
+                        codec.readLong();
+                        codec.readLong();
+                    }
+                }
+            }
+            final int numTiles = codec.readInt();
+            final long[] offsets = new long[numTiles + 1];
+            for (int tile = 0; tile < numTiles; tile++) {
+                offsets[tile] = codec.readLong() >>> 16;
+            }
+            if (numTiles == 0) {
+                continue;
+            }
+            // tiles with no reads may have an offset of 0; the offsets must never decrease
+            long previous = refStart >= 0 ? refStart : offsets[0];
+            for (int tile = 0; tile < numTiles; tile++) {
+                previous = offsets[tile] = Math.max(offsets[tile], previous);
+            }
+            offsets[numTiles] = Math.max(refEnd, offsets[numTiles - 1]);
+            tileOffsets.put(dictionary.getSequence(ref).getSequenceName(), offsets);
+            if (refMappedReads >= 0) {
+                mappedReads += refMappedReads;
+                mappedBytes += offsets[numTiles] - offsets[0];
+            }
+        }
+        // without the metadata, the estimate is in compressed bytes, which is fine for comparing shards
+        final double readsPerByte = mappedReads > 0 && mappedBytes > 0 ? (double) mappedReads / mappedBytes : 1.0;
+        return new BamIndexReadCountEstimator(tileOffsets, readsPerByte);
+    }
+
+    @Override
+    public long estimateCost(final SimpleInterval window) {
+        final long[] offsets = tileOffsets.get(window.getContig());
+        if (offsets == null) {
+            return 0;
+        }
+        return Math.round((offsetAt(offsets, window.getEnd() + 1) - offsetAt(offsets, window.getStart())) * readsPerByte);
+    }
+
+    /**
+     * @return the estimated file offset of the reads that start at position, interpolated within its tile
+     */
+    private static double offsetAt(final long[] offsets, final int position) {
+        final int tile = (position - 1) >>> TILE_SHIFT;
+        if (tile >= offsets.length - 1) {
+            return offsets[offsets.length - 1];
+        }
+        final double fraction = (double) ((position - 1) & (TILE_SIZE - 1)) / TILE_SIZE;
+        return offsets[tile] + fraction * (offsets[tile + 1] - offsets[tile]);
+    }
+}
@@ -8,6 +8,7 @@ import org.broadinstitute.hellbender.utils.collections.IntervalsSkipList;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.variant.GATKVariant;
+import org.broadinstitute.hellbender.utils.variant.KnownSitesImage;
 import scala.Tuple2;
 
 import java.util.Collections;
@@ -38,14 +39,15 @@ public final class BroadcastJoinReadsWithVariants {
 
     /**
      * Joins each read of an RDD<GATKRead> with overlapping variants from an RDD of GATKVariants. Can be used for any size of
-     * variants (although they are still read into memory) since Spark broadcast is not used.
+     * variants (although they are still read into memory, or memory-mapped if they are {@link KnownSitesImage}s) since
+     * Spark broadcast is not used.
      *
      * @param reads the RDD of reads, in coordinate-sorted order
-     * @param variantsPaths the path to the variants file
+     * @param variantsPaths the paths to the variants files or known sites images
      * @return an RDD that contains each read along with the overlapping variants
      */
     public static JavaPairRDD<GATKRead, Iterable<GATKVariant>> join(final JavaRDD<GATKRead> reads, final List<String> variantsPaths) {
-        return reads.mapToPair(r -> getOverlapping(r, KnownSitesCache.getVariants(variantsPaths)));
+        return reads.mapToPair(r -> getOverlapping(r, KnownSitesCache.getImage(variantsPaths)));
     }
 
     private static Tuple2<GATKRead, Iterable<GATKVariant>> getOverlapping(final GATKRead read, final IntervalsSkipList<GATKVariant> intervalsSkipList) {
@@ -57,4 +59,14 @@ public final class BroadcastJoinReadsWithVariants {
             return new Tuple2<>(read, Collections.emptyList());
         }
     }
+
+    private static Tuple2<GATKRead, Iterable<GATKVariant>> getOverlapping(final GATKRead read, final KnownSitesImage knownSites) {
+        if (SimpleInterval.isValid(read.getContig(), read.getStart(), read.getEnd())) {
+            return new Tuple2<>(read, knownSites.getOverlapping(new SimpleInterval(read)));
+        } else {
+            //Sometimes we have reads that do not form valid intervals (reads that do not consume any ref bases, eg CIGAR 61S90I
+            //In those cases, we'll just say that nothing overlaps the read
+            return new Tuple2<>(read, Collections.emptyList());
+        }
+    }
 }
\ No newline at end of file
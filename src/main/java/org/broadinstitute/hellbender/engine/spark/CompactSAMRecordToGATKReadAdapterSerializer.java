@@ -0,0 +1,32 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordCompactSparkCodec;
+import org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter;
+
+/**
+ * Compact serializer for SAMRecordToGATKReadAdapters that uses SAMRecordCompactSparkCodec for encoding/decoding:
+ * about a fifth smaller than {@link SAMRecordToGATKReadAdapterSerializer} on typical reads, at the cost of decoding
+ * the records eagerly. Assumes that the underlying SAMRecords are headerless (and clears their header if they're not).
+ */
+public final class CompactSAMRecordToGATKReadAdapterSerializer extends Serializer<SAMRecordToGATKReadAdapter> {
+    private final SAMRecordCompactSparkCodec codec = new SAMRecordCompactSparkCodec();
+
+    @Override
+    public void write(Kryo kryo, Output output, SAMRecordToGATKReadAdapter adapter) {
+        final SAMRecord record = adapter.getEncapsulatedSamRecord();
+        // The underlying read is likely to already be headerless, but as a defensive
+        // measure in case it's not, set the header to null explicitly.
+        record.setHeaderStrict(null);
+        codec.encode(record, output);
+    }
+
+    @Override
+    public SAMRecordToGATKReadAdapter read(Kryo kryo, Input input, Class<SAMRecordToGATKReadAdapter> type) {
+        return SAMRecordToGATKReadAdapter.headerlessReadAdapter(codec.decode(input));
+    }
+}
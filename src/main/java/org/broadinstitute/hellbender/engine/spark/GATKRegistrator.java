@@ -12,8 +12,11 @@ import htsjdk.variant.variantcontext.Genotype;
 import htsjdk.variant.variantcontext.VariantContext;
 import org.apache.spark.serializer.KryoRegistrator;
 import org.bdgenomics.adam.serialization.ADAMKryoRegistrator;
+import org.broadinstitute.hellbender.tools.spark.transforms.markduplicates.DuplicateSignature;
 import org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter;
 import org.broadinstitute.hellbender.utils.read.markduplicates.PairedEnds;
+import org.broadinstitute.hellbender.utils.variant.MinimalVariant;
+import org.broadinstitute.hellbender.utils.variant.VariantContextVariantAdapter;
 
 import java.util.Collections;
 
@@ -49,12 +52,19 @@ public class GATKRegistrator implements KryoRegistrator {
 
         kryo.register(Collections.unmodifiableList(Collections.EMPTY_LIST).getClass(), new UnmodifiableCollectionsSerializer());
 
-        kryo.register(SAMRecordToGATKReadAdapter.class, new SAMRecordToGATKReadAdapterSerializer());
+        // compact encodings of reads: varints, 2-bit bases and no repeated reference names
+        kryo.register(SAMRecordToGATKReadAdapter.class, new CompactSAMRecordToGATKReadAdapterSerializer());
 
-        kryo.register(SAMRecord.class, new SAMRecordSerializer());
+        kryo.register(SAMRecord.class, new CompactSAMRecordSerializer());
+
+        // register the variants broadcast by BroadcastJoinReadsWithVariants with their compact @DefaultSerializers
+        kryo.register(MinimalVariant.class);
+        kryo.register(VariantContextVariantAdapter.class);
 
         //register to avoid writing the full name of this class over and over
         kryo.register(PairedEnds.class, new FieldSerializer<>(kryo, PairedEnds.class));
+        kryo.register(DuplicateSignature.class, new FieldSerializer<>(kryo, DuplicateSignature.class));
+        kryo.register(DuplicateSignature.Key.class, new FieldSerializer<>(kryo, DuplicateSignature.Key.class));
 
         // register the ADAM data types using Avro serialization, including:
         //     AlignmentRecord
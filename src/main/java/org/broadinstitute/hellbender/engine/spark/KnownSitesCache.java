@@ -4,56 +4,78 @@ import htsjdk.variant.variantcontext.VariantContext;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.broadinstitute.hellbender.engine.FeatureDataSource;
-import org.broadinstitute.hellbender.utils.collections.IntervalsSkipList;
-import org.broadinstitute.hellbender.utils.variant.GATKVariant;
-import org.broadinstitute.hellbender.utils.variant.VariantContextVariantAdapter;
+import org.broadinstitute.hellbender.utils.variant.KnownSitesImage;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * A cache of known sites by file path, with the property that there is only one copy of each collection of known sites per JVM.
  * This class is an alternative for cases that can't use a Spark broadcast due to its 2GB limitation.
+ *
+ * <p>The known sites are held as a {@link KnownSitesImage}. Paths to image files (see
+ * {@link org.broadinstitute.hellbender.tools.KnownSitesImageCreator}) are memory-mapped, which is much faster than
+ * parsing a VCF; they must name a file on the local filesystem of every executor. Any other path is read as a
+ * variants file.</p>
  */
-class KnownSitesCache {
+public final class KnownSitesCache {
 
     private static final Logger log = LogManager.getLogger(KnownSitesCache.class);
 
-    private static final Map<List<String>, IntervalsSkipList<GATKVariant>> PATHS_TO_VARIANTS = new HashMap<>();
+    private static final Map<List<String>, KnownSitesImage> PATHS_TO_IMAGES = new HashMap<>();
 
-    public static synchronized IntervalsSkipList<GATKVariant> getVariants(List<String> paths) {
-        if (PATHS_TO_VARIANTS.containsKey(paths)) {
-            return PATHS_TO_VARIANTS.get(paths);
+    private KnownSitesCache() {}
+
+    public static synchronized KnownSitesImage getImage(final List<String> paths) {
+        if (PATHS_TO_IMAGES.containsKey(paths)) {
+            return PATHS_TO_IMAGES.get(paths);
+        }
+        final KnownSitesImage image = retrieveImage(paths);
+        PATHS_TO_IMAGES.put(paths, image);
+        return image;
+    }
+
+    /**
+     * Loads the known sites at path, which may be an image file or a variants file
+     */
+    public static KnownSitesImage loadImage(final String path) {
+        if (KnownSitesImage.isImage(path)) {
+            log.info("Mapping known sites image " + path);
+            return KnownSitesImage.map(path);
         }
-        IntervalsSkipList<GATKVariant> variants = retrieveVariants(paths);
-        PATHS_TO_VARIANTS.put(paths, variants);
-        return variants;
+        return loadFromFeatureDataSource(path, new KnownSitesImage.Builder()).build();
     }
 
-    private static IntervalsSkipList<GATKVariant> retrieveVariants(List<String> paths) {
-        return new IntervalsSkipList<>(paths
-                .stream()
-                .map(KnownSitesCache::loadFromFeatureDataSource)
-                .flatMap(Collection::stream)
-                .collect(Collectors.toList()));
+    private static KnownSitesImage retrieveImage(final List<String> paths) {
+        if (paths.size() == 1) {
+            return loadImage(paths.get(0));
+        }
+        final KnownSitesImage.Builder builder = new KnownSitesImage.Builder();
+        for (final String path : paths) {
+            if (KnownSitesImage.isImage(path)) {
+                builder.addAll(loadImage(path));
+            } else {
+                loadFromFeatureDataSource(path, builder);
+            }
+        }
+        return builder.build();
     }
 
-    private static List<GATKVariant> loadFromFeatureDataSource(String path) {
+    private static KnownSitesImage.Builder loadFromFeatureDataSource(final String path, final KnownSitesImage.Builder builder) {
         int cloudPrefetchBuffer = 40; // only used for GCS
         try ( final FeatureDataSource<VariantContext> dataSource = new FeatureDataSource<>(path, null, 0, null, cloudPrefetchBuffer, cloudPrefetchBuffer) ) {
-            return wrapQueryResults(dataSource.iterator());
+            return addVariants(dataSource.iterator(), builder);
         }
     }
 
-    private static List<GATKVariant> wrapQueryResults(final Iterator<VariantContext> queryResults ) {
-        final List<GATKVariant> wrappedResults = new ArrayList<>();
+    private static KnownSitesImage.Builder addVariants(final Iterator<VariantContext> queryResults, final KnownSitesImage.Builder builder) {
         long count = 0;
         while ( queryResults.hasNext() ) {
             if (count++ % 100000 == 0) {
                 log.info("Number of variants read: " + count);
             }
-            wrappedResults.add(VariantContextVariantAdapter.sparkVariantAdapter(queryResults.next()));
+            final VariantContext variant = queryResults.next();
+            builder.add(variant.getContig(), variant.getStart(), variant.getEnd(), variant.isSNP(), variant.isIndel());
         }
-        return wrappedResults;
+        return builder;
     }
 }
@@ -0,0 +1,97 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.broadinstitute.hellbender.utils.Utils;
+
+/**
+ * Writes base sequences to Kryo streams in 2 bits per base, with the positions of any Ns listed separately.
+ * Sequences that have anything other than upper case A, C, G, T and N (soft-masked bases, IUPAC codes, '=') are
+ * written as they are, one byte per base, so that every sequence reads back exactly.
+ */
+public final class PackedBasesCodec {
+
+    private static final byte PACKED = 0;
+    private static final byte RAW = 1;
+
+    private static final byte[] BASES = {'A', 'C', 'G', 'T'};
+
+    private PackedBasesCodec() {}
+
+    public static void write(final Output output, final byte[] bases) {
+        Utils.nonNull(bases, "bases");
+        output.writeInt(bases.length, true);
+        if (bases.length == 0) {
+            return;
+        }
+        int numNs = 0;
+        for (final byte base : bases) {
+            if (base == 'N') {
+                numNs++;
+            } else if (code(base) < 0) {
+                output.writeByte(RAW);
+                output.writeBytes(bases);
+                return;
+            }
+        }
+
+        output.writeByte(PACKED);
+        // positions of the Ns, as differences from the previous one
+        output.writeInt(numNs, true);
+        int lastN = 0;
+        for (int i = 0; numNs > 0 && i < bases.length; i++) {
+            if (bases[i] == 'N') {
+                output.writeInt(i - lastN, true);
+                lastN = i;
+                numNs--;
+            }
+        }
+        // 4 bases per byte, the first in the low bits; Ns are packed as As
+        for (int i = 0; i < bases.length; i += 4) {
+            int packed = 0;
+            for (int j = 0; j < 4 && i + j < bases.length; j++) {
+                packed |= Math.max(code(bases[i + j]), 0) << (2 * j);
+            }
+            output.writeByte(packed);
+        }
+    }
+
+    public static byte[] read(final Input input) {
+        final int length = input.readInt(true);
+        if (length == 0) {
+            return new byte[0];
+        }
+        if (input.readByte() == RAW) {
+            return input.readBytes(length);
+        }
+
+        final int numNs = input.readInt(true);
+        final int[] nPositions = new int[numNs];
+        int lastN = 0;
+        for (int i = 0; i < numNs; i++) {
+            lastN += input.readInt(true);
+            nPositions[i] = lastN;
+        }
+        final byte[] bases = new byte[length];
+        for (int i = 0; i < length; i += 4) {
+            final int packed = input.readByte();
+            for (int j = 0; j < 4 && i + j < length; j++) {
+                bases[i + j] = BASES[(packed >> (2 * j)) & 3];
+            }
+        }
+        for (final int nPosition : nPositions) {
+            bases[nPosition] = 'N';
+        }
+        return bases;
+    }
+
+    private static int code(final byte base) {
+        switch (base) {
+            case 'A': return 0;
+            case 'C': return 1;
+            case 'G': return 2;
+            case 'T': return 3;
+            default: return -1;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.engine.ShardBoundary;
+import org.broadinstitute.hellbender.utils.IntervalUtils;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Divides intervals into {@link ShardBoundary}s of roughly equal estimated cost, rather than of equal size, so that a
+ * few shards over regions of very high coverage (such as centromeres, rDNA or amplicons) don't set the running time
+ * of a whole stage.
+ *
+ * <p>The intervals are first cut into windows of the usual shard size, and the cost of each window is estimated (for
+ * example with a {@link BamIndexReadCountEstimator}). The target cost of a shard is the median cost of the windows
+ * that have any cost at all, so that typical windows are left alone. Windows that cost more than
+ * {@value #SPLIT_THRESHOLD} times the target are then split in halves, recursively, into up to {@value #MAX_SPLITS}
+ * pieces; and runs of adjacent windows that together cost no more than the target are merged, up to
+ * {@value #MAX_MERGES} windows per shard.</p>
+ *
+ * <p>Use {@link #timeShard} to log the time actually taken by each shard, to calibrate the cost model.</p>
+ */
+public final class ShardBalancer {
+
+    private static final Logger logger = LogManager.getLogger(ShardBalancer.class);
+
+    /**
+     * Windows that cost more than this many times the target cost are split
+     */
+    static final double SPLIT_THRESHOLD = 2.0;
+
+    /**
+     * Maximum number of pieces a window is split into (so shards are never smaller than 1/MAX_SPLITS of the shard size)
+     */
+    static final int MAX_SPLITS = 16;
+
+    /**
+     * Maximum number of windows merged into one shard
+     */
+    static final int MAX_MERGES = 16;
+
+    /**
+     * Estimates the cost of processing the reads that overlap a window of the genome
+     */
+    @FunctionalInterface
+    public interface CostEstimator {
+        /**
+         * @return the estimated cost, in units that only need to be consistent between windows
+         */
+        long estimateCost(SimpleInterval window);
+    }
+
+    private ShardBalancer() {}
+
+    /**
+     * Divide intervals into shards of roughly equal estimated cost.
+     *
+     * @param intervals intervals to shard, must be coordinate sorted and on contigs of the dictionary
+     * @param shardSize the size of a shard of typical cost, in bases
+     * @param shardPadding each shard's interval is padded on both sides by this number of bases (may be 0)
+     * @param dictionary sequence dictionary for reads
+     * @param estimator estimates the cost of a window
+     * @return List of {@link ShardBoundary} objects spanning the intervals, in coordinate order
+     */
+    public static List<ShardBoundary> divideIntervalsIntoShards(final List<SimpleInterval> intervals, final int shardSize,
+                                                                final int shardPadding, final SAMSequenceDictionary dictionary,
+                                                                final CostEstimator estimator) {
+        Utils.nonNull(intervals);
+        Utils.nonNull(dictionary);
+        Utils.nonNull(estimator);
+        Utils.validateArg(shardSize >= 1, "shardSize must be >= 1");
+        Utils.validateArg(shardPadding >= 0, "shardPadding must be >= 0");
+
+        final List<SimpleInterval> windows = new ArrayList<>();
+        for (final SimpleInterval interval : intervals) {
+            Utils.validateArg(IntervalUtils.intervalIsOnDictionaryContig(interval, dictionary), () ->
+                    "Interval " + interval + " not within the bounds of a contig in the provided dictionary");
+            for (int start = interval.getStart(); start <= interval.getEnd(); start += shardSize) {
+                windows.add(new SimpleInterval(interval.getContig(), start, Math.min(start + shardSize - 1, interval.getEnd())));
+            }
+        }
+        final long[] windowCosts = new long[windows.size()];
+        long totalCost = 0;
+        for (int i = 0; i < windows.size(); i++) {
+            windowCosts[i] = Math.max(0, estimator.estimateCost(windows.get(i)));
+            totalCost += windowCosts[i];
+        }
+        if (totalCost == 0) {
+            logger.warn("No cost estimates for any of the shards, using shards of equal size");
+            return toShardBoundaries(windows, shardPadding, dictionary);
+        }
+        final long[] nonZeroCosts = Arrays.stream(windowCosts).filter(cost -> cost > 0).sorted().toArray();
+        final double targetCost = nonZeroCosts[nonZeroCosts.length / 2];
+
+        // split hot windows
+        final int minShardSize = Math.max(1, (shardSize + MAX_SPLITS - 1) / MAX_SPLITS);
+        final List<SimpleInterval> pieces = new ArrayList<>(windows.size());
+        final List<Long> pieceCosts = new ArrayList<>(windows.size());
+        int numSplit = 0;
+        for (int i = 0; i < windows.size(); i++) {
+            final int numPieces = pieces.size();
+            split(windows.get(i), windowCosts[i], targetCost, minShardSize, estimator, pieces, pieceCosts);
+            if (pieces.size() > numPieces + 1) {
+                numSplit++;
+            }
+        }
+
+        // merge runs of cold windows
+        final int maxShardSize = (int) Math.min(Integer.MAX_VALUE, (long) shardSize * MAX_MERGES);
+        final List<SimpleInterval> shards = new ArrayList<>(pieces.size());
+        final List<Long> shardCosts = new ArrayList<>(pieces.size());
+        int numMerged = 0;
+        SimpleInterval run = pieces.get(0);
+        long runCost = pieceCosts.get(0);
+        for (int i = 1; i < pieces.size(); i++) {
+            final SimpleInterval piece = pieces.get(i);
+            final long cost = pieceCosts.get(i);
+            if (piece.getContig().equals(run.getContig()) && piece.getStart() == run.getEnd() + 1 &&
+                    runCost + cost <= targetCost && (long) piece.getEnd() - run.getStart() + 1 <= maxShardSize) {
+                run = new SimpleInterval(run.getContig(), run.getStart(), piece.getEnd());
+                runCost += cost;
+                numMerged++;
+            } else {
+                shards.add(run);
+                shardCosts.add(runCost);
+                run = piece;
+                runCost = cost;
+            }
+        }
+        shards.add(run);
+        shardCosts.add(runCost);
+
+        final long[] sortedCosts = shardCosts.stream().mapToLong(Long::longValue).sorted().toArray();
+        logger.info(String.format("Divided %d windows of %d bases into %d load-balanced shards (split %d hot windows and merged %d cold windows away). " +
+                        "Estimated cost per window: median %.0f, max %d. Estimated cost per shard: median %d, max %d.",
+                windows.size(), shardSize, shards.size(), numSplit, numMerged,
+                targetCost, Arrays.stream(windowCosts).max().getAsLong(),
+                sortedCosts[sortedCosts.length / 2], sortedCosts[sortedCosts.length - 1]));
+        if (logger.isDebugEnabled()) {
+            for (int i = 0; i < shards.size(); i++) {
+                logger.debug("Shard " + shards.get(i) + " estimated cost " + shardCosts.get(i));
+            }
+        }
+        return toShardBoundaries(shards, shardPadding, dictionary);
+    }
+
+    /**
+     * Wraps the iterator over the results of processing a shard, so that the time from startNanos until the results
+     * are exhausted is logged (at debug level) along with the number of reads in the shard. This includes the
+     * processing of the results that Spark pipelines with the shard, such as calling variants in assembly regions.
+     *
+     * @param numReads counts the reads in the shard; only called if debug logging is enabled
+     * @return the results themselves if debug logging is not enabled
+     */
+    public static <T> Iterator<T> timeShard(final SimpleInterval shardInterval, final LongSupplier numReads, final long startNanos,
+                                            final Iterator<T> results) {
+        if (!logger.isDebugEnabled()) {
+            return results;
+        }
+        return new Iterator<T>() {
+            private boolean logged = false;
+
+            @Override
+            public boolean hasNext() {
+                final boolean hasNext = results.hasNext();
+                if (!hasNext && !logged) {
+                    logged = true;
+                    logger.debug(String.format("Shard %s reads %d time %.3f s", shardInterval, numReads.getAsLong(),
+                            (System.nanoTime() - startNanos) / 1e9));
+                }
+                return hasNext;
+            }
+
+            @Override
+            public T next() {
+                return results.next();
+            }
+        };
+    }
+
+    private static void split(final SimpleInterval window, final long cost, final double targetCost, final int minShardSize,
+                              final CostEstimator estimator, final List<SimpleInterval> pieces, final List<Long> pieceCosts) {
+        if (cost <= SPLIT_THRESHOLD * targetCost || window.size() < 2 * minShardSize) {
+            pieces.add(window);
+            pieceCosts.add(cost);
+            return;
+        }
+        final int middle = window.getStart() + window.size() / 2;
+        final SimpleInterval left = new SimpleInterval(window.getContig(), window.getStart(), middle - 1);
+        final SimpleInterval right = new SimpleInterval(window.getContig(), middle, window.getEnd());
+        split(left, Math.max(0, estimator.estimateCost(left)), targetCost, minShardSize, estimator, pieces, pieceCosts);
+        split(right, Math.max(0, estimator.estimateCost(right)), targetCost, minShardSize, estimator, pieces, pieceCosts);
+    }
+
+    private static List<ShardBoundary> toShardBoundaries(final List<SimpleInterval> shards, final int shardPadding,
+                                                         final SAMSequenceDictionary dictionary) {
+        final List<ShardBoundary> boundaries = new ArrayList<>(shards.size());
+        for (final SimpleInterval shard : shards) {
+            boundaries.add(new ShardBoundary(shard, shard.expandWithinContig(shardPadding, dictionary)));
+        }
+        return boundaries;
+    }
+}
@@ -0,0 +1,296 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SamReaderFactory;
+import htsjdk.samtools.ValidationStringency;
+import htsjdk.samtools.util.Locatable;
+import htsjdk.samtools.util.OverlapDetector;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.api.java.function.Function2;
+import org.apache.spark.broadcast.Broadcast;
+import org.broadinstitute.hellbender.engine.ReadsDataSource;
+import org.broadinstitute.hellbender.engine.Shard;
+import org.broadinstitute.hellbender.engine.ShardBoundary;
+import org.broadinstitute.hellbender.engine.ShardBoundaryShard;
+import org.broadinstitute.hellbender.engine.filters.ReadFilter;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import scala.Tuple2;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Creates {@link Shard}s of reads in the partitions that the reads were loaded in, without a shuffle and without
+ * reading any partition twice.
+ *
+ * <p>The partitions of a coordinate sorted BAM loaded by
+ * {@link org.broadinstitute.hellbender.engine.spark.datasources.ReadsSparkSource} follow the splits of the file
+ * (aligned to the records listed in its .splitting-bai, if it has one), so each partition holds the reads in a range
+ * of positions. Each shard is processed in the partition that holds the start of its interval. The reads that
+ * overlap the shard or its padding but are held by a neighbouring partition are fetched by querying the BAM for the
+ * shard's padded interval, rather than by moving reads between partitions. Only the shards at the edges of a
+ * partition need a query.</p>
+ *
+ * <p>So that no read is counted twice, the reads of a partition are used only if they start strictly after the
+ * first read of the partition and strictly before the first read of the next partition. Reads that start at or
+ * beyond these positions are always taken from the query.</p>
+ */
+public final class SplitAlignedSharder {
+
+    private SplitAlignedSharder() {}
+
+    /**
+     * Create an RDD of {@link Shard} from an RDD of reads loaded from a coordinate sorted, indexed BAM.
+     *
+     * @param ctx the Spark Context
+     * @param reads the reads, as loaded from the BAM (in the order and partitions of the file) and then filtered
+     * @param bamPath the BAM the reads were loaded from, which must be indexed and readable from every executor
+     * @param sequenceDictionary the sequence dictionary of the reads
+     * @param shardBoundaries the shards to create, must be coordinate sorted
+     * @param maxReadLength the maximum length of a read
+     * @param readFilter the filter that was applied to the reads, which is also applied to the reads from queries
+     * @param validationStringency the validation stringency to read the BAM with
+     * @param traversalIntervals the intervals the reads were restricted to when they were loaded, or null if all the
+     *                           reads were loaded
+     * @return an RDD of {@link Shard} of overlapping reads (including overlapping only padding). Shards with no reads
+     *         are dropped.
+     */
+    public static JavaRDD<Shard<GATKRead>> shard(final JavaSparkContext ctx, final JavaRDD<GATKRead> reads, final String bamPath,
+                                                 final SAMSequenceDictionary sequenceDictionary, final List<ShardBoundary> shardBoundaries,
+                                                 final int maxReadLength, final ReadFilter readFilter,
+                                                 final ValidationStringency validationStringency,
+                                                 final List<SimpleInterval> traversalIntervals) {
+        Utils.nonNull(bamPath);
+        Utils.nonNull(sequenceDictionary);
+        Utils.nonNull(shardBoundaries);
+        Utils.nonNull(readFilter);
+
+        // Find the start of the first read in each partition. This is very efficient since only the first record in
+        // each partition is read. Unplaced unmapped reads come last, so a partition that starts with one has no
+        // placed reads at all.
+        final int numPartitions = reads.getNumPartitions();
+        final Function2<Integer, Iterator<GATKRead>, Iterator<Tuple2<Integer, SimpleInterval>>> firstReadStart = (index, it) -> {
+            final GATKRead first = it.hasNext() ? it.next() : null;
+            if (first == null || first.getContig() == null) {
+                return Collections.emptyIterator();
+            }
+            return Iterators.singletonIterator(new Tuple2<>(index, new SimpleInterval(first.getContig(), first.getStart(), first.getStart())));
+        };
+        final SimpleInterval[] firstReadStarts = new SimpleInterval[numPartitions];
+        for (final Tuple2<Integer, SimpleInterval> firstRead : reads.mapPartitionsWithIndex(firstReadStart, false).collect()) {
+            firstReadStarts[firstRead._1()] = firstRead._2();
+        }
+
+        // Each shard goes to the partition that holds the start of its interval. The first non-empty partition also
+        // takes any shards that start before its first read.
+        final List<List<ShardBoundary>> shardsPerPartition = new ArrayList<>(numPartitions);
+        final SimpleInterval[] nextFirstReadStarts = new SimpleInterval[numPartitions];
+        for (int i = 0; i < numPartitions; i++) {
+            shardsPerPartition.add(new ArrayList<>());
+        }
+        int partition = nextNonEmptyPartition(firstReadStarts, 0);
+        if (partition == numPartitions) {
+            return ctx.emptyRDD();
+        }
+        for (int i = partition; i < numPartitions; i = nextNonEmptyPartition(firstReadStarts, i + 1)) {
+            final int next = nextNonEmptyPartition(firstReadStarts, i + 1);
+            nextFirstReadStarts[i] = next < numPartitions ? firstReadStarts[next] : null;
+        }
+        for (final ShardBoundary shard : shardBoundaries) {
+            while (nextFirstReadStarts[partition] != null &&
+                    compare(shard.getContig(), shard.getStart(), nextFirstReadStarts[partition], sequenceDictionary) >= 0) {
+                partition = nextNonEmptyPartition(firstReadStarts, partition + 1);
+            }
+            shardsPerPartition.get(partition).add(shard);
+        }
+
+        final Broadcast<List<List<ShardBoundary>>> shardsBroadcast = ctx.broadcast(shardsPerPartition);
+        final Broadcast<List<SimpleInterval>> traversalIntervalsBroadcast = traversalIntervals == null ? null : ctx.broadcast(traversalIntervals);
+        return reads.mapPartitionsWithIndex((index, partitionReads) -> {
+            final List<ShardBoundary> shards = shardsBroadcast.value().get(index);
+            if (shards.isEmpty()) {
+                return Collections.<Shard<GATKRead>>emptyIterator();
+            }
+            final PaddingReadsQuery query = new PaddingReadsQuery(bamPath, validationStringency, readFilter,
+                    traversalIntervalsBroadcast == null ? null : OverlapDetector.create(traversalIntervalsBroadcast.value()));
+            return new PartitionShardsIterator(partitionReads, shards.iterator(), firstReadStarts[index], nextFirstReadStarts[index],
+                    query, sequenceDictionary, maxReadLength);
+        }, false);
+    }
+
+    private static int nextNonEmptyPartition(final SimpleInterval[] firstReadStarts, final int from) {
+        int partition = from;
+        while (partition < firstReadStarts.length && firstReadStarts[partition] == null) {
+            partition++;
+        }
+        return partition;
+    }
+
+    /**
+     * Compares the position contig:start with the start of a locatable, by contig order in the dictionary then start
+     */
+    private static int compare(final String contig, final int start, final Locatable locatable, final SAMSequenceDictionary sequenceDictionary) {
+        return compare(contig, start, locatable.getContig(), locatable.getStart(), sequenceDictionary);
+    }
+
+    private static int compare(final String contig, final int start, final String otherContig, final int otherStart,
+                               final SAMSequenceDictionary sequenceDictionary) {
+        final int contigIndex = sequenceDictionary.getSequenceIndex(contig);
+        final int otherContigIndex = sequenceDictionary.getSequenceIndex(otherContig);
+        Utils.validate(contigIndex != -1 && otherContigIndex != -1, () ->
+                "Contig not found in sequence dictionary: " + (contigIndex == -1 ? contig : otherContig));
+        return contigIndex != otherContigIndex ? Integer.compare(contigIndex, otherContigIndex) : Integer.compare(start, otherStart);
+    }
+
+    /**
+     * Queries the BAM for the reads in the padding of the shards at the edges of a partition. The BAM is only opened
+     * by the first query.
+     */
+    private static final class PaddingReadsQuery implements AutoCloseable {
+        private final String bamPath;
+        private final ValidationStringency validationStringency;
+        private final ReadFilter readFilter;
+        private final OverlapDetector<SimpleInterval> traversalIntervals;
+        private ReadsDataSource dataSource;
+
+        PaddingReadsQuery(final String bamPath, final ValidationStringency validationStringency, final ReadFilter readFilter,
+                          final OverlapDetector<SimpleInterval> traversalIntervals) {
+            this.bamPath = bamPath;
+            this.validationStringency = validationStringency;
+            this.readFilter = readFilter;
+            this.traversalIntervals = traversalIntervals;
+        }
+
+        /**
+         * @return the reads overlapping interval that would have been loaded into the RDD, in coordinate order
+         */
+        List<GATKRead> query(final SimpleInterval interval) {
+            if (dataSource == null) {
+                dataSource = new ReadsDataSource(IOUtils.getPath(bamPath), SamReaderFactory.makeDefault().validationStringency(validationStringency));
+            }
+            final List<GATKRead> reads = new ArrayList<>();
+            final Iterator<GATKRead> it = dataSource.query(interval);
+            while (it.hasNext()) {
+                final GATKRead read = it.next();
+                if (readFilter.test(read) && (traversalIntervals == null || traversalIntervals.overlapsAny(read))) {
+                    reads.add(read);
+                }
+            }
+            return reads;
+        }
+
+        @Override
+        public void close() {
+            if (dataSource != null) {
+                dataSource.close();
+                dataSource = null;
+            }
+        }
+    }
+
+    /**
+     * Makes the shards of one partition, streaming through the reads of the partition and keeping only the reads
+     * that may overlap the current shard in memory.
+     */
+    private static final class PartitionShardsIterator extends AbstractIterator<Shard<GATKRead>> {
+        private final PeekingIterator<GATKRead> partitionReads;
+        private final Iterator<ShardBoundary> shards;
+        private final SimpleInterval firstReadStart;
+        private final SimpleInterval nextFirstReadStart; // null for the last non-empty partition
+        private final PaddingReadsQuery query;
+        private final SAMSequenceDictionary sequenceDictionary;
+        private final int maxReadLength;
+        private final ArrayDeque<GATKRead> buffer = new ArrayDeque<>();
+
+        PartitionShardsIterator(final Iterator<GATKRead> partitionReads, final Iterator<ShardBoundary> shards,
+                                final SimpleInterval firstReadStart, final SimpleInterval nextFirstReadStart,
+                                final PaddingReadsQuery query, final SAMSequenceDictionary sequenceDictionary,
+                                final int maxReadLength) {
+            this.partitionReads = Iterators.peekingIterator(partitionReads);
+            this.shards = shards;
+            this.firstReadStart = firstReadStart;
+            this.nextFirstReadStart = nextFirstReadStart;
+            this.query = query;
+            this.sequenceDictionary = sequenceDictionary;
+            this.maxReadLength = maxReadLength;
+        }
+
+        @Override
+        protected Shard<GATKRead> computeNext() {
+            while (shards.hasNext()) {
+                final ShardBoundary shard = shards.next();
+                final SimpleInterval padded = shard.getPaddedInterval();
+                // reads overlapping the padded interval start no earlier than maxReadLength before it
+                final boolean queryBefore = compare(padded.getContig(), Math.max(1, padded.getStart() - maxReadLength + 1), firstReadStart, sequenceDictionary) <= 0;
+                final boolean queryAfter = nextFirstReadStart != null && compare(padded.getContig(), padded.getEnd(), nextFirstReadStart, sequenceDictionary) >= 0;
+                final List<GATKRead> queried = queryBefore || queryAfter ? query.query(padded) : Collections.emptyList();
+
+                final List<GATKRead> shardReads = new ArrayList<>();
+                for (final GATKRead read : queried) {
+                    if (compare(read.getContig(), read.getStart(), firstReadStart, sequenceDictionary) <= 0) {
+                        shardReads.add(read);
+                    }
+                }
+                addPartitionReads(padded, shardReads);
+                for (final GATKRead read : queried) {
+                    if (nextFirstReadStart != null && compare(read.getContig(), read.getStart(), nextFirstReadStart, sequenceDictionary) >= 0) {
+                        shardReads.add(read);
+                    }
+                }
+                if (!shardReads.isEmpty()) {
+                    return new ShardBoundaryShard<>(shard, shardReads);
+                }
+            }
+            query.close();
+            return endOfData();
+        }
+
+        /**
+         * Adds the reads of the partition that overlap the padded interval of a shard. Shards must be visited in order.
+         */
+        private void addPartitionReads(final SimpleInterval padded, final List<GATKRead> shardReads) {
+            final int contigIndex = sequenceDictionary.getSequenceIndex(padded.getContig());
+            // drop reads that can't overlap this shard or any later one
+            while (!buffer.isEmpty()) {
+                final GATKRead read = buffer.peekFirst();
+                final int readContigIndex = sequenceDictionary.getSequenceIndex(read.getContig());
+                if (readContigIndex > contigIndex || (readContigIndex == contigIndex && read.getStart() + maxReadLength > padded.getStart())) {
+                    break;
+                }
+                buffer.removeFirst();
+            }
+            // read ahead up to the end of the shard
+            while (partitionReads.hasNext()) {
+                final GATKRead read = partitionReads.peek();
+                if (read.getContig() == null || compare(read.getContig(), read.getStart(), padded.getContig(), padded.getEnd(), sequenceDictionary) > 0) {
+                    break;
+                }
+                partitionReads.next();
+                final int size = read.getEnd() - read.getStart() + 1;
+                if (size > maxReadLength) {
+                    throw new UserException(String.format("Max size of read exceeded. Max size is %s, but read size is %s. Read: %s", maxReadLength, size, read));
+                }
+                if (compare(read.getContig(), read.getStart(), firstReadStart, sequenceDictionary) > 0 &&
+                        (nextFirstReadStart == null || compare(read.getContig(), read.getStart(), nextFirstReadStart, sequenceDictionary) < 0)) {
+                    buffer.addLast(read);
+                }
+            }
+            for (final GATKRead read : buffer) {
+                if (read.getContig().equals(padded.getContig()) && read.getStart() <= padded.getEnd() && read.getEnd() >= padded.getStart()) {
+                    shardReads.add(read);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.spark.SparkFiles;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.api.java.function.Function0;
+import org.broadinstitute.hellbender.engine.datasources.ReferenceMultiSource;
+import org.broadinstitute.hellbender.engine.datasources.ReferenceWindowFunctions;
+import org.broadinstitute.hellbender.engine.spark.datasources.ReferenceTwoBitSource;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A cache of .2bit references by file path, with the property that there is only one copy of each reference per JVM.
+ * This class is an alternative to broadcasting a {@link ReferenceMultiSource}, which sends the whole reference from
+ * the driver to every executor as part of the job.
+ *
+ * <p>{@link #distribute} ships the reference to every node with {@link JavaSparkContext#addFile}, so that each
+ * executor loads it from its local disk the first time it is needed.</p>
+ */
+public final class TwoBitReferenceCache {
+
+    private static final Logger log = LogManager.getLogger(TwoBitReferenceCache.class);
+
+    private static final Map<String, ReferenceMultiSource> PATHS_TO_REFERENCES = new HashMap<>();
+
+    private TwoBitReferenceCache() {}
+
+    public static synchronized ReferenceMultiSource getReference(final String path) {
+        Utils.nonNull(path);
+        if (PATHS_TO_REFERENCES.containsKey(path)) {
+            return PATHS_TO_REFERENCES.get(path);
+        }
+        log.info("Loading reference " + path);
+        final ReferenceMultiSource reference = new ReferenceMultiSource(path, ReferenceWindowFunctions.IDENTITY_FUNCTION);
+        PATHS_TO_REFERENCES.put(path, reference);
+        return reference;
+    }
+
+    /**
+     * Distributes a .2bit reference to the local disk of every node.
+     *
+     * @param referenceURL the path to the reference, on any filesystem that Spark can read from
+     * @return a function to call on an executor to get the node-local copy of the reference
+     */
+    public static Function0<ReferenceMultiSource> distribute(final JavaSparkContext ctx, final String referenceURL) {
+        Utils.nonNull(referenceURL);
+        Utils.validateArg(ReferenceTwoBitSource.isTwoBit(referenceURL), "Only a .2bit reference can be distributed to the nodes");
+        ctx.addFile(referenceURL);
+        final String referenceFileName = IOUtils.getPath(referenceURL).getFileName().toString();
+        return () -> getReference(SparkFiles.get(referenceFileName));
+    }
+}
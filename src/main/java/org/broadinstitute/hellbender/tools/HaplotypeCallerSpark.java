@@ -1,6 +1,7 @@
 package org.broadinstitute.hellbender.tools;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Iterables;
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.samtools.reference.ReferenceSequence;
@@ -9,6 +10,7 @@ import htsjdk.variant.variantcontext.VariantContext;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.apache.spark.api.java.function.FlatMapFunction;
+import org.apache.spark.api.java.function.Function0;
 import org.apache.spark.broadcast.Broadcast;
 import org.broadinstitute.barclay.argparser.*;
 import org.broadinstitute.barclay.argparser.Advanced;
@@ -21,8 +23,13 @@ import org.broadinstitute.hellbender.cmdline.programgroups.ShortVariantDiscovery
 import org.broadinstitute.hellbender.engine.*;
 import org.broadinstitute.hellbender.engine.datasources.ReferenceMultiSource;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
+import org.broadinstitute.hellbender.engine.spark.BamIndexReadCountEstimator;
 import org.broadinstitute.hellbender.engine.spark.GATKSparkTool;
+import org.broadinstitute.hellbender.engine.spark.ShardBalancer;
 import org.broadinstitute.hellbender.engine.spark.SparkSharder;
+import org.broadinstitute.hellbender.engine.spark.SplitAlignedSharder;
+import org.broadinstitute.hellbender.engine.spark.TwoBitReferenceCache;
+import org.broadinstitute.hellbender.engine.spark.datasources.ReferenceTwoBitSource;
 import org.broadinstitute.hellbender.engine.spark.datasources.VariantsSparkSink;
 import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
@@ -36,9 +43,12 @@ import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.downsampling.PositionalDownsampler;
 import org.broadinstitute.hellbender.utils.downsampling.ReadsDownsampler;
+import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.reference.ReferenceBases;
 import org.broadinstitute.hellbender.utils.spark.SparkUtils;
+import org.broadinstitute.hellbender.utils.variant.writers.HomRefRun;
 import scala.Tuple2;
 
 import java.io.IOException;
@@ -115,6 +125,14 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
         @Argument(fullName = AssemblyRegionWalker.PROPAGATION_LONG_NAME, doc="Upper limit on how many bases away probability mass can be moved around when calculating the boundaries between active and inactive assembly regions", optional = true)
         public int maxProbPropagationDistance = HaplotypeCaller.DEFAULT_MAX_PROB_PROPAGATION_DISTANCE;
 
+        @Advanced
+        @Argument(fullName = "load-aware-sharding", doc = "Size read shards by the number of reads in them, estimated from the BAM index, rather than by their length in bases. Shards over regions of very high coverage are split, and shards over regions of low coverage are merged.", optional = true)
+        public boolean loadAwareSharding = false;
+
+        @Advanced
+        @Argument(fullName = "split-aligned-sharding", doc = "Make read shards in the partitions the reads are loaded in, without sorting or shuffling the reads. Reads in the padding of shards at the edges of a partition are queried from the BAM, and the .2bit reference is copied to every node rather than broadcast. Requires a coordinate sorted, indexed BAM that every executor can read.", optional = true)
+        public boolean splitAlignedSharding = false;
+
     }
 
     @ArgumentCollection
@@ -140,7 +158,59 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
         logger.info("Use the non-spark HaplotypeCaller if you care about the results. ");
         logger.info("********************************************************************************");
         final List<SimpleInterval> intervals = hasIntervals() ? getIntervals() : IntervalUtils.getAllIntervalsForReference(getHeaderForReads().getSequenceDictionary());
-        callVariantsWithHaplotypeCallerAndWriteOutput(ctx, getReads(), getHeaderForReads(), getReference(), intervals, hcArgs, shardingArgs, numReducers, output);
+        final ShardBalancer.CostEstimator shardCostEstimator = shardingArgs.loadAwareSharding ?
+                BamIndexReadCountEstimator.forBam(getReadSourceName(), getHeaderForReads().getSequenceDictionary()) : null;
+        if (shardingArgs.splitAlignedSharding && canUseSplitAlignedSharding()) {
+            callVariantsWithSplitAlignedShardsAndWriteOutput(ctx, intervals, shardCostEstimator);
+        } else {
+            callVariantsWithHaplotypeCallerAndWriteOutput(ctx, getReads(), getHeaderForReads(), getReference(), intervals, hcArgs, shardingArgs, shardCostEstimator, numReducers, output);
+        }
+    }
+
+    /**
+     * @return true if the reads are a coordinate sorted BAM with an index that can be queried from the executors, and
+     * the reference is a .2bit file
+     */
+    private boolean canUseSplitAlignedSharding() {
+        final String readSource = getReadSourceName();
+        final String reason;
+        if (!IOUtils.isBamFileName(readSource) || BucketUtils.isHadoopUrl(readSource)) {
+            reason = "the reads are not a BAM on a local or cloud filesystem";
+        } else if (getHeaderForReads().getSortOrder() != SAMFileHeader.SortOrder.coordinate) {
+            reason = "the reads are not coordinate sorted";
+        } else if (!ReferenceTwoBitSource.isTwoBit(referenceArguments.getReferenceFileName())) {
+            reason = "the reference is not a .2bit file";
+        } else {
+            try (final ReadsDataSource readsDataSource = new ReadsDataSource(IOUtils.getPath(readSource))) {
+                reason = readsDataSource.indicesAvailable() ? null : "the reads are not indexed";
+            }
+        }
+        if (reason != null) {
+            logger.warn("Not using split-aligned sharding, since " + reason);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Call variants from shards made in the partitions the reads are loaded in (see {@link SplitAlignedSharder}), with
+     * a node-local copy of the reference, and write out a VCF file.
+     */
+    private void callVariantsWithSplitAlignedShardsAndWriteOutput(final JavaSparkContext ctx, final List<SimpleInterval> intervals,
+                                                                  final ShardBalancer.CostEstimator shardCostEstimator) {
+        final SAMFileHeader header = getHeaderForReads();
+        final ReferenceMultiSource reference = getReference();
+        validateArguments(hcArgs, reference);
+
+        final JavaRDD<GATKRead> reads = getReads();
+        final List<ShardBoundary> shardBoundaries = getShardBoundaries(header, intervals, shardingArgs.readShardSize, shardingArgs.readShardPadding, shardCostEstimator);
+        final int maxReadLength = reads.map(r -> r.getEnd() - r.getStart() + 1).reduce(Math::max);
+        final JavaRDD<Shard<GATKRead>> readShards = SplitAlignedSharder.shard(ctx, reads, getReadSourceName(), header.getSequenceDictionary(),
+                shardBoundaries, maxReadLength, makeReadFilter(), readArguments.getReadValidationStringency(), hasIntervals() ? getIntervals() : null);
+
+        final Function0<ReferenceMultiSource> referenceSupplier = TwoBitReferenceCache.distribute(ctx, referenceArguments.getReferenceFileName());
+        final JavaRDD<VariantContext> variants = callVariantsFromShards(ctx, readShards, header, referenceSupplier, hcArgs, shardingArgs);
+        writeVariants(ctx, variants, header, reference, hcArgs, output);
     }
 
     @Override
@@ -173,13 +243,43 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
             final ShardingArgumentCollection shardingArgs,
             final int numReducers,
             final String output) {
+        callVariantsWithHaplotypeCallerAndWriteOutput(ctx, reads, header, reference, intervals, hcArgs, shardingArgs, null, numReducers, output);
+    }
+
+    /**
+     * As {@link #callVariantsWithHaplotypeCallerAndWriteOutput(JavaSparkContext, JavaRDD, SAMFileHeader, ReferenceMultiSource, List, HaplotypeCallerArgumentCollection, ShardingArgumentCollection, int, String)},
+     * but sizing shards by their estimated cost.
+     *
+     * @param shardCostEstimator estimates the cost of each shard, or null to make all shards the same size
+     */
+    public static void callVariantsWithHaplotypeCallerAndWriteOutput(
+            final JavaSparkContext ctx,
+            final JavaRDD<GATKRead> reads,
+            final SAMFileHeader header,
+            final ReferenceMultiSource reference,
+            final List<SimpleInterval> intervals,
+            final HaplotypeCallerArgumentCollection hcArgs,
+            final ShardingArgumentCollection shardingArgs,
+            final ShardBalancer.CostEstimator shardCostEstimator,
+            final int numReducers,
+            final String output) {
         // Reads must be coordinate sorted to use the overlaps partitioner
         final SAMFileHeader readsHeader = header.clone();
         readsHeader.setSortOrder(SAMFileHeader.SortOrder.coordinate);
         final JavaRDD<GATKRead> coordinateSortedReads = SparkUtils.coordinateSortReads(reads, readsHeader, numReducers);
 
+        final JavaRDD<VariantContext> variants = callVariantsWithHaplotypeCaller(ctx, coordinateSortedReads, readsHeader, reference, intervals, hcArgs, shardingArgs, shardCostEstimator);
+        writeVariants(ctx, variants, readsHeader, reference, hcArgs, output);
+    }
+
+    private static void writeVariants(
+            final JavaSparkContext ctx,
+            final JavaRDD<VariantContext> variants,
+            final SAMFileHeader readsHeader,
+            final ReferenceMultiSource reference,
+            final HaplotypeCallerArgumentCollection hcArgs,
+            final String output) {
         final HaplotypeCallerEngine hcEngine = new HaplotypeCallerEngine(hcArgs, false, false, readsHeader, new ReferenceMultiSourceAdapter(reference));
-        final JavaRDD<VariantContext> variants = callVariantsWithHaplotypeCaller(ctx, coordinateSortedReads, readsHeader, reference, intervals, hcArgs, shardingArgs);
         variants.cache(); // without caching, computations are run twice as a side effect of finding partition boundaries for sorting
         try {
             VariantsSparkSink.writeVariants(ctx, output, variants, hcEngine.makeVCFHeader(readsHeader.getSequenceDictionary(), new HashSet<>()),
@@ -211,30 +311,68 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
             final List<SimpleInterval> intervals,
             final HaplotypeCallerArgumentCollection hcArgs,
             final ShardingArgumentCollection shardingArgs) {
+        return callVariantsWithHaplotypeCaller(ctx, reads, header, reference, intervals, hcArgs, shardingArgs, null);
+    }
+
+    /**
+     * As {@link #callVariantsWithHaplotypeCaller(JavaSparkContext, JavaRDD, SAMFileHeader, ReferenceMultiSource, List, HaplotypeCallerArgumentCollection, ShardingArgumentCollection)},
+     * but sizing shards by their estimated cost.
+     *
+     * @param shardCostEstimator estimates the cost of each shard, or null to make all shards the same size
+     */
+    public static JavaRDD<VariantContext> callVariantsWithHaplotypeCaller(
+            final JavaSparkContext ctx,
+            final JavaRDD<GATKRead> reads,
+            final SAMFileHeader header,
+            final ReferenceMultiSource reference,
+            final List<SimpleInterval> intervals,
+            final HaplotypeCallerArgumentCollection hcArgs,
+            final ShardingArgumentCollection shardingArgs,
+            final ShardBalancer.CostEstimator shardCostEstimator) {
+        validateArguments(hcArgs, reference);
+
+        final Broadcast<ReferenceMultiSource> referenceBroadcast = ctx.broadcast(reference);
+
+        final List<ShardBoundary> shardBoundaries = getShardBoundaries(header, intervals, shardingArgs.readShardSize, shardingArgs.readShardPadding, shardCostEstimator);
+
+        final int maxReadLength = reads.map(r -> r.getEnd() - r.getStart() + 1).reduce(Math::max);
+
+        final JavaRDD<Shard<GATKRead>> readShards = SparkSharder.shard(ctx, reads, GATKRead.class, header.getSequenceDictionary(), shardBoundaries, maxReadLength);
+
+        return callVariantsFromShards(ctx, readShards, header, () -> referenceBroadcast.value(), hcArgs, shardingArgs);
+    }
+
+    private static void validateArguments(final HaplotypeCallerArgumentCollection hcArgs, final ReferenceMultiSource reference) {
         Utils.validateArg(hcArgs.dbsnp.dbsnp == null, "HaplotypeCallerSpark does not yet support -D or --dbsnp arguments" );
         Utils.validateArg(hcArgs.comps.isEmpty(), "HaplotypeCallerSpark does not yet support -comp or --comp arguments" );
         Utils.validateArg(hcArgs.bamOutputPath == null, "HaplotypeCallerSpark does not yet support -bamout or --bamOutput");
         if ( !reference.isCompatibleWithSparkBroadcast()){
             throw new UserException.Require2BitReferenceForBroadcast();
         }
+    }
 
-        final Broadcast<ReferenceMultiSource> referenceBroadcast = ctx.broadcast(reference);
+    /**
+     * Call variants from shards of reads
+     *
+     * @param reference gets the reference on an executor
+     */
+    private static JavaRDD<VariantContext> callVariantsFromShards(
+            final JavaSparkContext ctx,
+            final JavaRDD<Shard<GATKRead>> readShards,
+            final SAMFileHeader header,
+            final Function0<ReferenceMultiSource> reference,
+            final HaplotypeCallerArgumentCollection hcArgs,
+            final ShardingArgumentCollection shardingArgs) {
         final Broadcast<HaplotypeCallerArgumentCollection> hcArgsBroadcast = ctx.broadcast(hcArgs);
 
         final VariantAnnotatorEngine variantAnnotatorEngine = VariantAnnotatorEngine.ofSelectedMinusExcluded(hcArgs.variantAnnotationArgumentCollection, hcArgs.dbsnp.dbsnp, hcArgs.comps);
         final Broadcast<VariantAnnotatorEngine> annotatorEngineBroadcast = ctx.broadcast(variantAnnotatorEngine);
 
-        final List<ShardBoundary> shardBoundaries = getShardBoundaries(header, intervals, shardingArgs.readShardSize, shardingArgs.readShardPadding);
-
-        final int maxReadLength = reads.map(r -> r.getEnd() - r.getStart() + 1).reduce(Math::max);
-
-        final JavaRDD<Shard<GATKRead>> readShards = SparkSharder.shard(ctx, reads, GATKRead.class, header.getSequenceDictionary(), shardBoundaries, maxReadLength);
-
         final JavaRDD<Tuple2<AssemblyRegion, SimpleInterval>> assemblyRegions = readShards
-                .mapPartitions(shardsToAssemblyRegions(referenceBroadcast,
+                .mapPartitions(shardsToAssemblyRegions(reference,
                                                        hcArgsBroadcast, shardingArgs, header, annotatorEngineBroadcast));
 
-        return assemblyRegions.mapPartitions(callVariantsFromAssemblyRegions(header, referenceBroadcast, hcArgsBroadcast, annotatorEngineBroadcast));
+        return assemblyRegions.mapPartitions(callVariantsFromAssemblyRegions(header, reference, hcArgsBroadcast, annotatorEngineBroadcast));
     }
 
     /**
@@ -244,12 +382,12 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
      */
     private static FlatMapFunction<Iterator<Tuple2<AssemblyRegion, SimpleInterval>>, VariantContext> callVariantsFromAssemblyRegions(
             final SAMFileHeader header,
-            final Broadcast<ReferenceMultiSource> referenceBroadcast,
+            final Function0<ReferenceMultiSource> reference,
             final Broadcast<HaplotypeCallerArgumentCollection> hcArgsBroadcast,
             final Broadcast<VariantAnnotatorEngine> annotatorEngineBroadcast) {
         return regionAndIntervals -> {
             //HaplotypeCallerEngine isn't serializable but is expensive to instantiate, so construct and reuse one for every partition
-            final ReferenceMultiSource referenceMultiSource = referenceBroadcast.value();
+            final ReferenceMultiSource referenceMultiSource = reference.call();
             final ReferenceMultiSourceAdapter referenceSource = new ReferenceMultiSourceAdapter(referenceMultiSource);
             final HaplotypeCallerEngine hcEngine = new HaplotypeCallerEngine(hcArgsBroadcast.value(), false, false, header, referenceSource, annotatorEngineBroadcast.getValue());
             return iteratorToStream(regionAndIntervals).flatMap(regionToVariants(hcEngine)).iterator();
@@ -265,17 +403,23 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
         return regionAndInterval -> {
             final List<VariantContext> variantContexts = hcEngine.callRegion(regionAndInterval._1(), new FeatureContext());
             final SimpleInterval shardBoundary = regionAndInterval._2();
+            // runs of hom-ref sites can cross the shard boundary, so they are split into their sites before filtering
             return variantContexts.stream()
+                .flatMap(vc -> vc instanceof HomRefRun ? ((HomRefRun) vc).toSiteVariantContexts().stream() : Stream.of(vc))
                 .filter(vc -> shardBoundary.contains(new SimpleInterval(vc.getContig(), vc.getStart(), vc.getStart())));
         };
     }
 
     /**
      * @return a list of {@link ShardBoundary}
-     * based on the -L intervals
+     * based on the -L intervals, balanced by estimated cost if shardCostEstimator is not null
      */
     private static List<ShardBoundary> getShardBoundaries(final SAMFileHeader
-        header, final List<SimpleInterval> intervals, final int readShardSize, final int readShardPadding) {
+        header, final List<SimpleInterval> intervals, final int readShardSize, final int readShardPadding,
+        final ShardBalancer.CostEstimator shardCostEstimator) {
+        if (shardCostEstimator != null) {
+            return ShardBalancer.divideIntervalsIntoShards(intervals, readShardSize, readShardPadding, header.getSequenceDictionary(), shardCostEstimator);
+        }
         return intervals.stream()
             .flatMap(interval -> Shard.divideIntervalIntoShards(interval, readShardSize, readShardPadding, header.getSequenceDictionary()).stream())
             .collect(Collectors.toList());
@@ -286,21 +430,28 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
      * interval it was generated in
      */
     private static FlatMapFunction<Iterator<Shard<GATKRead>>, Tuple2<AssemblyRegion, SimpleInterval>> shardsToAssemblyRegions(
-            final Broadcast<ReferenceMultiSource> reference,
+            final Function0<ReferenceMultiSource> reference,
             final Broadcast<HaplotypeCallerArgumentCollection> hcArgsBroadcast,
             final ShardingArgumentCollection assemblyArgs,
             final SAMFileHeader header,
             final Broadcast<VariantAnnotatorEngine> annotatorEngineBroadcast) {
         return shards -> {
-            final ReferenceMultiSource referenceMultiSource = reference.value();
+            final ReferenceMultiSource referenceMultiSource = reference.call();
             final ReferenceMultiSourceAdapter referenceSource = new ReferenceMultiSourceAdapter(referenceMultiSource);
             final HaplotypeCallerEngine hcEngine = new HaplotypeCallerEngine(hcArgsBroadcast.value(), false, false, header, referenceSource, annotatorEngineBroadcast.getValue());
 
             final ReadsDownsampler readsDownsampler = assemblyArgs.maxReadsPerAlignmentStart > 0 ?
                 new PositionalDownsampler(assemblyArgs.maxReadsPerAlignmentStart, header) : null;
             return iteratorToStream(shards)
-                .map(shard -> new DownsampleableSparkReadShard(new ShardBoundary(shard.getInterval(), shard.getPaddedInterval()), shard, readsDownsampler))
-                .flatMap(shardToRegion(assemblyArgs, header, referenceSource, hcEngine)).iterator();
+                .flatMap(shard -> {
+                    final long startNanos = System.nanoTime();
+                    final Shard<GATKRead> downsampledShard = new DownsampleableSparkReadShard(new ShardBoundary(shard.getInterval(), shard.getPaddedInterval()), shard, readsDownsampler);
+                    final Iterator<? extends Tuple2<AssemblyRegion, SimpleInterval>> regions =
+                            shardToRegion(assemblyArgs, header, referenceSource, hcEngine).apply(downsampledShard).iterator();
+                    final Stream<? extends Tuple2<AssemblyRegion, SimpleInterval>> timedRegions =
+                            iteratorToStream(ShardBalancer.timeShard(shard.getInterval(), () -> Iterables.size(shard), startNanos, regions));
+                    return timedRegions;
+                }).iterator();
         };
     }
 
@@ -0,0 +1,80 @@
+package org.broadinstitute.hellbender.tools;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.barclay.argparser.Argument;
+import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
+import org.broadinstitute.barclay.help.DocumentedFeature;
+import org.broadinstitute.hellbender.cmdline.CommandLineProgram;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.engine.spark.KnownSitesCache;
+import org.broadinstitute.hellbender.utils.variant.KnownSitesImage;
+import picard.cmdline.programgroups.VariantManipulationProgramGroup;
+
+import java.util.List;
+
+/**
+ * Create a memory-mappable known sites image file for faster loading of known sites in Spark tools
+ *
+ * <p>The image holds the position and type (SNP or indel) of every site in the input variants files, in sorted
+ * primitive arrays indexed for overlap queries. Spark tools such as BaseRecalibratorSpark accept an image in place
+ * of the known sites VCF. Each executor then memory-maps the image, rather than parsing the VCF at the start of every
+ * job, and all executors on a host share a single copy of it in memory. The image must be copied to the same path on
+ * the local filesystem of every executor.</p>
+ *
+ * <h3>Input</h3>
+ *
+ * <ul>
+ *     <li>One or more variants files, such as dbSNP</li>
+ * </ul>
+ *
+ * <h4>Output</h4>
+ *
+ * <ul>
+ *     <li>Known sites image file</li>
+ * </ul>
+ *
+ * <h3>Usage example</h3>
+ *
+ * <pre>
+ * gatk KnownSitesImageCreator \
+ *     -V dbsnp.vcf.gz \
+ *     -O dbsnp.sites
+ * </pre>
+ *
+ */
+@DocumentedFeature
+@CommandLineProgramProperties(
+        summary = "Create a memory-mappable known sites image file for faster loading of known sites in Spark tools",
+        oneLineSummary = "Create a memory-mappable known sites image file for faster loading of known sites in Spark tools",
+        programGroup = VariantManipulationProgramGroup.class
+)
+public final class KnownSitesImageCreator extends CommandLineProgram {
+    private static final Logger logger = LogManager.getLogger(KnownSitesImageCreator.class);
+
+    @Argument(fullName = StandardArgumentDefinitions.VARIANT_LONG_NAME,
+            shortName = StandardArgumentDefinitions.VARIANT_SHORT_NAME,
+            doc = "Input variants file(s). The sites of all of them go into the image.")
+    private List<String> variantsFiles;
+
+    @Argument(fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME,
+            shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME,
+            doc = "Output known sites image file (ending in \"" + KnownSitesImage.FILE_EXTENSION + "\").")
+    private String imageOutputLoc = null;
+
+    @Override
+    protected String[] customCommandLineValidation() {
+        if (!KnownSitesImage.isImage(imageOutputLoc)) {
+            return new String[]{"The output file name must end in \"" + KnownSitesImage.FILE_EXTENSION + "\""};
+        }
+        return null;
+    }
+
+    @Override
+    protected Object doWork() {
+        final KnownSitesImage image = KnownSitesCache.getImage(variantsFiles);
+        image.write(imageOutputLoc);
+        logger.info("Wrote " + image.size() + " known sites to " + imageOutputLoc);
+        return null;
+    }
+}
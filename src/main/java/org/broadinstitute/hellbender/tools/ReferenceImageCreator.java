@@ -0,0 +1,73 @@
+package org.broadinstitute.hellbender.tools;
+
+import org.broadinstitute.barclay.argparser.Argument;
+import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
+import org.broadinstitute.barclay.help.DocumentedFeature;
+import org.broadinstitute.hellbender.cmdline.CommandLineProgram;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.engine.ReferenceMemoryMappedSource;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import picard.cmdline.programgroups.ReferenceProgramGroup;
+
+/**
+ * Create a memory-mappable reference image file for faster reference access in GATK walkers
+ *
+ * <p>The image holds the normalized (upper-cased, IUPAC codes converted to N, no line breaks) bases of every contig
+ * in the reference. When an image named after the reference FASTA with the extension ".refimg" is found next to the
+ * FASTA, and is newer than it, walkers memory-map the image instead of reading the FASTA. This avoids repeated reading
+ * and normalization of the FASTA, and lets all GATK processes on a host share a single copy of the reference
+ * in memory.</p>
+ *
+ * <h3>Input</h3>
+ *
+ * <ul>
+ *     <li>Reference FASTA file, with .fai and .dict files</li>
+ * </ul>
+ *
+ * <h4>Output</h4>
+ *
+ * <ul>
+ *     <li>Reference image file</li>
+ * </ul>
+ *
+ * <h3>Usage example</h3>
+ *
+ * <pre>
+ * gatk ReferenceImageCreator \
+ *     -I reference.fasta \
+ *     -O reference.fasta.refimg
+ * </pre>
+ *
+ */
+@DocumentedFeature
+@CommandLineProgramProperties(
+        summary = "Create a memory-mappable reference image file for faster reference access in GATK walkers",
+        oneLineSummary = "Create a memory-mappable reference image file for faster reference access in GATK walkers",
+        programGroup = ReferenceProgramGroup.class
+)
+public final class ReferenceImageCreator extends CommandLineProgram {
+
+    @Argument(fullName = StandardArgumentDefinitions.INPUT_LONG_NAME,
+            shortName = StandardArgumentDefinitions.INPUT_SHORT_NAME,
+            doc = "Input reference FASTA file location.")
+    private String referenceFastaLoc = null;
+
+    /**
+     * If not provided, the default image file path will be the same as the reference FASTA with the extension ".refimg",
+     * which is where walkers look for it.
+     */
+    @Argument(fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME,
+            shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME,
+            doc = "Output reference image file (ending in \"" + ReferenceMemoryMappedSource.IMAGE_EXTENSION + "\").",
+            optional = true)
+    private String referenceImageOutputLoc = null;
+
+    @Override
+    protected Object doWork() {
+        if (referenceImageOutputLoc == null) {
+            referenceImageOutputLoc = referenceFastaLoc + ReferenceMemoryMappedSource.IMAGE_EXTENSION;
+        }
+        ReferenceMemoryMappedSource.createImage(IOUtils.getPath(referenceFastaLoc), IOUtils.getPath(referenceImageOutputLoc));
+        return null;
+    }
+}
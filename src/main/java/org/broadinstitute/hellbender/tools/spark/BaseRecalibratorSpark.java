@@ -13,7 +13,9 @@ import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.engine.ReadContextData;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
+import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
 import org.broadinstitute.hellbender.engine.spark.AddContextDataToReadSpark;
+import org.broadinstitute.hellbender.engine.spark.BroadcastJoinReadsWithRefBases;
 import org.broadinstitute.hellbender.engine.spark.GATKSparkTool;
 import org.broadinstitute.hellbender.engine.spark.JoinStrategy;
 import org.broadinstitute.hellbender.engine.spark.datasources.VariantsSparkSource;
@@ -27,6 +29,7 @@ import org.broadinstitute.hellbender.utils.recalibration.BaseRecalibrationEngine
 import org.broadinstitute.hellbender.utils.recalibration.RecalUtils;
 import org.broadinstitute.hellbender.utils.recalibration.RecalibrationArgumentCollection;
 import org.broadinstitute.hellbender.utils.recalibration.RecalibrationReport;
+import org.broadinstitute.hellbender.utils.reference.ReferenceBases;
 import org.broadinstitute.hellbender.utils.variant.GATKVariant;
 import picard.cmdline.programgroups.ReadDataManipulationProgramGroup;
 
@@ -115,6 +118,11 @@ public class BaseRecalibratorSpark extends GATKSparkTool {
         return BaseRecalibrator.getStandardBQSRReadFilterList();
     }
 
+    /**
+     * Known sites may also be given as known sites images (see {@link org.broadinstitute.hellbender.tools.KnownSitesImageCreator}),
+     * which must be on the local filesystem of every executor. With the BROADCAST join strategy, each executor then
+     * memory-maps the image instead of parsing the known sites VCF.
+     */
     @Argument(doc = "the known variants", fullName = BaseRecalibrator.KNOWN_SITES_ARG_FULL_NAME, optional = false)
     private List<String> knownVariants;
 
@@ -148,15 +156,23 @@ public class BaseRecalibratorSpark extends GATKSparkTool {
         }
 
         JavaRDD<GATKRead> initialReads = getReads();
-        VariantsSparkSource variantsSparkSource = new VariantsSparkSource(ctx);
-        JavaRDD<GATKVariant> bqsrKnownVariants = variantsSparkSource.getParallelVariants(knownVariants, getIntervals());
-
-        // TODO: Look into broadcasting the reference to all of the workers. This would make AddContextDataToReadSpark
-        // TODO: and ApplyBQSRStub simpler (#855).
-        JavaPairRDD<GATKRead, ReadContextData> rddReadContext = AddContextDataToReadSpark.add(ctx, initialReads, getReference(), bqsrKnownVariants, knownVariants, joinStrategy, getHeaderForReads().getSequenceDictionary(), readShardSize, readShardPadding);
-
-        // TODO: broadcast the reads header?
-        final RecalibrationReport bqsrReport = BaseRecalibratorSparkFn.apply(rddReadContext, getHeaderForReads(), getReferenceSequenceDictionary(), bqsrArgs);
+        final RecalibrationReport bqsrReport;
+        if (joinStrategy == JoinStrategy.BROADCAST) {
+            // query the known sites of each read in the executors rather than joining the reads with them
+            final JavaRDD<GATKRead> mappedReads = initialReads.filter(read -> ReadFilterLibrary.MAPPED.test(read));
+            final JavaPairRDD<GATKRead, ReferenceBases> readsWithRefBases = BroadcastJoinReadsWithRefBases.addBases(getReference(), mappedReads);
+            bqsrReport = BaseRecalibratorSparkFn.apply(readsWithRefBases, knownVariants, getHeaderForReads(), getReferenceSequenceDictionary(), bqsrArgs);
+        } else {
+            VariantsSparkSource variantsSparkSource = new VariantsSparkSource(ctx);
+            JavaRDD<GATKVariant> bqsrKnownVariants = variantsSparkSource.getParallelVariants(knownVariants, getIntervals());
+
+            // TODO: Look into broadcasting the reference to all of the workers. This would make AddContextDataToReadSpark
+            // TODO: and ApplyBQSRStub simpler (#855).
+            JavaPairRDD<GATKRead, ReadContextData> rddReadContext = AddContextDataToReadSpark.add(ctx, initialReads, getReference(), bqsrKnownVariants, knownVariants, joinStrategy, getHeaderForReads().getSequenceDictionary(), readShardSize, readShardPadding);
+
+            // TODO: broadcast the reads header?
+            bqsrReport = BaseRecalibratorSparkFn.apply(rddReadContext, getHeaderForReads(), getReferenceSequenceDictionary(), bqsrArgs);
+        }
 
         try ( final PrintStream reportStream = new PrintStream(BucketUtils.createFile(outputTablesPath)) ) {
             RecalUtils.outputRecalibrationReport(reportStream, bqsrArgs, bqsrReport.getQuantizationInfo(), bqsrReport.getRecalibrationTables(), bqsrReport.getCovariates());
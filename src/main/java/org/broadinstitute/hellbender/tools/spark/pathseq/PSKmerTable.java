@@ -0,0 +1,204 @@
+package org.broadinstitute.hellbender.tools.spark.pathseq;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.spark.sv.utils.SVKmerShort;
+import org.broadinstitute.hellbender.tools.spark.sv.utils.SVUtils;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+
+/**
+ * Kmer set stored as a flat, open-addressing table of longs in a file that is queried through a read-only memory
+ * mapping, instead of being deserialized onto the heap. Opening a table costs next to nothing, and every JVM on a node
+ * that opens the same local file shares a single copy of it in the page cache.
+ *
+ * <p>File layout (little-endian): a {@value #HEADER_BYTES}-byte header with a magic number, the format version, the
+ * kmer size, the kmer mask, the number of kmers and the number of slots, followed by the slots. The number of slots is
+ * a power of 2 and collisions are resolved by linear probing. Like LongHopscotchSet, a slot holds its (non-negative)
+ * masked kmer with the most significant bit set, so that empty slots are zero and a new table starts as a sparse file.</p>
+ */
+public final class PSKmerTable extends PSKmerCollection {
+
+    static final long MAGIC = 0x5053_4B4D_5441_4231L; // "PSKMTAB1"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    static final double MAX_LOAD_FACTOR = 0.75;
+
+    // a MappedByteBuffer can't be larger than 2GB, so the slots are mapped in chunks of 1GB
+    private static final int DEFAULT_LOG2_CHUNK_SLOTS = 27;
+
+    private final LongBuffer[] chunks;
+    private final int log2ChunkSlots;
+    private final long slotMask;
+    private final long numKmers;
+    private final int kmerSize;
+    private final SVKmerShort kmerMask;
+
+    /**
+     * Maps the table in a local file
+     */
+    public PSKmerTable(final String path) {
+        this(path, DEFAULT_LOG2_CHUNK_SLOTS);
+    }
+
+    @VisibleForTesting
+    PSKmerTable(final String path, final int log2ChunkSlots) {
+        final Path filePath = Paths.get(path);
+        try (final FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new UserException.MalformedFile(filePath.toFile(), "Not a PathSeq kmer table: the file is too short");
+            }
+            final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getLong(0) != MAGIC) {
+                throw new UserException.MalformedFile(filePath.toFile(), "Not a PathSeq kmer table: bad magic number");
+            }
+            if (header.getInt(8) != VERSION) {
+                throw new UserException.MalformedFile(filePath.toFile(), "Unsupported PathSeq kmer table version " + header.getInt(8));
+            }
+            kmerSize = header.getInt(12);
+            kmerMask = new SVKmerShort(header.getLong(16));
+            numKmers = header.getLong(24);
+            final long numSlots = header.getLong(32);
+            if (Long.bitCount(numSlots) != 1 || channel.size() != HEADER_BYTES + numSlots * Long.BYTES) {
+                throw new UserException.MalformedFile(filePath.toFile(), "PathSeq kmer table is truncated or corrupt");
+            }
+            this.log2ChunkSlots = log2ChunkSlots;
+            this.slotMask = numSlots - 1;
+            this.chunks = mapSlots(channel, FileChannel.MapMode.READ_ONLY, numSlots, log2ChunkSlots);
+        } catch (final IOException e) {
+            throw new UserException.CouldNotReadInputFile(filePath, e);
+        }
+    }
+
+    /**
+     * Writes the distinct kmers of a collection as a table in a local file
+     *
+     * @param maskedKmers kmers that have been run through PSKmerCollection's canonicalizeAndMask()
+     * @param numKmers upper bound on the number of distinct kmers (e.g. the total number of kmers) used to size the table
+     * @return the number of distinct kmers written
+     */
+    public static long write(final String path, final Collection<long[]> maskedKmers, final long numKmers,
+                             final int kmerSize, final SVKmerShort kmerMask) {
+        return write(path, maskedKmers, numKmers, kmerSize, kmerMask, DEFAULT_LOG2_CHUNK_SLOTS);
+    }
+
+    @VisibleForTesting
+    static long write(final String path, final Collection<long[]> maskedKmers, final long numKmers,
+                      final int kmerSize, final SVKmerShort kmerMask, final int log2ChunkSlots) {
+        Utils.nonNull(maskedKmers);
+        Utils.nonNull(kmerMask);
+        Utils.validateArg(numKmers >= 0, "Number of kmers must be non-negative");
+        final long numSlots = Long.highestOneBit(Math.max(1, (long) (numKmers / MAX_LOAD_FACTOR))) << 1;
+        final long slotMask = numSlots - 1;
+
+        final Path filePath = Paths.get(path);
+        try (final FileChannel channel = FileChannel.open(filePath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // extend the file to its full size by writing its last byte, so that the slots start zeroed (i.e. empty)
+            channel.write(ByteBuffer.wrap(new byte[1]), HEADER_BYTES + numSlots * Long.BYTES - 1);
+            final LongBuffer[] chunks = mapSlots(channel, FileChannel.MapMode.READ_WRITE, numSlots, log2ChunkSlots);
+
+            long numDistinctKmers = 0;
+            for (final long[] kmers : maskedKmers) {
+                for (final long kmer : kmers) {
+                    Utils.validateArg(kmer >= 0, "Tried to add negative kmer to PSKmerTable");
+                    final long entry = kmer | Long.MIN_VALUE;
+                    long slot = SVUtils.fnvLong64(kmer) & slotMask;
+                    long slotValue;
+                    while ((slotValue = getSlot(chunks, log2ChunkSlots, slot)) != 0 && slotValue != entry) {
+                        slot = (slot + 1) & slotMask;
+                    }
+                    if (slotValue == 0) {
+                        Utils.validate(++numDistinctKmers <= numKmers, "There are more distinct kmers than the table was sized for");
+                        setSlot(chunks, log2ChunkSlots, slot, entry);
+                    }
+                }
+            }
+
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putLong(0, MAGIC);
+            header.putInt(8, VERSION);
+            header.putInt(12, kmerSize);
+            header.putLong(16, kmerMask.getLong());
+            header.putLong(24, numDistinctKmers);
+            header.putLong(32, numSlots);
+            channel.write(header, 0);
+            channel.force(false);
+            return numDistinctKmers;
+        } catch (final IOException e) {
+            throw new UserException.CouldNotCreateOutputFile(path, "Could not write the PathSeq kmer table", e);
+        }
+    }
+
+    /**
+     * Input should not be canonicalized/masked
+     */
+    @Override
+    public boolean contains(final SVKmerShort rawKmer) {
+        return containsMasked(canonicalizeAndMask(rawKmer, kmerSize, kmerMask));
+    }
+
+    /**
+     * Input should have been run through PSKmerCollection's canonicalizeAndMask()
+     */
+    public boolean containsMasked(final long maskedKmer) {
+        final long entry = maskedKmer | Long.MIN_VALUE;
+        long slot = SVUtils.fnvLong64(maskedKmer) & slotMask;
+        long slotValue;
+        while ((slotValue = getSlot(chunks, log2ChunkSlots, slot)) != 0) {
+            if (slotValue == entry) return true;
+            slot = (slot + 1) & slotMask;
+        }
+        return false;
+    }
+
+    @Override
+    public int kmerSize() {
+        return kmerSize;
+    }
+
+    @Override
+    public SVKmerShort getMask() {
+        return kmerMask;
+    }
+
+    @Override
+    public double getFalsePositiveProbability() {
+        return 0;
+    }
+
+    public long setSize() {
+        return numKmers;
+    }
+
+    private static LongBuffer[] mapSlots(final FileChannel channel, final FileChannel.MapMode mode, final long numSlots,
+                                         final int log2ChunkSlots) throws IOException {
+        final long chunkSlots = 1L << log2ChunkSlots;
+        final LongBuffer[] chunks = new LongBuffer[(int) ((numSlots + chunkSlots - 1) >>> log2ChunkSlots)];
+        for (int i = 0; i < chunks.length; i++) {
+            final long firstSlot = i * chunkSlots;
+            final long slotsInChunk = Math.min(chunkSlots, numSlots - firstSlot);
+            chunks[i] = channel.map(mode, HEADER_BYTES + firstSlot * Long.BYTES, slotsInChunk * Long.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        }
+        return chunks;
+    }
+
+    // absolute gets and puts don't touch the buffer position, so reads are safe from many threads at once
+    private static long getSlot(final LongBuffer[] chunks, final int log2ChunkSlots, final long slot) {
+        return chunks[(int) (slot >>> log2ChunkSlots)].get((int) (slot & ((1L << log2ChunkSlots) - 1)));
+    }
+
+    private static void setSlot(final LongBuffer[] chunks, final int log2ChunkSlots, final long slot, final long value) {
+        chunks[(int) (slot >>> log2ChunkSlots)].put((int) (slot & ((1L << log2ChunkSlots) - 1)), value);
+    }
+}
@@ -3,6 +3,7 @@ package org.broadinstitute.hellbender.tools.spark.pathseq;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
+import com.google.common.annotations.VisibleForTesting;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.broadinstitute.hellbender.engine.datasources.ReferenceFileSource;
@@ -10,12 +11,20 @@ import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.spark.sv.utils.SVKmerShort;
 import org.broadinstitute.hellbender.tools.spark.sv.utils.SVKmerizer;
+import org.broadinstitute.hellbender.tools.spark.utils.ConcurrentLongHopscotchSet;
 import org.broadinstitute.hellbender.tools.spark.utils.LargeLongHopscotchSet;
 import org.broadinstitute.hellbender.tools.spark.utils.LongBloomFilter;
+import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
 import org.broadinstitute.hellbender.utils.reference.ReferenceBases;
 
+import java.io.DataInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map;
@@ -27,6 +36,7 @@ public class PSKmerUtils {
 
     public static final String HOPSCOTCH_SET_EXTENSION = ".hss";
     public static final String BLOOM_FILTER_EXTENSION = ".bfi";
+    public static final String KMER_TABLE_EXTENSION = ".kmt";
     private static final Logger logger = LogManager.getLogger(PSKmerUtils.class);
 
     /**
@@ -76,16 +86,14 @@ public class PSKmerUtils {
     }
 
     /**
-     * Converts a Collection of Lists of Longs's into a Hopscotch set
+     * Converts a Collection of Lists of Longs's into a Hopscotch set, filling its partitions in parallel
      */
     protected static LargeLongHopscotchSet longArrayCollectionToSet(final Collection<long[]> longs, final long numLongs) {
-        final LargeLongHopscotchSet kmerHopscotchSet = new LargeLongHopscotchSet(numLongs);
+        final ConcurrentLongHopscotchSet kmerHopscotchSet = new ConcurrentLongHopscotchSet(numLongs);
         for (final long[] array : longs) {
-            for (final long val : array) {
-                kmerHopscotchSet.add(val);
-            }
+            kmerHopscotchSet.addAll(array);
         }
-        return kmerHopscotchSet;
+        return kmerHopscotchSet.toLargeLongHopscotchSet();
     }
 
     /**
@@ -127,7 +135,77 @@ public class PSKmerUtils {
         writeKryoObject(bloomFilter, filePath);
     }
 
+    /**
+     * Writes the kmers as a memory-mappable table (see {@link PSKmerTable}). Remote tables are written locally first.
+     */
+    public static void writeKmerTable(final String uri, final Collection<long[]> maskedKmers, final long numLongs,
+                                      final int kmerSize, final SVKmerShort kmerMask) {
+        String filePath = uri;
+        if (!uri.toLowerCase().endsWith(KMER_TABLE_EXTENSION.toLowerCase())) {
+            filePath = filePath + KMER_TABLE_EXTENSION;
+        }
+        final String localPath = BucketUtils.isRemoteStorageUrl(filePath) ? BucketUtils.getTempFilePath("kmers", KMER_TABLE_EXTENSION) : filePath;
+        final long numKmers = PSKmerTable.write(localPath, maskedKmers, numLongs, kmerSize, kmerMask);
+        logger.info("Wrote " + numKmers + " distinct kmers");
+        if (!localPath.equals(filePath)) {
+            try {
+                BucketUtils.copyFile(localPath, filePath);
+            } catch (final IOException e) {
+                throw new UserException.CouldNotCreateOutputFile(filePath, "Could not copy the kmer table", e);
+            }
+        }
+    }
+
+    /**
+     * Memory-maps a kmer table. A remote table is first copied to the local temporary directory, where any other JVM on
+     * the same machine will find and map the same copy.
+     */
+    public static PSKmerTable readKmerTable(final String uri) {
+        if (!BucketUtils.isRemoteStorageUrl(uri)) {
+            return new PSKmerTable(uri);
+        }
+        try {
+            return new PSKmerTable(copyKmerTableToDirectory(uri, Paths.get(System.getProperty("java.io.tmpdir"))).toString());
+        } catch (final IOException e) {
+            throw new UserException.CouldNotReadInputFile("Could not copy kmer table " + uri + " to local disk", e);
+        }
+    }
+
+    /**
+     * Copies a kmer table into a local directory, unless a copy is already there. The copy is named after a checksum of
+     * the full URI and of the table header (kmer size, mask, number of kmers and number of slots), so that different
+     * tables with the same file name, or a table rebuilt with a different number of kmers, never share a copy. The copy
+     * is deleted when the JVM that made it exits.
+     *
+     * @return the path of the local copy
+     */
+    @VisibleForTesting
+    static java.nio.file.Path copyKmerTableToDirectory(final String uri, final java.nio.file.Path directory) throws IOException {
+        final byte[] header = new byte[PSKmerTable.HEADER_BYTES];
+        try (final DataInputStream in = new DataInputStream(BucketUtils.openFile(uri))) {
+            in.readFully(header);
+        }
+        final String fileName = uri.substring(uri.lastIndexOf('/') + 1);
+        final String checksum = Utils.calcMD5(Utils.concat(uri.getBytes(StandardCharsets.UTF_8), header));
+        final java.nio.file.Path localPath = directory.resolve("pathseq-" + checksum + "-" + fileName);
+        if (!Files.exists(localPath)) {
+            // copy under a unique name, then move into place atomically so that concurrent readers only ever see complete tables
+            final java.nio.file.Path partialPath = Files.createTempFile(directory, fileName, ".partial");
+            BucketUtils.copyFile(uri, partialPath.toString());
+            try {
+                Files.move(partialPath, localPath, StandardCopyOption.ATOMIC_MOVE);
+                localPath.toFile().deleteOnExit();
+            } catch (final FileAlreadyExistsException e) {
+                Files.deleteIfExists(partialPath);
+            }
+        }
+        return localPath;
+    }
+
     public static PSKmerCollection readKmerFilter(final String uri) {
+        if (uri.endsWith(KMER_TABLE_EXTENSION)) {
+            return readKmerTable(uri);
+        }
         final Input input = new Input(BucketUtils.openFile(uri));
         final Kryo kryo = new Kryo();
         if (uri.endsWith(HOPSCOTCH_SET_EXTENSION)) {
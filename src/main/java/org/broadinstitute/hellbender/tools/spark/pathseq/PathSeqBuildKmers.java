@@ -7,6 +7,7 @@ import org.broadinstitute.hellbender.cmdline.CommandLineProgram;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.cmdline.programgroups.MetagenomicsProgramGroup;
 import org.broadinstitute.hellbender.engine.datasources.ReferenceFileSource;
+import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.spark.sv.utils.SVKmerShort;
 import org.broadinstitute.hellbender.tools.spark.utils.LargeLongHopscotchSet;
 import org.broadinstitute.hellbender.tools.spark.utils.LongBloomFilter;
@@ -62,6 +63,16 @@ import java.util.Collection;
  *   --kmer-size 31
  * </pre>
  *
+ * <h4>Builds a memory-mapped hash table, which the PathSeq tools query in place instead of loading it into memory.</h4>
+ * <pre>
+ * gatk PathSeqBuildKmers  \
+ *   --reference host_reference.fasta \
+ *   --output host_reference.kmt \
+ *   --kmer-table \
+ *   --kmer-mask 16 \
+ *   --kmer-size 31
+ * </pre>
+ *
  * <h3>Notes</h3>
  *
  * <p>For most references, the Java VM will run out of memory with the default settings. The Java heap size limit should
@@ -86,10 +97,13 @@ public final class PathSeqBuildKmers extends CommandLineProgram {
     public static final String KMER_MASK_SHORT_NAME = "M";
     public static final String KMER_SPACING_LONG_NAME = "kmer-spacing";
     public static final String KMER_SPACING_SHORT_NAME = "SP";
+    public static final String KMER_TABLE_LONG_NAME = "kmer-table";
+    public static final String KMER_TABLE_SHORT_NAME = "KT";
 
     @Argument(doc = "File for k-mer set output. Extension will be automatically added if not present ("
-            + PSKmerUtils.HOPSCOTCH_SET_EXTENSION + " for hash set or "
-            + PSKmerUtils.BLOOM_FILTER_EXTENSION + " for Bloom filter)",
+            + PSKmerUtils.HOPSCOTCH_SET_EXTENSION + " for hash set, "
+            + PSKmerUtils.BLOOM_FILTER_EXTENSION + " for Bloom filter or "
+            + PSKmerUtils.KMER_TABLE_EXTENSION + " for memory-mapped table)",
             shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME,
             fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME)
     public String outputFile;
@@ -147,11 +161,27 @@ public final class PathSeqBuildKmers extends CommandLineProgram {
     public int kmerSpacing = 1;
 
     /**
-     * Get the list of distinct kmers in the reference, and write them to a file as a HopScotch set or Bloom filter.
+     * Instead of a hash set that has to be loaded onto the heap, writes the k-mers as a flat hash table that the PathSeq
+     * tools memory-map and query in place. All the executors on a node then share one copy of it in the page cache,
+     * and loading it takes no time. The table is built directly in the output file, so this also needs much less memory.
+     */
+    @Argument(doc = "Write the k-mers as a memory-mapped hash table",
+            fullName = KMER_TABLE_LONG_NAME,
+            shortName = KMER_TABLE_SHORT_NAME,
+            optional = true)
+    public boolean kmerTable = false;
+
+    /**
+     * Get the list of distinct kmers in the reference, and write them to a file as a HopScotch set, Bloom filter or kmer table.
      */
     @Override
     protected Object doWork() {
 
+        if (kmerTable && bloomFpp > 0) {
+            throw new UserException.BadInput("Cannot write a Bloom filter as a memory-mapped table: set only one of --"
+                    + KMER_TABLE_LONG_NAME + " and --" + BLOOM_FILTER_FALSE_POSITIVE_P_LONG_NAME);
+        }
+
         final ReferenceFileSource reference = new ReferenceFileSource(this.reference);
 
         final byte[] maskBytes = PSUtils.parseMask(kmerMaskString, kmerSize);
@@ -160,7 +190,10 @@ public final class PathSeqBuildKmers extends CommandLineProgram {
         logger.info("Loading reference kmers...");
         final Collection<long[]> maskedKmerCollection = PSKmerUtils.getMaskedKmersFromLocalReference(reference, kmerSize, kmerSpacing, kmerMask);
         final long numLongs = PSKmerUtils.longArrayCollectionSize(maskedKmerCollection);
-        if (bloomFpp > 0) {
+        if (kmerTable) {
+            logger.info("Building kmer table...");
+            PSKmerUtils.writeKmerTable(outputFile, maskedKmerCollection, numLongs, kmerSize, kmerMask);
+        } else if (bloomFpp > 0) {
             logger.info("Building Bloom filter with false positive probability " + bloomFpp + "...");
             final LongBloomFilter bloomFilter = PSKmerUtils.longArrayCollectionToBloomFilter(maskedKmerCollection, numLongs, bloomFpp);
             final PSKmerBloomFilter kmerBloomFilter = new PSKmerBloomFilter(bloomFilter, kmerSize, kmerMask, numLongs);
@@ -20,6 +20,7 @@ import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.ReadsWriteFormat;
 import org.broadinstitute.hellbender.utils.read.markduplicates.MarkDuplicatesScoringStrategy;
 import org.broadinstitute.hellbender.utils.read.markduplicates.OpticalDuplicateFinder;
+import org.broadinstitute.hellbender.utils.spark.ShuffleBytesListener;
 
 import java.io.IOException;
 
@@ -50,6 +51,10 @@ public final class BwaAndMarkDuplicatesPipelineSpark extends GATKSparkTool {
     @Argument(shortName = "DS", fullName ="duplicates_scoring_strategy", doc = "The scoring strategy for choosing the non-duplicate among candidates.")
     public MarkDuplicatesScoringStrategy duplicatesScoringStrategy = MarkDuplicatesScoringStrategy.SUM_OF_BASE_QUALITIES;
 
+    @Argument(fullName = "shuffle_signatures_only", optional = true,
+            doc = "Shuffle compact duplicate signatures instead of the aligned reads, and mark the reads in a single streaming pass per partition.")
+    public boolean shuffleSignaturesOnly = false;
+
     @Argument(doc = "the output bam", shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME,
             fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME)
     protected String output;
@@ -59,7 +64,11 @@ public final class BwaAndMarkDuplicatesPipelineSpark extends GATKSparkTool {
         try (final BwaSparkEngine bwaEngine = new BwaSparkEngine(ctx, referenceArguments.getReferenceFileName(), bwaArgs.indexImageFile, getHeaderForReads(), getReferenceSequenceDictionary())) {
             final ReadFilter filter = makeReadFilter(bwaEngine.getHeader());
             final JavaRDD<GATKRead> alignedReads = bwaEngine.alignPaired(getUnfilteredReads()).filter(filter::test);
-            final JavaRDD<GATKRead> markedReadsWithOD = MarkDuplicatesSpark.mark(alignedReads, bwaEngine.getHeader(), duplicatesScoringStrategy, new OpticalDuplicateFinder(), getRecommendedNumReducers());
+            final ShuffleBytesListener shuffleBytesListener = new ShuffleBytesListener();
+            ctx.sc().addSparkListener(shuffleBytesListener);
+            final JavaRDD<GATKRead> markedReadsWithOD = shuffleSignaturesOnly ?
+                    MarkDuplicatesSpark.markQuerynameGrouped(alignedReads, bwaEngine.getHeader(), duplicatesScoringStrategy, new OpticalDuplicateFinder(), getRecommendedNumReducers()) :
+                    MarkDuplicatesSpark.mark(alignedReads, bwaEngine.getHeader(), duplicatesScoringStrategy, new OpticalDuplicateFinder(), getRecommendedNumReducers());
             final JavaRDD<GATKRead> markedReads = MarkDuplicatesSpark.cleanupTemporaryAttributes(markedReadsWithOD);
             try {
                 ReadsSparkSink.writeReads(ctx, output,
@@ -70,6 +79,7 @@ public final class BwaAndMarkDuplicatesPipelineSpark extends GATKSparkTool {
             } catch (IOException e) {
                 throw new GATKException("unable to write bam: " + e);
             }
+            shuffleBytesListener.logTotals();
         }
     }
 }
@@ -4,6 +4,7 @@ import com.esotericsoftware.kryo.DefaultSerializer;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
+import org.broadinstitute.hellbender.engine.spark.PackedBasesCodec;
 import org.broadinstitute.hellbender.utils.Utils;
 import scala.Tuple2;
 
@@ -40,13 +41,9 @@ public final class AlignedContig {
 
         contigName = input.readString();
 
-        final int nBases = input.readInt();
-        contigSequence = new byte[nBases];
-        for (int b = 0; b < nBases; ++b) {
-            contigSequence[b] = input.readByte();
-        }
+        contigSequence = PackedBasesCodec.read(input);
 
-        final int nAlignments = input.readInt();
+        final int nAlignments = input.readInt(true);
         alignmentIntervals = new ArrayList<>(nAlignments);
         for (int i = 0; i < nAlignments; ++i) {
             alignmentIntervals.add(new AlignmentInterval(kryo, input));
@@ -127,12 +124,9 @@ public final class AlignedContig {
 
         output.writeString(contigName);
 
-        output.writeInt(contigSequence.length);
-        for (final byte base : contigSequence) {
-            output.writeByte(base);
-        }
+        PackedBasesCodec.write(output, contigSequence);
 
-        output.writeInt(alignmentIntervals.size());
+        output.writeInt(alignmentIntervals.size(), true);
         alignmentIntervals.forEach(it -> it.serialize(kryo, output));
 
         output.writeBoolean(hasEquallyGoodAlnConfigurations);
@@ -371,31 +371,31 @@ public final class AlignmentInterval {
 
     AlignmentInterval(final Kryo kryo, final Input input) {
         final String chr = input.readString();
-        final int refStart = input.readInt(),
-                refEnd = input.readInt();
+        final int refStart = input.readInt(true),
+                refEnd = refStart + input.readInt(true);
         referenceSpan = new SimpleInterval(chr, refStart, refEnd);
-        startInAssembledContig = input.readInt();
-        endInAssembledContig = input.readInt();
+        startInAssembledContig = input.readInt(true);
+        endInAssembledContig = startInAssembledContig + input.readInt(true);
         cigarAlong5to3DirectionOfContig = TextCigarCodec.decode(input.readString());
         forwardStrand = input.readBoolean();
-        mapQual = input.readInt();
-        mismatches = input.readInt();
-        alnScore = input.readInt();
-        alnModType = AlnModType.values()[input.readInt()];
+        mapQual = input.readInt(true);
+        mismatches = input.readInt(true);
+        alnScore = input.readInt(true);
+        alnModType = AlnModType.values()[input.readInt(true)];
     }
 
     void serialize(final Kryo kryo, final Output output) {
         output.writeString(referenceSpan.getContig());
-        output.writeInt(referenceSpan.getStart());
-        output.writeInt(referenceSpan.getEnd());
-        output.writeInt(startInAssembledContig);
-        output.writeInt(endInAssembledContig);
+        output.writeInt(referenceSpan.getStart(), true);
+        output.writeInt(referenceSpan.getEnd() - referenceSpan.getStart(), true);
+        output.writeInt(startInAssembledContig, true);
+        output.writeInt(endInAssembledContig - startInAssembledContig, true);
         output.writeString(TextCigarCodec.encode(cigarAlong5to3DirectionOfContig));
         output.writeBoolean(forwardStrand);
-        output.writeInt(mapQual);
-        output.writeInt(mismatches);
-        output.writeInt(alnScore);
-        output.writeInt(alnModType.ordinal());
+        output.writeInt(mapQual, true);
+        output.writeInt(mismatches, true);
+        output.writeInt(alnScore, true);
+        output.writeInt(alnModType.ordinal(), true);
     }
 
     /**
@@ -42,7 +42,7 @@ public class BreakpointEvidence {
 
     protected BreakpointEvidence( final Kryo kryo, final Input input ) {
         this.location = intervalSerializer.read(kryo, input, SVInterval.class);
-        this.weight = input.readInt();
+        this.weight = input.readInt(true);
         this.validated = input.readBoolean();
     }
 
@@ -109,7 +109,7 @@ public class BreakpointEvidence {
 
     protected void serialize( final Kryo kryo, final Output output ) {
         intervalSerializer.write(kryo, output, location);
-        output.writeInt(weight);
+        output.writeInt(weight, true);
         output.writeBoolean(validated);
     }
 
@@ -177,13 +177,13 @@ public class BreakpointEvidence {
 
         protected TemplateSizeAnomaly( final Kryo kryo, final Input input ) {
             super(kryo, input);
-            readCount = input.readInt();
+            readCount = input.readInt(true);
         }
 
         @Override
         protected void serialize( final Kryo kryo, final Output output ) {
             super.serialize(kryo, output);
-            output.writeInt(readCount);
+            output.writeInt(readCount, true);
         }
 
         @Override
@@ -269,7 +269,7 @@ public class BreakpointEvidence {
             this.fragmentOrdinal = TemplateFragmentOrdinal.values()[input.readByte()];
             this.forwardStrand = input.readBoolean();
             this.cigarString = input.readString();
-            this.mappingQuality = input.readInt();
+            this.mappingQuality = input.readInt(true);
         }
 
         @Override
@@ -279,7 +279,7 @@ public class BreakpointEvidence {
             output.writeByte(fragmentOrdinal.ordinal());
             output.writeBoolean(forwardStrand);
             output.writeString(cigarString);
-            output.writeInt(mappingQuality);
+            output.writeInt(mappingQuality, true);
         }
 
         public String getTemplateName() {
@@ -693,7 +693,7 @@ public class BreakpointEvidence {
             super(kryo, input);
             target = intervalSerializer.read(kryo, input, SVInterval.class);
             targetForwardStrand = input.readBoolean();
-            targetQuality = input.readInt();
+            targetQuality = input.readInt(true);
         }
 
         @Override
@@ -701,7 +701,7 @@ public class BreakpointEvidence {
             super.serialize(kryo, output);
             intervalSerializer.write(kryo, output, target);
             output.writeBoolean(targetForwardStrand);
-            output.writeInt(targetQuality);
+            output.writeInt(targetQuality, true);
         }
 
         @Override
@@ -891,16 +891,16 @@ public class BreakpointEvidence {
 
         private WeirdTemplateSize( final Kryo kryo, final Input input ) {
             super(kryo, input);
-            templateSize = input.readInt();
-            mateStartPosition = input.readInt();
+            templateSize = input.readInt(false);
+            mateStartPosition = input.readInt(true);
             mateReverseStrand = input.readBoolean();
         }
 
         @Override
         protected void serialize( final Kryo kryo, final Output output ) {
             super.serialize(kryo, output);
-            output.writeInt(templateSize);
-            output.writeInt(mateStartPosition);
+            output.writeInt(templateSize, false);
+            output.writeInt(mateStartPosition, true);
             output.writeBoolean(mateReverseStrand);
         }
 
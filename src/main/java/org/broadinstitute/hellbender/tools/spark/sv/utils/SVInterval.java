@@ -25,15 +25,15 @@ public final class SVInterval implements Comparable<SVInterval> {
     }
 
     private SVInterval( final Kryo kryo, final Input input ) {
-        contig = input.readInt();
-        start = input.readInt();
-        end = input.readInt();
+        contig = input.readInt(true);
+        start = input.readInt(true);
+        end = start + input.readInt(true);
     }
 
     private void serialize( final Kryo kryo, final Output output ) {
-        output.writeInt(contig);
-        output.writeInt(start);
-        output.writeInt(end);
+        output.writeInt(contig, true);
+        output.writeInt(start, true);
+        output.writeInt(end - start, true);
     }
 
     public int getContig() { return contig; }
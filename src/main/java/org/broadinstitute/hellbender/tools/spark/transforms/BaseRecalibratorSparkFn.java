@@ -7,20 +7,23 @@ import org.apache.spark.api.java.JavaRDD;
 import org.broadinstitute.hellbender.engine.ReadContextData;
 import org.broadinstitute.hellbender.engine.ReferenceDataSource;
 import org.broadinstitute.hellbender.engine.ReferenceMemorySource;
+import org.broadinstitute.hellbender.engine.spark.KnownSitesCache;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.recalibration.*;
 import org.broadinstitute.hellbender.utils.recalibration.covariates.StandardCovariateList;
 import org.broadinstitute.hellbender.utils.reference.ReferenceBases;
 import org.broadinstitute.hellbender.utils.variant.GATKVariant;
+import org.broadinstitute.hellbender.utils.variant.KnownSitesImage;
 import scala.Tuple2;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 public final class BaseRecalibratorSparkFn {
 
     public static RecalibrationReport apply( final JavaPairRDD<GATKRead, ReadContextData> readsWithContext, final SAMFileHeader header, final SAMSequenceDictionary referenceDictionary, final RecalibrationArgumentCollection recalArgs ) {
-        JavaRDD<RecalibrationTables> unmergedTables = readsWithContext.mapPartitions(readWithContextIterator -> {
+        JavaRDD<FlatRecalibrationTables> unmergedTables = readsWithContext.mapPartitions(readWithContextIterator -> {
             final BaseRecalibrationEngine bqsr = new BaseRecalibrationEngine(recalArgs, header);
             bqsr.logCovariatesUsed();
 
@@ -32,14 +35,39 @@ public final class BaseRecalibratorSparkFn {
 
                 bqsr.processRead(readWithData._1(), refDS, variants);
             }
-            return Arrays.asList(bqsr.getRecalibrationTables()).iterator();
+            return Arrays.asList(bqsr.getFlatRecalibrationTables()).iterator();
         });
+        return combineTables(unmergedTables, header, recalArgs);
+    }
+
+    /**
+     * Computes the recalibration report for reads joined with their reference bases, querying the known sites that
+     * overlap each read straight from the {@link KnownSitesImage} of knownSitesPaths in {@link KnownSitesCache}.
+     * Unlike joining the reads with their overlapping variants, this creates no objects for the known sites.
+     */
+    public static RecalibrationReport apply( final JavaPairRDD<GATKRead, ReferenceBases> readsWithRefBases, final List<String> knownSitesPaths, final SAMFileHeader header, final SAMSequenceDictionary referenceDictionary, final RecalibrationArgumentCollection recalArgs ) {
+        JavaRDD<FlatRecalibrationTables> unmergedTables = readsWithRefBases.mapPartitions(readWithRefBasesIterator -> {
+            final BaseRecalibrationEngine bqsr = new BaseRecalibrationEngine(recalArgs, header);
+            bqsr.logCovariatesUsed();
+            final KnownSitesImage knownSites = KnownSitesCache.getImage(knownSitesPaths);
+
+            while ( readWithRefBasesIterator.hasNext() ) {
+                final Tuple2<GATKRead, ReferenceBases> readWithRefBases = readWithRefBasesIterator.next();
+                ReferenceDataSource refDS = new ReferenceMemorySource(readWithRefBases._2(), referenceDictionary);
+
+                bqsr.processRead(readWithRefBases._1(), refDS, knownSites);
+            }
+            return Arrays.asList(bqsr.getFlatRecalibrationTables()).iterator();
+        });
+        return combineTables(unmergedTables, header, recalArgs);
+    }
 
-        final RecalibrationTables emptyRecalibrationTable = new RecalibrationTables(new StandardCovariateList(recalArgs, header));
+    private static RecalibrationReport combineTables( final JavaRDD<FlatRecalibrationTables> unmergedTables, final SAMFileHeader header, final RecalibrationArgumentCollection recalArgs ) {
+        final FlatRecalibrationTables emptyRecalibrationTable = new FlatRecalibrationTables(new StandardCovariateList(recalArgs, header));
         final RecalibrationTables combinedTables = unmergedTables.treeAggregate(emptyRecalibrationTable,
-                RecalibrationTables::inPlaceCombine,
-                RecalibrationTables::inPlaceCombine,
-                Math.max(1, (int)(Math.log(unmergedTables.partitions().size()) / Math.log(2))));
+                FlatRecalibrationTables::inPlaceCombine,
+                FlatRecalibrationTables::inPlaceCombine,
+                Math.max(1, (int)(Math.log(unmergedTables.partitions().size()) / Math.log(2)))).toRecalibrationTables();
 
         BaseRecalibrationEngine.finalizeRecalibrationTables(combinedTables);
 
@@ -67,7 +67,7 @@ public final class BaseRecalibratorEngineSparkWrapper implements Serializable {
         }
     }
 
-    public Iterator<RecalibrationTables> apply(Iterator<ContextShard> shards) throws Exception {
+    public Iterator<FlatRecalibrationTables> apply(Iterator<ContextShard> shards) throws Exception {
         this.header = headerBcast.value();
         this.referenceSequenceDictionary = referenceSequenceDictionaryBcast.value();
         recalibrationEngine = new BaseRecalibrationEngine(recalArgs, header);
@@ -85,8 +85,8 @@ public final class BaseRecalibratorEngineSparkWrapper implements Serializable {
                 recalibrationEngine.processRead(read, refDS, variants);
             }
         }
-        ArrayList<RecalibrationTables> ret = new ArrayList<>();
-        ret.add(recalibrationEngine.getRecalibrationTables());
+        ArrayList<FlatRecalibrationTables> ret = new ArrayList<>();
+        ret.add(recalibrationEngine.getFlatRecalibrationTables());
         return ret.iterator();
     }
 
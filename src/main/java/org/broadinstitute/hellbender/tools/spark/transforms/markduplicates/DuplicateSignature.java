@@ -0,0 +1,249 @@
+package org.broadinstitute.hellbender.tools.spark.transforms.markduplicates;
+
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+import org.broadinstitute.hellbender.utils.read.markduplicates.MarkDuplicatesScoringStrategy;
+import org.broadinstitute.hellbender.utils.read.markduplicates.OpticalDuplicateFinder;
+import org.broadinstitute.hellbender.utils.read.markduplicates.PairedEnds;
+
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * Compact stand-in for a fragment or a pair of reads in the duplicate-marking shuffle of
+ * {@link MarkDuplicatesSparkUtils#markQuerynameGroupedReads}: the score, the fields that
+ * {@link org.broadinstitute.hellbender.utils.read.ReadCoordinateComparator} breaks ties on and the optical location,
+ * plus the indices of the reads it stands for, but none of their bases, qualities or attributes.
+ */
+public final class DuplicateSignature implements OpticalDuplicateFinder.PhysicalLocation {
+
+    /**
+     * Orders signatures as {@link org.broadinstitute.hellbender.utils.read.ReadCoordinateComparator} orders the
+     * reads (the first reads, for pairs) they stand for.
+     */
+    public static final Comparator<DuplicateSignature> COORDINATE_ORDER = DuplicateSignature::compareCoordinates;
+
+    private final long readIndex;
+    private final long mateIndex;
+    private final int score;
+    private final boolean hasMappedMate;
+
+    // the fields ReadCoordinateComparator compares, in the order it compares them
+    private final int assignedReferenceIndex;
+    private final int assignedStart;
+    private final boolean reverseStrand;
+    private final String name;
+    private final int flags;
+    private final int mappingQuality;
+    private final int mateReferenceIndex;
+    private final int mateStart;
+    private final int fragmentLength;
+
+    // Information used to detect optical dupes, which is only filled in for pairs
+    private final byte orientation;
+    private short readGroup = -1;
+    private short tile = -1;
+    private short x = -1, y = -1;
+    private short libraryId = -1;
+
+    private DuplicateSignature(final GATKRead read, final long readIndex, final long mateIndex, final int score,
+                               final byte orientation, final SAMFileHeader header) {
+        this.readIndex = readIndex;
+        this.mateIndex = mateIndex;
+        this.score = score;
+        this.hasMappedMate = ReadUtils.readHasMappedMate(read);
+        this.assignedReferenceIndex = ReadUtils.getAssignedReferenceIndex(read, header);
+        this.assignedStart = read.getAssignedStart();
+        this.reverseStrand = read.isReverseStrand();
+        this.name = read.getName();
+        this.flags = ReadUtils.getSAMFlagsForRead(read);
+        this.mappingQuality = read.getMappingQuality();
+        this.mateReferenceIndex = read.isPaired() ? ReadUtils.getMateReferenceIndex(read, header) : -1;
+        this.mateStart = read.isPaired() ? read.getMateStart() : -1;
+        this.fragmentLength = read.getFragmentLength();
+        this.orientation = orientation;
+    }
+
+    /**
+     * Signature of a primary read as a fragment
+     */
+    public static DuplicateSignature ofFragment(final GATKRead read, final long readIndex,
+                                                final MarkDuplicatesScoringStrategy scoringStrategy, final SAMFileHeader header) {
+        return new DuplicateSignature(read, readIndex, -1, scoringStrategy.score(read), (byte) -1, header);
+    }
+
+    /**
+     * Signature of a pair of primary reads with mapped mates, with its optical location if the finder can parse it
+     * from the read name.
+     *
+     * @param pair the pair, as {@link PairedEnds} orders its ends
+     * @param firstIndex the index of {@code pair.first()}
+     * @param secondIndex the index of {@code pair.second()}
+     * @param finder may be {@code null}, in which case there is no optical location
+     */
+    public static DuplicateSignature ofPair(final PairedEnds pair, final long firstIndex, final long secondIndex,
+                                            final MarkDuplicatesScoringStrategy scoringStrategy,
+                                            final OpticalDuplicateFinder finder, final SAMFileHeader header) {
+        final DuplicateSignature signature = new DuplicateSignature(pair.first(), firstIndex, secondIndex,
+                pair.score(scoringStrategy), pair.getOrientationForOpticalDuplicates(), header);
+        if (finder != null) {
+            // Both elements in the pair have the same name
+            finder.addLocationInformation(pair.first().getName(), signature);
+        }
+        return signature;
+    }
+
+    /**
+     * Index of the read (the first read, for pairs) this stands for
+     */
+    public long getReadIndex() { return readIndex; }
+
+    /**
+     * Index of the second read of a pair, or -1 for fragments
+     */
+    public long getMateIndex() { return mateIndex; }
+
+    public int getScore() { return score; }
+
+    public boolean hasMappedMate() { return hasMappedMate; }
+
+    /**
+     * See {@link PairedEnds#getOrientationForOpticalDuplicates()}, only meaningful for pairs
+     */
+    public byte getOrientationForOpticalDuplicates() { return orientation; }
+
+    @Override
+    public short getReadGroup() { return this.readGroup; }
+
+    @Override
+    public void setReadGroup(final short readGroup) { this.readGroup = readGroup; }
+
+    @Override
+    public short getTile() { return this.tile; }
+
+    @Override
+    public void setTile(final short tile) { this.tile = tile; }
+
+    @Override
+    public short getX() { return this.x; }
+
+    @Override
+    public void setX(final short x) { this.x = x; }
+
+    @Override
+    public short getY() { return this.y; }
+
+    @Override
+    public void setY(final short y) { this.y = y; }
+
+    @Override
+    public short getLibraryId() { return this.libraryId; }
+
+    @Override
+    public void setLibraryId(final short libraryId) { this.libraryId = libraryId; }
+
+    private static int compareCoordinates(final DuplicateSignature first, final DuplicateSignature second) {
+        if (first.assignedReferenceIndex == -1) {
+            if (second.assignedReferenceIndex != -1) return 1;
+        } else if (second.assignedReferenceIndex == -1) {
+            return -1;
+        } else {
+            final int refIndexDifference = first.assignedReferenceIndex - second.assignedReferenceIndex;
+            if (refIndexDifference != 0) return refIndexDifference;
+            final int result = Integer.compare(first.assignedStart, second.assignedStart);
+            if (result != 0) return result;
+        }
+
+        if (first.reverseStrand != second.reverseStrand) {
+            return first.reverseStrand ? 1 : -1;
+        }
+        if (first.name != null && second.name != null) {
+            final int result = first.name.compareTo(second.name);
+            if (result != 0) return result;
+        }
+        int result = Integer.compare(first.flags, second.flags);
+        if (result != 0) return result;
+        result = Integer.compare(first.mappingQuality, second.mappingQuality);
+        if (result != 0) return result;
+        if (isPaired(first) && isPaired(second)) {
+            result = Integer.compare(first.mateReferenceIndex, second.mateReferenceIndex);
+            if (result != 0) return result;
+            result = Integer.compare(first.mateStart, second.mateStart);
+            if (result != 0) return result;
+        }
+        return Integer.compare(first.fragmentLength, second.fragmentLength);
+    }
+
+    private static boolean isPaired(final DuplicateSignature signature) {
+        return (signature.flags & 0x1) != 0;
+    }
+
+    /**
+     * Compact counterpart of the {@link org.broadinstitute.hellbender.utils.read.markduplicates.ReadsKey} strings:
+     * signatures with equal keys are duplicates of each other.
+     */
+    public static final class Key {
+        private final boolean isFragment;
+        private final int library;
+        private final int firstReferenceIndex;
+        private final int firstStrandedUnclippedStart;
+        private final boolean firstReverseStrand;
+        private final int secondReferenceIndex;
+        private final int secondStrandedUnclippedStart;
+        private final boolean secondReverseStrand;
+
+        private Key(final boolean isFragment, final int library, final GATKRead first, final GATKRead second,
+                    final SAMFileHeader header) {
+            this.isFragment = isFragment;
+            this.library = library;
+            this.firstReferenceIndex = ReadUtils.getReferenceIndex(first, header);
+            this.firstStrandedUnclippedStart = ReadUtils.getStrandedUnclippedStart(first);
+            this.firstReverseStrand = first.isReverseStrand();
+            this.secondReferenceIndex = second == null ? -1 : ReadUtils.getReferenceIndex(second, header);
+            this.secondStrandedUnclippedStart = second == null ? 0 : ReadUtils.getStrandedUnclippedStart(second);
+            this.secondReverseStrand = second != null && second.isReverseStrand();
+        }
+
+        /**
+         * Key of a read as a fragment
+         *
+         * @param library index of the library of the read
+         */
+        public static Key ofFragment(final int library, final GATKRead read, final SAMFileHeader header) {
+            return new Key(true, library, read, null, header);
+        }
+
+        /**
+         * Key of a pair of reads
+         *
+         * @param library index of the library of the first read
+         */
+        public static Key ofPair(final int library, final PairedEnds pair, final SAMFileHeader header) {
+            return new Key(false, library, pair.first(), pair.second(), header);
+        }
+
+        public boolean isFragment() { return isFragment; }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Key key = (Key) o;
+            return isFragment == key.isFragment &&
+                    library == key.library &&
+                    firstReferenceIndex == key.firstReferenceIndex &&
+                    firstStrandedUnclippedStart == key.firstStrandedUnclippedStart &&
+                    firstReverseStrand == key.firstReverseStrand &&
+                    secondReferenceIndex == key.secondReferenceIndex &&
+                    secondStrandedUnclippedStart == key.secondStrandedUnclippedStart &&
+                    secondReverseStrand == key.secondReverseStrand;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(isFragment, library, firstReferenceIndex, firstStrandedUnclippedStart, firstReverseStrand,
+                    secondReferenceIndex, secondStrandedUnclippedStart, secondReverseStrand);
+        }
+    }
+}
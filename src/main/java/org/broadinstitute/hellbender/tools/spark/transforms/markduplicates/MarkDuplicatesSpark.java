@@ -16,11 +16,13 @@ import picard.cmdline.programgroups.ReadDataManipulationProgramGroup;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
 import org.broadinstitute.hellbender.engine.spark.GATKSparkTool;
+import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.ReadUtils;
 import org.broadinstitute.hellbender.utils.read.markduplicates.DuplicationMetrics;
 import org.broadinstitute.hellbender.utils.read.markduplicates.MarkDuplicatesScoringStrategy;
 import org.broadinstitute.hellbender.utils.read.markduplicates.OpticalDuplicateFinder;
+import org.broadinstitute.hellbender.utils.spark.ShuffleBytesListener;
 
 import java.util.Collections;
 import java.util.List;
@@ -48,6 +50,10 @@ public final class MarkDuplicatesSpark extends GATKSparkTool {
     @Argument(shortName = "DS", fullName = "DUPLICATE_SCORING_STRATEGY", doc = "The scoring strategy for choosing the non-duplicate among candidates.")
     public MarkDuplicatesScoringStrategy duplicatesScoringStrategy = MarkDuplicatesScoringStrategy.SUM_OF_BASE_QUALITIES;
 
+    @Argument(fullName = "shuffle_signatures_only", optional = true,
+            doc = "For queryname-grouped input, shuffle compact duplicate signatures instead of the reads, and mark the reads in a single streaming pass per partition.")
+    public boolean shuffleSignaturesOnly = false;
+
     @ArgumentCollection
     protected OpticalDuplicatesArgumentCollection opticalDuplicatesArgumentCollection = new OpticalDuplicatesArgumentCollection();
 
@@ -67,13 +73,33 @@ public final class MarkDuplicatesSpark extends GATKSparkTool {
         return primaryReadsTransformed.union(nonPrimaryReads);
     }
 
+    /**
+     * Like {@link #mark}, for reads grouped by queryname within their partitions (e.g. straight out of BwaSpark), but
+     * only compact signatures of the reads are shuffled, and the reads are marked in a single streaming pass per
+     * partition, in their input order. The reads are evaluated twice, so their partitions must come out the same each
+     * time.
+     */
+    public static JavaRDD<GATKRead> markQuerynameGrouped(final JavaRDD<GATKRead> reads, final SAMFileHeader header,
+                                                         final MarkDuplicatesScoringStrategy scoringStrategy,
+                                                         final OpticalDuplicateFinder opticalDuplicateFinder, final int numReducers) {
+        if (!SAMFileHeader.SortOrder.queryname.equals(header.getSortOrder())) {
+            throw new UserException.BadInput("Shuffling only duplicate signatures requires queryname-sorted input, but the sort order is " + header.getSortOrder());
+        }
+        return MarkDuplicatesSparkUtils.markQuerynameGroupedReads(header, scoringStrategy, opticalDuplicateFinder, reads, numReducers);
+    }
+
     @Override
     protected void runTool(final JavaSparkContext ctx) {
         JavaRDD<GATKRead> reads = getReads();
         final OpticalDuplicateFinder finder = opticalDuplicatesArgumentCollection.READ_NAME_REGEX != null ?
                 new OpticalDuplicateFinder(opticalDuplicatesArgumentCollection.READ_NAME_REGEX, opticalDuplicatesArgumentCollection.OPTICAL_DUPLICATE_PIXEL_DISTANCE, null) : null;
 
-        final JavaRDD<GATKRead> finalReadsForMetrics = mark(reads, getHeaderForReads(), duplicatesScoringStrategy, finder, getRecommendedNumReducers());
+        final ShuffleBytesListener shuffleBytesListener = new ShuffleBytesListener();
+        ctx.sc().addSparkListener(shuffleBytesListener);
+
+        final JavaRDD<GATKRead> finalReadsForMetrics = shuffleSignaturesOnly ?
+                markQuerynameGrouped(reads, getHeaderForReads(), duplicatesScoringStrategy, finder, getRecommendedNumReducers()) :
+                mark(reads, getHeaderForReads(), duplicatesScoringStrategy, finder, getRecommendedNumReducers());
 
         if (metricsFile != null) {
             final JavaPairRDD<String, DuplicationMetrics> metricsByLibrary = MarkDuplicatesSparkUtils.generateMetrics(getHeaderForReads(), finalReadsForMetrics);
@@ -83,6 +109,7 @@ public final class MarkDuplicatesSpark extends GATKSparkTool {
 
         final JavaRDD<GATKRead> finalReads = cleanupTemporaryAttributes(finalReadsForMetrics);
         writeReads(ctx, output, finalReads);
+        shuffleBytesListener.logTotals();
     }
 
 
@@ -2,7 +2,10 @@ package org.broadinstitute.hellbender.tools.spark.transforms.markduplicates;
 
 import com.google.common.collect.*;
 import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMReadGroupRecord;
 import htsjdk.samtools.metrics.MetricsFile;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import org.apache.spark.Partitioner;
 import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.broadinstitute.hellbender.exceptions.GATKException;
@@ -87,6 +90,251 @@ public class MarkDuplicatesSparkUtils {
         return markPairedEnds(keyedPairs, scoringStrategy, finder, header);
     }
 
+    /**
+     * Marks duplicates like {@link #transformReads}, for reads grouped by queryname within their partitions (e.g.
+     * straight out of BwaSpark), without shuffling the reads themselves:
+     * (0) number the reads: the index of a read is its partition index in the high 32 bits and its offset in the
+     *     partition in the low 32 bits.
+     * (1) span the primary reads of each partition by name and make a compact {@link DuplicateSignature} of each
+     *     of them as a fragment, and of each pair of reads with mapped mates.
+     * (2) GroupByKey: group the signatures by {@link DuplicateSignature.Key}, which is the only shuffle of the
+     *     duplicate finding itself.
+     * (3) for each group, decide exactly as {@link #markPairedEnds} does which reads are duplicates and how many
+     *     optical duplicates the best pair has, and emit a mark (read index, {@link #DUPLICATE_MARK} or optical
+     *     duplicate count) for each read that is marked.
+     * (4) partition the marks by the partition of their reads and zip them with the reads, so that each partition
+     *     of reads is marked in a single streaming pass.
+     * The reads are evaluated twice, once for the signatures and once for marking them, so their partitions must
+     * come out the same each time. They come out in their input order, non-primary reads included (and untouched).
+     */
+    static JavaRDD<GATKRead> markQuerynameGroupedReads(final SAMFileHeader header, final MarkDuplicatesScoringStrategy scoringStrategy, final OpticalDuplicateFinder finder, final JavaRDD<GATKRead> reads, final int numReducers) {
+        final Map<String, Integer> libraryIndices = libraryIndices(header);
+        final JavaPairRDD<DuplicateSignature.Key, Iterable<DuplicateSignature>> signatures = JavaPairRDD.fromJavaRDD(
+                reads.mapPartitionsWithIndex((partitionIndex, iter) ->
+                        signaturesForPartition(header, libraryIndices, scoringStrategy, finder, partitionIndex, iter), false))
+                .groupByKey(numReducers);
+
+        final JavaPairRDD<Long, Integer> marks = signatures
+                .flatMapToPair(keyedSignatures -> marksForGroup(keyedSignatures._1(), keyedSignatures._2(), finder).iterator())
+                .partitionBy(new ReadIndexPartitioner(reads.getNumPartitions()));
+
+        return reads.zipPartitions(marks, MarkDuplicatesSparkUtils::applyMarks);
+    }
+
+    /**
+     * Value of a mark for a read that is a duplicate. Non-negative values are the optical duplicate count of a
+     * non-duplicate read.
+     */
+    static final int DUPLICATE_MARK = -1;
+
+    /**
+     * Indices of the libraries named in the header, with "-" for reads without one, as in {@link ReadsKey}
+     */
+    static Map<String, Integer> libraryIndices(final SAMFileHeader header) {
+        final SortedSet<String> libraries = new TreeSet<>();
+        libraries.add("-");
+        for (final SAMReadGroupRecord readGroup : header.getReadGroups()) {
+            if (readGroup.getLibrary() != null) {
+                libraries.add(readGroup.getLibrary());
+            }
+        }
+        final Map<String, Integer> indices = new HashMap<>();
+        for (final String library : libraries) {
+            indices.put(library, indices.size());
+        }
+        return indices;
+    }
+
+    private static Iterator<Tuple2<DuplicateSignature.Key, DuplicateSignature>> signaturesForPartition(
+            final SAMFileHeader header, final Map<String, Integer> libraryIndices,
+            final MarkDuplicatesScoringStrategy scoringStrategy, final OpticalDuplicateFinder finder,
+            final int partitionIndex, final Iterator<GATKRead> reads) {
+        final Iterator<Tuple2<String, Tuple2<Long, GATKRead>>> namedPrimaryReads = Iterators.transform(
+                Iterators.filter(indexReads(partitionIndex, reads), indexedRead -> !ReadUtils.isNonPrimary(indexedRead._2())),
+                indexedRead -> new Tuple2<>(indexedRead._2().getName(), indexedRead));
+        return Iterators.concat(Iterators.transform(spanningIterator(namedPrimaryReads),
+                namedReads -> signaturesForName(header, libraryIndices, scoringStrategy, finder, namedReads._2()).iterator()));
+    }
+
+    private static Iterator<Tuple2<Long, GATKRead>> indexReads(final int partitionIndex, final Iterator<GATKRead> reads) {
+        return new Iterator<Tuple2<Long, GATKRead>>() {
+            private long nextIndex = (long) partitionIndex << 32;
+
+            @Override
+            public boolean hasNext() {
+                return reads.hasNext();
+            }
+
+            @Override
+            public Tuple2<Long, GATKRead> next() {
+                return new Tuple2<>(nextIndex++, reads.next());
+            }
+        };
+    }
+
+    private static List<Tuple2<DuplicateSignature.Key, DuplicateSignature>> signaturesForName(
+            final SAMFileHeader header, final Map<String, Integer> libraryIndices,
+            final MarkDuplicatesScoringStrategy scoringStrategy, final OpticalDuplicateFinder finder,
+            final Iterable<Tuple2<Long, GATKRead>> namedReads) {
+        // for each name, separate reads by key (group name), as spanReadsByKey does
+        final ListMultimap<String, Tuple2<Long, GATKRead>> multi = LinkedListMultimap.create();
+        for (final Tuple2<Long, GATKRead> indexedRead : namedReads) {
+            multi.put(ReadsKey.keyForRead(header, indexedRead._2()), indexedRead);
+        }
+
+        final List<Tuple2<DuplicateSignature.Key, DuplicateSignature>> out = Lists.newArrayList();
+        final GATKOrder order = new GATKOrder(header);
+        for (final String key : multi.keySet()) {
+            final List<Tuple2<Long, GATKRead>> indexedReads = multi.get(key);
+            // Write each read out as a fragment
+            for (final Tuple2<Long, GATKRead> indexedRead : indexedReads) {
+                final GATKRead read = indexedRead._2();
+                read.setIsDuplicate(false);
+                out.add(new Tuple2<>(DuplicateSignature.Key.ofFragment(libraryIndex(libraryIndices, read, header), read, header),
+                        DuplicateSignature.ofFragment(read, indexedRead._1(), scoringStrategy, header)));
+            }
+            // Write each pair of consecutive reads with mapped mates out as a pair. As in Picard, a left over read is
+            // left alone, so it doesn't need a signature.
+            final List<Tuple2<Long, GATKRead>> sorted = indexedReads.stream()
+                    .filter(indexedRead -> ReadUtils.readHasMappedMate(indexedRead._2()))
+                    .collect(Collectors.toList());
+            sorted.sort((lhs, rhs) -> order.compare(lhs._2(), rhs._2()));
+            for (int i = 0; i + 1 < sorted.size(); i += 2) {
+                final PairedEnds pair = PairedEnds.of(sorted.get(i)._2()).and(sorted.get(i + 1)._2());
+                final boolean swapped = pair.first() != sorted.get(i)._2();
+                final long firstIndex = sorted.get(swapped ? i + 1 : i)._1();
+                final long secondIndex = sorted.get(swapped ? i : i + 1)._1();
+                out.add(new Tuple2<>(DuplicateSignature.Key.ofPair(libraryIndex(libraryIndices, pair.first(), header), pair, header),
+                        DuplicateSignature.ofPair(pair, firstIndex, secondIndex, scoringStrategy, finder, header)));
+            }
+        }
+        return out;
+    }
+
+    private static int libraryIndex(final Map<String, Integer> libraryIndices, final GATKRead read, final SAMFileHeader header) {
+        final String library = ReadUtils.getLibrary(read, header);
+        return libraryIndices.get(library != null ? library : "-");
+    }
+
+    /**
+     * Marks for a group of duplicate signatures, following the rules of {@link #markPairedEnds}: (read index,
+     * {@link #DUPLICATE_MARK}) for each read to mark as a duplicate, and (read index, optical duplicate count) for the
+     * first read of the best pair. Reads that get no mark are not duplicates.
+     */
+    static List<Tuple2<Long, Integer>> marksForGroup(final DuplicateSignature.Key key, final Iterable<DuplicateSignature> signatures,
+                                                      final OpticalDuplicateFinder finder) {
+        final List<Tuple2<Long, Integer>> out = Lists.newArrayList();
+        // Order by score using ReadCoordinateComparator for tie-breaking.
+        final Comparator<DuplicateSignature> signatureComparator =
+                Comparator.comparing(DuplicateSignature::getScore).reversed().thenComparing(DuplicateSignature.COORDINATE_ORDER);
+
+        if (key.isFragment()) {
+            final Map<Boolean, List<DuplicateSignature>> byPairing = Utils.stream(signatures)
+                    .collect(Collectors.partitioningBy(DuplicateSignature::hasMappedMate));
+            if (byPairing.get(true).isEmpty()) {
+                // There are no paired reads, mark all but the highest scoring fragment as duplicate.
+                final List<DuplicateSignature> frags = byPairing.get(false).stream().sorted(signatureComparator).collect(Collectors.toList());
+                for (final DuplicateSignature frag : Iterables.skip(frags, 1)) {
+                    out.add(new Tuple2<>(frag.getReadIndex(), DUPLICATE_MARK));
+                }
+            } else {
+                // There are paired ends so we mark all fragments as duplicates.
+                for (final DuplicateSignature frag : byPairing.get(false)) {
+                    out.add(new Tuple2<>(frag.getReadIndex(), DUPLICATE_MARK));
+                }
+            }
+            return out;
+        }
+
+        final List<DuplicateSignature> scored = Utils.stream(signatures).sorted(signatureComparator).collect(Collectors.toList());
+        // Mark everyone who's not best as a duplicate
+        for (final DuplicateSignature pair : Iterables.skip(scored, 1)) {
+            out.add(new Tuple2<>(pair.getReadIndex(), DUPLICATE_MARK));
+            out.add(new Tuple2<>(pair.getMateIndex(), DUPLICATE_MARK));
+        }
+
+        // Split by orientation and count duplicates in each group separately.
+        int numOpticalDuplicates = 0;
+        if (finder != null) {
+            final ImmutableListMultimap<Byte, DuplicateSignature> groupByOrientation = Multimaps.index(scored, DuplicateSignature::getOrientationForOpticalDuplicates);
+            if (groupByOrientation.containsKey(ReadEnds.FR) && groupByOrientation.containsKey(ReadEnds.RF)) {
+                numOpticalDuplicates = countOpticalDuplicates(finder, new ArrayList<>(groupByOrientation.get(ReadEnds.FR)))
+                        + countOpticalDuplicates(finder, new ArrayList<>(groupByOrientation.get(ReadEnds.RF)));
+            } else {
+                numOpticalDuplicates = countOpticalDuplicates(finder, new ArrayList<>(scored));
+            }
+        }
+        out.add(new Tuple2<>(scored.get(0).getReadIndex(), numOpticalDuplicates));
+        return out;
+    }
+
+    /**
+     * Marks the reads of a partition: primary reads are duplicates if they have a {@link #DUPLICATE_MARK} and
+     * non-duplicates otherwise, and get the optical duplicate count of their mark, if any.
+     */
+    private static Iterator<GATKRead> applyMarks(final Iterator<GATKRead> reads, final Iterator<Tuple2<Long, Integer>> marks) {
+        // pack each mark into a long with the read offset in the high bits, so that sorting them sorts them by read
+        final LongArrayList packedMarks = new LongArrayList();
+        while (marks.hasNext()) {
+            final Tuple2<Long, Integer> mark = marks.next();
+            packedMarks.add((mark._1() << 32) | (mark._2() & 0xFFFFFFFFL));
+        }
+        final long[] sortedMarks = packedMarks.toLongArray();
+        Arrays.sort(sortedMarks);
+
+        return new Iterator<GATKRead>() {
+            private long nextOffset = 0;
+            private int nextMark = 0;
+
+            @Override
+            public boolean hasNext() {
+                return reads.hasNext();
+            }
+
+            @Override
+            public GATKRead next() {
+                final GATKRead read = reads.next();
+                final long offset = nextOffset++;
+                if (ReadUtils.isNonPrimary(read)) {
+                    return read;
+                }
+                read.setIsDuplicate(false);
+                if (nextMark < sortedMarks.length && (sortedMarks[nextMark] >>> 32) == offset) {
+                    final int mark = (int) sortedMarks[nextMark++];
+                    if (mark == DUPLICATE_MARK) {
+                        read.setIsDuplicate(true);
+                    } else {
+                        read.setAttribute(OPTICAL_DUPLICATE_TOTAL_ATTRIBUTE_NAME, mark);
+                    }
+                }
+                return read;
+            }
+        };
+    }
+
+    /**
+     * Sends the mark of a read to the partition of the read, which is in the high 32 bits of its index
+     */
+    private static final class ReadIndexPartitioner extends Partitioner {
+        private static final long serialVersionUID = 1L;
+
+        private final int numPartitions;
+
+        ReadIndexPartitioner(final int numPartitions) {
+            this.numPartitions = numPartitions;
+        }
+
+        @Override
+        public int numPartitions() {
+            return numPartitions;
+        }
+
+        @Override
+        public int getPartition(final Object key) {
+            return (int) ((Long) key >>> 32);
+        }
+    }
+
     static JavaPairRDD<String, Iterable<GATKRead>> spanReadsByKey(final SAMFileHeader header, final JavaRDD<GATKRead> reads) {
         JavaPairRDD<String, GATKRead> nameReadPairs = reads.mapToPair(read -> new Tuple2<>(read.getName(), read));
         return spanByKey(nameReadPairs).flatMapToPair(namedRead -> {
@@ -217,7 +465,7 @@ public class MarkDuplicatesSparkUtils {
         });
     }
 
-    private static int countOpticalDuplicates(OpticalDuplicateFinder finder, List<PairedEnds> scored) {
+    private static int countOpticalDuplicates(OpticalDuplicateFinder finder, List<? extends OpticalDuplicateFinder.PhysicalLocation> scored) {
         final boolean[] opticalDuplicateFlags = finder.findOpticalDuplicates(scored);
         int numOpticalDuplicates = 0;
         for (final boolean b : opticalDuplicateFlags) {
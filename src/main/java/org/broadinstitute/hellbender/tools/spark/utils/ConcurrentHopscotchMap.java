@@ -0,0 +1,37 @@
+package org.broadinstitute.hellbender.tools.spark.utils;
+
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Thread-safe counterpart of HopscotchMap: a uniquely keyed map, striped by key, that many threads can fill at once.
+ * Like HopscotchMap, it's not a java.util.Map, but it does behave like a java.util.Map's entrySet.
+ */
+public final class ConcurrentHopscotchMap<K, V, T extends Map.Entry<K, V>> extends ConcurrentHopscotchSet<T> {
+    public ConcurrentHopscotchMap() {}
+    public ConcurrentHopscotchMap( final int capacity ) { super(capacity); }
+    public ConcurrentHopscotchMap( final int capacity, final int concurrencyLevel ) { super(capacity, concurrencyLevel); }
+
+    /**
+     * add the entry if there's none with the same key yet, or else fold it into the existing one, atomically.
+     * e.g., counting kmers from many threads: {@code merge(new KmerAndCount(kmer), (old, entry) -> old.bumpCount())}
+     * @param combiner called, under the lock of the key's stripe, with the existing entry and the new one
+     * @return true if the entry was added
+     */
+    public boolean merge( final T entry, final BiConsumer<? super T, ? super T> combiner ) {
+        if ( entry == null ) throw new UnsupportedOperationException("This collection cannot contain null.");
+        return withStripe(entry.getKey(), stripe -> {
+            final T existing = stripe.find(entry.getKey());
+            if ( existing == null ) return stripe.add(entry);
+            combiner.accept(existing, entry);
+            return false;
+        });
+    }
+
+    @Override
+    protected HopscotchSet<T> newStripe( final int capacity ) { return new HopscotchMap<>(capacity); }
+
+    /** in a map, uniqueness is on the key value, so entries are striped by key */
+    @Override
+    protected Object toKey( final T entry ) { return entry.getKey(); }
+}
@@ -0,0 +1,182 @@
+package org.broadinstitute.hellbender.tools.spark.utils;
+
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Thread-safe counterpart of HopscotchSet that can be filled by many threads at once, e.g. by all the task threads of
+ * an executor, instead of each of them keeping its own copy.
+ *
+ * Entries are striped by the hash of their key over HopscotchSets, each guarded by its own lock.  Operations on a
+ * single key only lock its stripe, and the bulk addAll methods group their entries by stripe first and then fill the
+ * stripes in parallel, taking each lock once.  The number of stripes does not change after construction, but each
+ * stripe resizes itself as needed.
+ *
+ * It's not a java.util.Set: iterating while other threads are writing isn't supported.  Once all the entries are in,
+ * {@link #stream()} gives them all.
+ */
+public class ConcurrentHopscotchSet<T> {
+
+    /** default number of stripes: enough for all the available cores to insert with few collisions */
+    public static final int DEFAULT_CONCURRENCY_LEVEL = 4 * Runtime.getRuntime().availableProcessors();
+
+    private final HopscotchSet<T>[] stripes;
+
+    /** make a small ConcurrentHopscotchSet */
+    public ConcurrentHopscotchSet() { this(12000); }
+
+    /** make a ConcurrentHopscotchSet for a specified capacity (or good guess) */
+    public ConcurrentHopscotchSet( final int capacity ) { this(capacity, DEFAULT_CONCURRENCY_LEVEL); }
+
+    /**
+     * make a ConcurrentHopscotchSet for a specified capacity (or good guess)
+     * @param concurrencyLevel number of stripes, i.e. of threads that can insert at the same time
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentHopscotchSet( final int capacity, final int concurrencyLevel ) {
+        Utils.validateArg(capacity >= 0, "capacity must be non-negative");
+        Utils.validateArg(concurrencyLevel > 0, "concurrencyLevel must be positive");
+        // Not unsafe, because the stripes are only ever assigned what newStripe makes.
+        stripes = (HopscotchSet<T>[])new HopscotchSet<?>[concurrencyLevel];
+        final int stripeCapacity = capacity / concurrencyLevel + 1;
+        for ( int idx = 0; idx != concurrencyLevel; ++idx ) {
+            stripes[idx] = newStripe(stripeCapacity);
+        }
+    }
+
+    public final boolean add( final T entry ) {
+        if ( entry == null ) throw new UnsupportedOperationException("This collection cannot contain null.");
+        final HopscotchSet<T> stripe = stripes[stripeIndex(toKey(entry))];
+        synchronized ( stripe ) {
+            return stripe.add(entry);
+        }
+    }
+
+    /** add all the entries, filling the stripes in parallel */
+    public final boolean addAll( final Collection<? extends T> entries ) {
+        final ConcurrentMap<Integer, List<T>> entriesByStripe =
+                entries.parallelStream().<T>map(entry -> entry).collect(Collectors.groupingByConcurrent(entry -> {
+                    if ( entry == null ) throw new UnsupportedOperationException("This collection cannot contain null.");
+                    return stripeIndex(toKey(entry));
+                }));
+        return entriesByStripe.entrySet().parallelStream()
+                .map(stripeEntries -> {
+                    final HopscotchSet<T> stripe = stripes[stripeEntries.getKey()];
+                    synchronized ( stripe ) {
+                        return stripe.addAll(stripeEntries.getValue());
+                    }
+                })
+                .reduce(false, Boolean::logicalOr);
+    }
+
+    /**
+     * add all the entries of another ConcurrentHopscotchSet, filling the stripes in parallel.
+     * the other set must not be modified while this runs.
+     */
+    public final boolean addAll( final ConcurrentHopscotchSet<? extends T> that ) {
+        if ( that.getClass() != getClass() || that.stripes.length != stripes.length ) {
+            return addAll(that.stream().collect(Collectors.toList()));
+        }
+        // same striping: each stripe of that set goes into the corresponding stripe of this one
+        return IntStream.range(0, stripes.length).parallel()
+                .mapToObj(idx -> {
+                    final HopscotchSet<T> stripe = stripes[idx];
+                    synchronized ( stripe ) {
+                        return stripe.addAll(that.stripes[idx]);
+                    }
+                })
+                .reduce(false, Boolean::logicalOr);
+    }
+
+    public final void clear() {
+        for ( final HopscotchSet<T> stripe : stripes ) {
+            synchronized ( stripe ) {
+                stripe.clear();
+            }
+        }
+    }
+
+    /** maximum number of elements that can be held without resizing. (but we may have to resize earlier.) */
+    public final long capacity() {
+        long capacity = 0;
+        for ( final HopscotchSet<T> stripe : stripes ) {
+            synchronized ( stripe ) {
+                capacity += stripe.capacity();
+            }
+        }
+        return capacity;
+    }
+
+    public final boolean contains( final Object key ) { return find(key) != null; }
+
+    /** find an entry equivalent to the key, or return null */
+    public final T find( final Object key ) {
+        final HopscotchSet<T> stripe = stripes[stripeIndex(key)];
+        synchronized ( stripe ) {
+            return stripe.find(key);
+        }
+    }
+
+    public final boolean isEmpty() { return size() == 0; }
+
+    public final boolean remove( final Object key ) {
+        final HopscotchSet<T> stripe = stripes[stripeIndex(key)];
+        synchronized ( stripe ) {
+            return stripe.remove(key);
+        }
+    }
+
+    /** number of entries: only a snapshot while other threads are adding or removing */
+    public final long size() {
+        long size = 0;
+        for ( final HopscotchSet<T> stripe : stripes ) {
+            synchronized ( stripe ) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    /** number of stripes, i.e. of threads that can insert at the same time */
+    public final int getConcurrencyLevel() { return stripes.length; }
+
+    /** all the entries, stripe by stripe.  no other thread may add or remove entries while the stream is consumed. */
+    public final Stream<T> stream() {
+        return Arrays.stream(stripes).flatMap(stripe -> {
+            // locking publishes the insertions of other threads to the thread that consumes the stream
+            synchronized ( stripe ) {
+                return stripe.stream();
+            }
+        });
+    }
+
+    /** make an empty stripe */
+    protected HopscotchSet<T> newStripe( final int capacity ) { return new HopscotchSet<>(capacity); }
+
+    /** in a set, the entry is the key */
+    protected Object toKey( final T entry ) { return entry; }
+
+    /** runs any operation that needs exclusive access to the stripe of a key */
+    protected final <R> R withStripe( final Object key, final Function<HopscotchSet<T>, R> operation ) {
+        final HopscotchSet<T> stripe = stripes[stripeIndex(key)];
+        synchronized ( stripe ) {
+            return operation.apply(stripe);
+        }
+    }
+
+    // -------- internal methods ----------
+
+    private int stripeIndex( final Object key ) {
+        final int hashVal = key == null ? 0 : key.hashCode();
+        // fold in the high bits, so that hashCodes that differ only there still land in different stripes
+        return Integer.remainderUnsigned(hashVal ^ (hashVal >>> 16), stripes.length);
+    }
+}
@@ -0,0 +1,196 @@
+package org.broadinstitute.hellbender.tools.spark.utils;
+
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Thread-safe set of non-negative longs that can be filled by many threads at once, e.g. by all the task threads of
+ * an executor, instead of each of them keeping its own copy.
+ * <p>
+ * Entries are striped by hash over LongHopscotchSets, each guarded by its own lock, using the same partitioning as
+ * LargeLongHopscotchSet, so that a filled set can be handed over as a LargeLongHopscotchSet without copying (see
+ * {@link #toLargeLongHopscotchSet()}). The bulk addAll methods sort their entries by stripe first and then fill the
+ * stripes in parallel, taking each lock once.
+ * <p>
+ * Like LargeLongHopscotchSet, the number of stripes does not change after construction. Iteration is not supported:
+ * convert to a LargeLongHopscotchSet once all the entries are in.
+ */
+public final class ConcurrentLongHopscotchSet {
+
+    /**
+     * Default minimum number of stripes: enough for all the available cores to insert with few collisions
+     */
+    public static final int DEFAULT_CONCURRENCY_LEVEL = 4 * Runtime.getRuntime().availableProcessors();
+
+    private final LongHopscotchSet[] sets;
+
+    /**
+     * make a ConcurrentLongHopscotchSet for a number of elements, with at least {@link #DEFAULT_CONCURRENCY_LEVEL} stripes
+     */
+    public ConcurrentLongHopscotchSet(final long numElements) {
+        this(numElements, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * make a ConcurrentLongHopscotchSet for a number of elements
+     *
+     * @param concurrencyLevel minimum number of stripes, i.e. of threads that can insert at the same time
+     */
+    public ConcurrentLongHopscotchSet(final long numElements, final int concurrencyLevel) {
+        Utils.validateArg(numElements > 0, "Number of elements must be greater than 0");
+        Utils.validateArg(concurrencyLevel > 0, "Concurrency level must be greater than 0");
+
+        final int numSets = Math.max(LargeLongHopscotchSet.numPartitionsFor(numElements), concurrencyLevel);
+        final int elementsPerSet = (int) ((numElements / numSets) + 1);
+        sets = new LongHopscotchSet[numSets];
+        for (int i = 0; i < numSets; i++) {
+            sets[i] = new LongHopscotchSet(elementsPerSet);
+        }
+    }
+
+    public boolean add(final long entryValue) {
+        final int hashValue = LongHopscotchSet.longHash(entryValue);
+        final LongHopscotchSet set = sets[setIndexOf(hashValue)];
+        synchronized (set) {
+            return set.add(entryValue, hashValue);
+        }
+    }
+
+    /**
+     * Adds all the values, filling the stripes in parallel
+     */
+    public void addAll(final long[] entryValues) {
+        for (final long val : entryValues) {
+            Utils.validateArg(val >= 0, "Tried to add negative entry to ConcurrentLongHopscotchSet");
+        }
+
+        // counting sort of the values by stripe
+        final int numSets = sets.length;
+        final int[] setIndices = new int[entryValues.length];
+        final int[] setStarts = new int[numSets + 1];
+        for (int i = 0; i < entryValues.length; i++) {
+            setIndices[i] = setIndexOf(LongHopscotchSet.longHash(entryValues[i]));
+            setStarts[setIndices[i] + 1] += 1;
+        }
+        for (int i = 0; i < numSets; i++) {
+            setStarts[i + 1] += setStarts[i];
+        }
+        final int[] setEnds = Arrays.copyOf(setStarts, numSets);
+        final long[] sortedValues = new long[entryValues.length];
+        for (int i = 0; i < entryValues.length; i++) {
+            sortedValues[setEnds[setIndices[i]]++] = entryValues[i];
+        }
+
+        IntStream.range(0, numSets).parallel()
+                .filter(i -> setStarts[i] != setStarts[i + 1])
+                .forEach(i -> {
+                    final LongHopscotchSet set = sets[i];
+                    synchronized (set) {
+                        for (int j = setStarts[i]; j != setStarts[i + 1]; ++j) {
+                            set.add(sortedValues[j]);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Adds all the values of a set, which must not be modified concurrently
+     */
+    public void addAll(final LongHopscotchSet values) {
+        final long[] entryValues = new long[values.size()];
+        final LongIterator itr = values.iterator();
+        int i = 0;
+        while (itr.hasNext()) {
+            entryValues[i++] = itr.next();
+        }
+        addAll(entryValues);
+    }
+
+    /**
+     * Adds all the values of a set, which must not be modified concurrently, filling the stripes in parallel
+     */
+    public void addAll(final LargeLongHopscotchSet values) {
+        values.getSets().parallelStream().forEach(this::addAll);
+    }
+
+    public boolean contains(final long key) {
+        final int hash = LongHopscotchSet.longHash(key);
+        final LongHopscotchSet set = sets[setIndexOf(hash)];
+        synchronized (set) {
+            return set.contains(key, hash);
+        }
+    }
+
+    public boolean containsAll(final long[] vals) {
+        for (final long val : vals) {
+            if (!contains(val))
+                return false;
+        }
+        return true;
+    }
+
+    public boolean remove(final long key) {
+        final int hash = LongHopscotchSet.longHash(key);
+        final LongHopscotchSet set = sets[setIndexOf(hash)];
+        synchronized (set) {
+            return set.remove(key, hash);
+        }
+    }
+
+    /**
+     * Number of elements. Only a snapshot while other threads are adding or removing.
+     */
+    public long size() {
+        long sum = 0;
+        for (final LongHopscotchSet set : sets) {
+            synchronized (set) {
+                sum += set.size();
+            }
+        }
+        return sum;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public long capacity() {
+        long sum = 0;
+        for (final LongHopscotchSet set : sets) {
+            synchronized (set) {
+                sum += set.capacity();
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Number of stripes, i.e. of threads that can insert at the same time
+     */
+    public int getConcurrencyLevel() {
+        return sets.length;
+    }
+
+    /**
+     * Hands the stripes over to a LargeLongHopscotchSet, once all the entries are in. The result is backed by the same
+     * stripes, so this set must not be modified afterwards.
+     */
+    public LargeLongHopscotchSet toLargeLongHopscotchSet() {
+        final List<LongHopscotchSet> setList = new ArrayList<>(sets.length);
+        for (final LongHopscotchSet set : sets) {
+            // locking publishes the last insertions of other threads to the thread that takes over the stripes
+            synchronized (set) {
+                setList.add(set);
+            }
+        }
+        return new LargeLongHopscotchSet(setList);
+    }
+
+    private int setIndexOf(final int hash) {
+        return LargeLongHopscotchSet.setIndexOf(hash, sets.length);
+    }
+}
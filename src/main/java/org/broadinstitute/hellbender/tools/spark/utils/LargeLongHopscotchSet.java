@@ -27,15 +27,8 @@ public final class LargeLongHopscotchSet implements Serializable {
     public LargeLongHopscotchSet(final long numElements) {
         Utils.validateArg(numElements > 0, "Number of elements must be greater than 0");
 
-        int elementsPerPartition = (int) Math.sqrt(numElements);
-        int partitions;
-        try {
-            partitions = SetSizeUtils.getLegalSizeBelow(elementsPerPartition);
-        } catch (final IllegalArgumentException e) {
-            //If there were no legal sizes small enough, just use 1 set
-            partitions = 1;
-        }
-        elementsPerPartition = (int) ((numElements / partitions) + 1);
+        final int partitions = numPartitionsFor(numElements);
+        final int elementsPerPartition = (int) ((numElements / partitions) + 1);
 
         sets = new ArrayList<>();
         for (int i = 0; i < partitions; i++) {
@@ -44,6 +37,29 @@ public final class LargeLongHopscotchSet implements Serializable {
         numSets = sets.size();
     }
 
+    /**
+     * Wraps partitions that were filled elsewhere (e.g. by a {@link ConcurrentLongHopscotchSet}), each entry being in
+     * the partition given by its hash modulo the number of partitions.
+     */
+    LargeLongHopscotchSet(final List<LongHopscotchSet> sets) {
+        Utils.validateArg(!sets.isEmpty(), "There must be at least one partition");
+        this.sets = sets;
+        numSets = sets.size();
+    }
+
+    /**
+     * Number of partitions used for a given number of elements
+     */
+    static int numPartitionsFor(final long numElements) {
+        final int elementsPerPartition = (int) Math.sqrt(numElements);
+        try {
+            return SetSizeUtils.getLegalSizeBelow(elementsPerPartition);
+        } catch (final IllegalArgumentException e) {
+            //If there were no legal sizes small enough, just use 1 set
+            return 1;
+        }
+    }
+
     @SuppressWarnings("unchecked")
     protected LargeLongHopscotchSet(final Kryo kryo, final Input stream) {
         final boolean oldReferences = kryo.getReferences();
@@ -142,6 +158,10 @@ public final class LargeLongHopscotchSet implements Serializable {
     }
 
     private int setIndexOf(final int hash) {
+        return setIndexOf(hash, numSets);
+    }
+
+    static int setIndexOf(final int hash, final int numSets) {
         return Integer.remainderUnsigned(hash, numSets);
     }
 
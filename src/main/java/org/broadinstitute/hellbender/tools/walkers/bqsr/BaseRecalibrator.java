@@ -3,6 +3,7 @@ package org.broadinstitute.hellbender.tools.walkers.bqsr;
 import htsjdk.tribble.Feature;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
 import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
@@ -87,6 +88,12 @@ public final class BaseRecalibrator extends ReadWalker {
             "(such as read group, reported quality score, machine cycle, and nucleotide context).";
 
     public static final String KNOWN_SITES_ARG_FULL_NAME = "known-sites";
+    public static final String THREADS_LONG_NAME = "threads";
+
+    /**
+     * Number of reads handed to a worker thread at a time when running with more than one thread
+     */
+    private static final int READ_BATCH_SIZE = 1000;
 
     protected static final Logger logger = LogManager.getLogger(BaseRecalibrator.class);
 
@@ -115,10 +122,21 @@ public final class BaseRecalibrator extends ReadWalker {
     @Argument(shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME, fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME, doc = "The output recalibration table file to create", optional = false)
     private File recalTableFile = null;
 
+    /**
+     * If greater than 1, the recalibration data for each read (BAQ, error arrays and covariate keys) is computed by
+     * this many worker threads. Reads are handed to the workers in batches, each worker accumulates its own partial
+     * recalibration tables, and the partial tables are merged at the end of the traversal.
+     */
+    @Advanced
+    @Argument(fullName = THREADS_LONG_NAME, doc = "Number of threads to use for computing recalibration data", optional = true, minValue = 1)
+    private int numThreads = 1;
+
     private BaseRecalibrationEngine recalibrationEngine;
 
     private ReferenceDataSource referenceDataSource; // datasource for the reference. We're using a different one from the engine itself to avoid messing with its caches.
 
+    private BaseRecalibratorWorkerPool workerPool = null;
+
     /**
      * an object that keeps track of the information necessary for quality score quantization
      */
@@ -143,7 +161,14 @@ public final class BaseRecalibrator extends ReadWalker {
 
         recalibrationEngine = new BaseRecalibrationEngine(recalArgs, getHeaderForReads());
         recalibrationEngine.logCovariatesUsed();
-        referenceDataSource = ReferenceDataSource.of(referenceArguments.getReferencePath());
+        if ( numThreads > 1 ) {
+            logger.info("Computing recalibration data using " + numThreads + " threads");
+            workerPool = new BaseRecalibratorWorkerPool(numThreads, READ_BATCH_SIZE,
+                    () -> new BaseRecalibrationEngine(recalArgs, getHeaderForReads()),
+                    () -> ReferenceDataSource.of(referenceArguments.getReferencePath()));
+        } else {
+            referenceDataSource = ReferenceDataSource.of(referenceArguments.getReferencePath());
+        }
     }
 
     @Override
@@ -182,11 +207,18 @@ public final class BaseRecalibrator extends ReadWalker {
      */
     @Override
     public void apply( GATKRead read, ReferenceContext ref, FeatureContext featureContext ) {
-        recalibrationEngine.processRead(read, referenceDataSource, featureContext.getValues(knownSites));
+        if ( workerPool != null ) {
+            workerPool.submit(read, featureContext.getValues(knownSites));
+        } else {
+            recalibrationEngine.processRead(read, referenceDataSource, featureContext.getValues(knownSites));
+        }
     }
 
     @Override
     public Object onTraversalSuccess() {
+        if ( workerPool != null ) {
+            recalibrationEngine = workerPool.finish();
+        }
         recalibrationEngine.finalizeData();
 
         logger.info("Calculating quantized quality scores...");
@@ -200,6 +232,13 @@ public final class BaseRecalibrator extends ReadWalker {
         return recalibrationEngine.getNumReadsProcessed();
     }
 
+    @Override
+    public void closeTool() {
+        if ( workerPool != null ) {
+            workerPool.close();
+        }
+    }
+
     /**
      * go through the quality score table and use the # observations and the empirical quality score
      * to build a quality score histogram for quantization. Then use the QuantizeQual algorithm to
@@ -0,0 +1,181 @@
+package org.broadinstitute.hellbender.tools.walkers.bqsr;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import htsjdk.samtools.util.Locatable;
+import org.broadinstitute.hellbender.engine.ReferenceDataSource;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.recalibration.BaseRecalibrationEngine;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
+
+/**
+ * Runs {@link BaseRecalibrationEngine#processRead} on a fixed pool of threads.
+ *
+ * Reads are collected into batches on the traversal thread, along with the known sites overlapping each read,
+ * and each batch is processed by whichever worker is idle. Every worker has its own {@link BaseRecalibrationEngine}
+ * (and therefore its own covariate key scratch space and partial recalibration tables) and its own
+ * {@link ReferenceDataSource}, so workers never share mutable state. At most {@code 2 * numThreads} batches are in
+ * flight at once; once this limit is reached, {@link #submit} blocks the traversal thread until the oldest batch has
+ * been processed. The partial tables of all workers are merged by {@link #finish}.
+ */
+final class BaseRecalibratorWorkerPool implements AutoCloseable {
+
+    /**
+     * A worker's private engine and reference
+     */
+    private static final class Worker {
+        private final BaseRecalibrationEngine engine;
+        private final ReferenceDataSource reference;
+
+        private Worker( final BaseRecalibrationEngine engine, final ReferenceDataSource reference ) {
+            this.engine = Utils.nonNull(engine, "engineFactory returned a null engine");
+            this.reference = Utils.nonNull(reference, "referenceFactory returned a null reference");
+        }
+
+        private void process( final List<GATKRead> reads, final List<List<? extends Locatable>> knownSites ) {
+            for ( int i = 0; i < reads.size(); i++ ) {
+                engine.processRead(reads.get(i), reference, knownSites.get(i));
+            }
+        }
+    }
+
+    private final List<Worker> workers;
+    private final BlockingQueue<Worker> idleWorkers;
+    private final ExecutorService executorService;
+    private final Queue<Future<?>> pendingBatches = new LinkedList<>();
+    private final int maxPendingBatches;
+    private final int batchSize;
+
+    private List<GATKRead> currentReads;
+    private List<List<? extends Locatable>> currentKnownSites;
+
+    /**
+     * @param numThreads number of worker threads to use. Must be >= 1.
+     * @param batchSize number of reads to hand to a worker at a time. Must be >= 1.
+     * @param engineFactory called once per thread, on the calling thread, to create the workers' engines
+     * @param referenceFactory called once per thread, on the calling thread, to create the workers' reference data sources
+     */
+    BaseRecalibratorWorkerPool( final int numThreads, final int batchSize, final Supplier<BaseRecalibrationEngine> engineFactory, final Supplier<ReferenceDataSource> referenceFactory ) {
+        Utils.validateArg(numThreads >= 1, "numThreads must be at least 1");
+        Utils.validateArg(batchSize >= 1, "batchSize must be at least 1");
+        Utils.nonNull(engineFactory);
+        Utils.nonNull(referenceFactory);
+
+        workers = new ArrayList<>(numThreads);
+        idleWorkers = new ArrayBlockingQueue<>(numThreads);
+        for ( int i = 0; i < numThreads; i++ ) {
+            final Worker worker = new Worker(engineFactory.get(), referenceFactory.get());
+            workers.add(worker);
+            idleWorkers.add(worker);
+        }
+
+        final ThreadFactory threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("baseRecalibratorWorker-thread-%d")
+                .setDaemon(true)
+                .build();
+        executorService = Executors.newFixedThreadPool(numThreads, threadFactory);
+        maxPendingBatches = 2 * numThreads;
+        this.batchSize = batchSize;
+        startNewBatch();
+    }
+
+    /**
+     * Add a read to the current batch, handing the batch to a worker if it is full. May block until earlier
+     * batches have been processed.
+     *
+     * @param read read to process. Must not be modified by the caller after submission.
+     * @param knownSites known sites overlapping the read; must be safe to access from a worker thread
+     */
+    void submit( final GATKRead read, final List<? extends Locatable> knownSites ) {
+        Utils.nonNull(read);
+        Utils.nonNull(knownSites);
+
+        currentReads.add(read);
+        currentKnownSites.add(knownSites);
+        if ( currentReads.size() >= batchSize ) {
+            submitCurrentBatch();
+        }
+    }
+
+    /**
+     * Process all remaining reads, and merge the data collected by every worker.
+     *
+     * @return an engine holding the combined (not yet finalized) data for all submitted reads
+     */
+    BaseRecalibrationEngine finish() {
+        if ( ! currentReads.isEmpty() ) {
+            submitCurrentBatch();
+        }
+        while ( ! pendingBatches.isEmpty() ) {
+            waitForOldestBatch();
+        }
+
+        final BaseRecalibrationEngine combined = workers.get(0).engine;
+        for ( int i = 1; i < workers.size(); i++ ) {
+            combined.combine(workers.get(i).engine);
+        }
+        return combined;
+    }
+
+    private void startNewBatch() {
+        currentReads = new ArrayList<>(batchSize);
+        currentKnownSites = new ArrayList<>(batchSize);
+    }
+
+    private void submitCurrentBatch() {
+        while ( pendingBatches.size() >= maxPendingBatches ) {
+            waitForOldestBatch();
+        }
+
+        final List<GATKRead> reads = currentReads;
+        final List<List<? extends Locatable>> knownSites = currentKnownSites;
+        pendingBatches.add(executorService.submit(() -> {
+            final Worker worker = idleWorkers.take();
+            try {
+                worker.process(reads, knownSites);
+            } finally {
+                idleWorkers.put(worker);
+            }
+            return null;
+        }));
+        startNewBatch();
+    }
+
+    private void waitForOldestBatch() {
+        try {
+            pendingBatches.remove().get();
+        } catch ( final ExecutionException e ) {
+            // rethrow the worker's own exception if possible, so that UserExceptions etc. are reported as such
+            if ( e.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GATKException("Problem processing a batch of reads", e);
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while processing a batch of reads", e);
+        }
+    }
+
+    /**
+     * Shut down the worker threads and close the workers' reference data sources. Reads that have not been
+     * processed via {@link #finish} are discarded.
+     */
+    @Override
+    public void close() {
+        executorService.shutdownNow();
+        workers.forEach(worker -> worker.reference.close());
+    }
+}
@@ -23,8 +23,8 @@ public final class GenotypeLikelihoodCalculator {
      * Offset table for this calculator.
      *
      * <p>
-     *     This is a shallow copy of {@link GenotypeLikelihoodCalculators#alleleFirstGenotypeOffsetByPloidy} when the calculator was created
-     *     thus it follows the same format as that array. Please refer to its documentation.
+     *     This is the offset table shared by {@link GenotypeLikelihoodCalculators} when the calculator was created
+     *     thus it follows the format described in that class. Please refer to its documentation.
      * </p>
      *
      * <p>You can assume that this offset table contain at least (probably more) the numbers corresponding to the allele count and ploidy for this calculator.
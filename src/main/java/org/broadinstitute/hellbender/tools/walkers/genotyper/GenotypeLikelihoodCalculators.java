@@ -7,6 +7,8 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Genotype likelihood calculator utility.
@@ -15,20 +17,24 @@ import java.util.Arrays;
  *     This class provide genotype likelihood calculators with any number of alleles able given an arbitrary ploidy and allele
  *     count (number of distinct alleles).
  * </p>
+ *
+ * <p>
+ *     The genotype tables behind the calculators are shared by all instances of this class in the process, so creating
+ *     instances is cheap and the tables are built only once, regardless of how many genotyping engines are running.
+ *     The tables can be read concurrently without locking; when a larger ploidy or allele count is requested
+ *     they are grown copying the existing genotypes into new, larger tables that replace the old ones.
+ * </p>
+ *
+ * <p>
+ *     Calculators carry per-read buffers, so they are not thread-safe. {@link #getInstance(int, int)} returns a calculator
+ *     that belongs to the calling thread and that is reused (together with its buffers) by later requests with the same
+ *     ploidy and allele count from that thread; it should not be handed to other threads.
+ * </p>
  */
 public final class GenotypeLikelihoodCalculators {
 
     private static final Logger logger = LogManager.getLogger(GenotypeLikelihoodCalculators.class);
 
-    /**
-     * The current maximum ploidy supported by the tables.
-     * <p>
-     *     Its initial value indicates the initial capacity of the shared {@link #genotypeTableByPloidy}. Feel free
-     *     to change it to anything reasonable that is non-negative.
-     * </p>
-     */
-    private int maximumPloidy = 2; // its initial value is the initial capacity of the shared tables.
-
     /**
      * Maximum possible number of genotypes that this calculator can handle.
      */
@@ -39,34 +45,83 @@ public final class GenotypeLikelihoodCalculators {
      */
     static final int GENOTYPE_COUNT_OVERFLOW = -1;
 
+    private static final double LOG10_MAX_INT = Math.log10(Integer.MAX_VALUE);
+
+    /**
+     * Maximum number of calculators kept for reuse by each thread; the least recently used ones are dropped first.
+     */
+    static final int MAXIMUM_CACHED_CALCULATORS_PER_THREAD = 100;
+
     /**
-     * The current maximum allele index supported by the tables.
+     * The shared tables, replaced (never modified) when they need to grow.
      * <p>
-     *     Its initial value indicates the initial capacity of the shared {@link #alleleFirstGenotypeOffsetByPloidy} table.
-     *     Feel free to change it to anything reasonable that is non-negative.
+     *     Their initial capacity is ploidy 2 and maximum allele index 1. Feel free to change it to anything reasonable
+     *     that is non-negative.
      * </p>
      */
-    private int maximumAllele = 1; // its initial value is the initial capacity of the shared tables.
+    private static volatile GenotypeTables tables = new GenotypeTables(2, 1, null);
 
     /**
-     * Shared copy of the offset table as described in {@link #buildGenotypeAlleleCountsTable(int, int, int[][])}.
-     *
-     * This reference holds the largest requested so far in terms of maximum-allele and maximum-ploidy.
+     * Calculators of each thread by ploidy and allele count (see {@link #calculatorKey(int, int)}).
      */
-    private int[][] alleleFirstGenotypeOffsetByPloidy =
-            buildAlleleFirstGenotypeOffsetTable(maximumPloidy, maximumAllele);
+    private static final ThreadLocal<Map<Long, GenotypeLikelihoodCalculator>> calculatorsByThread =
+            ThreadLocal.withInitial(() -> new LinkedHashMap<Long, GenotypeLikelihoodCalculator>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
 
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<Long, GenotypeLikelihoodCalculator> eldest) {
+                    return size() > MAXIMUM_CACHED_CALCULATORS_PER_THREAD;
+                }
+            });
 
     /**
-     * Shared table of genotypes give the ploidy sorted by their index in the likelihood array.
-     *
-     * <p>
-     *  Its format is described in {@link #buildGenotypeAlleleCountsTable(int, int, int[][])}.
-     * </p>
+     * Immutable snapshot of the shared tables, with the capacity they were built for.
      */
-    private GenotypeAlleleCounts[][] genotypeTableByPloidy =
-            buildGenotypeAlleleCountsTable(maximumPloidy,maximumAllele,alleleFirstGenotypeOffsetByPloidy);
+    private static final class GenotypeTables {
+
+        /**
+         * The maximum ploidy supported by the tables.
+         */
+        private final int maximumPloidy;
+
+        /**
+         * The maximum allele index supported by the tables.
+         */
+        private final int maximumAllele;
+
+        /**
+         * The offset table as described in {@link #buildAlleleFirstGenotypeOffsetTable(int, int)}.
+         */
+        private final int[][] alleleFirstGenotypeOffsetByPloidy;
+
+        /**
+         * Table of genotypes give the ploidy sorted by their index in the likelihood array.
+         *
+         * <p>
+         *  Its format is described in {@link #buildGenotypeAlleleCountsTable(int, int, int[][], GenotypeAlleleCounts[][])}.
+         * </p>
+         */
+        private final GenotypeAlleleCounts[][] genotypeTableByPloidy;
+
+        /**
+         * @param previous smaller tables whose genotypes are reused, or {@code null}.
+         */
+        private GenotypeTables(final int maximumPloidy, final int maximumAllele, final GenotypeTables previous) {
+            this.maximumPloidy = maximumPloidy;
+            this.maximumAllele = maximumAllele;
+            alleleFirstGenotypeOffsetByPloidy = buildAlleleFirstGenotypeOffsetTable(maximumPloidy, maximumAllele);
+            genotypeTableByPloidy = buildGenotypeAlleleCountsTable(maximumPloidy, maximumAllele, alleleFirstGenotypeOffsetByPloidy,
+                    previous == null ? null : previous.genotypeTableByPloidy);
+        }
 
+        private boolean supports(final int ploidy, final int alleleCount) {
+            return ploidy <= maximumPloidy && alleleCount <= maximumAllele;
+        }
+    }
+
+    /**
+     * Creates a view of the shared calculator tables.
+     */
     public GenotypeLikelihoodCalculators(){
 
     }
@@ -180,24 +235,32 @@ public final class GenotypeLikelihoodCalculators {
      *     would be equal to the count of possible genotypes for ploidy 4.
      * </p>
      *
+     * <p>
+     *     The order of the genotypes of a ploidy does not depend on the number of alleles, so the genotypes
+     *     of {@code previousTable}, if provided, are reused as the first elements of the corresponding rows.
+     * </p>
+     *
      * @param maximumPloidy maximum ploidy to use in queries to the resulting table.
      * @param maximumAllele maximum allele index to use in queries to the resulting table.
      * @param offsetTable an allele first genotype offset table as constructed using {@link #buildAlleleFirstGenotypeOffsetTable(int, int)}
      *                    that supports at least up to {@code maximumAllele} and {@code maximumPloidy}.
+     * @param previousTable a table previously built by this method with smaller capacity, or {@code null}.
      *
      * @throws IllegalArgumentException if {@code maximumPloidy} or {@code maximumAllele} is negative, or {@code offsetTable} is {@code null},
      *   or it does not have the capacity to handle the requested maximum ploidy or allele index.
      *
      * @return never {@code null}.
      */
-    private static GenotypeAlleleCounts[][] buildGenotypeAlleleCountsTable(final int maximumPloidy, final int maximumAllele, final int[][] offsetTable) {
+    private static GenotypeAlleleCounts[][] buildGenotypeAlleleCountsTable(final int maximumPloidy, final int maximumAllele, final int[][] offsetTable,
+                                                                           final GenotypeAlleleCounts[][] previousTable) {
         checkPloidyAndMaximumAllele(maximumPloidy, maximumAllele);
         checkOffsetTableCapacity(offsetTable,maximumPloidy,maximumAllele);
         final int rowCount = maximumPloidy + 1;
         final GenotypeAlleleCounts[][] result = new GenotypeAlleleCounts[rowCount][]; // each row has a different number of columns.
 
         for (int ploidy = 0; ploidy <= maximumPloidy; ploidy++) {
-            result[ploidy] = buildGenotypeAlleleCountsArray(ploidy, maximumAllele, offsetTable);
+            final GenotypeAlleleCounts[] previousRow = previousTable != null && ploidy < previousTable.length ? previousTable[ploidy] : null;
+            result[ploidy] = buildGenotypeAlleleCountsArray(ploidy, maximumAllele, offsetTable, previousRow);
         }
 
         return result;
@@ -228,19 +291,25 @@ public final class GenotypeLikelihoodCalculators {
      * @param alleleCount number of different alleles that the genotype table must support.
      * @param genotypeOffsetTable table with the offset of the first genotype that contain an allele given
      *                            the ploidy and its index.
+     * @param previousArray the first genotypes of this ploidy, to be reused, or {@code null}.
      *
      * @throws IllegalArgumentException if {@code ploidy} or {@code length} is negative.
      *
      * @return never {@code null}, follows the specification above.
      */
-    private static GenotypeAlleleCounts[] buildGenotypeAlleleCountsArray(final int ploidy, final int alleleCount, final int[][] genotypeOffsetTable) {
+    private static GenotypeAlleleCounts[] buildGenotypeAlleleCountsArray(final int ploidy, final int alleleCount, final int[][] genotypeOffsetTable,
+                                                                         final GenotypeAlleleCounts[] previousArray) {
         Utils.validateArg(ploidy >= 0, () -> "the requested ploidy cannot be negative: " + ploidy);
         Utils.validateArg(alleleCount >= 0, () -> "the requested maximum allele cannot be negative: " + alleleCount);
         final int length = genotypeOffsetTable[ploidy][alleleCount];
         final int strongRefLength = length == GENOTYPE_COUNT_OVERFLOW ? MAXIMUM_STRONG_REF_GENOTYPE_PER_PLOIDY : Math.min(length, MAXIMUM_STRONG_REF_GENOTYPE_PER_PLOIDY);
         final GenotypeAlleleCounts[] result = new GenotypeAlleleCounts[strongRefLength];
-        result[0] = GenotypeAlleleCounts.first(ploidy);
-        for (int genotypeIndex = 1; genotypeIndex < strongRefLength; genotypeIndex++) {
+        final int reusedLength = previousArray == null ? 0 : Math.min(previousArray.length, strongRefLength);
+        System.arraycopy(previousArray == null ? result : previousArray, 0, result, 0, reusedLength);
+        if (reusedLength == 0) {
+            result[0] = GenotypeAlleleCounts.first(ploidy);
+        }
+        for (int genotypeIndex = Math.max(reusedLength, 1); genotypeIndex < strongRefLength; genotypeIndex++) {
             result[genotypeIndex] = result[genotypeIndex - 1].next();
         }
         return result;
@@ -250,6 +319,11 @@ public final class GenotypeLikelihoodCalculators {
     /**
      * Returns an instance given its ploidy and the number of alleles.
      *
+     * <p>
+     *     The calculator belongs to the calling thread: later calls from the same thread with the same ploidy and allele
+     *     count may return the same instance, reusing its buffers, so it must not be used by other threads.
+     * </p>
+     *
      * @param alleleCount the required allele-count.
      * @param ploidy the required ploidy-count.
      *
@@ -259,46 +333,61 @@ public final class GenotypeLikelihoodCalculators {
      */
     public GenotypeLikelihoodCalculator getInstance(final int ploidy, final int alleleCount) {
         checkPloidyAndMaximumAllele(ploidy, alleleCount);
-
-        if (calculateGenotypeCountUsingTables(ploidy, alleleCount) == GENOTYPE_COUNT_OVERFLOW) {
-            final double largeGenotypeCount = Math.pow(10, MathUtils.log10BinomialCoefficient(ploidy + alleleCount - 1, alleleCount - 1));
-            throw new IllegalArgumentException(String.format("the number of genotypes is too large for ploidy %d and allele %d: approx. %.0f", ploidy, alleleCount, largeGenotypeCount));
+        checkGenotypeCountIsNotTooLarge(ploidy, alleleCount);
+        final GenotypeTables tables = ensureCapacity(alleleCount, ploidy);
+        if (tables.alleleFirstGenotypeOffsetByPloidy[ploidy][alleleCount] == GENOTYPE_COUNT_OVERFLOW) {
+            throw genotypeCountTooLargeException(ploidy, alleleCount);
         }
 
+        final Map<Long, GenotypeLikelihoodCalculator> calculators = calculatorsByThread.get();
+        final Long key = calculatorKey(ploidy, alleleCount);
+        final GenotypeLikelihoodCalculator cached = calculators.get(key);
+        if (cached != null) {
+            return cached;
+        }
         // At this point the tables must have at least the requested capacity, likely to be much more.
-        return new GenotypeLikelihoodCalculator(ploidy, alleleCount, alleleFirstGenotypeOffsetByPloidy, genotypeTableByPloidy);
+        final GenotypeLikelihoodCalculator result = new GenotypeLikelihoodCalculator(ploidy, alleleCount,
+                tables.alleleFirstGenotypeOffsetByPloidy, tables.genotypeTableByPloidy);
+        calculators.put(key, result);
+        return result;
+    }
+
+    private static long calculatorKey(final int ploidy, final int alleleCount) {
+        return ((long) ploidy << 32) | alleleCount;
     }
 
     /**
-     * Update of shared tables
+     * Returns shared tables that support the requested maximum allele index and ploidy, growing them if necessary.
+     *
+     * <p>
+     *     Readers do not lock: they get whatever tables are current, which never change once published. Growth is
+     *     serialized so that concurrent requests do not build the same tables twice.
+     * </p>
      *
      * @param requestedMaximumAllele the new requested maximum allele maximum.
      * @param requestedMaximumPloidy the new requested ploidy maximum.
+     * @return never {@code null}.
      */
-    private void ensureCapacity(final int requestedMaximumAllele, final int requestedMaximumPloidy) {
-
-        final boolean needsToExpandAlleleCapacity = requestedMaximumAllele > maximumAllele;
-        final boolean needsToExpandPloidyCapacity = requestedMaximumPloidy > maximumPloidy;
-
-        // Double check with the lock on to avoid double work.
-        if (!needsToExpandAlleleCapacity && !needsToExpandPloidyCapacity) {
-            return;
+    private static GenotypeTables ensureCapacity(final int requestedMaximumAllele, final int requestedMaximumPloidy) {
+        final GenotypeTables current = tables;
+        if (current.supports(requestedMaximumPloidy, requestedMaximumAllele)) {
+            return current;
         }
+        synchronized (GenotypeLikelihoodCalculators.class) {
+            // Double check with the lock on to avoid double work.
+            final GenotypeTables old = tables;
+            if (old.supports(requestedMaximumPloidy, requestedMaximumAllele)) {
+                return old;
+            }
 
-        final int newMaximumPloidy = Math.max(maximumPloidy, requestedMaximumPloidy);
-        final int newMaximumAllele = Math.max(maximumAllele, requestedMaximumAllele);
-
-        logger.debug("Expanding capacity ploidy:" + maximumPloidy + "->" + newMaximumPloidy + " allele:" +  maximumAllele +"->" + newMaximumAllele );
+            final int newMaximumPloidy = Math.max(old.maximumPloidy, requestedMaximumPloidy);
+            final int newMaximumAllele = Math.max(old.maximumAllele, requestedMaximumAllele);
 
-        // Update tables first.
-        alleleFirstGenotypeOffsetByPloidy = buildAlleleFirstGenotypeOffsetTable(newMaximumPloidy,newMaximumAllele);
-        genotypeTableByPloidy = buildGenotypeAlleleCountsTable(newMaximumPloidy,newMaximumAllele,alleleFirstGenotypeOffsetByPloidy);
+            logger.debug("Expanding capacity ploidy:" + old.maximumPloidy + "->" + newMaximumPloidy + " allele:" +  old.maximumAllele +"->" + newMaximumAllele );
 
-        if (needsToExpandAlleleCapacity) {
-            maximumAllele = requestedMaximumAllele;
-        }
-        if (needsToExpandPloidyCapacity) {
-            maximumPloidy = requestedMaximumPloidy;
+            final GenotypeTables grown = new GenotypeTables(newMaximumPloidy, newMaximumAllele, old);
+            tables = grown;
+            return grown;
         }
     }
 
@@ -341,12 +430,27 @@ public final class GenotypeLikelihoodCalculators {
 
         final int result = calculateGenotypeCountUsingTables(ploidy, alleleCount);
         if (result == GENOTYPE_COUNT_OVERFLOW) {
-            final double largeGenotypeCount = Math.pow(10, MathUtils.log10BinomialCoefficient(ploidy + alleleCount - 1, alleleCount - 1));
-            throw new IllegalArgumentException(String.format("the number of genotypes is too large for ploidy %d and allele %d: approx. %.0f", ploidy, alleleCount, largeGenotypeCount));
+            throw genotypeCountTooLargeException(ploidy, alleleCount);
         }
         return result;
     }
 
+    /**
+     * Fails before growing the shared tables for ploidy and allele counts whose genotypes are clearly too many to be
+     * counted with an int, as the tables would take a lot of memory for the rest of the run.
+     * Values close to the limit are left to the exact check done with the tables.
+     */
+    private static void checkGenotypeCountIsNotTooLarge(final int ploidy, final int alleleCount) {
+        if (alleleCount > 1 && MathUtils.log10BinomialCoefficient(ploidy + alleleCount - 1, alleleCount - 1) > LOG10_MAX_INT + 1) {
+            throw genotypeCountTooLargeException(ploidy, alleleCount);
+        }
+    }
+
+    private static IllegalArgumentException genotypeCountTooLargeException(final int ploidy, final int alleleCount) {
+        final double largeGenotypeCount = Math.pow(10, MathUtils.log10BinomialCoefficient(ploidy + alleleCount - 1, alleleCount - 1));
+        return new IllegalArgumentException(String.format("the number of genotypes is too large for ploidy %d and allele %d: approx. %.0f", ploidy, alleleCount, largeGenotypeCount));
+    }
+
     /**
      * Compute the maximally acceptable allele count (ref allele included) given the maximally acceptable genotype count.
      * @param ploidy            sample ploidy
@@ -380,11 +484,9 @@ public final class GenotypeLikelihoodCalculators {
         throw new GATKException("Code should never reach here.");
     }
 
-    private int calculateGenotypeCountUsingTables(int ploidy, int alleleCount) {
+    private static int calculateGenotypeCountUsingTables(int ploidy, int alleleCount) {
         checkPloidyAndMaximumAllele(ploidy, alleleCount);
-        if (ploidy > maximumPloidy || alleleCount > maximumAllele) {
-            ensureCapacity(alleleCount, ploidy);
-        }
-        return alleleFirstGenotypeOffsetByPloidy[ploidy][alleleCount];
+        checkGenotypeCountIsNotTooLarge(ploidy, alleleCount);
+        return ensureCapacity(alleleCount, ploidy).alleleFirstGenotypeOffsetByPloidy[ploidy][alleleCount];
     }
-}
\ No newline at end of file
+}
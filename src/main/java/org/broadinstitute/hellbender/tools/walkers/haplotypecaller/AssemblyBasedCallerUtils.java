@@ -161,8 +161,7 @@ public final class AssemblyBasedCallerUtils {
      * @return never {@code null}.
      */
     public static ReadLikelihoodCalculationEngine createLikelihoodCalculationEngine(final LikelihoodEngineArgumentCollection likelihoodArgs) {
-        final double log10GlobalReadMismappingRate = likelihoodArgs.phredScaledGlobalReadMismappingRate < 0 ? - Double.MAX_VALUE
-                : QualityUtils.qualToErrorProbLog10(likelihoodArgs.phredScaledGlobalReadMismappingRate);
+        final double log10GlobalReadMismappingRate = getLog10GlobalReadMismappingRate(likelihoodArgs);
 
         switch ( likelihoodArgs.likelihoodEngineImplementation) {
             case PairHMM:
@@ -174,6 +173,14 @@ public final class AssemblyBasedCallerUtils {
         }
     }
 
+    /**
+     * @return the global read mismapping rate of the likelihood arguments, in log10 units ({@code -Double.MAX_VALUE} if disabled)
+     */
+    public static double getLog10GlobalReadMismappingRate(final LikelihoodEngineArgumentCollection likelihoodArgs) {
+        return likelihoodArgs.phredScaledGlobalReadMismappingRate < 0 ? - Double.MAX_VALUE
+                : QualityUtils.qualToErrorProbLog10(likelihoodArgs.phredScaledGlobalReadMismappingRate);
+    }
+
     public static ReadThreadingAssembler createReadThreadingAssembler(final AssemblyBasedCallerArgumentCollection args) {
         final ReadThreadingAssemblerArgumentCollection rtaac = args.assemblerArgs;
         final ReadThreadingAssembler assemblyEngine = new ReadThreadingAssembler(rtaac.maxNumHaplotypesInPopulation, rtaac.kmerSizes, rtaac.dontIncreaseKmerSizesForCycles, rtaac.allowNonUniqueKmersInRef, rtaac.numPruningSamples);
@@ -183,6 +190,7 @@ public final class AssemblyBasedCallerUtils {
         assemblyEngine.setDebugGraphTransformations(rtaac.debugGraphTransformations);
         assemblyEngine.setRecoverDanglingBranches(!rtaac.doNotRecoverDanglingBranches);
         assemblyEngine.setMinDanglingBranchLength(rtaac.minDanglingBranchLength);
+        assemblyEngine.setSkipKmerSizesThatFailedInSameRepeat(rtaac.skipKmerSizesFailedInSameRepeat);
         assemblyEngine.setMinBaseQualityToUseInAssembly(args.minBaseQualityScore);
 
         if ( rtaac.graphOutput != null ) {
@@ -2,11 +2,13 @@ package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
 
 import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.samtools.reference.ReferenceSequenceFile;
+import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.variantcontext.writer.VariantContextWriter;
 import java.nio.file.Path;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
 import org.broadinstitute.barclay.argparser.BetaFeature;
+import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
 import org.broadinstitute.barclay.help.DocumentedFeature;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
@@ -129,6 +131,9 @@ import org.broadinstitute.hellbender.utils.io.IOUtils;
  *     is automatically set to 0. This cannot be overridden by the command line. The threshold can be set manually
  *     to the desired level in the next step of the workflow (GenotypeGVCFs)</li>
  *     <li>We recommend using a list of intervals to speed up analysis. See <a href='https://software.broadinstitute.org/gatk/documentation/article?id=4133'>this document</a> for details.</li>
+ *     <li>Assembly regions can be processed on multiple threads with `--assembly-region-threads`. The output is
+ *     identical to that of a single-threaded run. This option cannot be combined with `-bamout` or
+ *     `--skip-kmer-sizes-failed-in-same-repeat`.</li>
  * </ul>
  *
  */
@@ -191,8 +196,18 @@ public final class HaplotypeCaller extends AssemblyRegionWalker {
         return hcEngine;
     }
 
+    @Override
+    protected boolean supportsParallelAssemblyRegionProcessing() { return true; }
+
     @Override
     public void onTraversalStart() {
+        if ( assemblyRegionThreads > 1 && hcArgs.bamOutputPath != null ) {
+            throw new CommandLineException.BadArgumentValue(ASSEMBLY_REGION_THREADS_LONG_NAME, String.valueOf(assemblyRegionThreads), "cannot be combined with --bam-output");
+        }
+        if ( assemblyRegionThreads > 1 && hcArgs.assemblerArgs.skipKmerSizesFailedInSameRepeat > 0 ) {
+            throw new CommandLineException.BadArgumentValue(ASSEMBLY_REGION_THREADS_LONG_NAME, String.valueOf(assemblyRegionThreads), "cannot be combined with --skip-kmer-sizes-failed-in-same-repeat");
+        }
+
         final ReferenceSequenceFile referenceReader = getReferenceReader(referenceArguments);
         hcEngine = new HaplotypeCallerEngine(hcArgs, createOutputBamIndex, createOutputBamMD5, getHeaderForReads(), referenceReader);
 
@@ -218,6 +233,32 @@ public final class HaplotypeCaller extends AssemblyRegionWalker {
         hcEngine.callRegion(region, featureContext).forEach(vcfWriter::add);
     }
 
+    @Override
+    protected void prepareAssemblyRegionForWorker(final AssemblyRegion region, final FeatureContext featureContext) {
+        hcEngine.prepareRegion(region, featureContext);
+    }
+
+    /**
+     * Each worker gets its own HaplotypeCallerEngine, and therefore its own reference reader, assembler,
+     * PairHMM and genotyping engine. Calls are added to the (shared) output writer on the traversal thread.
+     */
+    @Override
+    protected AssemblyRegionWorker makeAssemblyRegionWorker() {
+        final HaplotypeCallerEngine workerEngine = new HaplotypeCallerEngine(hcArgs, false, false, getHeaderForReads(), getReferenceReader(referenceArguments));
+        return new AssemblyRegionWorker() {
+            @Override
+            public Runnable processRegion(final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext) {
+                final List<VariantContext> calls = workerEngine.callRegion(region, featureContext);
+                return () -> calls.forEach(vcfWriter::add);
+            }
+
+            @Override
+            public void close() {
+                workerEngine.shutdown();
+            }
+        };
+    }
+
     @Override
     public void closeTool() {
         if ( vcfWriter != null ) {
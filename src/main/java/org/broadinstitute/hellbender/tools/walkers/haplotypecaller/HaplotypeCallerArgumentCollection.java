@@ -82,4 +82,16 @@ public class HaplotypeCallerArgumentCollection extends AssemblyBasedCallerArgume
     @Advanced
     @Argument(fullName = "use-alleles-trigger", doc = "Use additional trigger on variants found in an external alleles file", optional = true)
     public boolean USE_ALLELES_TRIGGER = false;
+
+    /**
+     * Most active regions of a whole genome, particularly in GVCF mode, have reads that show no indels and no soft clips,
+     * and in which well supported high quality mismatches (seen in at least as many reads as the assembly pruning factor)
+     * pile up in at most one column. Local assembly of such a region can only find the reference, or the reference with
+     * that one SNP. With this argument, the haplotypes of these regions are built directly from the pileup and the read
+     * likelihoods are computed without alignment gaps instead of with the PairHMM, which can change the likelihoods and
+     * hence the annotations, genotype qualities and reference confidence of these regions. Only used in discovery mode.
+     */
+    @Advanced
+    @Argument(fullName = "skip-assembly-for-trivial-regions", doc = "Genotype regions with no indel or soft clip evidence and at most one mismatch column without assembly", optional = true)
+    public boolean skipAssemblyForTrivialRegions = false;
 }
@@ -44,6 +44,7 @@ import org.broadinstitute.hellbender.utils.variant.GATKVCFHeaderLines;
 import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
 import org.broadinstitute.hellbender.utils.variant.HomoSapiensConstants;
 import org.broadinstitute.hellbender.utils.variant.writers.GVCFWriter;
+import org.broadinstitute.hellbender.utils.variant.writers.HomRefRun;
 
 import java.io.File;
 import java.util.*;
@@ -79,6 +80,11 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
 
     private ReadLikelihoodCalculationEngine likelihoodCalculationEngine = null;
 
+    // resolves trivial regions without assembly (null unless requested), and computes their likelihoods
+    private PileupPrefilter pileupPrefilter = null;
+
+    private ReadLikelihoodCalculationEngine ungappedLikelihoodCalculationEngine = null;
+
     private HaplotypeCallerGenotypingEngine genotypingEngine = null;
 
     private VariantAnnotatorEngine annotationEngine = null;
@@ -190,6 +196,12 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         assemblyEngine = AssemblyBasedCallerUtils.createReadThreadingAssembler(hcArgs);
         likelihoodCalculationEngine = AssemblyBasedCallerUtils.createLikelihoodCalculationEngine(hcArgs.likelihoodArgs);
 
+        if ( hcArgs.skipAssemblyForTrivialRegions && hcArgs.genotypingOutputMode == GenotypingOutputMode.DISCOVERY ) {
+            pileupPrefilter = new PileupPrefilter(hcArgs.minBaseQualityScore, Math.max(hcArgs.assemblerArgs.minPruneFactor, 1));
+            ungappedLikelihoodCalculationEngine = new UngappedLikelihoodCalculationEngine(
+                    AssemblyBasedCallerUtils.getLog10GlobalReadMismappingRate(hcArgs.likelihoodArgs), hcArgs.likelihoodArgs.BASE_QUALITY_SCORE_THRESHOLD);
+        }
+
         trimmer.initialize(hcArgs.assemblyRegionTrimmerArgs, readsHeader.getSequenceDictionary(), hcArgs.debug,
                 hcArgs.genotypingOutputMode == GenotypingOutputMode.GENOTYPE_GIVEN_ALLELES, emitReferenceConfidence());
     }
@@ -466,12 +478,48 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         return new ActivityProfileState(ref.getInterval(), isActiveProb, averageHQSoftClips.mean() > AVERAGE_HQ_SOFTCLIPS_HQ_BASES_THRESHOLD ? ActivityProfileState.Type.HIGH_QUALITY_SOFT_CLIPS : ActivityProfileState.Type.NONE, averageHQSoftClips.mean() );
     }
 
+    /**
+     * Performs the part of {@link #callRegion} that can modify reads in place (sample filtering, clipping and the
+     * adjustment of base qualities in overlapping read pairs), under exactly the same conditions as
+     * {@link #callRegion} would perform it. Since neighbouring regions can share reads, this allows {@link #callRegion}
+     * to be run concurrently for different regions, by different engines, as long as this method is called for every
+     * region in coordinate order beforehand. Calling this method does not change the calls made by {@link #callRegion}.
+     *
+     * @param region region that will subsequently be passed to {@link #callRegion}
+     * @param features Features overlapping the assembly region
+     */
+    public void prepareRegion(final AssemblyRegion region, final FeatureContext features) {
+        if ( hcArgs.justDetermineActiveRegions ) {
+            return;
+        }
+
+        if ( hcArgs.sampleNameToUse != null ) {
+            removeReadsFromAllSamplesExcept(hcArgs.sampleNameToUse, region);
+        }
+
+        final boolean willBeAssembled;
+        if ( ! region.isActive() ) {
+            willBeAssembled = false;
+        } else if ( hcArgs.genotypingOutputMode == GenotypingOutputMode.GENOTYPE_GIVEN_ALLELES ) {
+            willBeAssembled = features.getValues(hcArgs.alleles).stream().anyMatch(VariantContext::isNotFiltered);
+        } else {
+            willBeAssembled = region.size() != 0;
+        }
+
+        // regions that are not assembled are only finalized when emitting reference confidence
+        // (see referenceModelForNoVariation())
+        if ( willBeAssembled || emitReferenceConfidence() ) {
+            finalizeRegion(region);
+        }
+    }
+
     /**
      * Generate variant calls for an assembly region
      *
      * @param region region to assemble and perform variant calling on
      * @param features Features overlapping the assembly region
-     * @return List of variants discovered in the region (may be empty)
+     * @return List of variants discovered in the region (may be empty). In GVCF mode, the non-variant positions
+     *         come in {@link HomRefRun}s, to be added to the writer made by {@link #makeVCFWriter}.
      */
     public List<VariantContext> callRegion(final AssemblyRegion region, final FeatureContext features) {
         if ( hcArgs.justDetermineActiveRegions ) {
@@ -501,8 +549,18 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
             return referenceModelForNoVariation(region, true);
         }
 
+        // regions whose pileup supports only the reference or a single SNP get their haplotypes without assembly
+        AssemblyResultSet untrimmedAssemblyResult = null;
+        if ( pileupPrefilter != null ) {
+            finalizeRegion(region);
+            untrimmedAssemblyResult = pileupPrefilter.resolveWithoutAssembly(region, referenceReader);
+        }
+        final boolean assembled = untrimmedAssemblyResult == null;
+
         // run the local assembler, getting back a collection of information on how we should proceed
-        final AssemblyResultSet untrimmedAssemblyResult =  AssemblyBasedCallerUtils.assembleReads(region, givenAlleles, hcArgs, readsHeader, samplesList, logger, referenceReader, assemblyEngine, aligner);
+        if ( assembled ) {
+            untrimmedAssemblyResult = AssemblyBasedCallerUtils.assembleReads(region, givenAlleles, hcArgs, readsHeader, samplesList, logger, referenceReader, assemblyEngine, aligner);
+        }
 
         final SortedSet<VariantContext> allVariationEvents = untrimmedAssemblyResult.getVariationEvents();
         // TODO - line bellow might be unnecessary : it might be that assemblyResult will always have those alleles anyway
@@ -550,12 +608,15 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         final Map<String,List<GATKRead>> reads = splitReadsBySample(regionForGenotyping.getReads());
 
         // Calculate the likelihoods: CPU intensive part.
-        final ReadLikelihoods<Haplotype> readLikelihoods =
-                likelihoodCalculationEngine.computeReadLikelihoods(assemblyResult, samplesList, reads);
+        final ReadLikelihoods<Haplotype> readLikelihoods = (assembled ? likelihoodCalculationEngine : ungappedLikelihoodCalculationEngine)
+                .computeReadLikelihoods(assemblyResult, samplesList, reads);
 
         // Realign reads to their best haplotype.
-        final Map<GATKRead, GATKRead> readRealignments = AssemblyBasedCallerUtils.realignReadsToTheirBestHaplotype(readLikelihoods, assemblyResult.getReferenceHaplotype(), assemblyResult.getPaddedReferenceLoc(), aligner);
-        readLikelihoods.changeReads(readRealignments);
+        // (reads of regions resolved without assembly are already aligned without gaps to all the haplotypes)
+        if ( assembled ) {
+            final Map<GATKRead, GATKRead> readRealignments = AssemblyBasedCallerUtils.realignReadsToTheirBestHaplotype(readLikelihoods, assemblyResult.getReferenceHaplotype(), assemblyResult.getPaddedReferenceLoc(), aligner);
+            readLikelihoods.changeReads(readRealignments);
+        }
 
         // Note: we used to subset down at this point to only the "best" haplotypes in all samples for genotyping, but there
         //  was a bad interaction between that selection and the marginalization that happens over each event when computing
@@ -600,9 +661,9 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
                     result.addAll(referenceModelForNoVariation(trimmingResult.nonVariantLeftFlankRegion(), false));
                 }
                 // output variant containing region.
-                result.addAll(referenceConfidenceModel.calculateRefConfidence(assemblyResult.getReferenceHaplotype(),
+                result.addAll(calculateRefConfidence(assemblyResult.getReferenceHaplotype(),
                         calledHaplotypes.getCalledHaplotypes(), assemblyResult.getPaddedReferenceLoc(), regionForGenotyping,
-                        readLikelihoods, genotypingEngine.getPloidyModel(), calledHaplotypes.getCalls()));
+                        readLikelihoods, calledHaplotypes.getCalls()));
                 // output right-flanking non-variant section:
                 if (trimmingResult.hasRightFlankingRegion()) {
                     result.addAll(referenceModelForNoVariation(trimmingResult.nonVariantRightFlankRegion(), false));
@@ -645,15 +706,33 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
             final SimpleInterval paddedLoc = region.getExtendedSpan();
             final Haplotype refHaplotype = AssemblyBasedCallerUtils.createReferenceHaplotype(region, paddedLoc, referenceReader);
             final List<Haplotype> haplotypes = Collections.singletonList(refHaplotype);
-            return referenceConfidenceModel.calculateRefConfidence(refHaplotype, haplotypes,
+            return calculateRefConfidence(refHaplotype, haplotypes,
                     paddedLoc, region, createDummyStratifiedReadMap(refHaplotype, samplesList, region),
-                    genotypingEngine.getPloidyModel(), Collections.emptyList());
+                    Collections.emptyList());
         }
         else {
             return NO_CALLS;
         }
     }
 
+    /**
+     * Calculate the reference confidence over a region. In GVCF mode the non-variant positions come in
+     * {@link HomRefRun}s, that the {@link GVCFWriter} folds into its bands, otherwise one VariantContext per position.
+     */
+    private List<VariantContext> calculateRefConfidence(final Haplotype refHaplotype,
+                                                        final Collection<Haplotype> calledHaplotypes,
+                                                        final SimpleInterval paddedReferenceLoc,
+                                                        final AssemblyRegion region,
+                                                        final ReadLikelihoods<Haplotype> readLikelihoods,
+                                                        final List<VariantContext> variantCalls) {
+        if ( hcArgs.emitReferenceConfidence == ReferenceConfidenceMode.GVCF ) {
+            return referenceConfidenceModel.calculateHomRefRuns(refHaplotype, calledHaplotypes, paddedReferenceLoc, region,
+                    readLikelihoods, genotypingEngine.getPloidyModel(), variantCalls);
+        }
+        return referenceConfidenceModel.calculateRefConfidence(refHaplotype, calledHaplotypes, paddedReferenceLoc, region,
+                readLikelihoods, genotypingEngine.getPloidyModel(), variantCalls);
+    }
+
     /**
      * Create a context that maps each read to the reference haplotype with log10 L of 0
      * @param refHaplotype a non-null reference haplotype
@@ -673,6 +752,11 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
      */
     public void shutdown() {
         likelihoodCalculationEngine.close();
+        if ( pileupPrefilter != null ) {
+            ungappedLikelihoodCalculationEngine.close();
+            logger.info(String.format("Pileup pre-filter: %d active regions resolved as reference, %d as a single SNP, %d assembled",
+                    pileupPrefilter.getReferenceRegionCount(), pileupPrefilter.getSingleSNPRegionCount(), pileupPrefilter.getAssembledRegionCount()));
+        }
         aligner.close();
         if ( haplotypeBAMWriter.isPresent() ) {
             haplotypeBAMWriter.get().close();
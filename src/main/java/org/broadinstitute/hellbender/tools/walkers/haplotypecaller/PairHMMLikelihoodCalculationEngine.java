@@ -79,7 +79,7 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
      *
      * For example, if this is 0.01, then we'd expect 1 error per 100 bp.
      */
-    private static final double EXPECTED_ERROR_RATE_PER_BASE = 0.02;
+    static final double EXPECTED_ERROR_RATE_PER_BASE = 0.02;
     
     /**
      * Create a new PairHMMLikelihoodCalculationEngine using provided parameters and hmm to do its calculations
@@ -177,12 +177,14 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
 
         initializePairHMM(haplotypeList, perSampleReadList);
 
-        // Add likelihoods for each sample's reads to our result
+        // Add likelihoods for each sample's reads to our result, running the reads of all samples through the PairHMM in one batch
         final ReadLikelihoods<Haplotype> result = new ReadLikelihoods<>(samples, haplotypes, perSampleReadList);
         final int sampleCount = result.numberOfSamples();
+        final List<LikelihoodMatrix<Haplotype>> sampleLikelihoods = new ArrayList<>(sampleCount);
         for (int i = 0; i < sampleCount; i++) {
-            computeReadLikelihoods(result.sampleMatrix(i));
+            sampleLikelihoods.add(result.sampleMatrix(i));
         }
+        computeReadLikelihoods(sampleLikelihoods);
 
         result.normalizeLikelihoods(false, log10globalReadMismappingRate);
         result.filterPoorlyModeledReads(EXPECTED_ERROR_RATE_PER_BASE);
@@ -243,16 +245,20 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
         pairHMM.initialize(haplotypes, perSampleReadList, readMaxLength, haplotypeMaxLength);
     }
 
-    private void computeReadLikelihoods(final LikelihoodMatrix<Haplotype> likelihoods) {
-        // Modify the read qualities by applying the PCR error model and capping the minimum base,insertion,deletion qualities
-        final List<GATKRead> processedReads = modifyReadQualities(likelihoods.reads());
-
-        final Map<GATKRead, byte[]> gapContinuationPenalties = buildGapContinuationPenalties(processedReads, constantGCP);
+    private void computeReadLikelihoods(final List<LikelihoodMatrix<Haplotype>> sampleLikelihoods) {
+        final List<List<GATKRead>> processedReads = new ArrayList<>(sampleLikelihoods.size());
+        final Map<GATKRead, byte[]> gapContinuationPenalties = new HashMap<>();
+        for (final LikelihoodMatrix<Haplotype> likelihoods : sampleLikelihoods) {
+            // Modify the read qualities by applying the PCR error model and capping the minimum base,insertion,deletion qualities
+            final List<GATKRead> sampleProcessedReads = modifyReadQualities(likelihoods.reads());
+            processedReads.add(sampleProcessedReads);
+            gapContinuationPenalties.putAll(buildGapContinuationPenalties(sampleProcessedReads, constantGCP));
+        }
 
         // Run the PairHMM to calculate the log10 likelihood of each (processed) reads' arising from each haplotype
-        pairHMM.computeLog10Likelihoods(likelihoods, processedReads, gapContinuationPenalties);
+        pairHMM.computeLog10Likelihoods(sampleLikelihoods, processedReads, gapContinuationPenalties);
 
-        writeDebugLikelihoods(likelihoods);
+        sampleLikelihoods.forEach(this::writeDebugLikelihoods);
     }
 
     /**
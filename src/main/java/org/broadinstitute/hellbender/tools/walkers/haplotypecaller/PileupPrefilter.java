@@ -0,0 +1,162 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
+
+import htsjdk.samtools.CigarElement;
+import htsjdk.samtools.reference.ReferenceSequenceFile;
+import org.broadinstitute.hellbender.engine.AssemblyRegion;
+import org.broadinstitute.hellbender.utils.BaseUtils;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+
+/**
+ * Resolves, from the pileup of their reads, the active regions for which local assembly cannot find anything but the
+ * reference or a single SNP, so that they can skip the assembly.
+ *
+ * <p>
+ *     The reads of a (finalized) region are trivial when none of them has an indel, a skipped region or a soft clip in
+ *     its alignment, and the high quality bases that do not match the reference pile up in at most one column with a
+ *     single alternate base seen at least as often as the assembly graphs would need to keep it after pruning. Soft
+ *     clips kept for assembly are reverted when the region is finalized, so that their bases show up as mismatches here.
+ *     For such a region, the result set of the assembly is built directly, with the reference haplotype and, if there
+ *     is a mismatch column, the reference haplotype with that SNP, whose read likelihoods can be computed without
+ *     alignment gaps by an {@link UngappedLikelihoodCalculationEngine}.
+ * </p>
+ *
+ * <p>
+ *     Counts how many regions took each path. Not thread-safe: meant to be used by a single {@link HaplotypeCallerEngine}.
+ * </p>
+ */
+final class PileupPrefilter {
+
+    private static final int NO_SNP = -1;
+    private static final int NOT_TRIVIAL = -2;
+
+    private final byte minBaseQuality;
+    private final int minMismatchCount;
+
+    private long referenceRegions = 0;
+    private long singleSNPRegions = 0;
+    private long assembledRegions = 0;
+
+    /**
+     * @param minBaseQuality bases with lower qualities are ignored, as they are by the assembler
+     * @param minMismatchCount number of high quality reads needed to take a mismatching base into account. Must be >= 1.
+     */
+    PileupPrefilter(final byte minBaseQuality, final int minMismatchCount) {
+        Utils.validateArg(minMismatchCount >= 1, "minMismatchCount must be at least 1");
+        this.minBaseQuality = minBaseQuality;
+        this.minMismatchCount = minMismatchCount;
+    }
+
+    /**
+     * Build the assembly result set of a finalized region without assembling it, if its reads are trivial
+     *
+     * @param region the finalized region
+     * @return the result set with the reference haplotype, and the SNP haplotype if there is one, or null if the region
+     *         has to be assembled
+     */
+    AssemblyResultSet resolveWithoutAssembly(final AssemblyRegion region, final ReferenceSequenceFile referenceReader) {
+        Utils.nonNull(region);
+        Utils.validateArg(region.isFinalized(), "the region must be finalized");
+
+        final byte[] fullReferenceWithPadding = region.getAssemblyRegionReference(referenceReader, AssemblyBasedCallerUtils.REFERENCE_PADDING_FOR_ASSEMBLY);
+        final SimpleInterval paddedReferenceLoc = AssemblyBasedCallerUtils.getPaddedReferenceLoc(region, AssemblyBasedCallerUtils.REFERENCE_PADDING_FOR_ASSEMBLY, referenceReader);
+        final Haplotype refHaplotype = AssemblyBasedCallerUtils.createReferenceHaplotype(region, paddedReferenceLoc, referenceReader);
+
+        final int snp = findSNP(region, refHaplotype.getBases());
+        if ( snp == NOT_TRIVIAL ) {
+            assembledRegions++;
+            return null;
+        }
+
+        final AssemblyResultSet result = new AssemblyResultSet();
+        result.setRegionForGenotyping(region);
+        result.setFullReferenceWithPadding(fullReferenceWithPadding);
+        result.setPaddedReferenceLoc(paddedReferenceLoc);
+        refHaplotype.setGenomeLocation(region.getExtendedSpan());
+        result.add(refHaplotype);
+
+        if ( snp == NO_SNP ) {
+            referenceRegions++;
+        } else {
+            final byte[] altBases = refHaplotype.getBases().clone();
+            altBases[snp / 4] = BaseUtils.baseIndexToSimpleBase(snp % 4);
+            final Haplotype altHaplotype = new Haplotype(altBases, false, refHaplotype.getAlignmentStartHapwrtRef(), refHaplotype.getCigar());
+            altHaplotype.setGenomeLocation(region.getExtendedSpan());
+            result.add(altHaplotype);
+            singleSNPRegions++;
+        }
+        return result;
+    }
+
+    /**
+     * @param refBases the reference bases over the extended span of the region
+     * @return the SNP, encoded as 4 * its offset in refBases + the index of its alternate base, {@link #NO_SNP} if the
+     *         reads only support the reference, or {@link #NOT_TRIVIAL} if the region has to be assembled
+     */
+    private int findSNP(final AssemblyRegion region, final byte[] refBases) {
+        final int regionStart = region.getExtendedSpan().getStart();
+        final int[] mismatchCounts = new int[refBases.length * 4];
+
+        for ( final GATKRead read : region.getReads() ) {
+            for ( final CigarElement element : read.getCigarElements() ) {
+                switch ( element.getOperator() ) {
+                    case M: case EQ: case X: case H:
+                        break;
+                    default:
+                        return NOT_TRIVIAL;
+                }
+            }
+
+            final byte[] bases = read.getBases();
+            final byte[] quals = read.getBaseQualities();
+            final int offset = read.getStart() - regionStart;
+            for ( int i = 0; i < bases.length; i++ ) {
+                final int refOffset = offset + i;
+                if ( refOffset < 0 || refOffset >= refBases.length || quals[i] < minBaseQuality ) {
+                    continue;
+                }
+                final int baseIndex = BaseUtils.simpleBaseToBaseIndex(bases[i]);
+                if ( baseIndex != -1 && baseIndex != BaseUtils.simpleBaseToBaseIndex(refBases[refOffset]) ) {
+                    mismatchCounts[refOffset * 4 + baseIndex]++;
+                }
+            }
+        }
+
+        int snp = NO_SNP;
+        for ( int refOffset = 0; refOffset < refBases.length; refOffset++ ) {
+            for ( int baseIndex = 0; baseIndex < 4; baseIndex++ ) {
+                if ( mismatchCounts[refOffset * 4 + baseIndex] >= minMismatchCount ) {
+                    // a second column or a second alternate base, or a mismatch against an ambiguous reference base
+                    if ( snp != NO_SNP || ! BaseUtils.isRegularBase(refBases[refOffset]) ) {
+                        return NOT_TRIVIAL;
+                    }
+                    snp = refOffset * 4 + baseIndex;
+                }
+            }
+        }
+        return snp;
+    }
+
+    /**
+     * @return the number of regions resolved as reference only
+     */
+    long getReferenceRegionCount() {
+        return referenceRegions;
+    }
+
+    /**
+     * @return the number of regions resolved as a single SNP
+     */
+    long getSingleSNPRegionCount() {
+        return singleSNPRegions;
+    }
+
+    /**
+     * @return the number of regions that had to be assembled
+     */
+    long getAssembledRegionCount() {
+        return assembledRegions;
+    }
+}
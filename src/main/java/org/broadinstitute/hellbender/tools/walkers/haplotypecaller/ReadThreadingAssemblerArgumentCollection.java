@@ -33,6 +33,19 @@ public final class ReadThreadingAssemblerArgumentCollection implements Serializa
     @Argument(fullName="dont-increase-kmer-sizes-for-cycles", doc="Disable iterating over kmer sizes when graph cycles are detected", optional = true)
     public boolean dontIncreaseKmerSizesForCycles = false;
 
+    /**
+     * Regions around the same repeat often fail to assemble at the same kmer sizes, because their graphs have cycles or
+     * too little complexity, and only assemble after several larger kmer sizes were tried. With this argument, a kmer size
+     * that failed this many times for earlier regions whose reference has the same longest repeat (at least as long as the
+     * smallest kmer size) is skipped. Skipping kmer sizes can change the assembled haplotypes. 0 tries all kmer sizes.
+     *
+     * The failures are remembered in the order the regions are assembled, so this argument cannot be combined with
+     * --assembly-region-threads greater than 1, whose output would then depend on the scheduling of the threads.
+     */
+    @Advanced
+    @Argument(fullName="skip-kmer-sizes-failed-in-same-repeat", doc="Skip kmer sizes that failed this many times for regions with the same reference repeat (0 to try all kmer sizes)", optional = true, minValue = 0)
+    public int skipKmerSizesFailedInSameRepeat = 0;
+
     /**
      * By default, the program does not allow processing of reference sections that contain non-unique kmers. Disabling
      * this check may cause problems in the assembly graph.
@@ -25,8 +25,10 @@ import org.broadinstitute.hellbender.utils.pileup.PileupElement;
 import org.broadinstitute.hellbender.utils.pileup.ReadPileup;
 import org.broadinstitute.hellbender.utils.read.AlignmentUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
 import org.broadinstitute.hellbender.utils.variant.GATKVCFConstants;
 import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
+import org.broadinstitute.hellbender.utils.variant.writers.HomRefRun;
 
 import java.util.*;
 import java.util.stream.DoubleStream;
@@ -239,6 +241,213 @@ public final class ReferenceConfidenceModel {
         return results;
     }
 
+    /**
+     * Calculate the reference confidence for a single sample given its read data, as {@link #calculateRefConfidence}
+     * does, but as {@link HomRefRun}s for the stretches of positions between variant calls.
+     *
+     * The hom-ref likelihoods of all the positions of the region are computed at once, walking the alignment of each
+     * read instead of building a pileup for each position, into primitive arrays from which the runs are made. This gives
+     * the same genotypes as {@link #calculateRefConfidence}, but the GVCFWriter folds them into its GQ bands
+     * without creating a VariantContext for each position. The parameters are those of {@link #calculateRefConfidence}.
+     *
+     * @return an ordered list of variant contexts that spans activeRegion.getSpan(), with the calls from variantCalls
+     *         starting in it and HomRefRuns for all the other positions
+     */
+    public List<VariantContext> calculateHomRefRuns(final Haplotype refHaplotype,
+                                                    final Collection<Haplotype> calledHaplotypes,
+                                                    final SimpleInterval paddedReferenceLoc,
+                                                    final AssemblyRegion activeRegion,
+                                                    final ReadLikelihoods<Haplotype> readLikelihoods,
+                                                    final PloidyModel ploidyModel,
+                                                    final List<VariantContext> variantCalls) {
+        Utils.nonNull(refHaplotype, "refHaplotype cannot be null");
+        Utils.nonNull(calledHaplotypes, "calledHaplotypes cannot be null");
+        Utils.validateArg(calledHaplotypes.contains(refHaplotype), "calledHaplotypes must contain the refHaplotype");
+        Utils.nonNull(paddedReferenceLoc, "paddedReferenceLoc cannot be null");
+        Utils.nonNull(activeRegion, "activeRegion cannot be null");
+        Utils.nonNull(readLikelihoods, "readLikelihoods cannot be null");
+        Utils.validateArg(readLikelihoods.numberOfSamples() == 1, () -> "readLikelihoods must contain exactly one sample but it contained " + readLikelihoods.numberOfSamples());
+        Utils.validateArg( refHaplotype.length() == activeRegion.getExtendedSpan().size(), () -> "refHaplotype " + refHaplotype.length() + " and activeRegion location size " + activeRegion.getSpan().size() + " are different");
+        Utils.nonNull(ploidyModel, "the ploidy model cannot be null");
+        final int ploidy = ploidyModel.samplePloidy(0); // the first sample = the only sample in reference-confidence mode.
+
+        final SimpleInterval refSpan = activeRegion.getSpan();
+        final byte[] ref = refHaplotype.getBases();
+        final String sampleName = readLikelihoods.getSample(0);
+        final int globalRefOffset = refSpan.getStart() - activeRegion.getExtendedSpan().getStart();
+
+        final int nPositions = refSpan.size();
+        final int[] refDepths = new int[nPositions];
+        final int[] nonRefDepths = new int[nPositions];
+        final int[] GQs = new int[nPositions];
+        final int[] PLs = new int[nPositions * (ploidy + 1)];
+        calcRefVsAnyOverSpan(ploidy, activeRegion.getReads(), refSpan, ref, globalRefOffset, refDepths, nonRefDepths, GQs, PLs);
+
+        // the call emitted at each position, as getOverlappingVariantContext would find it
+        final VariantContext[] callsByOffset = new VariantContext[nPositions];
+        for ( final VariantContext call : variantCalls ) {
+            final int offset = call.getStart() - refSpan.getStart();
+            if ( call.getContig().equals(refSpan.getContig()) && offset >= 0 && offset < nPositions && callsByOffset[offset] == null ) {
+                callsByOffset[offset] = call;
+            }
+        }
+
+        final List<VariantContext> results = new ArrayList<>();
+        int runStart = 0;
+        for ( int offset = 0; offset <= nPositions; offset++ ) {
+            if ( offset == nPositions || callsByOffset[offset] != null ) {
+                if ( offset > runStart ) {
+                    final int refStart = globalRefOffset + runStart;
+                    results.add(new HomRefRun("HC", refSpan.getContig(), refSpan.getStart() + runStart, sampleName, ploidy,
+                            Arrays.copyOfRange(ref, refStart, refStart + offset - runStart),
+                            Arrays.copyOfRange(refDepths, runStart, offset), Arrays.copyOfRange(nonRefDepths, runStart, offset),
+                            Arrays.copyOfRange(GQs, runStart, offset), Arrays.copyOfRange(PLs, runStart * (ploidy + 1), offset * (ploidy + 1))));
+                }
+                if ( offset < nPositions ) {
+                    results.add(callsByOffset[offset]);
+                }
+                runStart = offset + 1;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Compute, for each position of span, what {@link #makeReferenceConfidenceVariantContext} computes from its pileup
+     *
+     * The reads are walked one after the other, in the order in which they would be in the pileups (so that the
+     * likelihoods are summed in the same order), skipping the same positions as the {@link LocusIteratorByState}:
+     * reference skips and bases inside the adaptor.
+     */
+    private void calcRefVsAnyOverSpan(final int ploidy,
+                                      final List<GATKRead> reads,
+                                      final SimpleInterval span,
+                                      final byte[] ref,
+                                      final int globalRefOffset,
+                                      final int[] refDepths,
+                                      final int[] nonRefDepths,
+                                      final int[] GQs,
+                                      final int[] PLs) {
+        final int nPositions = span.size();
+        final int likelihoodCount = ploidy + 1;
+        final double log10Ploidy = MathUtils.log10(ploidy);
+        final double[] genotypeLikelihoods = new double[nPositions * likelihoodCount];
+        final int[] readCounts = new int[nPositions];
+        final int[] nIndelInformativeReads = new int[nPositions];
+        final int maxIndelSize = indelInformativeDepthIndelSize;
+        int[] mismatchSums = new int[0];
+
+        for ( final GATKRead read : reads ) {
+            final byte[] bases = read.getBasesNoCopy();
+            final byte[] quals = read.getBaseQualitiesNoCopy();
+            final List<CigarElement> elements = read.getCigarElements();
+            final int adaptorBoundary = read.getAdaptorBoundary();
+            final boolean hasAdaptor = ReadUtils.isBaseInsideAdaptor(read, adaptorBoundary);
+
+            int readOffset = 0;
+            int position = read.getStart();
+            for ( int e = 0; e < elements.size(); e++ ) {
+                final CigarOperator op = elements.get(e).getOperator();
+                final int length = elements.get(e).getLength();
+                if ( op == CigarOperator.I || op == CigarOperator.S ) {
+                    readOffset += length;
+                    continue;
+                } else if ( ! op.consumesReferenceBases() ) {
+                    continue;
+                } else if ( op == CigarOperator.N ) {
+                    position += length;
+                    continue;
+                }
+
+                final boolean isDeletion = op == CigarOperator.D;
+                final CigarOperator previousOp = e > 0 ? elements.get(e - 1).getOperator() : null;
+                final CigarOperator nextOp = e + 1 < elements.size() ? elements.get(e + 1).getOperator() : null;
+                final boolean afterDeletion = ! isDeletion && nearestOnGenomeOperator(elements, e, -1) == CigarOperator.D;
+                final boolean beforeDeletion = ! isDeletion && nearestOnGenomeOperator(elements, e, 1) == CigarOperator.D;
+                // the offset into ref minus the offset into the read along this element
+                final int diagonal = globalRefOffset + position - span.getStart() - readOffset;
+                boolean mismatchSumsComputed = false;
+
+                final int first = Math.max(0, span.getStart() - position);
+                final int last = Math.min(length, span.getEnd() - position + 1);
+                for ( int k = first; k < last; k++ ) {
+                    final int genomePosition = position + k;
+                    if ( hasAdaptor && (read.isReverseStrand() ? genomePosition <= adaptorBoundary : genomePosition >= adaptorBoundary) ) {
+                        continue;
+                    }
+                    final int spanOffset = genomePosition - span.getStart();
+                    final int refOffset = globalRefOffset + spanOffset;
+                    final int baseOffset = readOffset + k;
+                    final boolean atStart = k == 0;
+                    final boolean atEnd = k == length - 1;
+                    final boolean isBeforeDeletionStart = atEnd && beforeDeletion;
+                    final boolean isBeforeInsertion = atEnd && nextOp == CigarOperator.I;
+
+                    final byte qual = isDeletion ? REF_MODEL_DELETION_QUAL : quals[baseOffset];
+                    if ( isDeletion || qual > BASE_QUAL_THRESHOLD ) {
+                        final boolean isAlt = isDeletion || bases[baseOffset] != ref[refOffset] || isBeforeDeletionStart
+                                || (atStart && afterDeletion) || isBeforeInsertion || (atStart && previousOp == CigarOperator.I)
+                                || (atStart && previousOp == CigarOperator.S) || (atEnd && nextOp == CigarOperator.S);
+                        applyRefVsNonRefLikelihood(genotypeLikelihoods, spanOffset * likelihoodCount, likelihoodCount, log10Ploidy, isAlt, qual);
+                        readCounts[spanOffset]++;
+                        if ( isAlt ) {
+                            nonRefDepths[spanOffset]++;
+                        } else {
+                            refDepths[spanOffset]++;
+                        }
+                    }
+
+                    if ( ! (isBeforeDeletionStart || isBeforeInsertion || isDeletion) ) {
+                        if ( ! mismatchSumsComputed ) {
+                            mismatchSums = sumMismatchingQualitiesAlongDiagonals(bases, quals, ref, diagonal, maxIndelSize, mismatchSums);
+                            mismatchSumsComputed = true;
+                        }
+                        if ( isReadInformativeAboutIndelsOfSize(mismatchSums, bases.length, baseOffset, ref.length, refOffset, maxIndelSize) ) {
+                            nIndelInformativeReads[spanOffset]++;
+                        }
+                    }
+                }
+
+                position += length;
+                if ( ! isDeletion ) {
+                    readOffset += length;
+                }
+            }
+        }
+
+        final double[] cappedLikelihoods = new double[likelihoodCount];
+        for ( int p = 0; p < nPositions; p++ ) {
+            final int offset = p * likelihoodCount;
+            final double denominator = readCounts[p] * log10Ploidy;
+            for ( int i = 0; i < likelihoodCount; i++ ) {
+                genotypeLikelihoods[offset + i] -= denominator;
+            }
+            for ( int i = 0; i < likelihoodCount; i++ ) {
+                cappedLikelihoods[i] = Math.min(genotypeLikelihoods[offset + i], genotypeLikelihoods[offset]);
+            }
+            final GenotypeLikelihoods snpGLs = GenotypeLikelihoods.fromLog10Likelihoods(cappedLikelihoods);
+            final GenotypeLikelihoods indelGLs = getIndelPLs(ploidy, nIndelInformativeReads[p]);
+            final int[] leastConfidenceGLsAsPLs = getGLwithWorstGQ(indelGLs, snpGLs).getAsPLs();
+            GQs[p] = GATKVariantContextUtils.calculateGQFromPLs(leastConfidenceGLsAsPLs);
+            System.arraycopy(leastConfidenceGLsAsPLs, 0, PLs, offset, likelihoodCount);
+        }
+    }
+
+    /**
+     * @param direction -1 to look before the element, 1 to look after it
+     * @return the operator of the nearest element before or after the element at index that is on the genome, as
+     *         {@link PileupElement} defines it, or null if there is none
+     */
+    private static CigarOperator nearestOnGenomeOperator(final List<CigarElement> elements, final int index, final int direction) {
+        for ( int i = index + direction; i >= 0 && i < elements.size(); i += direction ) {
+            final CigarOperator op = elements.get(i).getOperator();
+            if ( op.isAlignment() || op == CigarOperator.D ) {
+                return op;
+            }
+        }
+        return null;
+    }
+
     private VariantContext makeReferenceConfidenceVariantContext(final int ploidy,
                                                                  final byte[] ref,
                                                                  final String sampleName,
@@ -382,30 +591,41 @@ public final class ReferenceConfidenceModel {
     private void applyPileupElementRefVsNonRefLikelihoodAndCount(final byte refBase, final int likelihoodCount, final double log10Ploidy, final RefVsAnyResult result, final PileupElement element, final byte qual, final MathUtils.RunningAverage hqSoftClips) {
         final boolean isAlt = element.getBase() != refBase || element.isDeletion() || element.isBeforeDeletionStart()
                 || element.isAfterDeletionEnd() || element.isBeforeInsertion() || element.isAfterInsertion() || element.isNextToSoftClip();
+        applyRefVsNonRefLikelihood(result.genotypeLikelihoods, 0, likelihoodCount, log10Ploidy, isAlt, qual);
+        if (isAlt) {
+            result.nonRefDepth++;
+        } else {
+            result.refDepth++;
+        }
+        if (isAlt && hqSoftClips != null && element.isNextToSoftClip()) {
+            hqSoftClips.add(AlignmentUtils.calcNumHighQualitySoftClips(element.getRead(), HQ_BASE_QUALITY_SOFTCLIP_THRESHOLD));
+        }
+    }
+
+    /**
+     * Add the likelihoods of a base (or deletion) supporting, or not, the reference to the genotype likelihoods that
+     * start at offset in genotypeLikelihoods
+     */
+    private static void applyRefVsNonRefLikelihood(final double[] genotypeLikelihoods, final int offset, final int likelihoodCount, final double log10Ploidy, final boolean isAlt, final byte qual) {
         final double referenceLikelihood;
         final double nonRefLikelihood;
         if (isAlt) {
             nonRefLikelihood = QualityUtils.qualToProbLog10(qual);
             referenceLikelihood = QualityUtils.qualToErrorProbLog10(qual) + MathUtils.LOG10_ONE_THIRD;
-            result.nonRefDepth++;
         } else {
             referenceLikelihood = QualityUtils.qualToProbLog10(qual);
             nonRefLikelihood = QualityUtils.qualToErrorProbLog10(qual) + MathUtils.LOG10_ONE_THIRD;
-            result.refDepth++;
         }
         // Homozygous likelihoods don't need the logSum trick.
-        result.genotypeLikelihoods[0] += referenceLikelihood + log10Ploidy;
-        result.genotypeLikelihoods[likelihoodCount - 1] += nonRefLikelihood + log10Ploidy;
+        genotypeLikelihoods[offset] += referenceLikelihood + log10Ploidy;
+        genotypeLikelihoods[offset + likelihoodCount - 1] += nonRefLikelihood + log10Ploidy;
         // Heterozygous likelihoods need the logSum trick:
         for (int i = 1, j = likelihoodCount - 2; i < likelihoodCount - 1; i++, j--) {
-            result.genotypeLikelihoods[i] +=
+            genotypeLikelihoods[offset + i] +=
                     MathUtils.approximateLog10SumLog10(
                             referenceLikelihood + MathUtils.log10(j),
                             nonRefLikelihood + MathUtils.log10(i));
         }
-        if (isAlt && hqSoftClips != null && element.isNextToSoftClip()) {
-            hqSoftClips.add(AlignmentUtils.calcNumHighQualitySoftClips(element.getRead(), HQ_BASE_QUALITY_SOFTCLIP_THRESHOLD));
-        }
     }
 
     /**
@@ -543,6 +763,70 @@ public final class ReferenceConfidenceModel {
         return true;
     }
 
+    /**
+     * Compute, for each diagonal d from diagonal - maxIndelSize to diagonal + maxIndelSize and each offset a into the read,
+     * the sum of mismatching qualities {@link #sumMismatchingQualities} gives for readStart = a and refStart = a + d,
+     * without limit, as suffix sums along the diagonal.
+     *
+     * @param buffer an array to reuse if it is large enough
+     * @return the sums, the one for d and a being at (d - diagonal + maxIndelSize) * (readBases.length + 1) + a. Only
+     *         those with a + d >= 0 are computed.
+     */
+    private static int[] sumMismatchingQualitiesAlongDiagonals(final byte[] readBases,
+                                                               final byte[] readQuals,
+                                                               final byte[] refBases,
+                                                               final int diagonal,
+                                                               final int maxIndelSize,
+                                                               final int[] buffer) {
+        final int stride = readBases.length + 1;
+        final int[] sums = buffer.length >= (2 * maxIndelSize + 1) * stride ? buffer : new int[(2 * maxIndelSize + 1) * stride];
+        for ( int k = 0; k <= 2 * maxIndelSize; k++ ) {
+            final int d = diagonal - maxIndelSize + k;
+            final int row = k * stride;
+            sums[row + readBases.length] = 0;
+            for ( int a = readBases.length - 1; a >= 0 && a + d >= 0; a-- ) {
+                final int b = a + d;
+                if ( b >= refBases.length ) {
+                    sums[row + a] = 0;
+                } else {
+                    sums[row + a] = sums[row + a + 1] + (readBases[a] != refBases[b] ? readQuals[a] : 0);
+                }
+            }
+        }
+        return sums;
+    }
+
+    /**
+     * Same as {@link #isReadInformativeAboutIndelsOfSize(GATKRead, int, byte[], int, int)}, from the sums of mismatching
+     * qualities of {@link #sumMismatchingQualitiesAlongDiagonals} for the diagonal refStart - readStart
+     */
+    private static boolean isReadInformativeAboutIndelsOfSize(final int[] mismatchSums,
+                                                              final int readLength,
+                                                              final int readStart,
+                                                              final int refLength,
+                                                              final int refStart,
+                                                              final int maxIndelSize) {
+        // fast exit when n bases left < maxIndelSize
+        if( readLength - readStart < maxIndelSize || refLength - refStart < maxIndelSize ) {
+            return false;
+        }
+
+        final int stride = readLength + 1;
+        final int baselineMMSum = mismatchSums[maxIndelSize * stride + readStart];
+        for ( int indelSize = 1; indelSize <= maxIndelSize; indelSize++ ) {
+            // insertions skip read bases, moving to the diagonal refStart - (readStart + indelSize)
+            if ( mismatchSums[(maxIndelSize - indelSize) * stride + readStart + indelSize] <= baselineMMSum ) {
+                return false;
+            }
+            // deletions skip ref bases, moving to the diagonal refStart + indelSize - readStart
+            if ( mismatchSums[(maxIndelSize + indelSize) * stride + readStart] <= baselineMMSum ) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     /**
      * Calculate the number of indel informative reads at pileup
      *
@@ -0,0 +1,108 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
+
+import htsjdk.samtools.CigarElement;
+import htsjdk.samtools.CigarOperator;
+import org.broadinstitute.hellbender.utils.BaseUtils;
+import org.broadinstitute.hellbender.utils.QualityUtils;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.genotyper.AlleleList;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedAlleleList;
+import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
+import org.broadinstitute.hellbender.utils.genotyper.ReadLikelihoods;
+import org.broadinstitute.hellbender.utils.genotyper.SampleList;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read likelihoods for reads and haplotypes that align to the reference without gaps, as those of the regions resolved
+ * by a {@link PileupPrefilter}: the likelihood of a read is the product over its bases of the probability of the
+ * haplotype base it is aligned to, given the base quality (capped by the mapping quality, as for the PairHMM).
+ * Bases of the read outside of the haplotype and Ns do not discriminate between haplotypes and count as matches.
+ *
+ * Likelihoods are normalized and poorly modeled reads are filtered out as in {@link PairHMMLikelihoodCalculationEngine}.
+ */
+public final class UngappedLikelihoodCalculationEngine implements ReadLikelihoodCalculationEngine {
+
+    private static final double LOG10_3 = Math.log10(3.0);
+
+    private final double log10globalReadMismappingRate;
+    private final byte baseQualityScoreThreshold;
+
+    /**
+     * @param log10globalReadMismappingRate the global mismapping probability, in log10(prob) units (see
+     *                                      {@link PairHMMLikelihoodCalculationEngine})
+     * @param baseQualityScoreThreshold base qualities below this threshold are reduced to
+     *                                  {@link QualityUtils#MIN_USABLE_Q_SCORE}
+     */
+    public UngappedLikelihoodCalculationEngine(final double log10globalReadMismappingRate, final byte baseQualityScoreThreshold) {
+        Utils.validateArg(log10globalReadMismappingRate <= 0, "log10globalReadMismappingRate must be negative");
+        Utils.validateArg(baseQualityScoreThreshold >= QualityUtils.MIN_USABLE_Q_SCORE,
+                "baseQualityScoreThreshold must be greater than or equal to " + QualityUtils.MIN_USABLE_Q_SCORE + " (QualityUtils.MIN_USABLE_Q_SCORE)");
+        this.log10globalReadMismappingRate = log10globalReadMismappingRate;
+        this.baseQualityScoreThreshold = baseQualityScoreThreshold;
+    }
+
+    @Override
+    public ReadLikelihoods<Haplotype> computeReadLikelihoods(final AssemblyResultSet assemblyResultSet,
+                                                             final SampleList samples,
+                                                             final Map<String, List<GATKRead>> perSampleReadList) {
+        Utils.nonNull(assemblyResultSet, "assemblyResultSet is null");
+        Utils.nonNull(samples, "samples is null");
+        Utils.nonNull(perSampleReadList, "perSampleReadList is null");
+
+        final List<Haplotype> haplotypeList = assemblyResultSet.getHaplotypeList();
+        for ( final Haplotype haplotype : haplotypeList ) {
+            Utils.validateArg(haplotype.getCigar().numCigarElements() == 1 && haplotype.getCigar().getReferenceLength() == haplotype.length(),
+                    () -> "haplotype must align to the reference without gaps: " + haplotype.getCigar());
+        }
+        final AlleleList<Haplotype> haplotypes = new IndexedAlleleList<>(haplotypeList);
+        final ReadLikelihoods<Haplotype> result = new ReadLikelihoods<>(samples, haplotypes, perSampleReadList);
+
+        for ( int s = 0; s < result.numberOfSamples(); s++ ) {
+            final LikelihoodMatrix<Haplotype> sampleLikelihoods = result.sampleMatrix(s);
+            final List<GATKRead> sampleReads = sampleLikelihoods.reads();
+            for ( int r = 0; r < sampleReads.size(); r++ ) {
+                final GATKRead read = sampleReads.get(r);
+                for ( int h = 0; h < haplotypeList.size(); h++ ) {
+                    sampleLikelihoods.set(h, r, computeReadLikelihood(read, haplotypeList.get(h)));
+                }
+            }
+        }
+
+        result.normalizeLikelihoods(false, log10globalReadMismappingRate);
+        result.filterPoorlyModeledReads(PairHMMLikelihoodCalculationEngine.EXPECTED_ERROR_RATE_PER_BASE);
+        return result;
+    }
+
+    private double computeReadLikelihood(final GATKRead read, final Haplotype haplotype) {
+        for ( final CigarElement element : read.getCigarElements() ) {
+            Utils.validateArg(element.getOperator().isAlignment() || element.getOperator() == CigarOperator.HARD_CLIP,
+                    () -> "read " + read.getName() + " must align to the reference without gaps: " + read.getCigar());
+        }
+
+        final byte[] readBases = read.getBases();
+        final byte[] readQuals = read.getBaseQualities();
+        final byte[] haplotypeBases = haplotype.getBases();
+        final int offset = read.getStart() - (int) haplotype.getStartPosition();
+        final int mappingQuality = read.getMappingQuality();
+
+        double log10Likelihood = 0.0;
+        for ( int i = 0; i < readBases.length; i++ ) {
+            byte qual = (byte) Math.min(0xff & readQuals[i], mappingQuality);
+            qual = qual < baseQualityScoreThreshold ? QualityUtils.MIN_USABLE_Q_SCORE : qual;
+            final int haplotypeOffset = offset + i;
+            final boolean matches = haplotypeOffset < 0 || haplotypeOffset >= haplotypeBases.length
+                    || readBases[i] == BaseUtils.Base.N.base || haplotypeBases[haplotypeOffset] == BaseUtils.Base.N.base
+                    || BaseUtils.basesAreEqual(readBases[i], haplotypeBases[haplotypeOffset]);
+            log10Likelihood += matches ? QualityUtils.qualToProbLog10(qual) : QualityUtils.qualToErrorProbLog10(qual) - LOG10_3;
+        }
+        return log10Likelihood;
+    }
+
+    @Override
+    public void close() {
+    }
+}
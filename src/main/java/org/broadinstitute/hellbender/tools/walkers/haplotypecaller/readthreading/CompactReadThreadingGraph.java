@@ -0,0 +1,1252 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import htsjdk.samtools.Cigar;
+import htsjdk.samtools.CigarElement;
+import htsjdk.samtools.CigarOperator;
+import htsjdk.samtools.SAMFileHeader;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.gatk.nativebindings.smithwaterman.SWOverhangStrategy;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.Kmer;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.graphs.BaseEdge;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.graphs.SeqGraph;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.graphs.SeqVertex;
+import org.broadinstitute.hellbender.utils.BaseUtils;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.AlignmentUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+import org.broadinstitute.hellbender.utils.smithwaterman.SmithWatermanAligner;
+import org.broadinstitute.hellbender.utils.smithwaterman.SmithWatermanAlignment;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Array-backed version of {@link ReadThreadingGraph}, for assembling without allocating an object per kmer and per edge.
+ *
+ * <p>
+ *     Kmers are packed into longs at 2 bits per base, so this graph supports kmer sizes up to {@link #MAX_KMER_SIZE}
+ *     and sequences made of A, C, G and T only (see {@link #isPackable()}). Vertices and edges are indices into
+ *     parallel arrays, the unique kmers are indexed in an open-addressing map from packed kmers to vertices, and
+ *     each vertex keeps linked lists of its incoming and outgoing edges threaded through the edge arrays.
+ * </p>
+ *
+ * <p>
+ *     Threading, low-weight chain pruning, dangling head and tail recovery and the removal of paths not connected
+ *     to the reference all behave exactly as in {@link ReadThreadingGraph}, including the order in which vertices
+ *     and edges are visited, so {@link #toSequenceGraph()} returns the same sequence graph as the object graph would.
+ *     Use {@link ReadThreadingGraph} to inspect the kmer graph itself.
+ * </p>
+ */
+final class CompactReadThreadingGraph {
+
+    private static final Logger logger = LogManager.getLogger(CompactReadThreadingGraph.class);
+
+    /**
+     * Largest kmer size whose kmers fit in a long at 2 bits per base
+     */
+    static final int MAX_KMER_SIZE = 31;
+
+    private static final String ANONYMOUS_SAMPLE = "XXX_UNNAMED_XXX";
+
+    private static final int NO_VERTEX = -1;
+    private static final int NO_EDGE = -1;
+    private static final int INITIAL_CAPACITY = 256;
+
+    private static final byte[] BASES = {'A', 'C', 'G', 'T'};
+    private static final byte[] BASE_CODES = new byte[256];
+    static {
+        Arrays.fill(BASE_CODES, (byte) -1);
+        for ( int code = 0; code < BASES.length; code++ ) {
+            BASE_CODES[BASES[code]] = (byte) code;
+        }
+    }
+
+    private final int kmerSize;
+    private final long kmerMask;
+    private final byte minBaseQualityToUseInAssembly;
+    private final int numPruningSamples;
+
+    private boolean startThreadingOnlyAtExistingVertex = false;
+    private boolean packable = true;
+    private boolean alreadyBuilt = false;
+
+    /**
+     * Sequences added for read threading before we've actually built the graph
+     */
+    private final Map<String, List<ReadThreadingGraph.SequenceForKmers>> pending = new LinkedHashMap<>();
+
+    /**
+     * Non-unique kmers, which cannot be used as merge points in the graph, and the non-unique kmers
+     * that cannot be packed (they occur only in parts of the reads that are not threaded, but count towards complexity)
+     */
+    private final LongOpenHashSet nonUniqueKmers = new LongOpenHashSet();
+    private final Set<Kmer> unpackableNonUniqueKmers = new HashSet<>();
+
+    /**
+     * Map from unique kmers to their vertex. Only used while threading.
+     */
+    private final Long2IntOpenHashMap uniqueKmers = new Long2IntOpenHashMap();
+
+    private boolean hasRefSource = false;
+    private long refSource;
+
+    // vertices, in order of creation
+    private int numVertices = 0;
+    private int numLiveVertices = 0;
+    private long[] vertexKmers = new long[INITIAL_CAPACITY];
+    private boolean[] vertexRemoved = new boolean[INITIAL_CAPACITY];
+    private boolean[] vertexIsUniqueKmer = new boolean[INITIAL_CAPACITY];
+    private int[] firstOutEdge = new int[INITIAL_CAPACITY];
+    private int[] lastOutEdge = new int[INITIAL_CAPACITY];
+    private int[] firstInEdge = new int[INITIAL_CAPACITY];
+    private int[] lastInEdge = new int[INITIAL_CAPACITY];
+    private int[] outDegree = new int[INITIAL_CAPACITY];
+    private int[] inDegree = new int[INITIAL_CAPACITY];
+
+    // edges, in order of creation
+    private int numEdges = 0;
+    private int[] edgeSource = new int[INITIAL_CAPACITY];
+    private int[] edgeTarget = new int[INITIAL_CAPACITY];
+    private boolean[] edgeIsRef = new boolean[INITIAL_CAPACITY];
+    private boolean[] edgeRemoved = new boolean[INITIAL_CAPACITY];
+    private int[] edgeMultiplicity = new int[INITIAL_CAPACITY];
+    private int[] nextOutEdge = new int[INITIAL_CAPACITY];
+    private int[] prevOutEdge = new int[INITIAL_CAPACITY];
+    private int[] nextInEdge = new int[INITIAL_CAPACITY];
+    private int[] prevInEdge = new int[INITIAL_CAPACITY];
+
+    // per-sample multiplicities of the edges, as in MultiSampleEdge: the largest numPruningSamples multiplicities
+    // of each edge are stored (unordered) in edgeSampleMultiplicities[edge * numPruningSamples ...]
+    private int[] edgeCurrentSampleMultiplicity = new int[INITIAL_CAPACITY];
+    private int[] edgeNumSampleMultiplicities = new int[INITIAL_CAPACITY];
+    private int[] edgeSampleMultiplicities;
+
+    /**
+     * Create an empty graph
+     *
+     * @param kmerSize must be between 1 and {@link #MAX_KMER_SIZE}
+     * @param minBaseQualityToUseInAssembly bases of reads with lower qualities are not threaded
+     * @param numPruningSamples number of samples an edge must be seen in with the pruning multiplicity to be kept
+     */
+    CompactReadThreadingGraph(final int kmerSize, final byte minBaseQualityToUseInAssembly, final int numPruningSamples) {
+        Utils.validateArg(kmerSize > 0 && kmerSize <= MAX_KMER_SIZE, () -> "kmerSize must be between 1 and " + MAX_KMER_SIZE + " but got " + kmerSize);
+        Utils.validateArg(numPruningSamples > 0, () -> "numPruningSamples must be > 0 but got " + numPruningSamples);
+        this.kmerSize = kmerSize;
+        this.kmerMask = (1L << (2 * kmerSize)) - 1;
+        this.minBaseQualityToUseInAssembly = minBaseQualityToUseInAssembly;
+        this.numPruningSamples = numPruningSamples;
+        edgeSampleMultiplicities = new int[INITIAL_CAPACITY * numPruningSamples];
+        uniqueKmers.defaultReturnValue(NO_VERTEX);
+    }
+
+    int getKmerSize() {
+        return kmerSize;
+    }
+
+    /**
+     * @see ReadThreadingGraph#setThreadingStartOnlyAtExistingVertex(boolean)
+     */
+    void setThreadingStartOnlyAtExistingVertex(final boolean value) {
+        startThreadingOnlyAtExistingVertex = value;
+    }
+
+    /**
+     * @return true if all the bases threaded so far are A, C, G or T, so that the graph can be built
+     */
+    boolean isPackable() {
+        return packable;
+    }
+
+    /**
+     * @see ReadThreadingGraph#addSequence(String, byte[], int, boolean)
+     */
+    void addSequence(final String seqName, final byte[] sequence, final int count, final boolean isRef) {
+        addSequence(seqName, ANONYMOUS_SAMPLE, sequence, 0, sequence.length, count, isRef);
+    }
+
+    /**
+     * @see ReadThreadingGraph#addRead(GATKRead, SAMFileHeader)
+     */
+    void addRead(final GATKRead read, final SAMFileHeader header) {
+        final byte[] sequence = read.getBases();
+        final byte[] qualities = read.getBaseQualities();
+
+        int lastGood = -1;
+        for ( int end = 0; end <= sequence.length; end++ ) {
+            if ( end == sequence.length || ! baseIsUsableForAssembly(sequence[end], qualities[end]) ) {
+                final int start = lastGood;
+                final int len = end - start;
+                if ( start != -1 && len >= kmerSize ) {
+                    final String name = read.getName() + '_' + start + '_' + end;
+                    addSequence(name, ReadUtils.getSampleName(read, header), sequence, start, end, 1, false);
+                }
+                lastGood = -1;
+            } else if ( lastGood == -1 ) {
+                lastGood = end;
+            }
+        }
+    }
+
+    private boolean baseIsUsableForAssembly(final byte base, final byte qual) {
+        return base != BaseUtils.Base.N.base && qual >= minBaseQualityToUseInAssembly;
+    }
+
+    /**
+     * Add the sequences prepared for this graph's kmer size
+     */
+    void addSequences(final KmerizedSequences sequences) {
+        for ( final KmerizedSequences.Segment segment : sequences.getSegments(kmerSize) ) {
+            addSequence(segment.sampleName, segment.sequence, segment.packable);
+        }
+    }
+
+    private void addSequence(final String seqName, final String sampleName, final byte[] sequence, final int start, final int stop, final int count, final boolean isRef) {
+        addSequence(sampleName, new ReadThreadingGraph.SequenceForKmers(seqName, sequence, start, stop, count, isRef), isPackable(sequence, start, stop));
+    }
+
+    private void addSequence(final String sampleName, final ReadThreadingGraph.SequenceForKmers sequenceForKmers, final boolean sequenceIsPackable) {
+        if ( alreadyBuilt ) {
+            throw new IllegalStateException("Graph already built");
+        }
+        packable &= sequenceIsPackable;
+        pending.computeIfAbsent(sampleName, name -> new LinkedList<>()).add(sequenceForKmers);
+    }
+
+    /**
+     * @return true if the bases of sequence from start (inclusive) to stop (exclusive) are all A, C, G or T
+     */
+    static boolean isPackable(final byte[] sequence, final int start, final int stop) {
+        for ( int i = start; i < stop; i++ ) {
+            if ( baseCode(sequence[i]) < 0 ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Build the graph from the sequences added so far, if it hasn't been built already
+     */
+    void buildGraphIfNecessary() {
+        if ( alreadyBuilt ) {
+            return;
+        }
+        if ( ! packable ) {
+            throw new IllegalStateException("Cannot build a compact graph from sequences with bases other than A, C, G and T");
+        }
+
+        determineNonUniqueKmers();
+
+        for ( final List<ReadThreadingGraph.SequenceForKmers> sequencesForSample : pending.values() ) {
+            for ( final ReadThreadingGraph.SequenceForKmers sequenceForKmers : sequencesForSample ) {
+                threadSequence(sequenceForKmers);
+            }
+            for ( int e = 0; e < numEdges; e++ ) {
+                flushSingleSampleMultiplicity(e);
+            }
+        }
+
+        pending.clear();
+        alreadyBuilt = true;
+        for ( final int v : uniqueKmers.values() ) {
+            vertexIsUniqueKmer[v] = true;
+        }
+    }
+
+    /**
+     * Collect the kmers that occur more than once within any of the sequences
+     *
+     * @see ReadThreadingGraph#determineNonUniqueKmers(ReadThreadingGraph.SequenceForKmers, int)
+     */
+    private void determineNonUniqueKmers() {
+        long[] kmers = new long[INITIAL_CAPACITY];
+        for ( final List<ReadThreadingGraph.SequenceForKmers> sequencesForSample : pending.values() ) {
+            for ( final ReadThreadingGraph.SequenceForKmers sequenceForKmers : sequencesForSample ) {
+                final byte[] sequence = sequenceForKmers.sequence;
+                final int numKmers = sequenceForKmers.stop - kmerSize + 1;
+                if ( numKmers <= 0 ) {
+                    continue;
+                }
+                if ( kmers.length < numKmers ) {
+                    kmers = new long[Math.max(numKmers, 2 * kmers.length)];
+                }
+
+                // the kmers of the whole sequence count, including parts that are not threaded and may not be packable
+                int numPacked = 0;
+                Set<Kmer> unpackableKmers = null;
+                long kmer = 0;
+                int packedLength = 0;
+                for ( int i = 0; i < sequenceForKmers.stop; i++ ) {
+                    final int code = baseCode(sequence[i]);
+                    packedLength = code < 0 ? 0 : packedLength + 1;
+                    kmer = ((kmer << 2) | (code < 0 ? 0 : code)) & kmerMask;
+                    final int kmerStart = i - kmerSize + 1;
+                    if ( kmerStart < 0 ) {
+                        continue;
+                    }
+                    if ( packedLength >= kmerSize ) {
+                        kmers[numPacked++] = kmer;
+                    } else {
+                        if ( unpackableKmers == null ) {
+                            unpackableKmers = new HashSet<>();
+                        }
+                        final Kmer unpackableKmer = new Kmer(sequence, kmerStart, kmerSize);
+                        if ( ! unpackableKmers.add(unpackableKmer) ) {
+                            unpackableNonUniqueKmers.add(unpackableKmer);
+                        }
+                    }
+                }
+
+                Arrays.sort(kmers, 0, numPacked);
+                for ( int i = 1; i < numPacked; i++ ) {
+                    if ( kmers[i] == kmers[i - 1] ) {
+                        nonUniqueKmers.add(kmers[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @see ReadThreadingGraph#threadSequence
+     */
+    private void threadSequence(final ReadThreadingGraph.SequenceForKmers seqForKmers) {
+        final int uniqueStartPos = findStart(seqForKmers);
+        if ( uniqueStartPos == -1 ) {
+            return;
+        }
+
+        long kmer = packKmer(seqForKmers.sequence, uniqueStartPos);
+        final int startingVertex = getOrCreateKmerVertex(kmer);
+
+        // increase the counts of all edges incoming into the starting vertex supported by going back in sequence
+        increaseCountsInMatchedKmers(seqForKmers.count, startingVertex, kmer, kmerSize - 2);
+
+        if ( seqForKmers.isRef ) {
+            if ( hasRefSource ) {
+                throw new IllegalStateException("Found two refSources! prev: " + new String(unpackKmer(refSource)) + ", new: " + new String(unpackKmer(kmer)));
+            }
+            hasRefSource = true;
+            refSource = packKmer(seqForKmers.sequence, seqForKmers.start);
+        }
+
+        int vertex = startingVertex;
+        for ( int i = uniqueStartPos + 1; i <= seqForKmers.stop - kmerSize; i++ ) {
+            kmer = ((kmer << 2) | baseCode(seqForKmers.sequence[i + kmerSize - 1])) & kmerMask;
+            vertex = extendChainByOne(vertex, kmer, seqForKmers.count, seqForKmers.isRef);
+        }
+    }
+
+    /**
+     * @see ReadThreadingGraph#findStart
+     */
+    private int findStart(final ReadThreadingGraph.SequenceForKmers seqForKmers) {
+        if ( seqForKmers.isRef ) {
+            return 0;
+        }
+
+        if ( seqForKmers.start < seqForKmers.stop - kmerSize ) {
+            long kmer = packKmer(seqForKmers.sequence, seqForKmers.start);
+            for ( int i = seqForKmers.start; i < seqForKmers.stop - kmerSize; i++ ) {
+                if ( i > seqForKmers.start ) {
+                    kmer = ((kmer << 2) | baseCode(seqForKmers.sequence[i + kmerSize - 1])) & kmerMask;
+                }
+                if ( startThreadingOnlyAtExistingVertex ? uniqueKmers.containsKey(kmer) : ! nonUniqueKmers.contains(kmer) ) {
+                    return i;
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @see ReadThreadingGraph#increaseCountsInMatchedKmers
+     */
+    private void increaseCountsInMatchedKmers(final int count, final int vertex, final long originalKmer, final int offset) {
+        if ( offset == -1 ) {
+            return;
+        }
+
+        final int seqBase = baseCodeAt(originalKmer, offset);
+        for ( int e = firstInEdge[vertex]; e != NO_EDGE; e = nextInEdge[e] ) {
+            final int prev = edgeSource[e];
+            if ( suffixCode(prev) == seqBase && inDegree[vertex] == 1 ) {
+                incMultiplicity(e, count);
+                increaseCountsInMatchedKmers(count, prev, originalKmer, offset - 1);
+            }
+        }
+    }
+
+    private int getOrCreateKmerVertex(final long kmer) {
+        final int vertex = getUniqueKmerVertex(kmer, true);
+        return vertex != NO_VERTEX ? vertex : createVertex(kmer);
+    }
+
+    private int getUniqueKmerVertex(final long kmer, final boolean allowRefSource) {
+        if ( ! allowRefSource && hasRefSource && kmer == refSource ) {
+            return NO_VERTEX;
+        }
+        return uniqueKmers.get(kmer);
+    }
+
+    private int createVertex(final long kmer) {
+        final int vertex = addVertex(kmer);
+        if ( ! nonUniqueKmers.contains(kmer) && ! uniqueKmers.containsKey(kmer) ) {
+            uniqueKmers.put(kmer, vertex);
+        }
+        return vertex;
+    }
+
+    /**
+     * @see ReadThreadingGraph#extendChainByOne
+     */
+    private int extendChainByOne(final int prevVertex, final long kmer, final int count, final boolean isRef) {
+        final int suffix = (int) (kmer & 3);
+        for ( int e = firstOutEdge[prevVertex]; e != NO_EDGE; e = nextOutEdge[e] ) {
+            if ( suffixCode(edgeTarget[e]) == suffix ) {
+                // we've got a match in the chain, so simply increase the count of the edge by 1 and continue
+                incMultiplicity(e, count);
+                return edgeTarget[e];
+            }
+        }
+
+        // none of our outgoing edges had our unique suffix base, so we check for an opportunity to merge back in
+        final int uniqueMergeVertex = getUniqueKmerVertex(kmer, false);
+        if ( isRef && uniqueMergeVertex != NO_VERTEX ) {
+            throw new IllegalStateException("Found a unique vertex to merge into the reference graph " + prevVertex + " -> " + uniqueMergeVertex);
+        }
+
+        final int nextVertex = uniqueMergeVertex == NO_VERTEX ? createVertex(kmer) : uniqueMergeVertex;
+        addEdge(prevVertex, nextVertex, isRef, count);
+        return nextVertex;
+    }
+
+    /**
+     * @see ReadThreadingGraph#isLowComplexity()
+     */
+    boolean isLowComplexity() {
+        return (nonUniqueKmers.size() + unpackableNonUniqueKmers.size()) * 4 > uniqueKmers.size();
+    }
+
+    /**
+     * Checks for the presence of directed cycles in the graph.
+     *
+     * @return {@code true} if the graph has cycles, {@code false} otherwise.
+     */
+    boolean hasCycles() {
+        // 0 = not visited, 1 = on the current path, 2 = done
+        final byte[] state = new byte[numVertices];
+        final int[] nextEdgeToFollow = new int[numVertices];
+        final int[] stack = new int[numVertices];
+        for ( int root = 0; root < numVertices; root++ ) {
+            if ( vertexRemoved[root] || state[root] != 0 ) {
+                continue;
+            }
+            int stackSize = 0;
+            stack[stackSize++] = root;
+            state[root] = 1;
+            nextEdgeToFollow[root] = firstOutEdge[root];
+            while ( stackSize > 0 ) {
+                final int v = stack[stackSize - 1];
+                final int e = nextEdgeToFollow[v];
+                if ( e == NO_EDGE ) {
+                    state[v] = 2;
+                    stackSize--;
+                    continue;
+                }
+                nextEdgeToFollow[v] = nextOutEdge[e];
+                final int w = edgeTarget[e];
+                if ( state[w] == 1 ) {
+                    return true;
+                } else if ( state[w] == 0 ) {
+                    state[w] = 1;
+                    nextEdgeToFollow[w] = firstOutEdge[w];
+                    stack[stackSize++] = w;
+                }
+            }
+        }
+        return false;
+    }
+
+    // --------------------------------------------------------------------------------
+    // pruning
+    // --------------------------------------------------------------------------------
+
+    /**
+     * Prune all chains from this graph where all edges in the path have pruning multiplicity < pruneFactor
+     *
+     * @see org.broadinstitute.hellbender.tools.walkers.haplotypecaller.graphs.LowWeightChainPruner
+     */
+    void pruneLowWeightChains(final int pruneFactor) {
+        Utils.validateArg( pruneFactor >= 0, "pruneFactor must be >= 0 but got " + pruneFactor);
+        if ( pruneFactor == 0 ) {
+            return;
+        }
+
+        final boolean[] edgesToKeep = new boolean[numEdges];
+        final int[] pathStamps = new int[numVertices];
+        final IntArrayList chain = new IntArrayList();
+        int stamp = 0;
+        for ( int chainStart = 0; chainStart < numVertices; chainStart++ ) {
+            if ( vertexRemoved[chainStart] ) {
+                continue;
+            }
+            final int out = outDegree[chainStart];
+            final int in = inDegree[chainStart];
+            if ( ! (out > 1 || in > 1 || (in == 0 && out > 0)) ) {
+                continue;
+            }
+
+            for ( int outEdge = firstOutEdge[chainStart]; outEdge != NO_EDGE; outEdge = nextOutEdge[outEdge] ) {
+                // the chain is composed of the start and its next vertices, extended while the last vertex has in and out degree 1 or 0
+                stamp++;
+                chain.clear();
+                chain.add(outEdge);
+                pathStamps[chainStart] = stamp;
+                int last = edgeTarget[outEdge];
+                pathStamps[last] = stamp;
+                while ( outDegree[last] == 1 && inDegree[last] <= 1 ) {
+                    final int nextEdge = firstOutEdge[last];
+                    final int next = edgeTarget[nextEdge];
+                    if ( pathStamps[next] == stamp ) {
+                        break;
+                    }
+                    chain.add(nextEdge);
+                    pathStamps[next] = stamp;
+                    last = next;
+                }
+
+                // we must keep edges in any path that contains a reference edge or an edge with weight >= pruneFactor
+                boolean mustBeKept = false;
+                for ( int i = 0; i < chain.size() && ! mustBeKept; i++ ) {
+                    final int e = chain.getInt(i);
+                    mustBeKept = edgeIsRef[e] || getPruningMultiplicity(e) >= pruneFactor;
+                }
+                if ( mustBeKept ) {
+                    for ( int i = 0; i < chain.size(); i++ ) {
+                        edgesToKeep[chain.getInt(i)] = true;
+                    }
+                }
+            }
+        }
+
+        for ( int e = 0; e < edgesToKeep.length; e++ ) {
+            if ( ! edgeRemoved[e] && ! edgesToKeep[e] ) {
+                removeEdge(e);
+            }
+        }
+
+        removeSingletonOrphanVertices();
+    }
+
+    /**
+     * @see ReadThreadingGraph#removeSingletonOrphanVertices()
+     */
+    private void removeSingletonOrphanVertices() {
+        for ( int v = 0; v < numVertices; v++ ) {
+            if ( ! vertexRemoved[v] && inDegree[v] == 0 && outDegree[v] == 0 ) {
+                removeVertex(v);
+            }
+        }
+    }
+
+    /**
+     * Remove all vertices in the graph that aren't on a path from the reference source vertex to the reference sink vertex
+     *
+     * @see org.broadinstitute.hellbender.tools.walkers.haplotypecaller.graphs.BaseGraph#removePathsNotConnectedToRef()
+     */
+    void removePathsNotConnectedToRef() {
+        final int refSourceVertex = getReferenceSourceVertex();
+        final int refSinkVertex = getReferenceSinkVertex();
+        if ( refSourceVertex == NO_VERTEX || refSinkVertex == NO_VERTEX ) {
+            throw new IllegalStateException("Graph must have ref source and sink vertices");
+        }
+
+        final boolean[] onPathFromRefSource = verticesReachableFrom(refSourceVertex, true);
+        final boolean[] onPathFromRefSink = verticesReachableFrom(refSinkVertex, false);
+        for ( int v = 0; v < numVertices; v++ ) {
+            if ( ! vertexRemoved[v] && ! (onPathFromRefSource[v] && onPathFromRefSink[v]) ) {
+                removeVertex(v);
+            }
+        }
+
+        // simple sanity checks that this algorithm is working.
+        int numSinks = 0;
+        int numSources = 0;
+        for ( int v = 0; v < numVertices; v++ ) {
+            if ( ! vertexRemoved[v] ) {
+                numSinks += outDegree[v] == 0 ? 1 : 0;
+                numSources += inDegree[v] == 0 ? 1 : 0;
+            }
+        }
+        if ( numSinks > 1 ) {
+            throw new IllegalStateException("Should have eliminated all but the reference sink, but found " + numSinks + " sinks");
+        }
+        if ( numSources > 1 ) {
+            throw new IllegalStateException("Should have eliminated all but the reference source, but found " + numSources + " sources");
+        }
+    }
+
+    private boolean[] verticesReachableFrom(final int start, final boolean followOutgoingEdges) {
+        final boolean[] reached = new boolean[numVertices];
+        final int[] toVisit = new int[numVertices];
+        int numToVisit = 0;
+        reached[start] = true;
+        toVisit[numToVisit++] = start;
+        while ( numToVisit > 0 ) {
+            final int v = toVisit[--numToVisit];
+            int e = followOutgoingEdges ? firstOutEdge[v] : firstInEdge[v];
+            while ( e != NO_EDGE ) {
+                final int w = followOutgoingEdges ? edgeTarget[e] : edgeSource[e];
+                if ( ! reached[w] ) {
+                    reached[w] = true;
+                    toVisit[numToVisit++] = w;
+                }
+                e = followOutgoingEdges ? nextOutEdge[e] : nextInEdge[e];
+            }
+        }
+        return reached;
+    }
+
+    // --------------------------------------------------------------------------------
+    // dangling head and tail recovery
+    // --------------------------------------------------------------------------------
+
+    /**
+     * Class to keep track of the important dangling chain merging data
+     */
+    private static final class DanglingChainMergeHelper {
+        final IntArrayList danglingPath;
+        final IntArrayList referencePath;
+        final byte[] danglingPathString;
+        final byte[] referencePathString;
+        final Cigar cigar;
+
+        DanglingChainMergeHelper(final IntArrayList danglingPath, final IntArrayList referencePath,
+                                 final byte[] danglingPathString, final byte[] referencePathString, final Cigar cigar) {
+            this.danglingPath = danglingPath;
+            this.referencePath = referencePath;
+            this.danglingPathString = danglingPathString;
+            this.referencePathString = referencePathString;
+            this.cigar = cigar;
+        }
+    }
+
+    /**
+     * @see ReadThreadingGraph#recoverDanglingTails(int, int, SmithWatermanAligner)
+     */
+    void recoverDanglingTails(final int pruneFactor, final int minDanglingBranchLength, final SmithWatermanAligner aligner) {
+        Utils.validateArg(pruneFactor >= 0, () -> "pruneFactor must be non-negative but was " + pruneFactor);
+        Utils.validateArg(minDanglingBranchLength >= 0, () -> "minDanglingBranchLength must be non-negative but was " + minDanglingBranchLength);
+        if ( ! alreadyBuilt ) {
+            throw new IllegalStateException("recoverDanglingTails requires the graph be already built");
+        }
+
+        int attempted = 0;
+        int nRecovered = 0;
+        for ( int v = 0; v < numVertices; v++ ) {
+            if ( ! vertexRemoved[v] && outDegree[v] == 0 && ! isRefSink(v) ) {
+                attempted++;
+                nRecovered += recoverDanglingTail(v, pruneFactor, minDanglingBranchLength, aligner);
+            }
+        }
+
+        logger.debug(String.format("Recovered %d of %d dangling tails", nRecovered, attempted));
+    }
+
+    /**
+     * @see ReadThreadingGraph#recoverDanglingHeads(int, int, SmithWatermanAligner)
+     */
+    void recoverDanglingHeads(final int pruneFactor, final int minDanglingBranchLength, final SmithWatermanAligner aligner) {
+        Utils.validateArg(pruneFactor >= 0, () -> "pruneFactor must be non-negative but was " + pruneFactor);
+        Utils.validateArg(minDanglingBranchLength >= 0, () -> "minDanglingBranchLength must be non-negative but was " + minDanglingBranchLength);
+        if ( ! alreadyBuilt ) {
+            throw new IllegalStateException("recoverDanglingHeads requires the graph be already built");
+        }
+
+        // collect the dangling heads first, because recovering them adds vertices to the graph
+        final IntArrayList danglingHeads = new IntArrayList();
+        for ( int v = 0; v < numVertices; v++ ) {
+            if ( ! vertexRemoved[v] && inDegree[v] == 0 && ! isRefSource(v) ) {
+                danglingHeads.add(v);
+            }
+        }
+
+        int attempted = 0;
+        int nRecovered = 0;
+        for ( int i = 0; i < danglingHeads.size(); i++ ) {
+            attempted++;
+            nRecovered += recoverDanglingHead(danglingHeads.getInt(i), pruneFactor, minDanglingBranchLength, aligner);
+        }
+
+        logger.debug(String.format("Recovered %d of %d dangling heads", nRecovered, attempted));
+    }
+
+    private int recoverDanglingTail(final int vertex, final int pruneFactor, final int minDanglingBranchLength, final SmithWatermanAligner aligner) {
+        if ( outDegree[vertex] != 0 ) {
+            throw new IllegalStateException("Attempting to recover a dangling tail for " + vertex + " but it has out-degree > 0");
+        }
+
+        final DanglingChainMergeHelper danglingTailMergeResult = generateCigarAgainstDownwardsReferencePath(vertex, pruneFactor, minDanglingBranchLength, aligner);
+        if ( danglingTailMergeResult == null || ! ReadThreadingGraph.cigarIsOkayToMerge(danglingTailMergeResult.cigar, false, true) ) {
+            return 0;
+        }
+
+        return mergeDanglingTail(danglingTailMergeResult);
+    }
+
+    private int recoverDanglingHead(final int vertex, final int pruneFactor, final int minDanglingBranchLength, final SmithWatermanAligner aligner) {
+        if ( inDegree[vertex] != 0 ) {
+            throw new IllegalStateException("Attempting to recover a dangling head for " + vertex + " but it has in-degree > 0");
+        }
+
+        final DanglingChainMergeHelper danglingHeadMergeResult = generateCigarAgainstUpwardsReferencePath(vertex, pruneFactor, minDanglingBranchLength, aligner);
+        if ( danglingHeadMergeResult == null || ! ReadThreadingGraph.cigarIsOkayToMerge(danglingHeadMergeResult.cigar, true, false) ) {
+            return 0;
+        }
+
+        return mergeDanglingHead(danglingHeadMergeResult);
+    }
+
+    /**
+     * @see ReadThreadingGraph#mergeDanglingTail
+     */
+    private int mergeDanglingTail(final DanglingChainMergeHelper danglingTailMergeResult) {
+        final List<CigarElement> elements = danglingTailMergeResult.cigar.getCigarElements();
+        final CigarElement lastElement = elements.get(elements.size() - 1);
+        Utils.validateArg( lastElement.getOperator() == CigarOperator.M, "The last Cigar element must be an M");
+
+        final int lastRefIndex = danglingTailMergeResult.cigar.getReferenceLength() - 1;
+        final int matchingSuffix = Math.min(ReadThreadingGraph.longestSuffixMatch(danglingTailMergeResult.referencePathString, danglingTailMergeResult.danglingPathString, lastRefIndex), lastElement.getLength());
+        if ( matchingSuffix == 0 ) {
+            return 0;
+        }
+
+        final int altIndexToMerge = Math.max(danglingTailMergeResult.cigar.getReadLength() - matchingSuffix - 1, 0);
+
+        // push the reference index down one position when a left-aligned leading deletion includes the LCA
+        final boolean firstElementIsDeletion = elements.get(0).getOperator() == CigarOperator.D;
+        final boolean mustHandleLeadingDeletionCase =  firstElementIsDeletion && (elements.get(0).getLength() + matchingSuffix == lastRefIndex + 1);
+        final int refIndexToMerge = lastRefIndex - matchingSuffix + 1 + (mustHandleLeadingDeletionCase ? 1 : 0);
+
+        // merging a tail placed wholly in an insertion back to the LCA would create a cycle
+        if ( refIndexToMerge == 0 ) {
+            return 0;
+        }
+
+        addEdge(danglingTailMergeResult.danglingPath.getInt(altIndexToMerge), danglingTailMergeResult.referencePath.getInt(refIndexToMerge), false, 1);
+        return 1;
+    }
+
+    /**
+     * @see ReadThreadingGraph#mergeDanglingHead
+     */
+    private int mergeDanglingHead(final DanglingChainMergeHelper danglingHeadMergeResult) {
+        final List<CigarElement> elements = danglingHeadMergeResult.cigar.getCigarElements();
+        final CigarElement firstElement = elements.get(0);
+        Utils.validateArg( firstElement.getOperator() == CigarOperator.M, "The first Cigar element must be an M");
+
+        final int indexesToMerge = bestPrefixMatch(danglingHeadMergeResult.referencePathString, danglingHeadMergeResult.danglingPathString, firstElement.getLength());
+        if ( indexesToMerge <= 0 ) {
+            return 0;
+        }
+
+        // we can't push back the reference path
+        if ( indexesToMerge >= danglingHeadMergeResult.referencePath.size() - 1 ) {
+            return 0;
+        }
+
+        // but we can manipulate the dangling path if we need to
+        if ( indexesToMerge >= danglingHeadMergeResult.danglingPath.size() &&
+                ! extendDanglingPathAgainstReference(danglingHeadMergeResult, indexesToMerge - danglingHeadMergeResult.danglingPath.size() + 2) ) {
+            return 0;
+        }
+
+        addEdge(danglingHeadMergeResult.referencePath.getInt(indexesToMerge + 1), danglingHeadMergeResult.danglingPath.getInt(indexesToMerge), false, 1);
+        return 1;
+    }
+
+    private DanglingChainMergeHelper generateCigarAgainstDownwardsReferencePath(final int vertex, final int pruneFactor, final int minDanglingBranchLength, final SmithWatermanAligner aligner) {
+        final int minTailPathLength = Math.max(1, minDanglingBranchLength); // while heads can be 0, tails absolutely cannot
+
+        // find the lowest common ancestor path between this vertex and the diverging master path if available
+        final IntArrayList altPath = findPath(vertex, pruneFactor, true);
+        if ( altPath == null || isRefSource(altPath.getInt(0)) || altPath.size() < minTailPathLength + 1 ) {
+            return null;
+        }
+
+        final IntArrayList refPath = getReferencePath(altPath.getInt(0), true, incomingEdgeOf(altPath.getInt(1)));
+        final byte[] refBases = getBasesForPath(refPath, false);
+        final byte[] altBases = getBasesForPath(altPath, false);
+
+        final SmithWatermanAlignment alignment = aligner.align(refBases, altBases, SmithWatermanAligner.STANDARD_NGS, SWOverhangStrategy.LEADING_INDEL);
+        return new DanglingChainMergeHelper(altPath, refPath, altBases, refBases, AlignmentUtils.removeTrailingDeletions(alignment.getCigar()));
+    }
+
+    private DanglingChainMergeHelper generateCigarAgainstUpwardsReferencePath(final int vertex, final int pruneFactor, final int minDanglingBranchLength, final SmithWatermanAligner aligner) {
+        // find the highest common descendant path between vertex and the reference source if available
+        final IntArrayList altPath = findPath(vertex, pruneFactor, false);
+        if ( altPath == null || isRefSink(altPath.getInt(0)) || altPath.size() < minDanglingBranchLength + 1 ) {
+            return null;
+        }
+
+        final IntArrayList refPath = getReferencePath(altPath.getInt(0), false, NO_EDGE);
+        final byte[] refBases = getBasesForPath(refPath, true);
+        final byte[] altBases = getBasesForPath(altPath, true);
+
+        final SmithWatermanAlignment alignment = aligner.align(refBases, altBases, SmithWatermanAligner.STANDARD_NGS, SWOverhangStrategy.LEADING_INDEL);
+        return new DanglingChainMergeHelper(altPath, refPath, altBases, refBases, AlignmentUtils.removeTrailingDeletions(alignment.getCigar()));
+    }
+
+    /**
+     * Finds the path upwards from vertex to the lowest common ancestor, or downwards to the highest common descendant
+     * of the reference, ignoring the part of the path beyond any edge with a pruning multiplicity below pruneFactor.
+     * The path starts with the ancestor (or descendant) and ends with vertex.
+     *
+     * @return the path, or null if vertex doesn't merge back into a path (or into the reference path, going downwards)
+     */
+    private IntArrayList findPath(final int vertex, final int pruneFactor, final boolean upwards) {
+        final IntArrayList reversedPath = new IntArrayList();
+        int v = vertex;
+        while ( ! (upwards ? inDegree[v] != 1 || outDegree[v] >= 2 : isReferenceNode(v) || outDegree[v] != 1) ) {
+            final int edge = upwards ? incomingEdgeOf(v) : outgoingEdgeOf(v);
+            // if it has too low a weight, don't use it (or previous vertexes) for the path
+            if ( getPruningMultiplicity(edge) < pruneFactor ) {
+                reversedPath.clear();
+            } else {
+                reversedPath.add(v);
+            }
+            v = upwards ? edgeSource[edge] : edgeTarget[edge];
+        }
+        reversedPath.add(v);
+
+        if ( ! (upwards ? outDegree[v] > 1 : isReferenceNode(v)) ) {
+            return null;
+        }
+        final IntArrayList path = new IntArrayList(reversedPath.size());
+        for ( int i = reversedPath.size() - 1; i >= 0; i-- ) {
+            path.add(reversedPath.getInt(i));
+        }
+        return path;
+    }
+
+    /**
+     * Finds the path in the graph from start to the reference sink (or source, going upwards), including start
+     *
+     * @param blacklistedEdge edge to ignore going downwards, or NO_EDGE
+     */
+    private IntArrayList getReferencePath(final int start, final boolean downwards, final int blacklistedEdge) {
+        final IntArrayList path = new IntArrayList();
+        int v = start;
+        while ( v != NO_VERTEX ) {
+            path.add(v);
+            v = downwards ? getNextReferenceVertex(v, blacklistedEdge) : getPrevReferenceVertex(v);
+        }
+        return path;
+    }
+
+    /**
+     * @see org.broadinstitute.hellbender.tools.walkers.haplotypecaller.graphs.BaseGraph#getNextReferenceVertex, allowing non-reference paths
+     */
+    private int getNextReferenceVertex(final int v, final int blacklistedEdge) {
+        for ( int e = firstOutEdge[v]; e != NO_EDGE; e = nextOutEdge[e] ) {
+            if ( edgeIsRef[e] ) {
+                return edgeTarget[e];
+            }
+        }
+        for ( int e = firstOutEdge[v]; e != NO_EDGE; e = nextOutEdge[e] ) {
+            if ( e != blacklistedEdge ) {
+                return edgeTarget[e];
+            }
+        }
+        return NO_VERTEX;
+    }
+
+    private int getPrevReferenceVertex(final int v) {
+        for ( int e = firstInEdge[v]; e != NO_EDGE; e = nextInEdge[e] ) {
+            if ( isReferenceNode(edgeSource[e]) ) {
+                return edgeSource[e];
+            }
+        }
+        return NO_VERTEX;
+    }
+
+    /**
+     * @see ReadThreadingGraph#getBasesForPath
+     */
+    private byte[] getBasesForPath(final IntArrayList path, final boolean expandSource) {
+        int length = 0;
+        for ( int i = 0; i < path.size(); i++ ) {
+            length += expandSource && inDegree[path.getInt(i)] == 0 ? kmerSize : 1;
+        }
+        final byte[] bases = new byte[length];
+        int offset = 0;
+        for ( int i = 0; i < path.size(); i++ ) {
+            final int v = path.getInt(i);
+            if ( expandSource && inDegree[v] == 0 ) {
+                final byte[] sequence = unpackKmer(vertexKmers[v]);
+                for ( int j = sequence.length - 1; j >= 0; j-- ) {
+                    bases[offset++] = sequence[j];
+                }
+            } else {
+                bases[offset++] = BASES[suffixCode(v)];
+            }
+        }
+        return bases;
+    }
+
+    /**
+     * @see ReadThreadingGraph#bestPrefixMatch
+     */
+    private int bestPrefixMatch(final byte[] path1, final byte[] path2, final int maxIndex) {
+        final int maxMismatches = Math.max(1, maxIndex / kmerSize);
+        int mismatches = 0;
+        int index = 0;
+        int lastGoodIndex = -1;
+        while ( index < maxIndex ) {
+            if ( path1[index] != path2[index] ) {
+                if ( ++mismatches > maxMismatches ) {
+                    return -1;
+                }
+                lastGoodIndex = index;
+            }
+            index++;
+        }
+        return lastGoodIndex;
+    }
+
+    /**
+     * @see ReadThreadingGraph#extendDanglingPathAgainstReference
+     */
+    private boolean extendDanglingPathAgainstReference(final DanglingChainMergeHelper danglingHeadMergeResult, final int numNodesToExtend) {
+        final int indexOfLastDanglingNode = danglingHeadMergeResult.danglingPath.size() - 1;
+        final int indexOfRefNodeToUse = indexOfLastDanglingNode + numNodesToExtend;
+        if ( indexOfRefNodeToUse >= danglingHeadMergeResult.referencePath.size() ) {
+            return false;
+        }
+
+        final int danglingSource = danglingHeadMergeResult.danglingPath.removeInt(indexOfLastDanglingNode);
+        final byte[] refSourceSequence = unpackKmer(vertexKmers[danglingHeadMergeResult.referencePath.getInt(indexOfRefNodeToUse)]);
+        final byte[] sequenceToExtend = new byte[numNodesToExtend + kmerSize];
+        System.arraycopy(refSourceSequence, 0, sequenceToExtend, 0, numNodesToExtend);
+        System.arraycopy(unpackKmer(vertexKmers[danglingSource]), 0, sequenceToExtend, numNodesToExtend, kmerSize);
+
+        // clean up the source and edge
+        final int sourceEdge = outgoingEdgeOf(danglingSource);
+        final int sourceEdgeMultiplicity = edgeMultiplicity[sourceEdge];
+        int prevV = edgeTarget[sourceEdge];
+        removeEdge(sourceEdge);
+
+        // extend the path
+        for ( int i = numNodesToExtend; i > 0; i-- ) {
+            final int newV = addVertex(packKmer(sequenceToExtend, i));
+            final int newE = addEdge(newV, prevV, false, 1);
+            edgeMultiplicity[newE] = sourceEdgeMultiplicity;
+            danglingHeadMergeResult.danglingPath.add(newV);
+            prevV = newV;
+        }
+
+        return true;
+    }
+
+    // --------------------------------------------------------------------------------
+    // conversion
+    // --------------------------------------------------------------------------------
+
+    /**
+     * Convert this kmer graph to a simple sequence graph, building it first if necessary
+     *
+     * @see org.broadinstitute.hellbender.tools.walkers.haplotypecaller.graphs.BaseGraph#toSequenceGraph()
+     */
+    SeqGraph toSequenceGraph() {
+        buildGraphIfNecessary();
+
+        final SeqGraph seqGraph = new SeqGraph(kmerSize);
+        final SeqVertex[] seqVertices = new SeqVertex[numVertices];
+        for ( int v = 0; v < numVertices; v++ ) {
+            if ( ! vertexRemoved[v] ) {
+                final SeqVertex sv = new SeqVertex(inDegree[v] == 0 ? unpackKmer(vertexKmers[v]) : new byte[]{BASES[suffixCode(v)]});
+                sv.setAdditionalInfo(vertexIsUniqueKmer[v] ? "+" : "");
+                seqVertices[v] = sv;
+                seqGraph.addVertex(sv);
+            }
+        }
+
+        for ( int e = 0; e < numEdges; e++ ) {
+            if ( ! edgeRemoved[e] ) {
+                seqGraph.addEdge(seqVertices[edgeSource[e]], seqVertices[edgeTarget[e]], new BaseEdge(edgeIsRef[e], edgeMultiplicity[e]));
+            }
+        }
+
+        return seqGraph;
+    }
+
+    // --------------------------------------------------------------------------------
+    // graph primitives
+    // --------------------------------------------------------------------------------
+
+    private boolean isReferenceNode(final int v) {
+        return hasRefEdge(firstInEdge[v], false) || hasRefEdge(firstOutEdge[v], true) || numLiveVertices == 1;
+    }
+
+    private boolean isRefSource(final int v) {
+        if ( hasRefEdge(firstInEdge[v], false) ) {
+            return false;
+        }
+        return hasRefEdge(firstOutEdge[v], true) || numLiveVertices == 1;
+    }
+
+    private boolean isRefSink(final int v) {
+        if ( hasRefEdge(firstOutEdge[v], true) ) {
+            return false;
+        }
+        return hasRefEdge(firstInEdge[v], false) || numLiveVertices == 1;
+    }
+
+    private boolean hasRefEdge(final int firstEdge, final boolean outgoing) {
+        for ( int e = firstEdge; e != NO_EDGE; e = outgoing ? nextOutEdge[e] : nextInEdge[e] ) {
+            if ( edgeIsRef[e] ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int getReferenceSourceVertex() {
+        for ( int v = 0; v < numVertices; v++ ) {
+            if ( ! vertexRemoved[v] && isRefSource(v) ) {
+                return v;
+            }
+        }
+        return NO_VERTEX;
+    }
+
+    private int getReferenceSinkVertex() {
+        for ( int v = 0; v < numVertices; v++ ) {
+            if ( ! vertexRemoved[v] && isRefSink(v) ) {
+                return v;
+            }
+        }
+        return NO_VERTEX;
+    }
+
+    private int incomingEdgeOf(final int v) {
+        Utils.validateArg(inDegree[v] <= 1, () -> "Cannot get a single incoming edge for a vertex with multiple incoming edges " + v);
+        return firstInEdge[v];
+    }
+
+    private int outgoingEdgeOf(final int v) {
+        Utils.validateArg(outDegree[v] <= 1, () -> "Cannot get a single outgoing edge for a vertex with multiple outgoing edges " + v);
+        return firstOutEdge[v];
+    }
+
+    private int addVertex(final long kmer) {
+        if ( numVertices == vertexKmers.length ) {
+            final int capacity = 2 * numVertices;
+            vertexKmers = Arrays.copyOf(vertexKmers, capacity);
+            vertexRemoved = Arrays.copyOf(vertexRemoved, capacity);
+            vertexIsUniqueKmer = Arrays.copyOf(vertexIsUniqueKmer, capacity);
+            firstOutEdge = Arrays.copyOf(firstOutEdge, capacity);
+            lastOutEdge = Arrays.copyOf(lastOutEdge, capacity);
+            firstInEdge = Arrays.copyOf(firstInEdge, capacity);
+            lastInEdge = Arrays.copyOf(lastInEdge, capacity);
+            outDegree = Arrays.copyOf(outDegree, capacity);
+            inDegree = Arrays.copyOf(inDegree, capacity);
+        }
+        final int v = numVertices++;
+        vertexKmers[v] = kmer;
+        firstOutEdge[v] = lastOutEdge[v] = firstInEdge[v] = lastInEdge[v] = NO_EDGE;
+        numLiveVertices++;
+        return v;
+    }
+
+    private void removeVertex(final int v) {
+        while ( firstOutEdge[v] != NO_EDGE ) {
+            removeEdge(firstOutEdge[v]);
+        }
+        while ( firstInEdge[v] != NO_EDGE ) {
+            removeEdge(firstInEdge[v]);
+        }
+        vertexRemoved[v] = true;
+        numLiveVertices--;
+    }
+
+    /**
+     * Add an edge source -> target, unless there is one already (the graph has no parallel edges)
+     *
+     * @return the new edge, or NO_EDGE if there was one already
+     */
+    private int addEdge(final int source, final int target, final boolean isRef, final int multiplicity) {
+        for ( int e = firstOutEdge[source]; e != NO_EDGE; e = nextOutEdge[e] ) {
+            if ( edgeTarget[e] == target ) {
+                return NO_EDGE;
+            }
+        }
+
+        if ( numEdges == edgeSource.length ) {
+            final int capacity = 2 * numEdges;
+            edgeSource = Arrays.copyOf(edgeSource, capacity);
+            edgeTarget = Arrays.copyOf(edgeTarget, capacity);
+            edgeIsRef = Arrays.copyOf(edgeIsRef, capacity);
+            edgeRemoved = Arrays.copyOf(edgeRemoved, capacity);
+            edgeMultiplicity = Arrays.copyOf(edgeMultiplicity, capacity);
+            nextOutEdge = Arrays.copyOf(nextOutEdge, capacity);
+            prevOutEdge = Arrays.copyOf(prevOutEdge, capacity);
+            nextInEdge = Arrays.copyOf(nextInEdge, capacity);
+            prevInEdge = Arrays.copyOf(prevInEdge, capacity);
+            edgeCurrentSampleMultiplicity = Arrays.copyOf(edgeCurrentSampleMultiplicity, capacity);
+            edgeNumSampleMultiplicities = Arrays.copyOf(edgeNumSampleMultiplicities, capacity);
+            edgeSampleMultiplicities = Arrays.copyOf(edgeSampleMultiplicities, capacity * numPruningSamples);
+        }
+        final int e = numEdges++;
+        edgeSource[e] = source;
+        edgeTarget[e] = target;
+        edgeIsRef[e] = isRef;
+        edgeMultiplicity[e] = multiplicity;
+        edgeCurrentSampleMultiplicity[e] = multiplicity;
+        edgeSampleMultiplicities[e * numPruningSamples] = multiplicity;
+        edgeNumSampleMultiplicities[e] = 1;
+
+        nextOutEdge[e] = NO_EDGE;
+        prevOutEdge[e] = lastOutEdge[source];
+        if ( lastOutEdge[source] == NO_EDGE ) {
+            firstOutEdge[source] = e;
+        } else {
+            nextOutEdge[lastOutEdge[source]] = e;
+        }
+        lastOutEdge[source] = e;
+        outDegree[source]++;
+
+        nextInEdge[e] = NO_EDGE;
+        prevInEdge[e] = lastInEdge[target];
+        if ( lastInEdge[target] == NO_EDGE ) {
+            firstInEdge[target] = e;
+        } else {
+            nextInEdge[lastInEdge[target]] = e;
+        }
+        lastInEdge[target] = e;
+        inDegree[target]++;
+
+        return e;
+    }
+
+    private void removeEdge(final int e) {
+        final int source = edgeSource[e];
+        if ( prevOutEdge[e] == NO_EDGE ) {
+            firstOutEdge[source] = nextOutEdge[e];
+        } else {
+            nextOutEdge[prevOutEdge[e]] = nextOutEdge[e];
+        }
+        if ( nextOutEdge[e] == NO_EDGE ) {
+            lastOutEdge[source] = prevOutEdge[e];
+        } else {
+            prevOutEdge[nextOutEdge[e]] = prevOutEdge[e];
+        }
+        outDegree[source]--;
+
+        final int target = edgeTarget[e];
+        if ( prevInEdge[e] == NO_EDGE ) {
+            firstInEdge[target] = nextInEdge[e];
+        } else {
+            nextInEdge[prevInEdge[e]] = nextInEdge[e];
+        }
+        if ( nextInEdge[e] == NO_EDGE ) {
+            lastInEdge[target] = prevInEdge[e];
+        } else {
+            prevInEdge[nextInEdge[e]] = prevInEdge[e];
+        }
+        inDegree[target]--;
+
+        edgeRemoved[e] = true;
+    }
+
+    private void incMultiplicity(final int e, final int count) {
+        edgeMultiplicity[e] += count;
+        edgeCurrentSampleMultiplicity[e] += count;
+    }
+
+    /**
+     * @see org.broadinstitute.hellbender.tools.walkers.haplotypecaller.graphs.MultiSampleEdge#flushSingleSampleMultiplicity()
+     */
+    private void flushSingleSampleMultiplicity(final int e) {
+        final int offset = e * numPruningSamples;
+        final int current = edgeCurrentSampleMultiplicity[e];
+        final int numStored = edgeNumSampleMultiplicities[e];
+        if ( numStored < numPruningSamples ) {
+            edgeSampleMultiplicities[offset + numStored] = current;
+            edgeNumSampleMultiplicities[e]++;
+        } else {
+            // keep the largest numPruningSamples multiplicities
+            int lowest = offset;
+            for ( int i = offset + 1; i < offset + numPruningSamples; i++ ) {
+                if ( edgeSampleMultiplicities[i] < edgeSampleMultiplicities[lowest] ) {
+                    lowest = i;
+                }
+            }
+            if ( current > edgeSampleMultiplicities[lowest] ) {
+                edgeSampleMultiplicities[lowest] = current;
+            }
+        }
+        edgeCurrentSampleMultiplicity[e] = 0;
+    }
+
+    /**
+     * @see org.broadinstitute.hellbender.tools.walkers.haplotypecaller.graphs.MultiSampleEdge#getPruningMultiplicity()
+     */
+    private int getPruningMultiplicity(final int e) {
+        final int offset = e * numPruningSamples;
+        int lowest = edgeSampleMultiplicities[offset];
+        for ( int i = offset + 1; i < offset + edgeNumSampleMultiplicities[e]; i++ ) {
+            lowest = Math.min(lowest, edgeSampleMultiplicities[i]);
+        }
+        return lowest;
+    }
+
+    // --------------------------------------------------------------------------------
+    // kmer packing
+    // --------------------------------------------------------------------------------
+
+    static int baseCode(final byte base) {
+        return BASE_CODES[base & 0xFF];
+    }
+
+    private int suffixCode(final int v) {
+        return (int) (vertexKmers[v] & 3);
+    }
+
+    private int baseCodeAt(final long kmer, final int offset) {
+        return (int) ((kmer >>> (2 * (kmerSize - 1 - offset))) & 3);
+    }
+
+    private long packKmer(final byte[] sequence, final int start) {
+        long kmer = 0;
+        for ( int i = start; i < start + kmerSize; i++ ) {
+            kmer = (kmer << 2) | baseCode(sequence[i]);
+        }
+        return kmer;
+    }
+
+    private byte[] unpackKmer(final long kmer) {
+        final byte[] sequence = new byte[kmerSize];
+        for ( int i = 0; i < kmerSize; i++ ) {
+            sequence[i] = BASES[baseCodeAt(kmer, i)];
+        }
+        return sequence;
+    }
+
+    @Override
+    public String toString() {
+        return "CompactReadThreadingGraph{kmerSize=" + kmerSize + '}';
+    }
+}
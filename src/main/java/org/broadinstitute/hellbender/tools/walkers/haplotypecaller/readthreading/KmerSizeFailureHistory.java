@@ -0,0 +1,72 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.Kmer;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers, for the repeat contexts of the assembly regions seen so far, at which kmer sizes the assembly graph could not
+ * be used (because of cycles or low complexity), so that later regions with the same repeat context can skip the kmer sizes
+ * that failed repeatedly instead of building their graphs only to throw them away. Kmer sizes rejected because the reference
+ * has non-unique kmers are not recorded: that check is cheap and does not build a graph.
+ *
+ * A success at a kmer size resets its failure count. The least recently used contexts are forgotten first.
+ * Not thread-safe: meant to be used by a single {@link ReadThreadingAssembler}.
+ */
+final class KmerSizeFailureHistory {
+
+    private final int failuresToSkip;
+    private final Map<Kmer, Map<Integer, Integer>> failuresByContext;
+
+    /**
+     * @param failuresToSkip number of consecutive failures at a kmer size after which the kmer size is skipped. Must be >= 1.
+     * @param maxContexts maximum number of repeat contexts to remember. Must be >= 1.
+     */
+    KmerSizeFailureHistory(final int failuresToSkip, final int maxContexts) {
+        Utils.validateArg(failuresToSkip >= 1, "failuresToSkip must be at least 1");
+        Utils.validateArg(maxContexts >= 1, "maxContexts must be at least 1");
+        this.failuresToSkip = failuresToSkip;
+        failuresByContext = new LinkedHashMap<Kmer, Map<Integer, Integer>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Kmer, Map<Integer, Integer>> eldest) {
+                return size() > maxContexts;
+            }
+        };
+    }
+
+    /**
+     * @param context repeat context of the region, or null if it has none
+     * @return true if the kmer size failed often enough for this context to be skipped
+     */
+    boolean shouldSkip(final Kmer context, final int kmerSize) {
+        if ( context == null ) {
+            return false;
+        }
+        final Map<Integer, Integer> failures = failuresByContext.get(context);
+        return failures != null && failures.getOrDefault(kmerSize, 0) >= failuresToSkip;
+    }
+
+    /**
+     * Record whether the graph built with kmerSize for a region with this repeat context could be used
+     *
+     * @param context repeat context of the region, or null if it has none (then nothing is recorded)
+     */
+    void record(final Kmer context, final int kmerSize, final boolean failed) {
+        if ( context == null ) {
+            return;
+        }
+        if ( failed ) {
+            failuresByContext.computeIfAbsent(context, c -> new HashMap<>()).merge(kmerSize, 1, Integer::sum);
+        } else {
+            final Map<Integer, Integer> failures = failuresByContext.get(context);
+            if ( failures != null ) {
+                failures.remove(kmerSize);
+            }
+        }
+    }
+}
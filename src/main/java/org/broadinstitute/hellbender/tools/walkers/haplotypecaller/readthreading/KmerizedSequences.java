@@ -0,0 +1,221 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import htsjdk.samtools.SAMFileHeader;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.Kmer;
+import org.broadinstitute.hellbender.utils.BaseUtils;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The sequences threaded into the assembly graphs of an assembly region, prepared once for all the kmer sizes tried.
+ *
+ * <p>
+ *     Reads are split into runs of usable bases (no Ns and no low quality bases), and every run is checked for bases
+ *     that cannot be packed into a {@link CompactReadThreadingGraph}, once, rather than for each kmer size. The graph for
+ *     a kmer size then gets the runs that are at least as long as the kmers, exactly the sequences it would get from
+ *     {@link ReadThreadingGraph#addRead(GATKRead, SAMFileHeader)}.
+ * </p>
+ *
+ * <p>
+ *     The kmers of the reference haplotype are also packed once, with a rolling 2-bit encoding, to find its longest
+ *     repeated kmer: since the kmers of a repeated (k+1)-mer are repeated too, the reference has non-unique kmers of
+ *     size k exactly when k is at most the length of the longest repeat.
+ * </p>
+ */
+final class KmerizedSequences {
+
+    private static final String ANONYMOUS_SAMPLE = "XXX_UNNAMED_XXX";
+
+    /**
+     * A sequence to thread into the graphs, with the sample it comes from
+     */
+    static final class Segment {
+        final String sampleName;
+        final ReadThreadingGraph.SequenceForKmers sequence;
+        final boolean fromRead;
+        final boolean packable;
+
+        private Segment(final String sampleName, final ReadThreadingGraph.SequenceForKmers sequence, final boolean fromRead) {
+            this.sampleName = sampleName;
+            this.sequence = sequence;
+            this.fromRead = fromRead;
+            this.packable = CompactReadThreadingGraph.isPackable(sequence.sequence, sequence.start, sequence.stop);
+        }
+
+        private int length() {
+            return sequence.stop - sequence.start;
+        }
+    }
+
+    private final byte[] refBases;
+    private final List<Segment> segments = new ArrayList<>();
+
+    // length of the longest repeated kmer of the reference, up to CompactReadThreadingGraph.MAX_KMER_SIZE, or -1 if not computed
+    private final int longestRefRepeat;
+    private final int longestRefRepeatStart;
+
+    /**
+     * @param refHaplotype the reference haplotype, threaded first
+     * @param givenHaplotypes haplotypes to add to the graphs with artificial counts (GGA mode)
+     * @param givenHaplotypesCount the count of each of the given haplotypes
+     * @param reads the reads to split into runs of usable bases
+     * @param minBaseQualityToUseInAssembly bases with lower qualities split the reads
+     */
+    KmerizedSequences(final Haplotype refHaplotype, final List<Haplotype> givenHaplotypes, final int givenHaplotypesCount,
+                      final Iterable<GATKRead> reads, final SAMFileHeader header, final byte minBaseQualityToUseInAssembly) {
+        Utils.nonNull(refHaplotype);
+        Utils.nonNull(givenHaplotypes);
+        Utils.nonNull(reads);
+        refBases = refHaplotype.getBases();
+        segments.add(new Segment(ANONYMOUS_SAMPLE, new ReadThreadingGraph.SequenceForKmers("ref", refBases, 0, refBases.length, 1, true), false));
+
+        int hapCount = 0;
+        for ( final Haplotype h : givenHaplotypes ) {
+            segments.add(new Segment(ANONYMOUS_SAMPLE, new ReadThreadingGraph.SequenceForKmers("activeAllele" + hapCount++, h.getBases(), 0, h.getBases().length, givenHaplotypesCount, false), false));
+        }
+
+        for ( final GATKRead read : reads ) {
+            addRead(read, header, minBaseQualityToUseInAssembly);
+        }
+
+        if ( CompactReadThreadingGraph.isPackable(refBases, 0, refBases.length) ) {
+            final int[] longest = findLongestRepeat(refBases, Math.min(refBases.length, CompactReadThreadingGraph.MAX_KMER_SIZE));
+            longestRefRepeat = longest[0];
+            longestRefRepeatStart = longest[1];
+        } else {
+            longestRefRepeat = -1;
+            longestRefRepeatStart = -1;
+        }
+    }
+
+    /**
+     * Split the read into runs of usable bases, as {@link ReadThreadingGraph#addRead(GATKRead, SAMFileHeader)} does,
+     * keeping the runs of any length
+     */
+    private void addRead(final GATKRead read, final SAMFileHeader header, final byte minBaseQualityToUseInAssembly) {
+        final byte[] sequence = read.getBases();
+        final byte[] qualities = read.getBaseQualities();
+        final String sampleName = ReadUtils.getSampleName(read, header);
+
+        int lastGood = -1;
+        for ( int end = 0; end <= sequence.length; end++ ) {
+            if ( end == sequence.length || sequence[end] == BaseUtils.Base.N.base || qualities[end] < minBaseQualityToUseInAssembly ) {
+                final int start = lastGood;
+                if ( start != -1 ) {
+                    final String name = read.getName() + '_' + start + '_' + end;
+                    segments.add(new Segment(sampleName, new ReadThreadingGraph.SequenceForKmers(name, sequence, start, end, 1, false), true));
+                }
+                lastGood = -1;
+            } else if ( lastGood == -1 ) {
+                lastGood = end;
+            }
+        }
+    }
+
+    /**
+     * @return the sequences to thread into a graph with kmerSize, in the order to add them
+     */
+    List<Segment> getSegments(final int kmerSize) {
+        final List<Segment> result = new ArrayList<>(segments.size());
+        for ( final Segment segment : segments ) {
+            if ( ! segment.fromRead || segment.length() >= kmerSize ) {
+                result.add(segment);
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * @return true if all the sequences threaded with kmerSize can be packed into a {@link CompactReadThreadingGraph}
+     */
+    boolean isPackable(final int kmerSize) {
+        for ( final Segment segment : segments ) {
+            if ( ! segment.packable && (! segment.fromRead || segment.length() >= kmerSize) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the reference haplotype has a kmer of size kmerSize more than once
+     */
+    boolean refHasNonUniqueKmers(final int kmerSize) {
+        if ( longestRefRepeat != -1 && (kmerSize <= longestRefRepeat || longestRefRepeat < CompactReadThreadingGraph.MAX_KMER_SIZE) ) {
+            return kmerSize <= longestRefRepeat;
+        }
+        return ! ReadThreadingGraph.determineNonUniqueKmers(segments.get(0).sequence, kmerSize).isEmpty();
+    }
+
+    /**
+     * The repeat context of the reference, which is the first of its longest repeated kmers (up to
+     * {@link CompactReadThreadingGraph#MAX_KMER_SIZE} bases), if that is at least minRepeatLength long.
+     * Regions sharing a repeat context usually fail to assemble at the same kmer sizes.
+     *
+     * @return the repeat context, or null if the reference has no repeat of at least minRepeatLength (or cannot be packed)
+     */
+    Kmer getRefRepeatContext(final int minRepeatLength) {
+        return longestRefRepeat > 0 && longestRefRepeat >= minRepeatLength ? new Kmer(refBases, longestRefRepeatStart, longestRefRepeat) : null;
+    }
+
+    /**
+     * Binary search for the length of the longest repeated kmer, using that a repeated kmer contains shorter repeated kmers
+     *
+     * @return the length (0 if no base is repeated) and the start of the first repeated kmer of that length
+     */
+    private static int[] findLongestRepeat(final byte[] bases, final int maxLength) {
+        int longest = 0;
+        int longestStart = -1;
+        int low = 1;
+        int high = maxLength;
+        final LongOpenHashSet seen = new LongOpenHashSet(bases.length);
+        while ( low <= high ) {
+            final int length = (low + high) >>> 1;
+            final int start = firstRepeatedKmer(bases, length, seen);
+            if ( start >= 0 ) {
+                longest = length;
+                longestStart = start;
+                low = length + 1;
+            } else {
+                high = length - 1;
+            }
+        }
+        return new int[]{longest, longestStart};
+    }
+
+    /**
+     * @return the start of the first kmer of the given length that occurred earlier in bases, or -1 if all are unique
+     */
+    private static int firstRepeatedKmer(final byte[] bases, final int length, final LongOpenHashSet seen) {
+        seen.clear();
+        final long mask = (1L << (2 * length)) - 1;
+        long kmer = 0;
+        for ( int i = 0; i < bases.length; i++ ) {
+            kmer = ((kmer << 2) | CompactReadThreadingGraph.baseCode(bases[i])) & mask;
+            if ( i >= length - 1 && ! seen.add(kmer) ) {
+                return firstOccurrence(bases, i - length + 1, length);
+            }
+        }
+        return -1;
+    }
+
+    private static int firstOccurrence(final byte[] bases, final int repeatStart, final int length) {
+        for ( int start = 0; start < repeatStart; start++ ) {
+            boolean matches = true;
+            for ( int i = 0; i < length && matches; i++ ) {
+                matches = bases[start + i] == bases[repeatStart + i];
+            }
+            if ( matches ) {
+                return start;
+            }
+        }
+        return repeatStart;
+    }
+}
@@ -12,6 +12,7 @@ import org.broadinstitute.hellbender.engine.AssemblyRegion;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.AssemblyResult;
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.AssemblyResultSet;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.Kmer;
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.ReadErrorCorrector;
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.graphs.*;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
@@ -35,6 +36,7 @@ public final class ReadThreadingAssembler {
     private static final int GGA_MODE_ARTIFICIAL_COUNTS = 1000;
     private static final int KMER_SIZE_ITERATION_INCREASE = 10;
     private static final int MAX_KMER_ITERATIONS_TO_ATTEMPT = 6;
+    private static final int MAX_REPEAT_CONTEXTS_TO_REMEMBER = 10000;
 
     /** The min and max kmer sizes to try when building the graph. */
     private final List<Integer> kmerSizes;
@@ -45,6 +47,8 @@ public final class ReadThreadingAssembler {
 
     private boolean removePathsNotConnectedToRef = true;
     private boolean justReturnRawGraph = false;
+    private boolean useCompactGraph = true;
+    private KmerSizeFailureHistory kmerSizeFailureHistory = null;
 
     /**
      * If false, we will only write out a region around the reference source
@@ -385,9 +389,13 @@ public final class ReadThreadingAssembler {
     List<AssemblyResult> assemble(final List<GATKRead> reads, final Haplotype refHaplotype, final List<Haplotype> givenHaplotypes, final SAMFileHeader header, final SmithWatermanAligner aligner) {
         final List<AssemblyResult> results = new LinkedList<>();
 
+        // split the reads into the sequences to thread once, for all kmer sizes
+        final KmerizedSequences sequences = new KmerizedSequences(refHaplotype, givenHaplotypes, GGA_MODE_ARTIFICIAL_COUNTS, reads, header, minBaseQualityToUseInAssembly);
+        final Kmer repeatContext = kmerSizeFailureHistory == null ? null : sequences.getRefRepeatContext(arrayMinInt(kmerSizes));
+
         // first, try using the requested kmer sizes
         for ( final int kmerSize : kmerSizes ) {
-            addResult(results, createGraph(reads, refHaplotype, kmerSize, givenHaplotypes, dontIncreaseKmerSizesForCycles, allowNonUniqueKmersInRef, header, aligner));
+            addResult(results, createGraph(sequences, refHaplotype, kmerSize, dontIncreaseKmerSizesForCycles, allowNonUniqueKmersInRef, repeatContext, aligner));
         }
 
         // if none of those worked, iterate over larger sizes if allowed to do so
@@ -397,7 +405,7 @@ public final class ReadThreadingAssembler {
             while ( results.isEmpty() && numIterations <= MAX_KMER_ITERATIONS_TO_ATTEMPT ) {
                 // on the last attempt we will allow low complexity graphs
                 final boolean lastAttempt = numIterations == MAX_KMER_ITERATIONS_TO_ATTEMPT;
-                addResult(results, createGraph(reads, refHaplotype, kmerSize, givenHaplotypes, lastAttempt, lastAttempt, header, aligner));
+                addResult(results, createGraph(sequences, refHaplotype, kmerSize, lastAttempt, lastAttempt, lastAttempt ? null : repeatContext, aligner));
                 kmerSize += KMER_SIZE_ITERATION_INCREASE;
                 numIterations++;
             }
@@ -410,76 +418,114 @@ public final class ReadThreadingAssembler {
         return array.stream().mapToInt(Integer::intValue).max().orElseThrow(() -> new IllegalArgumentException("Array size cannot be 0!"));
     }
 
+    private static int arrayMinInt(final List<Integer> array) {
+        return array.stream().mapToInt(Integer::intValue).min().orElseThrow(() -> new IllegalArgumentException("Array size cannot be 0!"));
+    }
+
     /**
      * Creates the sequence graph for the given kmerSize
      *
      * @param aligner
-     * @param reads            reads to use
+     * @param sequences        the reference, GGA haplotypes and reads to use
      * @param refHaplotype     reference haplotype
      * @param kmerSize         kmer size
-     * @param activeAlleleHaplotypes the GGA haplotypes to inject into the graph
      * @param allowLowComplexityGraphs if true, do not check for low-complexity graphs
      * @param allowNonUniqueKmersInRef if true, do not fail if the reference has non-unique kmers
+     * @param repeatContext    the repeat context of the reference, to skip kmer sizes that failed before for it, or null
      * @return sequence graph or null if one could not be created (e.g. because it contains cycles or too many paths or is low complexity)
      */
-    private AssemblyResult createGraph(final Iterable<GATKRead> reads,
+    private AssemblyResult createGraph(final KmerizedSequences sequences,
                                        final Haplotype refHaplotype,
                                        final int kmerSize,
-                                       final Iterable<Haplotype> activeAlleleHaplotypes,
                                        final boolean allowLowComplexityGraphs,
                                        final boolean allowNonUniqueKmersInRef,
-                                       final SAMFileHeader header,
+                                       final Kmer repeatContext,
                                        final SmithWatermanAligner aligner) {
         if ( refHaplotype.length() < kmerSize ) {
             // happens in cases where the assembled region is just too small
             return new AssemblyResult(AssemblyResult.Status.FAILED, null, null);
         }
 
-        if ( !allowNonUniqueKmersInRef && !ReadThreadingGraph.determineNonUniqueKmers(new ReadThreadingGraph.SequenceForKmers("ref", refHaplotype.getBases(), 0, refHaplotype.getBases().length, 1, true), kmerSize).isEmpty() ) {
+        if ( !allowNonUniqueKmersInRef && sequences.refHasNonUniqueKmers(kmerSize) ) {
             if ( debug ) {
                 logger.info("Not using kmer size of " + kmerSize + " in read threading assembler because reference contains non-unique kmers");
             }
             return null;
         }
 
+        if ( repeatContext != null && kmerSizeFailureHistory.shouldSkip(repeatContext, kmerSize) ) {
+            if ( debug ) {
+                logger.info("Not using kmer size of " + kmerSize + " in read threading assembler because it failed before for the repeat " + new String(repeatContext.bases()));
+            }
+            return null;
+        }
+
+        final AssemblyResult result = createGraph(sequences, refHaplotype, kmerSize, allowLowComplexityGraphs, aligner);
+        if ( repeatContext != null ) {
+            kmerSizeFailureHistory.record(repeatContext, kmerSize, result == null);
+        }
+        return result;
+    }
+
+    private AssemblyResult createGraph(final KmerizedSequences sequences,
+                                       final Haplotype refHaplotype,
+                                       final int kmerSize,
+                                       final boolean allowLowComplexityGraphs,
+                                       final SmithWatermanAligner aligner) {
+        // the compact graph produces the same sequence graph as the object graph, but the object graph is needed to inspect
+        // or print the kmer graph itself. Sequences with bases other than A, C, G and T also need the object graph.
+        if ( useCompactGraph && kmerSize <= CompactReadThreadingGraph.MAX_KMER_SIZE && ! debugGraphTransformations && graphOutputPath == null
+                && sequences.isPackable(kmerSize) ) {
+            final CompactReadThreadingGraph compactGraph = new CompactReadThreadingGraph(kmerSize, minBaseQualityToUseInAssembly, numPruningSamples);
+            compactGraph.setThreadingStartOnlyAtExistingVertex(!recoverDanglingBranches);
+            compactGraph.addSequences(sequences);
+            compactGraph.buildGraphIfNecessary();
+            if ( ! graphIsUsable(kmerSize, compactGraph.hasCycles(), allowLowComplexityGraphs || ! compactGraph.isLowComplexity()) ) {
+                return null;
+            }
+            return getAssemblyResult(refHaplotype, kmerSize, compactGraph, aligner);
+        }
+
         final ReadThreadingGraph rtgraph = new ReadThreadingGraph(kmerSize, debugGraphTransformations, minBaseQualityToUseInAssembly, numPruningSamples);
 
         rtgraph.setThreadingStartOnlyAtExistingVertex(!recoverDanglingBranches);
 
-        // add the reference sequence to the graph
-        rtgraph.addSequence("ref", refHaplotype.getBases(), true);
+        // add the reference sequence, the artificial GGA haplotypes and the kmers of every read to the graph
+        rtgraph.addSequences(sequences);
 
-        // add the artificial GGA haplotypes to the graph
-        int hapCount = 0;
-        for ( final Haplotype h : activeAlleleHaplotypes ) {
-            rtgraph.addSequence("activeAllele" + hapCount++, h.getBases(), GGA_MODE_ARTIFICIAL_COUNTS, false);
-        }
+        // actually build the read threading graph
+        rtgraph.buildGraphIfNecessary();
 
-        // Next pull kmers out of every read and throw them on the graph
-        for( final GATKRead read : reads ) {
-            rtgraph.addRead(read, header);
+        if ( ! graphIsUsable(kmerSize, rtgraph.hasCycles(), allowLowComplexityGraphs || ! rtgraph.isLowComplexity()) ) {
+            return null;
         }
 
-        // actually build the read threading graph
-        rtgraph.buildGraphIfNecessary();
+        return getAssemblyResult(refHaplotype, kmerSize, rtgraph, aligner);
+    }
 
+    /**
+     * @param hasCycles does the read threading graph contain a cycle?
+     * @param complexEnough does the read threading graph have enough complexity (or are low complexity graphs allowed)?
+     * @return true if the graph built with kmerSize can be used for assembly
+     */
+    private boolean graphIsUsable(final int kmerSize, final boolean hasCycles, final boolean complexEnough) {
         // sanity check: make sure there are no cycles in the graph
-        if ( rtgraph.hasCycles() ) {
+        if ( hasCycles ) {
             if ( debug ) {
                 logger.info("Not using kmer size of " + kmerSize + " in read threading assembler because it contains a cycle");
             }
-            return null;
+            return false;
         }
 
         // sanity check: make sure the graph had enough complexity with the given kmer
-        if ( ! allowLowComplexityGraphs && rtgraph.isLowComplexity() ) {
+        if ( ! complexEnough ) {
             if ( debug ) {
                 logger.info("Not using kmer size of " + kmerSize + " in read threading assembler because it does not produce a graph with enough complexity");
             }
-            return null;
+            return false;
         }
 
-        return getAssemblyResult(refHaplotype, kmerSize, rtgraph, aligner);
+        return true;
     }
 
     private AssemblyResult getAssemblyResult(final Haplotype refHaplotype, final int kmerSize, final ReadThreadingGraph rtgraph, final SmithWatermanAligner aligner) {
@@ -509,13 +555,34 @@ public final class ReadThreadingAssembler {
             initialSeqGraph.printGraph(new File(debugGraphOutputPath, refHaplotype.getLocation() + "-sequenceGraph." + kmerSize + ".0.1.initial_seqgraph.dot"), 10000);
         }
 
+        return getAssemblyResult(refHaplotype, kmerSize, initialSeqGraph, rtgraph);
+    }
+
+    private AssemblyResult getAssemblyResult(final Haplotype refHaplotype, final int kmerSize, final CompactReadThreadingGraph rtgraph, final SmithWatermanAligner aligner) {
+        // same steps as for the object graph, see above
+        rtgraph.pruneLowWeightChains(pruneFactor);
+        if ( recoverDanglingBranches ) {
+            rtgraph.recoverDanglingTails(pruneFactor, minDanglingBranchLength, aligner);
+            rtgraph.recoverDanglingHeads(pruneFactor, minDanglingBranchLength, aligner);
+        }
+        if ( removePathsNotConnectedToRef ) {
+            rtgraph.removePathsNotConnectedToRef();
+        }
+
+        return getAssemblyResult(refHaplotype, kmerSize, rtgraph.toSequenceGraph(), null);
+    }
+
+    /**
+     * @param rtgraph the read threading graph initialSeqGraph was made from, or null if it was made from a {@link CompactReadThreadingGraph}
+     */
+    private AssemblyResult getAssemblyResult(final Haplotype refHaplotype, final int kmerSize, final SeqGraph initialSeqGraph, final ReadThreadingGraph rtgraph) {
         // if the unit tests don't want us to cleanup the graph, just return the raw sequence graph
         if ( justReturnRawGraph ) {
             return new AssemblyResult(AssemblyResult.Status.ASSEMBLED_SOME_VARIATION, initialSeqGraph, null);
         }
 
         if ( debug ) {
-            logger.info("Using kmer size of " + rtgraph.getKmerSize() + " in read threading assembler");
+            logger.info("Using kmer size of " + kmerSize + " in read threading assembler");
         }
         printDebugGraphTransform(initialSeqGraph, refHaplotype.getLocation() + "-sequenceGraph." + kmerSize + ".0.2.initial_seqgraph.dot");
         initialSeqGraph.cleanNonRefPaths(); // TODO -- I don't this is possible by construction
@@ -630,6 +697,21 @@ public final class ReadThreadingAssembler {
         this.justReturnRawGraph = justReturnRawGraph;
     }
 
+    /**
+     * Skip the kmer sizes that failed repeatedly for earlier assembly regions with the same reference repeat context
+     *
+     * @param failuresToSkip number of failures at a kmer size after which it is skipped, or 0 to try all kmer sizes
+     */
+    public void setSkipKmerSizesThatFailedInSameRepeat(final int failuresToSkip) {
+        ParamUtils.isPositiveOrZero(failuresToSkip, "failuresToSkip must be >= 0");
+        kmerSizeFailureHistory = failuresToSkip == 0 ? null : new KmerSizeFailureHistory(failuresToSkip, MAX_REPEAT_CONTEXTS_TO_REMEMBER);
+    }
+
+    @VisibleForTesting
+    void setUseCompactGraph(final boolean useCompactGraph) {
+        this.useCompactGraph = useCompactGraph;
+    }
+
     public void setRemovePathsNotConnectedToRef(final boolean removePathsNotConnectedToRef) {
         this.removePathsNotConnectedToRef = removePathsNotConnectedToRef;
     }
@@ -216,6 +216,18 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
         sampleSequences.add(new SequenceForKmers(seqName, sequence, start, stop, count, isRef));
     }
 
+    /**
+     * Add the sequences prepared for this graph's kmer size
+     */
+    void addSequences(final KmerizedSequences sequences) {
+        if ( alreadyBuilt ) {
+            throw new IllegalStateException("Graph already built");
+        }
+        for ( final KmerizedSequences.Segment segment : sequences.getSegments(kmerSize) ) {
+            pending.computeIfAbsent(segment.sampleName, name -> new LinkedList<>()).add(segment.sequence);
+        }
+    }
+
     /**
      * Thread sequence seqForKmers through the current graph, updating the graph as appropriate
      * @param seqForKmers a non-null sequence
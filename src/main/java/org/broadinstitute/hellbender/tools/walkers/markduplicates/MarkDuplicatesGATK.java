@@ -4,13 +4,13 @@ import com.google.common.annotations.VisibleForTesting;
 import htsjdk.samtools.*;
 import htsjdk.samtools.util.CloseableIterator;
 import htsjdk.samtools.util.IOUtil;
-import htsjdk.samtools.util.SortingCollection;
 import htsjdk.samtools.util.SortingLongCollection;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ExperimentalFeature;
 import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
 import org.broadinstitute.barclay.help.DocumentedFeature;
 import picard.cmdline.programgroups.ReadDataManipulationProgramGroup;
+import org.broadinstitute.hellbender.utils.collections.ParallelSortingCollection;
 import org.broadinstitute.hellbender.utils.read.ReadUtils;
 import org.broadinstitute.hellbender.utils.read.markduplicates.*;
 import org.broadinstitute.hellbender.utils.runtime.ProgressLogger;
@@ -57,12 +57,16 @@ public final class MarkDuplicatesGATK extends AbstractMarkDuplicatesCommandLineP
             "some of the sorting collections.  If you are running out of memory, try reducing this number.")
     public double SORTING_COLLECTION_SIZE_RATIO = 0.25;
 
+    @Argument(shortName = "SORTING_THREADS",
+            doc = "Number of threads that sort the read ends and spill them to disk while the input is read.")
+    public int SORTING_COLLECTION_THREADS = 4;
+
     @Argument(doc = "Report Memory Stats at various times during the run")
     public boolean reportMemoryStats = false;
 
 
-    private SortingCollection<ReadEndsForMarkDuplicates> pairSort;
-    private SortingCollection<ReadEndsForMarkDuplicates> fragSort;
+    private ParallelSortingCollection<ReadEndsForMarkDuplicates> pairSort;
+    private ParallelSortingCollection<ReadEndsForMarkDuplicates> fragSort;
     private SortingLongCollection duplicateIndexes;
     private int numDuplicateIndices = 0;
 
@@ -204,17 +208,8 @@ public final class MarkDuplicatesGATK extends AbstractMarkDuplicatesCommandLineP
         final int maxInMemory = (int) ((Runtime.getRuntime().maxMemory() * SORTING_COLLECTION_SIZE_RATIO) / ReadEndsForMarkDuplicates.SIZE_OF);
         logger.info("Will retain up to " + maxInMemory + " data points before spilling to disk.");
 
-        this.pairSort = SortingCollection.newInstanceFromPaths(ReadEndsForMarkDuplicates.class,
-                new ReadEndsForMarkDuplicatesCodec(),
-                new ReadEndsMDComparator(),
-                maxInMemory,
-                TMP_DIR.stream().map(File::toPath).collect(Collectors.toList()));
-
-        this.fragSort = SortingCollection.newInstanceFromPaths(ReadEndsForMarkDuplicates.class,
-                new ReadEndsForMarkDuplicatesCodec(),
-                new ReadEndsMDComparator(),
-                maxInMemory,
-                TMP_DIR.stream().map(File::toPath).collect(Collectors.toList()));
+        this.pairSort = newReadEndsSortingCollection(maxInMemory);
+        this.fragSort = newReadEndsSortingCollection(maxInMemory);
 
         try(final SamHeaderAndIterator headerAndIterator = openInputs()) {
             final SAMFileHeader header = headerAndIterator.header;
@@ -312,6 +307,15 @@ public final class MarkDuplicatesGATK extends AbstractMarkDuplicatesCommandLineP
         this.fragSort.doneAdding();
     }
 
+    private ParallelSortingCollection<ReadEndsForMarkDuplicates> newReadEndsSortingCollection(final int maxInMemory) {
+        return new ParallelSortingCollection<>(new ReadEndsForMarkDuplicatesCodec(),
+                new ReadEndsMDComparator(),
+                maxInMemory,
+                TMP_DIR.stream().map(File::toPath).collect(Collectors.toList()),
+                SORTING_COLLECTION_THREADS,
+                MAX_FILE_HANDLES_FOR_READ_ENDS_MAP);
+    }
+
     /** Builds a read ends object that represents a single read. */
     private ReadEndsForMarkDuplicates buildReadEnds(final SAMFileHeader header, final long index, final SAMRecord rec) {
         final ReadEndsForMarkDuplicates ends = new ReadEndsForMarkDuplicates();
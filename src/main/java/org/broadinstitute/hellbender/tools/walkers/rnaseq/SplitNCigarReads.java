@@ -94,7 +94,7 @@ public final class SplitNCigarReads extends TwoPassReadWalker {
     /**
      * For expert users only!  To minimize memory consumption you can lower this number, but then the tool may skip
      * overhang fixing in regions with too much coverage.  Just make sure to give Java enough memory!  4Gb should be
-     * enough with the default value.
+     * enough with the default value. This is also the number of reads held in memory by the writer to sort the output.
      */
     @Advanced
     @Argument(fullName="max-reads-in-memory", doc="max reads allowed to be kept in memory at a time by the BAM writer", optional=true)
@@ -166,7 +166,8 @@ public final class SplitNCigarReads extends TwoPassReadWalker {
         try {
             referenceReader = new CachingIndexedFastaSequenceFile(referenceArguments.getReferencePath());
             GenomeLocParser genomeLocParser = new GenomeLocParser(getBestAvailableSequenceDictionary());
-            outputWriter = createSAMWriter(OUTPUT, false);
+            // split reads are mostly emitted in order by the overhang manager, so a window of the manager's size is usually enough to sort them
+            outputWriter = createLocallySortingSAMWriter(OUTPUT.toPath(), MAX_RECORDS_IN_MEMORY);
             overhangManager = new OverhangFixingManager(header, outputWriter, genomeLocParser, referenceReader, MAX_RECORDS_IN_MEMORY, MAX_MISMATCHES_IN_OVERHANG, MAX_BASES_TO_CLIP, doNotFixOverhangs, processSecondaryAlignments);
 
         } catch (FileNotFoundException ex) {
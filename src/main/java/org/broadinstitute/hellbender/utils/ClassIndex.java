@@ -0,0 +1,280 @@
+package org.broadinstitute.hellbender.utils;
+
+import htsjdk.tribble.FeatureCodec;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.barclay.argparser.ClassFinder;
+import org.broadinstitute.hellbender.cmdline.CommandLineProgram;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.walkers.annotator.Annotation;
+import org.broadinstitute.hellbender.tools.walkers.annotator.VariantAnnotation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Index of the subclasses of the classes that GATK otherwise discovers by scanning the classpath with
+ * {@link ClassFinder} (command line programs, feature codecs and variant annotations), so that startup does not have
+ * to go through every class on the classpath.
+ * <p>
+ * The index is generated at build time by {@link #main(String[])} and packaged into the GATK jars as
+ * {@link #INDEX_RESOURCE}. For each indexed base class it records the packages that were scanned and the classes
+ * found in them. A lookup is answered from the index only if the base class was indexed in a package enclosing the
+ * requested one; otherwise, or if there is no index on the classpath, callers fall back to a live scan (see
+ * {@link ClassUtils#findClasses(String, Class)}).
+ * <p>
+ * Since it is built from the classpath of the jar, the index does not know about classes added to the indexed
+ * packages by other classpath entries. Set the system property or environment variable
+ * {@link #SCAN_CLASSPATH_PROPERTY} to true to ignore the index and always scan.
+ */
+public final class ClassIndex {
+    private static final Logger logger = LogManager.getLogger(ClassIndex.class);
+
+    /**
+     * Classpath location of the index generated at build time
+     */
+    public static final String INDEX_RESOURCE = "org/broadinstitute/hellbender/utils/classIndex.txt";
+
+    /**
+     * If true, the index is ignored and classes are always discovered by scanning the classpath
+     */
+    public static final String SCAN_CLASSPATH_PROPERTY = "GATK_SCAN_CLASSPATH";
+
+    /**
+     * The base classes indexed by the build, with the packages (and their subpackages) they are indexed in
+     */
+    public static final Map<Class<?>, List<String>> INDEXED_CLASSES;
+    static {
+        final Map<Class<?>, List<String>> indexed = new LinkedHashMap<>();
+        indexed.put(CommandLineProgram.class, Arrays.asList("org.broadinstitute.hellbender", "picard"));
+        indexed.put(picard.cmdline.CommandLineProgram.class, Arrays.asList("org.broadinstitute.hellbender", "picard"));
+        indexed.put(FeatureCodec.class, Arrays.asList("htsjdk", "org.broadinstitute.hellbender"));
+        // the annotation interfaces and classes all live in the package of Annotation
+        indexed.put(Annotation.class, Collections.singletonList(Annotation.class.getPackage().getName()));
+        indexed.put(VariantAnnotation.class, Collections.singletonList(Annotation.class.getPackage().getName()));
+        INDEXED_CLASSES = Collections.unmodifiableMap(indexed);
+    }
+
+    private static final String COMMENT = "#";
+    private static final String PACKAGES_SEPARATOR = ":";
+    private static final String CLASS_INDENT = "    ";
+
+    private static ClassIndex defaultIndex = null;
+
+    // base class name -> packages it was indexed in, and the classes found there
+    private final Map<String, Entry> entries;
+
+    private ClassIndex(final Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * @return the index packaged with GATK, or an empty index (that answers no lookups) if there is none on the
+     * classpath or {@link #SCAN_CLASSPATH_PROPERTY} is set
+     */
+    public static synchronized ClassIndex getDefault() {
+        if (defaultIndex == null) {
+            defaultIndex = loadDefault();
+        }
+        return defaultIndex;
+    }
+
+    private static ClassIndex loadDefault() {
+        if ("true".equals(System.getenv(SCAN_CLASSPATH_PROPERTY)) || Boolean.getBoolean(SCAN_CLASSPATH_PROPERTY)) {
+            logger.debug("Ignoring the class index since " + SCAN_CLASSPATH_PROPERTY + " is set");
+            return new ClassIndex(Collections.emptyMap());
+        }
+        try (final InputStream in = ClassIndex.class.getClassLoader().getResourceAsStream(INDEX_RESOURCE)) {
+            if (in == null) {
+                logger.debug("No class index found on the classpath, classes will be discovered by scanning it");
+                return new ClassIndex(Collections.emptyMap());
+            }
+            return read(new InputStreamReader(in, StandardCharsets.UTF_8));
+        } catch (final IOException e) {
+            throw new GATKException("Could not read the class index " + INDEX_RESOURCE, e);
+        }
+    }
+
+    /**
+     * Builds an index by scanning the classpath, as {@link ClassFinder} would at startup
+     *
+     * @param indexedClasses the base classes to index, with the packages to index them in
+     */
+    public static ClassIndex scan(final Map<Class<?>, List<String>> indexedClasses) {
+        Utils.nonNull(indexedClasses);
+        final Map<String, Entry> entries = new LinkedHashMap<>();
+        for (final Map.Entry<Class<?>, List<String>> indexed : indexedClasses.entrySet()) {
+            final ClassFinder finder = new ClassFinder();
+            for (final String pack : indexed.getValue()) {
+                finder.find(pack, indexed.getKey());
+            }
+            final Set<String> classNames = new TreeSet<>();
+            finder.getClasses().forEach(c -> classNames.add(c.getName()));
+            entries.put(indexed.getKey().getName(), new Entry(indexed.getValue(), classNames));
+        }
+        return new ClassIndex(entries);
+    }
+
+    /**
+     * Reads an index written by {@link #write(Writer)}
+     */
+    public static ClassIndex read(final Reader reader) throws IOException {
+        Utils.nonNull(reader);
+        final Map<String, Entry> entries = new LinkedHashMap<>();
+        final BufferedReader lines = new BufferedReader(reader);
+        Entry current = null;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (line.trim().isEmpty() || line.startsWith(COMMENT)) {
+                continue;
+            }
+            if (line.startsWith(CLASS_INDENT)) {
+                if (current == null) {
+                    throw new GATKException("Malformed class index: class listed before any base class: " + line);
+                }
+                current.classNames.add(line.trim());
+            } else {
+                final int separator = line.indexOf(PACKAGES_SEPARATOR);
+                if (separator < 0) {
+                    throw new GATKException("Malformed class index: expected a base class and its packages: " + line);
+                }
+                final List<String> packages = Arrays.asList(line.substring(separator + 1).trim().split("\\s+"));
+                current = new Entry(packages, new TreeSet<>());
+                entries.put(line.substring(0, separator).trim(), current);
+            }
+        }
+        return new ClassIndex(entries);
+    }
+
+    /**
+     * Writes the index as text: a line per base class with the packages it was indexed in, followed by the names
+     * of the classes found, indented.
+     */
+    public void write(final Writer writer) throws IOException {
+        Utils.nonNull(writer);
+        writer.write(COMMENT + " Generated at build time by " + ClassIndex.class.getName() + ", do not edit\n");
+        for (final Map.Entry<String, Entry> entry : entries.entrySet()) {
+            writer.write(entry.getKey() + PACKAGES_SEPARATOR + " " + String.join(" ", entry.getValue().packages) + "\n");
+            for (final String className : entry.getValue().classNames) {
+                writer.write(CLASS_INDENT + className + "\n");
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * @return true if this index answers no lookups
+     */
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Looks up the classes {@link ClassFinder#find(String, Class)} would find, that is the classes in the package
+     * (or its subpackages) that extend or implement the base class, the base class itself included.
+     *
+     * The base class need not be indexed itself, as long as one of its supertypes is.
+     *
+     * @return the classes found, or null if neither the base class nor any of its supertypes is indexed in an
+     * enclosing package, or if an indexed class cannot be loaded (in which case the index is out of date and the
+     * caller should scan instead)
+     */
+    public Set<Class<?>> find(final String pack, final Class<?> baseClass) {
+        Utils.nonNull(pack, "package");
+        Utils.nonNull(baseClass, "base class");
+        final Entry entry = findEntry(pack, baseClass);
+        if (entry == null) {
+            return null;
+        }
+        final ClassLoader loader = ClassIndex.class.getClassLoader();
+        final Set<Class<?>> classes = new LinkedHashSet<>();
+        for (final String className : entry.classNames) {
+            if (isInPackage(className, pack)) {
+                try {
+                    final Class<?> clazz = Class.forName(className, false, loader);
+                    if (baseClass.isAssignableFrom(clazz)) {
+                        classes.add(clazz);
+                    }
+                } catch (final ClassNotFoundException | LinkageError e) {
+                    logger.warn("Class index is out of date (could not load " + className + "), scanning the classpath instead");
+                    return null;
+                }
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * Finds the entry of the base class or, failing that, of its closest indexed supertype, among those indexed in
+     * an enclosing package
+     */
+    private Entry findEntry(final String pack, final Class<?> baseClass) {
+        final Deque<Class<?>> types = new ArrayDeque<>();
+        types.add(baseClass);
+        while (!types.isEmpty()) {
+            final Class<?> type = types.poll();
+            final Entry entry = entries.get(type.getName());
+            if (entry != null && entry.packages.stream().anyMatch(indexed -> isInPackage(pack, indexed))) {
+                return entry;
+            }
+            if (type.getSuperclass() != null) {
+                types.add(type.getSuperclass());
+            }
+            types.addAll(Arrays.asList(type.getInterfaces()));
+        }
+        return null;
+    }
+
+    private static boolean isInPackage(final String name, final String pack) {
+        return name.equals(pack) || name.startsWith(pack + ".");
+    }
+
+    /**
+     * Generates the index of {@link #INDEXED_CLASSES} for the current classpath. Run by the build.
+     *
+     * @param args the path of the index file to write
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new UserException.BadInput("Usage: " + ClassIndex.class.getName() + " <index file to write>");
+        }
+        final Path indexFile = Paths.get(args[0]);
+        if (indexFile.getParent() != null) {
+            Files.createDirectories(indexFile.getParent());
+        }
+        final ClassIndex index = scan(INDEXED_CLASSES);
+        try (final Writer writer = Files.newBufferedWriter(indexFile, StandardCharsets.UTF_8)) {
+            index.write(writer);
+        }
+    }
+
+    private static final class Entry {
+        private final List<String> packages;
+        private final Set<String> classNames;
+
+        private Entry(final List<String> packages, final Set<String> classNames) {
+            this.packages = new ArrayList<>(packages);
+            this.classNames = classNames;
+        }
+    }
+}
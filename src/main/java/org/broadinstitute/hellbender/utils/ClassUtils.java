@@ -30,6 +30,27 @@ public final class ClassUtils {
                 clazz.getConstructors().length != 0;
     }
 
+    /**
+     * Finds the classes in the package (or its subpackages) that extend or implement the base class, the base class
+     * itself included, as {@link ClassFinder#find(String, Class)} does. The lookup is answered from the
+     * {@link ClassIndex} generated at build time when it covers the package, and by scanning the classpath otherwise.
+     *
+     * @param pack package in which the classes will be searched for
+     * @param baseClass class the classes must extend or implement
+     * @return a modifiable set of the classes found
+     */
+    public static Set<Class<?>> findClasses(final String pack, final Class<?> baseClass) {
+        Utils.nonNull(pack, "package");
+        Utils.nonNull(baseClass, "base class");
+        final Set<Class<?>> indexed = ClassIndex.getDefault().find(pack, baseClass);
+        if (indexed != null) {
+            return indexed;
+        }
+        final ClassFinder finder = new ClassFinder();
+        finder.find(pack, baseClass);
+        return finder.getClasses();
+    }
+
     /**
      * Finds and creates objects of all concrete subclasses of the given class in the package.
      * The public no-arg constructor is called to create the objects.
@@ -42,9 +63,7 @@ public final class ClassUtils {
     public static <T> List<T> makeInstancesOfSubclasses(final Class<? extends T> clazz, final Package pack){
         Utils.nonNull(clazz, "class");
         Utils.nonNull(pack, "package");
-        final ClassFinder finder = new ClassFinder();
-        finder.find(pack.getName(), clazz);
-        final Set<Class<?>> classes = finder.getClasses();
+        final Set<Class<?>> classes = findClasses(pack.getName(), clazz);
 
         final List<T> results = new ArrayList<>(classes.size());
 
@@ -73,9 +92,7 @@ public final class ClassUtils {
      * Finds all subinterfaces of the given interface (in the same package).
      */
     public static Set<Class<?>> knownSubInterfaces(final Class<?> iface) {
-        final ClassFinder finder = new ClassFinder();
-        finder.find(iface.getPackage().getName(), iface);
-        return finder.getClasses().stream().filter(cl -> !cl.equals(iface) && cl.isInterface()).collect(Collectors.toSet());
+        return findClasses(iface.getPackage().getName(), iface).stream().filter(cl -> !cl.equals(iface) && cl.isInterface()).collect(Collectors.toSet());
     }
 
     /**
@@ -45,8 +45,23 @@ public final class IntervalsSkipListOneContig<T extends Locatable> implements Se
      * @param loc Locatables, not necessarily sorted. Will be iterated over exactly once.
      */
     public IntervalsSkipListOneContig(final Iterable<T> loc) {
-        Utils.nonNull(loc);
-        vs = Lists.newArrayList(loc);
+        this(Lists.newArrayList(Utils.nonNull(loc)), true);
+    }
+
+    /**
+     * Creates an IntervalsSkipList that holds a copy of the given intervals, which must already be
+     * sorted by start position. Unlike {@link #IntervalsSkipListOneContig(Iterable)}, the relative order of
+     * intervals with the same start is preserved, so {@link #getOverlapping} returns overlapping intervals
+     * in the order in which they were given.
+     *
+     * @param loc Locatables, sorted by start position.
+     */
+    public static <T extends Locatable> IntervalsSkipListOneContig<T> fromStartSorted(final List<T> loc) {
+        return new IntervalsSkipListOneContig<>(new ArrayList<>(Utils.nonNull(loc)), false);
+    }
+
+    private IntervalsSkipListOneContig(final List<T> vs, final boolean sort) {
+        this.vs = vs;
 
         final Set<String> contigs = vs.stream().map(l -> l.getContig()).collect(Collectors.toSet());
         if (contigs.size() > 1){
@@ -67,7 +82,15 @@ public final class IntervalsSkipListOneContig<T extends Locatable> implements Se
         }
         shift = floorLog2(bSize);
 
-        vs.sort(Comparator.comparing(Locatable::getContig).thenComparingInt(Locatable::getStart).thenComparing(Locatable::getEnd));
+        if (sort) {
+            vs.sort(Comparator.comparing(Locatable::getContig).thenComparingInt(Locatable::getStart).thenComparing(Locatable::getEnd));
+        } else {
+            for (int i = 1; i < vs.size(); i++) {
+                if (vs.get(i).getStart() < vs.get(i - 1).getStart()) {
+                    throw new IllegalArgumentException("Intervals are not sorted by start: " + vs.get(i - 1) + " is followed by " + vs.get(i));
+                }
+            }
+        }
 
         reach = buildIndexAndCheck();
         reachLength = reach.length;
@@ -0,0 +1,425 @@
+package org.broadinstitute.hellbender.utils.collections;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.samtools.util.SortingCollection;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * External merge sort in the mold of htsjdk's {@link SortingCollection}, with the same add / doneAdding / iterate /
+ * cleanup life cycle and the same {@link SortingCollection.Codec}s, but with the run generation spread over threads.
+ * <p>
+ * As in {@link SortingCollection}, up to {@code maxRecordsInRam} records are first buffered in RAM; if no more are
+ * added, they are never spilled and are sorted in RAM in parallel. Once that buffer overflows, it is cut into runs
+ * that are handed to a pool of sorting threads, and the following records are buffered in smaller runs, so that the
+ * threads sort runs and spill them to deflate-compressed temporary files while the caller keeps adding to the next
+ * run. Once all the records are in, the spilled runs are merged (k-way) by the iterator, after merging them down to
+ * at most {@code maxOpenFiles} files if there are more.
+ * <p>
+ * Each spill logs (at debug level) its size and sorting time, and {@link #doneAdding()} logs the totals, which are
+ * also available from {@link #getBytesSpilled()} and {@link #getSortingNanos()}.
+ *
+ * @param <T> the type of the records
+ */
+public final class ParallelSortingCollection<T> implements Iterable<T> {
+    private static final Logger logger = LogManager.getLogger(ParallelSortingCollection.class);
+
+    private static final int IO_BUFFER_SIZE = 1 << 16;
+
+    private final SortingCollection.Codec<T> codec;
+    private final Comparator<T> comparator;
+    private final List<Path> tmpDirs;
+    private final int numThreads;
+    private final int runSize;
+    private final int maxOpenFiles;
+
+    private final ExecutorService sortingThreads;
+    // limits the number of full runs waiting to be sorted and spilled, and so the number of runs in RAM
+    private final Semaphore runsInFlight;
+    private final List<Future<Path>> spills = new ArrayList<>();
+    private List<Path> runFiles = null;
+    private final List<MergingIterator> openIterators = new ArrayList<>();
+
+    private T[] buffer;
+    private int numInBuffer = 0;
+    private boolean doneAdding = false;
+    private boolean cleanedUp = false;
+
+    private long numRecords = 0;
+    private final AtomicInteger numRuns = new AtomicInteger();
+    private final AtomicInteger numTmpFiles = new AtomicInteger();
+    private final AtomicLong bytesSpilled = new AtomicLong();
+    private final AtomicLong sortingNanos = new AtomicLong();
+
+    /**
+     * @param codec encodes the records in the temporary files; cloned for each file
+     * @param comparator the sort order
+     * @param maxRecordsInRam the maximum number of records held in RAM at once: all of them if no more are added,
+     *                        otherwise split between the run being filled and the runs being sorted
+     * @param tmpDirs directories for the temporary files, which are spread over them
+     * @param numThreads the number of threads that sort and spill runs
+     * @param maxOpenFiles the maximum number of temporary files to read at once when merging
+     */
+    @SuppressWarnings("unchecked")
+    public ParallelSortingCollection(final SortingCollection.Codec<T> codec, final Comparator<T> comparator,
+                                     final int maxRecordsInRam, final List<Path> tmpDirs, final int numThreads,
+                                     final int maxOpenFiles) {
+        Utils.nonNull(codec, "codec cannot be null");
+        Utils.nonNull(comparator, "comparator cannot be null");
+        Utils.nonEmpty(tmpDirs, "there must be at least one temporary directory");
+        Utils.validateArg(maxRecordsInRam > 0, "maxRecordsInRam must be positive");
+        Utils.validateArg(numThreads > 0, "numThreads must be positive");
+        Utils.validateArg(maxOpenFiles > 1, "maxOpenFiles must be at least 2");
+        this.codec = codec;
+        this.comparator = comparator;
+        this.tmpDirs = new ArrayList<>(tmpDirs);
+        this.maxOpenFiles = maxOpenFiles;
+        this.numThreads = numThreads;
+        // after the first spill, one run being filled plus one being sorted per thread
+        this.runSize = Math.max(1, maxRecordsInRam / (numThreads + 1));
+        this.buffer = (T[]) new Object[maxRecordsInRam];
+        this.runsInFlight = new Semaphore(numThreads);
+        this.sortingThreads = Executors.newFixedThreadPool(numThreads,
+                new ThreadFactoryBuilder().setNameFormat("sorting-thread-%d").setDaemon(true).build());
+    }
+
+    public void add(final T record) {
+        Utils.validate(!doneAdding, "Cannot add records after doneAdding() has been called");
+        if (numInBuffer == buffer.length) {
+            spillBuffer();
+        }
+        buffer[numInBuffer++] = record;
+        numRecords++;
+    }
+
+    /**
+     * Sorts and spills the remaining records (or sorts them in RAM if nothing was spilled) and waits for all the
+     * spills to complete. No more records can be added afterwards.
+     */
+    public void doneAdding() {
+        Utils.validate(!doneAdding, "doneAdding() has already been called");
+        doneAdding = true;
+        try {
+            if (spills.isEmpty()) {
+                final long start = System.nanoTime();
+                Arrays.parallelSort(buffer, 0, numInBuffer, comparator);
+                sortingNanos.addAndGet(System.nanoTime() - start);
+                logger.info(String.format("Sorted %d records in RAM in %.3f s", numRecords, sortingNanos.get() / 1e9));
+                return;
+            }
+
+            if (numInBuffer > 0) {
+                spillBuffer();
+            }
+            buffer = null;
+            runFiles = waitFor(spills);
+            // merge groups of runs in parallel until they can all be open at once
+            while (runFiles.size() > maxOpenFiles) {
+                final List<Future<Path>> merges = new ArrayList<>();
+                for (int i = 0; i < runFiles.size(); i += maxOpenFiles) {
+                    final List<Path> group = runFiles.subList(i, Math.min(i + maxOpenFiles, runFiles.size()));
+                    merges.add(sortingThreads.submit(() -> mergeRuns(group)));
+                }
+                runFiles = waitFor(merges);
+            }
+            logger.info(String.format("Sorted %d records in %d runs: %d bytes spilled, %.3f s spent sorting",
+                    numRecords, numRuns.get(), bytesSpilled.get(), sortingNanos.get() / 1e9));
+        } finally {
+            sortingThreads.shutdown();
+        }
+    }
+
+    /**
+     * Iterates over all the records in order. May only be called after {@link #doneAdding()}.
+     */
+    @Override
+    public CloseableIterator<T> iterator() {
+        Utils.validate(doneAdding, "iterator() cannot be called before doneAdding()");
+        Utils.validate(!cleanedUp, "iterator() cannot be called after cleanup()");
+        if (runFiles == null) {
+            final List<T> sorted = Collections.unmodifiableList(Arrays.asList(buffer).subList(0, numInBuffer));
+            final Iterator<T> iterator = sorted.iterator();
+            return new CloseableIterator<T>() {
+                @Override
+                public void close() { }
+
+                @Override
+                public boolean hasNext() { return iterator.hasNext(); }
+
+                @Override
+                public T next() { return iterator.next(); }
+            };
+        }
+        final MergingIterator iterator = new MergingIterator(runFiles);
+        openIterators.add(iterator);
+        return iterator;
+    }
+
+    /**
+     * Closes any open iterators, deletes the temporary files and releases the records held in RAM
+     */
+    public void cleanup() {
+        cleanedUp = true;
+        buffer = null;
+        sortingThreads.shutdownNow();
+        openIterators.forEach(MergingIterator::close);
+        openIterators.clear();
+        if (runFiles != null) {
+            for (final Path runFile : runFiles) {
+                deleteQuietly(runFile);
+            }
+        }
+    }
+
+    /**
+     * @return the number of compressed bytes written to temporary files, intermediate merges included
+     */
+    public long getBytesSpilled() {
+        return bytesSpilled.get();
+    }
+
+    /**
+     * @return the total time spent sorting runs (or all the records, if they fit in RAM), summed over the threads
+     */
+    public long getSortingNanos() {
+        return sortingNanos.get();
+    }
+
+    /**
+     * @return the number of runs spilled to temporary files
+     */
+    public int getNumRuns() {
+        return numRuns.get();
+    }
+
+    /**
+     * Hands the buffer to the sorting threads. The first buffer, which holds up to maxRecordsInRam records, is cut into
+     * one run per thread plus one, so that its runs are sorted concurrently and the records of each run are released as
+     * soon as it is spilled; the records after it are buffered in runs of that size.
+     */
+    private void spillBuffer() {
+        final T[] records = buffer;
+        final int numNewRuns = spills.isEmpty() ? Math.min(numThreads + 1, numInBuffer) : 1;
+        for (int i = 0; i < numNewRuns; i++) {
+            submitRun(records, (int) ((long) i * numInBuffer / numNewRuns), (int) ((long) (i + 1) * numInBuffer / numNewRuns));
+        }
+        @SuppressWarnings("unchecked")
+        final T[] nextBuffer = (T[]) new Object[runSize];
+        buffer = nextBuffer;
+        numInBuffer = 0;
+    }
+
+    private void submitRun(final T[] records, final int from, final int to) {
+        runsInFlight.acquireUninterruptibly();
+        spills.add(sortingThreads.submit(() -> {
+            try {
+                return spillRun(records, from, to);
+            } finally {
+                runsInFlight.release();
+            }
+        }));
+    }
+
+    private Path spillRun(final T[] records, final int from, final int to) throws IOException {
+        final long start = System.nanoTime();
+        Arrays.sort(records, from, to, comparator);
+        final long sortTime = System.nanoTime() - start;
+        sortingNanos.addAndGet(sortTime);
+
+        final int runIndex = numRuns.getAndIncrement();
+        final Path runFile = createTmpFile();
+        final SortingCollection.Codec<T> runCodec = codec.clone();
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (final OutputStream out = new DeflaterOutputStream(new BufferedOutputStream(Files.newOutputStream(runFile), IO_BUFFER_SIZE), deflater, IO_BUFFER_SIZE)) {
+            runCodec.setOutputStream(out);
+            for (int i = from; i < to; i++) {
+                runCodec.encode(records[i]);
+            }
+        } finally {
+            deflater.end();
+        }
+        // the records are in the file now, so don't hold on to them
+        Arrays.fill(records, from, to, null);
+        final int runLength = to - from;
+        final long runBytes = Files.size(runFile);
+        bytesSpilled.addAndGet(runBytes);
+        logger.debug(String.format("Spilled run %d: %d records, %d bytes, sorted in %.3f s", runIndex, runLength, runBytes, sortTime / 1e9));
+        return runFile;
+    }
+
+    private Path mergeRuns(final List<Path> group) throws IOException {
+        final Path mergedFile = createTmpFile();
+        final SortingCollection.Codec<T> mergedCodec = codec.clone();
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (final MergingIterator records = new MergingIterator(group);
+             final OutputStream out = new DeflaterOutputStream(new BufferedOutputStream(Files.newOutputStream(mergedFile), IO_BUFFER_SIZE), deflater, IO_BUFFER_SIZE)) {
+            mergedCodec.setOutputStream(out);
+            while (records.hasNext()) {
+                mergedCodec.encode(records.next());
+            }
+        } finally {
+            deflater.end();
+        }
+        for (final Path runFile : group) {
+            deleteQuietly(runFile);
+        }
+        bytesSpilled.addAndGet(Files.size(mergedFile));
+        return mergedFile;
+    }
+
+    /**
+     * Creates a temporary file, rotating through the temporary directories
+     */
+    private Path createTmpFile() throws IOException {
+        return Files.createTempFile(tmpDirs.get(Math.floorMod(numTmpFiles.getAndIncrement(), tmpDirs.size())), "sortingcollection.", ".tmp");
+    }
+
+    private static List<Path> waitFor(final List<Future<Path>> futures) {
+        final List<Path> paths = new ArrayList<>(futures.size());
+        for (final Future<Path> future : futures) {
+            try {
+                paths.add(future.get());
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GATKException("Interrupted while sorting", e);
+            } catch (final ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw new UserException.CouldNotCreateOutputFile("temporary sorting file", e.getCause().getMessage(), (IOException) e.getCause());
+                }
+                throw new GATKException("Failed to sort and spill records", e.getCause());
+            }
+        }
+        futures.clear();
+        return paths;
+    }
+
+    private static void deleteQuietly(final Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (final IOException e) {
+            logger.warn("Could not delete temporary sorting file " + path, e);
+        }
+    }
+
+    /**
+     * Reads the records of a run file back, one ahead of the caller
+     */
+    private final class RunReader implements AutoCloseable {
+        private final int runOrder;
+        private final Inflater inflater = new Inflater();
+        private final InputStream in;
+        private final SortingCollection.Codec<T> runCodec = codec.clone();
+        private T head;
+
+        RunReader(final Path runFile, final int runOrder) throws IOException {
+            this.runOrder = runOrder;
+            this.in = new InflaterInputStream(new BufferedInputStream(Files.newInputStream(runFile), IO_BUFFER_SIZE), inflater, IO_BUFFER_SIZE);
+            runCodec.setInputStream(in);
+            head = runCodec.decode();
+        }
+
+        T pop() {
+            final T record = head;
+            head = runCodec.decode();
+            return record;
+        }
+
+        @Override
+        public void close() {
+            try {
+                in.close();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+
+    /**
+     * k-way merge of run files. Records that compare equal come out in the order of their runs. Closes its files
+     * once it has gone through all of them.
+     */
+    private final class MergingIterator implements CloseableIterator<T> {
+        private final PriorityQueue<RunReader> queue;
+        private final List<RunReader> readers = new ArrayList<>();
+
+        MergingIterator(final List<Path> runFiles) {
+            final Comparator<RunReader> headOrder = (lhs, rhs) -> comparator.compare(lhs.head, rhs.head);
+            queue = new PriorityQueue<>(Math.max(1, runFiles.size()), headOrder.thenComparingInt(reader -> reader.runOrder));
+            try {
+                for (final Path runFile : runFiles) {
+                    final RunReader reader = new RunReader(runFile, readers.size());
+                    readers.add(reader);
+                    if (reader.head != null) {
+                        queue.add(reader);
+                    }
+                }
+            } catch (final IOException e) {
+                close();
+                throw new UserException.CouldNotReadInputFile("Could not read temporary sorting file", e);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            final RunReader reader = queue.poll();
+            if (reader == null) {
+                throw new NoSuchElementException();
+            }
+            final T record = reader.pop();
+            if (reader.head != null) {
+                queue.add(reader);
+            } else if (queue.isEmpty()) {
+                close();
+            }
+            return record;
+        }
+
+        @Override
+        public void close() {
+            queue.clear();
+            for (final RunReader reader : readers) {
+                reader.close();
+            }
+            readers.clear();
+        }
+    }
+}
@@ -21,6 +21,13 @@ import java.util.stream.IntStream;
 /**
  * Read-likelihoods container implementation based on integer indexed arrays.
  *
+ * <p>
+ *     The likelihoods of each sample are kept in a single contiguous buffer, one row per allele, where the rows are as
+ *     long as the sample read capacity (the length of its read array). Rows and read positions beyond the current allele
+ *     and read counts are spare capacity: alleles are added in new rows without copying the existing ones when
+ *     there is room, and reads are removed by compacting the rows in place.
+ * </p>
+ *
  * @param <A> the type of the allele the likelihood makes reference to.
  *
  * Note: this class uses FastUtil collections for speed.
@@ -35,17 +42,23 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
     private static final int MISSING_REF = -1;
 
     /**
-     * Reads by sample index. Each sub array contains reference to the reads of the ith sample.
+     * Reads by sample index. Each sub array contains reference to the reads of the ith sample in its first
+     * {@link #readCountBySampleIndex} positions; its length is the read capacity of the sample.
      */
     private final GATKRead[][] readsBySampleIndex;
 
     /**
-     * Indexed per sample, allele and finally read (within sample).
+     * Number of reads of each sample.
+     */
+    private final int[] readCountBySampleIndex;
+
+    /**
+     * Indexed per sample, then allele and read (within sample) with the read capacity as the allele stride.
      * <p>
-     *     valuesBySampleIndex[s][a][r] == lnLk(R_r | A_a) where R_r comes from Sample s.
+     *     valuesBySampleIndex[s][a * readsBySampleIndex[s].length + r] == lnLk(R_r | A_a) where R_r comes from Sample s.
      * </p>
      */
-    private final double[][][] valuesBySampleIndex;
+    private final double[][] valuesBySampleIndex;
 
     /**
      * Sample list
@@ -121,8 +134,9 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         final int alleleCount = alleles.numberOfAlleles();
 
         readsBySampleIndex = new GATKRead[sampleCount][];
+        readCountBySampleIndex = new int[sampleCount];
         readListBySampleIndex = (List<GATKRead>[])new List[sampleCount];
-        valuesBySampleIndex = new double[sampleCount][][];
+        valuesBySampleIndex = new double[sampleCount][];
         referenceAlleleIndex = findReferenceAllele(alleles);
 
         readIndexBySampleIndex = new Object2IntMap[sampleCount];
@@ -139,10 +153,11 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
                             final SampleList samples,
                             final GATKRead[][] readsBySampleIndex,
                             final Object2IntMap<GATKRead>[] readIndex,
-                            final double[][][] values) {
+                            final double[][] values) {
         this.samples = samples;
         this.alleles = alleles;
         this.readsBySampleIndex = readsBySampleIndex;
+        this.readCountBySampleIndex = Arrays.stream(readsBySampleIndex).mapToInt(reads -> reads.length).toArray();
         this.valuesBySampleIndex = values;
         this.readIndexBySampleIndex = readIndex;
         final int sampleCount = samples.numberOfSamples();
@@ -170,9 +185,9 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
                 ? new GATKRead[0]
                 : reads.toArray(new GATKRead[reads.size()]);
         final int sampleReadCount = readsBySampleIndex[sampleIndex].length;
+        readCountBySampleIndex[sampleIndex] = sampleReadCount;
 
-        final double[][] sampleValues = new double[alleleCount][sampleReadCount];
-        valuesBySampleIndex[sampleIndex] = sampleValues;
+        valuesBySampleIndex[sampleIndex] = new double[alleleCount * sampleReadCount];
     }
 
     /**
@@ -183,16 +198,20 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         final int sampleCount = samples.numberOfSamples();
         final int alleleCount = alleles.numberOfAlleles();
 
-        final double[][][] newLikelihoodValues = new double[sampleCount][alleleCount][];
+        final double[][] newLikelihoodValues = new double[sampleCount][];
 
         @SuppressWarnings({"unchecked", "rawtypes"})
         final Object2IntMap<GATKRead>[] newReadIndexBySampleIndex = new Object2IntMap[sampleCount];
         final GATKRead[][] newReadsBySampleIndex = new GATKRead[sampleCount][];
 
+        // the copy has no spare capacity.
         for (int s = 0; s < sampleCount; s++) {
-            newReadsBySampleIndex[s] = readsBySampleIndex[s].clone();
+            final int sampleReadCount = readCountBySampleIndex[s];
+            final int readCapacity = readsBySampleIndex[s].length;
+            newReadsBySampleIndex[s] = Arrays.copyOf(readsBySampleIndex[s], sampleReadCount);
+            newLikelihoodValues[s] = new double[alleleCount * sampleReadCount];
             for (int a = 0; a < alleleCount; a++) {
-                newLikelihoodValues[s][a] = valuesBySampleIndex[s][a].clone();
+                System.arraycopy(valuesBySampleIndex[s], a * readCapacity, newLikelihoodValues[s], a * sampleReadCount, sampleReadCount);
             }
         }
 
@@ -295,7 +314,8 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         Utils.validIndex(sampleIndex, samples.numberOfSamples());
         final List<GATKRead> extantList = readListBySampleIndex[sampleIndex];
         if (extantList == null) {
-            return readListBySampleIndex[sampleIndex] = Collections.unmodifiableList(Arrays.asList(readsBySampleIndex[sampleIndex]));
+            return readListBySampleIndex[sampleIndex] = Collections.unmodifiableList(
+                    Arrays.asList(readsBySampleIndex[sampleIndex]).subList(0, readCountBySampleIndex[sampleIndex]));
         } else {
             return extantList;
         }
@@ -346,47 +366,49 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         }
 
         for (int s = 0; s < valuesBySampleIndex.length; s++) {
-            final double[][] sampleValues = valuesBySampleIndex[s];
-            final int readCount = readsBySampleIndex[s].length;
+            final double[] sampleValues = valuesBySampleIndex[s];
+            final int readCount = readCountBySampleIndex[s];
+            final int stride = readsBySampleIndex[s].length;
             for (int r = 0; r < readCount; r++) {
-                normalizeLikelihoodsPerRead(bestToZero, maximumLikelihoodDifferenceCap, sampleValues, s, r);
+                normalizeLikelihoodsPerRead(bestToZero, maximumLikelihoodDifferenceCap, sampleValues, stride, s, r);
             }
         }
     }
 
     // Does the normalizeLikelihoods job for each read.
     private void normalizeLikelihoodsPerRead(final boolean bestToZero, final double maximumBestAltLikelihoodDifference,
-                                             final double[][] sampleValues, final int sampleIndex, final int readIndex) {
+                                             final double[] sampleValues, final int stride, final int sampleIndex, final int readIndex) {
 
         final BestAllele bestAlternativeAllele = searchBestAllele(sampleIndex,readIndex,false);
 
         final double worstLikelihoodCap = bestAlternativeAllele.likelihood + maximumBestAltLikelihoodDifference;
 
         final double referenceLikelihood = referenceAlleleIndex == MISSING_REF ? Double.NEGATIVE_INFINITY :
-                sampleValues[referenceAlleleIndex][readIndex];
+                sampleValues[referenceAlleleIndex * stride + readIndex];
 
         final double bestAbsoluteLikelihood = Math.max(bestAlternativeAllele.likelihood, referenceLikelihood);
 
         final int alleleCount = alleles.numberOfAlleles();
+        final int end = alleleCount * stride + readIndex;
         if (bestToZero) {
             if (bestAbsoluteLikelihood == Double.NEGATIVE_INFINITY) {
-                for (int a = 0; a < alleleCount; a++) {
-                    sampleValues[a][readIndex] = 0;
+                for (int i = readIndex; i < end; i += stride) {
+                    sampleValues[i] = 0;
                 }
             } else if (worstLikelihoodCap != Double.NEGATIVE_INFINITY) {
-                for (int a = 0; a < alleleCount; a++) {
-                    sampleValues[a][readIndex] = (sampleValues[a][readIndex] < worstLikelihoodCap ? worstLikelihoodCap : sampleValues[a][readIndex]) - bestAbsoluteLikelihood;
+                for (int i = readIndex; i < end; i += stride) {
+                    sampleValues[i] = (sampleValues[i] < worstLikelihoodCap ? worstLikelihoodCap : sampleValues[i]) - bestAbsoluteLikelihood;
                 }
             } else {
-                for (int a = 0; a < alleleCount; a++) {
-                    sampleValues[a][readIndex] -= bestAbsoluteLikelihood;
+                for (int i = readIndex; i < end; i += stride) {
+                    sampleValues[i] -= bestAbsoluteLikelihood;
                 }
             }
         } else {
             // Guarantee to be the case by enclosing code.
-            for (int a = 0; a < alleleCount; a++) {
-                if (sampleValues[a][readIndex] < worstLikelihoodCap) {
-                    sampleValues[a][readIndex] = worstLikelihoodCap;
+            for (int i = readIndex; i < end; i += stride) {
+                if (sampleValues[i] < worstLikelihoodCap) {
+                    sampleValues[i] = worstLikelihoodCap;
                 }
             }
         }
@@ -441,16 +463,17 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
             return new BestAllele(sampleIndex, readIndex, -1, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY);
         }
 
-        final double[][] sampleValues = valuesBySampleIndex[sampleIndex];
+        final double[] sampleValues = valuesBySampleIndex[sampleIndex];
+        final int stride = readsBySampleIndex[sampleIndex].length;
         int bestAlleleIndex = canBeReference || referenceAlleleIndex != 0 ? 0 : 1;
 
-        double bestLikelihood = sampleValues[bestAlleleIndex][readIndex];
+        double bestLikelihood = sampleValues[bestAlleleIndex * stride + readIndex];
         double secondBestLikelihood = Double.NEGATIVE_INFINITY;
         for (int a = bestAlleleIndex + 1; a < alleleCount; a++) {
             if (!canBeReference && referenceAlleleIndex == a) {
                 continue;
             }
-            final double candidateLikelihood = sampleValues[a][readIndex];
+            final double candidateLikelihood = sampleValues[a * stride + readIndex];
             if (candidateLikelihood > bestLikelihood) {
                 bestAlleleIndex = a;
                 secondBestLikelihood = bestLikelihood;
@@ -467,7 +490,7 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         for (int s = 0; s < sampleCount; s++) {
             final GATKRead[] sampleReads = readsBySampleIndex[s];
             final Object2IntMap<GATKRead> readIndex = readIndexBySampleIndex[s];
-            final int sampleReadCount = sampleReads.length;
+            final int sampleReadCount = readCountBySampleIndex[s];
             for (int r = 0; r < sampleReadCount; r++) {
                 final GATKRead read = sampleReads[r];
                 final GATKRead replacement = readRealignments.get(read);
@@ -528,21 +551,31 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
             referenceAlleleIndex = oldAlleleCount + indexOfReferenceInAllelesToAdd.getAsInt();
         }
 
-        //copy old allele likelihoods and set new allele likelihoods to the default value
+        // set new allele likelihoods to the default value, in new rows after the old ones.
         for (int s = 0; s < samples.numberOfSamples(); s++) {
-            final int sampleReadCount = readsBySampleIndex[s].length;
-            final double[][] newValuesBySampleIndex = Arrays.copyOf(valuesBySampleIndex[s], newAlleleCount);
-            for (int a = oldAlleleCount; a < newAlleleCount; a++) {
-                newValuesBySampleIndex[a] = new double[sampleReadCount];
-                if (defaultLikelihood != 0.0) {
-                    Arrays.fill(newValuesBySampleIndex[a], defaultLikelihood);
-                }
-            }
-            valuesBySampleIndex[s] = newValuesBySampleIndex;
+            final int stride = readsBySampleIndex[s].length;
+            ensureAlleleCapacity(s, oldAlleleCount, newAlleleCount);
+            Arrays.fill(valuesBySampleIndex[s], oldAlleleCount * stride, newAlleleCount * stride, defaultLikelihood);
         }
         return true;
     }
 
+    /**
+     * Makes sure that the likelihood buffer of a sample has room for a number of alleles.
+     * <p>
+     *     When it needs to grow, it leaves room for half as many alleles more, so that adding alleles one at a time
+     *     (e.g. the non-ref allele after the missing ones) does not copy the buffer every time.
+     * </p>
+     */
+    private void ensureAlleleCapacity(final int sampleIndex, final int alleleCount, final int requestedAlleleCount) {
+        final int stride = readsBySampleIndex[sampleIndex].length;
+        final double[] sampleValues = valuesBySampleIndex[sampleIndex];
+        if (sampleValues.length < requestedAlleleCount * stride) {
+            final int newAlleleCapacity = Math.max(requestedAlleleCount, alleleCount + (alleleCount >> 1));
+            valuesBySampleIndex[sampleIndex] = Arrays.copyOf(sampleValues, newAlleleCapacity * stride);
+        }
+    }
+
     /**
      * Perform marginalization from an allele set to another (smaller one) taking the maximum value
      * for each read in the original allele subset.
@@ -569,7 +602,7 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         final int[] oldToNewAlleleIndexMap = oldToNewAlleleIndexMap(newToOldAlleleMap, oldAlleleCount, newAlleles);
 
         // We calculate the marginal likelihoods.
-        final double[][][] newLikelihoodValues = marginalLikelihoods(oldAlleleCount, newAlleleCount, oldToNewAlleleIndexMap, null);
+        final double[][] newLikelihoodValues = marginalLikelihoods(oldAlleleCount, newAlleleCount, oldToNewAlleleIndexMap, null);
 
         final int sampleCount = samples.numberOfSamples();
 
@@ -577,7 +610,7 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         final GATKRead[][] newReadsBySampleIndex = new GATKRead[sampleCount][];
 
         for (int s = 0; s < sampleCount; s++) {
-            newReadsBySampleIndex[s] = readsBySampleIndex[s].clone();
+            newReadsBySampleIndex[s] = Arrays.copyOf(readsBySampleIndex[s], readCountBySampleIndex[s]);
         }
 
         // Finally we create the new read-likelihood
@@ -623,7 +656,7 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         final int[][] readsToKeep = overlappingReadIndicesBySampleIndex(overlap);
         // We calculate the marginal likelihoods.
 
-        final double[][][] newLikelihoodValues = marginalLikelihoods(oldAlleleCount, newAlleleCount, oldToNewAlleleIndexMap, readsToKeep);
+        final double[][] newLikelihoodValues = marginalLikelihoods(oldAlleleCount, newAlleleCount, oldToNewAlleleIndexMap, readsToKeep);
 
         final int sampleCount = samples.numberOfSamples();
 
@@ -634,10 +667,10 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         for (int s = 0; s < sampleCount; s++) {
             final int[] sampleReadsToKeep = readsToKeep[s];
             final GATKRead[] oldSampleReads = readsBySampleIndex[s];
-            final int oldSampleReadCount = oldSampleReads.length;
+            final int oldSampleReadCount = readCountBySampleIndex[s];
             final int newSampleReadCount = sampleReadsToKeep.length;
             if (newSampleReadCount == oldSampleReadCount) {
-                newReadsBySampleIndex[s] = oldSampleReads.clone();
+                newReadsBySampleIndex[s] = Arrays.copyOf(oldSampleReads, oldSampleReadCount);
             } else {
                 newReadsBySampleIndex[s] = new GATKRead[newSampleReadCount];
                 for (int i = 0; i < newSampleReadCount; i++) {
@@ -665,7 +698,7 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         for (int s = 0; s < sampleCount; s++) {
             buffer.clear();
             final GATKRead[] sampleReads = readsBySampleIndex[s];
-            final int sampleReadCount = sampleReads.length;
+            final int sampleReadCount = readCountBySampleIndex[s];
             buffer.ensureCapacity(sampleReadCount);
             for (int r = 0; r < sampleReadCount; r++) {
                 if (unclippedReadOverlapsRegion(sampleReads[r], contig, overlapStart, overlapEnd)) {
@@ -698,32 +731,33 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
     }
 
     // Calculate the marginal likelihoods considering the old -> new allele index mapping.
-    private double[][][] marginalLikelihoods(final int oldAlleleCount, final int newAlleleCount, final int[] oldToNewAlleleIndexMap, final int[][] readsToKeep) {
+    // Each old allele row is read sequentially (through the kept read indices if any) and folded into its new allele row.
+    private double[][] marginalLikelihoods(final int oldAlleleCount, final int newAlleleCount, final int[] oldToNewAlleleIndexMap, final int[][] readsToKeep) {
 
         final int sampleCount = samples.numberOfSamples();
-        final double[][][] result = new double[sampleCount][][];
+        final double[][] result = new double[sampleCount][];
 
         for (int s = 0; s < sampleCount; s++) {
-            final int sampleReadCount = readsBySampleIndex[s].length;
-            final double[][] oldSampleValues = valuesBySampleIndex[s];
+            final int sampleReadCount = readCountBySampleIndex[s];
+            final int oldStride = readsBySampleIndex[s].length;
+            final double[] oldSampleValues = valuesBySampleIndex[s];
             final int[] sampleReadToKeep = readsToKeep == null || readsToKeep[s].length == sampleReadCount ? null : readsToKeep[s];
             final int newSampleReadCount = sampleReadToKeep == null ? sampleReadCount : sampleReadToKeep.length;
-            final double[][] newSampleValues = result[s] = new double[newAlleleCount][newSampleReadCount];
+            final double[] newSampleValues = result[s] = new double[newAlleleCount * newSampleReadCount];
             // We initiate all likelihoods to -Inf.
-            for (int a = 0; a < newAlleleCount; a++) {
-                Arrays.fill(newSampleValues[a], Double.NEGATIVE_INFINITY);
-            }
+            Arrays.fill(newSampleValues, Double.NEGATIVE_INFINITY);
             // For each old allele and read we update the new table keeping the maximum likelihood.
-            for (int r = 0; r < newSampleReadCount; r++) {
-                for (int a = 0; a < oldAlleleCount; a++) {
-                    final int oldReadIndex = newSampleReadCount == sampleReadCount ? r : sampleReadToKeep[r];
-                    final int newAlleleIndex = oldToNewAlleleIndexMap[a];
-                    if (newAlleleIndex == -1) {
-                        continue;
-                    }
-                    final double likelihood = oldSampleValues[a][oldReadIndex];
-                    if (likelihood > newSampleValues[newAlleleIndex][r]) {
-                        newSampleValues[newAlleleIndex][r] = likelihood;
+            for (int a = 0; a < oldAlleleCount; a++) {
+                final int newAlleleIndex = oldToNewAlleleIndexMap[a];
+                if (newAlleleIndex == -1) {
+                    continue;
+                }
+                final int oldOffset = a * oldStride;
+                final int newOffset = newAlleleIndex * newSampleReadCount;
+                for (int r = 0; r < newSampleReadCount; r++) {
+                    final double likelihood = oldSampleValues[oldOffset + (sampleReadToKeep == null ? r : sampleReadToKeep[r])];
+                    if (likelihood > newSampleValues[newOffset + r]) {
+                        newSampleValues[newOffset + r] = likelihood;
                     }
                 }
             }
@@ -776,7 +810,7 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
 
         new IndexRange(0, samples.numberOfSamples()).forEach(s -> {
             final GATKRead[] sampleReads = readsBySampleIndex[s];
-            final List<Integer> removeIndices = new IndexRange(0, sampleReads.length)
+            final List<Integer> removeIndices = new IndexRange(0, readCountBySampleIndex[s])
                     .filter(r -> readIsPoorlyModelled(s, r, sampleReads[r], maximumErrorPerBase));
             removeSampleReads(s, removeIndices, alleles.numberOfAlleles());
         });
@@ -789,9 +823,10 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         final double log10MaxLikelihoodForTrueAllele = maxErrorsForRead * log10QualPerBase;
 
         final int alleleCount = alleles.numberOfAlleles();
-        final double[][] sampleValues = valuesBySampleIndex[sampleIndex];
+        final double[] sampleValues = valuesBySampleIndex[sampleIndex];
+        final int stride = readsBySampleIndex[sampleIndex].length;
         for (int a = 0; a < alleleCount; a++) {
-            if (sampleValues[a][readIndex] >= log10MaxLikelihoodForTrueAllele) {
+            if (sampleValues[a * stride + readIndex] >= log10MaxLikelihoodForTrueAllele) {
                 return false;
             }
         }
@@ -823,34 +858,53 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
                 continue;
             }
 
-            final int sampleReadCount = readsBySampleIndex[sampleIndex].length;
+            final int sampleReadCount = readCountBySampleIndex[sampleIndex];
             final int newSampleReadCount = sampleReadCount + newSampleReads.size();
 
+            ensureReadCapacity(sampleIndex, sampleReadCount, newSampleReadCount);
             appendReads(newSampleReads, sampleIndex, sampleReadCount, newSampleReadCount);
             extendsLikelihoodArrays(initialLikelihood, sampleIndex, sampleReadCount, newSampleReadCount);
         }
     }
 
-    // Extends the likelihood arrays-matrices.
-    private void extendsLikelihoodArrays(final double initialLikelihood, final int sampleIndex, final int sampleReadCount, final int newSampleReadCount) {
-        final double[][] sampleValues = valuesBySampleIndex[sampleIndex];
+    /**
+     * Makes sure that a sample has room for a number of reads, widening its likelihood rows if necessary.
+     * <p>
+     *     When they need to grow, the rows are made half as long again, so that reads added in small batches do not
+     *     copy the buffer every time.
+     * </p>
+     */
+    private void ensureReadCapacity(final int sampleIndex, final int sampleReadCount, final int requestedReadCount) {
+        final GATKRead[] sampleReads = readsBySampleIndex[sampleIndex];
+        final int oldStride = sampleReads.length;
+        if (oldStride >= requestedReadCount) {
+            return;
+        }
+        final int newStride = Math.max(requestedReadCount, oldStride + (oldStride >> 1));
         final int alleleCount = alleles.numberOfAlleles();
+        final double[] oldSampleValues = valuesBySampleIndex[sampleIndex];
+        final double[] newSampleValues = new double[alleleCount * newStride];
         for (int a = 0; a < alleleCount; a++) {
-            sampleValues[a] = Arrays.copyOf(sampleValues[a], newSampleReadCount);
+            System.arraycopy(oldSampleValues, a * oldStride, newSampleValues, a * newStride, sampleReadCount);
         }
-        if (initialLikelihood != 0.0) // the default array new value.
-        {
-            for (int a = 0; a < alleleCount; a++) {
-                Arrays.fill(sampleValues[a], sampleReadCount, newSampleReadCount, initialLikelihood);
-            }
+        valuesBySampleIndex[sampleIndex] = newSampleValues;
+        readsBySampleIndex[sampleIndex] = Arrays.copyOf(sampleReads, newStride);
+    }
+
+    // Sets the likelihoods of the new reads; the positions may hold values of removed reads so they are always set.
+    private void extendsLikelihoodArrays(final double initialLikelihood, final int sampleIndex, final int sampleReadCount, final int newSampleReadCount) {
+        final double[] sampleValues = valuesBySampleIndex[sampleIndex];
+        final int stride = readsBySampleIndex[sampleIndex].length;
+        final int alleleCount = alleles.numberOfAlleles();
+        for (int a = 0; a < alleleCount; a++) {
+            Arrays.fill(sampleValues, a * stride + sampleReadCount, a * stride + newSampleReadCount, initialLikelihood);
         }
     }
 
     // Append the new read reference into the structure per-sample.
     private void appendReads(final List<GATKRead> newSampleReads, final int sampleIndex,
                              final int sampleReadCount, final int newSampleReadCount) {
-        final GATKRead[] sampleReads = readsBySampleIndex[sampleIndex] =
-                Arrays.copyOf(readsBySampleIndex[sampleIndex], newSampleReadCount);
+        final GATKRead[] sampleReads = readsBySampleIndex[sampleIndex];
 
         int nextReadIndex = sampleReadCount;
         final Object2IntMap<GATKRead> sampleReadIndex = readIndexBySampleIndex[sampleIndex];
@@ -862,6 +916,8 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
             }
             sampleReads[nextReadIndex++] = newRead;
         }
+        readCountBySampleIndex[sampleIndex] = newSampleReadCount;
+        readListBySampleIndex[sampleIndex] = null; // reset the unmodifiable list.
     }
 
     /**
@@ -921,13 +977,14 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         final double[] qualifiedAlleleLikelihoods = new double[nonSymbolicAlleleCount];
         final Median medianCalculator = new Median();
         for (int s = 0; s < samples.numberOfSamples(); s++) {
-            final double[][] sampleValues = valuesBySampleIndex[s];
-            final int readCount = sampleValues[0].length;
+            final double[] sampleValues = valuesBySampleIndex[s];
+            final int readCount = readCountBySampleIndex[s];
+            final int stride = readsBySampleIndex[s].length;
             for (int r = 0; r < readCount; r++) {
                 final BestAllele bestAllele = searchBestAllele(s, r, true);
                 int numberOfQualifiedAlleleLikelihoods = 0;
                 for (int i = 0; i < alleleCount; i++) {
-                    final double alleleLikelihood = sampleValues[i][r];
+                    final double alleleLikelihood = sampleValues[i * stride + r];
                     if (i != nonRefAlleleIndex && alleleLikelihood < bestAllele.likelihood
                             && !Double.isNaN(alleleLikelihood) && allelesToConsider.indexOfAllele(alleles.getAllele(i)) != -1) {
                         qualifiedAlleleLikelihoods[numberOfQualifiedAlleleLikelihoods++] = alleleLikelihood;
@@ -938,7 +995,7 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
                 // so the read is not informative at all given the existing alleles. Unless there is only one (or zero) concrete
                 // alleles with give the same (the best) likelihood to the NON-REF. When there is only one (or zero) concrete
                 // alleles we set the NON-REF likelihood to NaN.
-                sampleValues[nonRefAlleleIndex][r] = !Double.isNaN(nonRefLikelihood) ? nonRefLikelihood
+                sampleValues[nonRefAlleleIndex * stride + r] = !Double.isNaN(nonRefLikelihood) ? nonRefLikelihood
                         : nonSymbolicAlleleCount <= 1 ? Double.NaN : bestAllele.likelihood;
             }
         }
@@ -969,7 +1026,7 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
                 continue;
             }
             if (fraction >= 1.0) {
-                final List<Integer> removeIndices = IntStream.range(0, readsBySampleIndex[s].length).boxed().collect(Collectors.toList());
+                final List<Integer> removeIndices = IntStream.range(0, readCountBySampleIndex[s]).boxed().collect(Collectors.toList());
                 removeSampleReads(s, removeIndices, alleleCount);
             } else {
                 final Map<A,List<GATKRead>> readsByBestAllelesMap = readsByBestAlleleMap(s);
@@ -1011,8 +1068,7 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
     private Collection<BestAllele> bestAlleles(final int sampleIndex) {
         Utils.validIndex(sampleIndex, numberOfSamples());
 
-        final GATKRead[] sampleReads = readsBySampleIndex[sampleIndex];
-        final int readCount = sampleReads.length;
+        final int readCount = readCountBySampleIndex[sampleIndex];
         final List<BestAllele> result = new ArrayList<>(readCount);
         for (int r = 0; r < readCount; r++) {
             result.add(searchBestAllele(sampleIndex, r, true));
@@ -1030,7 +1086,7 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
     private Map<A,List<GATKRead>> readsByBestAlleleMap(final int sampleIndex) {
         Utils.validIndex(sampleIndex, numberOfSamples());
         final int alleleCount = alleles.numberOfAlleles();
-        final int sampleReadCount = readsBySampleIndex[sampleIndex].length;
+        final int sampleReadCount = readCountBySampleIndex[sampleIndex];
         final Map<A,List<GATKRead>> result = new LinkedHashMap<>(alleleCount);
         for (int a = 0; a < alleleCount; a++) {
             result.put(alleles.getAllele(a), new ArrayList<>(sampleReadCount));
@@ -1059,8 +1115,7 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
     }
 
     private void readsByBestAlleleMap(final int sampleIndex, final Map<A,List<GATKRead>> result) {
-        final GATKRead[] reads = readsBySampleIndex[sampleIndex];
-        final int readCount = reads.length;
+        final int readCount = readCountBySampleIndex[sampleIndex];
 
         for (int r = 0; r < readCount; r++) {
             final BestAllele bestAllele = searchBestAllele(sampleIndex,r,true);
@@ -1096,7 +1151,7 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         int sum = 0;
         final int sampleCount = samples.numberOfSamples();
         for (int i = 0; i < sampleCount; i++) {
-            sum += readsBySampleIndex[i].length;
+            sum += readCountBySampleIndex[i];
         }
         return sum;
     }
@@ -1110,7 +1165,7 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
      */
     public int sampleReadCount(final int sampleIndex) {
         Utils.validIndex(sampleIndex, samples.numberOfSamples());
-        return readsBySampleIndex[sampleIndex].length;
+        return readCountBySampleIndex[sampleIndex];
     }
 
     /**
@@ -1136,7 +1191,7 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         final int alleleCount = alleles.numberOfAlleles();
         for (int s = 0; s < sampleCount; s++) {
             final GATKRead[] sampleReads = readsBySampleIndex[s];
-            final List<Integer> removeIndices = new IndexRange(0, sampleReads.length)
+            final List<Integer> removeIndices = new IndexRange(0, readCountBySampleIndex[s])
                     .filter(r -> !unclippedReadOverlapsRegion(sampleReads[r], locContig, locStart, locEnd));
             removeSampleReads(s, removeIndices, alleleCount);
         }
@@ -1194,7 +1249,7 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         }
 
         final GATKRead[] sampleReads = readsBySampleIndex[sampleIndex];
-        final int sampleReadCount = sampleReads.length;
+        final int sampleReadCount = readCountBySampleIndex[sampleIndex];
 
         final Object2IntMap<GATKRead> indexByRead = readIndexBySampleIndex[sampleIndex];
         if (indexByRead != null) {
@@ -1204,32 +1259,16 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         final int firstDeleted = removeIndices.get(0);
         removeIndices.stream().forEach(n -> removeIndex[n] = true);
 
-        final int newSampleReadCount = sampleReadCount - removeIndices.size();
-
-        // Now we skim out the removed reads from the read array.
-        final GATKRead[] oldSampleReads = readsBySampleIndex[sampleIndex];
-        final GATKRead[] newSampleReads = new GATKRead[newSampleReadCount];
-
-        System.arraycopy(oldSampleReads, 0, newSampleReads, 0, firstDeleted);
-        Utils.skimArray(oldSampleReads,firstDeleted, newSampleReads, firstDeleted, removeIndex, firstDeleted);
-
-        // Then we skim out the likelihoods of the removed reads.
-        final double[][] oldSampleValues = valuesBySampleIndex[sampleIndex];
-        final double[][] newSampleValues = new double[alleleCount][newSampleReadCount];
-        for (int a = 0; a < alleleCount; a++) {
-            System.arraycopy(oldSampleValues[a], 0, newSampleValues[a], 0, firstDeleted);
-            Utils.skimArray(oldSampleValues[a], firstDeleted, newSampleValues[a], firstDeleted, removeIndex, firstDeleted);
+        compactSampleReads(sampleIndex, removeIndex, firstDeleted, alleleCount);
+        if (indexByRead != null) {
+            updateReadIndices(sampleIndex, indexByRead, firstDeleted);
         }
-        valuesBySampleIndex[sampleIndex] = newSampleValues;
-        readsBySampleIndex[sampleIndex] = newSampleReads;
-        readListBySampleIndex[sampleIndex] = null; // reset the unmodifiable list.
     }
 
 
     // Requires that the collection passed iterator can remove elements, and it can be modified.
     public void removeSampleReads(final int sampleIndex, final Collection<GATKRead> readsToRemove, final int alleleCount) {
-        final GATKRead[] sampleReads = readsBySampleIndex[sampleIndex];
-        final int sampleReadCount = sampleReads.length;
+        final int sampleReadCount = readCountBySampleIndex[sampleIndex];
 
         final Object2IntMap<GATKRead> indexByRead = readIndexBySampleIndex(sampleIndex);
         // Count how many we are going to remove, which ones (indexes) and remove entry from the read-index map.
@@ -1257,37 +1296,59 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
             return;
         }
 
-        final int newSampleReadCount = sampleReadCount - removeCount;
-
-        // Now we skim out the removed reads from the read array.
-        final GATKRead[] oldSampleReads = readsBySampleIndex[sampleIndex];
-        final GATKRead[] newSampleReads = new GATKRead[newSampleReadCount];
+        compactSampleReads(sampleIndex, removeIndex, firstDeleted, alleleCount);
+        updateReadIndices(sampleIndex, indexByRead, firstDeleted);
+    }
 
-        System.arraycopy(oldSampleReads,0,newSampleReads,0,firstDeleted);
-        Utils.skimArray(oldSampleReads,firstDeleted, newSampleReads, firstDeleted, removeIndex, firstDeleted);
+    /**
+     * Skims out the removed reads and their likelihoods moving the remaining ones down within the same arrays,
+     * which keep their capacity.
+     *
+     * @param removeIndex whether each read is to be removed.
+     * @param firstDeleted the first read to be removed; the ones before are left untouched.
+     * @param alleleCount number of likelihood rows to compact.
+     */
+    private void compactSampleReads(final int sampleIndex, final boolean[] removeIndex, final int firstDeleted, final int alleleCount) {
+        final GATKRead[] sampleReads = readsBySampleIndex[sampleIndex];
+        final double[] sampleValues = valuesBySampleIndex[sampleIndex];
+        final int sampleReadCount = readCountBySampleIndex[sampleIndex];
+        final int stride = sampleReads.length;
 
-        // Update the indices for the extant reads from the first deletion onwards.
-        for (int r = firstDeleted; r < newSampleReadCount; r++) {
-            indexByRead.put(newSampleReads[r], r);
+        for (int a = 0; a < alleleCount; a++) {
+            final int offset = a * stride;
+            int next = offset + firstDeleted;
+            for (int r = firstDeleted; r < sampleReadCount; r++) {
+                if (!removeIndex[r]) {
+                    sampleValues[next++] = sampleValues[offset + r];
+                }
+            }
         }
 
-        // Then we skim out the likelihoods of the removed reads.
-        final double[][] oldSampleValues = valuesBySampleIndex[sampleIndex];
-        final double[][] newSampleValues = new double[alleleCount][newSampleReadCount];
-        for (int a = 0; a < alleleCount; a++) {
-            System.arraycopy(oldSampleValues[a],0,newSampleValues[a],0,firstDeleted);
-            Utils.skimArray(oldSampleValues[a], firstDeleted, newSampleValues[a], firstDeleted, removeIndex, firstDeleted);
+        int newSampleReadCount = firstDeleted;
+        for (int r = firstDeleted; r < sampleReadCount; r++) {
+            if (!removeIndex[r]) {
+                sampleReads[newSampleReadCount++] = sampleReads[r];
+            }
         }
-        valuesBySampleIndex[sampleIndex] = newSampleValues;
-        readsBySampleIndex[sampleIndex] = newSampleReads;
+        Arrays.fill(sampleReads, newSampleReadCount, sampleReadCount, null); // so that the removed reads can be collected.
+        readCountBySampleIndex[sampleIndex] = newSampleReadCount;
         readListBySampleIndex[sampleIndex] = null; // reset the unmodifiable list.
     }
 
+    // Update the indices for the extant reads from the first deletion onwards.
+    private void updateReadIndices(final int sampleIndex, final Object2IntMap<GATKRead> indexByRead, final int firstDeleted) {
+        final GATKRead[] sampleReads = readsBySampleIndex[sampleIndex];
+        final int sampleReadCount = readCountBySampleIndex[sampleIndex];
+        for (int r = firstDeleted; r < sampleReadCount; r++) {
+            indexByRead.put(sampleReads[r], r);
+        }
+    }
+
 
     private Object2IntMap<GATKRead> readIndexBySampleIndex(final int sampleIndex) {
         if (readIndexBySampleIndex[sampleIndex] == null) {
             final GATKRead[] sampleReads = readsBySampleIndex[sampleIndex];
-            final int sampleReadCount = sampleReads.length;
+            final int sampleReadCount = readCountBySampleIndex[sampleIndex];
             readIndexBySampleIndex[sampleIndex] = new Object2IntOpenHashMap<>(sampleReadCount);
             for (int r = 0; r < sampleReadCount; r++) {
                 readIndexBySampleIndex[sampleIndex].put(sampleReads[r], r);
@@ -1319,16 +1380,16 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
 
         @Override
         public void set(final int alleleIndex, final int readIndex, final double value) {
-            Utils.validIndex(alleleIndex, valuesBySampleIndex[sampleIndex].length);
-            Utils.validIndex(readIndex, valuesBySampleIndex[sampleIndex][alleleIndex].length);
-            valuesBySampleIndex[sampleIndex][alleleIndex][readIndex] = value;
+            Utils.validIndex(alleleIndex, alleles.numberOfAlleles());
+            Utils.validIndex(readIndex, readCountBySampleIndex[sampleIndex]);
+            valuesBySampleIndex[sampleIndex][alleleIndex * readsBySampleIndex[sampleIndex].length + readIndex] = value;
         }
 
         @Override
         public double get(final int alleleIndex, final int readIndex) {
-            Utils.validIndex(alleleIndex, valuesBySampleIndex[sampleIndex].length);
-            Utils.validIndex(readIndex, valuesBySampleIndex[sampleIndex][alleleIndex].length);
-            return valuesBySampleIndex[sampleIndex][alleleIndex][readIndex];
+            Utils.validIndex(alleleIndex, alleles.numberOfAlleles());
+            Utils.validIndex(readIndex, readCountBySampleIndex[sampleIndex]);
+            return valuesBySampleIndex[sampleIndex][alleleIndex * readsBySampleIndex[sampleIndex].length + readIndex];
         }
 
         @Override
@@ -1350,7 +1411,7 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
 
         @Override
         public int numberOfReads() {
-            return readsBySampleIndex[sampleIndex].length;
+            return readCountBySampleIndex[sampleIndex];
         }
 
         @Override
@@ -1360,16 +1421,15 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
 
         @Override
         public GATKRead getRead(final int readIndex) {
-            final GATKRead[] sampleReads = readsBySampleIndex[sampleIndex];
-            Utils.validIndex(readIndex, sampleReads.length);
-            return sampleReads[readIndex];
+            Utils.validIndex(readIndex, readCountBySampleIndex[sampleIndex]);
+            return readsBySampleIndex[sampleIndex][readIndex];
         }
 
         @Override
         public void copyAlleleLikelihoods(final int alleleIndex, final double[] dest, final int offset) {
             Utils.nonNull(dest);
-            Utils.validIndex(alleleIndex, valuesBySampleIndex[sampleIndex].length);
-            System.arraycopy(valuesBySampleIndex[sampleIndex][alleleIndex], 0, dest, offset, numberOfReads());
+            Utils.validIndex(alleleIndex, alleles.numberOfAlleles());
+            System.arraycopy(valuesBySampleIndex[sampleIndex], alleleIndex * readsBySampleIndex[sampleIndex].length, dest, offset, numberOfReads());
         }
     }
 }
@@ -0,0 +1,295 @@
+package org.broadinstitute.hellbender.utils.io;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+import htsjdk.samtools.util.zip.DeflaterFactory;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A BGZF output stream that compresses its blocks on a pool of threads.
+ *
+ * Bytes are cut into blocks exactly as {@link htsjdk.samtools.util.BlockCompressedOutputStream} does, and every block
+ * is compressed with the same deflater settings, so the output is byte-for-byte identical to htsjdk's. Each full block
+ * is handed to whichever compressor is idle, and compressed blocks are written to the underlying stream in order by
+ * the thread that writes to this stream. At most {@code 2 * numThreads} blocks are in flight at once; once this limit is
+ * reached, writes block until the oldest block has been compressed and written.
+ *
+ * Since the compressed size of a block is not known when its bytes are written, this stream cannot report virtual
+ * file pointers synchronously like htsjdk's. Instead, callers can record the position of the current block and the
+ * offset within it ({@link #getBlockNumber}, {@link #getBlockOffset}) and resolve them into virtual file pointers when
+ * the {@link BlockListener} is told the address of the block.
+ */
+public final class ParallelBlockCompressedOutputStream extends OutputStream {
+
+    /**
+     * Notified of every block written to the underlying stream, in block order, on the thread writing to the
+     * {@link ParallelBlockCompressedOutputStream}.
+     */
+    @FunctionalInterface
+    public interface BlockListener {
+        /**
+         * @param blockNumber index of the block in the stream, starting from 0
+         * @param blockAddress offset of the block in the underlying stream
+         * @param compressedSize size of the compressed block, so that the next block starts at {@code blockAddress + compressedSize}
+         */
+        void blockWritten(long blockNumber, long blockAddress, int compressedSize);
+    }
+
+    /**
+     * A compressor's private deflaters and buffers
+     */
+    private static final class BlockCompressor {
+        private final Deflater deflater;
+        private final Deflater noCompressionDeflater;
+        private final CRC32 crc32 = new CRC32();
+        private final byte[] compressedBuffer = new byte[BlockCompressedStreamConstants.MAX_COMPRESSED_BLOCK_SIZE - BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH];
+
+        private BlockCompressor( final int compressionLevel, final DeflaterFactory deflaterFactory ) {
+            deflater = deflaterFactory.makeDeflater(compressionLevel, true);
+            noCompressionDeflater = deflaterFactory.makeDeflater(Deflater.NO_COMPRESSION, true);
+        }
+
+        /**
+         * @return the complete BGZF block, header and footer included, for the given uncompressed bytes
+         */
+        private byte[] compress( final byte[] uncompressed, final int length ) {
+            deflater.reset();
+            deflater.setInput(uncompressed, 0, length);
+            deflater.finish();
+            int compressedSize = deflater.deflate(compressedBuffer, 0, compressedBuffer.length);
+            if ( ! deflater.finished() ) {
+                // incompressible data expands a little, so store it instead
+                noCompressionDeflater.reset();
+                noCompressionDeflater.setInput(uncompressed, 0, length);
+                noCompressionDeflater.finish();
+                compressedSize = noCompressionDeflater.deflate(compressedBuffer, 0, compressedBuffer.length);
+                if ( ! noCompressionDeflater.finished() ) {
+                    throw new GATKException.ShouldNeverReachHereException("Block of " + length + " bytes does not fit in a BGZF block even without compression");
+                }
+            }
+            crc32.reset();
+            crc32.update(uncompressed, 0, length);
+
+            final int totalBlockSize = BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH + compressedSize + BlockCompressedStreamConstants.BLOCK_FOOTER_LENGTH;
+            final ByteBuffer block = ByteBuffer.allocate(totalBlockSize).order(ByteOrder.LITTLE_ENDIAN);
+            block.put(BlockCompressedStreamConstants.GZIP_ID1);
+            block.put((byte) BlockCompressedStreamConstants.GZIP_ID2);
+            block.put(BlockCompressedStreamConstants.GZIP_CM_DEFLATE);
+            block.put((byte) BlockCompressedStreamConstants.GZIP_FLG);
+            block.putInt(0); // modification time
+            block.put((byte) BlockCompressedStreamConstants.GZIP_XFL);
+            block.put((byte) BlockCompressedStreamConstants.GZIP_OS_UNKNOWN);
+            block.putShort(BlockCompressedStreamConstants.GZIP_XLEN);
+            block.put(BlockCompressedStreamConstants.BGZF_ID1);
+            block.put(BlockCompressedStreamConstants.BGZF_ID2);
+            block.putShort(BlockCompressedStreamConstants.BGZF_LEN);
+            block.putShort((short) (totalBlockSize - 1));
+            block.put(compressedBuffer, 0, compressedSize);
+            block.putInt((int) crc32.getValue());
+            block.putInt(length);
+            return block.array();
+        }
+
+        private void end() {
+            deflater.end();
+            noCompressionDeflater.end();
+        }
+    }
+
+    private final OutputStream out;
+    private final BlockListener blockListener;
+
+    private final List<BlockCompressor> compressors;
+    private final BlockingQueue<BlockCompressor> idleCompressors;
+    private final ExecutorService executorService;
+    private final Queue<Future<byte[]>> pendingBlocks = new LinkedList<>();
+    private final int maxPendingBlocks;
+
+    private final byte[] singleByte = new byte[1];
+    private byte[] uncompressedBuffer = new byte[BlockCompressedStreamConstants.DEFAULT_UNCOMPRESSED_BLOCK_SIZE];
+    private int numUncompressedBytes = 0;
+
+    private long numSubmittedBlocks = 0;
+    private long numWrittenBlocks = 0;
+    private long nextBlockAddress = 0;
+    private boolean closed = false;
+
+    /**
+     * @param out stream to write the compressed blocks to. Will be closed when this stream is closed.
+     * @param compressionLevel deflater compression level, between 0 and 9
+     * @param deflaterFactory factory for the compressors' deflaters
+     * @param numThreads number of compression threads to use. Must be >= 1.
+     * @param blockListener notified of the address of every block written, or null
+     */
+    public ParallelBlockCompressedOutputStream( final OutputStream out, final int compressionLevel, final DeflaterFactory deflaterFactory,
+                                                final int numThreads, final BlockListener blockListener ) {
+        this.out = Utils.nonNull(out);
+        Utils.validateArg(compressionLevel >= Deflater.NO_COMPRESSION && compressionLevel <= Deflater.BEST_COMPRESSION, "compressionLevel must be between 0 and 9");
+        Utils.nonNull(deflaterFactory);
+        Utils.validateArg(numThreads >= 1, "numThreads must be at least 1");
+        this.blockListener = blockListener;
+
+        compressors = new ArrayList<>(numThreads);
+        idleCompressors = new ArrayBlockingQueue<>(numThreads);
+        for ( int i = 0; i < numThreads; i++ ) {
+            final BlockCompressor compressor = new BlockCompressor(compressionLevel, deflaterFactory);
+            compressors.add(compressor);
+            idleCompressors.add(compressor);
+        }
+
+        final ThreadFactory threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("bgzfCompressor-thread-%d")
+                .setDaemon(true)
+                .build();
+        executorService = Executors.newFixedThreadPool(numThreads, threadFactory);
+        maxPendingBlocks = 2 * numThreads;
+    }
+
+    /**
+     * @return the index of the block that the next byte written will go into
+     */
+    public long getBlockNumber() {
+        return numSubmittedBlocks;
+    }
+
+    /**
+     * @return the offset, within its uncompressed block, of the next byte written
+     */
+    public int getBlockOffset() {
+        return numUncompressedBytes;
+    }
+
+    @Override
+    public void write( final int b ) throws IOException {
+        singleByte[0] = (byte) b;
+        write(singleByte, 0, 1);
+    }
+
+    @Override
+    public void write( final byte[] bytes, int offset, int length ) throws IOException {
+        assertOpen();
+        while ( length > 0 ) {
+            final int copyLength = Math.min(length, uncompressedBuffer.length - numUncompressedBytes);
+            System.arraycopy(bytes, offset, uncompressedBuffer, numUncompressedBytes, copyLength);
+            numUncompressedBytes += copyLength;
+            offset += copyLength;
+            length -= copyLength;
+            // like htsjdk, a full block is compressed right away, so the next byte starts a new block
+            if ( numUncompressedBytes == uncompressedBuffer.length ) {
+                submitCurrentBlock();
+            }
+        }
+        writeCompletedBlocks();
+    }
+
+    /**
+     * Compress the partial block, if any, and write all blocks to the underlying stream. Note that this ends the
+     * current block early, just like {@link htsjdk.samtools.util.BlockCompressedOutputStream#flush}.
+     */
+    @Override
+    public void flush() throws IOException {
+        assertOpen();
+        if ( numUncompressedBytes > 0 ) {
+            submitCurrentBlock();
+        }
+        while ( ! pendingBlocks.isEmpty() ) {
+            writeOldestBlock();
+        }
+        out.flush();
+    }
+
+    /**
+     * Write all remaining blocks followed by the BGZF terminator block, and close the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if ( closed ) {
+            return;
+        }
+        try {
+            flush();
+            out.write(BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK);
+            out.close();
+        } finally {
+            closed = true;
+            executorService.shutdownNow();
+            // a compressor may still be running if we're closing after a failure, so leave its deflaters to the GC
+            if ( idleCompressors.size() == compressors.size() ) {
+                compressors.forEach(BlockCompressor::end);
+            }
+        }
+    }
+
+    private void assertOpen() throws IOException {
+        if ( closed ) {
+            throw new IOException("Stream is closed");
+        }
+    }
+
+    private void submitCurrentBlock() throws IOException {
+        while ( pendingBlocks.size() >= maxPendingBlocks ) {
+            writeOldestBlock();
+        }
+
+        final byte[] uncompressed = uncompressedBuffer;
+        final int length = numUncompressedBytes;
+        pendingBlocks.add(executorService.submit(() -> {
+            final BlockCompressor compressor = idleCompressors.take();
+            try {
+                return compressor.compress(uncompressed, length);
+            } finally {
+                idleCompressors.put(compressor);
+            }
+        }));
+        numSubmittedBlocks++;
+        uncompressedBuffer = new byte[uncompressedBuffer.length];
+        numUncompressedBytes = 0;
+    }
+
+    private void writeCompletedBlocks() throws IOException {
+        while ( ! pendingBlocks.isEmpty() && pendingBlocks.peek().isDone() ) {
+            writeOldestBlock();
+        }
+    }
+
+    private void writeOldestBlock() throws IOException {
+        final byte[] block;
+        try {
+            block = pendingBlocks.remove().get();
+        } catch ( final ExecutionException e ) {
+            if ( e.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GATKException("Problem compressing a BGZF block", e);
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while compressing a BGZF block", e);
+        }
+
+        out.write(block);
+        if ( blockListener != null ) {
+            blockListener.blockWritten(numWrittenBlocks, nextBlockAddress, block.length);
+        }
+        numWrittenBlocks++;
+        nextBlockAddress += block.length;
+    }
+}
@@ -0,0 +1,193 @@
+package org.broadinstitute.hellbender.utils.iterators;
+
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.util.CloseableIterator;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wraps a SAMRecord iterator within an iterator of GATKReads, like {@link SAMRecordToReadIterator}, but pulls the records
+ * from the wrapped iterator (inflating BGZF blocks and decoding records) on a background thread, ahead of the consumer.
+ *
+ * Records are decoded in batches into a bounded queue of {@code numBatches} batches. When the queue is full the
+ * background thread waits for the consumer, so at most {@code (numBatches + 2) * batchSize} reads are held in memory.
+ * The wrapped iterator is accessed only from the background thread until the iterator is exhausted or {@link #close}d,
+ * so callers must close this iterator, which stops the background thread, before closing or reusing the wrapped iterator
+ * or its reader. Closing does not interrupt the background thread, since interrupting NIO reads would close their channel.
+ *
+ * Queue occupancy is recorded in a {@link ReadAheadStatistics}.
+ */
+public final class AsyncSAMRecordToReadIterator implements CloseableIterator<GATKRead>, Iterable<GATKRead> {
+
+    // how often the background thread checks whether it was cancelled while waiting for room in the queue
+    private static final long CANCELLATION_POLL_MILLISECONDS = 50;
+
+    // identity marks the end of the reads
+    private final List<GATKRead> endOfReads = new ArrayList<>(0);
+
+    private final Iterator<SAMRecord> samIterator;
+    private final int batchSize;
+    private final BlockingQueue<List<GATKRead>> batches;
+    private final ReadAheadStatistics statistics;
+    private final Future<?> decoder;
+
+    private volatile boolean cancelled = false;
+    private volatile Throwable decoderFailure = null;
+
+    private Iterator<GATKRead> currentBatch = Collections.emptyIterator();
+    private boolean exhausted = false;
+
+    /**
+     * @param samIterator records to decode. Only accessed from the background thread until this iterator is closed.
+     * @param batchSize number of records to decode at a time. Must be >= 1.
+     * @param numBatches maximum number of decoded batches waiting for the consumer. Must be >= 1.
+     * @param executorService runs the background decoding. Must have a thread available for this iterator.
+     * @param statistics records the queue occupancy. May be shared between iterators.
+     */
+    public AsyncSAMRecordToReadIterator( final Iterator<SAMRecord> samIterator, final int batchSize, final int numBatches,
+                                         final ExecutorService executorService, final ReadAheadStatistics statistics ) {
+        this.samIterator = Utils.nonNull(samIterator);
+        Utils.validateArg(batchSize >= 1, "batchSize must be at least 1");
+        Utils.validateArg(numBatches >= 1, "numBatches must be at least 1");
+        Utils.nonNull(executorService);
+        this.statistics = Utils.nonNull(statistics);
+        this.batchSize = batchSize;
+        batches = new ArrayBlockingQueue<>(numBatches);
+        decoder = executorService.submit(this::decodeAll);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while ( ! currentBatch.hasNext() ) {
+            if ( exhausted ) {
+                return false;
+            }
+            final List<GATKRead> batch = takeBatch();
+            if ( batch == endOfReads ) {
+                exhausted = true;
+                if ( decoderFailure != null ) {
+                    if ( decoderFailure instanceof RuntimeException ) {
+                        throw (RuntimeException) decoderFailure;
+                    }
+                    throw new GATKException("Problem reading records", decoderFailure);
+                }
+                return false;
+            }
+            currentBatch = batch.iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public GATKRead next() {
+        if ( ! hasNext() ) {
+            throw new NoSuchElementException("next() called when there are no more items");
+        }
+        return currentBatch.next();
+    }
+
+    /**
+     * Stop decoding and wait for the background thread to stop using the wrapped iterator. Does not close the wrapped iterator.
+     */
+    @Override
+    public void close() {
+        cancelled = true;
+        // make room in the queue, so that a waiting decoder notices the cancellation
+        batches.clear();
+        try {
+            decoder.get();
+        } catch ( final ExecutionException e ) {
+            throw new GATKException("Problem stopping the decoding of records", e);
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while stopping the decoding of records", e);
+        }
+        batches.clear();
+        currentBatch = Collections.emptyIterator();
+        exhausted = true;
+    }
+
+    @Override
+    public Iterator<GATKRead> iterator() {
+        return this;
+    }
+
+    private List<GATKRead> takeBatch() {
+        final int queuedBatches = batches.size();
+        List<GATKRead> batch = batches.poll();
+        final boolean waited = batch == null;
+        try {
+            if ( waited ) {
+                batch = batches.take();
+            }
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while waiting for records", e);
+        }
+        if ( batch != endOfReads ) {
+            statistics.recordBatchConsumed(waited ? 0 : queuedBatches - 1, waited);
+        }
+        return batch;
+    }
+
+    private void decodeAll() {
+        try {
+            List<GATKRead> batch = new ArrayList<>(batchSize);
+            while ( ! cancelled && samIterator.hasNext() ) {
+                batch.add(new SAMRecordToGATKReadAdapter(decode(samIterator.next())));
+                if ( batch.size() == batchSize ) {
+                    putBatch(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if ( ! batch.isEmpty() ) {
+                putBatch(batch);
+            }
+        } catch ( final Throwable e ) {
+            decoderFailure = e;
+        } finally {
+            try {
+                // once cancelled the consumer no longer looks for the end of the reads
+                while ( ! cancelled && ! batches.offer(endOfReads, CANCELLATION_POLL_MILLISECONDS, TimeUnit.MILLISECONDS) ) { }
+            } catch ( final InterruptedException e ) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void putBatch( final List<GATKRead> batch ) throws InterruptedException {
+        boolean waited = false;
+        while ( ! cancelled && ! batches.offer(batch, waited ? CANCELLATION_POLL_MILLISECONDS : 0, TimeUnit.MILLISECONDS) ) {
+            waited = true;
+        }
+        if ( ! cancelled ) {
+            statistics.recordBatchProduced(waited);
+        }
+    }
+
+    /**
+     * Force the lazy decoding of the variable-length fields of BAM records now, on the background thread
+     */
+    private static SAMRecord decode( final SAMRecord record ) {
+        record.getReadName();
+        record.getCigar();
+        record.getReadBases();
+        record.getBaseQualities();
+        record.getAttributes();
+        return record;
+    }
+}
@@ -0,0 +1,73 @@
+package org.broadinstitute.hellbender.utils.iterators;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Occupancy of the queue of decoded batches of one or more {@link AsyncSAMRecordToReadIterator}s, which tells whether
+ * a tool is limited by decoding its input (the consumer often finds the queue empty) or by its own processing
+ * (the decoding thread often finds the queue full).
+ *
+ * Counters are updated from both the decoding threads and the consumer, so they can be shared by successive
+ * iterators and read at any time.
+ */
+public final class ReadAheadStatistics {
+
+    private final LongAdder batchesConsumed = new LongAdder();
+    private final LongAdder consumerWaits = new LongAdder();
+    private final LongAdder queuedBatchesSum = new LongAdder();
+    private final LongAdder batchesProduced = new LongAdder();
+    private final LongAdder producerWaits = new LongAdder();
+
+    void recordBatchConsumed( final int queuedBatches, final boolean waited ) {
+        batchesConsumed.increment();
+        queuedBatchesSum.add(queuedBatches);
+        if ( waited ) {
+            consumerWaits.increment();
+        }
+    }
+
+    void recordBatchProduced( final boolean waited ) {
+        batchesProduced.increment();
+        if ( waited ) {
+            producerWaits.increment();
+        }
+    }
+
+    /**
+     * @return number of batches of reads handed to the consumer
+     */
+    public long getBatchesConsumed() {
+        return batchesConsumed.sum();
+    }
+
+    /**
+     * @return mean number of decoded batches that were waiting in the queue when the consumer asked for one,
+     *         not counting the batch it got
+     */
+    public double getMeanQueueOccupancy() {
+        final long consumed = batchesConsumed.sum();
+        return consumed == 0 ? 0.0 : (double) queuedBatchesSum.sum() / consumed;
+    }
+
+    /**
+     * @return fraction of the batches for which the consumer had to wait for the decoding thread (I/O-bound)
+     */
+    public double getConsumerWaitFraction() {
+        final long consumed = batchesConsumed.sum();
+        return consumed == 0 ? 0.0 : (double) consumerWaits.sum() / consumed;
+    }
+
+    /**
+     * @return fraction of the batches for which the decoding thread had to wait for room in the queue (compute-bound)
+     */
+    public double getProducerWaitFraction() {
+        final long produced = batchesProduced.sum();
+        return produced == 0 ? 0.0 : (double) producerWaits.sum() / produced;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d batches read; mean queue occupancy %.2f batches; consumer waited for %.1f%% of batches, decoder waited for %.1f%% of batches",
+                getBatchesConsumed(), getMeanQueueOccupancy(), 100.0 * getConsumerWaitFraction(), 100.0 * getProducerWaitFraction());
+    }
+}
@@ -0,0 +1,69 @@
+package org.broadinstitute.hellbender.utils.pairhmm;
+
+import com.google.common.primitives.UnsignedBytes;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Order in which to run the haplotypes of a region through a PairHMM that keeps its matrices between haplotypes,
+ * so that each haplotype reuses as many columns as possible from the previous one.
+ *
+ * Columns can only be reused between haplotypes of the same length (the initial conditions depend on the length),
+ * so haplotypes are grouped by length. Within a group they are visited in the preorder of the prefix trie of their bases,
+ * that is, in lexicographic order: the columns shared by consecutive haplotypes are then the depth of their lowest common
+ * ancestor in the trie, and every node of the trie is computed exactly once per read.
+ */
+final class HaplotypePrefixOrder {
+
+    private static final Comparator<byte[]> BASES_COMPARATOR = UnsignedBytes.lexicographicalComparator();
+
+    private final int[] haplotypeIndices;
+    private final int[] sharedPrefixLengths;
+
+    /**
+     * @param haplotypes the haplotypes to order, in the order of the likelihood matrices
+     */
+    HaplotypePrefixOrder(final List<Haplotype> haplotypes) {
+        Utils.nonNull(haplotypes, "haplotypes is null");
+        final byte[][] bases = haplotypes.stream().map(Haplotype::getBases).toArray(byte[][]::new);
+
+        haplotypeIndices = IntStream.range(0, bases.length).boxed()
+                .sorted(Comparator.<Integer>comparingInt(i -> bases[i].length).thenComparing(i -> bases[i], BASES_COMPARATOR))
+                .mapToInt(Integer::intValue).toArray();
+
+        sharedPrefixLengths = new int[bases.length];
+        for (int k = 1; k < bases.length; k++) {
+            final byte[] previous = bases[haplotypeIndices[k - 1]];
+            final byte[] current = bases[haplotypeIndices[k]];
+            sharedPrefixLengths[k] = previous.length != current.length || current.length == 0 ? 0 : PairHMM.findFirstPositionWhereHaplotypesDiffer(previous, current);
+        }
+    }
+
+    /**
+     * @return the number of haplotypes
+     */
+    int size() {
+        return haplotypeIndices.length;
+    }
+
+    /**
+     * @param k position in the order
+     * @return the index, in the list given at construction, of the k-th haplotype to compute
+     */
+    int haplotypeIndex(final int k) {
+        return haplotypeIndices[k];
+    }
+
+    /**
+     * @param k position in the order
+     * @return the number of leading bases that the k-th haplotype to compute shares with the (k-1)-th one, 0 if their
+     *         lengths differ or k is 0
+     */
+    int sharedPrefixLength(final int k) {
+        return sharedPrefixLengths[k];
+    }
+}
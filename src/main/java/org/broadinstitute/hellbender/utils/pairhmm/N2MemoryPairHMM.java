@@ -1,5 +1,14 @@
 package org.broadinstitute.hellbender.utils.pairhmm;
 
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+
+import java.util.List;
+import java.util.Map;
+
 /**
  * Superclass for PairHMM that want to use a full read x haplotype matrix for their match, insertion, and deletion matrix
  */
@@ -35,6 +44,64 @@ abstract class N2MemoryPairHMM extends PairHMM {
         prior = new double[paddedMaxReadLength][paddedMaxHaplotypeLength];
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * Since the full matrices are kept between haplotypes, the haplotypes are computed for each read in the order given
+     * by {@link HaplotypePrefixOrder}, and each one only computes the columns after the prefix it shares with the previous one.
+     */
+    @Override
+    public void computeLog10Likelihoods(final List<LikelihoodMatrix<Haplotype>> logLikelihoods,
+                                        final List<List<GATKRead>> processedReads,
+                                        final Map<GATKRead, byte[]> gcp) {
+        Utils.validateArg(logLikelihoods.size() == processedReads.size(), () -> "Got " + logLikelihoods.size() + " likelihood matrices but reads for " + processedReads.size() + " samples");
+        final int readMaxLength = processedReads.stream().mapToInt(PairHMM::findMaxReadLength).max().orElse(0);
+        if (readMaxLength == 0) {
+            mLogLikelihoodArray = new double[0];
+            return;
+        }
+        if (doProfiling) {
+            startTime = System.nanoTime();
+        }
+        final List<Haplotype> haplotypes = logLikelihoods.get(0).alleles();
+        initializeIfNecessary(readMaxLength, findMaxAlleleLength(haplotypes));
+
+        final HaplotypePrefixOrder order = new HaplotypePrefixOrder(haplotypes);
+        final int haplotypeCount = haplotypes.size();
+        mLogLikelihoodArray = new double[processedReads.stream().mapToInt(List::size).sum() * haplotypeCount];
+        int readOffset = 0;
+        for (int s = 0; s < logLikelihoods.size(); s++) {
+            final LikelihoodMatrix<Haplotype> likelihoods = logLikelihoods.get(s);
+            Utils.validateArg(likelihoods.numberOfAlleles() == order.size(), "all the samples must have the same haplotypes");
+            int readIndex = 0;
+            for (final GATKRead read : processedReads.get(s)) {
+                final byte[] readBases = read.getBases();
+                final byte[] readQuals = read.getBaseQualities();
+                final byte[] readInsQuals = ReadUtils.getBaseInsertionQualities(read);
+                final byte[] readDelQuals = ReadUtils.getBaseDeletionQualities(read);
+                final byte[] overallGCP = gcp.get(read);
+
+                for (int k = 0; k < order.size(); k++) {
+                    final int a = order.haplotypeIndex(k);
+                    final byte[] haplotypeBases = haplotypes.get(a).getBases();
+                    final int reusedColumns = order.sharedPrefixLength(k);
+                    final double lk = computeReadLikelihoodGivenHaplotypeLog10ReusingColumns(haplotypeBases,
+                            readBases, readQuals, readInsQuals, readDelQuals, overallGCP, k == 0, reusedColumns);
+                    likelihoods.set(a, readIndex, lk);
+                    mLogLikelihoodArray[readOffset * haplotypeCount + a] = lk;
+                    computedCells += (long) readBases.length * (haplotypeBases.length - reusedColumns);
+                    reusedCells += (long) readBases.length * reusedColumns;
+                }
+                readIndex++;
+                readOffset++;
+            }
+        }
+        if (doProfiling) {
+            threadLocalPairHMMComputeTimeDiff = (System.nanoTime() - startTime);
+            pairHMMComputeTime += threadLocalPairHMMComputeTimeDiff;
+        }
+    }
+
     /**
      * Print out the core hmm matrices for debugging
      */
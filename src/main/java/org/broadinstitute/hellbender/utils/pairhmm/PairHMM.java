@@ -51,6 +51,12 @@ public abstract class PairHMM implements Closeable{
             logger.info("Using the non-hardware-accelerated Java LOGLESS_CACHING PairHMM implementation");
             return hmm;
         }),
+        /* Pure Java version of LOGLESS_CACHING that computes each read against a stripe of up to 8 haplotypes at once, in a layout the JIT can vectorize. Gives the same results as LOGLESS_CACHING */
+        STRIPED_LOGLESS_CACHING(args -> {
+            final StripedLoglessPairHMM hmm = new StripedLoglessPairHMM();
+            logger.info("Using the non-hardware-accelerated Java STRIPED_LOGLESS_CACHING PairHMM implementation");
+            return hmm;
+        }),
         /* Optimized AVX implementation of LOGLESS_CACHING called through JNI. Throws if AVX is not available */
         AVX_LOGLESS_CACHING(args -> {
             // Constructor will throw a UserException if AVX is not available
@@ -76,7 +82,7 @@ public abstract class PairHMM implements Closeable{
            Order of precedence:
             1. AVX_LOGLESS_CACHING_OMP
             2. AVX_LOGLESS_CACHING
-            3. LOGLESS_CACHING
+            3. STRIPED_LOGLESS_CACHING
          */
         FASTEST_AVAILABLE(args -> {
             // This try block is temporarily commented out becuase FPGA support is experimental for the time being. Once
@@ -105,8 +111,8 @@ public abstract class PairHMM implements Closeable{
             }
             catch ( UserException.HardwareFeatureException e ) {
                 logger.warn("***WARNING: Machine does not have the AVX instruction set support needed for the accelerated AVX PairHmm. " +
-                            "Falling back to the MUCH slower LOGLESS_CACHING implementation!");
-                return new LoglessPairHMM();
+                            "Falling back to the MUCH slower STRIPED_LOGLESS_CACHING implementation!");
+                return new StripedLoglessPairHMM();
             }
         });
 
@@ -139,6 +145,10 @@ public abstract class PairHMM implements Closeable{
     protected long threadLocalPairHMMComputeTimeDiff = 0;
     protected long startTime = 0;
 
+    //number of read x haplotype cells computed, and not computed because they were reused from the previous haplotype
+    protected long computedCells = 0;
+    protected long reusedCells = 0;
+
     /**
      * Initialize this PairHMM, making it suitable to run against a read and haplotype with given lengths
      *
@@ -177,7 +187,16 @@ public abstract class PairHMM implements Closeable{
         initialize(readMaxLength, haplotypeMaxLength);
     }
 
-    private static int findMaxAlleleLength(final List<? extends Allele> alleles) {
+    /**
+     * (Re)initialize this PairHMM only if it hasn't been initialized yet or is too small for the given lengths
+     */
+    void initializeIfNecessary( final int readMaxLength, final int haplotypeMaxLength ) {
+        if (!initialized || readMaxLength > maxReadLength || haplotypeMaxLength > maxHaplotypeLength) {
+            initialize(readMaxLength, haplotypeMaxLength);
+        }
+    }
+
+    static int findMaxAlleleLength(final List<? extends Allele> alleles) {
         int max = 0;
         for (final Allele allele : alleles) {
             final int alleleLength = allele.length();
@@ -219,11 +238,7 @@ public abstract class PairHMM implements Closeable{
             startTime = System.nanoTime();
         }
         // (re)initialize the pairHMM only if necessary
-        final int readMaxLength = findMaxReadLength(processedReads);
-        final int haplotypeMaxLength = findMaxAlleleLength(logLikelihoods.alleles());
-        if (!initialized || readMaxLength > maxReadLength || haplotypeMaxLength > maxHaplotypeLength) {
-            initialize(readMaxLength, haplotypeMaxLength);
-        }
+        initializeIfNecessary(findMaxReadLength(processedReads), findMaxAlleleLength(logLikelihoods.alleles()));
 
         final int readCount = processedReads.size();
         final List<Haplotype> alleles = logLikelihoods.alleles();
@@ -248,6 +263,7 @@ public abstract class PairHMM implements Closeable{
                         readBases, readQuals, readInsQuals, readDelQuals, overallGCP, isFirstHaplotype, nextAlleleBases);
                 logLikelihoods.set(a, readIndex, lk);
                 mLogLikelihoodArray[idx++] = lk;
+                computedCells += (long) readBases.length * alleleBases.length;
             }
             readIndex++;
         }
@@ -259,6 +275,42 @@ public abstract class PairHMM implements Closeable{
         }
     }
 
+    /**
+     *  Given the reads of all the samples in a region and their haplotypes, for every read compute the total probability
+     *  of said read arising from each haplotype.
+     *
+     *  Batching the reads of all the samples lets implementations schedule the whole region at once; this default
+     *  implementation simply computes one sample at a time. Either way, {@link #getLogLikelihoodArray()} holds the
+     *  likelihoods of the reads of all the samples afterwards, one sample after the other.
+     *
+     * @param logLikelihoods where to store the log likelihoods of each sample, all of them with the same haplotypes in the same order.
+     * @param processedReads reads of each sample to analyze instead of the ones present in the destination read-likelihoods,
+     *                       in the same order as {@code logLikelihoods}.
+     * @param gcp penalty for gap continuations base array map for processed reads.
+     */
+    public void computeLog10Likelihoods(final List<LikelihoodMatrix<Haplotype>> logLikelihoods,
+                                        final List<List<GATKRead>> processedReads,
+                                        final Map<GATKRead, byte[]> gcp) {
+        Utils.validateArg(logLikelihoods.size() == processedReads.size(), () -> "Got " + logLikelihoods.size() + " likelihood matrices but reads for " + processedReads.size() + " samples");
+        final int readCount = processedReads.stream().mapToInt(List::size).sum();
+        if (readCount == 0) {
+            mLogLikelihoodArray = new double[0];
+            return;
+        }
+        // each sample overwrites the array, so gather them into one for the whole batch
+        final double[] batchLogLikelihoods = new double[readCount * logLikelihoods.get(0).numberOfAlleles()];
+        int offset = 0;
+        for (int s = 0; s < logLikelihoods.size(); s++) {
+            if (processedReads.get(s).isEmpty()) {
+                continue;
+            }
+            computeLog10Likelihoods(logLikelihoods.get(s), processedReads.get(s), gcp);
+            System.arraycopy(mLogLikelihoodArray, 0, batchLogLikelihoods, offset, mLogLikelihoodArray.length);
+            offset += mLogLikelihoodArray.length;
+        }
+        mLogLikelihoodArray = batchLogLikelihoods;
+    }
+
     /**
      * Compute the total probability of read arising from haplotypeBases given base substitution, insertion, and deletion
      * probabilities.
@@ -293,6 +345,60 @@ public abstract class PairHMM implements Closeable{
                                                                   final boolean recacheReadValues,
                                                                   final byte[] nextHaplotypeBases) throws IllegalStateException, IllegalArgumentException {
 
+        validateInputs(haplotypeBases, readBases, readQuals, insertionGOP, deletionGOP, overallGCP);
+
+        hapStartIndex =  (recacheReadValues) ? 0 : hapStartIndex;
+
+        // Pre-compute the difference between the current haplotype and the next one to be run
+        // Looking ahead is necessary for the ArrayLoglessPairHMM implementation
+        final int nextHapStartIndex =  (nextHaplotypeBases == null || haplotypeBases.length != nextHaplotypeBases.length) ? 0 : findFirstPositionWhereHaplotypesDiffer(haplotypeBases, nextHaplotypeBases);
+
+        final double result = computeAndValidateLog10(haplotypeBases, readBases, readQuals, insertionGOP, deletionGOP, overallGCP, hapStartIndex, recacheReadValues, nextHapStartIndex);
+
+        // For the next iteration, the hapStartIndex for the next haploytpe becomes the index for the current haplotype
+        // The array implementation has to look ahead to the next haplotype to store caching info. It cannot do this if nextHapStart is before hapStart
+        hapStartIndex = (nextHapStartIndex < hapStartIndex) ? 0: nextHapStartIndex;
+
+        return result;
+    }
+
+    /**
+     * Compute the total probability of read arising from haplotypeBases as {@link #computeReadLikelihoodGivenHaplotypeLog10},
+     * but letting the caller choose how many haplotype columns of the matrices filled in by the previous call are reused,
+     * instead of looking ahead to the next haplotype.
+     *
+     * Reusing columns is only correct for implementations that keep the full matrices between calls ({@link N2MemoryPairHMM}),
+     * when the previous call was for the same read and for a haplotype of the same length whose first {@code reusedColumns}
+     * bases are the same as this haplotype's.
+     *
+     * @param reusedColumns number of leading haplotype columns to reuse from the previous call, 0 to compute them all
+     * @throws IllegalArgumentException if the columns can't be reused, in addition to the cases of {@link #computeReadLikelihoodGivenHaplotypeLog10}
+     * @return the log10 probability of read coming from the haplotype under the provided error model
+     */
+    double computeReadLikelihoodGivenHaplotypeLog10ReusingColumns( final byte[] haplotypeBases,
+                                                                   final byte[] readBases,
+                                                                   final byte[] readQuals,
+                                                                   final byte[] insertionGOP,
+                                                                   final byte[] deletionGOP,
+                                                                   final byte[] overallGCP,
+                                                                   final boolean recacheReadValues,
+                                                                   final int reusedColumns) throws IllegalStateException, IllegalArgumentException {
+        validateInputs(haplotypeBases, readBases, readQuals, insertionGOP, deletionGOP, overallGCP);
+        Utils.validateArg(reusedColumns >= 0, () -> "reusedColumns must be non-negative but got " + reusedColumns);
+        Utils.validateArg(reusedColumns == 0 || (! recacheReadValues && previousHaplotypeBases != null && previousHaplotypeBases.length == haplotypeBases.length
+                        && reusedColumns <= findFirstPositionWhereHaplotypesDiffer(previousHaplotypeBases, haplotypeBases)),
+                () -> "Cannot reuse " + reusedColumns + " columns of the previous haplotype for haplotype " + new String(haplotypeBases));
+
+        hapStartIndex = reusedColumns;
+        return computeAndValidateLog10(haplotypeBases, readBases, readQuals, insertionGOP, deletionGOP, overallGCP, reusedColumns, recacheReadValues, 0);
+    }
+
+    private void validateInputs( final byte[] haplotypeBases,
+                                 final byte[] readBases,
+                                 final byte[] readQuals,
+                                 final byte[] insertionGOP,
+                                 final byte[] deletionGOP,
+                                 final byte[] overallGCP ) {
         Utils.validate(initialized, "Must call initialize before calling computeReadLikelihoodGivenHaplotypeLog10");
         Utils.nonNull(haplotypeBases, "haplotypeBases may not be null");
         Utils.validateArg( haplotypeBases.length <= maxHaplotypeLength, () -> "Haplotype bases is too long, got " + haplotypeBases.length + " but max is " + maxHaplotypeLength);
@@ -302,16 +408,20 @@ public abstract class PairHMM implements Closeable{
         Utils.validateArg( insertionGOP.length == readBases.length, () -> "Read bases and read insertion quals aren't the same size: " + readBases.length + " vs " + insertionGOP.length);
         Utils.validateArg( deletionGOP.length == readBases.length, () -> "Read bases and read deletion quals aren't the same size: " + readBases.length + " vs " + deletionGOP.length);
         Utils.validateArg( overallGCP.length == readBases.length, () -> "Read bases and overall GCP aren't the same size: " + readBases.length + " vs " + overallGCP.length);
+    }
 
+    private double computeAndValidateLog10( final byte[] haplotypeBases,
+                                            final byte[] readBases,
+                                            final byte[] readQuals,
+                                            final byte[] insertionGOP,
+                                            final byte[] deletionGOP,
+                                            final byte[] overallGCP,
+                                            final int hapStartIndex,
+                                            final boolean recacheReadValues,
+                                            final int nextHapStartIndex ) {
         paddedReadLength = readBases.length + 1;
         paddedHaplotypeLength = haplotypeBases.length + 1;
 
-        hapStartIndex =  (recacheReadValues) ? 0 : hapStartIndex;
-
-        // Pre-compute the difference between the current haplotype and the next one to be run
-        // Looking ahead is necessary for the ArrayLoglessPairHMM implementation
-        final int nextHapStartIndex =  (nextHaplotypeBases == null || haplotypeBases.length != nextHaplotypeBases.length) ? 0 : findFirstPositionWhereHaplotypesDiffer(haplotypeBases, nextHaplotypeBases);
-
         final double result = subComputeReadLikelihoodGivenHaplotypeLog10(haplotypeBases, readBases, readQuals, insertionGOP, deletionGOP, overallGCP, hapStartIndex, recacheReadValues, nextHapStartIndex);
 
         Utils.validate(result <= 0.0, () -> "PairHMM Log Probability cannot be greater than 0: " + String.format("haplotype: %s, read: %s, result: %f, PairHMM: %s", new String(haplotypeBases), new String(readBases), result, this.getClass().getSimpleName()));
@@ -320,10 +430,6 @@ public abstract class PairHMM implements Closeable{
         // Warning: This assumes no downstream modification of the haplotype bases (saves us from copying the array). It is okay for the haplotype caller.
         previousHaplotypeBases = haplotypeBases;
 
-        // For the next iteration, the hapStartIndex for the next haploytpe becomes the index for the current haplotype
-        // The array implementation has to look ahead to the next haplotype to store caching info. It cannot do this if nextHapStart is before hapStart
-        hapStartIndex = (nextHapStartIndex < hapStartIndex) ? 0: nextHapStartIndex;
-
         return result;
     }
 
@@ -364,18 +470,36 @@ public abstract class PairHMM implements Closeable{
     }
 
     /**
-     * Return the results of the computeLogLikelihoods function
+     * Return the results of the last call to computeLog10Likelihoods: for every read (of every sample, for the batched
+     * version), its log likelihood given each haplotype
      */
     public double[] getLogLikelihoodArray() {
         return mLogLikelihoodArray;
     }
 
+    /**
+     * @return the number of read x haplotype cells computed by this PairHMM so far
+     */
+    public long getComputedCells() {
+        return computedCells;
+    }
+
+    /**
+     * @return the number of read x haplotype cells that this PairHMM didn't need to compute so far, because they were
+     *         reused from the previous haplotype
+     */
+    public long getReusedCells() {
+        return reusedCells;
+    }
+
     /**
      * Called at the end of the program to close files, print profiling information etc 
      */
     @Override
     public void close() {
-        if(doProfiling)
-            logger.info("Total compute time in PairHMM computeLogLikelihoods() : "+(pairHMMComputeTime*1e-9));
+        if(doProfiling) {
+            logger.info("Total compute time in PairHMM computeLogLikelihoods() : " + (pairHMMComputeTime * 1e-9));
+            logger.info("PairHMM cells computed : " + computedCells + ", reused from the previous haplotype : " + reusedCells);
+        }
     }
 }
@@ -0,0 +1,327 @@
+package org.broadinstitute.hellbender.utils.pairhmm;
+
+import org.broadinstitute.hellbender.utils.MathUtils;
+import org.broadinstitute.hellbender.utils.QualityUtils;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.broadinstitute.hellbender.utils.pairhmm.PairHMMModel.*;
+
+/**
+ * Pure Java version of {@link LoglessPairHMM} that computes a read against a stripe of up to {@link #LANES} haplotypes
+ * at once, for machines where the native {@link VectorLoglessPairHMM} is not available.
+ *
+ * The matrices of the haplotypes in a stripe are interleaved (structure of arrays): the cell for read position i and
+ * haplotype position j of lane l is stored at index {@code j * LANES + l} of row i. Since all the lanes share the read,
+ * the transition probabilities are constant along a row, and the match and insertion cells of a row are computed in a
+ * single loop over the whole row, with unit stride and without dependencies between iterations, that HotSpot's superword
+ * optimization can vectorize. Deletions depend on the previous column of the same lane, {@link #LANES} cells back.
+ * Haplotypes of different lengths can share a stripe: the extra columns of the shorter ones are computed but ignored.
+ * Only two rows of each matrix are kept, so unlike {@link LoglessPairHMM} this class does not allocate the full read by
+ * haplotype matrices.
+ *
+ * Each cell is computed with the same floating point operations, in the same order, as in {@link LoglessPairHMM},
+ * so both implementations give the same results.
+ */
+public final class StripedLoglessPairHMM extends PairHMM {
+
+    /**
+     * Number of haplotypes computed at once
+     */
+    static final int LANES = 8;
+
+    // the previous and current rows of the interleaved matrices
+    private double[] previousMatchRow = new double[0];
+    private double[] previousInsertionRow = new double[0];
+    private double[] previousDeletionRow = new double[0];
+    private double[] currentMatchRow = new double[0];
+    private double[] currentInsertionRow = new double[0];
+    private double[] currentDeletionRow = new double[0];
+
+    private final double[] stripeLikelihoods = new double[LANES];
+
+    // the transition probabilities of the current read, reused across reads
+    private double[][] transitions = createTransitionMatrix(0);
+
+    @Override
+    public void doNotUseTristateCorrection() {
+        doNotUseTristateCorrection = true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void initialize(final int readMaxLength, final int haplotypeMaxLength) {
+        super.initialize(readMaxLength, haplotypeMaxLength);
+        if (transitions.length < readMaxLength + 1) {
+            transitions = createTransitionMatrix(readMaxLength);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void computeLog10Likelihoods(final LikelihoodMatrix<Haplotype> logLikelihoods,
+                                        final List<GATKRead> processedReads,
+                                        final Map<GATKRead, byte[]> gcp) {
+        computeLog10Likelihoods(Collections.singletonList(logLikelihoods), Collections.singletonList(processedReads), gcp);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The haplotypes are grouped into stripes once for the reads of all the samples.
+     */
+    @Override
+    public void computeLog10Likelihoods(final List<LikelihoodMatrix<Haplotype>> logLikelihoods,
+                                        final List<List<GATKRead>> processedReads,
+                                        final Map<GATKRead, byte[]> gcp) {
+        Utils.validateArg(logLikelihoods.size() == processedReads.size(), () -> "Got " + logLikelihoods.size() + " likelihood matrices but reads for " + processedReads.size() + " samples");
+        final int readCount = processedReads.stream().mapToInt(List::size).sum();
+        if (readCount == 0) {
+            mLogLikelihoodArray = new double[0];
+            return;
+        }
+        if (doProfiling) {
+            startTime = System.nanoTime();
+        }
+        final List<Haplotype> haplotypes = logLikelihoods.get(0).alleles();
+        final int haplotypeCount = haplotypes.size();
+        final List<HaplotypeStripe> stripes = makeStripes(haplotypes);
+        mLogLikelihoodArray = new double[readCount * haplotypeCount];
+
+        int readOffset = 0;
+        for (int s = 0; s < processedReads.size(); s++) {
+            final LikelihoodMatrix<Haplotype> likelihoods = logLikelihoods.get(s);
+            Utils.validateArg(likelihoods.numberOfAlleles() == haplotypeCount, "all the samples must have the same haplotypes");
+            int readIndex = 0;
+            for (final GATKRead read : processedReads.get(s)) {
+                final byte[] readBases = read.getBases();
+                final byte[] readQuals = read.getBaseQualities();
+                fillTransitions(ReadUtils.getBaseInsertionQualities(read), ReadUtils.getBaseDeletionQualities(read), gcp.get(read));
+
+                for (final HaplotypeStripe stripe : stripes) {
+                    computeStripeLikelihoods(stripe, readBases, readQuals);
+                    for (int l = 0; l < stripe.size; l++) {
+                        final double result = stripeLikelihoods[l];
+                        final int a = stripe.haplotypeIndices[l];
+                        Utils.validate(result <= 0.0, () -> "PairHMM Log Probability cannot be greater than 0: " + String.format("haplotype: %s, read: %s, result: %f, PairHMM: %s", haplotypes.get(a).getBaseString(), new String(readBases), result, getClass().getSimpleName()));
+                        Utils.validate(MathUtils.goodLog10Probability(result), () -> "Invalid Log Probability: " + result);
+                        likelihoods.set(a, readIndex, result);
+                        mLogLikelihoodArray[readOffset * haplotypeCount + a] = result;
+                        computedCells += (long) readBases.length * stripe.lengths[l];
+                    }
+                }
+                readIndex++;
+                readOffset++;
+            }
+        }
+
+        if (doProfiling) {
+            threadLocalPairHMMComputeTimeDiff = (System.nanoTime() - startTime);
+            pairHMMComputeTime += threadLocalPairHMMComputeTimeDiff;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Computes the haplotype as a stripe of its own.
+     */
+    @Override
+    protected double subComputeReadLikelihoodGivenHaplotypeLog10(final byte[] haplotypeBases,
+                                                                 final byte[] readBases,
+                                                                 final byte[] readQuals,
+                                                                 final byte[] insertionGOP,
+                                                                 final byte[] deletionGOP,
+                                                                 final byte[] overallGCP,
+                                                                 final int hapStartIndex,
+                                                                 final boolean recacheReadValues,
+                                                                 final int nextHapStartIndex) {
+        fillTransitions(insertionGOP, deletionGOP, overallGCP);
+        computeStripeLikelihoods(new HaplotypeStripe(new int[]{0}, Collections.singletonList(haplotypeBases)), readBases, readQuals);
+        return stripeLikelihoods[0];
+    }
+
+    /**
+     * Fills {@link #transitions} with the transition probabilities of a read, growing it if the read is too long
+     */
+    private void fillTransitions(final byte[] insertionGOP, final byte[] deletionGOP, final byte[] overallGCP) {
+        if (transitions.length < insertionGOP.length + 1) {
+            transitions = createTransitionMatrix(insertionGOP.length);
+        }
+        qualToTransProbs(transitions, insertionGOP, deletionGOP, overallGCP);
+    }
+
+    /**
+     * Groups the haplotypes into stripes of haplotypes of similar lengths, to minimize the extra columns of the shorter ones
+     */
+    private static List<HaplotypeStripe> makeStripes(final List<Haplotype> haplotypes) {
+        final int[] byLength = IntStream.range(0, haplotypes.size()).boxed()
+                .sorted(Comparator.comparingInt(a -> haplotypes.get(a).length()))
+                .mapToInt(Integer::intValue).toArray();
+        final List<HaplotypeStripe> stripes = new ArrayList<>((byLength.length + LANES - 1) / LANES);
+        for (int start = 0; start < byLength.length; start += LANES) {
+            final int[] haplotypeIndices = Arrays.copyOfRange(byLength, start, Math.min(start + LANES, byLength.length));
+            stripes.add(new HaplotypeStripe(haplotypeIndices, Arrays.stream(haplotypeIndices).mapToObj(a -> haplotypes.get(a).getBases()).collect(Collectors.toList())));
+        }
+        return stripes;
+    }
+
+    /**
+     * Computes the log10 likelihoods of the read given the haplotypes in the stripe into {@link #stripeLikelihoods}
+     */
+    private void computeStripeLikelihoods(final HaplotypeStripe stripe, final byte[] readBases, final byte[] readQuals) {
+        final int rowSize = stripe.rowSize;
+        if (previousMatchRow.length < rowSize) {
+            previousMatchRow = new double[rowSize];
+            previousInsertionRow = new double[rowSize];
+            previousDeletionRow = new double[rowSize];
+            currentMatchRow = new double[rowSize];
+            currentInsertionRow = new double[rowSize];
+            currentDeletionRow = new double[rowSize];
+        }
+
+        // the initial value (free deletions in the beginning) for the first row in the deletion matrix
+        Arrays.fill(previousMatchRow, 0, rowSize, 0.0);
+        Arrays.fill(previousInsertionRow, 0, rowSize, 0.0);
+        System.arraycopy(stripe.initialDeletionRow, 0, previousDeletionRow, 0, rowSize);
+
+        for (int i = 1; i <= readBases.length; i++) {
+            final double[] previousMatch = previousMatchRow;
+            final double[] previousInsertion = previousInsertionRow;
+            final double[] previousDeletion = previousDeletionRow;
+            final double[] match = currentMatchRow;
+            final double[] insertion = currentInsertionRow;
+            final double[] deletion = currentDeletionRow;
+
+            final byte qual = readQuals[i - 1];
+            final double matchPrior = QualityUtils.qualToProb(qual);
+            final double mismatchPrior = QualityUtils.qualToErrorProb(qual) / (doNotUseTristateCorrection ? 1.0 : LoglessPairHMM.TRISTATE_CORRECTION);
+            final double[] isMatch = stripe.matchMask(readBases[i - 1]);
+            final double[] isMismatch = stripe.mismatchMask(readBases[i - 1]);
+
+            final double[] transition = transitions[i];
+            final double matchToMatchProb = transition[matchToMatch];
+            final double indelToMatchProb = transition[indelToMatch];
+            final double matchToInsertionProb = transition[matchToInsertion];
+            final double insertionToInsertionProb = transition[insertionToInsertion];
+            final double matchToDeletionProb = transition[matchToDeletion];
+            final double deletionToDeletionProb = transition[deletionToDeletion];
+
+            // the first column is always 0 after the first row
+            Arrays.fill(match, 0, LANES, 0.0);
+            Arrays.fill(insertion, 0, LANES, 0.0);
+            Arrays.fill(deletion, 0, LANES, 0.0);
+
+            // the masks are exactly 0.0 or 1.0, so the prior is exactly one of matchPrior and mismatchPrior
+            for (int k = LANES; k < rowSize; k++) {
+                match[k] = (isMatch[k] * matchPrior + isMismatch[k] * mismatchPrior) * ( previousMatch[k - LANES] * matchToMatchProb +
+                        previousInsertion[k - LANES] * indelToMatchProb +
+                        previousDeletion[k - LANES] * indelToMatchProb );
+                insertion[k] = previousMatch[k] * matchToInsertionProb + previousInsertion[k] * insertionToInsertionProb;
+            }
+            for (int k = LANES; k < rowSize; k++) {
+                deletion[k] = match[k - LANES] * matchToDeletionProb + deletion[k - LANES] * deletionToDeletionProb;
+            }
+
+            currentMatchRow = previousMatch;
+            currentInsertionRow = previousInsertion;
+            currentDeletionRow = previousDeletion;
+            previousMatchRow = match;
+            previousInsertionRow = insertion;
+            previousDeletionRow = deletion;
+        }
+
+        // final log probability is the log10 sum of the last element in the Match and Insertion state arrays
+        for (int l = 0; l < stripe.size; l++) {
+            double finalSumProbabilities = 0.0;
+            for (int k = LANES + l; k <= stripe.lengths[l] * LANES + l; k += LANES) {
+                finalSumProbabilities += previousMatchRow[k] + previousInsertionRow[k];
+            }
+            stripeLikelihoods[l] = Math.log10(finalSumProbabilities) - LoglessPairHMM.INITIAL_CONDITION_LOG10;
+        }
+    }
+
+    /**
+     * Up to {@link #LANES} haplotypes, interleaved, with the masks of the positions where each read base matches them
+     */
+    private static final class HaplotypeStripe {
+        private final int size;
+        private final int[] haplotypeIndices;
+        private final int[] lengths;
+        private final int rowSize;
+        private final byte[] bases;
+        private final double[] initialDeletionRow;
+
+        // indexed by read base; 1.0 where the read base matches (or mismatches) the haplotype base, 0.0 elsewhere
+        private final double[][] matchMasks = new double[256][];
+        private final double[][] mismatchMasks = new double[256][];
+
+        private HaplotypeStripe(final int[] haplotypeIndices, final List<byte[]> haplotypes) {
+            this.size = haplotypeIndices.length;
+            this.haplotypeIndices = haplotypeIndices;
+            this.lengths = haplotypes.stream().mapToInt(bases -> bases.length).toArray();
+            this.rowSize = (Arrays.stream(lengths).max().getAsInt() + 1) * LANES;
+
+            // lanes past the size of the stripe, and columns past the length of a haplotype, are left at 0
+            bases = new byte[rowSize];
+            initialDeletionRow = new double[rowSize];
+            for (int l = 0; l < size; l++) {
+                final byte[] haplotypeBases = haplotypes.get(l);
+                for (int j = 1; j <= haplotypeBases.length; j++) {
+                    bases[j * LANES + l] = haplotypeBases[j - 1];
+                }
+                final double initialValue = LoglessPairHMM.INITIAL_CONDITION / haplotypeBases.length;
+                for (int j = 0; j <= haplotypeBases.length; j++) {
+                    initialDeletionRow[j * LANES + l] = initialValue;
+                }
+            }
+        }
+
+        private double[] matchMask(final byte readBase) {
+            if (matchMasks[readBase & 0xff] == null) {
+                computeMasks(readBase);
+            }
+            return matchMasks[readBase & 0xff];
+        }
+
+        private double[] mismatchMask(final byte readBase) {
+            if (mismatchMasks[readBase & 0xff] == null) {
+                computeMasks(readBase);
+            }
+            return mismatchMasks[readBase & 0xff];
+        }
+
+        private void computeMasks(final byte x) {
+            final double[] matchMask = new double[rowSize];
+            final double[] mismatchMask = new double[rowSize];
+            for (int l = 0; l < size; l++) {
+                for (int k = LANES + l; k <= lengths[l] * LANES + l; k += LANES) {
+                    final byte y = bases[k];
+                    if ( x == y || x == (byte) 'N' || y == (byte) 'N' ) {
+                        matchMask[k] = 1.0;
+                    } else {
+                        mismatchMask[k] = 1.0;
+                    }
+                }
+            }
+            matchMasks[x & 0xff] = matchMask;
+            mismatchMasks[x & 0xff] = mismatchMask;
+        }
+    }
+}
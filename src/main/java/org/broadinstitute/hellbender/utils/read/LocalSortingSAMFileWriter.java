@@ -0,0 +1,202 @@
+package org.broadinstitute.hellbender.utils.read;
+
+import htsjdk.samtools.BAMRecordCodec;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileWriter;
+import htsjdk.samtools.SAMFileWriterImpl;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordComparator;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import htsjdk.samtools.ValidationStringency;
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.samtools.util.PeekableIterator;
+import htsjdk.samtools.util.ProgressLoggerInterface;
+import htsjdk.samtools.util.SortingCollection;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+
+/**
+ * A SAMFileWriter for records that are nearly, but not exactly, in the sort order of the header, such as the output
+ * of tools that move reads by a bounded distance.
+ *
+ * Instead of spilling every record to disk and sorting the whole file at the end as htsjdk does for writers that are not
+ * pre-sorted, records go through a window of the given number of records held in memory, and the first record in sort
+ * order is written out whenever the window is full. The output is therefore written as the records come, by a pre-sorted
+ * writer, as long as no record is out of order by more than the window size.
+ *
+ * Should a record be out of order by more than that, the output written so far (which is sorted) is moved aside, and
+ * this and all subsequent records are sorted with a {@link SortingCollection}. On {@link #close} the two are merged into
+ * the output. The output is then sorted in either case, but the fallback costs one more pass over the records written
+ * before the first out-of-window record.
+ */
+public final class LocalSortingSAMFileWriter implements SAMFileWriter {
+
+    private static final Logger logger = LogManager.getLogger(LocalSortingSAMFileWriter.class);
+
+    /**
+     * A record in the window, along with the order in which it was added, so that records that compare equal are
+     * written in the order they were added
+     */
+    private static final class WindowEntry {
+        private final SAMRecord record;
+        private final long order;
+
+        private WindowEntry( final SAMRecord record, final long order ) {
+            this.record = record;
+            this.order = order;
+        }
+    }
+
+    private final Path outputPath;
+    private final File referenceFile;
+    private final SAMFileHeader header;
+    private final Function<Path, SAMFileWriter> preSortedWriterFactory;
+    private final SAMRecordComparator comparator;
+    private final int windowSize;
+    private final PriorityQueue<WindowEntry> window;
+
+    private SAMFileWriter writer;
+    private ProgressLoggerInterface progressLogger;
+    private SAMRecord lastWrittenRecord;
+    private long numAddedRecords = 0;
+    private SortingCollection<SAMRecord> outOfWindowRecords;
+
+    /**
+     * @param outputPath file to write. Can not be null.
+     * @param referenceFile reference for reading back a CRAM output if the window is too small. May be null for other formats.
+     * @param header header of the output. Can not be null.
+     * @param windowSize number of records to keep in memory for sorting. Must be >= 1.
+     * @param preSortedWriterFactory creates a writer for records that are in the sort order of the header, to the given path
+     *                               with the given header
+     */
+    public LocalSortingSAMFileWriter( final Path outputPath, final File referenceFile, final SAMFileHeader header, final int windowSize,
+                                      final Function<Path, SAMFileWriter> preSortedWriterFactory ) {
+        this.outputPath = Utils.nonNull(outputPath);
+        this.referenceFile = referenceFile;
+        this.header = Utils.nonNull(header);
+        Utils.validateArg(windowSize >= 1, "windowSize must be at least 1");
+        this.windowSize = windowSize;
+        this.preSortedWriterFactory = Utils.nonNull(preSortedWriterFactory);
+
+        // null if the output is unsorted, in which case records are written as they come
+        comparator = header.getSortOrder().getComparatorInstance();
+        window = comparator == null ? null : new PriorityQueue<>(windowSize + 1,
+                Comparator.<WindowEntry, SAMRecord>comparing(entry -> entry.record, comparator).thenComparingLong(entry -> entry.order));
+        writer = Utils.nonNull(preSortedWriterFactory.apply(outputPath), "preSortedWriterFactory returned a null writer");
+    }
+
+    /**
+     * @return true if some record was out of order by more than the window size, so that the output will be sorted on {@link #close}
+     */
+    public boolean isWindowExceeded() {
+        return outOfWindowRecords != null;
+    }
+
+    @Override
+    public void addAlignment( final SAMRecord alignment ) {
+        Utils.nonNull(alignment);
+        if ( comparator == null ) {
+            writer.addAlignment(alignment);
+        } else if ( outOfWindowRecords != null ) {
+            outOfWindowRecords.add(alignment);
+        } else if ( lastWrittenRecord != null && comparator.compare(alignment, lastWrittenRecord) < 0 ) {
+            startSortingRemainingRecords(alignment);
+            outOfWindowRecords.add(alignment);
+        } else {
+            window.add(new WindowEntry(alignment, numAddedRecords++));
+            if ( window.size() > windowSize ) {
+                writeFirstRecordInWindow();
+            }
+        }
+    }
+
+    @Override
+    public SAMFileHeader getFileHeader() {
+        return header;
+    }
+
+    @Override
+    public void setProgressLogger( final ProgressLoggerInterface progressLogger ) {
+        this.progressLogger = progressLogger;
+        writer.setProgressLogger(progressLogger);
+    }
+
+    @Override
+    public void close() {
+        if ( outOfWindowRecords == null ) {
+            while ( window != null && ! window.isEmpty() ) {
+                writeFirstRecordInWindow();
+            }
+            writer.close();
+        } else {
+            mergeSortedPrefixWithRemainingRecords();
+        }
+    }
+
+    private void writeFirstRecordInWindow() {
+        lastWrittenRecord = window.remove().record;
+        writer.addAlignment(lastWrittenRecord);
+    }
+
+    private void startSortingRemainingRecords( final SAMRecord outOfWindowRecord ) {
+        logger.warn(String.format("Record %s is out of order by more than %d records; all remaining records will be sorted before being written to %s",
+                outOfWindowRecord.getReadName(), windowSize, outputPath.toUri()));
+        outOfWindowRecords = SortingCollection.newInstance(SAMRecord.class, new BAMRecordCodec(header), comparator,
+                SAMFileWriterImpl.getDefaultMaxRecordsInRam());
+        while ( ! window.isEmpty() ) {
+            outOfWindowRecords.add(window.remove().record);
+        }
+    }
+
+    private void mergeSortedPrefixWithRemainingRecords() {
+        writer.close();
+        outOfWindowRecords.doneAdding();
+
+        final Path sortedPrefixPath = outputPath.resolveSibling(outputPath.getFileName() + ".sorted-prefix.tmp");
+        try {
+            Files.move(outputPath, sortedPrefixPath);
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotCreateOutputFile(outputPath.toUri().toString(), "Could not move the records written so far aside for sorting", e);
+        }
+
+        writer = Utils.nonNull(preSortedWriterFactory.apply(outputPath), "preSortedWriterFactory returned a null writer");
+        if ( progressLogger != null ) {
+            writer.setProgressLogger(progressLogger);
+        }
+        final SamReaderFactory readerFactory = SamReaderFactory.makeDefault().validationStringency(ValidationStringency.SILENT);
+        if ( referenceFile != null ) {
+            readerFactory.referenceSequence(referenceFile);
+        }
+        try ( final SamReader sortedPrefixReader = readerFactory.open(sortedPrefixPath);
+              final PeekableIterator<SAMRecord> sortedPrefix = new PeekableIterator<>(sortedPrefixReader.iterator());
+              final CloseableIterator<SAMRecord> remainingRecords = outOfWindowRecords.iterator() ) {
+            final PeekableIterator<SAMRecord> remaining = new PeekableIterator<>(remainingRecords);
+            while ( sortedPrefix.hasNext() || remaining.hasNext() ) {
+                final boolean takePrefix = ! remaining.hasNext() || (sortedPrefix.hasNext() && comparator.compare(sortedPrefix.peek(), remaining.peek()) <= 0);
+                writer.addAlignment(takePrefix ? sortedPrefix.next() : remaining.next());
+            }
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotReadInputFile(sortedPrefixPath, "Could not read back the records written so far", e);
+        } finally {
+            outOfWindowRecords.cleanup();
+        }
+        writer.close();
+
+        try {
+            Files.delete(sortedPrefixPath);
+        } catch ( final IOException e ) {
+            logger.warn("Could not delete temporary file " + sortedPrefixPath.toUri(), e);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package org.broadinstitute.hellbender.utils.read;
+
+import htsjdk.samtools.BAMIndexer;
+import htsjdk.samtools.BAMRecordCodec;
+import htsjdk.samtools.Defaults;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileWriterImpl;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordFileSpanSetter;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.util.BinaryCodec;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import htsjdk.samtools.util.IOUtil;
+import htsjdk.samtools.util.Md5CalculatingOutputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.ParallelBlockCompressedOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * A BAM writer whose BGZF blocks are compressed on a pool of threads by a {@link ParallelBlockCompressedOutputStream}.
+ *
+ * The records, header, index and MD5 written are byte-for-byte identical to those of the htsjdk BAM writer made by
+ * {@link htsjdk.samtools.SAMFileWriterFactory} with the default compression level and deflater. As with htsjdk, the
+ * index is built on the fly while the records are written; since the virtual file pointer of a record is only known
+ * once the blocks it spans have been compressed, records are handed to the {@link BAMIndexer} as soon as their blocks
+ * have been written, which keeps at most a few blocks' worth of records in memory.
+ *
+ * Records that are not already in the header's sort order are sorted by {@link SAMFileWriterImpl}, as in htsjdk.
+ */
+public final class ParallelBAMFileWriter extends SAMFileWriterImpl {
+
+    private static final Logger logger = LogManager.getLogger(ParallelBAMFileWriter.class);
+
+    private static final byte[] BAM_MAGIC = "BAM\1".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * A record that has been written but whose blocks may not have been compressed yet
+     */
+    private static final class PendingIndexEntry {
+        private final SAMRecord record;
+        private final long startBlock;
+        private final int startOffset;
+        private final long endBlock;
+        private final int endOffset;
+
+        private PendingIndexEntry( final SAMRecord record, final long startBlock, final int startOffset, final long endBlock, final int endOffset ) {
+            this.record = record;
+            this.startBlock = startBlock;
+            this.startOffset = startOffset;
+            this.endBlock = endBlock;
+            this.endOffset = endOffset;
+        }
+    }
+
+    private final String filename;
+    private final ParallelBlockCompressedOutputStream blockCompressedOutputStream;
+    private final BinaryCodec outputBinaryCodec;
+    private final BAMRecordCodec bamRecordCodec;
+    private final BAMIndexer bamIndexer;
+
+    // addresses of the written blocks that pending records start or end in (and the address of the next block)
+    private final Map<Long, Long> blockAddresses = new HashMap<>();
+    private long oldestAddressedBlock = 0;
+    private final Queue<PendingIndexEntry> pendingIndexEntries = new ArrayDeque<>();
+
+    /**
+     * @param outputPath BAM file to write
+     * @param header header of the output. Will not be modified.
+     * @param preSorted if true then the records must already be sorted to match the header sort order
+     * @param createIndex if true, and the header is coordinate sorted, build a BAM index along the output
+     * @param createMD5 if true, write an MD5 digest of the output along it
+     * @param numThreads number of compression threads. Must be >= 1.
+     */
+    public ParallelBAMFileWriter( final Path outputPath, final SAMFileHeader header, final boolean preSorted,
+                                  final boolean createIndex, final boolean createMD5, final int numThreads ) {
+        Utils.nonNull(outputPath);
+        Utils.nonNull(header);
+        Utils.validateArg(numThreads >= 1, "numThreads must be at least 1");
+        filename = outputPath.toUri().toString();
+
+        final boolean isRegularPath = IOUtil.isRegularPath(outputPath);
+        if ( createMD5 && ! isRegularPath ) {
+            logger.warn("Cannot create MD5 file for BAM because output file is not a regular file: " + filename);
+        }
+        if ( createIndex && ! isRegularPath ) {
+            logger.warn("Cannot create index for BAM because output file is not a regular file: " + filename);
+        }
+
+        OutputStream outputStream;
+        try {
+            outputStream = IOUtil.maybeBufferOutputStream(Files.newOutputStream(outputPath), Defaults.BUFFER_SIZE);
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotCreateOutputFile(filename, "Could not open BAM file for writing", e);
+        }
+        if ( createMD5 && isRegularPath ) {
+            outputStream = new Md5CalculatingOutputStream(outputStream, IOUtil.addExtension(outputPath, ".md5"));
+        }
+        blockCompressedOutputStream = new ParallelBlockCompressedOutputStream(outputStream,
+                BlockCompressedOutputStream.getDefaultCompressionLevel(), BlockCompressedOutputStream.getDefaultDeflaterFactory(),
+                numThreads, this::blockWritten);
+        outputBinaryCodec = new BinaryCodec(blockCompressedOutputStream);
+        outputBinaryCodec.setOutputFileName(filename);
+
+        setSortOrder(header.getSortOrder(), preSorted);
+        bamIndexer = createIndex && isRegularPath && header.getSortOrder() == SAMFileHeader.SortOrder.coordinate
+                ? new BAMIndexer(getIndexPath(outputPath), header) : null;
+        setHeader(header);
+        bamRecordCodec = new BAMRecordCodec(getFileHeader());
+        bamRecordCodec.setOutputStream(blockCompressedOutputStream, filename);
+    }
+
+    /**
+     * @return the BAM index path used by htsjdk for the given BAM: its .bam extension, if any, is replaced with .bai
+     */
+    static Path getIndexPath( final Path bamPath ) {
+        final String bamFileName = bamPath.getFileName().toString();
+        final String indexBase = bamFileName.endsWith(".bam") ? bamFileName.substring(0, bamFileName.lastIndexOf('.')) : bamFileName;
+        return bamPath.resolveSibling(indexBase + ".bai");
+    }
+
+    /**
+     * @return the BGZF virtual file pointer of the given offset within the uncompressed block at the given address
+     */
+    private static long makeFilePointer( final long blockAddress, final int blockOffset ) {
+        return blockAddress << 16 | blockOffset;
+    }
+
+    @Override
+    protected void writeHeader( final String textHeader ) {
+        outputBinaryCodec.writeBytes(BAM_MAGIC);
+        outputBinaryCodec.writeString(textHeader, true, false);
+        outputBinaryCodec.writeInt(getFileHeader().getSequenceDictionary().size());
+        for ( final SAMSequenceRecord sequenceRecord : getFileHeader().getSequenceDictionary().getSequences() ) {
+            outputBinaryCodec.writeString(sequenceRecord.getSequenceName(), true, true);
+            outputBinaryCodec.writeInt(sequenceRecord.getSequenceLength());
+        }
+    }
+
+    @Override
+    protected void writeAlignment( final SAMRecord alignment ) {
+        if ( bamIndexer == null ) {
+            bamRecordCodec.encode(alignment);
+            return;
+        }
+
+        final long startBlock = blockCompressedOutputStream.getBlockNumber();
+        final int startOffset = blockCompressedOutputStream.getBlockOffset();
+        bamRecordCodec.encode(alignment);
+        pendingIndexEntries.add(new PendingIndexEntry(alignment, startBlock, startOffset,
+                blockCompressedOutputStream.getBlockNumber(), blockCompressedOutputStream.getBlockOffset()));
+        indexWrittenRecords();
+    }
+
+    @Override
+    protected void finish() {
+        outputBinaryCodec.close();
+        if ( bamIndexer != null ) {
+            indexWrittenRecords();
+            Utils.validate(pendingIndexEntries.isEmpty(), "records left unindexed after all blocks were written");
+            bamIndexer.finish();
+        }
+    }
+
+    @Override
+    protected String getFilename() {
+        return filename;
+    }
+
+    private void blockWritten( final long blockNumber, final long blockAddress, final int compressedSize ) {
+        if ( bamIndexer != null ) {
+            blockAddresses.put(blockNumber, blockAddress);
+            blockAddresses.put(blockNumber + 1, blockAddress + compressedSize);
+        }
+    }
+
+    /**
+     * Hand the records whose blocks have all been written to the indexer, in the order they were written
+     */
+    private void indexWrittenRecords() {
+        while ( ! pendingIndexEntries.isEmpty() ) {
+            final PendingIndexEntry entry = pendingIndexEntries.peek();
+            final Long startAddress = blockAddresses.get(entry.startBlock);
+            final Long endAddress = blockAddresses.get(entry.endBlock);
+            if ( startAddress == null || endAddress == null ) {
+                break;
+            }
+            pendingIndexEntries.remove();
+            SAMRecordFileSpanSetter.setFileSpan(entry.record, makeFilePointer(startAddress, entry.startOffset), makeFilePointer(endAddress, entry.endOffset));
+            bamIndexer.processAlignment(entry.record);
+        }
+
+        // forget the addresses of blocks that no pending or future record can start in
+        final long oldestNeededBlock = pendingIndexEntries.isEmpty() ? blockCompressedOutputStream.getBlockNumber() : pendingIndexEntries.peek().startBlock;
+        while ( oldestAddressedBlock < oldestNeededBlock ) {
+            blockAddresses.remove(oldestAddressedBlock++);
+        }
+    }
+}
@@ -25,9 +25,11 @@ import org.broadinstitute.hellbender.utils.recalibration.covariates.Covariate;
 import org.broadinstitute.hellbender.utils.recalibration.covariates.CovariateKeyCache;
 import org.broadinstitute.hellbender.utils.recalibration.covariates.ReadCovariates;
 import org.broadinstitute.hellbender.utils.recalibration.covariates.StandardCovariateList;
+import org.broadinstitute.hellbender.utils.variant.KnownSitesImage;
 
 import java.io.Serializable;
 import java.util.Arrays;
+import java.util.function.Function;
 
 public final class BaseRecalibrationEngine implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -60,6 +62,14 @@ public final class BaseRecalibrationEngine implements Serializable {
 
     private RecalibrationArgumentCollection recalArgs;
 
+    /**
+     * Counts accumulated by processRead(). Converted into {@link #recalTables} by finalizeData().
+     */
+    private FlatRecalibrationTables flatRecalTables;
+
+    /**
+     * Null until finalizeData() has been called
+     */
     private RecalibrationTables recalTables;
 
     private SAMFileHeader readsHeader;
@@ -95,7 +105,7 @@ public final class BaseRecalibrationEngine implements Serializable {
         if ( numReadGroups < 1 ) {
             throw new UserException("Number of read groups must be >= 1, but is " + numReadGroups);
         }
-        recalTables = new RecalibrationTables(covariates, numReadGroups);
+        flatRecalTables = new FlatRecalibrationTables(covariates, numReadGroups);
         keyCache = new CovariateKeyCache();
         cachedEventTypes = recalArgs.computeIndelBQSRTables ? EventType.values() : new EventType[]{EventType.BASE_SUBSTITUTION};
     }
@@ -112,6 +122,18 @@ public final class BaseRecalibrationEngine implements Serializable {
      * whether or not the base matches the reference at this particular location
      */
     public void processRead( final GATKRead originalRead, final ReferenceDataSource refDS, final Iterable<? extends Locatable> knownSites ) {
+        processRead(originalRead, refDS, read -> calculateKnownSites(read, knownSites));
+    }
+
+    /**
+     * As {@link #processRead(GATKRead, ReferenceDataSource, Iterable)}, but queries the known sites overlapping the read
+     * straight from a {@link KnownSitesImage}, without creating an object for each of them.
+     */
+    public void processRead( final GATKRead originalRead, final ReferenceDataSource refDS, final KnownSitesImage knownSites ) {
+        processRead(originalRead, refDS, read -> calculateKnownSites(read, knownSites));
+    }
+
+    private void processRead( final GATKRead originalRead, final ReferenceDataSource refDS, final Function<GATKRead, boolean[]> knownSitesCalculator ) {
         final ReadTransformer transform = makeReadTransform();
         final GATKRead read = transform.apply(originalRead);
 
@@ -134,7 +156,7 @@ public final class BaseRecalibrationEngine implements Serializable {
 
         if( baqArray != null ) { // some reads just can't be BAQ'ed
             final ReadCovariates covariates = RecalUtils.computeCovariates(read, readsHeader, this.covariates, true, keyCache);
-            final boolean[] skip = calculateSkipArray(read, knownSites); // skip known sites of variation as well as low quality and non-regular bases
+            final boolean[] skip = calculateSkipArray(read, knownSitesCalculator.apply(read)); // skip known sites of variation as well as low quality and non-regular bases
             final double[] snpErrors = calculateFractionalErrorArray(isSNP, baqArray);
             final double[] insertionErrors = calculateFractionalErrorArray(isInsertion, baqArray);
             final double[] deletionErrors = calculateFractionalErrorArray(isDeletion, baqArray);
@@ -147,6 +169,19 @@ public final class BaseRecalibrationEngine implements Serializable {
         numReadsProcessed++;
     }
 
+    /**
+     * Add the data collected by another engine to the data collected by this engine, to deal with
+     * multi-threaded execution. The other engine is not modified.
+     *
+     * Must be called before finalizeData() has been called on either engine.
+     */
+    public void combine( final BaseRecalibrationEngine other ) {
+        Utils.nonNull(other);
+        Utils.validate(!finalized && !other.finalized, "Cannot combine engines after finalizeData() has been called");
+        flatRecalTables.combine(other.flatRecalTables);
+        numReadsProcessed += other.numReadsProcessed;
+    }
+
     /**
      * Finalize, if appropriate, all derived data in recalibrationTables.
      *
@@ -157,6 +192,7 @@ public final class BaseRecalibrationEngine implements Serializable {
      */
     public void finalizeData() {
         Utils.validate(!finalized, "FinalizeData() has already been called");
+        recalTables = flatRecalTables.toRecalibrationTables();
         finalizeRecalibrationTables(recalTables);
         finalized = true;
     }
@@ -208,9 +244,22 @@ public final class BaseRecalibrationEngine implements Serializable {
 
     /**
      * Get a possibly not-final recalibration table, to deal with distributed execution.
+     *
+     * Before finalizeData() has been called, this returns a newly allocated copy of the data collected so far.
+     * Use {@link #getFlatRecalibrationTables()} to avoid the copy when merging data from several engines.
      */
     public RecalibrationTables getRecalibrationTables() {
-        return recalTables;
+        return finalized ? recalTables : flatRecalTables.toRecalibrationTables();
+    }
+
+    /**
+     * Get the (not finalized) counts collected by this engine, to deal with distributed execution.
+     * These can be merged with the counts from other engines using {@link FlatRecalibrationTables#combine},
+     * and turned into recalibration tables with {@link FlatRecalibrationTables#toRecalibrationTables()}
+     * followed by {@link #finalizeRecalibrationTables}.
+     */
+    public FlatRecalibrationTables getFlatRecalibrationTables() {
+        return flatRecalTables;
     }
 
     /**
@@ -244,7 +293,6 @@ public final class BaseRecalibrationEngine implements Serializable {
 
         final GATKRead read = recalInfo.getRead();
         final ReadCovariates readCovariates = recalInfo.getCovariatesValues();
-        final NestedIntegerArray<RecalDatum> qualityScoreTable = recalTables.getQualityScoreTable();
 
         final int nCovariates = covariates.size();
         final int nSpecialCovariates = covariates.numberOfSpecialCovariates();
@@ -255,18 +303,18 @@ public final class BaseRecalibrationEngine implements Serializable {
                     final EventType eventType = cachedEventTypes[idx];
                     final int[] keys = readCovariates.getKeySet(offset, eventType);
                     final int eventIndex = eventType.ordinal();
-                    final byte qual = recalInfo.getQual(eventType, offset);
                     final double isError = recalInfo.getErrorFraction(eventType, offset);
 
                     final int key0 = keys[0];
                     final int key1 = keys[1];
 
-                    RecalUtils.incrementDatumOrPutIfNecessary3keys(qualityScoreTable, qual, isError, key0, key1, eventIndex);
+                    // the reported quality of each entry is its quality score key (key1), so we don't need to record it
+                    flatRecalTables.increment(isError, key0, key1, eventIndex);
 
                     for (int i = nSpecialCovariates; i < nCovariates; i++) {
                         final int keyi = keys[i];
                         if (keyi >= 0) {
-                            RecalUtils.incrementDatumOrPutIfNecessary4keys(recalTables.getTable(i), qual, isError, key0, key1, keyi, eventIndex);
+                            flatRecalTables.increment(i, isError, key0, key1, keyi, eventIndex);
                         }
                     }
                 }
@@ -316,10 +364,9 @@ public final class BaseRecalibrationEngine implements Serializable {
         return read;
     }
 
-    private boolean[] calculateSkipArray( final GATKRead read, final Iterable<? extends Locatable> knownSites ) {
+    private boolean[] calculateSkipArray( final GATKRead read, final boolean[] knownSitesArray ) {
         final int readLength = read.getLength();
         final boolean[] skip = new boolean[readLength];
-        final boolean[] knownSitesArray = calculateKnownSites(read, knownSites);
         for(int i = 0; i < readLength; i++ ) {
             skip[i] = !BaseUtils.isRegularBase(read.getBase(i)) || read.getBaseQuality(i) < recalArgs.PRESERVE_QSCORES_LESS_THAN || knownSitesArray[i];
         }
@@ -337,23 +384,38 @@ public final class BaseRecalibrationEngine implements Serializable {
                 // knownSite is outside clipping window for the read, ignore
                 continue;
             }
-            int featureStartOnRead = ReadUtils.getReadCoordinateForReferenceCoordinate(softStart, cigar, knownSite.getStart(), ReadUtils.ClippingTail.LEFT_TAIL, true);
-            if( featureStartOnRead == ReadUtils.CLIPPING_GOAL_NOT_REACHED ) {
-                featureStartOnRead = 0;
-            }
+            markKnownSite(knownSitesArray, cigar, softStart, knownSite.getStart(), knownSite.getEnd());
+        }
+        return knownSitesArray;
+    }
 
-            int featureEndOnRead = ReadUtils.getReadCoordinateForReferenceCoordinate(softStart, cigar, knownSite.getEnd(), ReadUtils.ClippingTail.LEFT_TAIL, true);
-            if( featureEndOnRead == ReadUtils.CLIPPING_GOAL_NOT_REACHED ) {
-                featureEndOnRead = readLength;
-            }
+    protected boolean[] calculateKnownSites( final GATKRead read, final KnownSitesImage knownSites ) {
+        final boolean[] knownSitesArray = new boolean[read.getLength()];//initializes to all false
+        final Cigar cigar = read.getCigar();
+        final int softStart = read.getSoftStart();
+        // only sites that overlap the clipping window of the read are returned
+        knownSites.forEachOverlapping(read.getContig(), softStart, read.getSoftEnd(),
+                (start, end, isSnp, isIndel) -> markKnownSite(knownSitesArray, cigar, softStart, start, end));
+        return knownSitesArray;
+    }
 
-            if( featureStartOnRead > readLength ) {
-                featureStartOnRead = featureEndOnRead = readLength;
-            }
+    private static void markKnownSite( final boolean[] knownSitesArray, final Cigar cigar, final int softStart, final int siteStart, final int siteEnd ) {
+        final int readLength = knownSitesArray.length;
+        int featureStartOnRead = ReadUtils.getReadCoordinateForReferenceCoordinate(softStart, cigar, siteStart, ReadUtils.ClippingTail.LEFT_TAIL, true);
+        if( featureStartOnRead == ReadUtils.CLIPPING_GOAL_NOT_REACHED ) {
+            featureStartOnRead = 0;
+        }
 
-            Arrays.fill(knownSitesArray, Math.max(0, featureStartOnRead), Math.min(readLength, featureEndOnRead + 1), true);
+        int featureEndOnRead = ReadUtils.getReadCoordinateForReferenceCoordinate(softStart, cigar, siteEnd, ReadUtils.ClippingTail.LEFT_TAIL, true);
+        if( featureEndOnRead == ReadUtils.CLIPPING_GOAL_NOT_REACHED ) {
+            featureEndOnRead = readLength;
         }
-        return knownSitesArray;
+
+        if( featureStartOnRead > readLength ) {
+            featureStartOnRead = featureEndOnRead = readLength;
+        }
+
+        Arrays.fill(knownSitesArray, Math.max(0, featureStartOnRead), Math.min(readLength, featureEndOnRead + 1), true);
     }
 
     /**
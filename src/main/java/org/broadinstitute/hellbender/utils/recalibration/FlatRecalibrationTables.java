@@ -0,0 +1,318 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
+import org.broadinstitute.hellbender.utils.recalibration.covariates.Covariate;
+import org.broadinstitute.hellbender.utils.recalibration.covariates.StandardCovariateList;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Primitive-array counterpart of {@link RecalibrationTables}, used to accumulate recalibration data.
+ *
+ * Tables are indexed in the same way as in {@link RecalibrationTables}: table {@link #QUALITY_SCORE_TABLE_INDEX} is
+ * keyed by read group x quality score x event type, and each additional covariate table is keyed by
+ * read group x quality score x covariate value x event type. Instead of one {@link RecalDatum} object per
+ * combination of keys, each table stores the number of observations and the (scaled) number of mismatches in parallel
+ * {@code long[]}/{@code double[]} blocks, one block per combination of all but the last two keys. Blocks are allocated
+ * the first time one of their entries is incremented, so unused read group/quality score combinations cost nothing.
+ *
+ * The read group table is not stored here, since it is derived from the quality score table by
+ * {@link BaseRecalibrationEngine#finalizeRecalibrationTables}. Likewise, the reported quality of every entry is
+ * implied by its quality score key. Use {@link #toRecalibrationTables()} to obtain the equivalent {@link RecalibrationTables}.
+ *
+ * The {@code increment} methods are not thread-safe, and are meant for tables owned by a single thread, which can
+ * be merged cheaply afterwards using {@link #combine} (element-wise addition of the blocks). Tables that must be shared
+ * between threads can be updated with the {@code synchronizedIncrement} methods instead, which lock one of a fixed
+ * set of lock stripes chosen by block.
+ */
+public final class FlatRecalibrationTables implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final int READ_GROUP_TABLE_INDEX = 0;
+    public static final int QUALITY_SCORE_TABLE_INDEX = 1;
+
+    private static final int NUM_LOCK_STRIPES = 64;
+    private static final Object[] LOCK_STRIPES = new Object[NUM_LOCK_STRIPES];
+    static {
+        for ( int i = 0; i < NUM_LOCK_STRIPES; i++ ) {
+            LOCK_STRIPES[i] = new Object();
+        }
+    }
+
+    private final StandardCovariateList covariates;
+    private final int numReadGroups;
+
+    /**
+     * Indexed like {@link RecalibrationTables#getTable(int)}. The entry at {@link #READ_GROUP_TABLE_INDEX} is always null.
+     */
+    private final Table[] tables;
+
+    /**
+     * One table of counts, keyed by 3 or 4 keys
+     */
+    private static final class Table implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] dimensions;
+        private final int blockLength;
+        private final long[][] numObservations;
+        private final double[][] scaledNumMismatches;
+
+        private Table( final int... dimensions ) {
+            this.dimensions = dimensions;
+            final int numDimensions = dimensions.length;
+            int numBlocks = 1;
+            for ( int i = 0; i < numDimensions - 2; i++ ) {
+                numBlocks *= dimensions[i];
+            }
+            blockLength = dimensions[numDimensions - 2] * dimensions[numDimensions - 1];
+            numObservations = new long[numBlocks][];
+            scaledNumMismatches = new double[numBlocks][];
+        }
+
+        private void checkKey( final int key, final int dimension ) {
+            if ( key < 0 || key >= dimensions[dimension] ) {
+                throw new IllegalArgumentException("Key " + key + " is out of range for dimension " + dimension + " (max is " + (dimensions[dimension] - 1) + ")");
+            }
+        }
+
+        private int blockIndex( final int key0 ) {
+            checkKey(key0, 0);
+            return key0;
+        }
+
+        private int blockIndex( final int key0, final int key1 ) {
+            checkKey(key0, 0);
+            checkKey(key1, 1);
+            return key0 * dimensions[1] + key1;
+        }
+
+        private int cellIndex( final int keyA, final int keyB ) {
+            final int numDimensions = dimensions.length;
+            checkKey(keyA, numDimensions - 2);
+            checkKey(keyB, numDimensions - 1);
+            return keyA * dimensions[numDimensions - 1] + keyB;
+        }
+
+        private void increment( final int block, final int cell, final double isError ) {
+            if ( numObservations[block] == null ) {
+                numObservations[block] = new long[blockLength];
+                scaledNumMismatches[block] = new double[blockLength];
+            }
+            numObservations[block][cell]++;
+            scaledNumMismatches[block][cell] += isError * RecalDatum.MULTIPLIER;
+        }
+
+        private void add( final Table other ) {
+            Utils.validateArg(Arrays.equals(dimensions, other.dimensions), "Attempting to merge tables with different dimensions");
+            for ( int block = 0; block < numObservations.length; block++ ) {
+                final long[] otherObservations = other.numObservations[block];
+                if ( otherObservations == null ) {
+                    continue;
+                }
+                final double[] otherMismatches = other.scaledNumMismatches[block];
+                if ( numObservations[block] == null ) {
+                    numObservations[block] = otherObservations.clone();
+                    scaledNumMismatches[block] = otherMismatches.clone();
+                } else {
+                    final long[] myObservations = numObservations[block];
+                    final double[] myMismatches = scaledNumMismatches[block];
+                    for ( int cell = 0; cell < blockLength; cell++ ) {
+                        myObservations[cell] += otherObservations[cell];
+                        myMismatches[cell] += otherMismatches[cell];
+                    }
+                }
+            }
+        }
+
+        /**
+         * Put a RecalDatum into the given NestedIntegerArray for every entry with at least one observation
+         */
+        private void copyTo( final NestedIntegerArray<RecalDatum> target ) {
+            final int numDimensions = dimensions.length;
+            final int lastDimension = dimensions[numDimensions - 1];
+            for ( int block = 0; block < numObservations.length; block++ ) {
+                final long[] observations = numObservations[block];
+                if ( observations == null ) {
+                    continue;
+                }
+                for ( int cell = 0; cell < blockLength; cell++ ) {
+                    if ( observations[cell] == 0 ) {
+                        continue;
+                    }
+                    final int[] keys = new int[numDimensions];
+                    keys[numDimensions - 2] = cell / lastDimension;
+                    keys[numDimensions - 1] = cell % lastDimension;
+                    if ( numDimensions == 4 ) {
+                        keys[0] = block / dimensions[1];
+                        keys[1] = block % dimensions[1];
+                    } else {
+                        keys[0] = block;
+                    }
+                    // the quality score key is always the second key, and is the reported quality of the entry
+                    target.put(RecalDatum.fromScaledNumMismatches(observations[cell], scaledNumMismatches[block][cell], (byte)keys[1]), keys);
+                }
+            }
+        }
+    }
+
+    /**
+     * Create empty tables with the same dimensions as {@code new RecalibrationTables(covariates)}
+     *
+     * @param covariates covariates to create tables for
+     */
+    public FlatRecalibrationTables( final StandardCovariateList covariates ) {
+        this(covariates, covariates.getReadGroupCovariate().maximumKeyValue() + 1);
+    }
+
+    /**
+     * Create empty tables with the same dimensions as {@code new RecalibrationTables(covariates, numReadGroups)}
+     *
+     * @param covariates covariates to create tables for
+     * @param numReadGroups number of read groups. Must be >= 1.
+     */
+    public FlatRecalibrationTables( final StandardCovariateList covariates, final int numReadGroups ) {
+        this.covariates = Utils.nonNull(covariates);
+        Utils.validateArg(numReadGroups >= 1, "numReadGroups must be >= 1");
+        this.numReadGroups = numReadGroups;
+
+        final int qualDimension = covariates.getQualityScoreCovariate().maximumKeyValue() + 1;
+        final int eventDimension = EventType.values().length;
+
+        tables = new Table[covariates.size()];
+        tables[QUALITY_SCORE_TABLE_INDEX] = new Table(numReadGroups, qualDimension, eventDimension);
+        int tableIndex = QUALITY_SCORE_TABLE_INDEX + 1;
+        for ( final Covariate cov : covariates.getAdditionalCovariates() ) {
+            tables[tableIndex++] = new Table(numReadGroups, qualDimension, cov.maximumKeyValue() + 1, eventDimension);
+        }
+    }
+
+    /**
+     * @return number of tables, including the read group table
+     */
+    public int numTables() {
+        return tables.length;
+    }
+
+    /**
+     * Record one observation in the quality score table
+     *
+     * @param isError error value for this observation, between 0.0 and 1.0
+     * @param key0 read group key
+     * @param key1 quality score key
+     * @param key2 event type index
+     */
+    public void increment( final double isError, final int key0, final int key1, final int key2 ) {
+        final Table table = tables[QUALITY_SCORE_TABLE_INDEX];
+        table.increment(table.blockIndex(key0), table.cellIndex(key1, key2), isError);
+    }
+
+    /**
+     * Record one observation in an additional covariate table
+     *
+     * @param tableIndex index of the table, as in {@link RecalibrationTables#getTable(int)}. Must be an additional covariate table.
+     * @param isError error value for this observation, between 0.0 and 1.0
+     * @param key0 read group key
+     * @param key1 quality score key
+     * @param key2 covariate key
+     * @param key3 event type index
+     */
+    public void increment( final int tableIndex, final double isError, final int key0, final int key1, final int key2, final int key3 ) {
+        final Table table = getAdditionalTable(tableIndex);
+        table.increment(table.blockIndex(key0, key1), table.cellIndex(key2, key3), isError);
+    }
+
+    /**
+     * Thread-safe version of {@link #increment(double, int, int, int)}
+     */
+    public void synchronizedIncrement( final double isError, final int key0, final int key1, final int key2 ) {
+        final Table table = tables[QUALITY_SCORE_TABLE_INDEX];
+        final int block = table.blockIndex(key0);
+        final int cell = table.cellIndex(key1, key2);
+        synchronized ( lockFor(QUALITY_SCORE_TABLE_INDEX, block) ) {
+            table.increment(block, cell, isError);
+        }
+    }
+
+    /**
+     * Thread-safe version of {@link #increment(int, double, int, int, int, int)}
+     */
+    public void synchronizedIncrement( final int tableIndex, final double isError, final int key0, final int key1, final int key2, final int key3 ) {
+        final Table table = getAdditionalTable(tableIndex);
+        final int block = table.blockIndex(key0, key1);
+        final int cell = table.cellIndex(key2, key3);
+        synchronized ( lockFor(tableIndex, block) ) {
+            table.increment(block, cell, isError);
+        }
+    }
+
+    private Table getAdditionalTable( final int tableIndex ) {
+        if ( tableIndex <= QUALITY_SCORE_TABLE_INDEX || tableIndex >= tables.length ) {
+            throw new IllegalArgumentException("Table index " + tableIndex + " is not the index of an additional covariate table");
+        }
+        return tables[tableIndex];
+    }
+
+    private static Object lockFor( final int tableIndex, final int block ) {
+        return LOCK_STRIPES[(block * 31 + tableIndex) & (NUM_LOCK_STRIPES - 1)];
+    }
+
+    /**
+     * Add all of the counts in toMerge into this set of tables. toMerge is not modified.
+     *
+     * Not thread-safe: no other thread may update either set of tables during the merge.
+     */
+    public FlatRecalibrationTables combine( final FlatRecalibrationTables toMerge ) {
+        Utils.nonNull(toMerge);
+        Utils.validateArg(numTables() == toMerge.numTables() && numReadGroups == toMerge.numReadGroups,
+                "Attempting to merge FlatRecalibrationTables with different sizes");
+
+        for ( int i = QUALITY_SCORE_TABLE_INDEX; i < tables.length; i++ ) {
+            tables[i].add(toMerge.tables[i]);
+        }
+        return this;
+    }
+
+    /**
+     * Combines the right tables into the left tables, in-place (without making a copy)
+     *
+     * @param left first tables to combine
+     * @param right second tables to combine
+     * @return modified version of left with the contents of right incorporated into it
+     */
+    public static FlatRecalibrationTables inPlaceCombine( final FlatRecalibrationTables left, final FlatRecalibrationTables right ) {
+        Utils.nonNull(left);
+        return left.combine(right);
+    }
+
+    /**
+     * @return true if no observations have been recorded in these tables
+     */
+    public boolean isEmpty() {
+        for ( int i = QUALITY_SCORE_TABLE_INDEX; i < tables.length; i++ ) {
+            for ( final long[] block : tables[i].numObservations ) {
+                if ( block != null ) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Create RecalibrationTables holding one {@link RecalDatum} for every entry of these tables that has at least
+     * one observation. The read group table of the result is empty; it is filled in by
+     * {@link BaseRecalibrationEngine#finalizeRecalibrationTables}.
+     *
+     * @return newly allocated RecalibrationTables with the contents of these tables
+     */
+    public RecalibrationTables toRecalibrationTables() {
+        final RecalibrationTables result = new RecalibrationTables(covariates, numReadGroups);
+        for ( int i = QUALITY_SCORE_TABLE_INDEX; i < tables.length; i++ ) {
+            tables[i].copyTo(result.getTable(i));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,102 @@
+package org.broadinstitute.hellbender.utils.runtime;
+
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Times the phases of GATK startup (configuration, tool discovery, argument parsing, engine initialization) and
+ * reports them once the tool is about to start its work, to help find where short tool invocations spend their time.
+ * <p>
+ * Timing is off unless the system property or environment variable {@link #REPORT_STARTUP_TIMES_PROPERTY} is set to
+ * true (--java-options '-DGATK_REPORT_STARTUP_TIMES=true'), in which case the report is printed to stderr.
+ */
+public final class StartupTimer {
+
+    public static final String REPORT_STARTUP_TIMES_PROPERTY = "GATK_REPORT_STARTUP_TIMES";
+
+    // uptime when this class was initialized, which is close to when Main started
+    private static final long JVM_STARTUP_MILLIS = ManagementFactory.getRuntimeMXBean().getUptime();
+
+    private static final StartupTimer INSTANCE = new StartupTimer(
+            "true".equals(System.getenv(REPORT_STARTUP_TIMES_PROPERTY)) || Boolean.getBoolean(REPORT_STARTUP_TIMES_PROPERTY));
+
+    private final boolean enabled;
+    private final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+    private String currentPhase = null;
+    private long currentPhaseStart;
+    private boolean reportedJvmStartup = false;
+
+    StartupTimer(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return the timer shared by {@link org.broadinstitute.hellbender.Main} and the command line programs it runs
+     */
+    public static StartupTimer getInstance() {
+        return INSTANCE;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Ends the current phase, if any, and starts timing the given one. Does nothing if timing is off.
+     */
+    public void startPhase(final String phase) {
+        Utils.nonNull(phase, "phase");
+        if (!enabled) {
+            return;
+        }
+        endPhase();
+        currentPhase = phase;
+        currentPhaseStart = System.nanoTime();
+    }
+
+    /**
+     * Ends the current phase, if any. Does nothing if timing is off.
+     */
+    public void endPhase() {
+        if (!enabled || currentPhase == null) {
+            return;
+        }
+        phaseNanos.merge(currentPhase, System.nanoTime() - currentPhaseStart, Long::sum);
+        currentPhase = null;
+    }
+
+    /**
+     * @return the time spent in each of the phases ended since the last report, in the order they were first started
+     */
+    public Map<String, Long> getPhaseNanos() {
+        return new LinkedHashMap<>(phaseNanos);
+    }
+
+    /**
+     * Ends the current phase, prints the time spent in each phase since the last report (preceded, the first time,
+     * by the time the JVM took to get to GATK) and starts over. Does nothing if timing is off.
+     */
+    public void report(final PrintStream out) {
+        Utils.nonNull(out, "stream");
+        if (!enabled) {
+            return;
+        }
+        endPhase();
+        out.println("Startup times:");
+        if (!reportedJvmStartup) {
+            out.println(String.format("  %-30s %10.3f s", "JVM startup", JVM_STARTUP_MILLIS / 1e3));
+            reportedJvmStartup = true;
+        }
+        long totalNanos = 0;
+        for (final Map.Entry<String, Long> phase : phaseNanos.entrySet()) {
+            out.println(String.format("  %-30s %10.3f s", phase.getKey(), phase.getValue() / 1e9));
+            totalNanos += phase.getValue();
+        }
+        out.println(String.format("  %-30s %10.3f s", "Total (excluding JVM startup)", totalNanos / 1e9));
+        phaseNanos.clear();
+    }
+}
@@ -0,0 +1,59 @@
+package org.broadinstitute.hellbender.utils.spark;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.spark.executor.TaskMetrics;
+import org.apache.spark.scheduler.SparkListener;
+import org.apache.spark.scheduler.SparkListenerStageCompleted;
+import org.apache.spark.scheduler.StageInfo;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Spark listener that logs how many bytes each completed stage wrote to and read from the shuffle, and keeps the
+ * totals, so that tools can report how much of their data went through shuffles.
+ *
+ * Register it with {@code ctx.sc().addSparkListener(listener)} before running the jobs to measure.
+ */
+public final class ShuffleBytesListener extends SparkListener {
+    private static final Logger logger = LogManager.getLogger(ShuffleBytesListener.class);
+
+    private final AtomicLong totalBytesWritten = new AtomicLong();
+    private final AtomicLong totalBytesRead = new AtomicLong();
+
+    @Override
+    public void onStageCompleted(final SparkListenerStageCompleted stageCompleted) {
+        final StageInfo stageInfo = stageCompleted.stageInfo();
+        final TaskMetrics metrics = stageInfo.taskMetrics();
+        if (metrics == null) {
+            return;
+        }
+        final long bytesWritten = metrics.shuffleWriteMetrics().bytesWritten();
+        final long bytesRead = metrics.shuffleReadMetrics().totalBytesRead();
+        totalBytesWritten.addAndGet(bytesWritten);
+        totalBytesRead.addAndGet(bytesRead);
+        logger.info(String.format("Stage %d (%s): %d shuffle bytes written, %d shuffle bytes read (%d remote)",
+                stageInfo.stageId(), stageInfo.name(), bytesWritten, bytesRead, metrics.shuffleReadMetrics().remoteBytesRead()));
+    }
+
+    /**
+     * @return the number of bytes written to the shuffle by the stages completed so far
+     */
+    public long getTotalBytesWritten() {
+        return totalBytesWritten.get();
+    }
+
+    /**
+     * @return the number of bytes read from the shuffle by the stages completed so far
+     */
+    public long getTotalBytesRead() {
+        return totalBytesRead.get();
+    }
+
+    /**
+     * Logs the totals of the stages completed so far
+     */
+    public void logTotals() {
+        logger.info(String.format("Total: %d shuffle bytes written, %d shuffle bytes read", getTotalBytesWritten(), getTotalBytesRead()));
+    }
+}
@@ -0,0 +1,451 @@
+package org.broadinstitute.hellbender.utils.variant;
+
+import it.unimi.dsi.fastutil.bytes.ByteArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Known sites of variation (such as dbSNP) held as sorted primitive arrays, with an efficient operation to find the
+ * sites that overlap a given interval without creating an object for each site.
+ *
+ * <p>An image is either built in memory with a {@link Builder}, or memory-mapped from a file written by
+ * {@link #write(String)}. Mapping a file costs next to nothing, and every JVM on a node that maps the same local file
+ * shares a single copy of it in the page cache, so a known sites file only has to be parsed once, when its image is
+ * created (see {@link org.broadinstitute.hellbender.tools.KnownSitesImageCreator}).</p>
+ *
+ * <p>The sites of each contig are sorted by start, and indexed as an implicit interval tree (as in Heng Li's cgranges):
+ * the sites are the nodes of a binary tree laid out in order in the arrays, and each node holds the largest end of
+ * its subtree. Queries take O(log n + k) time for k overlapping sites, however long the longest site is.</p>
+ *
+ * <p>File layout (little-endian): a {@value #HEADER_BYTES}-byte header with a magic number, the format version, the
+ * number of contigs and the size of the contig table; the contig table, which has the name, number of sites, tree
+ * height and data offset of each contig; and then, for each contig, its site starts, site ends and subtree ends
+ * (as ints) and site flags (as bytes). Each contig is mapped separately, so it may have up to
+ * {@value #MAX_SITES_PER_CONTIG} sites.</p>
+ */
+public final class KnownSitesImage {
+
+    /**
+     * Extension of known sites image files
+     */
+    public static final String FILE_EXTENSION = ".sites";
+
+    static final long MAGIC = 0x4741_544B_4B53_4931L; // "GATKKSI1"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 24;
+
+    // a MappedByteBuffer can't be larger than 2GB
+    static final int MAX_SITES_PER_CONTIG = Integer.MAX_VALUE / (3 * Integer.BYTES + 1);
+
+    private static final byte SNP_FLAG = 1;
+    private static final byte INDEL_FLAG = 2;
+
+    // the tree traversal keeps at most 2 nodes per level on its stack
+    private static final int MAX_STACK_SIZE = 64;
+
+    /**
+     * Receives sites found by {@link #forEachOverlapping}
+     */
+    @FunctionalInterface
+    public interface SiteConsumer {
+        void accept(int start, int end, boolean isSnp, boolean isIndel);
+    }
+
+    private final Map<String, ContigSites> contigs;
+    private final long numSites;
+
+    private KnownSitesImage(final Map<String, ContigSites> contigs) {
+        this.contigs = contigs;
+        this.numSites = contigs.values().stream().mapToLong(sites -> sites.numSites).sum();
+    }
+
+    /**
+     * @return true if path names a known sites image (rather than, e.g., a VCF)
+     */
+    public static boolean isImage(final String path) {
+        return Utils.nonNull(path).endsWith(FILE_EXTENSION);
+    }
+
+    /**
+     * Maps the image in a local file
+     */
+    public static KnownSitesImage map(final String path) {
+        final Path filePath = Paths.get(path);
+        try (final FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new UserException.MalformedFile(filePath.toFile(), "Not a known sites image: the file is too short");
+            }
+            final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getLong(0) != MAGIC) {
+                throw new UserException.MalformedFile(filePath.toFile(), "Not a known sites image: bad magic number");
+            }
+            if (header.getInt(8) != VERSION) {
+                throw new UserException.MalformedFile(filePath.toFile(), "Unsupported known sites image version " + header.getInt(8));
+            }
+            final int numContigs = header.getInt(12);
+            final int contigTableBytes = header.getInt(16);
+            if (numContigs < 0 || contigTableBytes < 0 || channel.size() < HEADER_BYTES + (long) contigTableBytes) {
+                throw new UserException.MalformedFile(filePath.toFile(), "Known sites image is truncated or corrupt");
+            }
+
+            final ByteBuffer contigTable = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, contigTableBytes).order(ByteOrder.LITTLE_ENDIAN);
+            final Map<String, ContigSites> contigs = new LinkedHashMap<>(numContigs * 2);
+            for (int i = 0; i < numContigs; i++) {
+                final byte[] name = new byte[contigTable.getInt()];
+                contigTable.get(name);
+                final int numSites = contigTable.getInt();
+                final int treeHeight = contigTable.getInt();
+                final long dataOffset = contigTable.getLong();
+                if (numSites <= 0 || numSites > MAX_SITES_PER_CONTIG || dataOffset + dataBytes(numSites) > channel.size()) {
+                    throw new UserException.MalformedFile(filePath.toFile(), "Known sites image is truncated or corrupt");
+                }
+                final ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset, dataBytes(numSites));
+                final int intsBytes = numSites * Integer.BYTES;
+                contigs.put(new String(name, StandardCharsets.UTF_8), new ContigSites(
+                        slice(data, 0, intsBytes).asIntBuffer(),
+                        slice(data, intsBytes, intsBytes).asIntBuffer(),
+                        slice(data, 2 * intsBytes, intsBytes).asIntBuffer(),
+                        slice(data, 3 * intsBytes, numSites),
+                        numSites, treeHeight));
+            }
+            return new KnownSitesImage(contigs);
+        } catch (final IOException e) {
+            throw new UserException.CouldNotReadInputFile(filePath, e);
+        }
+    }
+
+    /**
+     * Writes the image to a local file, which can then be opened with {@link #map(String)}
+     */
+    public void write(final String path) {
+        final List<byte[]> names = new ArrayList<>(contigs.size());
+        int contigTableBytes = 0;
+        for (final String contig : contigs.keySet()) {
+            final byte[] name = contig.getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            contigTableBytes += Integer.BYTES + name.length + 2 * Integer.BYTES + Long.BYTES;
+        }
+
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + contigTableBytes).order(ByteOrder.LITTLE_ENDIAN);
+        header.putLong(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(contigs.size());
+        header.putInt(contigTableBytes);
+        header.putInt(0);
+        long dataOffset = align(header.capacity());
+        int contigIndex = 0;
+        for (final ContigSites sites : contigs.values()) {
+            final byte[] name = names.get(contigIndex++);
+            header.putInt(name.length);
+            header.put(name);
+            header.putInt(sites.numSites);
+            header.putInt(sites.treeHeight);
+            header.putLong(dataOffset);
+            dataOffset = align(dataOffset + dataBytes(sites.numSites));
+        }
+        header.flip();
+
+        final Path filePath = Paths.get(path);
+        try (final FileChannel channel = FileChannel.open(filePath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, header, 0);
+            final ByteBuffer staging = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            long position = align(header.limit());
+            for (final ContigSites sites : contigs.values()) {
+                position = writeInts(channel, staging, sites.starts, sites.numSites, position);
+                position = writeInts(channel, staging, sites.ends, sites.numSites, position);
+                position = writeInts(channel, staging, sites.subtreeEnds, sites.numSites, position);
+                for (int i = 0; i < sites.numSites; i++) {
+                    if (!staging.hasRemaining()) {
+                        position = flush(channel, staging, position);
+                    }
+                    staging.put(sites.flags.get(i));
+                }
+                position = align(flush(channel, staging, position));
+            }
+            channel.force(false);
+        } catch (final IOException e) {
+            throw new UserException.CouldNotCreateOutputFile(path, "Could not write the known sites image", e);
+        }
+    }
+
+    /**
+     * @return the number of sites
+     */
+    public long size() {
+        return numSites;
+    }
+
+    /**
+     * Calls consumer on every site that overlaps the interval from start to end (1-based, inclusive) of contig, in
+     * order of start. Creates no objects besides a small stack for the traversal.
+     */
+    public void forEachOverlapping(final String contig, final int start, final int end, final SiteConsumer consumer) {
+        Utils.nonNull(consumer);
+        final ContigSites sites = contigs.get(contig);
+        if (sites != null) {
+            sites.forEachOverlapping(start, end, consumer);
+        }
+    }
+
+    /**
+     * Returns a {@link GATKVariant} for each site that overlaps the query, in order of start.
+     * You may modify the returned list.
+     */
+    public List<GATKVariant> getOverlapping(final SimpleInterval query) {
+        final List<GATKVariant> overlapping = new ArrayList<>();
+        final String contig = query.getContig();
+        forEachOverlapping(contig, query.getStart(), query.getEnd(), (start, end, isSnp, isIndel) ->
+                overlapping.add(new MinimalVariant(new SimpleInterval(contig, start, end), isSnp, isIndel)));
+        return overlapping;
+    }
+
+    /**
+     * Collects sites, in any order, and builds an in-memory {@link KnownSitesImage} of them
+     */
+    public static final class Builder {
+        private final Map<String, ContigBuilder> contigs = new LinkedHashMap<>();
+
+        public Builder add(final String contig, final int start, final int end, final boolean isSnp, final boolean isIndel) {
+            Utils.nonNull(contig);
+            Utils.validateArg(start >= 1 && start <= end, () -> "Invalid site " + contig + ":" + start + "-" + end);
+            contigs.computeIfAbsent(contig, c -> new ContigBuilder()).add(start, end, flags(isSnp, isIndel));
+            return this;
+        }
+
+        public Builder add(final GATKVariant variant) {
+            return add(variant.getContig(), variant.getStart(), variant.getEnd(), variant.isSnp(), variant.isIndel());
+        }
+
+        /**
+         * Adds all the sites of another image
+         */
+        public Builder addAll(final KnownSitesImage image) {
+            for (final Map.Entry<String, ContigSites> entry : image.contigs.entrySet()) {
+                final ContigSites sites = entry.getValue();
+                final ContigBuilder builder = contigs.computeIfAbsent(entry.getKey(), c -> new ContigBuilder());
+                for (int i = 0; i < sites.numSites; i++) {
+                    builder.add(sites.starts.get(i), sites.ends.get(i), sites.flags.get(i));
+                }
+            }
+            return this;
+        }
+
+        public KnownSitesImage build() {
+            final Map<String, ContigSites> sites = new LinkedHashMap<>(contigs.size() * 2);
+            contigs.forEach((contig, builder) -> sites.put(contig, builder.build(contig)));
+            return new KnownSitesImage(sites);
+        }
+    }
+
+    private static final class ContigBuilder {
+        private final IntArrayList starts = new IntArrayList();
+        private final IntArrayList ends = new IntArrayList();
+        private final ByteArrayList flags = new ByteArrayList();
+        private boolean sorted = true;
+
+        void add(final int start, final int end, final byte siteFlags) {
+            if (!starts.isEmpty() && start < starts.getInt(starts.size() - 1)) {
+                sorted = false;
+            }
+            starts.add(start);
+            ends.add(end);
+            flags.add(siteFlags);
+        }
+
+        ContigSites build(final String contig) {
+            final int numSites = starts.size();
+            Utils.validate(numSites <= MAX_SITES_PER_CONTIG, () -> "Contig " + contig + " has " + numSites +
+                    " known sites, more than the " + MAX_SITES_PER_CONTIG + " that an image can hold per contig");
+            int[] siteStarts = starts.toIntArray();
+            int[] siteEnds = ends.toIntArray();
+            byte[] siteFlags = flags.toByteArray();
+            if (!sorted) {
+                // sort by start, keeping sites with the same start in the order they were added
+                final long[] order = new long[numSites];
+                for (int i = 0; i < numSites; i++) {
+                    order[i] = (long) siteStarts[i] << 32 | i;
+                }
+                Arrays.sort(order);
+                final int[] sortedEnds = new int[numSites];
+                final byte[] sortedFlags = new byte[numSites];
+                for (int i = 0; i < numSites; i++) {
+                    final int from = (int) order[i];
+                    sortedEnds[i] = siteEnds[from];
+                    sortedFlags[i] = siteFlags[from];
+                    siteStarts[i] = (int) (order[i] >>> 32);
+                }
+                siteEnds = sortedEnds;
+                siteFlags = sortedFlags;
+            }
+            final int[] subtreeEnds = new int[numSites];
+            final int treeHeight = buildTree(siteEnds, subtreeEnds, numSites);
+            return new ContigSites(IntBuffer.wrap(siteStarts), IntBuffer.wrap(siteEnds), IntBuffer.wrap(subtreeEnds),
+                    ByteBuffer.wrap(siteFlags), numSites, treeHeight);
+        }
+    }
+
+    /**
+     * The sites of one contig, sorted by start. Only absolute gets are used, so queries are safe from many threads.
+     */
+    private static final class ContigSites {
+        private final IntBuffer starts;
+        private final IntBuffer ends;
+        // largest end in the subtree rooted at each site
+        private final IntBuffer subtreeEnds;
+        private final ByteBuffer flags;
+        private final int numSites;
+        private final int treeHeight;
+
+        ContigSites(final IntBuffer starts, final IntBuffer ends, final IntBuffer subtreeEnds, final ByteBuffer flags,
+                    final int numSites, final int treeHeight) {
+            this.starts = starts;
+            this.ends = ends;
+            this.subtreeEnds = subtreeEnds;
+            this.flags = flags;
+            this.numSites = numSites;
+            this.treeHeight = treeHeight;
+        }
+
+        void forEachOverlapping(final int queryStart, final int queryEnd, final SiteConsumer consumer) {
+            // top-down traversal of the implicit tree; each stack entry packs a node, its level and whether its
+            // left subtree has been visited
+            final long[] stack = new long[MAX_STACK_SIZE];
+            int stackSize = 0;
+            stack[stackSize++] = stackEntry((1 << treeHeight) - 1, treeHeight, false);
+            while (stackSize > 0) {
+                final long entry = stack[--stackSize];
+                final int node = (int) (entry >>> 8);
+                final int level = (int) (entry >>> 1) & 0x7f;
+                if (level <= 3) {
+                    // small subtree: scan it
+                    final int first = node >> level << level;
+                    final int last = Math.min(first + (1 << (level + 1)) - 1, numSites);
+                    for (int i = first; i < last && starts.get(i) <= queryEnd; i++) {
+                        accept(i, queryStart, consumer);
+                    }
+                } else if ((entry & 1) == 0) {
+                    stack[stackSize++] = stackEntry(node, level, true);
+                    // the left child may be past the last site, in which case its subtree may still have sites
+                    final int leftChild = node - (1 << (level - 1));
+                    if (leftChild >= numSites || subtreeEnds.get(leftChild) >= queryStart) {
+                        stack[stackSize++] = stackEntry(leftChild, level - 1, false);
+                    }
+                } else if (node < numSites && starts.get(node) <= queryEnd) {
+                    accept(node, queryStart, consumer);
+                    stack[stackSize++] = stackEntry(node + (1 << (level - 1)), level - 1, false);
+                }
+            }
+        }
+
+        private void accept(final int site, final int queryStart, final SiteConsumer consumer) {
+            final int end = ends.get(site);
+            if (end >= queryStart) {
+                final byte siteFlags = flags.get(site);
+                consumer.accept(starts.get(site), end, (siteFlags & SNP_FLAG) != 0, (siteFlags & INDEL_FLAG) != 0);
+            }
+        }
+
+        private static long stackEntry(final int node, final int level, final boolean leftVisited) {
+            return (long) node << 8 | level << 1 | (leftVisited ? 1 : 0);
+        }
+    }
+
+    /**
+     * Fills in subtreeEnds for sites sorted by start: sites at even indices are leaves, and the site at index i of
+     * level k > 0 (i.e. with k trailing 1 bits) has children at i - 2^(k-1) and i + 2^(k-1).
+     *
+     * @return the height of the tree
+     */
+    private static int buildTree(final int[] ends, final int[] subtreeEnds, final int numSites) {
+        if (numSites == 0) {
+            return 0;
+        }
+        int lastNode = 0;
+        int lastEnd = 0;
+        for (int i = 0; i < numSites; i += 2) {
+            lastNode = i;
+            lastEnd = subtreeEnds[i] = ends[i];
+        }
+        int level;
+        for (level = 1; 1L << level <= numSites; level++) {
+            final int halfSpan = 1 << (level - 1);
+            final long step = (long) halfSpan << 2;
+            for (long i = (halfSpan << 1) - 1; i < numSites; i += step) {
+                final int node = (int) i;
+                // a right child past the last site stands for the subtree of the last real node at that level
+                final int rightEnd = node + halfSpan < numSites ? subtreeEnds[node + halfSpan] : lastEnd;
+                subtreeEnds[node] = Math.max(ends[node], Math.max(subtreeEnds[node - halfSpan], rightEnd));
+            }
+            lastNode = (lastNode >> level & 1) != 0 ? lastNode - halfSpan : lastNode + halfSpan;
+            if (lastNode < numSites && subtreeEnds[lastNode] > lastEnd) {
+                lastEnd = subtreeEnds[lastNode];
+            }
+        }
+        return level - 1;
+    }
+
+    private static byte flags(final boolean isSnp, final boolean isIndel) {
+        return (byte) ((isSnp ? SNP_FLAG : 0) | (isIndel ? INDEL_FLAG : 0));
+    }
+
+    private static long dataBytes(final int numSites) {
+        return (long) numSites * (3 * Integer.BYTES + 1);
+    }
+
+    private static long align(final long offset) {
+        return (offset + Long.BYTES - 1) & -Long.BYTES;
+    }
+
+    private static ByteBuffer slice(final ByteBuffer buffer, final int offset, final int length) {
+        final ByteBuffer duplicate = buffer.duplicate();
+        // casts for Java 8, where position() and limit() return a Buffer
+        ((Buffer) duplicate).position(offset);
+        ((Buffer) duplicate).limit(offset + length);
+        return duplicate.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static long writeInts(final FileChannel channel, final ByteBuffer staging, final IntBuffer values,
+                                  final int count, long position) throws IOException {
+        for (int i = 0; i < count; i++) {
+            if (staging.remaining() < Integer.BYTES) {
+                position = flush(channel, staging, position);
+            }
+            staging.putInt(values.get(i));
+        }
+        return position;
+    }
+
+    private static long flush(final FileChannel channel, final ByteBuffer staging, final long position) throws IOException {
+        staging.flip();
+        final long newPosition = position + staging.remaining();
+        writeFully(channel, staging, position);
+        staging.clear();
+        return newPosition;
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package org.broadinstitute.hellbender.utils.variant;
 
+import com.esotericsoftware.kryo.DefaultSerializer;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 
 import java.io.Serializable;
@@ -7,6 +11,7 @@ import java.io.Serializable;
 /**
  * MinimalVariant is a minimal implementation of the {@link GATKVariant} interface.
  */
+@DefaultSerializer(MinimalVariant.Serializer.class)
 public class MinimalVariant implements GATKVariant, Serializable {
     private static final long serialVersionUID = 1L;
 
@@ -52,9 +57,41 @@ public class MinimalVariant implements GATKVariant, Serializable {
     @Override
     public boolean isIndel() { return indel; }
 
+    private static final int SNP_FLAG = 1;
+    private static final int INDEL_FLAG = 2;
+
+    private MinimalVariant(final Kryo kryo, final Input input) {
+        final String contig = input.readString();
+        final int start = input.readInt(true);
+        final int end = start + input.readInt(true);
+        interval = new SimpleInterval(contig, start, end);
+        final byte flags = input.readByte();
+        snp = (flags & SNP_FLAG) != 0;
+        indel = (flags & INDEL_FLAG) != 0;
+    }
+
+    private void serialize(final Kryo kryo, final Output output) {
+        output.writeString(interval.getContig());
+        output.writeInt(interval.getStart(), true);
+        output.writeInt(interval.getEnd() - interval.getStart(), true);
+        output.writeByte((snp ? SNP_FLAG : 0) | (indel ? INDEL_FLAG : 0));
+    }
+
     @Override
     public String toString() {
         return String.format("MinimalVariant -- interval(%s:%d-%d), snp(%b), indel(%b)",
                 interval.getContig(), interval.getStart(), interval.getEnd(), snp, indel);
     }
+
+    public static final class Serializer extends com.esotericsoftware.kryo.Serializer<MinimalVariant> {
+        @Override
+        public void write(final Kryo kryo, final Output output, final MinimalVariant variant) {
+            variant.serialize(kryo, output);
+        }
+
+        @Override
+        public MinimalVariant read(final Kryo kryo, final Input input, final Class<MinimalVariant> klass) {
+            return new MinimalVariant(kryo, input);
+        }
+    }
 }
@@ -1,14 +1,28 @@
 package org.broadinstitute.hellbender.utils.variant;
 
+import com.esotericsoftware.kryo.DefaultSerializer;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import htsjdk.variant.variantcontext.Allele;
 import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.VariantContextBuilder;
+import htsjdk.variant.vcf.VCFConstants;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * VariantContextVariantAdapter wraps the existing htsjdk VariantContext class so it can be
  * used with the {@link GATKVariant} API.
+ *
+ * Kryo serializes only what the {@link GATKVariant} API exposes: the location and the alleles, which determine
+ * whether the variant is a SNP or an indel. The ID, quality, filters, attributes and genotypes of the wrapped
+ * VariantContext are dropped.
  */
+@DefaultSerializer(VariantContextVariantAdapter.Serializer.class)
 public class VariantContextVariantAdapter implements GATKVariant, Serializable {
     private static final long serialVersionUID = 1L;
 
@@ -18,6 +32,35 @@ public class VariantContextVariantAdapter implements GATKVariant, Serializable {
         this.variantContext = vc;
     }
 
+    private VariantContextVariantAdapter(final Kryo kryo, final Input input) {
+        final String contig = input.readString();
+        final int start = input.readInt(true);
+        final int end = start + input.readInt(true);
+        final int numAlleles = input.readInt(true);
+        final List<Allele> alleles = new ArrayList<>(numAlleles);
+        for (int i = 0; i < numAlleles; i++) {
+            // the reference allele comes first
+            alleles.add(Allele.create(input.readString(), i == 0));
+        }
+        final VariantContextBuilder builder = new VariantContextBuilder("", contig, start, end, alleles);
+        if (end != start + alleles.get(0).length() - 1) {
+            // eg., a reference block or a symbolic variant, whose end is not implied by its reference allele
+            builder.attribute(VCFConstants.END_KEY, end);
+        }
+        this.variantContext = builder.make();
+    }
+
+    private void serialize(final Kryo kryo, final Output output) {
+        output.writeString(variantContext.getContig());
+        output.writeInt(variantContext.getStart(), true);
+        output.writeInt(variantContext.getEnd() - variantContext.getStart(), true);
+        final List<Allele> alleles = variantContext.getAlleles();
+        output.writeInt(alleles.size(), true);
+        for (final Allele allele : alleles) {
+            output.writeString(allele.getDisplayString());
+        }
+    }
+
     public static GATKVariant sparkVariantAdapter(VariantContext vc) {
         return new MinimalVariant(new SimpleInterval(vc.getContig(),vc.getStart(),vc.getEnd()), vc.isSNP(), vc.isIndel());
     }
@@ -66,4 +109,16 @@ public class VariantContextVariantAdapter implements GATKVariant, Serializable {
         return String.format("VariantContextVariantAdapter -- interval(%s:%d-%d), snp(%b), indel(%b)",
                 getContig(), getStart(), getEnd(), isSnp(), isIndel());
     }
+
+    public static final class Serializer extends com.esotericsoftware.kryo.Serializer<VariantContextVariantAdapter> {
+        @Override
+        public void write(final Kryo kryo, final Output output, final VariantContextVariantAdapter variant) {
+            variant.serialize(kryo, output);
+        }
+
+        @Override
+        public VariantContextVariantAdapter read(final Kryo kryo, final Input input, final Class<VariantContextVariantAdapter> klass) {
+            return new VariantContextVariantAdapter(kryo, input);
+        }
+    }
 }
@@ -154,14 +154,8 @@ public final class GVCFWriter implements VariantContextWriter {
      */
     protected VariantContext addHomRefSite(final VariantContext vc, final Genotype g) {
 
-        if (nextAvailableStart != -1) {
-            // don't create blocks while the hom-ref site falls before nextAvailableStart (for deletions)
-            if (vc.getStart() <= nextAvailableStart && vc.getContig().equals(contigOfNextAvailableStart)) {
-                return null;
-            }
-            // otherwise, reset to non-relevant
-            nextAvailableStart = -1;
-            contigOfNextAvailableStart = null;
+        if (isCoveredByPreviousVariant(vc.getContig(), vc.getStart())) {
+            return null;
         }
 
         final VariantContext result;
@@ -175,11 +169,64 @@ public final class GVCFWriter implements VariantContextWriter {
         return result;
     }
 
+    /**
+     * Add the sites of a run to this gVCF hom-ref state tracking one by one, emitting the bands they complete
+     *
+     * Same as adding the VariantContexts of the sites in order, but only the sites that start a band are turned into
+     * VariantContexts.
+     *
+     * @param run a non-null run of hom-ref sites
+     */
+    private void addHomRefRun(final HomRefRun run) {
+        final String contig = run.getContig();
+        for (int site = 0; site < run.size(); site++) {
+            final int pos = run.getStart() + site;
+            if (currentBlock != null && !currentBlock.isContiguous(contig, pos)) {
+                emitCurrentBlock();
+            }
+            if (isCoveredByPreviousVariant(contig, pos)) {
+                continue;
+            }
+
+            if (siteCanBeMergedInCurrentBlock(run.getGQ(site), run.getPloidy(), run.getPloidy() + 1)) {
+                currentBlock.add(pos, run, site);
+            } else {
+                emitCurrentBlock();
+                final VariantContext vc = run.getSiteVariantContext(site);
+                currentBlock = createNewBlock(vc, vc.getGenotype(0));
+            }
+        }
+    }
+
+    /**
+     * Don't create blocks while the hom-ref site falls before nextAvailableStart (for deletions)
+     *
+     * @return true if the site at contig:pos is covered by the last variant, otherwise resets nextAvailableStart
+     */
+    private boolean isCoveredByPreviousVariant(final String contig, final int pos) {
+        if (nextAvailableStart != -1) {
+            if (pos <= nextAvailableStart && contig.equals(contigOfNextAvailableStart)) {
+                return true;
+            }
+            // otherwise, reset to non-relevant
+            nextAvailableStart = -1;
+            contigOfNextAvailableStart = null;
+        }
+        return false;
+    }
+
     private boolean genotypeCanBeMergedInCurrentBlock(final Genotype g) {
+        return siteCanBeMergedInCurrentBlock(g.getGQ(), g.getPloidy(), g.hasPL() ? g.getPL().length : -1);
+    }
+
+    /**
+     * @param plCount the number of PLs of the site, or -1 if it has none
+     */
+    private boolean siteCanBeMergedInCurrentBlock(final int gq, final int ploidy, final int plCount) {
         return currentBlock != null
-                && currentBlock.withinBounds(Math.min(g.getGQ(), MAX_GENOTYPE_QUAL))
-                && currentBlock.getPloidy() == g.getPloidy()
-                && (currentBlock.getMinPLs() == null || !g.hasPL() || (currentBlock.getMinPLs().length == g.getPL().length));
+                && currentBlock.withinBounds(Math.min(gq, MAX_GENOTYPE_QUAL))
+                && currentBlock.getPloidy() == ploidy
+                && (currentBlock.getMinPLs() == null || plCount == -1 || (currentBlock.getMinPLs().length == plCount));
     }
 
     /**
@@ -218,7 +265,7 @@ public final class GVCFWriter implements VariantContextWriter {
     /**
      * Add a VariantContext to this writer for emission
      *
-     * Requires that the VC have exactly one genotype
+     * Requires that the VC have exactly one genotype. The sites of a {@link HomRefRun} are added one by one.
      *
      * @param vc a non-null VariantContext
      */
@@ -232,6 +279,11 @@ public final class GVCFWriter implements VariantContextWriter {
             sampleName = vc.getGenotype(0).getSampleName();
         }
 
+        if (vc instanceof HomRefRun) {
+            addHomRefRun((HomRefRun) vc);
+            return;
+        }
+
         if (currentBlock != null && !currentBlock.isContiguous(vc)) {
             // we've made a non-contiguous step (across interval, onto another chr), so finalize
             emitCurrentBlock();
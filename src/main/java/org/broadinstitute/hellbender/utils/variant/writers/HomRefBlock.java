@@ -14,6 +14,7 @@ import org.broadinstitute.hellbender.utils.variant.GATKVCFConstants;
 import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -125,6 +126,37 @@ final class HomRefBlock implements Locatable {
         DPs.add(Math.max(genotype.getDP(), 0)); // DP must be >= 0
     }
 
+    /**
+     * Add a site of a {@link HomRefRun} to this band, as {@link #add(int, Genotype)} would add its genotype.
+     *
+     * @param pos Current genomic position. Must be 1 base after the previous position
+     * @param run the run of the site, which must have the ploidy of this band
+     * @param site the index of the site in the run
+     */
+    void add(final int pos, final HomRefRun run, final int site) {
+        if ( pos != end + 1 ) { throw new IllegalArgumentException("adding site at pos " + pos + " isn't contiguous with previous end " + end); }
+        if ( run.getPloidy() != ploidy) { throw new IllegalArgumentException("cannot add a site with a different ploidy: " + run.getPloidy() + " != " + ploidy); }
+        if ( !withinBounds(Math.min(run.getGQ(site), VCFConstants.MAX_GENOTYPE_QUAL))) {
+            throw new IllegalArgumentException("cannot add a site with GQ=" + run.getGQ(site) + " because it's not within bounds ["
+                    + this.getGQLowerBound() + ',' + this.getGQUpperBound() + ')');
+        }
+
+        final int[] pls = run.getPLsNoCopy();
+        final int offset = run.getPLOffset(site);
+        if( minPLs == null ) {
+            minPLs = Arrays.copyOfRange(pls, offset, offset + ploidy + 1);
+        } else {
+            if (ploidy + 1 != minPLs.length) {
+                throw new GATKException("trying to merge different PL array sizes: " + (ploidy + 1) + " != " + minPLs.length);
+            }
+            for (int i = 0; i < minPLs.length; i++) {
+                minPLs[i] = Math.min(minPLs[i], pls[offset + i]);
+            }
+        }
+        end = pos;
+        DPs.add(run.getDP(site));
+    }
+
     /**
      * Is the GQ value within the bounds of this GQ (GQ >= minGQ && GQ < maxGQ)
      * @param GQ the GQ value to test
@@ -158,7 +190,14 @@ final class HomRefBlock implements Locatable {
     }
 
     public boolean isContiguous(final VariantContext vc) {
-        return (vc.getEnd() == getEnd() + 1) && startingVC.getContig().equals(vc.getContig());
+        return isContiguous(vc.getContig(), vc.getEnd());
+    }
+
+    /**
+     * @return true if a single site at contig:end would extend this band
+     */
+    boolean isContiguous(final String contig, final int end) {
+        return (end == getEnd() + 1) && startingVC.getContig().equals(contig);
     }
 
     public VariantContext getStartingVC() {
@@ -0,0 +1,154 @@
+package org.broadinstitute.hellbender.utils.variant.writers;
+
+import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.Genotype;
+import htsjdk.variant.variantcontext.GenotypeBuilder;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.VariantContextBuilder;
+import htsjdk.variant.vcf.VCFConstants;
+import org.broadinstitute.hellbender.utils.MathUtils;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.variant.GATKVCFConstants;
+import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A run of consecutive single-sample reference confidence sites (hom-ref genotype against {@code <NON_REF>}), with the
+ * per-site depths, GQs and PLs kept in primitive arrays.
+ *
+ * Lets the reference confidence model hand a whole stretch of sites to the {@link GVCFWriter} without creating a
+ * {@link VariantContext} for each of them: the writer folds the sites into its GQ bands one by one, exactly as if they
+ * had been added individually, and only the sites that start a band are turned into VariantContexts. The run itself
+ * is a valid GVCF block over its span (the band the writer would make of it if all its sites fell into the same one),
+ * but it is meant to be consumed by a {@link GVCFWriter}; use {@link #toSiteVariantContexts()} to get the individual
+ * sites for any other consumer.
+ */
+public final class HomRefRun extends VariantContext {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String sampleName;
+    private final int ploidy;
+    private final byte[] refBases;
+    private final int[] refDepths;
+    private final int[] nonRefDepths;
+    private final int[] GQs;
+    private final int[] PLs;
+
+    /**
+     * @param source the source of the site VariantContexts
+     * @param contig the contig of the run
+     * @param start the position of the first site
+     * @param sampleName the name of the only sample
+     * @param ploidy the ploidy of the sample
+     * @param refBases the reference base of each site
+     * @param refDepths the number of reads supporting the reference at each site
+     * @param nonRefDepths the number of reads not supporting the reference at each site
+     * @param GQs the GQ of each site
+     * @param PLs the ploidy + 1 PLs of each site, one site after the other
+     */
+    public HomRefRun(final String source, final String contig, final int start, final String sampleName, final int ploidy,
+                     final byte[] refBases, final int[] refDepths, final int[] nonRefDepths, final int[] GQs, final int[] PLs) {
+        super(makeBlock(source, contig, start, sampleName, ploidy, refBases, refDepths, nonRefDepths, PLs));
+        this.sampleName = sampleName;
+        this.ploidy = ploidy;
+        this.refBases = refBases;
+        this.refDepths = refDepths;
+        this.nonRefDepths = nonRefDepths;
+        this.GQs = GQs;
+        this.PLs = PLs;
+    }
+
+    private static VariantContext makeBlock(final String source, final String contig, final int start, final String sampleName, final int ploidy,
+                                            final byte[] refBases, final int[] refDepths, final int[] nonRefDepths, final int[] PLs) {
+        Utils.nonNull(sampleName, "sampleName cannot be null");
+        Utils.validateArg(ploidy > 0, "ploidy must be positive");
+        Utils.validateArg(refBases.length > 0, "a run needs at least one site");
+        Utils.validateArg(refDepths.length == refBases.length && nonRefDepths.length == refBases.length, "there must be one depth per site");
+        Utils.validateArg(PLs.length == refBases.length * (ploidy + 1), "there must be ploidy + 1 PLs per site");
+
+        final int end = start + refBases.length - 1;
+        final int[] minPLs = Arrays.copyOf(PLs, ploidy + 1);
+        final List<Integer> DPs = new ArrayList<>(refBases.length);
+        for ( int i = 0; i < refBases.length; i++ ) {
+            for ( int j = 0; j < minPLs.length; j++ ) {
+                minPLs[j] = Math.min(minPLs[j], PLs[i * minPLs.length + j]);
+            }
+            DPs.add(refDepths[i] + nonRefDepths[i]);
+        }
+
+        final Allele refAllele = Allele.create(refBases[0], true);
+        final GenotypeBuilder gb = new GenotypeBuilder(sampleName, GATKVariantContextUtils.homozygousAlleleList(refAllele, ploidy));
+        gb.PL(minPLs);
+        gb.GQ(GATKVariantContextUtils.calculateGQFromPLs(minPLs));
+        gb.DP((int) Math.round(MathUtils.median(DPs)));
+        gb.attribute(GATKVCFConstants.MIN_DP_FORMAT_KEY, DPs.stream().mapToInt(Integer::intValue).min().getAsInt());
+        return new VariantContextBuilder(source, contig, start, end, Arrays.asList(refAllele, Allele.NON_REF_ALLELE))
+                .attribute(VCFConstants.END_KEY, end)
+                .genotypes(gb.make())
+                .make();
+    }
+
+    /**
+     * @return the number of sites in this run
+     */
+    public int size() {
+        return refBases.length;
+    }
+
+    int getPloidy() {
+        return ploidy;
+    }
+
+    int getDP(final int site) {
+        return refDepths[site] + nonRefDepths[site];
+    }
+
+    int getGQ(final int site) {
+        return GQs[site];
+    }
+
+    /**
+     * @return the PLs of all the sites, {@link #getPLOffset} gives where those of a site start
+     */
+    int[] getPLsNoCopy() {
+        return PLs;
+    }
+
+    int getPLOffset(final int site) {
+        return site * (ploidy + 1);
+    }
+
+    /**
+     * Make the VariantContext of a site, as the reference confidence model emits it in base pair resolution
+     *
+     * @param site the index of the site in this run
+     */
+    public VariantContext getSiteVariantContext(final int site) {
+        Utils.validIndex(site, size());
+        final int position = getStart() + site;
+        final Allele refAllele = Allele.create(refBases[site], true);
+        final VariantContextBuilder vcb = new VariantContextBuilder(getSource(), getContig(), position, position, Arrays.asList(refAllele, Allele.NON_REF_ALLELE));
+        final GenotypeBuilder gb = new GenotypeBuilder(sampleName, GATKVariantContextUtils.homozygousAlleleList(refAllele, ploidy));
+        gb.AD(new int[]{refDepths[site], nonRefDepths[site]});
+        gb.DP(getDP(site));
+        gb.GQ(GQs[site]);
+        gb.PL(Arrays.copyOfRange(PLs, getPLOffset(site), getPLOffset(site + 1)));
+        final Genotype genotype = gb.make();
+        return vcb.genotypes(genotype).make();
+    }
+
+    /**
+     * @return the VariantContexts of all the sites of this run, in order
+     */
+    public List<VariantContext> toSiteVariantContexts() {
+        final List<VariantContext> result = new ArrayList<>(size());
+        for ( int i = 0; i < size(); i++ ) {
+            result.add(getSiteVariantContext(i));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,93 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class AssemblyRegionWorkerPoolUnitTest extends GATKBaseTest {
+
+    private static final SAMFileHeader HEADER = ArtificialReadUtils.createArtificialSamHeader(1, 1, 1000000);
+
+    private static List<AssemblyRegion> makeRegions(final int numRegions) {
+        final List<AssemblyRegion> regions = new ArrayList<>(numRegions);
+        for ( int i = 0; i < numRegions; i++ ) {
+            regions.add(new AssemblyRegion(new SimpleInterval("1", 100 * i + 1, 100 * i + 100), 0, HEADER));
+        }
+        return regions;
+    }
+
+    /**
+     * Worker that takes longer for earlier regions, so that results are produced out of order
+     */
+    private static final class SlowStartWorker implements AssemblyRegionWorker {
+        private final List<SimpleInterval> emitted;
+        private final AtomicInteger numClosed;
+
+        SlowStartWorker(final List<SimpleInterval> emitted, final AtomicInteger numClosed) {
+            this.emitted = emitted;
+            this.numClosed = numClosed;
+        }
+
+        @Override
+        public Runnable processRegion(final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext) {
+            try {
+                Thread.sleep(Math.max(0, 20 - region.getStart() / 100));
+            } catch (final InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return () -> emitted.add(region.getSpan());
+        }
+
+        @Override
+        public void close() {
+            numClosed.incrementAndGet();
+        }
+    }
+
+    @DataProvider(name = "numThreads")
+    public Object[][] numThreads() {
+        return new Object[][] { {1}, {2}, {4}, {8} };
+    }
+
+    @Test(dataProvider = "numThreads")
+    public void testResultsAreEmittedInSubmissionOrder(final int numThreads) {
+        final List<AssemblyRegion> regions = makeRegions(50);
+        final List<SimpleInterval> emitted = new ArrayList<>();
+        final List<SimpleInterval> completed = new ArrayList<>();
+        final AtomicInteger numClosed = new AtomicInteger(0);
+
+        try ( final AssemblyRegionWorkerPool pool = new AssemblyRegionWorkerPool(numThreads, () -> new SlowStartWorker(emitted, numClosed),
+                region -> completed.add(region.getSpan())) ) {
+            for ( final AssemblyRegion region : regions ) {
+                pool.submit(region, new ReferenceContext(), new FeatureContext());
+                Assert.assertTrue(pool.numPendingRegions() <= 2 * numThreads);
+            }
+            pool.drain();
+            Assert.assertEquals(pool.numPendingRegions(), 0);
+        }
+
+        final List<SimpleInterval> expected = new ArrayList<>();
+        regions.forEach(region -> expected.add(region.getSpan()));
+        Assert.assertEquals(emitted, expected);
+        Assert.assertEquals(completed, expected);
+        Assert.assertEquals(numClosed.get(), numThreads);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testWorkerExceptionIsRethrown() {
+        try ( final AssemblyRegionWorkerPool pool = new AssemblyRegionWorkerPool(2, () -> (region, ref, features) -> {
+                    throw new IllegalStateException("failed on " + region.getSpan());
+                }, region -> {}) ) {
+            makeRegions(3).forEach(region -> pool.submit(region, new ReferenceContext(), new FeatureContext()));
+            pool.drain();
+        }
+    }
+}
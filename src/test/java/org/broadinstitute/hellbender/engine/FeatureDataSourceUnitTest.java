@@ -6,6 +6,7 @@ import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.vcf.VCFFileReader;
 import htsjdk.variant.vcf.VCFHeader;
 import org.apache.commons.lang3.tuple.Pair;
+import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.GATKBaseTest;
@@ -373,6 +374,37 @@ public final class FeatureDataSourceUnitTest extends GATKBaseTest {
         }
     }
 
+    @Test
+    public void testQueriesWithinCachedWindowAreCacheHits() {
+        try (final FeatureDataSource<VariantContext> featureSource = new FeatureDataSource<>(QUERY_TEST_VCF)) {
+            final FeatureCache<VariantContext> cache = featureSource.getQueryCache();
+
+            checkVariantQueryResults(featureSource.queryAndPrefetch(new SimpleInterval("1", 1100, 1200)), Arrays.asList("m", "n"), new SimpleInterval("1", 1100, 1200));
+            Assert.assertEquals(cache.getNumCacheMisses(), 1);
+
+            // Backing up by less than the default lookbehind, and moving forward again, should not go back to disk
+            checkVariantQueryResults(featureSource.queryAndPrefetch(new SimpleInterval("1", 950, 1050)), Arrays.asList("i", "j", "k"), new SimpleInterval("1", 950, 1050));
+            checkVariantQueryResults(featureSource.queryAndPrefetch(new SimpleInterval("1", 1000, 1100)), Arrays.asList("j", "k", "l"), new SimpleInterval("1", 1000, 1100));
+            checkVariantQueryResults(featureSource.queryAndPrefetch(new SimpleInterval("1", 1050, 1150)), Arrays.asList("l", "m"), new SimpleInterval("1", 1050, 1150));
+            Assert.assertEquals(cache.getNumCacheHits(), 3);
+            Assert.assertEquals(cache.getNumCacheMisses(), 1);
+            Assert.assertEquals(cache.getCacheStart(), 1100 - FeatureDataSource.DEFAULT_QUERY_LOOKBEHIND_BASES);
+        }
+    }
+
+    @Test
+    public void testQueryLookbehindCanBeDisabled() {
+        try (final FeatureDataSource<VariantContext> featureSource = new FeatureDataSource<>(new FeatureInput<>(QUERY_TEST_VCF.getAbsolutePath()),
+                FeatureDataSource.DEFAULT_QUERY_LOOKAHEAD_BASES, 0, VariantContext.class, 0, 0, null)) {
+            final FeatureCache<VariantContext> cache = featureSource.getQueryCache();
+
+            checkVariantQueryResults(featureSource.queryAndPrefetch(new SimpleInterval("1", 1000, 1100)), Arrays.asList("j", "k", "l"), new SimpleInterval("1", 1000, 1100));
+            checkVariantQueryResults(featureSource.queryAndPrefetch(new SimpleInterval("1", 950, 1050)), Arrays.asList("i", "j", "k"), new SimpleInterval("1", 950, 1050));
+            Assert.assertEquals(cache.getNumCacheHits(), 0);
+            Assert.assertEquals(cache.getNumCacheMisses(), 2);
+        }
+    }
+
     @DataProvider(name = "GVCFQueryTestData")
     public Object[][] getGVCFQueryTestData() {
 
@@ -661,6 +693,80 @@ public final class FeatureDataSourceUnitTest extends GATKBaseTest {
         Assert.assertEquals(cache.getCachedFeaturesUpToStopPosition(100), emptyRegion, "Should get back empty List for empty region");
     }
 
+    @Test
+    public void testCacheOverlapQueriesPreserveOrder() {
+        // Features are sorted by start position, but not by stop position
+        final List<ArtificialTestFeature> feats = Arrays.asList(
+                new ArtificialTestFeature("1", 1, 100),
+                new ArtificialTestFeature("1", 1, 1),
+                new ArtificialTestFeature("1", 1, 50),
+                new ArtificialTestFeature("1", 5, 50),
+                new ArtificialTestFeature("1", 5, 10),
+                new ArtificialTestFeature("1", 50, 200),
+                new ArtificialTestFeature("1", 50, 50),
+                new ArtificialTestFeature("1", 100, 200),
+                new ArtificialTestFeature("1", 100, 110),
+                new ArtificialTestFeature("1", 150, 160)
+        );
+        final FeatureCache<ArtificialTestFeature> cache = initializeFeatureCache(feats, "1", 1, 200);
+
+        // queries need not have increasing start positions
+        for ( final SimpleInterval query : Arrays.asList(new SimpleInterval("1", 100, 120), new SimpleInterval("1", 1, 200),
+                new SimpleInterval("1", 50, 50), new SimpleInterval("1", 11, 49), new SimpleInterval("1", 161, 200),
+                new SimpleInterval("1", 2, 4)) ) {
+            Assert.assertTrue(cache.cacheHit(query));
+            final List<ArtificialTestFeature> expected = feats.stream().filter(query::overlaps).collect(Collectors.toList());
+            Assert.assertEquals(cache.getCachedFeaturesOverlapping(query), expected, "Wrong Features returned for query " + query);
+        }
+        Assert.assertEquals(cache.getNumEvictions(), 0);
+    }
+
+    @Test
+    public void testCacheExtend() {
+        final ArtificialTestFeature a = new ArtificialTestFeature("1", 1, 100);
+        final ArtificialTestFeature b = new ArtificialTestFeature("1", 50, 150);
+        final ArtificialTestFeature c = new ArtificialTestFeature("1", 200, 300);
+        final ArtificialTestFeature d = new ArtificialTestFeature("1", 260, 270);
+        final ArtificialTestFeature e = new ArtificialTestFeature("1", 400, 600);
+        final FeatureCache<ArtificialTestFeature> cache = initializeFeatureCache(Arrays.asList(a, b, c), "1", 1, 250);
+
+        Assert.assertFalse(cache.canExtendTo(new SimpleInterval("2", 100, 500)), "Should not extend to a different contig");
+        Assert.assertFalse(cache.canExtendTo(new SimpleInterval("1", 252, 500)), "Should not extend past a gap");
+        Assert.assertFalse(cache.canExtendTo(new SimpleInterval("1", 100, 250)), "Should not extend to a window that does not end after the cache");
+        Assert.assertTrue(cache.canExtendTo(new SimpleInterval("1", 251, 500)));
+        Assert.assertTrue(cache.canExtendTo(new SimpleInterval("1", 120, 500)));
+
+        // Features starting within the current window are already cached, and must not be added twice
+        cache.extend(Arrays.asList(c, d, e).iterator(), new SimpleInterval("1", 120, 500));
+
+        Assert.assertEquals(cache.getCacheStart(), 120);
+        Assert.assertEquals(cache.getCacheEnd(), 500);
+        Assert.assertEquals(cache.getCachedFeaturesOverlapping(new SimpleInterval("1", 120, 500)), Arrays.asList(b, c, d, e));
+        Assert.assertEquals(cache.getCachedFeaturesOverlapping(new SimpleInterval("1", 265, 450)), Arrays.asList(c, d, e));
+        Assert.assertEquals(cache.getNumEvictions(), 1);
+
+        cache.fill(Collections.<ArtificialTestFeature>emptyList().iterator(), new SimpleInterval("2", 1, 100));
+        Assert.assertEquals(cache.getNumEvictions(), 5);
+        Assert.assertTrue(cache.isEmpty());
+    }
+
+    @Test(expectedExceptions = GATKException.class)
+    public void testCacheExtendToImproperInterval() {
+        final FeatureCache<ArtificialTestFeature> cache = initializeFeatureCache(Arrays.asList(new ArtificialTestFeature("1", 1, 100)), "1", 1, 250);
+        cache.extend(Collections.<ArtificialTestFeature>emptyList().iterator(), new SimpleInterval("1", 300, 500));
+    }
+
+    @Test
+    public void testCacheTrimmingCountsEvictions() {
+        final FeatureCache<ArtificialTestFeature> cache = initializeFeatureCache(Arrays.asList(
+                new ArtificialTestFeature("1", 1, 10), new ArtificialTestFeature("1", 1, 100),
+                new ArtificialTestFeature("1", 5, 20), new ArtificialTestFeature("1", 50, 60)), "1", 1, 100);
+        cache.trimToNewStartPosition(21);
+        Assert.assertEquals(cache.getNumEvictions(), 2);
+        Assert.assertEquals(cache.getCachedFeaturesOverlapping(new SimpleInterval("1", 21, 100)),
+                Arrays.asList(new ArtificialTestFeature("1", 1, 100), new ArtificialTestFeature("1", 50, 60)));
+    }
+
     /*********************************************************
      * End of direct testing on the FeatureCache inner class
      *********************************************************/
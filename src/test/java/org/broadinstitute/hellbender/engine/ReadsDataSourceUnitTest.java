@@ -351,6 +351,26 @@ public final class ReadsDataSourceUnitTest extends GATKBaseTest {
         }
     }
 
+    @Test(dataProvider = "MultipleFilesQueryByIntervalData")
+    public void testMultipleFilesQueryByIntervalWithReadAhead( final List<Path> samFiles, final SimpleInterval interval, final List<String> expectedReadNames ) {
+        try (ReadsDataSource readsSource = new ReadsDataSource(samFiles)) {
+            readsSource.setReadAhead(1);
+
+            // abandon a complete traversal part way through: the next query must stop its read-ahead before reusing the readers
+            final Iterator<GATKRead> abandonedIterator = readsSource.iterator();
+            Assert.assertTrue(abandonedIterator.hasNext());
+            abandonedIterator.next();
+
+            List<String> readNames = new ArrayList<>();
+            Iterator<GATKRead> queryIterator = readsSource.query(interval);
+            while (queryIterator.hasNext()) {
+                readNames.add(queryIterator.next().getName());
+            }
+            Assert.assertEquals(readNames, expectedReadNames, "Wrong reads returned in query by interval with read-ahead of " + samFiles);
+            Assert.assertEquals(readsSource.getReadAheadStatistics().getBatchesConsumed(), expectedReadNames.isEmpty() ? 1 : 2);
+        }
+    }
+
     @DataProvider(name = "TraversalWithUnmappedReadsTestData")
     public Object[][] traversalWithUnmappedReadsTestData() {
         // This bam has only mapped reads
@@ -0,0 +1,167 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+public final class ReferenceMemoryMappedSourceUnitTest extends GATKBaseTest {
+
+    private static final Path TEST_REFERENCE = IOUtils.getPath(hg19MiniReference);
+
+    private Path imagePath;
+
+    @BeforeClass
+    public void createImage() {
+        final File image = createTempFile("hg19mini", ReferenceMemoryMappedSource.IMAGE_EXTENSION);
+        imagePath = image.toPath();
+        ReferenceMemoryMappedSource.createImage(TEST_REFERENCE, imagePath);
+    }
+
+    @Test
+    public void testSequenceDictionaryMatchesFasta() {
+        try ( final ReferenceDataSource fileSource = new ReferenceFileSource(TEST_REFERENCE);
+              final ReferenceDataSource mappedSource = new ReferenceMemoryMappedSource(imagePath) ) {
+            final SAMSequenceDictionary expected = fileSource.getSequenceDictionary();
+            final SAMSequenceDictionary actual = mappedSource.getSequenceDictionary();
+            Assert.assertEquals(actual.size(), expected.size());
+            for ( final SAMSequenceRecord contig : expected.getSequences() ) {
+                Assert.assertTrue(contig.isSameSequence(actual.getSequence(contig.getSequenceName())), "mismatch for contig " + contig.getSequenceName());
+            }
+        }
+    }
+
+    @DataProvider(name = "queries")
+    public Object[][] getQueries() {
+        final List<Object[]> queries = new ArrayList<>();
+        queries.add(new Object[]{ new SimpleInterval("1", 1, 3) });
+        queries.add(new Object[]{ new SimpleInterval("1", 11041, 11045) });
+        queries.add(new Object[]{ new SimpleInterval("2", 9995, 10005) });
+        queries.add(new Object[]{ new SimpleInterval("4", 5000, 15000) });
+
+        final Random random = new Random(13);
+        try ( final ReferenceDataSource fileSource = new ReferenceFileSource(TEST_REFERENCE) ) {
+            for ( final SAMSequenceRecord contig : fileSource.getSequenceDictionary().getSequences() ) {
+                queries.add(new Object[]{ new SimpleInterval(contig.getSequenceName(), contig.getSequenceLength() - 9, contig.getSequenceLength()) });
+                for ( int i = 0; i < 5; i++ ) {
+                    final int start = 1 + random.nextInt(contig.getSequenceLength() - 1000);
+                    queries.add(new Object[]{ new SimpleInterval(contig.getSequenceName(), start, start + random.nextInt(1000)) });
+                }
+            }
+        }
+        return queries.toArray(new Object[][]{});
+    }
+
+    @Test(dataProvider = "queries")
+    public void testQueryAndPrefetchMatchesFasta(final SimpleInterval interval) {
+        try ( final ReferenceDataSource fileSource = new ReferenceFileSource(TEST_REFERENCE);
+              final ReferenceMemoryMappedSource mappedSource = new ReferenceMemoryMappedSource(imagePath) ) {
+            final byte[] expected = fileSource.queryAndPrefetch(interval).getBases();
+            Assert.assertEquals(mappedSource.queryAndPrefetch(interval).getBases(), expected);
+
+            final ByteBuffer view = mappedSource.getBasesView(interval);
+            Assert.assertTrue(view.isReadOnly());
+            final byte[] viewBases = new byte[view.remaining()];
+            view.get(viewBases);
+            Assert.assertEquals(viewBases, expected);
+        }
+    }
+
+    @Test
+    public void testConcurrentQueries() {
+        final List<Object[]> queries = new ArrayList<>();
+        for ( final Object[] query : getQueries() ) {
+            queries.add(query);
+        }
+
+        try ( final ReferenceDataSource fileSource = new ReferenceFileSource(TEST_REFERENCE);
+              final ReferenceMemoryMappedSource mappedSource = new ReferenceMemoryMappedSource(imagePath) ) {
+            final List<byte[]> expected = new ArrayList<>();
+            queries.forEach(query -> expected.add(fileSource.queryAndPrefetch((SimpleInterval)query[0]).getBases()));
+
+            IntStream.range(0, 100).parallel().forEach(i -> {
+                final int queryIndex = i % queries.size();
+                Assert.assertEquals(mappedSource.queryAndPrefetch((SimpleInterval)queries.get(queryIndex)[0]).getBases(), expected.get(queryIndex));
+            });
+        }
+    }
+
+    @Test
+    public void testIteration() {
+        try ( final ReferenceDataSource fileSource = new ReferenceFileSource(TEST_REFERENCE);
+              final ReferenceMemoryMappedSource mappedSource = new ReferenceMemoryMappedSource(imagePath) ) {
+            final Iterator<Byte> iterator = mappedSource.iterator();
+            for ( final SAMSequenceRecord contig : fileSource.getSequenceDictionary().getSequences() ) {
+                final byte[] expected = fileSource.queryAndPrefetch(contig.getSequenceName(), 1, contig.getSequenceLength()).getBases();
+                for ( final byte base : expected ) {
+                    Assert.assertTrue(iterator.hasNext());
+                    Assert.assertEquals(iterator.next().byteValue(), base);
+                }
+            }
+            Assert.assertFalse(iterator.hasNext());
+        }
+    }
+
+    @Test
+    public void testImageIsFoundNextToFasta() throws IOException {
+        final File fastaDir = createTempDir("testImageIsFoundNextToFasta");
+        final Path fasta = new File(fastaDir, "hg19mini.fasta").toPath();
+        Files.copy(TEST_REFERENCE, fasta);
+        Files.copy(IOUtils.getPath(publicTestDir + "hg19mini.fasta.fai"), new File(fastaDir, "hg19mini.fasta.fai").toPath());
+        Files.copy(IOUtils.getPath(publicTestDir + "hg19mini.dict"), new File(fastaDir, "hg19mini.dict").toPath());
+
+        Assert.assertNull(ReferenceMemoryMappedSource.findImageForFasta(fasta));
+        try ( final ReferenceDataSource source = ReferenceDataSource.of(fasta) ) {
+            Assert.assertTrue(source instanceof ReferenceFileSource);
+        }
+
+        final Path image = new File(fastaDir, "hg19mini.fasta" + ReferenceMemoryMappedSource.IMAGE_EXTENSION).toPath();
+        ReferenceMemoryMappedSource.createImage(fasta, image);
+        Assert.assertEquals(ReferenceMemoryMappedSource.findImageForFasta(fasta), image);
+        try ( final ReferenceDataSource source = ReferenceDataSource.of(fasta) ) {
+            Assert.assertTrue(source instanceof ReferenceMemoryMappedSource);
+        }
+
+        // a stale image must be ignored
+        Files.setLastModifiedTime(image, FileTime.fromMillis(Files.getLastModifiedTime(fasta).toMillis() - 1000));
+        Assert.assertNull(ReferenceMemoryMappedSource.findImageForFasta(fasta));
+    }
+
+    @Test(expectedExceptions = UserException.MissingContigInSequenceDictionary.class)
+    public void testQueryMissingContig() {
+        try ( final ReferenceMemoryMappedSource mappedSource = new ReferenceMemoryMappedSource(imagePath) ) {
+            mappedSource.queryAndPrefetch("nonexistent", 1, 10);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testQueryPastEndOfContig() {
+        try ( final ReferenceMemoryMappedSource mappedSource = new ReferenceMemoryMappedSource(imagePath) ) {
+            final int contigLength = mappedSource.getSequenceDictionary().getSequence("1").getSequenceLength();
+            mappedSource.queryAndPrefetch("1", contigLength - 5, contigLength + 5);
+        }
+    }
+
+    @Test(expectedExceptions = UserException.MalformedFile.class)
+    public void testNotAnImage() {
+        new ReferenceMemoryMappedSource(TEST_REFERENCE);
+    }
+}
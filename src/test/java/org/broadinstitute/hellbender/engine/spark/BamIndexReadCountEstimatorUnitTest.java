@@ -0,0 +1,97 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import com.google.common.collect.ImmutableList;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import htsjdk.samtools.util.BinaryCodec;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+public final class BamIndexReadCountEstimatorUnitTest extends GATKBaseTest {
+
+    private static final int CONTIG_LENGTH = 7 * 16384;
+
+    private final SAMSequenceDictionary sequenceDictionary = new SAMSequenceDictionary(
+            ImmutableList.of(new SAMSequenceRecord("1", CONTIG_LENGTH)));
+
+    // a BAI for one contig of 7 tiles, whose 1500 mapped reads take up compressed bytes 1000 to 16000 of the BAM
+    private static byte[] makeIndex(final byte[] magic) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final BinaryCodec codec = new BinaryCodec(out);
+        codec.writeBytes(magic);
+        codec.writeInt(1); // n_ref
+        codec.writeInt(2); // n_bin
+        codec.writeInt(4681);
+        codec.writeInt(1);
+        codec.writeLong(1000L << 16);
+        codec.writeLong(16000L << 16);
+        codec.writeInt(37450); // metadata pseudo-bin
+        codec.writeInt(2);
+        codec.writeLong(1000L << 16);
+        codec.writeLong(16000L << 16);
+        codec.writeLong(1500);
+        codec.writeLong(3);
+        final long[] linearIndex = {1000, 2000, 3000, 13000, 14000, 0, 15000};
+        codec.writeInt(linearIndex.length);
+        for (final long offset : linearIndex) {
+            codec.writeLong(offset << 16);
+        }
+        codec.writeLong(0); // n_no_coor
+        return out.toByteArray();
+    }
+
+    private BamIndexReadCountEstimator makeEstimator() {
+        return BamIndexReadCountEstimator.fromIndex(new ByteArrayInputStream(makeIndex(new byte[]{'B', 'A', 'I', 1})),
+                sequenceDictionary, "test.bai");
+    }
+
+    @DataProvider(name = "windows")
+    public Object[][] windows() {
+        return new Object[][]{
+                {new SimpleInterval("1", 1, CONTIG_LENGTH), 1500},
+                {new SimpleInterval("1", 1, 16384), 100},
+                {new SimpleInterval("1", 1, 8192), 50},
+                {new SimpleInterval("1", 32769, 49152), 1000},
+                // a tile with no reads of its own
+                {new SimpleInterval("1", 65537, 81920), 0},
+                {new SimpleInterval("1", 81921, 98304), 100},
+                {new SimpleInterval("1", 98305, CONTIG_LENGTH), 100},
+        };
+    }
+
+    @Test(dataProvider = "windows")
+    public void testEstimateCost(final SimpleInterval window, final long expectedReads) {
+        Assert.assertEquals(makeEstimator().estimateCost(window), expectedReads);
+    }
+
+    @Test
+    public void testUnknownContig() {
+        Assert.assertEquals(makeEstimator().estimateCost(new SimpleInterval("2", 1, 1000)), 0);
+    }
+
+    @Test(expectedExceptions = UserException.MalformedFile.class)
+    public void testNotAnIndex() {
+        BamIndexReadCountEstimator.fromIndex(new ByteArrayInputStream(makeIndex(new byte[]{'C', 'S', 'I', 1})),
+                sequenceDictionary, "test.bai");
+    }
+
+    @Test
+    public void testForBam() throws IOException {
+        final String bam = publicTestDir + "NA12878.chr17_69k_70k.dictFix.bam";
+        try (final SamReader reader = SamReaderFactory.makeDefault().open(new File(bam))) {
+            Assert.assertNotNull(BamIndexReadCountEstimator.forBam(bam, reader.getFileHeader().getSequenceDictionary()));
+        }
+        Assert.assertNull(BamIndexReadCountEstimator.forBam(publicTestDir + "NA12878.chr17_69k_70k.dictFix.cram", sequenceDictionary));
+    }
+}
@@ -0,0 +1,139 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.TextCigarCodec;
+import org.apache.spark.SparkConf;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter;
+import org.broadinstitute.hellbender.utils.test.SparkTestUtils;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CompactSAMRecordSerializerUnitTest extends GATKBaseTest {
+
+    private static final SparkConf CONF = new SparkConf().set("spark.kryo.registrator",
+            "org.broadinstitute.hellbender.engine.spark.GATKRegistrator");
+
+    private static SAMRecord headerlessRecord(final String name, final String contig, final int start, final String bases, final String cigar) {
+        final SAMRecord record = ((SAMRecordToGATKReadAdapter) ArtificialReadUtils.createHeaderlessSamBackedRead(name, contig, start, bases.length()))
+                .getEncapsulatedSamRecord();
+        record.setReadBases(bases.getBytes());
+        final byte[] quals = new byte[bases.length()];
+        for (int i = 0; i < quals.length; i++) {
+            quals[i] = (byte) (2 + i % 40);
+        }
+        record.setBaseQualities(quals);
+        record.setCigar(TextCigarCodec.decode(cigar));
+        return record;
+    }
+
+    @DataProvider(name = "records")
+    public Object[][] records() {
+        final List<Object[]> records = new ArrayList<>();
+
+        records.add(new Object[]{headerlessRecord("plain", "1", 100, "ACGTACGTAC", "10M")});
+
+        final SAMRecord withNs = headerlessRecord("withNs", "1", 100, "NACGTNNACGTAN", "3S8M1I1M");
+        records.add(new Object[]{withNs});
+
+        // anything beyond ACGTN is written as is
+        records.add(new Object[]{headerlessRecord("softMasked", "2", 5000, "ACgtacGTNR=", "11M")});
+
+        final SAMRecord noQuals = headerlessRecord("noQuals", "1", 1, "ACGTA", "5M");
+        noQuals.setBaseQualities(SAMRecord.NULL_QUALS);
+        records.add(new Object[]{noQuals});
+
+        final SAMRecord pair = headerlessRecord("pair", "1", 1000, "ACGTACGTACGTACGTACGT", "20M");
+        pair.setReadPairedFlag(true);
+        pair.setFirstOfPairFlag(true);
+        pair.setMateReferenceName("X");
+        pair.setMateAlignmentStart(123456789);
+        pair.setInferredInsertSize(-300);
+        pair.setMappingQuality(60);
+        records.add(new Object[]{pair});
+
+        final SAMRecord withAttributes = headerlessRecord("withAttributes", "1", 100, "ACGTACGTAC", "10M");
+        withAttributes.setAttribute("RG", "readGroup1");
+        withAttributes.setAttribute("NM", 2);
+        withAttributes.setAttribute("XS", "a string");
+        withAttributes.setAttribute("XF", 1.5f);
+        withAttributes.setAttribute("XB", new byte[]{1, 2, 3});
+        withAttributes.setUnsignedArrayAttribute("XU", new short[]{1, 200, 3000});
+        records.add(new Object[]{withAttributes});
+
+        final SAMRecord unmapped = headerlessRecord("unmapped", "1", 100, "ACGTACGTAC", "10M");
+        unmapped.setReadUnmappedFlag(true);
+        unmapped.setReferenceName(SAMRecord.NO_ALIGNMENT_REFERENCE_NAME);
+        unmapped.setAlignmentStart(SAMRecord.NO_ALIGNMENT_START);
+        unmapped.setCigarString(SAMRecord.NO_ALIGNMENT_CIGAR);
+        unmapped.setMateReferenceName(SAMRecord.NO_ALIGNMENT_REFERENCE_NAME);
+        records.add(new Object[]{unmapped});
+
+        final SAMRecord empty = headerlessRecord("empty", "1", 100, "", "");
+        empty.setReadBases(SAMRecord.NULL_SEQUENCE);
+        empty.setBaseQualities(SAMRecord.NULL_QUALS);
+        records.add(new Object[]{empty});
+
+        return records.toArray(new Object[records.size()][]);
+    }
+
+    @Test(dataProvider = "records")
+    public void testSAMRecordRoundTrip(final SAMRecord record) {
+        final SAMRecord roundTripped = SparkTestUtils.roundTripInKryo(record, SAMRecord.class, CONF);
+        Assert.assertEquals(roundTripped, record, "\nActual read: " + roundTripped.getSAMString() + "\nExpected read: " + record.getSAMString());
+    }
+
+    @Test(dataProvider = "records")
+    public void testGATKReadRoundTrip(final SAMRecord record) {
+        final GATKRead read = SAMRecordToGATKReadAdapter.headerlessReadAdapter(record);
+        final GATKRead roundTripped = SparkTestUtils.roundTripInKryo(read, GATKRead.class, CONF);
+        Assert.assertEquals(roundTripped, read);
+    }
+
+    @Test
+    public void testReadGroupsAreInterned() {
+        final SAMRecord first = headerlessRecord("first", "1", 100, "ACGTACGTAC", "10M");
+        first.setAttribute("RG", "readGroup1");
+        final SAMRecord second = headerlessRecord("second", "1", 200, "ACGTACGTAC", "10M");
+        second.setAttribute("RG", new String("readGroup1"));
+
+        final CompactSAMRecordSerializer serializer = new CompactSAMRecordSerializer();
+        final Kryo kryo = new Kryo();
+        final Output output = new Output(1024);
+        serializer.write(kryo, output, first);
+        serializer.write(kryo, output, second);
+        final Input input = new Input(output.toBytes());
+        final SAMRecord firstBack = serializer.read(kryo, input, SAMRecord.class);
+        final SAMRecord secondBack = serializer.read(kryo, input, SAMRecord.class);
+        Assert.assertEquals(firstBack, first);
+        Assert.assertEquals(secondBack, second);
+        Assert.assertSame(firstBack.getAttribute("RG"), secondBack.getAttribute("RG"));
+    }
+
+    @Test
+    public void testSmallerThanSAMRecordSerializer() {
+        final SAMRecord record = headerlessRecord("read", "1", 1000000, "ACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTA",
+                "101M");
+        record.setReadPairedFlag(true);
+        record.setMateReferenceName("1");
+        record.setMateAlignmentStart(1000300);
+        record.setInferredInsertSize(400);
+        record.setAttribute("RG", "readGroup1");
+
+        final Kryo kryo = new Kryo();
+        final Output compact = new Output(4096);
+        new CompactSAMRecordSerializer().write(kryo, compact, record);
+        final Output bam = new Output(4096);
+        new SAMRecordSerializer().write(kryo, bam, record);
+        Assert.assertTrue(compact.position() < bam.position(), compact.position() + " >= " + bam.position());
+    }
+}
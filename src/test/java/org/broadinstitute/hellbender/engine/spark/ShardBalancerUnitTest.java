@@ -0,0 +1,102 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import com.google.common.collect.ImmutableList;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.engine.ShardBoundary;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+public final class ShardBalancerUnitTest extends GATKBaseTest {
+
+    private static final int SHARD_SIZE = 1000;
+    private static final int SHARD_PADDING = 100;
+
+    private final SAMSequenceDictionary sequenceDictionary = new SAMSequenceDictionary(
+            ImmutableList.of(new SAMSequenceRecord("1", 100_000), new SAMSequenceRecord("2", 20_000)));
+
+    private final List<SimpleInterval> intervals = Arrays.asList(
+            new SimpleInterval("1", 1, 100_000), new SimpleInterval("2", 1, 20_000));
+
+    // one read per base, except for 1000 reads per base in a hot spot on contig 1 and one read per 100 bases on contig 2
+    private static long estimateCost(final SimpleInterval window) {
+        if (window.getContig().equals("2")) {
+            return window.size() / 100;
+        }
+        final SimpleInterval hotSpot = new SimpleInterval("1", 40_001, 41_000);
+        final long hotBases = window.overlaps(hotSpot) ? window.intersect(hotSpot).size() : 0;
+        return window.size() - hotBases + hotBases * 1000;
+    }
+
+    @Test
+    public void testShardsCoverIntervals() {
+        final List<ShardBoundary> shards = ShardBalancer.divideIntervalsIntoShards(intervals, SHARD_SIZE, SHARD_PADDING,
+                sequenceDictionary, ShardBalancerUnitTest::estimateCost);
+        final List<SimpleInterval> covered = new ArrayList<>();
+        for (final ShardBoundary shard : shards) {
+            Assert.assertEquals(shard.getPaddedInterval(), shard.getInterval().expandWithinContig(SHARD_PADDING, sequenceDictionary));
+            final SimpleInterval last = covered.isEmpty() ? null : covered.get(covered.size() - 1);
+            if (last != null && last.getContig().equals(shard.getContig())) {
+                Assert.assertEquals(shard.getStart(), last.getEnd() + 1, "shards must be contiguous and in order");
+                covered.set(covered.size() - 1, new SimpleInterval(last.getContig(), last.getStart(), shard.getEnd()));
+            } else {
+                Assert.assertEquals(shard.getStart(), 1);
+                covered.add(shard.getInterval());
+            }
+        }
+        Assert.assertEquals(covered, intervals);
+    }
+
+    @Test
+    public void testHotWindowsAreSplitAndColdWindowsMerged() {
+        final List<ShardBoundary> shards = ShardBalancer.divideIntervalsIntoShards(intervals, SHARD_SIZE, SHARD_PADDING,
+                sequenceDictionary, ShardBalancerUnitTest::estimateCost);
+        final SimpleInterval hotSpot = new SimpleInterval("1", 40_001, 41_000);
+        for (final ShardBoundary shard : shards) {
+            if (shard.getInterval().overlaps(hotSpot)) {
+                Assert.assertTrue(shard.getInterval().size() <= SHARD_SIZE / 4, "hot window not split: " + shard);
+                Assert.assertTrue(shard.getInterval().size() >= SHARD_SIZE / ShardBalancer.MAX_SPLITS);
+            }
+            if (shard.getContig().equals("2")) {
+                Assert.assertTrue(shard.getInterval().size() > SHARD_SIZE, "cold windows not merged: " + shard);
+            }
+            Assert.assertTrue(shard.getInterval().size() <= SHARD_SIZE * ShardBalancer.MAX_MERGES);
+            if (shard.getContig().equals("1") && !shard.getInterval().overlaps(hotSpot)) {
+                Assert.assertEquals(shard.getInterval().size(), SHARD_SIZE, "typical window changed: " + shard);
+            }
+        }
+    }
+
+    @Test
+    public void testUniformCostGivesShardsOfEqualSize() {
+        final List<ShardBoundary> shards = ShardBalancer.divideIntervalsIntoShards(intervals, SHARD_SIZE, SHARD_PADDING,
+                sequenceDictionary, window -> window.size());
+        Assert.assertEquals(shards.size(), 120);
+        shards.forEach(shard -> Assert.assertEquals(shard.getInterval().size(), SHARD_SIZE));
+    }
+
+    @Test
+    public void testNoEstimatesGivesShardsOfEqualSize() {
+        final List<ShardBoundary> shards = ShardBalancer.divideIntervalsIntoShards(intervals, SHARD_SIZE, SHARD_PADDING,
+                sequenceDictionary, window -> 0);
+        Assert.assertEquals(shards.size(), 120);
+        shards.forEach(shard -> Assert.assertEquals(shard.getInterval().size(), SHARD_SIZE));
+    }
+
+    @Test
+    public void testTimeShardPassesResultsThrough() {
+        final Iterator<Integer> timed = ShardBalancer.timeShard(new SimpleInterval("1", 1, 1000), () -> 3, System.nanoTime(),
+                Arrays.asList(1, 2, 3).iterator());
+        final List<Integer> results = new ArrayList<>();
+        timed.forEachRemaining(results::add);
+        Assert.assertEquals(results, Arrays.asList(1, 2, 3));
+        Assert.assertFalse(timed.hasNext());
+    }
+}
@@ -0,0 +1,171 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileWriter;
+import htsjdk.samtools.SAMFileWriterFactory;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.ValidationStringency;
+import htsjdk.samtools.util.OverlapDetector;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.engine.Shard;
+import org.broadinstitute.hellbender.engine.ShardBoundary;
+import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import scala.Tuple2;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public final class SplitAlignedSharderUnitTest extends GATKBaseTest implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int READ_LENGTH = 10;
+    private static final int SHARD_SIZE = 50;
+    private static final int SHARD_PADDING = 20;
+
+    private static final SAMFileHeader HEADER = ArtificialReadUtils.createArtificialSamHeader(2, 1, 500);
+    private static final SAMSequenceDictionary DICTIONARY = HEADER.getSequenceDictionary();
+
+    // reads every 7 bases on contig 1 and every 9 bases on contig 2, plus piles of reads starting at 1:100 and 1:200
+    private static final List<GATKRead> READS = makeReads();
+    private static final int PILE_SIZE = 6;
+    private static final int FIRST_READ_AT_100 = firstReadAt(0, 100);
+    private static final int FIRST_READ_AT_200 = firstReadAt(0, 200);
+    private static final int FIRST_READ_ON_CONTIG_2 = firstReadAt(1, 1);
+
+    private static final List<SimpleInterval> TRAVERSAL_INTERVALS = Arrays.asList(
+            new SimpleInterval("1", 90, 230), new SimpleInterval("2", 40, 130));
+
+    private File bam;
+
+    @BeforeClass
+    public void writeBam() {
+        bam = createTempFile("SplitAlignedSharderUnitTest", ".bam");
+        new File(bam.getAbsolutePath().replaceAll("\\.bam$", ".bai")).deleteOnExit();
+        try ( final SAMFileWriter writer = new SAMFileWriterFactory().setCreateIndex(true).makeBAMWriter(HEADER, true, bam) ) {
+            READS.forEach(read -> writer.addAlignment(read.convertToSAMRecord(HEADER)));
+        }
+    }
+
+    private static List<GATKRead> makeReads() {
+        final List<int[]> positions = new ArrayList<>();
+        for ( int start = 1; start <= 400; start += 7 ) {
+            positions.add(new int[]{0, start});
+        }
+        for ( int i = 0; i < PILE_SIZE; i++ ) {
+            positions.add(new int[]{0, 100});
+            positions.add(new int[]{0, 200});
+        }
+        for ( int start = 1; start <= 300; start += 9 ) {
+            positions.add(new int[]{1, start});
+        }
+        positions.sort(Comparator.<int[]>comparingInt(position -> position[0]).thenComparingInt(position -> position[1]));
+
+        final List<GATKRead> reads = new ArrayList<>();
+        for ( final int[] position : positions ) {
+            reads.add(ArtificialReadUtils.createArtificialRead(HEADER, "read" + reads.size(), position[0], position[1], READ_LENGTH));
+        }
+        return reads;
+    }
+
+    private static int firstReadAt(final int contigIndex, final int start) {
+        for ( int i = 0; i < READS.size(); i++ ) {
+            if ( READS.get(i).getContig().equals(DICTIONARY.getSequence(contigIndex).getSequenceName()) && READS.get(i).getStart() == start ) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("no read at " + contigIndex + ":" + start);
+    }
+
+    @DataProvider(name = "Partitions")
+    public Object[][] makePartitions() {
+        final int n = READS.size();
+        final List<int[]> splits = Arrays.asList(
+                // a single partition
+                new int[]{},
+                // several partition sizes
+                new int[]{n / 2},
+                new int[]{n / 3, 2 * n / 3},
+                evenSplits(n, 5),
+                evenSplits(n, 1),
+                // reads that share a start position on both sides of a partition boundary
+                new int[]{FIRST_READ_AT_100 + PILE_SIZE / 2},
+                // a partition whose reads all start at the same position, preceded by an empty partition
+                new int[]{FIRST_READ_AT_200, FIRST_READ_AT_200, FIRST_READ_AT_200 + PILE_SIZE},
+                // a partition boundary at the start of a contig
+                new int[]{FIRST_READ_ON_CONTIG_2}
+        );
+        final List<Object[]> data = new ArrayList<>();
+        for ( final int[] split : splits ) {
+            data.add(new Object[]{split, false});
+            data.add(new Object[]{split, true});
+        }
+        return data.toArray(new Object[0][]);
+    }
+
+    private static int[] evenSplits(final int n, final int partitionSize) {
+        final int[] splits = new int[(n - 1) / partitionSize];
+        for ( int i = 0; i < splits.length; i++ ) {
+            splits[i] = (i + 1) * partitionSize;
+        }
+        return splits;
+    }
+
+    @Test(dataProvider = "Partitions")
+    public void testSameShardsAsSparkSharder(final int[] splits, final boolean restrictToIntervals) {
+        final JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
+
+        final List<SimpleInterval> intervals = restrictToIntervals ? TRAVERSAL_INTERVALS :
+                Arrays.asList(new SimpleInterval("1", 1, 500), new SimpleInterval("2", 1, 500));
+        final List<ShardBoundary> shardBoundaries = intervals.stream()
+                .flatMap(interval -> Shard.divideIntervalIntoShards(interval, SHARD_SIZE, SHARD_PADDING, DICTIONARY).stream())
+                .collect(Collectors.toList());
+
+        // the reads of an RDD restricted to intervals are the reads that overlap them, in the same partitions
+        final OverlapDetector<SimpleInterval> overlapDetector = OverlapDetector.create(TRAVERSAL_INTERVALS);
+        final List<List<GATKRead>> partitions = new ArrayList<>();
+        for ( int i = 0; i <= splits.length; i++ ) {
+            final List<GATKRead> partition = READS.subList(i == 0 ? 0 : splits[i - 1], i == splits.length ? READS.size() : splits[i]);
+            partitions.add(partition.stream()
+                    .filter(read -> !restrictToIntervals || overlapDetector.overlapsAny(read))
+                    .collect(Collectors.toList()));
+        }
+        final JavaRDD<GATKRead> reads = ctx.parallelize(partitions, partitions.size()).flatMap(List::iterator);
+        Assert.assertEquals(reads.getNumPartitions(), splits.length + 1);
+
+        final Map<SimpleInterval, List<String>> expected = readNamesPerShard(
+                SparkSharder.shard(ctx, reads, GATKRead.class, DICTIONARY, shardBoundaries, READ_LENGTH));
+        final Map<SimpleInterval, List<String>> actual = readNamesPerShard(
+                SplitAlignedSharder.shard(ctx, reads, bam.getAbsolutePath(), DICTIONARY, shardBoundaries, READ_LENGTH,
+                        ReadFilterLibrary.ALLOW_ALL_READS, ValidationStringency.SILENT, restrictToIntervals ? TRAVERSAL_INTERVALS : null));
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(actual, expected);
+    }
+
+    // the names of the reads of the non-empty shards, sorted so that a read counted twice is not hidden
+    private static Map<SimpleInterval, List<String>> readNamesPerShard(final JavaRDD<Shard<GATKRead>> shards) {
+        return shards.mapToPair(shard -> {
+                    final List<String> names = new ArrayList<>();
+                    shard.forEach(read -> names.add(read.getName()));
+                    names.sort(Comparator.naturalOrder());
+                    return new Tuple2<>(shard.getInterval(), names);
+                })
+                .filter(shard -> !shard._2().isEmpty())
+                .collectAsMap();
+    }
+}
@@ -0,0 +1,42 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.api.java.function.Function0;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.engine.datasources.ReferenceMultiSource;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+public final class TwoBitReferenceCacheUnitTest extends GATKBaseTest {
+
+    private static final String TWO_BIT_REFERENCE = publicTestDir + "human_g1k_v37.chr17_1Mb.2bit";
+
+    @Test
+    public void testOneReferencePerPath() {
+        final ReferenceMultiSource reference = TwoBitReferenceCache.getReference(TWO_BIT_REFERENCE);
+        Assert.assertSame(TwoBitReferenceCache.getReference(TWO_BIT_REFERENCE), reference);
+    }
+
+    @Test
+    public void testDistributedReferenceHasSameBases() throws IOException {
+        final JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
+        final SimpleInterval interval = new SimpleInterval("17", 69000, 69100);
+        final Function0<ReferenceMultiSource> reference = TwoBitReferenceCache.distribute(ctx, TWO_BIT_REFERENCE);
+
+        // the distributed copy is only available to tasks
+        final List<byte[]> bases = ctx.parallelize(Collections.singletonList(interval), 1)
+                .map(i -> reference.call().getReferenceBases(i).getBases())
+                .collect();
+        Assert.assertEquals(bases.get(0), TwoBitReferenceCache.getReference(TWO_BIT_REFERENCE).getReferenceBases(interval).getBases());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testOnlyTwoBitReferencesAreDistributed() {
+        TwoBitReferenceCache.distribute(SparkContextFactory.getTestSparkContext(), publicTestDir + "human_g1k_v37.chr17_1Mb.fasta");
+    }
+}
@@ -7,12 +7,14 @@ import org.apache.spark.broadcast.Broadcast;
 import org.broadinstitute.hellbender.CommandLineProgramTest;
 import org.broadinstitute.hellbender.engine.datasources.ReferenceMultiSource;
 import org.broadinstitute.hellbender.engine.datasources.ReferenceWindowFunctions;
+import org.broadinstitute.hellbender.engine.spark.GATKSparkTool;
 import org.broadinstitute.hellbender.engine.spark.SparkContextFactory;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.walkers.genotyper.GenotypeCalculationArgumentCollection;
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.HaplotypeCallerArgumentCollection;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.test.IntegrationTestSpec;
 import org.broadinstitute.hellbender.utils.test.SparkTestUtils;
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -58,6 +60,31 @@ public class HaplotypeCallerSparkIntegrationTest extends CommandLineProgramTest
         Assert.assertTrue(concordance >= 0.99, "Concordance with GATK 3.8 in VCF mode is < 99% (" +  concordance + ")");
     }
 
+    /*
+    * Test that split-aligned sharding, over many small partitions, gives exactly the same output as the default sharding
+    */
+    @Test
+    public void testSplitAlignedShardingIsIdenticalToDefaultSharding() throws Exception {
+        final File defaultOutput = createTempFile("testSplitAlignedShardingIsIdenticalToDefaultSharding.default", ".vcf");
+        final File splitAlignedOutput = createTempFile("testSplitAlignedShardingIsIdenticalToDefaultSharding.splitAligned", ".vcf");
+
+        for ( final boolean splitAligned : new boolean[]{false, true} ) {
+            Utils.resetRandomGenerator();
+            final String[] args = {
+                    "-I", NA12878_20_21_WGS_bam,
+                    "-R", b37_2bit_reference_20_21,
+                    "-L", "20:10000000-10100000",
+                    "-O", (splitAligned ? splitAlignedOutput : defaultOutput).getAbsolutePath(),
+                    "-pairHMM", "AVX_LOGLESS_CACHING",
+                    "--split-aligned-sharding", String.valueOf(splitAligned),
+                    "--" + GATKSparkTool.BAM_PARTITION_SIZE_LONG_NAME, "1000000"
+            };
+            runCommandLine(args);
+        }
+
+        IntegrationTestSpec.assertEqualTextFiles(splitAlignedOutput, defaultOutput);
+    }
+
     /**
      * Test that in VCF mode we're >= 99% concordant with GATK3.8 results
      * THIS TEST explodes with an exception because Allele-Specific annotations are not supported in vcf mode yet.
@@ -3,19 +3,24 @@ package org.broadinstitute.hellbender.tools.spark;
 import htsjdk.samtools.ValidationStringency;
 import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.hellbender.CommandLineProgramTest;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.engine.datasources.ReferenceAPISource;
 import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.KnownSitesImageCreator;
 import org.broadinstitute.hellbender.tools.walkers.bqsr.BQSRTestData;
 import org.broadinstitute.hellbender.utils.test.IntegrationTestSpec;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.test.SamAssertionUtils;
 import org.broadinstitute.hellbender.utils.test.ArgumentsBuilder;
+import org.broadinstitute.hellbender.utils.variant.KnownSitesImage;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 public final class BaseRecalibratorSparkIntegrationTest extends CommandLineProgramTest {
 
@@ -143,6 +148,48 @@ public final class BaseRecalibratorSparkIntegrationTest extends CommandLineProgr
         spec.executeTest("testBQSRSpark-" + params.args, this);
     }
 
+    // the same BROADCAST cases as above, with the known sites given as an image made by KnownSitesImageCreator
+    @DataProvider(name = "BQSRKnownSitesImageTest")
+    public Object[][] createBQSRKnownSitesImageTestData() {
+        final String localResources =  getResourceDir();
+
+        final String hiSeqBam_chr20 = localResources + WGS_B37_CH20_1M_1M1K_BAM;
+        final String dbSNPb37_chr20 = localResources + DBSNP_138_B37_CH20_1M_1M1K_VCF;
+
+        final String hg19Chr171Mb_2bit = publicTestDir + "human_g1k_v37.chr17_1Mb.2bit";
+        final String HiSeqBam_chr17 = localResources + "NA12878.chr17_69k_70k.dictFix.bam";
+        final String dbSNPb37_chr17 =  localResources + "dbsnp_132.b37.excluding_sites_after_129.chr17_69k_70k.vcf";
+        final String more17Sites = localResources + "bqsr.fakeSitesForTesting.b37.chr17.vcf";
+
+        return new Object[][]{
+                {b37_2bit_reference_20_21, hiSeqBam_chr20, Arrays.asList(dbSNPb37_chr20), "-indels --enable-baq --join-strategy BROADCAST", localResources + BQSRTestData.EXPECTED_WGS_B37_CH20_1M_1M1K_RECAL},
+                {b37_2bit_reference_20_21, hiSeqBam_chr20, Arrays.asList(dbSNPb37_chr20), "--join-strategy BROADCAST", localResources + BQSRTestData.EXPECTED_WGS_B37_CH20_1M_1M1K_NOINDEL_NOBAQ_RECAL},
+                // both known sites files in a single image
+                {hg19Chr171Mb_2bit, HiSeqBam_chr17, Arrays.asList(dbSNPb37_chr17, more17Sites), "-indels --enable-baq --join-strategy BROADCAST", localResources + "expected.NA12878.chr17_69k_70k.2inputs.txt"},
+        };
+    }
+
+    @Test(dataProvider = "BQSRKnownSitesImageTest", groups = "spark")
+    public void testBQSRSparkWithKnownSitesImage(final String referenceURL, final String bam, final List<String> knownSites,
+                                                 final String args, final String expectedFileName) throws IOException {
+        final File image = createTempFile("knownSites", KnownSitesImage.FILE_EXTENSION);
+        final List<String> imageArgs = new ArrayList<>();
+        for ( final String sites : knownSites ) {
+            imageArgs.add("-" + StandardArgumentDefinitions.VARIANT_SHORT_NAME);
+            imageArgs.add(sites);
+        }
+        imageArgs.add("-" + StandardArgumentDefinitions.OUTPUT_SHORT_NAME);
+        imageArgs.add(image.getAbsolutePath());
+        new KnownSitesImageCreator().instanceMain(imageArgs.toArray(new String[0]));
+
+        // the expected tables are the ones the runs with the known sites files have to match
+        final BQSRTest params = new BQSRTest(referenceURL, bam, image.getAbsolutePath(), args, expectedFileName);
+        IntegrationTestSpec spec = new IntegrationTestSpec(
+                new ArgumentsBuilder().add(params.getCommandLine()).getString(),
+                Arrays.asList(params.expectedFileName));
+        spec.executeTest("testBQSRSparkWithKnownSitesImage-" + params.args, this);
+    }
+
     //This data provider is for tests that use reference (but not BAM) files stored in buckets
     @DataProvider(name = "BQSRCloudTest")
     public Object[][] createBQSRCloudTestData() {
@@ -0,0 +1,133 @@
+package org.broadinstitute.hellbender.tools.spark.pathseq;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.spark.sv.utils.SVKmerShort;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class PSKmerTableTest extends GATKBaseTest {
+
+    private final int kmerSize = 31;
+    private final SVKmerShort mask = SVKmerShort.getMask(new byte[]{15}, kmerSize);
+
+    @Test
+    public void testWriteAndQuery() {
+        final Random rand = new Random(48393943L);
+        final List<long[]> maskedKmers = new ArrayList<>();
+        final Set<Long> truthSet = new HashSet<>();
+        final List<SVKmerShort> rawKmers = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final long[] kmers = new long[1000];
+            for (int j = 0; j < kmers.length; j++) {
+                // repeat some kmers, as the reference does
+                final SVKmerShort rawKmer = i > 0 && j % 10 == 0 ? rawKmers.get(j) : new SVKmerShort(rand.nextLong() >>> 2);
+                rawKmers.add(rawKmer);
+                kmers[j] = PSKmerCollection.canonicalizeAndMask(rawKmer, kmerSize, mask);
+                truthSet.add(kmers[j]);
+            }
+            maskedKmers.add(kmers);
+        }
+        final long numKmers = PSKmerUtils.longArrayCollectionSize(maskedKmers);
+
+        final File tableFile = createTempFile("kmers", PSKmerUtils.KMER_TABLE_EXTENSION);
+        Assert.assertEquals(PSKmerTable.write(tableFile.getAbsolutePath(), maskedKmers, numKmers, kmerSize, mask), truthSet.size());
+
+        // the file format does not depend on how the slots are mapped, so map them in many small chunks too
+        for (final PSKmerTable table : Arrays.asList(new PSKmerTable(tableFile.getAbsolutePath()),
+                new PSKmerTable(tableFile.getAbsolutePath(), 8),
+                (PSKmerTable) PSKmerUtils.readKmerFilter(tableFile.getAbsolutePath()))) {
+            Assert.assertEquals(table.kmerSize(), kmerSize);
+            Assert.assertEquals(table.getMask(), mask);
+            Assert.assertEquals(table.getFalsePositiveProbability(), 0.0);
+            Assert.assertEquals(table.setSize(), truthSet.size());
+            for (final SVKmerShort rawKmer : rawKmers) {
+                Assert.assertTrue(table.contains(rawKmer));
+            }
+            for (int i = 0; i < 10000; i++) {
+                final long kmer = rand.nextLong() >>> 2;
+                Assert.assertEquals(table.containsMasked(kmer), truthSet.contains(kmer));
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyTable() {
+        final File tableFile = createTempFile("kmers", PSKmerUtils.KMER_TABLE_EXTENSION);
+        Assert.assertEquals(PSKmerTable.write(tableFile.getAbsolutePath(), Collections.emptyList(), 0, kmerSize, mask), 0);
+        final PSKmerTable table = new PSKmerTable(tableFile.getAbsolutePath());
+        Assert.assertEquals(table.setSize(), 0);
+        Assert.assertFalse(table.containsMasked(0));
+        Assert.assertFalse(table.contains(new SVKmerShort(12345L)));
+    }
+
+    @Test(expectedExceptions = UserException.MalformedFile.class)
+    public void testNotATable() throws IOException {
+        final File file = createTempFile("kmers", PSKmerUtils.KMER_TABLE_EXTENSION);
+        Files.write(file.toPath(), new byte[PSKmerTable.HEADER_BYTES + 8]);
+        new PSKmerTable(file.getAbsolutePath());
+    }
+
+    @Test(expectedExceptions = UserException.MalformedFile.class)
+    public void testTruncatedTable() throws IOException {
+        final File file = createTempFile("kmers", PSKmerUtils.KMER_TABLE_EXTENSION);
+        PSKmerTable.write(file.getAbsolutePath(), Collections.singletonList(new long[]{1, 2, 3}), 3, kmerSize, mask);
+        final byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 8));
+        new PSKmerTable(file.getAbsolutePath());
+    }
+
+    @Test
+    public void testTablesWithTheSameNameAndSizeDoNotShareALocalCopy() throws IOException {
+        final Random rand = new Random(9211L);
+        final File tableA = new File(createTempDir("bucketA"), "host" + PSKmerUtils.KMER_TABLE_EXTENSION);
+        final File tableB = new File(createTempDir("bucketB"), "host" + PSKmerUtils.KMER_TABLE_EXTENSION);
+        final long[] kmersA = writeRandomTable(tableA, 100, rand);
+        final long[] kmersB = writeRandomTable(tableB, 100, rand);
+        Assert.assertEquals(tableA.length(), tableB.length());
+
+        final java.nio.file.Path localDirectory = createTempDir("localCopies").toPath();
+        final java.nio.file.Path copyA = PSKmerUtils.copyKmerTableToDirectory(tableA.getAbsolutePath(), localDirectory);
+        final java.nio.file.Path copyB = PSKmerUtils.copyKmerTableToDirectory(tableB.getAbsolutePath(), localDirectory);
+        Assert.assertNotEquals(copyB, copyA);
+        Assert.assertEquals(PSKmerUtils.copyKmerTableToDirectory(tableA.getAbsolutePath(), localDirectory), copyA);
+        assertContainsOnly(new PSKmerTable(copyA.toString()), kmersA, kmersB);
+        assertContainsOnly(new PSKmerTable(copyB.toString()), kmersB, kmersA);
+
+        // a table rebuilt in place with a different number of kmers, but the same number of slots
+        final long[] rebuiltKmersA = writeRandomTable(tableA, 101, rand);
+        Assert.assertEquals(tableA.length(), tableB.length());
+        final java.nio.file.Path rebuiltCopyA = PSKmerUtils.copyKmerTableToDirectory(tableA.getAbsolutePath(), localDirectory);
+        Assert.assertNotEquals(rebuiltCopyA, copyA);
+        assertContainsOnly(new PSKmerTable(rebuiltCopyA.toString()), rebuiltKmersA, kmersA);
+    }
+
+    private long[] writeRandomTable(final File file, final int numKmers, final Random rand) {
+        final long[] kmers = new long[numKmers];
+        for (int i = 0; i < numKmers; i++) {
+            kmers[i] = PSKmerCollection.canonicalizeAndMask(new SVKmerShort(rand.nextLong() >>> 2), kmerSize, mask);
+        }
+        PSKmerTable.write(file.getAbsolutePath(), Collections.singletonList(kmers), numKmers, kmerSize, mask);
+        return kmers;
+    }
+
+    private static void assertContainsOnly(final PSKmerTable table, final long[] kmers, final long[] otherKmers) {
+        for (final long kmer : kmers) {
+            Assert.assertTrue(table.containsMasked(kmer));
+        }
+        for (final long kmer : otherKmers) {
+            Assert.assertFalse(table.containsMasked(kmer));
+        }
+    }
+}
@@ -1,21 +1,33 @@
 package org.broadinstitute.hellbender.tools.spark.transforms.markduplicates;
 
+import com.google.common.collect.Lists;
 import htsjdk.samtools.SAMFileHeader;
+import org.apache.spark.HashPartitioner;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.storage.StorageLevel;
 import org.broadinstitute.hellbender.cmdline.argumentcollections.OpticalDuplicatesArgumentCollection;
 import org.broadinstitute.hellbender.engine.spark.SparkContextFactory;
 import org.broadinstitute.hellbender.engine.spark.datasources.ReadsSparkSource;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
 import org.broadinstitute.hellbender.utils.read.markduplicates.MarkDuplicatesScoringStrategy;
 import org.broadinstitute.hellbender.utils.read.markduplicates.OpticalDuplicateFinder;
 import org.broadinstitute.hellbender.GATKBaseTest;
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
+import scala.Tuple2;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 public class MarkDuplicatesSparkUnitTest extends GATKBaseTest {
     @DataProvider(name = "md")
@@ -48,4 +60,70 @@ public class MarkDuplicatesSparkUnitTest extends GATKBaseTest {
         Assert.assertEquals(dupes.count(), dupsExpected);
     }
 
+    @DataProvider(name = "mdQueryname")
+    public Object[][] loadQuerynameReads() {
+        String dir = new File("src/test/resources/org/broadinstitute/hellbender/tools/walkers/MarkDuplicatesGATK/").getAbsolutePath();
+        return new Object[][]{
+                {dir + "/example.chr1.1-1K.unmarkedDups.noDups.bam"},
+                {dir + "/example.chr1.1-1K.unmarkedDups.bam"},
+                {dir + "/example.chr1.1-1K.markedDups.bam"},
+                {dir + "/optical_dupes.bam"},
+                {dir + "/inputSingleLibrarySolexa16404.bam"},
+        };
+    }
+
+    @Test(dataProvider = "mdQueryname", groups = "spark")
+    public void markQuerynameGroupedTest(final String input) {
+        JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
+
+        ReadsSparkSource readSource = new ReadsSparkSource(ctx);
+        SAMFileHeader header = readSource.getHeader(input, null).clone();
+        header.setSortOrder(SAMFileHeader.SortOrder.queryname);
+        // group the reads by name in a few partitions, cached so that they come out the same each time
+        JavaRDD<GATKRead> reads = readSource.getParallelReads(input, null)
+                .mapToPair(read -> new Tuple2<>(read.getName(), read))
+                .partitionBy(new HashPartitioner(3))
+                .values()
+                .mapPartitions(iter -> {
+                    final List<GATKRead> sorted = Lists.newArrayList(iter);
+                    sorted.sort(Comparator.comparing(GATKRead::getName));
+                    return sorted.iterator();
+                })
+                .persist(StorageLevel.MEMORY_ONLY_SER());
+
+        final OpticalDuplicateFinder finder = new OpticalDuplicateFinder();
+        final Map<String, GATKRead> expected = byReadKey(MarkDuplicatesSpark.mark(reads, header, MarkDuplicatesScoringStrategy.SUM_OF_BASE_QUALITIES, finder, 2).collect());
+        final List<GATKRead> marked = MarkDuplicatesSpark.markQuerynameGrouped(reads, header, MarkDuplicatesScoringStrategy.SUM_OF_BASE_QUALITIES, finder, 2).collect();
+        final Map<String, GATKRead> actual = byReadKey(marked);
+
+        // the reads come out in their input order
+        Assert.assertEquals(marked.stream().map(GATKRead::getName).collect(Collectors.toList()),
+                reads.collect().stream().map(GATKRead::getName).collect(Collectors.toList()));
+        Assert.assertEquals(actual.keySet(), expected.keySet());
+        for (final Map.Entry<String, GATKRead> entry : expected.entrySet()) {
+            final GATKRead read = actual.get(entry.getKey());
+            Assert.assertEquals(read.isDuplicate(), entry.getValue().isDuplicate(), entry.getKey());
+            Assert.assertEquals(read.getAttributeAsInteger(MarkDuplicatesSparkUtils.OPTICAL_DUPLICATE_TOTAL_ATTRIBUTE_NAME),
+                    entry.getValue().getAttributeAsInteger(MarkDuplicatesSparkUtils.OPTICAL_DUPLICATE_TOTAL_ATTRIBUTE_NAME), entry.getKey());
+        }
+        reads.unpersist();
+    }
+
+    @Test(expectedExceptions = UserException.BadInput.class, groups = "spark")
+    public void markQuerynameGroupedRequiresQuerynameOrder() {
+        JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
+        SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader();
+        header.setSortOrder(SAMFileHeader.SortOrder.coordinate);
+        MarkDuplicatesSpark.markQuerynameGrouped(ctx.emptyRDD(), header, MarkDuplicatesScoringStrategy.SUM_OF_BASE_QUALITIES, null, 1);
+    }
+
+    private static Map<String, GATKRead> byReadKey(final List<GATKRead> reads) {
+        final Map<String, GATKRead> byKey = new HashMap<>();
+        for (final GATKRead read : reads) {
+            final String key = read.getName() + "|" + ReadUtils.getSAMFlagsForRead(read) + "|" + read.getContig() + ":" + read.getStart();
+            Assert.assertNull(byKey.put(key, read), key);
+        }
+        return byKey;
+    }
+
 }
@@ -9,6 +9,10 @@ import org.apache.spark.api.java.JavaSparkContext;
 import org.broadinstitute.hellbender.engine.spark.SparkContextFactory;
 import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.markduplicates.MarkDuplicatesScoringStrategy;
+import org.broadinstitute.hellbender.utils.read.markduplicates.OpticalDuplicateFinder;
+import org.broadinstitute.hellbender.utils.read.markduplicates.PairedEnds;
 import org.broadinstitute.hellbender.utils.read.markduplicates.ReadsKey;
 import org.broadinstitute.hellbender.GATKBaseTest;
 import org.testng.Assert;
@@ -67,6 +71,69 @@ public class MarkDuplicatesSparkUtilsUnitTest extends GATKBaseTest {
                 ImmutableList.of(pairIterable(key1, read1, read3), pairIterable(key2, read2, read4)));
     }
 
+    @Test
+    public void testMarksForFragments() {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader();
+        final MarkDuplicatesScoringStrategy scoring = MarkDuplicatesScoringStrategy.SUM_OF_BASE_QUALITIES;
+        final GATKRead low = fragment(header, "low", 20);
+        final GATKRead high = fragment(header, "high", 30);
+        final GATKRead tie = fragment(header, "tie", 20);
+        final DuplicateSignature.Key key = DuplicateSignature.Key.ofFragment(0, high, header);
+        Assert.assertEquals(DuplicateSignature.Key.ofFragment(0, low, header), key);
+        Assert.assertNotEquals(DuplicateSignature.Key.ofFragment(1, low, header), key);
+
+        // all but the highest scoring fragment are duplicates
+        final List<DuplicateSignature> fragments = ImmutableList.of(
+                DuplicateSignature.ofFragment(low, 0, scoring, header),
+                DuplicateSignature.ofFragment(high, 1, scoring, header),
+                DuplicateSignature.ofFragment(tie, 2, scoring, header));
+        Assert.assertEquals(MarkDuplicatesSparkUtils.marksForGroup(key, fragments, null),
+                ImmutableList.of(new Tuple2<>(0L, MarkDuplicatesSparkUtils.DUPLICATE_MARK), new Tuple2<>(2L, MarkDuplicatesSparkUtils.DUPLICATE_MARK)));
+
+        // a read with a mapped mate makes all the fragments duplicates, and isn't marked itself
+        final GATKRead paired = ArtificialReadUtils.createPair(header, "paired", 10, 100, 300, true, false).get(0);
+        final List<DuplicateSignature> withPaired = ImmutableList.of(
+                DuplicateSignature.ofFragment(high, 1, scoring, header),
+                DuplicateSignature.ofFragment(paired, 3, scoring, header));
+        Assert.assertEquals(MarkDuplicatesSparkUtils.marksForGroup(key, withPaired, null),
+                ImmutableList.of(new Tuple2<>(1L, MarkDuplicatesSparkUtils.DUPLICATE_MARK)));
+    }
+
+    @Test
+    public void testMarksForPairs() {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader();
+        final MarkDuplicatesScoringStrategy scoring = MarkDuplicatesScoringStrategy.SUM_OF_BASE_QUALITIES;
+        final OpticalDuplicateFinder finder = new OpticalDuplicateFinder();
+        final List<GATKRead> best = ArtificialReadUtils.createPair(header, "machine:1:1:100:100", 10, 100, 300, true, false);
+        final List<GATKRead> optical = ArtificialReadUtils.createPair(header, "machine:1:1:110:110", 10, 100, 300, true, false);
+        final List<GATKRead> far = ArtificialReadUtils.createPair(header, "machine:1:1:5000:5000", 10, 100, 300, true, false);
+        best.forEach(read -> read.setBaseQualities(Utils.dupBytes((byte) 80, 10)));
+
+        final List<DuplicateSignature> pairs = new ArrayList<>();
+        for (final List<GATKRead> reads : ImmutableList.of(far, best, optical)) {
+            final PairedEnds pair = PairedEnds.of(reads.get(0)).and(reads.get(1));
+            final long index = 2 * pairs.size();
+            pairs.add(DuplicateSignature.ofPair(pair, index, index + 1, scoring, finder, header));
+        }
+        final PairedEnds bestPair = PairedEnds.of(best.get(0)).and(best.get(1));
+        final DuplicateSignature.Key key = DuplicateSignature.Key.ofPair(0, bestPair, header);
+        Assert.assertFalse(key.isFragment());
+        Assert.assertNotEquals(DuplicateSignature.Key.ofFragment(0, best.get(0), header), key);
+
+        // both reads of the other pairs (tied, so in name order) are duplicates, and the first read of the best pair gets the optical count
+        Assert.assertEquals(MarkDuplicatesSparkUtils.marksForGroup(key, pairs, finder),
+                ImmutableList.of(
+                        new Tuple2<>(4L, MarkDuplicatesSparkUtils.DUPLICATE_MARK), new Tuple2<>(5L, MarkDuplicatesSparkUtils.DUPLICATE_MARK),
+                        new Tuple2<>(0L, MarkDuplicatesSparkUtils.DUPLICATE_MARK), new Tuple2<>(1L, MarkDuplicatesSparkUtils.DUPLICATE_MARK),
+                        new Tuple2<>(2L, 1)));
+    }
+
+    private static GATKRead fragment(final SAMFileHeader header, final String name, final int quality) {
+        final GATKRead read = ArtificialReadUtils.createArtificialRead(header, name, 0, 100, 10);
+        read.setBaseQualities(Utils.dupBytes((byte) quality, 10));
+        return read;
+    }
+
     private String getReadGroupId(final SAMFileHeader header, final int index) {
         return header.getReadGroups().get(index).getReadGroupId();
     }
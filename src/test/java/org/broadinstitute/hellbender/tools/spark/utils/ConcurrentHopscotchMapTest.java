@@ -0,0 +1,54 @@
+package org.broadinstitute.hellbender.tools.spark.utils;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public final class ConcurrentHopscotchMapTest extends GATKBaseTest {
+
+    // a ConcurrentHopscotchMap is just like a ConcurrentHopscotchSet, which is separately tested, except that
+    // the uniqueness criterion and retrieval are by key, and entries can be merged.
+    // so we'll just test that new behavior here.
+
+    @Test
+    void addTest() {
+        final ConcurrentHopscotchMap<Integer, Integer, HopscotchMapTest.IntPair> hopscotchMap = new ConcurrentHopscotchMap<>(10, 4);
+        Assert.assertTrue(hopscotchMap.add(new HopscotchMapTest.IntPair(1,2)));
+        Assert.assertFalse(hopscotchMap.add(new HopscotchMapTest.IntPair(1,2)));
+        Assert.assertFalse(hopscotchMap.add(new HopscotchMapTest.IntPair(1,3)));
+        Assert.assertTrue(hopscotchMap.add(new HopscotchMapTest.IntPair(2,2)));
+        Assert.assertEquals(hopscotchMap.size(), 2);
+        Assert.assertEquals(hopscotchMap.find(1).getValue().intValue(), 2);
+        Assert.assertTrue(hopscotchMap.remove(1));
+        Assert.assertFalse(hopscotchMap.contains(1));
+    }
+
+    @Test
+    void concurrentMergeTest() throws InterruptedException {
+        final int nThreads = 8;
+        final int nKeys = 1000;
+        final int nMergesPerKey = 10;
+        final ConcurrentHopscotchMap<Integer, Integer, HopscotchMapTest.IntPair> counts = new ConcurrentHopscotchMap<>(10, 4);
+        final ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        for ( int thread = 0; thread < nThreads; thread++ ) {
+            executor.submit(() -> {
+                for ( int i = 0; i < nMergesPerKey; i++ ) {
+                    for ( int key = 0; key < nKeys; key++ ) {
+                        counts.merge(new HopscotchMapTest.IntPair(key, 1), (old, entry) -> old.setValue(old.getValue() + entry.getValue()));
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        Assert.assertEquals(counts.size(), nKeys);
+        for ( int key = 0; key < nKeys; key++ ) {
+            Assert.assertEquals(counts.find(key).getValue().intValue(), nThreads * nMergesPerKey);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.broadinstitute.hellbender.tools.spark.utils;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+public final class ConcurrentHopscotchSetTest extends GATKBaseTest {
+
+    private static final List<Integer> testVals = Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15);
+    private static final int notInTestVals = 0;
+    private static final int RAND_SEED = 0xdeadf00;
+    private static final int HHASH_NVALS = 100000;
+
+    @Test
+    void addTest() {
+        final ConcurrentHopscotchSet<Integer> hopscotchSet = new ConcurrentHopscotchSet<>(testVals.size(), 4);
+        for ( final Integer val : testVals ) {
+            Assert.assertTrue(hopscotchSet.add(val));
+            Assert.assertFalse(hopscotchSet.add(val));
+        }
+        Assert.assertEquals(hopscotchSet.size(), testVals.size());
+        for ( final Integer val : testVals ) {
+            Assert.assertTrue(hopscotchSet.contains(val));
+            Assert.assertEquals(hopscotchSet.find(val), val);
+        }
+        Assert.assertFalse(hopscotchSet.contains(notInTestVals));
+        Assert.assertNull(hopscotchSet.find(notInTestVals));
+        Assert.assertEquals(new HashSet<>(hopscotchSet.stream().collect(Collectors.toList())), new HashSet<>(testVals));
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    void addNullTest() {
+        new ConcurrentHopscotchSet<Integer>().add(null);
+    }
+
+    @Test
+    void removeAndClearTest() {
+        final ConcurrentHopscotchSet<Integer> hopscotchSet = new ConcurrentHopscotchSet<>(testVals.size(), 4);
+        Assert.assertTrue(hopscotchSet.addAll(testVals));
+        Assert.assertFalse(hopscotchSet.addAll(testVals));
+        Assert.assertTrue(hopscotchSet.remove(testVals.get(0)));
+        Assert.assertFalse(hopscotchSet.remove(testVals.get(0)));
+        Assert.assertEquals(hopscotchSet.size(), testVals.size() - 1);
+        hopscotchSet.clear();
+        Assert.assertTrue(hopscotchSet.isEmpty());
+    }
+
+    @Test
+    void bulkAddTest() {
+        final Random rng = new Random(RAND_SEED);
+        final List<Integer> vals = new ArrayList<>(HHASH_NVALS);
+        for ( int i = 0; i < HHASH_NVALS; i++ ) {
+            vals.add(rng.nextInt());
+        }
+        final Set<Integer> truthSet = new HashSet<>(vals);
+
+        final ConcurrentHopscotchSet<Integer> hopscotchSet = new ConcurrentHopscotchSet<>(1000);
+        hopscotchSet.addAll(vals);
+        Assert.assertEquals(hopscotchSet.size(), truthSet.size());
+        Assert.assertTrue(hopscotchSet.capacity() >= hopscotchSet.size());
+        for ( final Integer val : vals ) {
+            Assert.assertTrue(hopscotchSet.contains(val));
+        }
+
+        // merging stripe by stripe, and into a set with a different striping
+        for ( final int concurrencyLevel : new int[]{hopscotchSet.getConcurrencyLevel(), 3} ) {
+            final ConcurrentHopscotchSet<Integer> mergedSet = new ConcurrentHopscotchSet<>(10, concurrencyLevel);
+            Assert.assertTrue(mergedSet.add(vals.get(0)));
+            Assert.assertTrue(mergedSet.addAll(hopscotchSet));
+            Assert.assertFalse(mergedSet.addAll(hopscotchSet));
+            Assert.assertEquals(mergedSet.size(), truthSet.size());
+            Assert.assertEquals(mergedSet.stream().collect(Collectors.toSet()), truthSet);
+        }
+    }
+
+    @Test
+    void concurrentAddTest() throws InterruptedException {
+        final int nThreads = 8;
+        final Random rng = new Random(RAND_SEED);
+        final List<List<Integer>> valsPerThread = new ArrayList<>(nThreads);
+        for ( int thread = 0; thread < nThreads; thread++ ) {
+            final List<Integer> vals = new ArrayList<>();
+            for ( int i = 0; i < HHASH_NVALS / nThreads; i++ ) {
+                // every thread adds some of the values of the first one
+                vals.add(i % 4 == 0 && thread > 0 ? valsPerThread.get(0).get(i) : rng.nextInt());
+            }
+            valsPerThread.add(vals);
+        }
+        final Set<Integer> truthSet = valsPerThread.stream().flatMap(List::stream).collect(Collectors.toSet());
+
+        final ConcurrentHopscotchSet<Integer> hopscotchSet = new ConcurrentHopscotchSet<>(1000, 4);
+        final ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        for ( final List<Integer> vals : valsPerThread ) {
+            executor.submit(() -> vals.forEach(hopscotchSet::add));
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        Assert.assertEquals(hopscotchSet.size(), truthSet.size());
+        Assert.assertEquals(hopscotchSet.stream().collect(Collectors.toSet()), truthSet);
+    }
+}
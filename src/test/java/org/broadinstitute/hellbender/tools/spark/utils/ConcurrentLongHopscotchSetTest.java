@@ -0,0 +1,127 @@
+package org.broadinstitute.hellbender.tools.spark.utils;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public final class ConcurrentLongHopscotchSetTest extends GATKBaseTest {
+
+    private static final long[] testVals = {0, 1, 2, 8, 16, 42, 97, 100, 2894765};
+    private static final long notInTestVals = 6;
+    private static final int RAND_SEED = 0xdeadf00;
+    private static final int HHASH_NVALS = 100000;
+
+    private static long randomLong(Random rng) {
+        return (((long) rng.nextInt()) | (((long) rng.nextInt()) << 31)) & Long.MAX_VALUE;
+    }
+
+    @Test
+    void addTest() {
+        final ConcurrentLongHopscotchSet hopscotchSet = new ConcurrentLongHopscotchSet(testVals.length, 4);
+        for (final long val : testVals) {
+            Assert.assertTrue(hopscotchSet.add(val));
+            Assert.assertFalse(hopscotchSet.add(val));
+        }
+        Assert.assertEquals(hopscotchSet.size(), testVals.length);
+        Assert.assertTrue(hopscotchSet.containsAll(testVals));
+        Assert.assertFalse(hopscotchSet.contains(notInTestVals));
+    }
+
+    @Test
+    void removeTest() {
+        final ConcurrentLongHopscotchSet hopscotchSet = new ConcurrentLongHopscotchSet(testVals.length, 4);
+        hopscotchSet.addAll(testVals);
+        for (final long val : testVals) {
+            Assert.assertTrue(hopscotchSet.remove(val));
+            Assert.assertFalse(hopscotchSet.remove(val));
+        }
+        Assert.assertTrue(hopscotchSet.isEmpty());
+    }
+
+    @Test
+    void concurrencyLevelTest() {
+        Assert.assertEquals(new ConcurrentLongHopscotchSet(1, 7).getConcurrencyLevel(), 7);
+        // never fewer stripes than a LargeLongHopscotchSet of the same size has partitions
+        Assert.assertEquals(new ConcurrentLongHopscotchSet(1000000, 1).getConcurrencyLevel(),
+                new LargeLongHopscotchSet(1000000).getSets().size());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    void addAllNegativeTest() {
+        new ConcurrentLongHopscotchSet(10).addAll(new long[]{1, -1});
+    }
+
+    @Test
+    void bulkAddTest() {
+        final Random rng = new Random(RAND_SEED);
+        final long[] vals = new long[HHASH_NVALS];
+        final Set<Long> truthSet = new HashSet<>(2 * HHASH_NVALS);
+        for (int i = 0; i < HHASH_NVALS; i++) {
+            // repeat a few values, so that some adds are duplicates
+            vals[i] = i % 10 == 0 ? vals[i / 2] : randomLong(rng);
+            truthSet.add(vals[i]);
+        }
+        final ConcurrentLongHopscotchSet hopscotchSet = new ConcurrentLongHopscotchSet(HHASH_NVALS);
+        hopscotchSet.addAll(vals);
+        Assert.assertEquals(hopscotchSet.size(), truthSet.size());
+        Assert.assertTrue(hopscotchSet.containsAll(vals));
+        Assert.assertTrue(hopscotchSet.capacity() >= hopscotchSet.size());
+
+        final LargeLongHopscotchSet largeSet = hopscotchSet.toLargeLongHopscotchSet();
+        Assert.assertEquals(largeSet.size(), truthSet.size());
+        Assert.assertTrue(largeSet.containsAll(vals));
+        final LongIterator itr = largeSet.iterator();
+        int count = 0;
+        while (itr.hasNext()) {
+            Assert.assertTrue(truthSet.contains(itr.next()));
+            count += 1;
+        }
+        Assert.assertEquals(count, truthSet.size());
+
+        // merging into another set with a different striping
+        final ConcurrentLongHopscotchSet mergedSet = new ConcurrentLongHopscotchSet(10, 3);
+        mergedSet.addAll(largeSet);
+        Assert.assertEquals(mergedSet.size(), truthSet.size());
+        Assert.assertTrue(mergedSet.containsAll(vals));
+    }
+
+    @Test
+    void concurrentAddTest() throws InterruptedException {
+        final int nThreads = 8;
+        final Random rng = new Random(RAND_SEED);
+        final long[][] valsPerThread = new long[nThreads][HHASH_NVALS / nThreads];
+        final Set<Long> truthSet = new HashSet<>(2 * HHASH_NVALS);
+        for (final long[] vals : valsPerThread) {
+            for (int i = 0; i < vals.length; i++) {
+                // every thread adds some of the values of the first one
+                vals[i] = i % 4 == 0 ? valsPerThread[0][i] : randomLong(rng);
+                truthSet.add(vals[i]);
+            }
+        }
+
+        final ConcurrentLongHopscotchSet hopscotchSet = new ConcurrentLongHopscotchSet(1000, 4);
+        final ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        for (final long[] vals : valsPerThread) {
+            executor.submit(() -> {
+                for (final long val : vals) {
+                    hopscotchSet.add(val);
+                }
+            });
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        final LargeLongHopscotchSet largeSet = hopscotchSet.toLargeLongHopscotchSet();
+        Assert.assertEquals(largeSet.size(), truthSet.size());
+        for (final long[] vals : valsPerThread) {
+            Assert.assertTrue(largeSet.containsAll(vals));
+        }
+    }
+}
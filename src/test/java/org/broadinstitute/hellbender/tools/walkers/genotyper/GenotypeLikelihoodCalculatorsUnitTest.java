@@ -1,6 +1,8 @@
 package org.broadinstitute.hellbender.tools.walkers.genotyper;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.MathUtils;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.DataProvider;
@@ -9,6 +11,11 @@ import org.testng.annotations.Test;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public final class GenotypeLikelihoodCalculatorsUnitTest extends GATKBaseTest {
 
@@ -99,4 +106,68 @@ public final class GenotypeLikelihoodCalculatorsUnitTest extends GATKBaseTest {
         Assert.assertEquals(3, GenotypeLikelihoodCalculators.computeMaxAcceptableAlleleCount(20, 1024));
         Assert.assertEquals(2, GenotypeLikelihoodCalculators.computeMaxAcceptableAlleleCount(100, 1024));
     }
+
+    @Test
+    public void testInstancesAreReusedWithinAThread() throws Exception {
+        final GenotypeLikelihoodCalculator calculator = calcs.getInstance(2, 3);
+        Assert.assertSame(new GenotypeLikelihoodCalculators().getInstance(2, 3), calculator);
+        Assert.assertNotSame(calcs.getInstance(3, 3), calculator);
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("calculators-test-thread-%d").setDaemon(true).build());
+        try {
+            final GenotypeLikelihoodCalculator otherThreadCalculator = executor.submit(() -> calcs.getInstance(2, 3)).get();
+            Assert.assertNotSame(otherThreadCalculator, calculator);
+            Assert.assertEquals(otherThreadCalculator.genotypeCount(), calculator.genotypeCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testGenotypesAreKeptWhenTablesGrow() {
+        final GenotypeLikelihoodCalculator small = calcs.getInstance(3, 4);
+        final GenotypeAlleleCounts genotype = small.genotypeAlleleCountsAt(5);
+        final GenotypeLikelihoodCalculator large = calcs.getInstance(7, 40);
+        Assert.assertSame(calcs.getInstance(3, 40).genotypeAlleleCountsAt(5), genotype);
+
+        // calculators created before the tables grew remain valid
+        Assert.assertEquals(small.genotypeCount(), 20);
+        Assert.assertEquals(small.genotypeAlleleCountsAt(19).index(), 19);
+        Assert.assertEquals(large.genotypeCount(), calcs.genotypeCount(7, 40));
+    }
+
+    @Test
+    public void testConcurrentGrowth() throws Exception {
+        final int numThreads = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(numThreads, new ThreadFactoryBuilder().setNameFormat("calculators-test-thread-%d").setDaemon(true).build());
+        try {
+            final List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < numThreads; t++) {
+                final Random random = new Random(t);
+                results.add(executor.submit((Callable<Void>) () -> {
+                    final GenotypeLikelihoodCalculators calculators = new GenotypeLikelihoodCalculators();
+                    for (int i = 0; i < 200; i++) {
+                        final int ploidy = 1 + random.nextInt(12);
+                        final int alleleCount = 1 + random.nextInt(12);
+                        final GenotypeLikelihoodCalculator calculator = calculators.getInstance(ploidy, alleleCount);
+                        final int expected = (int) Math.round(MathUtils.binomialCoefficient(ploidy + alleleCount - 1, alleleCount - 1));
+                        Assert.assertEquals(calculator.genotypeCount(), expected);
+                        Assert.assertEquals(calculators.genotypeCount(ploidy, alleleCount), expected);
+                        final int index = random.nextInt(expected);
+                        final GenotypeAlleleCounts genotype = calculator.genotypeAlleleCountsAt(index);
+                        Assert.assertEquals(genotype.index(), index);
+                        final int[] alleleCounts = new int[genotype.distinctAlleleCount() << 1];
+                        genotype.copyAlleleCounts(alleleCounts, 0);
+                        Assert.assertEquals(calculator.alleleCountsToIndex(alleleCounts), index);
+                    }
+                    return null;
+                }));
+            }
+            for (final Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
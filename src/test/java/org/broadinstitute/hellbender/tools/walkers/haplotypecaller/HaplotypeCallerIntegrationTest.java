@@ -6,6 +6,7 @@ import htsjdk.variant.variantcontext.VariantContext;
 import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.hellbender.CommandLineProgramTest;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.engine.AssemblyRegionWalker;
 import org.broadinstitute.hellbender.engine.FeatureDataSource;
 import org.broadinstitute.hellbender.engine.ReadsDataSource;
 import org.broadinstitute.hellbender.exceptions.UserException;
@@ -185,6 +186,108 @@ public class HaplotypeCallerIntegrationTest extends CommandLineProgramTest {
         IntegrationTestSpec.assertEqualTextFiles(output, expected);
     }
 
+    @DataProvider(name="MultithreadedTestInputs")
+    public Object[][] getMultithreadedTestInputs() {
+        return new Object[][] {
+                {"NONE", "expected.testVCFMode.gatk4.vcf"},
+                {"GVCF", "expected.testGVCFMode.gatk4.g.vcf"}
+        };
+    }
+
+    /*
+     * Test that processing assembly regions on multiple threads gives exactly the same output as a single-threaded run
+     */
+    @Test(dataProvider="MultithreadedTestInputs")
+    public void testMultithreadedOutputIsIdenticalToPastResults(final String referenceConfidenceMode, final String expectedFileName) throws Exception {
+        Utils.resetRandomGenerator();
+
+        final File output = createTempFile("testMultithreadedOutputIsIdenticalToPastResults", ".vcf");
+        final File expected = new File(TEST_FILES_DIR, expectedFileName);
+
+        final String[] args = {
+                "-I", NA12878_20_21_WGS_bam,
+                "-R", b37_reference_20_21,
+                "-L", "20:10000000-10100000",
+                "-O", output.getAbsolutePath(),
+                "-ERC", referenceConfidenceMode,
+                "-pairHMM", "AVX_LOGLESS_CACHING",
+                "--" + AssemblyRegionWalker.ASSEMBLY_REGION_THREADS_LONG_NAME, "4",
+                "--" + StandardArgumentDefinitions.ADD_OUTPUT_VCF_COMMANDLINE, "false"
+        };
+
+        runCommandLine(args);
+
+        // Test for an exact match against past (single-threaded) results
+        IntegrationTestSpec.assertEqualTextFiles(output, expected);
+    }
+
+    @Test(expectedExceptions = CommandLineException.BadArgumentValue.class)
+    public void testMultithreadedWithBamoutIsRejected() throws Exception {
+        final File output = createTempFile("testMultithreadedWithBamoutIsRejected", ".vcf");
+        final File bamOutput = createTempFile("testMultithreadedWithBamoutIsRejected", ".bam");
+
+        final String[] args = {
+                "-I", NA12878_20_21_WGS_bam,
+                "-R", b37_reference_20_21,
+                "-L", "20:10000000-10010000",
+                "-O", output.getAbsolutePath(),
+                "-bamout", bamOutput.getAbsolutePath(),
+                "--" + AssemblyRegionWalker.ASSEMBLY_REGION_THREADS_LONG_NAME, "2"
+        };
+
+        runCommandLine(args);
+    }
+
+    @DataProvider(name="ReferenceConfidenceModes")
+    public Object[][] getReferenceConfidenceModes() {
+        return new Object[][] {
+                {"NONE", ".vcf"},
+                {"GVCF", ".g.vcf"}
+        };
+    }
+
+    /*
+     * Test that skipping the assembly of trivial regions is >= 99% concordant with assembling every region
+     */
+    @Test(dataProvider="ReferenceConfidenceModes")
+    public void testSkipAssemblyForTrivialRegionsIsConcordantWithAssembly(final String referenceConfidenceMode, final String extension) throws Exception {
+        final File assembledOutput = createTempFile("testSkipAssemblyForTrivialRegionsIsConcordantWithAssembly.assembled", extension);
+        final File skippedOutput = createTempFile("testSkipAssemblyForTrivialRegionsIsConcordantWithAssembly.skipped", extension);
+
+        for ( final boolean skipAssembly : new boolean[]{false, true} ) {
+            Utils.resetRandomGenerator();
+            final String[] args = {
+                    "-I", NA12878_20_21_WGS_bam,
+                    "-R", b37_reference_20_21,
+                    "-L", "20:10000000-10100000",
+                    "-O", (skipAssembly ? skippedOutput : assembledOutput).getAbsolutePath(),
+                    "-ERC", referenceConfidenceMode,
+                    "-pairHMM", "AVX_LOGLESS_CACHING",
+                    "--skip-assembly-for-trivial-regions", String.valueOf(skipAssembly)
+            };
+            runCommandLine(args);
+        }
+
+        final double concordance = calculateConcordance(skippedOutput, assembledOutput);
+        Assert.assertTrue(concordance >= 0.99, "Concordance with assembling every region in " + referenceConfidenceMode + " mode is < 99% (" +  concordance + ")");
+    }
+
+    @Test(expectedExceptions = CommandLineException.BadArgumentValue.class)
+    public void testMultithreadedWithKmerSizeSkippingIsRejected() throws Exception {
+        final File output = createTempFile("testMultithreadedWithKmerSizeSkippingIsRejected", ".vcf");
+
+        final String[] args = {
+                "-I", NA12878_20_21_WGS_bam,
+                "-R", b37_reference_20_21,
+                "-L", "20:10000000-10010000",
+                "-O", output.getAbsolutePath(),
+                "--skip-kmer-sizes-failed-in-same-repeat", "2",
+                "--" + AssemblyRegionWalker.ASSEMBLY_REGION_THREADS_LONG_NAME, "2"
+        };
+
+        runCommandLine(args);
+    }
+
     /*
      * Test that in GVCF mode we're consistent with past GATK4 results using AS_ annotations
      *
@@ -0,0 +1,200 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
+
+import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.VariantContext;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.engine.AssemblyRegion;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedSampleList;
+import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
+import org.broadinstitute.hellbender.utils.genotyper.ReadLikelihoods;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.stream.Collectors;
+
+public final class PileupPrefilterUnitTest extends GATKBaseTest {
+
+    private static final String CONTIG = "1";
+    private static final int REGION_START = 12001;
+    private static final int REGION_END = 12100;
+    private static final int EXTENSION = 50;
+    private static final int READ_LENGTH = 60;
+    private static final int SNP_POSITION = 12050;
+
+    private static final byte MIN_BASE_QUALITY = 10;
+    private static final int MIN_MISMATCH_COUNT = 2;
+
+    @Test
+    public void testReferenceRegion() {
+        final List<GATKRead> reads = makeReads(Collections.emptyList(), 0, (byte) 'A', (byte) 30);
+        // a single high quality mismatch is a sequencing error that the assembly would prune
+        addMismatch(reads.get(3), reads.get(3).getStart() + 7, (byte) 30);
+
+        final PileupPrefilter prefilter = new PileupPrefilter(MIN_BASE_QUALITY, MIN_MISMATCH_COUNT);
+        final AssemblyResultSet result = prefilter.resolveWithoutAssembly(makeRegion(reads), hg19ReferenceReader);
+        Assert.assertNotNull(result);
+        Assert.assertEquals(result.getHaplotypeCount(), 1);
+        Assert.assertTrue(result.getReferenceHaplotype().isReference());
+        Assert.assertFalse(result.isVariationPresent());
+        Assert.assertEquals(result.getReferenceHaplotype().getGenomeLocation(), new SimpleInterval(CONTIG, REGION_START - EXTENSION, REGION_END + EXTENSION));
+        assertCounts(prefilter, 1, 0, 0);
+    }
+
+    @Test
+    public void testSingleSNPRegion() {
+        final byte refBase = referenceBase(SNP_POSITION);
+        final byte altBase = (byte) (refBase == 'A' ? 'C' : 'A');
+        final List<GATKRead> reads = makeReads(Arrays.asList(0, 2, 4), SNP_POSITION, altBase, (byte) 30);
+        // low quality mismatches elsewhere are ignored, as they are by the assembler
+        for ( final int i : Arrays.asList(1, 3, 5) ) {
+            addMismatch(reads.get(i), SNP_POSITION + 3, (byte) (MIN_BASE_QUALITY - 1));
+        }
+
+        final PileupPrefilter prefilter = new PileupPrefilter(MIN_BASE_QUALITY, MIN_MISMATCH_COUNT);
+        final AssemblyRegion region = makeRegion(reads);
+        final AssemblyResultSet result = prefilter.resolveWithoutAssembly(region, hg19ReferenceReader);
+        Assert.assertNotNull(result);
+        Assert.assertEquals(result.getHaplotypeCount(), 2);
+        final SortedSet<VariantContext> events = result.getVariationEvents();
+        Assert.assertEquals(events.size(), 1);
+        final VariantContext snp = events.first();
+        Assert.assertEquals(snp.getStart(), SNP_POSITION);
+        Assert.assertEquals(snp.getReference(), Allele.create(refBase, true));
+        Assert.assertEquals(snp.getAlternateAllele(0), Allele.create(altBase, false));
+        assertCounts(prefilter, 0, 1, 0);
+
+        // reads carrying the SNP are more likely to come from the SNP haplotype, the others from the reference
+        final ReadLikelihoodCalculationEngine engine = new UngappedLikelihoodCalculationEngine(-4.5, (byte) 18);
+        final Map<String, List<GATKRead>> readsBySample = Collections.singletonMap("sample", region.getReads());
+        final ReadLikelihoods<Haplotype> likelihoods = engine.computeReadLikelihoods(result, new IndexedSampleList("sample"), readsBySample);
+        final LikelihoodMatrix<Haplotype> matrix = likelihoods.sampleMatrix(0);
+        final int refIndex = matrix.indexOfAllele(result.getReferenceHaplotype());
+        final int altIndex = 1 - refIndex;
+        for ( int r = 0; r < matrix.numberOfReads(); r++ ) {
+            final GATKRead read = matrix.getRead(r);
+            final boolean coversSNP = read.getStart() <= SNP_POSITION && read.getEnd() >= SNP_POSITION;
+            final boolean carriesSNP = coversSNP && read.getBase(SNP_POSITION - read.getStart()) == altBase;
+            if ( ! coversSNP ) {
+                Assert.assertEquals(matrix.get(refIndex, r), matrix.get(altIndex, r), 1e-10);
+            } else {
+                Assert.assertEquals(matrix.get(altIndex, r) > matrix.get(refIndex, r), carriesSNP, read.getName());
+            }
+        }
+        engine.close();
+    }
+
+    @Test
+    public void testTwoMismatchColumnsAreAssembled() {
+        final byte altBase = (byte) (referenceBase(SNP_POSITION) == 'A' ? 'C' : 'A');
+        final List<GATKRead> reads = makeReads(Arrays.asList(0, 2, 4), SNP_POSITION, altBase, (byte) 30);
+        for ( final int i : Arrays.asList(1, 3, 5) ) {
+            addMismatch(reads.get(i), SNP_POSITION + 5, (byte) 30);
+        }
+
+        final PileupPrefilter prefilter = new PileupPrefilter(MIN_BASE_QUALITY, MIN_MISMATCH_COUNT);
+        Assert.assertNull(prefilter.resolveWithoutAssembly(makeRegion(reads), hg19ReferenceReader));
+        assertCounts(prefilter, 0, 0, 1);
+    }
+
+    @Test
+    public void testTwoAlternateBasesAreAssembled() {
+        final byte refBase = referenceBase(SNP_POSITION);
+        final byte[] altBases = "ACGT".replace(String.valueOf((char) refBase), "").getBytes();
+        final List<GATKRead> reads = makeReads(Arrays.asList(0, 2), SNP_POSITION, altBases[0], (byte) 30);
+        for ( final int i : Arrays.asList(1, 3) ) {
+            reads.get(i).setBases(withBase(reads.get(i), SNP_POSITION, altBases[1]));
+        }
+
+        final PileupPrefilter prefilter = new PileupPrefilter(MIN_BASE_QUALITY, MIN_MISMATCH_COUNT);
+        Assert.assertNull(prefilter.resolveWithoutAssembly(makeRegion(reads), hg19ReferenceReader));
+    }
+
+    @Test
+    public void testIndelsAndSoftClipsAreAssembled() {
+        for ( final String cigar : Arrays.asList("30M1D30M", "30M1I29M", "5S55M") ) {
+            final List<GATKRead> reads = makeReads(Collections.emptyList(), 0, (byte) 'A', (byte) 30);
+            final GATKRead read = reads.get(5);
+            read.setCigar(cigar);
+
+            final PileupPrefilter prefilter = new PileupPrefilter(MIN_BASE_QUALITY, MIN_MISMATCH_COUNT);
+            Assert.assertNull(prefilter.resolveWithoutAssembly(makeRegion(reads), hg19ReferenceReader), cigar);
+            assertCounts(prefilter, 0, 0, 1);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testRegionMustBeFinalized() {
+        final AssemblyRegion region = makeRegion(makeReads(Collections.emptyList(), 0, (byte) 'A', (byte) 30));
+        region.setFinalized(false);
+        new PileupPrefilter(MIN_BASE_QUALITY, MIN_MISMATCH_COUNT).resolveWithoutAssembly(region, hg19ReferenceReader);
+    }
+
+    private static void assertCounts(final PileupPrefilter prefilter, final long reference, final long singleSNP, final long assembled) {
+        Assert.assertEquals(prefilter.getReferenceRegionCount(), reference);
+        Assert.assertEquals(prefilter.getSingleSNPRegionCount(), singleSNP);
+        Assert.assertEquals(prefilter.getAssembledRegionCount(), assembled);
+    }
+
+    private byte referenceBase(final int position) {
+        return hg19ReferenceReader.getSubsequenceAt(CONTIG, position, position).getBases()[0];
+    }
+
+    /**
+     * Reference reads tiling the extended span of the region, with altBase at snpPosition in the reads with the given indices
+     */
+    private List<GATKRead> makeReads(final List<Integer> snpReads, final int snpPosition, final byte altBase, final byte quality) {
+        final List<GATKRead> reads = new ArrayList<>();
+        for ( int start = REGION_START - EXTENSION; start + READ_LENGTH - 1 <= REGION_END + EXTENSION; start += 10 ) {
+            final int end = start + READ_LENGTH - 1;
+            final byte[] bases = hg19ReferenceReader.getSubsequenceAt(CONTIG, start, end).getBases();
+            final byte[] quals = new byte[READ_LENGTH];
+            Arrays.fill(quals, quality);
+            reads.add(ArtificialReadUtils.createArtificialRead(hg19Header, "read" + reads.size(), CONTIG, start, bases, quals, READ_LENGTH + "M"));
+        }
+        final List<GATKRead> covering = new ArrayList<>();
+        for ( final GATKRead read : reads ) {
+            if ( read.getStart() <= snpPosition && read.getEnd() >= snpPosition ) {
+                covering.add(read);
+            }
+        }
+        for ( final int i : snpReads ) {
+            covering.get(i).setBases(withBase(covering.get(i), snpPosition, altBase));
+        }
+        // reads covering the SNP first, so that indices in tests refer to them
+        covering.addAll(reads.stream().filter(read -> ! covering.contains(read)).collect(Collectors.toList()));
+        return covering;
+    }
+
+    private static byte[] withBase(final GATKRead read, final int position, final byte base) {
+        final byte[] bases = read.getBases();
+        bases[position - read.getStart()] = base;
+        return bases;
+    }
+
+    private void addMismatch(final GATKRead read, final int position, final byte quality) {
+        final byte refBase = referenceBase(position);
+        read.setBases(withBase(read, position, (byte) (refBase == 'G' ? 'T' : 'G')));
+        final byte[] quals = read.getBaseQualities();
+        quals[position - read.getStart()] = quality;
+        read.setBaseQualities(quals);
+    }
+
+    private AssemblyRegion makeRegion(final List<GATKRead> reads) {
+        final AssemblyRegion region = new AssemblyRegion(new SimpleInterval(CONTIG, REGION_START, REGION_END), Collections.emptyList(), true, EXTENSION, hg19Header);
+        final List<GATKRead> sorted = new ArrayList<>(reads);
+        sorted.sort((r1, r2) -> Integer.compare(r1.getStart(), r2.getStart()));
+        region.addAll(sorted);
+        region.setFinalized(true);
+        return region;
+    }
+}
@@ -26,6 +26,7 @@ import org.broadinstitute.hellbender.GATKBaseTest;
 import org.broadinstitute.hellbender.utils.variant.GATKVCFConstants;
 import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
 import org.broadinstitute.hellbender.utils.variant.HomoSapiensConstants;
+import org.broadinstitute.hellbender.utils.variant.writers.HomRefRun;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeMethod;
@@ -412,6 +413,138 @@ public final class ReferenceConfidenceModelUnitTest extends GATKBaseTest {
         }
     }
 
+    @DataProvider(name = "HomRefRunsData")
+    public Object[][] makeHomRefRunsData() {
+        final List<Object[]> tests = new ArrayList<>();
+        for ( int seed = 0; seed < 10; seed++ ) {
+            for ( final int ploidy : Arrays.asList(1, 2, 3) ) {
+                for ( final int extension : Arrays.asList(0, 15) ) {
+                    tests.add(new Object[]{seed, ploidy, extension});
+                }
+            }
+        }
+        return tests.toArray(new Object[][]{});
+    }
+
+    @Test(dataProvider = "HomRefRunsData")
+    public void testHomRefRunsMatchPerPositionReferenceConfidence(final int seed, final int ploidy, final int extension) {
+        final Random random = new Random(seed);
+        final StringBuilder ref = new StringBuilder();
+        for ( int i = 0; i < 120; i++ ) {
+            ref.append("ACGT".charAt(random.nextInt(4)));
+        }
+        final RefConfData data = new RefConfData(ref.toString(), extension);
+        final byte[] paddedRef = data.getRefHap().getBases();
+        final List<GATKRead> reads = new ArrayList<>();
+        for ( int i = 0; i < 60; i++ ) {
+            reads.add(makeRandomRead(random, data, paddedRef));
+        }
+        reads.sort(Comparator.comparingInt(GATKRead::getStart));
+        data.getActiveRegion().addAll(reads);
+
+        final int snpPosition = data.getStart() + 20 + random.nextInt(30);
+        final int deletionPosition = snpPosition + 10 + random.nextInt(30);
+        final List<VariantContext> calls = Arrays.asList(
+                GATKVariantContextUtils.makeFromAlleles("test", "1", snpPosition, Arrays.asList("A", "C")),
+                GATKVariantContextUtils.makeFromAlleles("test", "1", deletionPosition, Arrays.asList("ACG", "A")));
+
+        final List<Haplotype> haplotypes = Arrays.asList(data.getRefHap());
+        final ReadLikelihoods<Haplotype> likelihoods = createDummyStratifiedReadMap(data.getRefHap(), samples, data.getActiveRegion());
+        final PloidyModel ploidyModel = new HomogeneousPloidyModel(samples, ploidy);
+        final List<VariantContext> expected = model.calculateRefConfidence(data.getRefHap(), haplotypes, data.getPaddedRefLoc(), data.getActiveRegion(), likelihoods, ploidyModel, calls);
+        final List<VariantContext> runs = model.calculateHomRefRuns(data.getRefHap(), haplotypes, data.getPaddedRefLoc(), data.getActiveRegion(), likelihoods, ploidyModel, calls);
+
+        final List<VariantContext> actual = new ArrayList<>();
+        for ( final VariantContext vc : runs ) {
+            if ( vc instanceof HomRefRun ) {
+                actual.addAll(((HomRefRun) vc).toSiteVariantContexts());
+            } else {
+                actual.add(vc);
+            }
+        }
+        Assert.assertEquals(runs.size(), 5);
+        Assert.assertEquals(actual.size(), expected.size());
+        for ( int i = 0; i < expected.size(); i++ ) {
+            if ( calls.contains(expected.get(i)) ) {
+                Assert.assertSame(actual.get(i), expected.get(i));
+            } else {
+                Assert.assertEquals(actual.get(i).toString(), expected.get(i).toString());
+            }
+        }
+    }
+
+    /**
+     * A read from the padded reference with mismatches, low quality bases and, depending on its shape, soft clips,
+     * an insertion, a deletion or a reference skip, on a random strand and sometimes with its adaptor in the reference span
+     */
+    private GATKRead makeRandomRead(final Random random, final RefConfData data, final byte[] paddedRef) {
+        final int paddedStart = data.getStart() - data.extension;
+        final int start = random.nextInt(paddedRef.length - 40);
+        final StringBuilder bases = new StringBuilder();
+        final StringBuilder cigar = new StringBuilder();
+        int refOffset = start;
+        final int shape = random.nextInt(6);
+        if ( shape == 1 ) {
+            final int clip = 1 + random.nextInt(5);
+            appendRandomBases(random, bases, clip);
+            cigar.append(clip).append('S');
+        }
+        final int firstLength = 5 + random.nextInt(15);
+        appendReferenceBases(random, bases, paddedRef, refOffset, firstLength);
+        refOffset += firstLength;
+        cigar.append(firstLength).append('M');
+        if ( shape == 2 ) {
+            final int length = 1 + random.nextInt(3);
+            appendRandomBases(random, bases, length);
+            cigar.append(length).append('I');
+        } else if ( shape == 3 || shape == 5 ) {
+            final int length = 1 + random.nextInt(3);
+            refOffset += length;
+            cigar.append(length).append(shape == 3 ? 'D' : 'N');
+        }
+        final int secondLength = Math.min(5 + random.nextInt(20), paddedRef.length - refOffset);
+        appendReferenceBases(random, bases, paddedRef, refOffset, secondLength);
+        cigar.append(secondLength).append('M');
+        if ( shape == 4 ) {
+            final int clip = 1 + random.nextInt(5);
+            appendRandomBases(random, bases, clip);
+            cigar.append(clip).append('S');
+        }
+
+        final byte[] quals = new byte[bases.length()];
+        for ( int i = 0; i < quals.length; i++ ) {
+            quals[i] = (byte) (random.nextDouble() < 0.1 ? random.nextInt(7) : 20 + random.nextInt(20));
+        }
+        final GATKRead read = ArtificialReadUtils.createArtificialRead(header, "read " + data.readCounter++, 0, paddedStart + start, bases.toString().getBytes(), quals, cigar.toString());
+        read.setReadGroup(rg.getId());
+        read.setIsReverseStrand(random.nextBoolean());
+        if ( random.nextDouble() < 0.3 ) {
+            // a short fragment, so that the adaptor boundary falls within the read
+            read.setIsPaired(true);
+            read.setMateIsReverseStrand(! read.isReverseStrand());
+            if ( read.isReverseStrand() ) {
+                read.setMatePosition("1", read.getStart() + 5);
+                read.setFragmentLength(-(read.getEnd() - read.getStart() - 4));
+            } else {
+                read.setMatePosition("1", read.getStart() + 5);
+                read.setFragmentLength(read.getEnd() - read.getStart() - 5);
+            }
+        }
+        return read;
+    }
+
+    private static void appendReferenceBases(final Random random, final StringBuilder bases, final byte[] ref, final int offset, final int length) {
+        for ( int i = 0; i < length; i++ ) {
+            bases.append(random.nextDouble() < 0.05 ? "ACGT".charAt(random.nextInt(4)) : (char) ref[offset + i]);
+        }
+    }
+
+    private static void appendRandomBases(final Random random, final StringBuilder bases, final int length) {
+        for ( int i = 0; i < length; i++ ) {
+            bases.append("ACGT".charAt(random.nextInt(4)));
+        }
+    }
+
     @Test(expectedExceptions = IllegalArgumentException.class)
     public void testRefVsAnyResultNotNegative() throws Exception {
         new ReferenceConfidenceModel.RefVsAnyResult(-1);
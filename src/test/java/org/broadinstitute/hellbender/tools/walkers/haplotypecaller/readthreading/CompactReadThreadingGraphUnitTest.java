@@ -0,0 +1,217 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMReadGroupRecord;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.graphs.BaseEdge;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.graphs.SeqGraph;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.graphs.SeqVertex;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.smithwaterman.SmithWatermanAligner;
+import org.broadinstitute.hellbender.utils.smithwaterman.SmithWatermanJavaAligner;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public final class CompactReadThreadingGraphUnitTest extends GATKBaseTest {
+
+    private static final int NUM_SAMPLES = 3;
+    private static final byte MIN_BASE_QUALITY = (byte) 10;
+
+    @DataProvider(name = "Assemblies")
+    public Object[][] makeAssemblies() {
+        final List<Object[]> tests = new ArrayList<>();
+        for ( final int kmerSize : new int[]{10, 25, CompactReadThreadingGraph.MAX_KMER_SIZE} ) {
+            for ( final int numPruningSamples : new int[]{1, 2} ) {
+                for ( final boolean recoverDanglingBranches : new boolean[]{true, false} ) {
+                    for ( int seed = 0; seed < 5; seed++ ) {
+                        tests.add(new Object[]{kmerSize, numPruningSamples, recoverDanglingBranches, seed});
+                    }
+                }
+            }
+        }
+        return tests.toArray(new Object[][]{});
+    }
+
+    @Test(dataProvider = "Assemblies")
+    public void testSameSequenceGraphAsReadThreadingGraph( final int kmerSize, final int numPruningSamples, final boolean recoverDanglingBranches, final int seed ) {
+        final Random random = new Random(seed);
+        final SAMFileHeader header = makeHeader();
+        final byte[] ref = randomBases(random, 300);
+        final List<GATKRead> reads = makeReads(random, header, ref, 120);
+
+        final ReadThreadingGraph expected = new ReadThreadingGraph(kmerSize, false, MIN_BASE_QUALITY, numPruningSamples);
+        final CompactReadThreadingGraph actual = new CompactReadThreadingGraph(kmerSize, MIN_BASE_QUALITY, numPruningSamples);
+        expected.setThreadingStartOnlyAtExistingVertex(!recoverDanglingBranches);
+        actual.setThreadingStartOnlyAtExistingVertex(!recoverDanglingBranches);
+        expected.addSequence("ref", ref, 1, true);
+        actual.addSequence("ref", ref, 1, true);
+        for ( final GATKRead read : reads ) {
+            expected.addRead(read, header);
+            actual.addRead(read, header);
+        }
+
+        Assert.assertTrue(actual.isPackable());
+        expected.buildGraphIfNecessary();
+        actual.buildGraphIfNecessary();
+        Assert.assertEquals(actual.hasCycles(), expected.hasCycles());
+        Assert.assertEquals(actual.isLowComplexity(), expected.isLowComplexity());
+
+        final SmithWatermanAligner aligner = SmithWatermanJavaAligner.getInstance();
+        expected.pruneLowWeightChains(2);
+        actual.pruneLowWeightChains(2);
+        if ( recoverDanglingBranches ) {
+            expected.recoverDanglingTails(2, 0, aligner);
+            actual.recoverDanglingTails(2, 0, aligner);
+            expected.recoverDanglingHeads(2, 0, aligner);
+            actual.recoverDanglingHeads(2, 0, aligner);
+        }
+        expected.removePathsNotConnectedToRef();
+        actual.removePathsNotConnectedToRef();
+
+        assertSameGraph(actual.toSequenceGraph(), expected.toSequenceGraph());
+    }
+
+    @Test
+    public void testLowComplexityAndCycles() {
+        final String ref = "ACGTTGCAGGATCCAAAAAAAAAAAAAAAAAAAAAAGTCAGTCAGTCAGTCAGTCAGTCTTGACCATG";
+        final String alt = "ACGTTGCAGGATCCAAAAAAAAAAAAAAAAAAAAAAAAAAGTCAGTCAGTCAGTCTTGACCATG";
+        for ( final int kmerSize : new int[]{3, 4, 6, 11} ) {
+            final ReadThreadingGraph expected = new ReadThreadingGraph(kmerSize, false, MIN_BASE_QUALITY, 1);
+            final CompactReadThreadingGraph actual = new CompactReadThreadingGraph(kmerSize, MIN_BASE_QUALITY, 1);
+            expected.addSequence("ref", ref.getBytes(), 1, true);
+            actual.addSequence("ref", ref.getBytes(), 1, true);
+            expected.addSequence("alt", alt.getBytes(), 3, false);
+            actual.addSequence("alt", alt.getBytes(), 3, false);
+            expected.buildGraphIfNecessary();
+            actual.buildGraphIfNecessary();
+            Assert.assertEquals(actual.hasCycles(), expected.hasCycles(), "kmer size " + kmerSize);
+            Assert.assertEquals(actual.isLowComplexity(), expected.isLowComplexity(), "kmer size " + kmerSize);
+            assertSameGraph(actual.toSequenceGraph(), expected.toSequenceGraph());
+        }
+    }
+
+    @Test
+    public void testUnpackableSequences() {
+        final SAMFileHeader header = makeHeader();
+        final byte[] ref = randomBases(new Random(13), 100);
+        final CompactReadThreadingGraph graph = new CompactReadThreadingGraph(10, MIN_BASE_QUALITY, 1);
+        graph.addSequence("ref", ref, 1, true);
+
+        // Ns and low quality bases split reads, so they are never threaded
+        final byte[] withN = Arrays.copyOfRange(ref, 10, 60);
+        withN[20] = 'N';
+        final byte[] quals = new byte[withN.length];
+        Arrays.fill(quals, (byte) 30);
+        graph.addRead(ArtificialReadUtils.createArtificialRead(header, "withN", "1", 11, withN, quals, withN.length + "M"), header);
+        final byte[] lowQuality = Arrays.copyOfRange(ref, 10, 60);
+        lowQuality[30] = 'R';
+        quals[30] = 2;
+        graph.addRead(ArtificialReadUtils.createArtificialRead(header, "lowQuality", "1", 11, lowQuality, quals, lowQuality.length + "M"), header);
+        Assert.assertTrue(graph.isPackable());
+
+        // other IUPAC bases are threaded
+        quals[30] = 30;
+        graph.addRead(ArtificialReadUtils.createArtificialRead(header, "iupac", "1", 11, lowQuality, quals, lowQuality.length + "M"), header);
+        Assert.assertFalse(graph.isPackable());
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testCannotBuildUnpackableGraph() {
+        final CompactReadThreadingGraph graph = new CompactReadThreadingGraph(5, MIN_BASE_QUALITY, 1);
+        graph.addSequence("ref", "ACGTACGGTCAGRTCA".getBytes(), 1, true);
+        graph.buildGraphIfNecessary();
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testKmerSizeTooLarge() {
+        new CompactReadThreadingGraph(CompactReadThreadingGraph.MAX_KMER_SIZE + 1, MIN_BASE_QUALITY, 1);
+    }
+
+    static void assertSameGraph( final SeqGraph actual, final SeqGraph expected ) {
+        final List<SeqVertex> actualVertices = new ArrayList<>(actual.vertexSet());
+        final List<SeqVertex> expectedVertices = new ArrayList<>(expected.vertexSet());
+        Assert.assertEquals(actualVertices.size(), expectedVertices.size());
+        final Map<SeqVertex, Integer> actualIndices = new HashMap<>();
+        final Map<SeqVertex, Integer> expectedIndices = new HashMap<>();
+        for ( int i = 0; i < actualVertices.size(); i++ ) {
+            Assert.assertEquals(actualVertices.get(i).getSequenceString(), expectedVertices.get(i).getSequenceString());
+            Assert.assertEquals(actualVertices.get(i).getAdditionalInfo(), expectedVertices.get(i).getAdditionalInfo());
+            actualIndices.put(actualVertices.get(i), i);
+            expectedIndices.put(expectedVertices.get(i), i);
+        }
+
+        final List<BaseEdge> actualEdges = new ArrayList<>(actual.edgeSet());
+        final List<BaseEdge> expectedEdges = new ArrayList<>(expected.edgeSet());
+        Assert.assertEquals(actualEdges.size(), expectedEdges.size());
+        for ( int i = 0; i < actualEdges.size(); i++ ) {
+            final BaseEdge actualEdge = actualEdges.get(i);
+            final BaseEdge expectedEdge = expectedEdges.get(i);
+            Assert.assertEquals(actualIndices.get(actual.getEdgeSource(actualEdge)), expectedIndices.get(expected.getEdgeSource(expectedEdge)));
+            Assert.assertEquals(actualIndices.get(actual.getEdgeTarget(actualEdge)), expectedIndices.get(expected.getEdgeTarget(expectedEdge)));
+            Assert.assertEquals(actualEdge.getMultiplicity(), expectedEdge.getMultiplicity());
+            Assert.assertEquals(actualEdge.isRef(), expectedEdge.isRef());
+        }
+    }
+
+    static SAMFileHeader makeHeader() {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader(1, 1, 1000000);
+        for ( int i = 0; i < NUM_SAMPLES; i++ ) {
+            final SAMReadGroupRecord readGroup = new SAMReadGroupRecord("rg" + i);
+            readGroup.setSample("sample" + i);
+            header.addReadGroup(readGroup);
+        }
+        return header;
+    }
+
+    static byte[] randomBases( final Random random, final int length ) {
+        final byte[] bases = new byte[length];
+        for ( int i = 0; i < length; i++ ) {
+            bases[i] = (byte) "ACGT".charAt(random.nextInt(4));
+        }
+        return bases;
+    }
+
+    /**
+     * Reads from the reference and from two haplotypes (with a SNP and an indel, and with a short tandem repeat expansion),
+     * with sequencing errors, Ns, low quality bases and clipped ends that make dangling heads and tails
+     */
+    static List<GATKRead> makeReads( final Random random, final SAMFileHeader header, final byte[] ref, final int numReads ) {
+        final String refString = new String(ref);
+        final String hap1 = refString.substring(0, 100) + (refString.charAt(100) == 'A' ? 'C' : 'A') + refString.substring(101, 180) + refString.substring(184);
+        final String hap2 = refString.substring(0, 150) + "CACACACACA" + refString.substring(150);
+        final String[] haplotypes = {refString, hap1, hap2};
+
+        final List<GATKRead> reads = new ArrayList<>(numReads);
+        for ( int i = 0; i < numReads; i++ ) {
+            final String haplotype = haplotypes[random.nextInt(haplotypes.length)];
+            final int length = 50 + random.nextInt(50);
+            final int start = random.nextInt(haplotype.length() - length);
+            final byte[] bases = haplotype.substring(start, start + length).getBytes();
+            final byte[] quals = new byte[length];
+            Arrays.fill(quals, (byte) 30);
+            for ( int j = 0; j < length; j++ ) {
+                final double r = random.nextDouble();
+                if ( r < 0.01 ) {
+                    bases[j] = (byte) "ACGT".charAt(random.nextInt(4));
+                } else if ( r < 0.012 ) {
+                    bases[j] = 'N';
+                } else if ( r < 0.02 ) {
+                    quals[j] = 5;
+                }
+            }
+            final GATKRead read = ArtificialReadUtils.createArtificialRead(header, "read" + i, "1", start + 1, bases, quals, length + "M");
+            read.setReadGroup("rg" + random.nextInt(NUM_SAMPLES));
+            reads.add(read);
+        }
+        return reads;
+    }
+}
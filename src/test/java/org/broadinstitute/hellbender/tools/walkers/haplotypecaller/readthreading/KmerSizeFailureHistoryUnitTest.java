@@ -0,0 +1,54 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.Kmer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public final class KmerSizeFailureHistoryUnitTest extends GATKBaseTest {
+
+    private static final Kmer REPEAT = new Kmer("ACACACACACAC");
+    private static final Kmer OTHER_REPEAT = new Kmer("AGGTAGGTAGGT");
+
+    @Test
+    public void testSkipAfterRepeatedFailures() {
+        final KmerSizeFailureHistory history = new KmerSizeFailureHistory(2, 10);
+        Assert.assertFalse(history.shouldSkip(REPEAT, 10));
+
+        history.record(REPEAT, 10, true);
+        Assert.assertFalse(history.shouldSkip(REPEAT, 10));
+        history.record(REPEAT, 10, true);
+        Assert.assertTrue(history.shouldSkip(REPEAT, 10));
+
+        // only for that kmer size and repeat
+        Assert.assertFalse(history.shouldSkip(REPEAT, 25));
+        Assert.assertFalse(history.shouldSkip(OTHER_REPEAT, 10));
+        Assert.assertFalse(history.shouldSkip(null, 10));
+
+        // a success resets the failures
+        history.record(REPEAT, 10, false);
+        Assert.assertFalse(history.shouldSkip(REPEAT, 10));
+    }
+
+    @Test
+    public void testNoContextIsNotRecorded() {
+        final KmerSizeFailureHistory history = new KmerSizeFailureHistory(1, 10);
+        history.record(null, 10, true);
+        Assert.assertFalse(history.shouldSkip(null, 10));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedContextsAreForgotten() {
+        final KmerSizeFailureHistory history = new KmerSizeFailureHistory(1, 1);
+        history.record(REPEAT, 10, true);
+        Assert.assertTrue(history.shouldSkip(REPEAT, 10));
+        history.record(OTHER_REPEAT, 10, true);
+        Assert.assertTrue(history.shouldSkip(OTHER_REPEAT, 10));
+        Assert.assertFalse(history.shouldSkip(REPEAT, 10));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidFailuresToSkip() {
+        new KmerSizeFailureHistory(0, 10);
+    }
+}
@@ -0,0 +1,118 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.Kmer;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public final class KmerizedSequencesUnitTest extends GATKBaseTest {
+
+    private static final byte MIN_BASE_QUALITY = (byte) 10;
+
+    @DataProvider(name = "KmerSizes")
+    public Object[][] makeKmerSizes() {
+        final List<Object[]> tests = new ArrayList<>();
+        for ( final int kmerSize : new int[]{10, 25, 35, 55} ) {
+            for ( int seed = 0; seed < 3; seed++ ) {
+                tests.add(new Object[]{kmerSize, seed});
+            }
+        }
+        return tests.toArray(new Object[][]{});
+    }
+
+    @Test(dataProvider = "KmerSizes")
+    public void testSameGraphAsAddingReads( final int kmerSize, final int seed ) {
+        final Random random = new Random(seed);
+        final SAMFileHeader header = CompactReadThreadingGraphUnitTest.makeHeader();
+        final byte[] ref = CompactReadThreadingGraphUnitTest.randomBases(random, 300);
+        final List<GATKRead> reads = CompactReadThreadingGraphUnitTest.makeReads(random, header, ref, 120);
+        final Haplotype given = new Haplotype(CompactReadThreadingGraphUnitTest.randomBases(random, 80));
+
+        final ReadThreadingGraph expected = new ReadThreadingGraph(kmerSize, false, MIN_BASE_QUALITY, 2);
+        expected.addSequence("ref", ref, true);
+        expected.addSequence("activeAllele0", given.getBases(), 1000, false);
+        for ( final GATKRead read : reads ) {
+            expected.addRead(read, header);
+        }
+
+        final KmerizedSequences sequences = new KmerizedSequences(new Haplotype(ref, true), Collections.singletonList(given), 1000, reads, header, MIN_BASE_QUALITY);
+        final ReadThreadingGraph actual = new ReadThreadingGraph(kmerSize, false, MIN_BASE_QUALITY, 2);
+        actual.addSequences(sequences);
+
+        CompactReadThreadingGraphUnitTest.assertSameGraph(actual.toSequenceGraph(), expected.toSequenceGraph());
+        Assert.assertTrue(sequences.isPackable(kmerSize));
+        if ( kmerSize <= CompactReadThreadingGraph.MAX_KMER_SIZE ) {
+            final CompactReadThreadingGraph compact = new CompactReadThreadingGraph(kmerSize, MIN_BASE_QUALITY, 2);
+            compact.addSequences(sequences);
+            CompactReadThreadingGraphUnitTest.assertSameGraph(compact.toSequenceGraph(), expected.toSequenceGraph());
+        }
+    }
+
+    @DataProvider(name = "References")
+    public Object[][] makeReferences() {
+        final Random random = new Random(7);
+        final String unique = new String(CompactReadThreadingGraphUnitTest.randomBases(random, 200));
+        return new Object[][]{
+                {unique},
+                {unique.substring(0, 100) + "ACACACACACACACACACACAC" + unique.substring(100)},
+                {unique.substring(0, 50) + unique.substring(120, 160) + unique.substring(50)},
+                {"ACGTTGCAGGATCCAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAGTCAGTCTTGACCATG"},
+                {unique.substring(0, 60) + "NNNNN" + unique.substring(60)}
+        };
+    }
+
+    @Test(dataProvider = "References")
+    public void testRefHasNonUniqueKmers( final String ref ) {
+        final KmerizedSequences sequences = new KmerizedSequences(new Haplotype(ref.getBytes(), true), Collections.emptyList(), 1000,
+                Collections.emptyList(), CompactReadThreadingGraphUnitTest.makeHeader(), MIN_BASE_QUALITY);
+        final ReadThreadingGraph.SequenceForKmers refSequence = new ReadThreadingGraph.SequenceForKmers("ref", ref.getBytes(), 0, ref.length(), 1, true);
+        for ( int kmerSize = 1; kmerSize <= 90; kmerSize++ ) {
+            Assert.assertEquals(sequences.refHasNonUniqueKmers(kmerSize), ! ReadThreadingGraph.determineNonUniqueKmers(refSequence, kmerSize).isEmpty(), "kmer size " + kmerSize);
+        }
+    }
+
+    @Test
+    public void testRefRepeatContext() {
+        final String ref = "ACGTTGCAGGATCCGTACGATTTCACACACACACACACACGGATGCATGCAGTTAGC";
+        final KmerizedSequences sequences = new KmerizedSequences(new Haplotype(ref.getBytes(), true), Collections.emptyList(), 1000,
+                Collections.emptyList(), CompactReadThreadingGraphUnitTest.makeHeader(), MIN_BASE_QUALITY);
+
+        // the longest repeat is the tandem repeat less one unit
+        Assert.assertEquals(sequences.getRefRepeatContext(10), new Kmer("CACACACACACACAC"));
+        Assert.assertEquals(sequences.getRefRepeatContext(15), new Kmer("CACACACACACACAC"));
+        Assert.assertNull(sequences.getRefRepeatContext(16));
+    }
+
+    @Test
+    public void testUnpackableSequences() {
+        final SAMFileHeader header = CompactReadThreadingGraphUnitTest.makeHeader();
+        final byte[] ref = CompactReadThreadingGraphUnitTest.randomBases(new Random(3), 100);
+
+        // an IUPAC base in a run of 30 good bases
+        final byte[] bases = Arrays.copyOfRange(ref, 10, 60);
+        bases[5] = 'N';
+        bases[20] = 'R';
+        bases[36] = 'N';
+        final byte[] quals = new byte[bases.length];
+        Arrays.fill(quals, (byte) 30);
+        final GATKRead read = ArtificialReadUtils.createArtificialRead(header, "iupac", "1", 11, bases, quals, bases.length + "M");
+
+        final KmerizedSequences sequences = new KmerizedSequences(new Haplotype(ref, true), Collections.emptyList(), 1000,
+                Collections.singletonList(read), header, MIN_BASE_QUALITY);
+        Assert.assertFalse(sequences.isPackable(10));
+        Assert.assertFalse(sequences.isPackable(30));
+        // the run is not threaded with longer kmers
+        Assert.assertTrue(sequences.isPackable(31));
+    }
+}
@@ -0,0 +1,108 @@
+package org.broadinstitute.hellbender.utils;
+
+import htsjdk.tribble.FeatureCodec;
+import org.broadinstitute.barclay.argparser.ClassFinder;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.cmdline.CommandLineProgram;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.tools.walkers.annotator.Annotation;
+import org.broadinstitute.hellbender.tools.walkers.annotator.InfoFieldAnnotation;
+import org.broadinstitute.hellbender.tools.walkers.annotator.VariantAnnotation;
+import org.broadinstitute.hellbender.utils.codecs.table.TableCodec;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public final class ClassIndexUnitTest extends GATKBaseTest {
+
+    private static final Map<Class<?>, List<String>> TEST_INDEXED_CLASSES = new LinkedHashMap<>();
+    static {
+        TEST_INDEXED_CLASSES.put(FeatureCodec.class, Arrays.asList("htsjdk.tribble", "org.broadinstitute.hellbender.utils.codecs"));
+        TEST_INDEXED_CLASSES.put(Annotation.class, Collections.singletonList(Annotation.class.getPackage().getName()));
+        TEST_INDEXED_CLASSES.put(VariantAnnotation.class, Collections.singletonList(Annotation.class.getPackage().getName()));
+    }
+
+    private static ClassIndex writeAndRead(final ClassIndex index) throws IOException {
+        final StringWriter writer = new StringWriter();
+        index.write(writer);
+        return ClassIndex.read(new StringReader(writer.toString()));
+    }
+
+    private static Set<Class<?>> scan(final String pack, final Class<?> baseClass) {
+        final ClassFinder finder = new ClassFinder();
+        finder.find(pack, baseClass);
+        return finder.getClasses();
+    }
+
+    @DataProvider(name = "indexedLookups")
+    public Object[][] indexedLookups() {
+        return new Object[][]{
+                {"htsjdk.tribble", FeatureCodec.class},
+                {"htsjdk.tribble.bed", FeatureCodec.class},
+                {"org.broadinstitute.hellbender.utils.codecs", FeatureCodec.class},
+                {"org.broadinstitute.hellbender.utils.codecs.table", TableCodec.class},
+                {Annotation.class.getPackage().getName(), Annotation.class},
+                // not indexed itself, but one of its supertypes is
+                {Annotation.class.getPackage().getName(), InfoFieldAnnotation.class},
+        };
+    }
+
+    @Test(dataProvider = "indexedLookups")
+    public void testIndexedLookupMatchesScan(final String pack, final Class<?> baseClass) throws IOException {
+        final ClassIndex index = writeAndRead(ClassIndex.scan(TEST_INDEXED_CLASSES));
+        final Set<Class<?>> indexed = index.find(pack, baseClass);
+        Assert.assertNotNull(indexed);
+        Assert.assertFalse(indexed.isEmpty());
+        Assert.assertEquals(indexed, scan(pack, baseClass));
+    }
+
+    @Test
+    public void testLookupsNotCovered() throws IOException {
+        final ClassIndex index = writeAndRead(ClassIndex.scan(TEST_INDEXED_CLASSES));
+        // package not indexed
+        Assert.assertNull(index.find("htsjdk.variant", FeatureCodec.class));
+        Assert.assertNull(index.find("org.broadinstitute.hellbender", FeatureCodec.class));
+        // base class not indexed
+        Assert.assertNull(index.find("org.broadinstitute.hellbender.utils.codecs", CommandLineProgram.class));
+    }
+
+    @Test
+    public void testOutOfDateIndex() throws IOException {
+        final String text = FeatureCodec.class.getName() + ": org.broadinstitute.hellbender.utils.codecs\n" +
+                "    " + TableCodec.class.getName() + "\n" +
+                "    org.broadinstitute.hellbender.utils.codecs.NoSuchCodec\n";
+        final ClassIndex index = ClassIndex.read(new StringReader(text));
+        Assert.assertNull(index.find("org.broadinstitute.hellbender.utils.codecs", FeatureCodec.class));
+        Assert.assertEquals(index.find("org.broadinstitute.hellbender.utils.codecs.table", FeatureCodec.class),
+                Collections.singleton(TableCodec.class));
+    }
+
+    @Test
+    public void testEmptyIndex() throws IOException {
+        final ClassIndex index = ClassIndex.read(new StringReader("# nothing indexed\n"));
+        Assert.assertTrue(index.isEmpty());
+        Assert.assertNull(index.find("org.broadinstitute.hellbender", CommandLineProgram.class));
+    }
+
+    @Test(expectedExceptions = GATKException.class)
+    public void testMalformedIndex() throws IOException {
+        ClassIndex.read(new StringReader("    " + TableCodec.class.getName() + "\n"));
+    }
+
+    @Test
+    public void testFindClassesWithoutIndex() {
+        // the tests run from the build directories, which have no index, so this scans
+        final String pack = "org.broadinstitute.hellbender.utils.codecs";
+        Assert.assertEquals(ClassUtils.findClasses(pack, FeatureCodec.class), scan(pack, FeatureCodec.class));
+    }
+}
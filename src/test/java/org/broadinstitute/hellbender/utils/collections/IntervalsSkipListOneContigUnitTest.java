@@ -88,6 +88,35 @@ public final class IntervalsSkipListOneContigUnitTest extends GATKBaseTest {
         );
     }
 
+    @Test(dataProvider = "intervals")
+    public void testOverlapFromStartSorted(ArrayList<Locatable> input, SimpleInterval query, ArrayList<Locatable> expected) throws Exception {
+        IntervalsSkipListOneContig<Locatable> ints = IntervalsSkipListOneContig.fromStartSorted(input);
+        List<Locatable> actual = ints.getOverlapping(query);
+        Assert.assertEquals(
+                actual,
+                expected
+        );
+    }
+
+    @Test
+    public void testFromStartSortedPreservesOrderOfEqualStarts() throws Exception {
+        List<Locatable> input = Arrays.asList(
+                new SimpleInterval("1",10,100),
+                new SimpleInterval("1",10,20),
+                new SimpleInterval("1",10,50),
+                new SimpleInterval("1",30,40),
+                new SimpleInterval("1",30,30)
+        );
+        final IntervalsSkipListOneContig<Locatable> l = IntervalsSkipListOneContig.fromStartSorted(input);
+        Assert.assertEquals(l.getOverlapping(new SimpleInterval("1", 1, 200)), input);
+        Assert.assertEquals(l.getOverlapping(new SimpleInterval("1", 25, 30)), Arrays.asList(input.get(0), input.get(2), input.get(3), input.get(4)));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testFromStartSortedUnsortedInput() throws Exception {
+        IntervalsSkipListOneContig.fromStartSorted(Arrays.asList(new SimpleInterval("1",10,20), new SimpleInterval("1",5,20)));
+    }
+
     @Test(expectedExceptions = IllegalArgumentException.class)
     public void testMultipleContigs() throws Exception {
         new IntervalsSkipListOneContig<>(Arrays.asList(new SimpleInterval("1",1,2), new SimpleInterval("2",1,2)));
@@ -0,0 +1,166 @@
+package org.broadinstitute.hellbender.utils.collections;
+
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.samtools.util.SortingCollection;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+public final class ParallelSortingCollectionUnitTest extends GATKBaseTest {
+
+    @DataProvider(name = "sortingParameters")
+    public Object[][] sortingParameters() {
+        return new Object[][]{
+                // numRecords, maxRecordsInRam, numThreads, maxOpenFiles
+                {0, 100, 2, 10},
+                {40, 100, 1, 10},   // fits in RAM, sorted in RAM
+                {60, 100, 4, 10},   // more than a run once spilling, but still fits in RAM
+                {100, 100, 4, 10},
+                {101, 100, 4, 10},  // just overflows RAM
+                {1000, 100, 1, 100},
+                {1000, 100, 4, 100},
+                {10000, 90, 8, 4},  // many more runs than files that can be open, so merged in several passes
+        };
+    }
+
+    @Test(dataProvider = "sortingParameters")
+    public void testSort(final int numRecords, final int maxRecordsInRam, final int numThreads, final int maxOpenFiles) {
+        final Random random = new Random(numRecords);
+        final List<Integer> records = new ArrayList<>(numRecords);
+        for (int i = 0; i < numRecords; i++) {
+            records.add(random.nextInt(numRecords / 2 + 1));
+        }
+        final File tmpDir = createTempDir("parallelSortingCollection");
+
+        final ParallelSortingCollection<Integer> collection = new ParallelSortingCollection<>(new IntegerCodec(),
+                Comparator.naturalOrder(), maxRecordsInRam, Collections.singletonList(tmpDir.toPath()), numThreads, maxOpenFiles);
+        records.forEach(collection::add);
+        collection.doneAdding();
+
+        final boolean spilled = numRecords > maxRecordsInRam;
+        Assert.assertEquals(collection.getNumRuns() > 0, spilled);
+        Assert.assertEquals(collection.getBytesSpilled() > 0, spilled);
+        Assert.assertTrue(collection.getSortingNanos() >= 0);
+        // the runs are merged down to the files that can be open at once
+        Assert.assertTrue(tmpDir.list().length <= maxOpenFiles);
+
+        final List<Integer> expected = new ArrayList<>(records);
+        Collections.sort(expected);
+        // can be iterated more than once
+        for (int pass = 0; pass < 2; pass++) {
+            final List<Integer> sorted = new ArrayList<>(numRecords);
+            try (final CloseableIterator<Integer> iterator = collection.iterator()) {
+                iterator.forEachRemaining(sorted::add);
+            }
+            Assert.assertEquals(sorted, expected);
+        }
+
+        collection.cleanup();
+        Assert.assertEquals(tmpDir.list().length, 0);
+    }
+
+    @Test
+    public void testTmpFilesAreSpreadOverTmpDirs() {
+        final File tmpDir1 = createTempDir("parallelSortingCollection");
+        final File tmpDir2 = createTempDir("parallelSortingCollection");
+        final ParallelSortingCollection<Integer> collection = new ParallelSortingCollection<>(new IntegerCodec(),
+                Comparator.naturalOrder(), 100, Arrays.asList(tmpDir1.toPath(), tmpDir2.toPath()), 1, 100);
+        for (int i = 1000; i > 0; i--) {
+            collection.add(i);
+        }
+        collection.doneAdding();
+        Assert.assertTrue(collection.getNumRuns() > 2);
+        Assert.assertTrue(Math.abs(tmpDir1.list().length - tmpDir2.list().length) <= 1);
+        collection.cleanup();
+        Assert.assertEquals(tmpDir1.list().length + tmpDir2.list().length, 0);
+    }
+
+    @Test
+    public void testCleanupClosesOpenIterators() {
+        final File tmpDir = createTempDir("parallelSortingCollection");
+        final ParallelSortingCollection<Integer> collection = new ParallelSortingCollection<>(new IntegerCodec(),
+                Comparator.naturalOrder(), 10, Collections.singletonList(tmpDir.toPath()), 2, 10);
+        for (int i = 100; i > 0; i--) {
+            collection.add(i);
+        }
+        collection.doneAdding();
+        final CloseableIterator<Integer> iterator = collection.iterator();
+        Assert.assertEquals(iterator.next().intValue(), 1);
+        collection.cleanup();
+        Assert.assertEquals(tmpDir.list().length, 0);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testNoAddAfterDoneAdding() {
+        final ParallelSortingCollection<Integer> collection = new ParallelSortingCollection<>(new IntegerCodec(),
+                Comparator.naturalOrder(), 10, Arrays.asList(createTempDir("parallelSortingCollection").toPath()), 1, 10);
+        collection.doneAdding();
+        collection.add(1);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testNoIterationBeforeDoneAdding() {
+        final ParallelSortingCollection<Integer> collection = new ParallelSortingCollection<>(new IntegerCodec(),
+                Comparator.naturalOrder(), 10, Arrays.asList(createTempDir("parallelSortingCollection").toPath()), 1, 10);
+        collection.add(1);
+        collection.iterator();
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNoTmpDirs() {
+        new ParallelSortingCollection<>(new IntegerCodec(), Comparator.<Integer>naturalOrder(), 10, Collections.<Path>emptyList(), 1, 10);
+    }
+
+    private static final class IntegerCodec implements SortingCollection.Codec<Integer> {
+        private DataInputStream in;
+        private DataOutputStream out;
+
+        @Override
+        public void setOutputStream(final OutputStream os) { out = new DataOutputStream(os); }
+
+        @Override
+        public void setInputStream(final InputStream is) { in = new DataInputStream(is); }
+
+        @Override
+        public void encode(final Integer val) {
+            try {
+                out.writeInt(val);
+            } catch (final IOException e) {
+                throw new GATKException("Could not write", e);
+            }
+        }
+
+        @Override
+        public Integer decode() {
+            try {
+                return in.readInt();
+            } catch (final EOFException e) {
+                return null;
+            } catch (final IOException e) {
+                throw new GATKException("Could not read", e);
+            }
+        }
+
+        @Override
+        public IntegerCodec clone() {
+            return new IntegerCodec();
+        }
+    }
+}
@@ -192,6 +192,56 @@ public final class ReadLikelihoodsUnitTest {
         testLikelihoodMatrixQueries(samples,result,newLikelihoods);
     }
 
+    @Test(dataProvider = "dataSets")
+    public void testRemoveAndAddReadsAndAlleles(final String[] samples, final Allele[] alleles, final Map<String,List<GATKRead>> reads) {
+        final ReadLikelihoods<Allele> original = new ReadLikelihoods<>(new IndexedSampleList(samples), new IndexedAlleleList<>(alleles), reads);
+        final double[][][] originalLikelihoods = fillWithRandomLikelihoods(samples, alleles, original);
+        final ReadLikelihoods<Allele> result = original.copy();
+        final SimpleInterval evenReadOverlap = new SimpleInterval(SAM_HEADER.getSequenceDictionary().getSequences().get(0).getSequenceName(), EVEN_READ_START, EVEN_READ_START);
+
+        // the even reads are kept at the start of the rows, then new reads and alleles use the freed and spare capacity.
+        result.filterToOnlyOverlappingUnclippedReads(evenReadOverlap);
+        final Map<String,List<GATKRead>> newReads = new LinkedHashMap<>();
+        for (final String sample : samples) {
+            final List<GATKRead> sampleNewReads = new ArrayList<>();
+            for (int r = 0; r < 3; r++) {
+                sampleNewReads.add(ArtificialReadUtils.createArtificialRead(SAM_HEADER,
+                        "NEW" + sample + "00" + r, 0, EVEN_READ_START, "AAAAA".getBytes(), new byte[]{30, 30, 30, 30, 30}, "5M"));
+            }
+            newReads.put(sample, sampleNewReads);
+        }
+        result.addReads(newReads, -1.5);
+        final Allele newAllele = Allele.create("ACCCCCAAAATTTAAAGGG".getBytes(), false);
+        result.addMissingAlleles(Collections.singletonList(newAllele), -2.5);
+
+        final double[][][] expectedLikelihoods = new double[samples.length][alleles.length + 1][];
+        for (int s = 0; s < samples.length; s++) {
+            final int keptReadCount = (original.sampleReadCount(s) + 1) / 2;
+            final int newSampleReadCount = keptReadCount + 3;
+            Assert.assertEquals(result.sampleReadCount(s), newSampleReadCount);
+            Assert.assertEquals(result.sampleReads(s).size(), newSampleReadCount);
+            for (int a = 0; a <= alleles.length; a++) {
+                expectedLikelihoods[s][a] = new double[newSampleReadCount];
+                for (int r = 0; r < newSampleReadCount; r++) {
+                    expectedLikelihoods[s][a][r] = a == alleles.length ? -2.5 : r >= keptReadCount ? -1.5 : originalLikelihoods[s][a][r << 1];
+                }
+            }
+            for (int r = 0; r < newSampleReadCount; r++) {
+                final GATKRead read = result.sampleReads(s).get(r);
+                Assert.assertSame(read, r < keptReadCount ? original.sampleReads(s).get(r << 1) : newReads.get(samples[s]).get(r - keptReadCount));
+                Assert.assertEquals(result.readIndex(s, read), r);
+            }
+            final double[] alleleLikelihoods = new double[newSampleReadCount + 1];
+            result.sampleMatrix(s).copyAlleleLikelihoods(alleles.length, alleleLikelihoods, 1);
+            Assert.assertEquals(Arrays.copyOfRange(alleleLikelihoods, 1, alleleLikelihoods.length), expectedLikelihoods[s][alleles.length]);
+        }
+        testLikelihoodMatrixQueries(samples, result, expectedLikelihoods);
+        testLikelihoodMatrixQueries(samples, result.copy(), expectedLikelihoods);
+
+        // the original collection is not affected.
+        testLikelihoodMatrixQueries(samples, original, originalLikelihoods);
+    }
+
     @Test(dataProvider = "marginalizationDataSets")
     public void testMarginalizationWithOverlap(final String[] samples, final Allele[] alleles, final Map<String,List<GATKRead>> reads, final Map<Allele,List<Allele>> newToOldAlleleMapping) {
         final ReadLikelihoods<Allele> original = new ReadLikelihoods<>(new IndexedSampleList(samples), new IndexedAlleleList<>(alleles), reads);
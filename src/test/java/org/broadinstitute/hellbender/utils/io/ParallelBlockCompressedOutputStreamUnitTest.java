@@ -0,0 +1,111 @@
+package org.broadinstitute.hellbender.utils.io;
+
+import htsjdk.samtools.seekablestream.SeekableMemoryStream;
+import htsjdk.samtools.util.BlockCompressedInputStream;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+import htsjdk.samtools.util.zip.DeflaterFactory;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public final class ParallelBlockCompressedOutputStreamUnitTest extends GATKBaseTest {
+
+    private static final int BLOCK_SIZE = BlockCompressedStreamConstants.DEFAULT_UNCOMPRESSED_BLOCK_SIZE;
+
+    @DataProvider(name = "Contents")
+    public Object[][] makeContents() {
+        final List<Object[]> tests = new ArrayList<>();
+        for ( final int numThreads : new int[]{1, 3} ) {
+            for ( final int length : new int[]{0, 1, 1000, BLOCK_SIZE, 2 * BLOCK_SIZE, 10 * BLOCK_SIZE + 17} ) {
+                tests.add(new Object[]{length, false, numThreads});
+                tests.add(new Object[]{length, true, numThreads});
+            }
+        }
+        return tests.toArray(new Object[][]{});
+    }
+
+    @Test(dataProvider = "Contents")
+    public void testSameOutputAsHtsjdk( final int length, final boolean incompressible, final int numThreads ) throws IOException {
+        final byte[] contents = makeContents(length, incompressible);
+
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        try ( final BlockCompressedOutputStream htsjdkStream = new BlockCompressedOutputStream(expected, null,
+                BlockCompressedOutputStream.getDefaultCompressionLevel(), new DeflaterFactory()) ) {
+            writeInPieces(htsjdkStream, contents);
+        }
+
+        final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        final List<Long> blockAddresses = new ArrayList<>();
+        try ( final ParallelBlockCompressedOutputStream parallelStream = new ParallelBlockCompressedOutputStream(actual,
+                BlockCompressedOutputStream.getDefaultCompressionLevel(), new DeflaterFactory(), numThreads,
+                (blockNumber, blockAddress, compressedSize) -> {
+                    Assert.assertEquals(blockNumber, blockAddresses.size(), "blocks reported out of order");
+                    blockAddresses.add(blockAddress);
+                }) ) {
+            writeInPieces(parallelStream, contents);
+            Assert.assertEquals(parallelStream.getBlockNumber(), length / BLOCK_SIZE);
+            Assert.assertEquals(parallelStream.getBlockOffset(), length % BLOCK_SIZE);
+        }
+
+        Assert.assertEquals(actual.toByteArray(), expected.toByteArray());
+        Assert.assertEquals(blockAddresses.size(), (length + BLOCK_SIZE - 1) / BLOCK_SIZE);
+
+        // every reported address is the start of the corresponding block
+        for ( int block = 0; block < blockAddresses.size(); block++ ) {
+            try ( final BlockCompressedInputStream in = new BlockCompressedInputStream(new SeekableMemoryStream(actual.toByteArray(), "test")) ) {
+                in.seek(blockAddresses.get(block) << 16);
+                final byte[] firstBytes = new byte[Math.min(100, length - block * BLOCK_SIZE)];
+                Assert.assertEquals(in.read(firstBytes), firstBytes.length);
+                for ( int i = 0; i < firstBytes.length; i++ ) {
+                    Assert.assertEquals(firstBytes[i], contents[block * BLOCK_SIZE + i]);
+                }
+            }
+        }
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testWriteAfterClose() throws IOException {
+        final ParallelBlockCompressedOutputStream stream = new ParallelBlockCompressedOutputStream(new ByteArrayOutputStream(),
+                BlockCompressedOutputStream.getDefaultCompressionLevel(), new DeflaterFactory(), 2, null);
+        stream.close();
+        stream.write(1);
+    }
+
+    private static byte[] makeContents( final int length, final boolean incompressible ) {
+        final Random random = new Random(length);
+        final byte[] contents = new byte[length];
+        if ( incompressible ) {
+            random.nextBytes(contents);
+        } else {
+            for ( int i = 0; i < length; i++ ) {
+                contents[i] = (byte) "ACGT".charAt(random.nextInt(4));
+            }
+        }
+        return contents;
+    }
+
+    // write in pieces of varying size, as a BAM writer does
+    private static void writeInPieces( final OutputStream out, final byte[] contents ) throws IOException {
+        int offset = 0;
+        int pieceLength = 1;
+        while ( offset < contents.length ) {
+            final int length = Math.min(pieceLength, contents.length - offset);
+            if ( length == 1 ) {
+                out.write(contents[offset]);
+            } else {
+                out.write(contents, offset, length);
+            }
+            offset += length;
+            pieceLength = pieceLength * 7 % 5003;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package org.broadinstitute.hellbender.utils.iterators;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class AsyncSAMRecordToReadIteratorUnitTest extends GATKBaseTest {
+
+    private ExecutorService executor;
+
+    @BeforeClass
+    public void startExecutor() {
+        executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("read-ahead-test-thread-%d").setDaemon(true).build());
+    }
+
+    @AfterClass
+    public void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    @DataProvider(name = "ReadAheadSettings")
+    public Object[][] makeReadAheadSettings() {
+        return new Object[][]{
+                // number of records, batch size, number of batches
+                {0, 10, 1},
+                {1, 10, 1},
+                {10, 10, 1},
+                {11, 10, 2},
+                {1000, 1, 1},
+                {1000, 7, 4},
+                {1000, 100, 100}
+        };
+    }
+
+    @Test(dataProvider = "ReadAheadSettings")
+    public void testReadsInOrder( final int numRecords, final int batchSize, final int numBatches ) {
+        final List<SAMRecord> records = makeRecords(numRecords);
+        final ReadAheadStatistics statistics = new ReadAheadStatistics();
+        final List<String> readNames = new ArrayList<>();
+        try ( final AsyncSAMRecordToReadIterator reads = new AsyncSAMRecordToReadIterator(records.iterator(), batchSize, numBatches, executor, statistics) ) {
+            for ( final GATKRead read : reads ) {
+                readNames.add(read.getName());
+            }
+            Assert.assertFalse(reads.hasNext());
+        }
+
+        Assert.assertEquals(readNames.size(), numRecords);
+        for ( int i = 0; i < numRecords; i++ ) {
+            Assert.assertEquals(readNames.get(i), records.get(i).getReadName());
+        }
+        Assert.assertEquals(statistics.getBatchesConsumed(), (numRecords + batchSize - 1) / batchSize);
+        Assert.assertTrue(statistics.getMeanQueueOccupancy() >= 0.0 && statistics.getMeanQueueOccupancy() < numBatches);
+        Assert.assertTrue(statistics.getConsumerWaitFraction() >= 0.0 && statistics.getConsumerWaitFraction() <= 1.0);
+        Assert.assertTrue(statistics.getProducerWaitFraction() >= 0.0 && statistics.getProducerWaitFraction() <= 1.0);
+    }
+
+    @Test(expectedExceptions = NoSuchElementException.class)
+    public void testNextWhenExhausted() {
+        try ( final AsyncSAMRecordToReadIterator reads = new AsyncSAMRecordToReadIterator(makeRecords(1).iterator(), 10, 1, executor, new ReadAheadStatistics()) ) {
+            reads.next();
+            reads.next();
+        }
+    }
+
+    @Test
+    public void testCloseStopsDecoding() {
+        final AtomicInteger recordsPulled = new AtomicInteger();
+        final Iterator<SAMRecord> endless = new Iterator<SAMRecord>() {
+            private final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader();
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public SAMRecord next() {
+                return ArtificialReadUtils.createArtificialSAMRecord(header, "read" + recordsPulled.incrementAndGet(), 0, 1, 10);
+            }
+        };
+
+        final AsyncSAMRecordToReadIterator reads = new AsyncSAMRecordToReadIterator(endless, 5, 2, executor, new ReadAheadStatistics());
+        Assert.assertEquals(reads.next().getName(), "read1");
+        reads.close();
+
+        // the decoder stopped using the wrapped iterator before close() returned
+        final int pulledAtClose = recordsPulled.get();
+        Assert.assertTrue(pulledAtClose <= (2 + 2) * 5, "read too far ahead: " + pulledAtClose);
+        Assert.assertFalse(reads.hasNext());
+        Assert.assertEquals(recordsPulled.get(), pulledAtClose);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class, expectedExceptionsMessageRegExp = "bad record")
+    public void testDecodingFailureIsRethrown() {
+        final List<SAMRecord> records = makeRecords(25);
+        final Iterator<SAMRecord> failing = new Iterator<SAMRecord>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public SAMRecord next() {
+                if ( next == records.size() ) {
+                    throw new IllegalStateException("bad record");
+                }
+                return records.get(next++);
+            }
+        };
+
+        try ( final AsyncSAMRecordToReadIterator reads = new AsyncSAMRecordToReadIterator(failing, 10, 1, executor, new ReadAheadStatistics()) ) {
+            int numReads = 0;
+            try {
+                while ( reads.hasNext() ) {
+                    reads.next();
+                    numReads++;
+                }
+            } finally {
+                // the reads decoded before the failure are returned first
+                Assert.assertEquals(numReads, 20);
+            }
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidBatchSize() {
+        new AsyncSAMRecordToReadIterator(makeRecords(1).iterator(), 0, 1, executor, new ReadAheadStatistics());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidNumberOfBatches() {
+        new AsyncSAMRecordToReadIterator(makeRecords(1).iterator(), 1, 0, executor, new ReadAheadStatistics());
+    }
+
+    private static List<SAMRecord> makeRecords( final int numRecords ) {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader();
+        final List<SAMRecord> records = new ArrayList<>(numRecords);
+        for ( int i = 0; i < numRecords; i++ ) {
+            records.add(ArtificialReadUtils.createArtificialSAMRecord(header, "read" + i, 0, 1 + i, 10));
+        }
+        return records;
+    }
+}
@@ -0,0 +1,41 @@
+package org.broadinstitute.hellbender.utils.pairhmm;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public final class HaplotypePrefixOrderUnitTest extends GATKBaseTest {
+
+    @DataProvider(name = "HaplotypesProvider")
+    public Object[][] makeHaplotypesProvider() {
+        return new Object[][]{
+                { Collections.emptyList(), new int[]{}, new int[]{} },
+                { Arrays.asList("ACGT"), new int[]{0}, new int[]{0} },
+                // prefix trie order within a length
+                { Arrays.asList("ACGTT", "ACCTT", "ACGTA", "TCGTT"), new int[]{1, 2, 0, 3}, new int[]{0, 2, 4, 0} },
+                // haplotypes of different lengths don't share columns
+                { Arrays.asList("ACGTA", "ACGT", "ACGTT", "ACG"), new int[]{3, 1, 0, 2}, new int[]{0, 0, 0, 4} },
+                // identical haplotypes share all their columns
+                { Arrays.asList("ACGT", "ACGT"), new int[]{0, 1}, new int[]{0, 4} }
+        };
+    }
+
+    @Test(dataProvider = "HaplotypesProvider")
+    public void testOrder(final List<String> bases, final int[] expectedIndices, final int[] expectedSharedPrefixLengths) {
+        final List<Haplotype> haplotypes = bases.stream().map(b -> new Haplotype(b.getBytes())).collect(Collectors.toList());
+        final HaplotypePrefixOrder order = new HaplotypePrefixOrder(haplotypes);
+
+        Assert.assertEquals(order.size(), haplotypes.size());
+        for ( int k = 0; k < order.size(); k++ ) {
+            Assert.assertEquals(order.haplotypeIndex(k), expectedIndices[k], "haplotype index at " + k);
+            Assert.assertEquals(order.sharedPrefixLength(k), expectedSharedPrefixLengths[k], "shared prefix length at " + k);
+        }
+    }
+}
@@ -5,10 +5,14 @@ import org.broadinstitute.hellbender.utils.BaseUtils;
 import org.broadinstitute.hellbender.utils.MathUtils;
 import org.broadinstitute.hellbender.utils.QualityUtils;
 import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedAlleleList;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedSampleList;
 import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
+import org.broadinstitute.hellbender.utils.genotyper.ReadLikelihoods;
 import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
 import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
 import org.broadinstitute.hellbender.GATKBaseTest;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
@@ -532,6 +536,112 @@ public final class PairHMMUnitTest extends GATKBaseTest {
 
     }
 
+    @Test(dataProvider = "JustHMMProvider")
+    public void testBatchedLikelihoodsMatchUnbatched(final PairHMM hmm) {
+        final String ref = "GATTTATCATCGAGTCTGCACGTAATGACGATTGCACATGGATCGTTATCAGCTATCTCGAGG";
+        final List<Haplotype> haplotypes = Arrays.asList(
+                new Haplotype(ref.getBytes(), true),
+                new Haplotype((ref.substring(0, 50) + "C" + ref.substring(51)).getBytes()),
+                new Haplotype((ref.substring(0, 20) + "T" + ref.substring(21)).getBytes()),
+                new Haplotype((ref.substring(0, 30) + ref.substring(33)).getBytes()),
+                new Haplotype((ref.substring(0, 40) + "T" + ref.substring(41)).getBytes()));
+
+        final Map<String, List<GATKRead>> perSampleReads = new LinkedHashMap<>();
+        perSampleReads.put("sample1", Arrays.asList(artificialRead(ref.substring(5, 40)), artificialRead(ref.substring(25, 60))));
+        perSampleReads.put("sample2", Arrays.asList(artificialRead(ref.substring(10, 45)), artificialRead(haplotypes.get(3).getBaseString().substring(20, 55)),
+                artificialRead(ref.substring(15, 40))));
+        final Map<GATKRead, byte[]> gcp = new LinkedHashMap<>();
+        perSampleReads.values().forEach(reads -> gcp.putAll(buildGapContinuationPenalties(reads, (byte) 10)));
+
+        final ReadLikelihoods<Haplotype> likelihoods = new ReadLikelihoods<>(new IndexedSampleList(perSampleReads.keySet()),
+                new IndexedAlleleList<>(haplotypes), perSampleReads);
+        final List<LikelihoodMatrix<Haplotype>> sampleLikelihoods = Arrays.asList(likelihoods.sampleMatrix(0), likelihoods.sampleMatrix(1));
+        final List<List<GATKRead>> processedReads = new ArrayList<>(perSampleReads.values());
+
+        final long computedBefore = hmm.getComputedCells();
+        final long reusedBefore = hmm.getReusedCells();
+        hmm.computeLog10Likelihoods(sampleLikelihoods, processedReads, gcp);
+        final double[] logLikelihoodArray = hmm.getLogLikelihoodArray();
+        Assert.assertEquals(logLikelihoodArray.length, processedReads.stream().mapToInt(List::size).sum() * haplotypes.size());
+
+        long totalCells = 0;
+        int readOffset = 0;
+        hmm.initialize(ref.length(), ref.length());
+        for ( int s = 0; s < processedReads.size(); s++ ) {
+            for ( int r = 0; r < processedReads.get(s).size(); r++, readOffset++ ) {
+                final GATKRead read = processedReads.get(s).get(r);
+                for ( int a = 0; a < haplotypes.size(); a++ ) {
+                    final byte[] haplotypeBases = haplotypes.get(a).getBases();
+                    final double expected = hmm.computeReadLikelihoodGivenHaplotypeLog10(haplotypeBases, read.getBases(), read.getBaseQualities(),
+                            ReadUtils.getBaseInsertionQualities(read), ReadUtils.getBaseDeletionQualities(read), gcp.get(read), true, null);
+                    Assert.assertEquals(sampleLikelihoods.get(s).get(a, r), expected, "likelihood of read " + r + " of sample " + s + " given haplotype " + a);
+                    Assert.assertEquals(logLikelihoodArray[readOffset * haplotypes.size() + a], expected, "log likelihood array for read " + r + " of sample " + s + " given haplotype " + a);
+                    totalCells += (long) read.getLength() * haplotypeBases.length;
+                }
+            }
+        }
+
+        final long reusedCells = hmm.getReusedCells() - reusedBefore;
+        Assert.assertTrue(reusedCells > 0, "no cells were reused between haplotypes sharing a prefix");
+        Assert.assertEquals(hmm.getComputedCells() - computedBefore + reusedCells, totalCells);
+    }
+
+    @Test
+    public void testDefaultBatchedLogLikelihoodArrayHoldsAllTheSamples() {
+        // a PairHMM that only has the default, one sample at a time, batched implementation
+        final LoglessPairHMM logless = new LoglessPairHMM();
+        final PairHMM hmm = new PairHMM() {
+            @Override
+            public void initialize(final int readMaxLength, final int haplotypeMaxLength) {
+                super.initialize(readMaxLength, haplotypeMaxLength);
+                logless.initialize(readMaxLength, haplotypeMaxLength);
+            }
+
+            @Override
+            protected double subComputeReadLikelihoodGivenHaplotypeLog10(final byte[] haplotypeBases, final byte[] readBases, final byte[] readQuals,
+                                                                         final byte[] insertionGOP, final byte[] deletionGOP, final byte[] overallGCP,
+                                                                         final int hapStartIndex, final boolean recacheReadValues, final int nextHapStartIndex) {
+                return logless.computeReadLikelihoodGivenHaplotypeLog10(haplotypeBases, readBases, readQuals, insertionGOP, deletionGOP, overallGCP, true, null);
+            }
+        };
+
+        final String ref = "GATTTATCATCGAGTCTGCACGTAATGACGATTGCACATGGATCGTTATCAGCTATCTCGAGG";
+        final List<Haplotype> haplotypes = Arrays.asList(
+                new Haplotype(ref.getBytes(), true),
+                new Haplotype((ref.substring(0, 30) + ref.substring(33)).getBytes()));
+        final Map<String, List<GATKRead>> perSampleReads = new LinkedHashMap<>();
+        perSampleReads.put("sample1", Arrays.asList(artificialRead(ref.substring(5, 40)), artificialRead(ref.substring(25, 60))));
+        perSampleReads.put("sample2", Collections.emptyList());
+        perSampleReads.put("sample3", Collections.singletonList(artificialRead(ref.substring(10, 45))));
+        final Map<GATKRead, byte[]> gcp = new LinkedHashMap<>();
+        perSampleReads.values().forEach(reads -> gcp.putAll(buildGapContinuationPenalties(reads, (byte) 10)));
+
+        final ReadLikelihoods<Haplotype> likelihoods = new ReadLikelihoods<>(new IndexedSampleList(perSampleReads.keySet()),
+                new IndexedAlleleList<>(haplotypes), perSampleReads);
+        final List<LikelihoodMatrix<Haplotype>> sampleLikelihoods = Arrays.asList(likelihoods.sampleMatrix(0), likelihoods.sampleMatrix(1), likelihoods.sampleMatrix(2));
+        final List<List<GATKRead>> processedReads = new ArrayList<>(perSampleReads.values());
+
+        hmm.computeLog10Likelihoods(sampleLikelihoods, processedReads, gcp);
+        final double[] logLikelihoodArray = hmm.getLogLikelihoodArray();
+        Assert.assertEquals(logLikelihoodArray.length, 3 * haplotypes.size());
+        int readOffset = 0;
+        for ( int s = 0; s < processedReads.size(); s++ ) {
+            for ( int r = 0; r < processedReads.get(s).size(); r++, readOffset++ ) {
+                for ( int a = 0; a < haplotypes.size(); a++ ) {
+                    Assert.assertEquals(logLikelihoodArray[readOffset * haplotypes.size() + a], sampleLikelihoods.get(s).get(a, r),
+                            "log likelihood array for read " + r + " of sample " + s + " given haplotype " + a);
+                }
+            }
+        }
+
+        hmm.computeLog10Likelihoods(sampleLikelihoods.subList(1, 2), processedReads.subList(1, 2), gcp);
+        Assert.assertEquals(hmm.getLogLikelihoodArray().length, 0);
+    }
+
+    private static GATKRead artificialRead(final String bases) {
+        return ArtificialReadUtils.createArtificialRead(bases.getBytes(), Utils.dupBytes((byte) 30, bases.length()), bases.length() + "M");
+    }
+
     private LikelihoodMatrix<Haplotype> matrix(final List<Haplotype> haplotypes) {
         return new LikelihoodMatrix<Haplotype>() {
             @Override
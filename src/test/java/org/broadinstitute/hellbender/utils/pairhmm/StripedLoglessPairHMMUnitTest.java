@@ -0,0 +1,170 @@
+package org.broadinstitute.hellbender.utils.pairhmm;
+
+import org.broadinstitute.gatk.nativebindings.pairhmm.PairHMMNativeArguments;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedAlleleList;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedSampleList;
+import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
+import org.broadinstitute.hellbender.utils.genotyper.ReadLikelihoods;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.*;
+
+public final class StripedLoglessPairHMMUnitTest extends GATKBaseTest {
+
+    private static final byte[] BASES = {'A', 'C', 'G', 'T'};
+
+    @DataProvider(name = "StripeSizes")
+    public Object[][] makeStripeSizes() {
+        return new Object[][]{
+                // fewer haplotypes than lanes, exactly one stripe, and several stripes with a partially filled one
+                {3, new int[]{7}},
+                {StripedLoglessPairHMM.LANES, new int[]{3, 12}},
+                {2 * StripedLoglessPairHMM.LANES + 3, new int[]{StripedLoglessPairHMM.LANES + 5, 1}}
+        };
+    }
+
+    @Test(dataProvider = "StripeSizes")
+    public void testSameLikelihoodsAsLogless(final int haplotypeCount, final int[] readsPerSample) {
+        final Random random = new Random(13);
+        final byte[] reference = randomBases(random, 120);
+        final List<Haplotype> haplotypes = new ArrayList<>();
+        haplotypes.add(new Haplotype(reference, true));
+        for ( int h = 1; h < haplotypeCount; h++ ) {
+            final byte[] variant = reference.clone();
+            final int snp = random.nextInt(variant.length);
+            variant[snp] = h % 4 == 0 ? (byte) 'N' : BASES[(Arrays.binarySearch(BASES, variant[snp]) + 1 + random.nextInt(BASES.length - 1)) % BASES.length];
+            final int indelStart = 30 + random.nextInt(60);
+            switch ( h % 3 ) {
+                case 0: // deletion
+                    haplotypes.add(new Haplotype(Utils.concat(Arrays.copyOfRange(variant, 0, indelStart), Arrays.copyOfRange(variant, indelStart + 1 + h % 5, variant.length))));
+                    break;
+                case 1: // insertion
+                    haplotypes.add(new Haplotype(Utils.concat(Arrays.copyOfRange(variant, 0, indelStart), randomBases(random, 1 + h % 4), Arrays.copyOfRange(variant, indelStart, variant.length))));
+                    break;
+                default:
+                    haplotypes.add(new Haplotype(variant));
+            }
+        }
+
+        final Map<String, List<GATKRead>> perSampleReads = new LinkedHashMap<>();
+        final Map<GATKRead, byte[]> gcp = new LinkedHashMap<>();
+        for ( int s = 0; s < readsPerSample.length; s++ ) {
+            final List<GATKRead> reads = new ArrayList<>();
+            for ( int r = 0; r < readsPerSample[s]; r++ ) {
+                final byte[] source = haplotypes.get(random.nextInt(haplotypes.size())).getBases();
+                final int length = r % 3 == 0 ? 50 : 76;
+                final int start = random.nextInt(source.length - length);
+                final byte[] bases = Arrays.copyOfRange(source, start, start + length);
+                bases[random.nextInt(length)] = BASES[random.nextInt(BASES.length)];
+                if ( r % 5 == 0 ) {
+                    bases[random.nextInt(length)] = 'N';
+                }
+                final byte[] quals = new byte[length];
+                final byte[] insQuals = new byte[length];
+                final byte[] delQuals = new byte[length];
+                for ( int i = 0; i < length; i++ ) {
+                    quals[i] = (byte) (6 + random.nextInt(35));
+                    insQuals[i] = (byte) (30 + random.nextInt(16));
+                    delQuals[i] = (byte) (30 + random.nextInt(16));
+                }
+                final GATKRead read = ArtificialReadUtils.createArtificialRead(bases, quals, length + "M");
+                ReadUtils.setInsertionBaseQualities(read, insQuals);
+                ReadUtils.setDeletionBaseQualities(read, delQuals);
+                reads.add(read);
+                gcp.put(read, Utils.dupBytes((byte) (8 + random.nextInt(4)), length));
+            }
+            perSampleReads.put("sample" + s, reads);
+        }
+        final List<List<GATKRead>> processedReads = new ArrayList<>(perSampleReads.values());
+
+        final ReadLikelihoods<Haplotype> expected = computeLikelihoods(new LoglessPairHMM(), haplotypes, perSampleReads, processedReads, gcp);
+        final ReadLikelihoods<Haplotype> actual = computeLikelihoods(new StripedLoglessPairHMM(), haplotypes, perSampleReads, processedReads, gcp);
+        for ( int s = 0; s < readsPerSample.length; s++ ) {
+            for ( int r = 0; r < readsPerSample[s]; r++ ) {
+                for ( int a = 0; a < haplotypes.size(); a++ ) {
+                    Assert.assertEquals(actual.sampleMatrix(s).get(a, r), expected.sampleMatrix(s).get(a, r),
+                            "likelihood of read " + r + " of sample " + s + " given haplotype " + a);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSingleSampleLikelihoodArray() {
+        final Random random = new Random(7);
+        final List<Haplotype> haplotypes = Arrays.asList(new Haplotype(randomBases(random, 60), true), new Haplotype(randomBases(random, 61)));
+        final List<GATKRead> reads = new ArrayList<>();
+        final Map<GATKRead, byte[]> gcp = new LinkedHashMap<>();
+        for ( int r = 0; r < 11; r++ ) {
+            final byte[] bases = Arrays.copyOfRange(haplotypes.get(r % 2).getBases(), r, r + 40);
+            final GATKRead read = ArtificialReadUtils.createArtificialRead(bases, Utils.dupBytes((byte) 30, bases.length), bases.length + "M");
+            reads.add(read);
+            gcp.put(read, Utils.dupBytes((byte) 10, bases.length));
+        }
+
+        final PairHMM logless = new LoglessPairHMM();
+        final PairHMM striped = new StripedLoglessPairHMM();
+        for ( final PairHMM hmm : Arrays.asList(logless, striped) ) {
+            final ReadLikelihoods<Haplotype> likelihoods = new ReadLikelihoods<>(new IndexedSampleList("sample"), new IndexedAlleleList<>(haplotypes),
+                    Collections.singletonMap("sample", reads));
+            hmm.initialize(haplotypes, Collections.singletonMap("sample", reads), 40, 61);
+            hmm.computeLog10Likelihoods(likelihoods.sampleMatrix(0), reads, gcp);
+        }
+        Assert.assertEquals(striped.getLogLikelihoodArray(), logless.getLogLikelihoodArray());
+        Assert.assertEquals(striped.getComputedCells(), logless.getComputedCells());
+    }
+
+    @Test
+    public void testSingleHaplotypeSameAsLogless() {
+        final Random random = new Random(17);
+        final byte[] haplotypeBases = randomBases(random, 50);
+        final byte[] readBases = Arrays.copyOfRange(haplotypeBases, 5, 35);
+        readBases[10] = (byte) 'N';
+        final byte[] readQuals = Utils.dupBytes((byte) 30, readBases.length);
+        final byte[] insertionGOP = Utils.dupBytes((byte) 45, readBases.length);
+        final byte[] deletionGOP = Utils.dupBytes((byte) 40, readBases.length);
+        final byte[] overallGCP = Utils.dupBytes((byte) 10, readBases.length);
+
+        final PairHMM logless = new LoglessPairHMM();
+        final PairHMM striped = new StripedLoglessPairHMM();
+        logless.initialize(readBases.length, haplotypeBases.length);
+        striped.initialize(readBases.length, haplotypeBases.length);
+        final double expected = logless.computeReadLikelihoodGivenHaplotypeLog10(haplotypeBases, readBases, readQuals, insertionGOP, deletionGOP, overallGCP, true, null);
+        final double actual = striped.computeReadLikelihoodGivenHaplotypeLog10(haplotypeBases, readBases, readQuals, insertionGOP, deletionGOP, overallGCP, true, null);
+        Assert.assertEquals(actual, expected);
+    }
+
+    @Test
+    public void testImplementation() {
+        final PairHMM hmm = PairHMM.Implementation.STRIPED_LOGLESS_CACHING.makeNewHMM(new PairHMMNativeArguments());
+        Assert.assertTrue(hmm instanceof StripedLoglessPairHMM);
+    }
+
+    private static ReadLikelihoods<Haplotype> computeLikelihoods(final PairHMM hmm, final List<Haplotype> haplotypes, final Map<String, List<GATKRead>> perSampleReads,
+                                                                 final List<List<GATKRead>> processedReads, final Map<GATKRead, byte[]> gcp) {
+        final ReadLikelihoods<Haplotype> likelihoods = new ReadLikelihoods<>(new IndexedSampleList(perSampleReads.keySet()), new IndexedAlleleList<>(haplotypes), perSampleReads);
+        final List<LikelihoodMatrix<Haplotype>> sampleLikelihoods = new ArrayList<>();
+        for ( int s = 0; s < likelihoods.numberOfSamples(); s++ ) {
+            sampleLikelihoods.add(likelihoods.sampleMatrix(s));
+        }
+        hmm.initialize(haplotypes, perSampleReads, 76, haplotypes.stream().mapToInt(Haplotype::length).max().getAsInt());
+        hmm.computeLog10Likelihoods(sampleLikelihoods, processedReads, gcp);
+        return likelihoods;
+    }
+
+    private static byte[] randomBases(final Random random, final int length) {
+        final byte[] bases = new byte[length];
+        for ( int i = 0; i < length; i++ ) {
+            bases[i] = BASES[random.nextInt(BASES.length)];
+        }
+        return bases;
+    }
+}
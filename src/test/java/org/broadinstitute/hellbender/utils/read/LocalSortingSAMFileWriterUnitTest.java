@@ -0,0 +1,94 @@
+package org.broadinstitute.hellbender.utils.read;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileWriterFactory;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordCoordinateComparator;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+public final class LocalSortingSAMFileWriterUnitTest extends GATKBaseTest {
+
+    @DataProvider(name = "Displacements")
+    public Object[][] makeDisplacements() {
+        return new Object[][]{
+                // records are displaced from their sorted position by at most maxDisplacement, then the window size
+                {0, 1, false},
+                {10, 11, false},
+                {10, 100, false},
+                {200, 100, true},
+                {50, 10, true}
+        };
+    }
+
+    @Test(dataProvider = "Displacements")
+    public void testOutputIsSorted( final int maxDisplacement, final int windowSize, final boolean expectWindowExceeded ) throws IOException {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader(3, 0, 1000000);
+        header.setSortOrder(SAMFileHeader.SortOrder.coordinate);
+        final List<SAMRecord> sorted = ParallelBAMFileWriterUnitTest.makeRecords(header, 3000, true);
+
+        // move some records forward in the stream, by up to maxDisplacement records
+        final List<SAMRecord> nearlySorted = new ArrayList<>(sorted);
+        for ( int i = 0; i + maxDisplacement < nearlySorted.size(); i += 2 * maxDisplacement + 1 ) {
+            nearlySorted.add(i + maxDisplacement, nearlySorted.remove(i));
+        }
+
+        final Path output = new File(createTempDir("localSortingSAMFileWriter"), "out.bam").toPath();
+        final LocalSortingSAMFileWriter writer = new LocalSortingSAMFileWriter(output, null, header, windowSize,
+                path -> new SAMFileWriterFactory().setCreateIndex(true).makeBAMWriter(header, true, path));
+        nearlySorted.forEach(writer::addAlignment);
+        Assert.assertEquals(writer.isWindowExceeded(), expectWindowExceeded);
+        writer.close();
+
+        Assert.assertEquals(readNames(output), sorted.stream().map(SAMRecord::getReadName).collect(Collectors.toList()));
+        Assert.assertEquals(output.getParent().toFile().list().length, 2, "only the output and its index should be left");
+    }
+
+    @Test
+    public void testUnsortedOutputIsWrittenAsGiven() throws IOException {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader(3, 0, 1000000);
+        header.setSortOrder(SAMFileHeader.SortOrder.unsorted);
+        final List<SAMRecord> records = ParallelBAMFileWriterUnitTest.makeRecords(header, 500, false);
+
+        final Path output = new File(createTempDir("localSortingSAMFileWriter"), "out.bam").toPath();
+        try ( final LocalSortingSAMFileWriter writer = new LocalSortingSAMFileWriter(output, null, header, 10,
+                path -> new SAMFileWriterFactory().makeBAMWriter(header, true, path)) ) {
+            records.forEach(writer::addAlignment);
+            Assert.assertFalse(writer.isWindowExceeded());
+        }
+
+        Assert.assertEquals(readNames(output), records.stream().map(SAMRecord::getReadName).collect(Collectors.toList()));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidWindowSize() {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader();
+        new LocalSortingSAMFileWriter(new File(createTempDir("localSortingSAMFileWriter"), "out.bam").toPath(), null, header, 0,
+                path -> new SAMFileWriterFactory().makeBAMWriter(header, true, path));
+    }
+
+    private static List<String> readNames( final Path bam ) throws IOException {
+        try ( final SamReader reader = SamReaderFactory.makeDefault().open(bam) ) {
+            final List<SAMRecord> records = StreamSupport.stream(reader.spliterator(), false).collect(Collectors.toList());
+            final List<SAMRecord> resorted = new ArrayList<>(records);
+            Collections.sort(resorted, new SAMRecordCoordinateComparator());
+            if ( reader.getFileHeader().getSortOrder() == SAMFileHeader.SortOrder.coordinate ) {
+                Assert.assertEquals(records, resorted, "output is not sorted");
+            }
+            return records.stream().map(SAMRecord::getReadName).collect(Collectors.toList());
+        }
+    }
+}
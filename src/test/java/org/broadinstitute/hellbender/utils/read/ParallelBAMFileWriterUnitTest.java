@@ -0,0 +1,109 @@
+package org.broadinstitute.hellbender.utils.read;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileWriter;
+import htsjdk.samtools.SAMFileWriterFactory;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordCoordinateComparator;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import htsjdk.samtools.util.zip.DeflaterFactory;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public final class ParallelBAMFileWriterUnitTest extends GATKBaseTest {
+
+    private DeflaterFactory defaultDeflaterFactory;
+
+    // compare against htsjdk's Java deflater, regardless of what other tests may have set as default
+    @BeforeClass
+    public void setJdkDeflater() {
+        defaultDeflaterFactory = BlockCompressedOutputStream.getDefaultDeflaterFactory();
+        BlockCompressedOutputStream.setDefaultDeflaterFactory(new DeflaterFactory());
+    }
+
+    @AfterClass
+    public void restoreDeflater() {
+        BlockCompressedOutputStream.setDefaultDeflaterFactory(defaultDeflaterFactory);
+    }
+
+    @DataProvider(name = "WriterSettings")
+    public Object[][] makeWriterSettings() {
+        return new Object[][]{
+                // number of records, sort order, whether the records are given in order, number of threads
+                {0, SAMFileHeader.SortOrder.coordinate, true, 2},
+                {10, SAMFileHeader.SortOrder.coordinate, true, 1},
+                {5000, SAMFileHeader.SortOrder.coordinate, true, 2},
+                {20000, SAMFileHeader.SortOrder.coordinate, true, 4},
+                {20000, SAMFileHeader.SortOrder.coordinate, false, 3},
+                {5000, SAMFileHeader.SortOrder.unsorted, false, 2}
+        };
+    }
+
+    @Test(dataProvider = "WriterSettings")
+    public void testSameOutputAsHtsjdk( final int numRecords, final SAMFileHeader.SortOrder sortOrder, final boolean preSorted, final int numThreads ) throws IOException {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader(3, 0, 1000000);
+        header.setSortOrder(sortOrder);
+        final List<SAMRecord> records = makeRecords(header, numRecords, preSorted);
+
+        final File outputDir = createTempDir("parallelBAMFileWriter");
+        final Path expected = new File(outputDir, "expected.bam").toPath();
+        final Path actual = new File(outputDir, "actual.bam").toPath();
+
+        try ( final SAMFileWriter htsjdkWriter = new SAMFileWriterFactory().setCreateIndex(true).setCreateMd5File(true).makeBAMWriter(header, preSorted, expected) ) {
+            records.forEach(htsjdkWriter::addAlignment);
+        }
+        try ( final SAMFileWriter parallelWriter = new ParallelBAMFileWriter(actual, header, preSorted, true, true, numThreads) ) {
+            records.forEach(parallelWriter::addAlignment);
+        }
+
+        Assert.assertEquals(Files.readAllBytes(actual), Files.readAllBytes(expected), "BAM differs");
+        Assert.assertEquals(Files.readAllBytes(new File(outputDir, "actual.bam.md5").toPath()), Files.readAllBytes(new File(outputDir, "expected.bam.md5").toPath()), "MD5 differs");
+        final File expectedIndex = new File(outputDir, "expected.bai");
+        final File actualIndex = new File(outputDir, "actual.bai");
+        Assert.assertEquals(actualIndex.exists(), sortOrder == SAMFileHeader.SortOrder.coordinate);
+        if ( expectedIndex.exists() ) {
+            Assert.assertEquals(Files.readAllBytes(actualIndex.toPath()), Files.readAllBytes(expectedIndex.toPath()), "index differs");
+        }
+    }
+
+    @Test
+    public void testGetIndexPath() {
+        final Path dir = createTempDir("parallelBAMFileWriterIndex").toPath();
+        Assert.assertEquals(ParallelBAMFileWriter.getIndexPath(dir.resolve("reads.bam")), dir.resolve("reads.bai"));
+        Assert.assertEquals(ParallelBAMFileWriter.getIndexPath(dir.resolve("reads.out")), dir.resolve("reads.out.bai"));
+    }
+
+    /**
+     * @return records at random positions of the first three contigs of the header, and a few unmapped records
+     */
+    static List<SAMRecord> makeRecords( final SAMFileHeader header, final int numRecords, final boolean sorted ) {
+        final Random random = new Random(numRecords);
+        final List<SAMRecord> records = new ArrayList<>(numRecords);
+        for ( int i = 0; i < numRecords; i++ ) {
+            final SAMRecord record;
+            if ( i % 50 == 49 ) {
+                record = ArtificialReadUtils.createArtificialSAMRecord(header, "unmapped" + i, SAMRecord.NO_ALIGNMENT_REFERENCE_INDEX, SAMRecord.NO_ALIGNMENT_START, 101);
+            } else {
+                record = ArtificialReadUtils.createArtificialSAMRecord(header, "read" + i, random.nextInt(3), 1 + random.nextInt(200000), 101);
+            }
+            records.add(record);
+        }
+        if ( sorted ) {
+            Collections.sort(records, new SAMRecordCoordinateComparator());
+        }
+        return records;
+    }
+}
@@ -0,0 +1,141 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
+import org.broadinstitute.hellbender.utils.recalibration.covariates.StandardCovariateList;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public final class FlatRecalibrationTablesUnitTest extends GATKBaseTest {
+    private static final int NUM_READ_GROUPS = 4;
+
+    private StandardCovariateList covariates;
+
+    @BeforeMethod
+    private void makeCovariates() {
+        final List<String> readGroups = IntStream.range(0, NUM_READ_GROUPS).mapToObj(i -> "readgroup" + i).collect(Collectors.toList());
+        covariates = new StandardCovariateList(new RecalibrationArgumentCollection(), readGroups);
+    }
+
+    /**
+     * Generates random observations, and records them in both a FlatRecalibrationTables and a RecalibrationTables
+     * (using the same RecalUtils methods as BaseRecalibrationEngine used to)
+     */
+    private void fillTables(final Random random, final int numObservations, final FlatRecalibrationTables flatTables, final RecalibrationTables tables) {
+        for ( int n = 0; n < numObservations; n++ ) {
+            final int rg = random.nextInt(NUM_READ_GROUPS);
+            final int qual = 10 + random.nextInt(30);
+            final int event = random.nextInt(EventType.values().length);
+            final double isError = random.nextBoolean() ? 0.0 : random.nextDouble();
+
+            flatTables.increment(isError, rg, qual, event);
+            if ( tables != null ) {
+                RecalUtils.incrementDatumOrPutIfNecessary3keys(tables.getQualityScoreTable(), (byte)qual, isError, rg, qual, event);
+            }
+            for ( int i = FlatRecalibrationTables.QUALITY_SCORE_TABLE_INDEX + 1; i < flatTables.numTables(); i++ ) {
+                final int key = random.nextInt(20);
+                flatTables.increment(i, isError, rg, qual, key, event);
+                if ( tables != null ) {
+                    RecalUtils.incrementDatumOrPutIfNecessary4keys(tables.getTable(i), (byte)qual, isError, rg, qual, key, event);
+                }
+            }
+        }
+    }
+
+    private static void assertTablesEqual(final RecalibrationTables actual, final RecalibrationTables expected) {
+        Assert.assertEquals(actual.numTables(), expected.numTables());
+        for ( int i = 0; i < expected.numTables(); i++ ) {
+            final NestedIntegerArray<RecalDatum> actualTable = actual.getTable(i);
+            final List<NestedIntegerArray.Leaf<RecalDatum>> expectedLeaves = expected.getTable(i).getAllLeaves();
+            Assert.assertEquals(actualTable.getAllLeaves().size(), expectedLeaves.size(), "wrong number of entries in table " + i);
+            for ( final NestedIntegerArray.Leaf<RecalDatum> leaf : expectedLeaves ) {
+                final RecalDatum actualDatum = actualTable.get(leaf.keys);
+                Assert.assertNotNull(actualDatum, "missing entry in table " + i);
+                Assert.assertEquals(actualDatum.getNumObservations(), leaf.value.getNumObservations());
+                Assert.assertEquals(actualDatum.getNumMismatches(), leaf.value.getNumMismatches(), 1e-6);
+                Assert.assertEquals(actualDatum.getEstimatedQReported(), leaf.value.getEstimatedQReported());
+                Assert.assertEquals(actualDatum.getEmpiricalQuality(), leaf.value.getEmpiricalQuality(), 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesRecalibrationTables() {
+        final FlatRecalibrationTables flatTables = new FlatRecalibrationTables(covariates, NUM_READ_GROUPS);
+        final RecalibrationTables tables = new RecalibrationTables(covariates, NUM_READ_GROUPS);
+        Assert.assertEquals(flatTables.numTables(), tables.numTables());
+        Assert.assertTrue(flatTables.isEmpty());
+
+        fillTables(new Random(7), 10000, flatTables, tables);
+        Assert.assertFalse(flatTables.isEmpty());
+
+        final RecalibrationTables converted = flatTables.toRecalibrationTables();
+        Assert.assertTrue(converted.getReadGroupTable().getAllLeaves().isEmpty());
+        assertTablesEqual(converted, tables);
+
+        BaseRecalibrationEngine.finalizeRecalibrationTables(converted);
+        BaseRecalibrationEngine.finalizeRecalibrationTables(tables);
+        assertTablesEqual(converted, tables);
+    }
+
+    @Test
+    public void testCombine() {
+        final FlatRecalibrationTables merged = new FlatRecalibrationTables(covariates);
+        final RecalibrationTables expected = new RecalibrationTables(covariates, NUM_READ_GROUPS);
+        final FlatRecalibrationTables first = new FlatRecalibrationTables(covariates, NUM_READ_GROUPS);
+        final FlatRecalibrationTables second = new FlatRecalibrationTables(covariates, NUM_READ_GROUPS);
+        final Random random = new Random(11);
+        fillTables(random, 5000, first, expected);
+        fillTables(random, 5000, second, expected);
+
+        Assert.assertSame(FlatRecalibrationTables.inPlaceCombine(merged, first), merged);
+        merged.combine(second);
+        assertTablesEqual(merged.toRecalibrationTables(), expected);
+
+        // the merged tables must not share storage with the tables that were merged into them
+        first.increment(1.0, 0, 20, 0);
+        assertTablesEqual(merged.toRecalibrationTables(), expected);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testCombineDifferentSizes() {
+        new FlatRecalibrationTables(covariates, NUM_READ_GROUPS).combine(new FlatRecalibrationTables(covariates, NUM_READ_GROUPS + 1));
+    }
+
+    @Test
+    public void testSynchronizedIncrement() {
+        final FlatRecalibrationTables tables = new FlatRecalibrationTables(covariates, NUM_READ_GROUPS);
+        final int numIncrementsPerKey = 1000;
+        IntStream.range(0, numIncrementsPerKey * NUM_READ_GROUPS).parallel().forEach(n -> {
+            final int rg = n % NUM_READ_GROUPS;
+            tables.synchronizedIncrement(1.0, rg, 30, EventType.BASE_SUBSTITUTION.ordinal());
+            tables.synchronizedIncrement(FlatRecalibrationTables.QUALITY_SCORE_TABLE_INDEX + 1, 0.0, rg, 30, 5, EventType.BASE_SUBSTITUTION.ordinal());
+        });
+
+        final RecalibrationTables converted = tables.toRecalibrationTables();
+        for ( int rg = 0; rg < NUM_READ_GROUPS; rg++ ) {
+            final RecalDatum qualDatum = converted.getQualityScoreTable().get(rg, 30, EventType.BASE_SUBSTITUTION.ordinal());
+            Assert.assertEquals(qualDatum.getNumObservations(), numIncrementsPerKey);
+            Assert.assertEquals(qualDatum.getNumMismatches(), numIncrementsPerKey, 1e-6);
+            final RecalDatum covariateDatum = converted.getTable(FlatRecalibrationTables.QUALITY_SCORE_TABLE_INDEX + 1).get(rg, 30, 5, EventType.BASE_SUBSTITUTION.ordinal());
+            Assert.assertEquals(covariateDatum.getNumObservations(), numIncrementsPerKey);
+            Assert.assertEquals(covariateDatum.getNumMismatches(), 0.0);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testKeyOutOfRange() {
+        new FlatRecalibrationTables(covariates, NUM_READ_GROUPS).increment(0.0, NUM_READ_GROUPS, 30, 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNotAnAdditionalCovariateTable() {
+        new FlatRecalibrationTables(covariates, NUM_READ_GROUPS).increment(FlatRecalibrationTables.QUALITY_SCORE_TABLE_INDEX, 0.0, 0, 30, 0, 0);
+    }
+}
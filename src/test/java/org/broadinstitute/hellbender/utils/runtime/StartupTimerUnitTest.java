@@ -0,0 +1,52 @@
+package org.broadinstitute.hellbender.utils.runtime;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public final class StartupTimerUnitTest extends GATKBaseTest {
+
+    @Test
+    public void testPhases() {
+        final StartupTimer timer = new StartupTimer(true);
+        timer.startPhase("first");
+        timer.startPhase("second");
+        timer.endPhase();
+        timer.startPhase("first");
+        timer.endPhase();
+        Assert.assertEquals(new ArrayList<>(timer.getPhaseNanos().keySet()), Arrays.asList("first", "second"));
+        timer.getPhaseNanos().values().forEach(nanos -> Assert.assertTrue(nanos >= 0));
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        timer.report(new PrintStream(out, true));
+        final String report = out.toString();
+        Assert.assertTrue(report.contains("  JVM startup"));
+        Assert.assertTrue(report.contains("first"));
+        Assert.assertTrue(report.contains("second"));
+        // the report starts over
+        Assert.assertTrue(timer.getPhaseNanos().isEmpty());
+
+        final ByteArrayOutputStream secondOut = new ByteArrayOutputStream();
+        timer.startPhase("third");
+        timer.report(new PrintStream(secondOut, true));
+        Assert.assertFalse(secondOut.toString().contains("  JVM startup"));
+        Assert.assertTrue(secondOut.toString().contains("third"));
+    }
+
+    @Test
+    public void testDisabled() {
+        final StartupTimer timer = new StartupTimer(false);
+        Assert.assertFalse(timer.isEnabled());
+        timer.startPhase("first");
+        timer.endPhase();
+        Assert.assertTrue(timer.getPhaseNanos().isEmpty());
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        timer.report(new PrintStream(out, true));
+        Assert.assertEquals(out.size(), 0);
+    }
+}
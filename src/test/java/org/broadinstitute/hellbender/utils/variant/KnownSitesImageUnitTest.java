@@ -0,0 +1,118 @@
+package org.broadinstitute.hellbender.utils.variant;
+
+import htsjdk.variant.variantcontext.VariantContext;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.engine.FeatureDataSource;
+import org.broadinstitute.hellbender.engine.spark.KnownSitesCache;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.collections.IntervalsSkipList;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+public final class KnownSitesImageUnitTest extends GATKBaseTest {
+
+    private static final String DBSNP_20 = toolsTestDir + "BQSR/dbsnp_138.b37.20.10m-10m100.vcf";
+
+    @DataProvider(name = "numSites")
+    public Object[][] numSites() {
+        return new Object[][]{{1}, {2}, {7}, {16}, {17}, {100}, {1023}, {1024}, {5000}};
+    }
+
+    @Test(dataProvider = "numSites")
+    public void testForEachOverlappingMatchesBruteForce(final int numSites) {
+        final Random random = new Random(numSites);
+        final KnownSitesImage.Builder builder = new KnownSitesImage.Builder();
+        final List<GATKVariant> sites = new ArrayList<>();
+        for (int i = 0; i < numSites; i++) {
+            final String contig = random.nextBoolean() ? "1" : "2";
+            final int start = random.nextInt(10_000) + 1;
+            // mostly short sites, with the occasional long one
+            final int length = random.nextInt(20) == 0 ? random.nextInt(2000) : random.nextInt(4);
+            final GATKVariant site = new MinimalVariant(new SimpleInterval(contig, start, start + length), length == 0, length > 0);
+            sites.add(site);
+            builder.add(site);
+        }
+        final KnownSitesImage image = builder.build();
+        Assert.assertEquals(image.size(), numSites);
+
+        final File imageFile = createTempFile("knownSites", KnownSitesImage.FILE_EXTENSION);
+        image.write(imageFile.getAbsolutePath());
+        final KnownSitesImage mapped = KnownSitesImage.map(imageFile.getAbsolutePath());
+        Assert.assertEquals(mapped.size(), numSites);
+
+        for (int i = 0; i < 500; i++) {
+            final int start = random.nextInt(12_000) + 1;
+            final SimpleInterval query = new SimpleInterval(random.nextBoolean() ? "1" : "2", start, start + random.nextInt(300));
+            final List<String> expected = sortedDescriptions(sites.stream().filter(query::overlaps).collect(Collectors.toList()));
+            Assert.assertEquals(sortedDescriptions(image.getOverlapping(query)), expected);
+            Assert.assertEquals(sortedDescriptions(mapped.getOverlapping(query)), expected);
+
+            // sites come in order of start
+            final List<Integer> starts = new ArrayList<>();
+            mapped.forEachOverlapping(query.getContig(), query.getStart(), query.getEnd(), (siteStart, siteEnd, isSnp, isIndel) -> starts.add(siteStart));
+            final List<Integer> sortedStarts = new ArrayList<>(starts);
+            sortedStarts.sort(null);
+            Assert.assertEquals(starts, sortedStarts);
+        }
+    }
+
+    @Test
+    public void testUnknownContig() {
+        final KnownSitesImage image = new KnownSitesImage.Builder().add("1", 10, 10, true, false).build();
+        Assert.assertTrue(image.getOverlapping(new SimpleInterval("2", 1, 100)).isEmpty());
+        Assert.assertEquals(image.getOverlapping(new SimpleInterval("1", 1, 100)).size(), 1);
+    }
+
+    @Test
+    public void testMatchesVariantsFile() {
+        final KnownSitesImage image = KnownSitesCache.loadImage(DBSNP_20);
+        final File imageFile = createTempFile("dbsnp", KnownSitesImage.FILE_EXTENSION);
+        image.write(imageFile.getAbsolutePath());
+        Assert.assertTrue(KnownSitesImage.isImage(imageFile.getAbsolutePath()));
+        final KnownSitesImage mapped = KnownSitesCache.loadImage(imageFile.getAbsolutePath());
+
+        final List<GATKVariant> variants = new ArrayList<>();
+        try (final FeatureDataSource<VariantContext> dataSource = new FeatureDataSource<>(new File(DBSNP_20))) {
+            dataSource.forEach(vc -> variants.add(VariantContextVariantAdapter.sparkVariantAdapter(vc)));
+        }
+        final IntervalsSkipList<GATKVariant> skipList = new IntervalsSkipList<>(variants);
+        Assert.assertEquals(mapped.size(), variants.size());
+        for (int start = 9_999_900; start < 10_000_200; start += 7) {
+            final SimpleInterval query = new SimpleInterval("20", start, start + 150);
+            Assert.assertEquals(sortedDescriptions(mapped.getOverlapping(query)), sortedDescriptions(skipList.getOverlapping(query)));
+        }
+    }
+
+    @Test(expectedExceptions = UserException.MalformedFile.class)
+    public void testNotAnImage() throws IOException {
+        final File notAnImage = createTempFile("notAnImage", KnownSitesImage.FILE_EXTENSION);
+        Files.write(notAnImage.toPath(), new byte[KnownSitesImage.HEADER_BYTES + 8]);
+        KnownSitesImage.map(notAnImage.getAbsolutePath());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidSite() {
+        new KnownSitesImage.Builder().add("1", 10, 9, true, false);
+    }
+
+    private static List<String> sortedDescriptions(final List<GATKVariant> variants) {
+        final String[] descriptions = variants.stream().map(KnownSitesImageUnitTest::describe).toArray(String[]::new);
+        Arrays.sort(descriptions);
+        return Arrays.asList(descriptions);
+    }
+
+    private static String describe(final GATKVariant variant) {
+        return variant.getContig() + ":" + variant.getStart() + "-" + variant.getEnd() + " " + variant.isSnp() + " " + variant.isIndel();
+    }
+}
@@ -1,15 +1,21 @@
 package org.broadinstitute.hellbender.utils.variant;
 
+import htsjdk.variant.variantcontext.Allele;
 import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.VariantContextBuilder;
+import htsjdk.variant.vcf.VCFConstants;
+import org.apache.spark.SparkConf;
 import org.broadinstitute.hellbender.engine.FeatureDataSource;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.test.SparkTestUtils;
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class VariantContextVariantAdapterTest extends GATKBaseTest {
@@ -40,6 +46,36 @@ public class VariantContextVariantAdapterTest extends GATKBaseTest {
         }
     }
 
+    @Test(dataProvider = "VariantDataProvider")
+    public void testKryoRoundTrip(final List<GATKVariant> expectedVariantList) {
+        final SparkConf conf = new SparkConf().set("spark.kryo.registrator",
+                "org.broadinstitute.hellbender.engine.spark.GATKRegistrator");
+        try (FeatureDataSource<VariantContext> featureSource = new FeatureDataSource<>(QUERY_TEST_VCF)) {
+            for (VariantContext feature : featureSource) {
+                final GATKVariant adapter = new VariantContextVariantAdapter(feature);
+                Assert.assertTrue(VariantUtils.variantsAreEqual(SparkTestUtils.roundTripInKryo(adapter, GATKVariant.class, conf), adapter));
+                final GATKVariant minimal = VariantContextVariantAdapter.sparkVariantAdapter(feature);
+                Assert.assertTrue(VariantUtils.variantsAreEqual(SparkTestUtils.roundTripInKryo(minimal, GATKVariant.class, conf), minimal));
+            }
+        }
+        for (final GATKVariant variant : expectedVariantList) {
+            Assert.assertTrue(VariantUtils.variantsAreEqual(SparkTestUtils.roundTripInKryo(variant, GATKVariant.class, conf), variant));
+        }
+    }
+
+    @Test
+    public void testKryoRoundTripWithEnd() {
+        final SparkConf conf = new SparkConf().set("spark.kryo.registrator",
+                "org.broadinstitute.hellbender.engine.spark.GATKRegistrator");
+        final VariantContext deletion = new VariantContextBuilder("test", "1", 100, 600,
+                Arrays.asList(Allele.create("A", true), Allele.create("<DEL>", false)))
+                .attribute(VCFConstants.END_KEY, 600).make();
+        final GATKVariant adapter = new VariantContextVariantAdapter(deletion);
+        final GATKVariant roundTripped = SparkTestUtils.roundTripInKryo(adapter, GATKVariant.class, conf);
+        Assert.assertEquals(roundTripped.getEnd(), 600);
+        Assert.assertTrue(VariantUtils.variantsAreEqual(roundTripped, adapter));
+    }
+
     @DataProvider(name = "VariantDataProvider")
     public Object[][] getVariantData() {
         List<GATKVariant> variantSet = new ArrayList<>();
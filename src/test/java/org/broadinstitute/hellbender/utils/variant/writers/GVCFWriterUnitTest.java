@@ -593,4 +593,78 @@ public class GVCFWriterUnitTest extends GATKBaseTest {
 
     }
 
+
+    @Test
+    public void testHomRefRunsAreBandedLikeTheirSites() {
+        final Random random = new Random(7);
+        final List<VariantContext> records = new ArrayList<>();
+        records.add(makeHomRefRun(random, CHR1, 1, 30));
+        // a run contiguous with the previous one, which can extend its last band
+        records.add(makeHomRefRun(random, CHR1, 31, 20));
+        // a deletion that covers the start of the next run
+        records.add(makeDeletion(51, 4));
+        records.add(makeHomRefRun(random, CHR1, 52, 25));
+        // a gap
+        records.add(makeHomRefRun(random, CHR1, 100, 10));
+        records.add(makeNonRef(CHR1, 110));
+        records.add(makeHomRefRun(random, CHR2, 1, 40));
+
+        final MockWriter runsWriter = new MockWriter();
+        final MockWriter sitesWriter = new MockWriter();
+        try (final GVCFWriter runs = new GVCFWriter(runsWriter, standardPartition, HomoSapiensConstants.DEFAULT_PLOIDY);
+             final GVCFWriter sites = new GVCFWriter(sitesWriter, standardPartition, HomoSapiensConstants.DEFAULT_PLOIDY)) {
+            for ( final VariantContext vc : records ) {
+                runs.add(vc);
+                if ( vc instanceof HomRefRun ) {
+                    ((HomRefRun) vc).toSiteVariantContexts().forEach(sites::add);
+                } else {
+                    sites.add(vc);
+                }
+            }
+        }
+
+        Assert.assertTrue(runsWriter.emitted.size() > records.size());
+        Assert.assertEquals(runsWriter.emitted.size(), sitesWriter.emitted.size());
+        for ( int i = 0; i < runsWriter.emitted.size(); i++ ) {
+            Assert.assertEquals(runsWriter.emitted.get(i).toString(), sitesWriter.emitted.get(i).toString());
+        }
+    }
+
+    @Test
+    public void testHomRefRunIsABlock() {
+        final HomRefRun run = new HomRefRun("test", CHR1, 10, SAMPLE_NAME, 2, "ACG".getBytes(),
+                new int[]{3, 5, 8}, new int[]{0, 1, 0}, new int[]{6, 3, 9}, new int[]{0, 6, 60, 0, 3, 40, 0, 9, 30});
+        Assert.assertEquals(run.size(), 3);
+        assertGoodVC(run, CHR1, 10, 12, false);
+        Assert.assertEquals(run.getGenotype(0).getPL(), new int[]{0, 3, 30});
+        Assert.assertEquals(run.getGenotype(0).getDP(), 6);
+        Assert.assertEquals(run.getGenotype(0).getExtendedAttribute(GATKVCFConstants.MIN_DP_FORMAT_KEY), 3);
+
+        final VariantContext site = run.getSiteVariantContext(1);
+        Assert.assertEquals(site.getStart(), 11);
+        Assert.assertEquals(site.getEnd(), 11);
+        Assert.assertEquals(site.getReference(), Allele.create("C", true));
+        Assert.assertEquals(site.getGenotype(0).getAD(), new int[]{5, 1});
+        Assert.assertEquals(site.getGenotype(0).getDP(), 6);
+        Assert.assertEquals(site.getGenotype(0).getGQ(), 3);
+        Assert.assertEquals(site.getGenotype(0).getPL(), new int[]{0, 3, 40});
+    }
+
+    private static HomRefRun makeHomRefRun(final Random random, final String contig, final int start, final int size) {
+        final byte[] refBases = new byte[size];
+        final int[] refDepths = new int[size];
+        final int[] nonRefDepths = new int[size];
+        final int[] GQs = new int[size];
+        final int[] PLs = new int[size * 3];
+        for ( int i = 0; i < size; i++ ) {
+            refBases[i] = (byte) "ACGT".charAt(random.nextInt(4));
+            refDepths[i] = random.nextInt(30);
+            nonRefDepths[i] = random.nextInt(3);
+            // long stretches within the same band, with a few changes
+            GQs[i] = i > 0 && random.nextDouble() < 0.8 ? GQs[i - 1] : random.nextInt(MAX_GENOTYPE_QUAL + 10);
+            PLs[3 * i + 1] = GQs[i];
+            PLs[3 * i + 2] = GQs[i] + random.nextInt(50);
+        }
+        return new HomRefRun("test", contig, start, SAMPLE_NAME, 2, refBases, refDepths, nonRefDepths, GQs, PLs);
+    }
 }